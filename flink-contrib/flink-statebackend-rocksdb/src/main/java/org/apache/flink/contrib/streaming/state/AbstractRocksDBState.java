@@ -28,12 +28,12 @@ import org.apache.flink.runtime.state.KvStateSnapshot;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksDBException;
 
-import org.rocksdb.WriteOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Base class for {@link State} implementations that store state in a RocksDB database.
@@ -63,10 +63,11 @@ public abstract class AbstractRocksDBState<K, N, S extends State, SD extends Sta
 	/** The column family of this particular instance of state */
 	protected ColumnFamilyHandle columnFamily;
 
-	/**
-	 * We disable writes to the write-ahead-log here.
-	 */
-	private final WriteOptions writeOptions;
+	/** Cache of the recently accessed values, null if the backend neither caches nor batches writes */
+	private final RocksDBStateCache cache;
+
+	/** Whether values were merged into keys that are not cached, since the last read from RocksDB */
+	private boolean uncachedMerges;
 
 	/**
 	 * Creates a new RocksDB backed state.
@@ -81,9 +82,7 @@ public abstract class AbstractRocksDBState<K, N, S extends State, SD extends Sta
 		this.backend = backend;
 
 		this.columnFamily = columnFamily;
-
-		writeOptions = new WriteOptions();
-		writeOptions.setDisableWAL(true);
+		this.cache = backend.createStateCache();
 	}
 
 	// ------------------------------------------------------------------------
@@ -94,13 +93,71 @@ public abstract class AbstractRocksDBState<K, N, S extends State, SD extends Sta
 		DataOutputViewStreamWrapper out = new DataOutputViewStreamWrapper(baos);
 		try {
 			writeKeyAndNamespace(out);
-			byte[] key = baos.toByteArray();
-			backend.db.remove(columnFamily, writeOptions, key);
+			removeValueBytes(baos.toByteArray());
 		} catch (IOException|RocksDBException e) {
 			throw new RuntimeException("Error while removing entry from RocksDB", e);
 		}
 	}
 
+	/**
+	 * Returns the value of the given key, or null if the key does not exist. The value is taken
+	 * from the cache, if possible.
+	 */
+	protected byte[] getValueBytes(byte[] key) throws RocksDBException {
+		if (cache == null) {
+			return backend.db.get(columnFamily, key);
+		}
+
+		byte[] cached = cache.get(key);
+		if (cached != null) {
+			return cached == RocksDBStateCache.ABSENT ? null : cached;
+		}
+
+		if (uncachedMerges) {
+			// the key may have merges in the write batch that the cache does not reflect
+			backend.flushWriteBatch();
+			uncachedMerges = false;
+		}
+		byte[] value = backend.db.get(columnFamily, key);
+		cache.putClean(key, value);
+		return value;
+	}
+
+	protected void putValueBytes(byte[] key, byte[] value) throws RocksDBException {
+		if (cache != null) {
+			cache.putWritten(key, value);
+		}
+		backend.put(columnFamily, key, value);
+	}
+
+	protected void removeValueBytes(byte[] key) throws RocksDBException {
+		if (cache != null) {
+			cache.putWritten(key, RocksDBStateCache.ABSENT);
+		}
+		backend.remove(columnFamily, key);
+	}
+
+	/**
+	 * Appends the given value to the value of the given key, using the merge operator of the
+	 * column family, which separates the values with a comma.
+	 */
+	protected void mergeValueBytes(byte[] key, byte[] value) throws RocksDBException {
+		if (cache != null) {
+			byte[] cached = cache.get(key);
+			if (cached == null) {
+				uncachedMerges = true;
+			} else if (cached == RocksDBStateCache.ABSENT) {
+				cache.putWritten(key, value);
+			} else {
+				byte[] merged = Arrays.copyOf(cached, cached.length + 1 + value.length);
+				merged[cached.length] = ',';
+				System.arraycopy(value, 0, merged, cached.length + 1, value.length);
+				cache.putWritten(key, merged);
+			}
+		}
+		backend.merge(columnFamily, key, value);
+	}
+
 	protected void writeKeyAndNamespace(DataOutputView out) throws IOException {
 		backend.keySerializer().serialize(backend.currentKey(), out);
 		out.writeByte(42);
@@ -27,7 +27,6 @@ import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
 
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksDBException;
-import org.rocksdb.WriteOptions;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -56,12 +55,6 @@ public class RocksDBFoldingState<K, N, T, ACC>
 	/** User-specified fold function */
 	private final FoldFunction<T, ACC> foldFunction;
 
-	/**
-	 * We disable writes to the write-ahead-log here. We can't have these in the base class
-	 * because JNI segfaults for some reason if they are.
-	 */
-	private final WriteOptions writeOptions;
-
 	/**
 	 * Creates a new {@code RocksDBFoldingState}.
 	 *
@@ -79,9 +72,6 @@ public class RocksDBFoldingState<K, N, T, ACC>
 		this.stateDesc = requireNonNull(stateDesc);
 		this.valueSerializer = stateDesc.getSerializer();
 		this.foldFunction = stateDesc.getFoldFunction();
-
-		writeOptions = new WriteOptions();
-		writeOptions.setDisableWAL(true);
 	}
 
 	@Override
@@ -91,7 +81,7 @@ public class RocksDBFoldingState<K, N, T, ACC>
 		try {
 			writeKeyAndNamespace(out);
 			byte[] key = baos.toByteArray();
-			byte[] valueBytes = backend.db.get(columnFamily, key);
+			byte[] valueBytes = getValueBytes(key);
 			if (valueBytes == null) {
 				return stateDesc.getDefaultValue();
 			}
@@ -108,18 +98,18 @@ public class RocksDBFoldingState<K, N, T, ACC>
 		try {
 			writeKeyAndNamespace(out);
 			byte[] key = baos.toByteArray();
-			byte[] valueBytes = backend.db.get(columnFamily, key);
+			byte[] valueBytes = getValueBytes(key);
 
 			if (valueBytes == null) {
 				baos.reset();
 				valueSerializer.serialize(foldFunction.fold(stateDesc.getDefaultValue(), value), out);
-				backend.db.put(columnFamily, writeOptions, key, baos.toByteArray());
+				putValueBytes(key, baos.toByteArray());
 			} else {
 				ACC oldValue = valueSerializer.deserialize(new DataInputViewStreamWrapper(new ByteArrayInputStream(valueBytes)));
 				ACC newValue = foldFunction.fold(oldValue, value);
 				baos.reset();
 				valueSerializer.serialize(newValue, out);
-				backend.db.put(columnFamily, writeOptions, key, baos.toByteArray());
+				putValueBytes(key, baos.toByteArray());
 			}
 		} catch (Exception e) {
 			throw new RuntimeException("Error while adding data to RocksDB", e);
@@ -26,7 +26,6 @@ import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
 
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksDBException;
-import org.rocksdb.WriteOptions;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -58,12 +57,6 @@ public class RocksDBListState<K, N, V>
 	/** This holds the name of the state and can create an initial default value for the state. */
 	private final ListStateDescriptor<V> stateDesc;
 
-	/**
-	 * We disable writes to the write-ahead-log here. We can't have these in the base class
-	 * because JNI segfaults for some reason if they are.
-	 */
-	private final WriteOptions writeOptions;
-
 	/**
 	 * Creates a new {@code RocksDBListState}.
 	 *
@@ -79,9 +72,6 @@ public class RocksDBListState<K, N, V>
 		super(columnFamily, namespaceSerializer, backend);
 		this.stateDesc = requireNonNull(stateDesc);
 		this.valueSerializer = stateDesc.getSerializer();
-
-		writeOptions = new WriteOptions();
-		writeOptions.setDisableWAL(true);
 	}
 
 	@Override
@@ -91,7 +81,7 @@ public class RocksDBListState<K, N, V>
 		try {
 			writeKeyAndNamespace(out);
 			byte[] key = baos.toByteArray();
-			byte[] valueBytes = backend.db.get(columnFamily, key);
+			byte[] valueBytes = getValueBytes(key);
 
 			if (valueBytes == null) {
 				return Collections.emptyList();
@@ -124,7 +114,7 @@ public class RocksDBListState<K, N, V>
 			baos.reset();
 
 			valueSerializer.serialize(value, out);
-			backend.db.merge(columnFamily, writeOptions, key, baos.toByteArray());
+			mergeValueBytes(key, baos.toByteArray());
 
 		} catch (Exception e) {
 			throw new RuntimeException("Error while adding data to RocksDB", e);
@@ -0,0 +1,359 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link MapState} implementation that stores state in RocksDB.
+ *
+ * <p>Every entry of the map is stored as a separate RocksDB entry. The RocksDB key is the
+ * serialized key and namespace, followed by the serialized user key, so single entries are
+ * read and written without touching the rest of the map. The entries of a map are iterated
+ * with a prefix scan over the key and namespace.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <UK> The type of the keys in the map state.
+ * @param <UV> The type of the values in the map state.
+ */
+public class RocksDBMapState<K, N, UK, UV>
+	extends AbstractRocksDBState<K, N, MapState<UK, UV>, MapStateDescriptor<UK, UV>>
+	implements MapState<UK, UV> {
+
+	/** The number of entries that the iterators load from RocksDB at once */
+	private static final int ITERATOR_BATCH_SIZE = 128;
+
+	/** Serializer for the keys of the map */
+	private final TypeSerializer<UK> userKeySerializer;
+
+	/** Serializer for the values of the map */
+	private final TypeSerializer<UV> userValueSerializer;
+
+	/**
+	 * Creates a new {@code RocksDBMapState}.
+	 *
+	 * @param namespaceSerializer The serializer for the namespace.
+	 * @param stateDesc The state identifier for the state.
+	 */
+	public RocksDBMapState(ColumnFamilyHandle columnFamily,
+			TypeSerializer<N> namespaceSerializer,
+			MapStateDescriptor<UK, UV> stateDesc,
+			RocksDBStateBackend backend) {
+
+		super(columnFamily, namespaceSerializer, backend);
+		requireNonNull(stateDesc);
+		this.userKeySerializer = stateDesc.getKeySerializer();
+		this.userValueSerializer = stateDesc.getValueSerializer();
+	}
+
+	@Override
+	public UV get(UK key) {
+		try {
+			byte[] valueBytes = getValueBytes(serializeUserKey(key));
+			return valueBytes == null ? null : deserializeUserValue(valueBytes);
+		} catch (IOException|RocksDBException e) {
+			throw new RuntimeException("Error while retrieving data from RocksDB.", e);
+		}
+	}
+
+	@Override
+	public void put(UK key, UV value) {
+		try {
+			putValueBytes(serializeUserKey(key), serializeUserValue(value));
+		} catch (IOException|RocksDBException e) {
+			throw new RuntimeException("Error while adding data to RocksDB", e);
+		}
+	}
+
+	@Override
+	public void putAll(Map<UK, UV> map) {
+		for (Map.Entry<UK, UV> entry : map.entrySet()) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	@Override
+	public void remove(UK key) {
+		try {
+			removeValueBytes(serializeUserKey(key));
+		} catch (IOException|RocksDBException e) {
+			throw new RuntimeException("Error while removing entry from RocksDB", e);
+		}
+	}
+
+	@Override
+	public boolean contains(UK key) {
+		try {
+			return getValueBytes(serializeUserKey(key)) != null;
+		} catch (IOException|RocksDBException e) {
+			throw new RuntimeException("Error while retrieving data from RocksDB.", e);
+		}
+	}
+
+	@Override
+	public Iterable<Map.Entry<UK, UV>> entries() {
+		return new Iterable<Map.Entry<UK, UV>>() {
+			@Override
+			public Iterator<Map.Entry<UK, UV>> iterator() {
+				return new EntryIterator(serializeKeyAndNamespace());
+			}
+		};
+	}
+
+	@Override
+	public Iterable<UK> keys() {
+		return new Iterable<UK>() {
+			@Override
+			public Iterator<UK> iterator() {
+				final EntryIterator entries = new EntryIterator(serializeKeyAndNamespace());
+				return new Iterator<UK>() {
+					@Override
+					public boolean hasNext() {
+						return entries.hasNext();
+					}
+
+					@Override
+					public UK next() {
+						return entries.next().getKey();
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	public Iterable<UV> values() {
+		return new Iterable<UV>() {
+			@Override
+			public Iterator<UV> iterator() {
+				final EntryIterator entries = new EntryIterator(serializeKeyAndNamespace());
+				return new Iterator<UV>() {
+					@Override
+					public boolean hasNext() {
+						return entries.hasNext();
+					}
+
+					@Override
+					public UV next() {
+						return entries.next().getValue();
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	public void clear() {
+		try {
+			List<byte[]> keys = new ArrayList<>();
+			EntryIterator entries = new EntryIterator(serializeKeyAndNamespace());
+			while (entries.hasNext()) {
+				keys.add(entries.nextRawKey());
+			}
+			for (byte[] key : keys) {
+				removeValueBytes(key);
+			}
+		} catch (RocksDBException e) {
+			throw new RuntimeException("Error while removing entry from RocksDB", e);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  Serialization
+	// ------------------------------------------------------------------------
+
+	private byte[] serializeKeyAndNamespace() {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		DataOutputViewStreamWrapper out = new DataOutputViewStreamWrapper(baos);
+		try {
+			writeKeyAndNamespace(out);
+		} catch (IOException e) {
+			throw new RuntimeException("Error while serializing the key and namespace.", e);
+		}
+		return baos.toByteArray();
+	}
+
+	private byte[] serializeUserKey(UK key) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		DataOutputViewStreamWrapper out = new DataOutputViewStreamWrapper(baos);
+		writeKeyAndNamespace(out);
+		userKeySerializer.serialize(key, out);
+		return baos.toByteArray();
+	}
+
+	private byte[] serializeUserValue(UV value) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		DataOutputViewStreamWrapper out = new DataOutputViewStreamWrapper(baos);
+		if (value == null) {
+			out.writeBoolean(true);
+		} else {
+			out.writeBoolean(false);
+			userValueSerializer.serialize(value, out);
+		}
+		return baos.toByteArray();
+	}
+
+	private UV deserializeUserValue(byte[] bytes) throws IOException {
+		DataInputViewStreamWrapper in = new DataInputViewStreamWrapper(new ByteArrayInputStream(bytes));
+		boolean isNull = in.readBoolean();
+		return isNull ? null : userValueSerializer.deserialize(in);
+	}
+
+	private UK deserializeUserKey(byte[] rawKey, int prefixLength) throws IOException {
+		DataInputViewStreamWrapper in = new DataInputViewStreamWrapper(
+			new ByteArrayInputStream(rawKey, prefixLength, rawKey.length - prefixLength));
+		return userKeySerializer.deserialize(in);
+	}
+
+	private static boolean startsWith(byte[] bytes, byte[] prefix) {
+		if (bytes.length < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (bytes[i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Iterates over the entries of one map. The entries are loaded in batches, each with a short
+	 * lived RocksDB iterator that seeks to the entry after the last loaded one. Buffered writes
+	 * are flushed before, so that the RocksDB iterators see them.
+	 */
+	private final class EntryIterator implements Iterator<Map.Entry<UK, UV>> {
+
+		private final byte[] prefix;
+
+		private final List<byte[]> keys = new ArrayList<>(ITERATOR_BATCH_SIZE);
+
+		private final List<byte[]> values = new ArrayList<>(ITERATOR_BATCH_SIZE);
+
+		private int position;
+
+		private boolean exhausted;
+
+		EntryIterator(byte[] prefix) {
+			this.prefix = prefix;
+			try {
+				backend.flushWriteBatch();
+			} catch (RocksDBException e) {
+				throw new RuntimeException("Error while writing buffered state to RocksDB.", e);
+			}
+			loadBatch(prefix, false);
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (position == keys.size() && !exhausted) {
+				byte[] lastKey = keys.get(keys.size() - 1);
+				keys.clear();
+				values.clear();
+				position = 0;
+				loadBatch(lastKey, true);
+			}
+			return position < keys.size();
+		}
+
+		@Override
+		public Map.Entry<UK, UV> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			try {
+				byte[] rawKey = keys.get(position);
+				byte[] rawValue = values.get(position);
+				position++;
+				return new AbstractMap.SimpleImmutableEntry<>(
+					deserializeUserKey(rawKey, prefix.length), deserializeUserValue(rawValue));
+			} catch (IOException e) {
+				throw new RuntimeException("Error while retrieving data from RocksDB.", e);
+			}
+		}
+
+		byte[] nextRawKey() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return keys.get(position++);
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		private void loadBatch(byte[] seekKey, boolean skipSeekKey) {
+			RocksIterator iterator = backend.db.newIterator(columnFamily);
+			try {
+				iterator.seek(seekKey);
+				if (skipSeekKey && iterator.isValid() && Arrays.equals(iterator.key(), seekKey)) {
+					iterator.next();
+				}
+				while (iterator.isValid() && keys.size() < ITERATOR_BATCH_SIZE) {
+					byte[] key = iterator.key();
+					if (!startsWith(key, prefix)) {
+						break;
+					}
+					keys.add(key);
+					values.add(iterator.value());
+					iterator.next();
+				}
+				exhausted = keys.size() < ITERATOR_BATCH_SIZE;
+			} finally {
+				iterator.dispose();
+			}
+		}
+	}
+}
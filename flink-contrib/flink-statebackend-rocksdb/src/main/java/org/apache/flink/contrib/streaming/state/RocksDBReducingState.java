@@ -27,7 +27,6 @@ import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
 
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksDBException;
-import org.rocksdb.WriteOptions;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -55,12 +54,6 @@ public class RocksDBReducingState<K, N, V>
 	/** User-specified reduce function */
 	private final ReduceFunction<V> reduceFunction;
 
-	/**
-	 * We disable writes to the write-ahead-log here. We can't have these in the base class
-	 * because JNI segfaults for some reason if they are.
-	 */
-	private final WriteOptions writeOptions;
-
 	/**
 	 * Creates a new {@code RocksDBReducingState}.
 	 *
@@ -77,9 +70,6 @@ public class RocksDBReducingState<K, N, V>
 		this.stateDesc = requireNonNull(stateDesc);
 		this.valueSerializer = stateDesc.getSerializer();
 		this.reduceFunction = stateDesc.getReduceFunction();
-
-		writeOptions = new WriteOptions();
-		writeOptions.setDisableWAL(true);
 	}
 
 	@Override
@@ -89,7 +79,7 @@ public class RocksDBReducingState<K, N, V>
 		try {
 			writeKeyAndNamespace(out);
 			byte[] key = baos.toByteArray();
-			byte[] valueBytes = backend.db.get(columnFamily, key);
+			byte[] valueBytes = getValueBytes(key);
 			if (valueBytes == null) {
 				return null;
 			}
@@ -106,18 +96,18 @@ public class RocksDBReducingState<K, N, V>
 		try {
 			writeKeyAndNamespace(out);
 			byte[] key = baos.toByteArray();
-			byte[] valueBytes = backend.db.get(columnFamily, key);
+			byte[] valueBytes = getValueBytes(key);
 
 			if (valueBytes == null) {
 				baos.reset();
 				valueSerializer.serialize(value, out);
-				backend.db.put(columnFamily, writeOptions, key, baos.toByteArray());
+				putValueBytes(key, baos.toByteArray());
 			} else {
 				V oldValue = valueSerializer.deserialize(new DataInputViewStreamWrapper(new ByteArrayInputStream(valueBytes)));
 				V newValue = reduceFunction.reduce(oldValue, value);
 				baos.reset();
 				valueSerializer.serialize(newValue, out);
-				backend.db.put(columnFamily, writeOptions, key, baos.toByteArray());
+				putValueBytes(key, baos.toByteArray());
 			}
 		} catch (Exception e) {
 			throw new RuntimeException("Error while adding data to RocksDB", e);
@@ -19,13 +19,16 @@ package org.apache.flink.contrib.streaming.state;
 
 import java.io.EOFException;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.net.URI;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -37,6 +40,8 @@ import org.apache.flink.api.common.state.FoldingState;
 import org.apache.flink.api.common.state.FoldingStateDescriptor;
 import org.apache.flink.api.common.state.ListState;
 import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
 import org.apache.flink.api.common.state.ReducingState;
 import org.apache.flink.api.common.state.ReducingStateDescriptor;
 import org.apache.flink.api.common.state.StateDescriptor;
@@ -58,11 +63,14 @@ import org.apache.flink.runtime.state.StateHandle;
 import org.apache.flink.api.common.state.StateBackend;
 
 import org.apache.flink.runtime.state.filesystem.FsStateBackend;
+import org.apache.flink.runtime.state.ttl.TtlValueSerializer;
 import org.apache.flink.streaming.util.HDFSCopyFromLocal;
 import org.apache.flink.streaming.util.HDFSCopyToLocal;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.rocksdb.BackupEngine;
 import org.rocksdb.BackupableDBOptions;
+import org.rocksdb.Checkpoint;
 import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.ColumnFamilyOptions;
@@ -73,6 +81,8 @@ import org.rocksdb.RestoreOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -87,6 +97,14 @@ import static java.util.Objects.requireNonNull;
  * RocksDB database, and persist that snapshot in a file system (by default) or
  * another configurable state backend.
  * 
+ * <p>With {@link #enableIncrementalCheckpoints()}, checkpoints only upload the RocksDB SST files
+ * that were created since the last completed checkpoint and reference the remaining files of
+ * that checkpoint.
+ * 
+ * <p>With {@link #enableLocalRecovery()}, the backend keeps a copy of the latest checkpoint in its
+ * local storage directories and restores from that copy, instead of downloading the checkpoint,
+ * when the task is restored on the same TaskManager.
+ * 
  * <p>The behavior of the RocksDB instances can be parametrized by setting RocksDB Options
  * using the methods {@link #setPredefinedOptions(PredefinedOptions)} and
  * {@link #setOptions(OptionsFactory)}.
@@ -109,6 +127,18 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 	/** Whether we do snapshots fully asynchronous */
 	private boolean fullyAsyncBackup = false;
 
+	/** Whether we do incremental snapshots that share unchanged SST files between checkpoints */
+	private boolean incrementalCheckpoints = false;
+
+	/** Whether we keep a local copy of the latest checkpoint to restore from */
+	private boolean localRecovery = false;
+
+	/** The number of writes that are buffered in a write batch, 0 to write to RocksDB directly */
+	private int writeBatchSize = 0;
+
+	/** The number of values that each k/v state caches, 0 to only cache the buffered writes */
+	private int readCacheSize = 0;
+
 	/** Operator identifier that is used to uniqueify the RocksDB storage path. */
 	private String operatorIdentifier;
 
@@ -147,9 +177,27 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 	/** Path where this configured instance stores its RocksDB data base */
 	private transient File instanceRocksDBPath;
 
+	/** Path where this configured instance keeps the local copies of its checkpoints */
+	private transient File instanceLocalRecoveryPath;
+
+	/** Whether the local copies of the checkpoints are kept when this instance is closed */
+	private transient boolean retainLocalCopies;
+
 	/** Base path where this configured instance stores checkpoints */
 	private transient String instanceCheckpointPath;
 
+	/** Prefix that makes the names of the SST files that this instance uploads unique */
+	private transient String instanceSharedFilePrefix;
+
+	/** The shared SST files of incremental checkpoints, whose completion is not yet confirmed */
+	private transient Map<Long, Map<String, String>> pendingSharedFiles;
+
+	/**
+	 * The shared SST files of the last completed incremental checkpoint, by local file name.
+	 * Incremental checkpoints only upload SST files that are not contained in this map.
+	 */
+	private transient Map<String, String> completedSharedFiles;
+
 	/**
 	 * Our RocksDB data base, this is used by the actual subclasses of {@link AbstractRocksDBState}
 	 * to store state. The different k/v states that we have don't each have their own RocksDB
@@ -157,6 +205,15 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 	 */
 	protected transient RocksDB db;
 
+	/** The options for all writes, we disable writes to the write-ahead-log */
+	private transient WriteOptions writeOptions;
+
+	/** The buffered writes of all k/v states, null if writes are not buffered */
+	private transient WriteBatch writeBatch;
+
+	/** Incremented whenever the write batch is written to RocksDB */
+	private transient long writeBatchGeneration;
+
 	/**
 	 * Information about the k/v states as we create them. This is used to retrieve the
 	 * column family that is used for a state and also for sanity checks when restoring.
@@ -263,6 +320,13 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 		instanceBasePath = new File(getDbPath("dummy_state"), UUID.randomUUID().toString());
 		instanceCheckpointPath = getCheckpointPath("dummy_state");
 		instanceRocksDBPath = new File(instanceBasePath, "db");
+		// in the same storage directory as the data base, so that local checkpoint directories can be moved there
+		instanceLocalRecoveryPath = new File(instanceBasePath.getParentFile().getParentFile(), "local-recovery");
+		retainLocalCopies = false;
+		instanceSharedFilePrefix = UUID.randomUUID().toString() + "-";
+
+		pendingSharedFiles = new HashMap<>();
+		completedSharedFiles = new HashMap<>();
 
 		RocksDB.loadLibrary();
 
@@ -293,11 +357,17 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 		}
 
 		kvStateInformation = new HashMap<>();
+
+		writeOptions = new WriteOptions();
+		writeOptions.setDisableWAL(true);
+		writeBatch = writeBatchSize > 0 ? new WriteBatch() : null;
+		writeBatchGeneration = 0;
 	}
 
 	@Override
 	public void disposeAllStateForCurrentJob() throws Exception {
 		nonPartitionedStateBackend.disposeAllStateForCurrentJob();
+		discardLocalCopies();
 	}
 
 	@Override
@@ -309,10 +379,15 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 			this.dbOptions.dispose();
 			this.dbOptions = null;
 		}
+		disposeWrites();
 		for (Tuple2<ColumnFamilyHandle, StateDescriptor> column: kvStateInformation.values()) {
 			column.f0.dispose();
 		}
 		db.dispose();
+
+		if (!retainLocalCopies) {
+			discardLocalCopies();
+		}
 	}
 
 	@Override
@@ -323,16 +398,117 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 			this.dbOptions.dispose();
 			this.dbOptions = null;
 		}
+		disposeWrites();
 		for (Tuple2<ColumnFamilyHandle, StateDescriptor> column: kvStateInformation.values()) {
 			column.f0.dispose();
 		}
 		db.dispose();
+
+		if (!retainLocalCopies) {
+			discardLocalCopies();
+		}
+	}
+
+	/**
+	 * Keeps the local copies of the checkpoints when this instance is closed and disposed, so
+	 * that another attempt of the task on this machine can restore from them.
+	 */
+	@Override
+	public void retainLocalState() {
+		retainLocalCopies = true;
+	}
+
+	private void disposeWrites() {
+		// buffered writes are dropped, they are only needed for the next checkpoint
+		if (writeBatch != null) {
+			writeBatch.dispose();
+			writeBatch = null;
+		}
+		if (writeOptions != null) {
+			writeOptions.dispose();
+			writeOptions = null;
+		}
 	}
 
 	private File getDbPath(String stateName) {
 		return new File(new File(new File(getNextStoragePath(), jobId.toString()), operatorIdentifier), stateName);
 	}
 
+	/**
+	 * Gets the directory for the local copies of the checkpoints of this operator in the given
+	 * storage directory. The directory does not depend on the attempt of the task, so that a
+	 * restored task finds the copies of the previous attempt.
+	 */
+	private File getLocalRecoveryPath(File storagePath) {
+		return new File(new File(new File(storagePath, jobId.toString()), operatorIdentifier), "local-recovery");
+	}
+
+	/**
+	 * Gets the local copy of the given checkpoint, if local recovery is enabled and a copy
+	 * exists in any of the storage directories.
+	 */
+	private File getLocalCopy(long checkpointId) {
+		if (localRecovery) {
+			for (File storagePath : initializedDbBasePaths) {
+				File localCopy = new File(getLocalRecoveryPath(storagePath), "chk-" + checkpointId);
+				if (localCopy.isDirectory()) {
+					return localCopy;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Keeps the given local directory of a materialized checkpoint as the local copy of the
+	 * checkpoint, if local recovery is enabled. Otherwise, the directory is deleted.
+	 * Called from the thread that materializes a checkpoint.
+	 */
+	private void retainLocalCopy(File localCheckpointPath, long checkpointId) {
+		if (localRecovery) {
+			File localCopy = new File(instanceLocalRecoveryPath, "chk-" + checkpointId);
+			if ((instanceLocalRecoveryPath.isDirectory() || instanceLocalRecoveryPath.mkdirs()) &&
+					localCheckpointPath.renameTo(localCopy)) {
+				return;
+			}
+			LOG.warn("Could not keep a local copy of checkpoint {} in {}.", checkpointId, localCopy);
+		}
+		FileUtils.deleteQuietly(localCheckpointPath);
+	}
+
+	/**
+	 * Deletes the directories with the local copies of the checkpoints of this operator.
+	 */
+	private void discardLocalCopies() {
+		if (initializedDbBasePaths != null) {
+			for (File storagePath : initializedDbBasePaths) {
+				FileUtils.deleteQuietly(getLocalRecoveryPath(storagePath));
+			}
+		}
+	}
+
+	/**
+	 * Deletes the local copies of all checkpoints that are older than the given checkpoint.
+	 */
+	private void discardLocalCopiesBefore(long checkpointId) {
+		for (File storagePath : initializedDbBasePaths) {
+			File[] localCopies = getLocalRecoveryPath(storagePath).listFiles();
+			if (localCopies == null) {
+				continue;
+			}
+			for (File localCopy : localCopies) {
+				String name = localCopy.getName();
+				try {
+					if (name.startsWith("chk-") && Long.parseLong(name.substring(4)) < checkpointId) {
+						FileUtils.deleteQuietly(localCopy);
+					}
+				} catch (NumberFormatException ignored) {
+					// not a local copy of a checkpoint
+				}
+			}
+		}
+	}
+
 	private String getCheckpointPath(String stateName) {
 		return checkpointDirectory + "/" + jobId.toString() + "/" + operatorIdentifier + "/" + stateName;
 	}
@@ -362,7 +538,12 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 			return new HashMap<>();
 		}
 
-		if (fullyAsyncBackup) {
+		// the snapshot must contain the buffered writes
+		flushWriteBatch();
+
+		if (incrementalCheckpoints) {
+			return performIncrementalSnapshot(checkpointId, timestamp);
+		} else if (fullyAsyncBackup) {
 			return performFullyAsyncSnapshot(checkpointId, timestamp);
 		} else {
 			return performSemiAsyncSnapshot(checkpointId, timestamp);
@@ -408,7 +589,8 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 		for (Tuple2<ColumnFamilyHandle, StateDescriptor> state: kvStateInformation.values()) {
 			kvStateInformationCopy.add(state.f1);
 		}
-		SemiAsyncSnapshot dummySnapshot = new SemiAsyncSnapshot(localBackupPath,
+		SemiAsyncSnapshot dummySnapshot = new SemiAsyncSnapshot(this,
+				localBackupPath,
 				backupUri,
 				kvStateInformationCopy,
 				checkpointId);
@@ -454,6 +636,100 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 		return result;
 	}
 
+	/**
+	 * Performs a checkpoint by drawing a RocksDB {@link Checkpoint}, which flushes the memtables
+	 * and hard links the live files of the data base into a local directory. The asynchronous
+	 * part uploads the files of that directory, but skips all SST files that were already uploaded
+	 * for the last completed checkpoint. Since SST files are immutable, the new checkpoint
+	 * can simply reference them.
+	 */
+	private HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> performIncrementalSnapshot(long checkpointId, long timestamp) throws Exception {
+		final File localCheckpointPath = new File(instanceBasePath, "local-chk-" + checkpointId);
+		final URI checkpointUri = new URI(instanceCheckpointPath + "/chk-" + checkpointId);
+		final URI sharedUri = new URI(instanceCheckpointPath + "/shared");
+
+		if (localCheckpointPath.exists()) {
+			LOG.warn("Deleting already existing local checkpoint directory {}.", localCheckpointPath);
+			FileUtils.deleteDirectory(localCheckpointPath);
+		}
+
+		long startTime = System.currentTimeMillis();
+
+		Checkpoint checkpoint = Checkpoint.create(db);
+		try {
+			checkpoint.createCheckpoint(localCheckpointPath.getAbsolutePath());
+		} finally {
+			checkpoint.dispose();
+		}
+
+		long endTime = System.currentTimeMillis();
+		LOG.info("Incremental RocksDB (" + instanceRocksDBPath + ") checkpoint (synchronous part) took " + (endTime - startTime) + " ms.");
+
+		// draw a copy in case it get's changed while performing the async snapshot
+		List<StateDescriptor> kvStateInformationCopy = new ArrayList<>();
+		for (Tuple2<ColumnFamilyHandle, StateDescriptor> state: kvStateInformation.values()) {
+			kvStateInformationCopy.add(state.f1);
+		}
+		IncrementalSnapshot dummySnapshot = new IncrementalSnapshot(this,
+				localCheckpointPath,
+				checkpointUri,
+				sharedUri,
+				kvStateInformationCopy,
+				checkpointId);
+
+		HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> result = new HashMap<>();
+		result.put("dummy_state", dummySnapshot);
+		return result;
+	}
+
+	/**
+	 * Returns the remote paths of the shared SST files of the last completed checkpoint, by
+	 * local file name. Called from the thread that materializes an incremental checkpoint.
+	 */
+	private Map<String, String> getCompletedSharedFiles() {
+		synchronized (pendingSharedFiles) {
+			return new HashMap<>(completedSharedFiles);
+		}
+	}
+
+	/**
+	 * Remembers the shared SST files of a materialized incremental checkpoint, so that they can be
+	 * referenced by later checkpoints once the checkpoint is completed.
+	 */
+	private void addPendingSharedFiles(long checkpointId, Map<String, String> sharedFiles) {
+		synchronized (pendingSharedFiles) {
+			pendingSharedFiles.put(checkpointId, sharedFiles);
+		}
+	}
+
+	@Override
+	public void notifyOfCompletedCheckpoint(long checkpointId) throws Exception {
+		super.notifyOfCompletedCheckpoint(checkpointId);
+
+		if (localRecovery && initializedDbBasePaths != null) {
+			discardLocalCopiesBefore(checkpointId);
+		}
+
+		if (pendingSharedFiles == null) {
+			return;
+		}
+
+		synchronized (pendingSharedFiles) {
+			Map<String, String> sharedFiles = pendingSharedFiles.remove(checkpointId);
+			if (sharedFiles != null) {
+				completedSharedFiles = sharedFiles;
+			}
+
+			// checkpoints that are older than the completed one are never completed
+			Iterator<Long> pendingCheckpoints = pendingSharedFiles.keySet().iterator();
+			while (pendingCheckpoints.hasNext()) {
+				if (pendingCheckpoints.next() < checkpointId) {
+					pendingCheckpoints.remove();
+				}
+			}
+		}
+	}
+
 	@Override
 	public final void injectKeyValueStateSnapshots(HashMap<String, KvStateSnapshot> keyValueStateSnapshots, long recoveryTimestamp) throws Exception {
 		if (keyValueStateSnapshots.size() == 0) {
@@ -465,6 +741,8 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 			restoreFromSemiAsyncSnapshot((FinalSemiAsyncSnapshot) dummyState);
 		} else if (dummyState instanceof FinalFullyAsyncSnapshot) {
 			restoreFromFullyAsyncSnapshot((FinalFullyAsyncSnapshot) dummyState);
+		} else if (dummyState instanceof FinalIncrementalSnapshot) {
+			restoreFromIncrementalSnapshot((FinalIncrementalSnapshot) dummyState);
 		} else {
 			throw new RuntimeException("Unknown RocksDB snapshot: " + dummyState);
 		}
@@ -494,6 +772,20 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 			throw new RuntimeException("Error cleaning RocksDB data directory.", e);
 		}
 
+		final File localCopy = getLocalCopy(snapshot.checkpointId);
+		if (localCopy != null) {
+			try {
+				restoreDbFromBackup(localCopy);
+				LOG.info("Restored RocksDB state from local copy {}.", localCopy);
+				openRestoredDb(snapshot.stateDescriptors);
+				return;
+			} catch (Exception e) {
+				LOG.warn("Could not restore RocksDB state from local copy " + localCopy +
+						", restoring from " + snapshot.backupUri + " instead.", e);
+				FileUtils.deleteDirectory(instanceRocksDBPath);
+			}
+		}
+
 		final File localBackupPath = new File(instanceBasePath, "chk-" + snapshot.checkpointId);
 
 		if (localBackupPath.exists()) {
@@ -507,10 +799,8 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 
 		HDFSCopyToLocal.copyToLocal(snapshot.backupUri, instanceBasePath);
 
-		try (BackupEngine backupEngine = BackupEngine.open(Env.getDefault(), new BackupableDBOptions(localBackupPath.getAbsolutePath()))) {
-			backupEngine.restoreDbFromLatestBackup(instanceRocksDBPath.getAbsolutePath(), instanceRocksDBPath.getAbsolutePath(), new RestoreOptions(true));
-		} catch (RocksDBException|IllegalArgumentException e) {
-			throw new RuntimeException("Error while restoring RocksDB state from " + localBackupPath, e);
+		try {
+			restoreDbFromBackup(localBackupPath);
 		} finally {
 			try {
 				FileUtils.deleteDirectory(localBackupPath);
@@ -520,20 +810,127 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 		}
 
 
-		List<ColumnFamilyDescriptor> columnFamilyDescriptors = new ArrayList<>(snapshot.stateDescriptors.size());
-		for (StateDescriptor stateDescriptor: snapshot.stateDescriptors) {
+		openRestoredDb(snapshot.stateDescriptors);
+	}
+
+	/**
+	 * Restores the RocksDB data base into the instance directory from the given backup directory.
+	 */
+	private void restoreDbFromBackup(File backupPath) {
+		try (BackupEngine backupEngine = BackupEngine.open(Env.getDefault(), new BackupableDBOptions(backupPath.getAbsolutePath()))) {
+			backupEngine.restoreDbFromLatestBackup(instanceRocksDBPath.getAbsolutePath(), instanceRocksDBPath.getAbsolutePath(), new RestoreOptions(true));
+		} catch (RocksDBException|IllegalArgumentException e) {
+			throw new RuntimeException("Error while restoring RocksDB state from " + backupPath, e);
+		}
+	}
+
+	private void restoreFromIncrementalSnapshot(FinalIncrementalSnapshot snapshot) throws Exception {
+		if (!instanceBasePath.exists()) {
+			if (!instanceBasePath.mkdirs()) {
+				throw new RuntimeException("Could not create RocksDB data directory.");
+			}
+		}
+
+		db.dispose();
+
+		try {
+			if (instanceRocksDBPath.exists()) {
+				LOG.warn("Deleting already existing db directory {}.", instanceRocksDBPath);
+				FileUtils.deleteDirectory(instanceRocksDBPath);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error cleaning RocksDB data directory.", e);
+		}
+
+		if (!instanceRocksDBPath.mkdirs()) {
+			throw new RuntimeException("Could not create RocksDB data directory.");
+		}
+
+		long startTime = System.currentTimeMillis();
+
+		final File localCopy = getLocalCopy(snapshot.checkpointId);
+		if (localCopy != null && copyLocalCheckpoint(localCopy)) {
+			long endTime = System.currentTimeMillis();
+			LOG.info("Restoring incremental RocksDB checkpoint from local copy " + localCopy + " took " + (endTime - startTime) + " ms.");
+		} else {
+			// the private files (manifest, current, ...) are stored in the checkpoint directory,
+			// the SST files may be shared with other checkpoints
+			FileSystem fs = FileSystem.get(snapshot.checkpointUri, HadoopFileSystem.getHadoopConfiguration());
+			for (FileStatus file : fs.listStatus(new org.apache.hadoop.fs.Path(snapshot.checkpointUri))) {
+				HDFSCopyToLocal.copyToLocal(file.getPath().toUri(), new File(instanceRocksDBPath, file.getPath().getName()));
+			}
+			for (Map.Entry<String, String> sharedFile : snapshot.sharedFiles.entrySet()) {
+				HDFSCopyToLocal.copyToLocal(new URI(sharedFile.getValue()), new File(instanceRocksDBPath, sharedFile.getKey()));
+			}
+
+			long endTime = System.currentTimeMillis();
+			LOG.info("Downloading incremental RocksDB checkpoint " + snapshot.checkpointUri + " took " + (endTime - startTime) + " ms.");
+		}
+
+		openRestoredDb(snapshot.stateDescriptors);
+
+		// the next checkpoint can reference the files of the checkpoint that we restored from
+		synchronized (pendingSharedFiles) {
+			pendingSharedFiles.clear();
+			completedSharedFiles = new HashMap<>(snapshot.sharedFiles);
+		}
+	}
+
+	/**
+	 * Copies the files of the local copy of an incremental checkpoint into the (empty) instance
+	 * directory. The files are hard linked where possible, since they are immutable.
+	 *
+	 * @return True, if all files were copied, false if the remote checkpoint must be downloaded.
+	 */
+	private boolean copyLocalCheckpoint(File localCopy) {
+		File[] files = localCopy.listFiles();
+		if (files == null) {
+			return false;
+		}
+
+		try {
+			for (File file : files) {
+				java.nio.file.Path target = new File(instanceRocksDBPath, file.getName()).toPath();
+				try {
+					Files.createLink(target, file.toPath());
+				} catch (IOException | UnsupportedOperationException e) {
+					Files.copy(file.toPath(), target);
+				}
+			}
+			return true;
+		} catch (IOException e) {
+			LOG.warn("Could not restore RocksDB state from local copy " + localCopy +
+					", downloading the checkpoint instead.", e);
+
+			File[] copiedFiles = instanceRocksDBPath.listFiles();
+			if (copiedFiles != null) {
+				for (File copiedFile : copiedFiles) {
+					FileUtils.deleteQuietly(copiedFile);
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Opens the RocksDB data base that was restored into the instance directory, with a column
+	 * family for each of the given state descriptors.
+	 */
+	private void openRestoredDb(List<StateDescriptor> stateDescriptors) {
+		List<ColumnFamilyDescriptor> columnFamilyDescriptors = new ArrayList<>(stateDescriptors.size());
+		for (StateDescriptor stateDescriptor: stateDescriptors) {
 			columnFamilyDescriptors.add(new ColumnFamilyDescriptor(stateDescriptor.getName().getBytes(), getColumnOptions()));
 		}
 
 		// RocksDB seems to need this...
 		columnFamilyDescriptors.add(new ColumnFamilyDescriptor("default".getBytes()));
-		List<ColumnFamilyHandle> columnFamilyHandles = new ArrayList<>(snapshot.stateDescriptors.size());
+		List<ColumnFamilyHandle> columnFamilyHandles = new ArrayList<>(stateDescriptors.size());
 		try {
 
 			db = RocksDB.open(getDbOptions(), instanceRocksDBPath.getAbsolutePath(), columnFamilyDescriptors, columnFamilyHandles);
 			this.kvStateInformation = new HashMap<>();
-			for (int i = 0; i < snapshot.stateDescriptors.size(); i++) {
-				this.kvStateInformation.put(snapshot.stateDescriptors.get(i).getName(), new Tuple2<>(columnFamilyHandles.get(i), snapshot.stateDescriptors.get(i)));
+			for (int i = 0; i < stateDescriptors.size(); i++) {
+				this.kvStateInformation.put(stateDescriptors.get(i).getName(), new Tuple2<>(columnFamilyHandles.get(i), stateDescriptors.get(i)));
 			}
 
 		} catch (RocksDBException e) {
@@ -588,15 +985,18 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 	 */
 	private static class SemiAsyncSnapshot extends AsynchronousKvStateSnapshot<Object, Object, ValueState<Object>, ValueStateDescriptor<Object>, RocksDBStateBackend> {
 		private static final long serialVersionUID = 1L;
+		private transient final RocksDBStateBackend backend;
 		private final File localBackupPath;
 		private final URI backupUri;
 		private final List<StateDescriptor> stateDescriptors;
 		private final long checkpointId;
 
-		private SemiAsyncSnapshot(File localBackupPath,
+		private SemiAsyncSnapshot(RocksDBStateBackend backend,
+				File localBackupPath,
 				URI backupUri,
 				List<StateDescriptor> columnFamilies,
 				long checkpointId) {
+			this.backend = backend;
 			this.localBackupPath = localBackupPath;
 			this.backupUri = backupUri;
 			this.stateDescriptors = columnFamilies;
@@ -610,6 +1010,7 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 				HDFSCopyFromLocal.copyFromLocal(localBackupPath, backupUri);
 				long endTime = System.currentTimeMillis();
 				LOG.info("RocksDB materialization from " + localBackupPath + " to " + backupUri + " (asynchronous part) took " + (endTime - startTime) + " ms.");
+				backend.retainLocalCopy(localBackupPath, checkpointId);
 				return new FinalSemiAsyncSnapshot(backupUri, checkpointId, stateDescriptors);
 			} catch (Exception e) {
 				FileSystem fs = FileSystem.get(backupUri, HadoopFileSystem.getHadoopConfiguration());
@@ -701,6 +1102,7 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 		public KvStateSnapshot<Object, Object, ValueState<Object>, ValueStateDescriptor<Object>, RocksDBStateBackend> materialize() throws Exception {
 			try {
 				long startTime = System.currentTimeMillis();
+				long now = backend.getTtlTimeProvider().currentTimestamp();
 
 				CheckpointStateOutputView outputView = backend.createCheckpointStateOutputView(checkpointId, startTime);
 
@@ -727,9 +1129,18 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 					byte columnByte = columnFamilyMapping.get(column.getKey());
 					ReadOptions readOptions = new ReadOptions();
 					readOptions.setSnapshot(snapshot);
+
+					// values of states with time-to-live start with their expiration timestamp
+					StateDescriptor stateDesc = column.getValue().f1;
+					boolean dropExpired = stateDesc instanceof ValueStateDescriptor && stateDesc.isTimeToLiveEnabled();
+
 					RocksIterator iterator = db.newIterator(column.getValue().f0, readOptions);
 					iterator.seekToFirst();
 					while (iterator.isValid()) {
+						if (dropExpired && TtlValueSerializer.getExpirationTimestamp(iterator.value()) <= now) {
+							iterator.next();
+							continue;
+						}
 						outputView.writeByte(columnByte);
 						BytePrimitiveArraySerializer.INSTANCE.serialize(iterator.key(), outputView);
 						BytePrimitiveArraySerializer.INSTANCE.serialize(iterator.value(), outputView);
@@ -795,6 +1206,247 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 		}
 	}
 
+	// ------------------------------------------------------------------------
+	//  Incremental Backup Classes
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Upon snapshotting, a RocksDB checkpoint is created synchronously in a local directory. The
+	 * asynchronous part uploads the new files of that checkpoint. This is done in {@link #materialize()}.
+	 *
+	 * <p>The SST files are uploaded to a directory that is shared between checkpoints. For each
+	 * checkpoint that references a shared file, a marker file is created next to it before the
+	 * checkpoint is acknowledged. A shared file is deleted once the markers of all checkpoints that
+	 * reference it are gone, see {@link FinalIncrementalSnapshot#discardState()}.
+	 */
+	private static class IncrementalSnapshot extends AsynchronousKvStateSnapshot<Object, Object, ValueState<Object>, ValueStateDescriptor<Object>, RocksDBStateBackend> {
+		private static final long serialVersionUID = 1L;
+
+		private transient final RocksDBStateBackend backend;
+
+		private final File localCheckpointPath;
+		private final URI checkpointUri;
+		private final URI sharedUri;
+		private final List<StateDescriptor> stateDescriptors;
+		private final long checkpointId;
+
+		private IncrementalSnapshot(RocksDBStateBackend backend,
+				File localCheckpointPath,
+				URI checkpointUri,
+				URI sharedUri,
+				List<StateDescriptor> stateDescriptors,
+				long checkpointId) {
+			this.backend = backend;
+			this.localCheckpointPath = localCheckpointPath;
+			this.checkpointUri = checkpointUri;
+			this.sharedUri = sharedUri;
+			this.stateDescriptors = stateDescriptors;
+			this.checkpointId = checkpointId;
+		}
+
+		@Override
+		public KvStateSnapshot<Object, Object, ValueState<Object>, ValueStateDescriptor<Object>, RocksDBStateBackend> materialize() throws Exception {
+			Map<String, String> sharedFiles = new HashMap<>();
+			FileSystem fs = FileSystem.get(checkpointUri, HadoopFileSystem.getHadoopConfiguration());
+
+			try {
+				long startTime = System.currentTimeMillis();
+
+				Map<String, String> completedSharedFiles = backend.getCompletedSharedFiles();
+				File[] files = localCheckpointPath.listFiles();
+				if (files == null) {
+					throw new IOException("Could not list the files of local checkpoint " + localCheckpointPath);
+				}
+
+				long stateSize = 0;
+				int numUploadedSharedFiles = 0;
+
+				for (File file : files) {
+					String fileName = file.getName();
+					stateSize += file.length();
+
+					if (fileName.endsWith(".sst")) {
+						String remotePath = completedSharedFiles.get(fileName);
+						boolean isNew = remotePath == null;
+						if (isNew) {
+							remotePath = sharedUri + "/" + backend.instanceSharedFilePrefix + fileName;
+						}
+
+						sharedFiles.put(fileName, remotePath);
+						if (referenceSharedFile(fs, file, remotePath, checkpointId, isNew)) {
+							numUploadedSharedFiles++;
+						}
+					} else {
+						HDFSCopyFromLocal.copyFromLocal(file, new URI(checkpointUri + "/" + fileName));
+					}
+				}
+
+				backend.addPendingSharedFiles(checkpointId, sharedFiles);
+				backend.retainLocalCopy(localCheckpointPath, checkpointId);
+
+				long endTime = System.currentTimeMillis();
+				LOG.info("Incremental RocksDB materialization from " + localCheckpointPath + " to " + checkpointUri +
+						" (asynchronous part) took " + (endTime - startTime) + " ms. Uploaded " + numUploadedSharedFiles +
+						" of " + sharedFiles.size() + " SST files.");
+				return new FinalIncrementalSnapshot(checkpointUri, sharedFiles, stateDescriptors, checkpointId, stateSize);
+			} catch (Exception e) {
+				discardIncrementalCheckpoint(fs, checkpointUri, sharedFiles, checkpointId);
+				throw e;
+			} finally {
+				FileUtils.deleteQuietly(localCheckpointPath);
+			}
+		}
+	}
+
+	/**
+	 * Dummy {@link KvStateSnapshot} that holds the state of our one RocksDB data base. It refers to
+	 * the private files of the checkpoint and to the SST files that it shares with other checkpoints.
+	 * This results from {@link IncrementalSnapshot}.
+	 */
+	private static class FinalIncrementalSnapshot implements KvStateSnapshot<Object, Object, ValueState<Object>, ValueStateDescriptor<Object>, RocksDBStateBackend> {
+		private static final long serialVersionUID = 1L;
+
+		final URI checkpointUri;
+		final Map<String, String> sharedFiles;
+		final long checkpointId;
+		private final List<StateDescriptor> stateDescriptors;
+		private final long stateSize;
+
+		/**
+		 * Creates a new snapshot from the given state parameters.
+		 */
+		private FinalIncrementalSnapshot(URI checkpointUri,
+				Map<String, String> sharedFiles,
+				List<StateDescriptor> stateDescriptors,
+				long checkpointId,
+				long stateSize) {
+			this.checkpointUri = checkpointUri;
+			this.sharedFiles = sharedFiles;
+			this.stateDescriptors = stateDescriptors;
+			this.checkpointId = checkpointId;
+			this.stateSize = stateSize;
+		}
+
+		@Override
+		public final KvState<Object, Object, ValueState<Object>, ValueStateDescriptor<Object>, RocksDBStateBackend> restoreState(
+				RocksDBStateBackend stateBackend,
+				TypeSerializer<Object> keySerializer,
+				ClassLoader classLoader,
+				long recoveryTimestamp) throws Exception {
+			throw new RuntimeException("Should never happen.");
+		}
+
+		/**
+		 * Deletes the private files of this checkpoint and its references to the shared SST files.
+		 * Shared files that are no longer referenced by any checkpoint are deleted as well.
+		 */
+		@Override
+		public final void discardState() throws Exception {
+			FileSystem fs = FileSystem.get(checkpointUri, HadoopFileSystem.getHadoopConfiguration());
+			discardIncrementalCheckpoint(fs, checkpointUri, sharedFiles, checkpointId);
+		}
+
+		/**
+		 * Returns the size of all files of the checkpoint, including the shared files.
+		 */
+		@Override
+		public final long getStateSize() throws Exception {
+			return stateSize;
+		}
+	}
+
+	private static org.apache.hadoop.fs.Path getReferenceMarker(String sharedFile, long checkpointId) {
+		return new org.apache.hadoop.fs.Path(sharedFile + ".refs", "chk-" + checkpointId);
+	}
+
+	/**
+	 * References the shared SST file from the given checkpoint and uploads the local file if it is
+	 * new or if it does not exist remotely any more.
+	 *
+	 * <p>The marker is created before the remote file is checked, so that a concurrent discard of
+	 * another checkpoint either sees the marker and keeps the file, or removes the file before the
+	 * check, in which case it is uploaded again.
+	 *
+	 * @return True, if the file was uploaded, false if the existing remote file is referenced.
+	 */
+	static boolean referenceSharedFile(
+			FileSystem fs,
+			File localFile,
+			String sharedFile,
+			long checkpointId,
+			boolean isNew) throws Exception {
+
+		fs.createNewFile(getReferenceMarker(sharedFile, checkpointId));
+
+		if (isNew || !fs.exists(new org.apache.hadoop.fs.Path(sharedFile))) {
+			HDFSCopyFromLocal.copyFromLocal(localFile, new URI(sharedFile));
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the reference of the given checkpoint to the shared SST file, and deletes the file
+	 * if no other checkpoint references it.
+	 *
+	 * <p>The file is first renamed, so that only one of several concurrent discards deletes it.
+	 * If a materialization referenced the file before the rename took effect, the file is renamed
+	 * back, see {@link #referenceSharedFile(FileSystem, File, String, long, boolean)}.
+	 */
+	static void discardSharedFile(FileSystem fs, String sharedFile, long checkpointId) throws IOException {
+		org.apache.hadoop.fs.Path marker = getReferenceMarker(sharedFile, checkpointId);
+		fs.delete(marker, false);
+
+		org.apache.hadoop.fs.Path markerDirectory = marker.getParent();
+		org.apache.hadoop.fs.Path path = new org.apache.hadoop.fs.Path(sharedFile);
+		org.apache.hadoop.fs.Path discarded = new org.apache.hadoop.fs.Path(sharedFile + ".discarded-" + UUID.randomUUID());
+
+		while (!hasReferences(fs, markerDirectory)) {
+			if (!fs.rename(path, discarded)) {
+				// the file was deleted or claimed by another discard
+				return;
+			}
+
+			if (!hasReferences(fs, markerDirectory)) {
+				fs.delete(discarded, false);
+				try {
+					// fails if a materialization referenced the file in the meantime
+					fs.delete(markerDirectory, false);
+				} catch (IOException ignored) {}
+				return;
+			}
+
+			if (!fs.rename(discarded, path)) {
+				// the materialization uploaded the file again
+				fs.delete(discarded, false);
+				return;
+			}
+			// check again, the new reference may have been discarded concurrently
+		}
+	}
+
+	private static boolean hasReferences(FileSystem fs, org.apache.hadoop.fs.Path markerDirectory) throws IOException {
+		try {
+			FileStatus[] references = fs.listStatus(markerDirectory);
+			return references != null && references.length > 0;
+		} catch (FileNotFoundException e) {
+			return false;
+		}
+	}
+
+	private static void discardIncrementalCheckpoint(
+			FileSystem fs,
+			URI checkpointUri,
+			Map<String, String> sharedFiles,
+			long checkpointId) throws IOException {
+
+		fs.delete(new org.apache.hadoop.fs.Path(checkpointUri), true);
+
+		for (String sharedFile : sharedFiles.values()) {
+			discardSharedFile(fs, sharedFile, checkpointId);
+		}
+	}
+
 	// ------------------------------------------------------------------------
 	//  State factories
 	// ------------------------------------------------------------------------
@@ -830,6 +1482,73 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 		}
 	}
 
+	// ------------------------------------------------------------------------
+	//  Buffered writes
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Used by k/v states to create their cache, returns null if the k/v states need no cache.
+	 */
+	RocksDBStateCache createStateCache() {
+		if (readCacheSize > 0 || writeBatch != null) {
+			return new RocksDBStateCache(this, readCacheSize);
+		} else {
+			return null;
+		}
+	}
+
+	boolean isWriteBatchEnabled() {
+		return writeBatch != null;
+	}
+
+	long getWriteBatchGeneration() {
+		return writeBatchGeneration;
+	}
+
+	void put(ColumnFamilyHandle columnFamily, byte[] key, byte[] value) throws RocksDBException {
+		if (writeBatch != null) {
+			writeBatch.put(columnFamily, key, value);
+			flushWriteBatchIfFull();
+		} else {
+			db.put(columnFamily, writeOptions, key, value);
+		}
+	}
+
+	void merge(ColumnFamilyHandle columnFamily, byte[] key, byte[] value) throws RocksDBException {
+		if (writeBatch != null) {
+			writeBatch.merge(columnFamily, key, value);
+			flushWriteBatchIfFull();
+		} else {
+			db.merge(columnFamily, writeOptions, key, value);
+		}
+	}
+
+	void remove(ColumnFamilyHandle columnFamily, byte[] key) throws RocksDBException {
+		if (writeBatch != null) {
+			writeBatch.remove(columnFamily, key);
+			flushWriteBatchIfFull();
+		} else {
+			db.remove(columnFamily, writeOptions, key);
+		}
+	}
+
+	/**
+	 * Writes the buffered writes to RocksDB.
+	 */
+	void flushWriteBatch() throws RocksDBException {
+		if (writeBatch != null && writeBatch.count() > 0) {
+			db.write(writeOptions, writeBatch);
+			writeBatch.clear();
+			writeBatchGeneration++;
+		}
+	}
+
+	private void flushWriteBatchIfFull() throws RocksDBException {
+		if (writeBatch.count() >= writeBatchSize) {
+			flushWriteBatch();
+		}
+	}
+
 	/**
 	 * Used by k/v states to access the current key.
 	 */
@@ -880,6 +1599,15 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 		return new RocksDBFoldingState<>(columnFamily, namespaceSerializer, stateDesc, this);
 	}
 
+	@Override
+	protected <N, UK, UV> MapState<UK, UV> createMapState(TypeSerializer<N> namespaceSerializer,
+			MapStateDescriptor<UK, UV> stateDesc) throws Exception {
+
+		ColumnFamilyHandle columnFamily = getColumnFamily(stateDesc);
+
+		return new RocksDBMapState<>(columnFamily, namespaceSerializer, stateDesc, this);
+	}
+
 	// ------------------------------------------------------------------------
 	//  Non-partitioned state
 	// ------------------------------------------------------------------------
@@ -924,6 +1652,99 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 		this.fullyAsyncBackup = false;
 	}
 
+	/**
+	 * Enables incremental checkpoints of the partitioned state held in RocksDB.
+	 *
+	 * <p>By default, this is disabled. When enabled, each checkpoint creates a RocksDB checkpoint
+	 * (hard links to the live files of the data base) in a synchronous step and then uploads only
+	 * the SST files that are not already part of the last completed checkpoint. The SST files are
+	 * shared between checkpoints and deleted once no checkpoint references them anymore.
+	 * Incremental checkpoints take precedence over fully asynchronous snapshots.
+	 */
+	public void enableIncrementalCheckpoints() {
+		this.incrementalCheckpoints = true;
+	}
+
+	/**
+	 * Disables incremental checkpoints of the partitioned state held in RocksDB.
+	 *
+	 * <p>By default, this is disabled.
+	 */
+	public void disableIncrementalCheckpoints() {
+		this.incrementalCheckpoints = false;
+	}
+
+	/**
+	 * Enables local recovery of the partitioned state held in RocksDB.
+	 *
+	 * <p>By default, this is disabled. When enabled, the local backup (or RocksDB checkpoint)
+	 * from which a checkpoint is uploaded is kept in the local storage directories until a newer
+	 * checkpoint completes. When the task is restored on the same TaskManager, it restores from
+	 * that copy instead of downloading the checkpoint, and falls back to the checkpoint if the
+	 * copy does not exist or cannot be read. This does not apply to fully asynchronous snapshots.
+	 * Local copies are kept in addition to the checkpoint and use additional local disk space.
+	 */
+	public void enableLocalRecovery() {
+		this.localRecovery = true;
+	}
+
+	/**
+	 * Disables local recovery of the partitioned state held in RocksDB.
+	 *
+	 * <p>By default, this is disabled.
+	 */
+	public void disableLocalRecovery() {
+		this.localRecovery = false;
+	}
+
+	/**
+	 * Sets the number of writes to the partitioned state that are buffered in a RocksDB write
+	 * batch before they are written to the data base in one call.
+	 *
+	 * <p>By default, this is 0, which means that each write goes to RocksDB directly. Buffered
+	 * writes are kept in the cache of their k/v state until the batch is written, so that reads
+	 * see them. The batch is also written when a checkpoint is taken.
+	 *
+	 * @param writeBatchSize The number of buffered writes.
+	 */
+	public void setWriteBatchSize(int writeBatchSize) {
+		if (writeBatchSize < 0) {
+			throw new IllegalArgumentException("The write batch size must not be negative.");
+		}
+		this.writeBatchSize = writeBatchSize;
+	}
+
+	/**
+	 * Gets the number of writes to the partitioned state that are buffered in a RocksDB write
+	 * batch, 0 if writes go to RocksDB directly.
+	 */
+	public int getWriteBatchSize() {
+		return writeBatchSize;
+	}
+
+	/**
+	 * Sets the number of recently accessed values that each k/v state caches in serialized form,
+	 * to avoid reading them from RocksDB again.
+	 *
+	 * <p>By default, this is 0, which means that values are only cached while their writes are
+	 * buffered (see {@link #setWriteBatchSize(int)}).
+	 *
+	 * @param readCacheSize The number of cached values per k/v state.
+	 */
+	public void setReadCacheSize(int readCacheSize) {
+		if (readCacheSize < 0) {
+			throw new IllegalArgumentException("The read cache size must not be negative.");
+		}
+		this.readCacheSize = readCacheSize;
+	}
+
+	/**
+	 * Gets the number of recently accessed values that each k/v state caches.
+	 */
+	public int getReadCacheSize() {
+		return readCacheSize;
+	}
+
 	/**
 	 * Sets the path where the RocksDB local database files should be stored on the local
 	 * file system. Setting this path overrides the default behavior, where the
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of the serialized values of one RocksDB column family, in least-recently-used order.
+ * It avoids JNI calls for keys that are accessed several times in a row, and it holds the values
+ * of writes that are buffered in the write batch of the {@link RocksDBStateBackend} and not yet
+ * visible in RocksDB.
+ *
+ * <p>Entries with a buffered write are never evicted, because reading the key from RocksDB would
+ * return an outdated value. They become evictable when the write batch is flushed. Therefore,
+ * the cache may temporarily hold more entries than its maximum size, up to the size of the
+ * write batch.
+ *
+ * <p>This class is not thread safe.
+ */
+final class RocksDBStateCache {
+
+	/** Cached value for keys that do not exist in RocksDB */
+	static final byte[] ABSENT = new byte[0];
+
+	/** The backend whose write batch generation tells which entries are still buffered */
+	private final RocksDBStateBackend backend;
+
+	/** The maximum number of entries without a buffered write */
+	private final int maxSize;
+
+	private final LinkedHashMap<Key, Entry> entries;
+
+	RocksDBStateCache(RocksDBStateBackend backend, int maxSize) {
+		this.backend = backend;
+		this.maxSize = maxSize;
+		this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+				return size() > RocksDBStateCache.this.maxSize && !isBuffered(eldest.getValue());
+			}
+		};
+	}
+
+	/**
+	 * Returns the cached value of the given key, {@link #ABSENT} if the key is known to not exist,
+	 * or null if the key is not cached.
+	 */
+	byte[] get(byte[] key) {
+		Entry entry = entries.get(new Key(key));
+		return entry != null ? entry.value : null;
+	}
+
+	/**
+	 * Caches the value of the given key, as read from RocksDB.
+	 *
+	 * @param value The value, or null if the key does not exist.
+	 */
+	void putClean(byte[] key, byte[] value) {
+		entries.put(new Key(key), new Entry(value != null ? value : ABSENT, -1L));
+	}
+
+	/**
+	 * Caches the value of the given key, as written by the state. If the backend buffers writes,
+	 * this must be called before the write is added to the write batch, so that a flush caused by
+	 * adding the write makes the entry evictable.
+	 *
+	 * @param value The value, or {@link #ABSENT} if the key is removed.
+	 */
+	void putWritten(byte[] key, byte[] value) {
+		long batchGeneration = backend.isWriteBatchEnabled() ? backend.getWriteBatchGeneration() : -1L;
+		entries.put(new Key(key), new Entry(value, batchGeneration));
+	}
+
+	void clear() {
+		entries.clear();
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	private boolean isBuffered(Entry entry) {
+		return entry.batchGeneration == backend.getWriteBatchGeneration();
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Wrapper for serialized keys, with value based equality.
+	 */
+	private static final class Key {
+
+		private final byte[] bytes;
+
+		private final int hashCode;
+
+		Key(byte[] bytes) {
+			this.bytes = bytes;
+			this.hashCode = Arrays.hashCode(bytes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && Arrays.equals(bytes, ((Key) obj).bytes);
+		}
+	}
+
+	private static final class Entry {
+
+		final byte[] value;
+
+		/** The generation of the write batch that holds the write of this value, -1 if none */
+		final long batchGeneration;
+
+		Entry(byte[] value, long batchGeneration) {
+			this.value = value;
+			this.batchGeneration = batchGeneration;
+		}
+	}
+}
@@ -26,7 +26,6 @@ import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
 
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksDBException;
-import org.rocksdb.WriteOptions;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -51,12 +50,6 @@ public class RocksDBValueState<K, N, V>
 	/** This holds the name of the state and can create an initial default value for the state. */
 	private final ValueStateDescriptor<V> stateDesc;
 
-	/**
-	 * We disable writes to the write-ahead-log here. We can't have these in the base class
-	 * because JNI segfaults for some reason if they are.
-	 */
-	private final WriteOptions writeOptions;
-
 	/**
 	 * Creates a new {@code RocksDBValueState}.
 	 *
@@ -72,9 +65,6 @@ public class RocksDBValueState<K, N, V>
 		super(columnFamily, namespaceSerializer, backend);
 		this.stateDesc = requireNonNull(stateDesc);
 		this.valueSerializer = stateDesc.getSerializer();
-
-		writeOptions = new WriteOptions();
-		writeOptions.setDisableWAL(true);
 	}
 
 	@Override
@@ -84,7 +74,7 @@ public class RocksDBValueState<K, N, V>
 		try {
 			writeKeyAndNamespace(out);
 			byte[] key = baos.toByteArray();
-			byte[] valueBytes = backend.db.get(columnFamily, key);
+			byte[] valueBytes = getValueBytes(key);
 			if (valueBytes == null) {
 				return stateDesc.getDefaultValue();
 			}
@@ -107,7 +97,7 @@ public class RocksDBValueState<K, N, V>
 			byte[] key = baos.toByteArray();
 			baos.reset();
 			valueSerializer.serialize(value, out);
-			backend.db.put(columnFamily, writeOptions, key, baos.toByteArray());
+			putValueBytes(key, baos.toByteArray());
 		} catch (Exception e) {
 			throw new RuntimeException("Error while adding data to RocksDB", e);
 		}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.api.common.typeutils.base.VoidSerializer;
+import org.apache.flink.configuration.ConfigConstants;
+import org.apache.flink.runtime.operators.testutils.DummyEnvironment;
+import org.apache.flink.runtime.state.StateBackendTestBase;
+import org.apache.flink.runtime.state.memory.MemoryStateBackend;
+import org.apache.flink.util.OperatingSystem;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for the partitioned state part of {@link RocksDBStateBackend} with buffered writes and
+ * a read cache.
+ */
+public class BatchedRocksDBStateBackendTest extends StateBackendTestBase<RocksDBStateBackend> {
+
+	private File dbDir;
+	private File chkDir;
+
+	@Before
+	public void checkOperatingSystem() {
+		Assume.assumeTrue("This test can't run successfully on Windows.", !OperatingSystem.isWindows());
+	}
+
+	@Override
+	protected RocksDBStateBackend getStateBackend() throws IOException {
+		dbDir = new File(new File(ConfigConstants.DEFAULT_TASK_MANAGER_TMP_PATH, UUID.randomUUID().toString()), "state");
+		chkDir = new File(new File(ConfigConstants.DEFAULT_TASK_MANAGER_TMP_PATH, UUID.randomUUID().toString()), "snapshots");
+
+		RocksDBStateBackend backend = new RocksDBStateBackend(chkDir.getAbsoluteFile().toURI(), new MemoryStateBackend());
+		backend.setDbStoragePath(dbDir.getAbsolutePath());
+		// small sizes, so that the tests flush the batch and evict cached values
+		backend.setWriteBatchSize(3);
+		backend.setReadCacheSize(2);
+		return backend;
+	}
+
+	@Override
+	protected void cleanup() {
+		try {
+			FileUtils.deleteDirectory(dbDir);
+			FileUtils.deleteDirectory(chkDir);
+		} catch (IOException ignore) {}
+	}
+
+	@Test
+	public void testReadsSeeBufferedWrites() throws Exception {
+		backend.setWriteBatchSize(1000);
+		backend.setReadCacheSize(0);
+		backend.initializeForJob(new DummyEnvironment("test", 1, 0), "test_op", IntSerializer.INSTANCE);
+
+		ValueStateDescriptor<String> valueId = new ValueStateDescriptor<>("value", String.class, null);
+		valueId.initializeSerializerUnlessSet(new ExecutionConfig());
+		ListStateDescriptor<String> listId = new ListStateDescriptor<>("list", StringSerializer.INSTANCE);
+
+		ValueState<String> value = backend.getPartitionedState(null, VoidSerializer.INSTANCE, valueId);
+		ListState<String> list = backend.getPartitionedState(null, VoidSerializer.INSTANCE, listId);
+
+		for (int i = 0; i < 100; i++) {
+			backend.setCurrentKey(i);
+			value.update("v" + i);
+			list.add("a" + i);
+		}
+		for (int i = 0; i < 100; i++) {
+			backend.setCurrentKey(i);
+			assertEquals("v" + i, value.value());
+			list.add("b" + i);
+			assertEquals(listOf("a" + i, "b" + i), toList(list.get()));
+
+			value.clear();
+			assertNull(value.value());
+		}
+	}
+
+	@Test
+	public void testMapStateIteratesLargeMaps() throws Exception {
+		backend.setWriteBatchSize(1000);
+		backend.initializeForJob(new DummyEnvironment("test", 1, 0), "test_op", IntSerializer.INSTANCE);
+
+		MapStateDescriptor<Integer, String> mapId = new MapStateDescriptor<>("map", IntSerializer.INSTANCE, StringSerializer.INSTANCE);
+		MapState<Integer, String> map = backend.getPartitionedState(null, VoidSerializer.INSTANCE, mapId);
+
+		// more entries than the iterator loads at once, next to the entries of other keys
+		for (int key = 0; key < 3; key++) {
+			backend.setCurrentKey(key);
+			for (int i = 0; i < 300; i++) {
+				map.put(i, key + "-" + i);
+			}
+		}
+
+		backend.setCurrentKey(1);
+		Set<Integer> keys = new HashSet<>();
+		for (Map.Entry<Integer, String> entry : map.entries()) {
+			assertEquals("1-" + entry.getKey(), entry.getValue());
+			keys.add(entry.getKey());
+		}
+		assertEquals(300, keys.size());
+
+		map.clear();
+		assertFalse(map.keys().iterator().hasNext());
+		assertNull(map.get(7));
+
+		backend.setCurrentKey(2);
+		assertEquals("2-7", map.get(7));
+	}
+
+	private static List<String> listOf(String... values) {
+		List<String> list = new ArrayList<>();
+		for (String value : values) {
+			list.add(value);
+		}
+		return list;
+	}
+
+	private static List<String> toList(Iterable<String> values) {
+		List<String> list = new ArrayList<>();
+		for (String value : values) {
+			list.add(value);
+		}
+		return list;
+	}
+}
@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.VoidSerializer;
+import org.apache.flink.configuration.ConfigConstants;
+import org.apache.flink.runtime.fs.hdfs.HadoopFileSystem;
+import org.apache.flink.runtime.operators.testutils.DummyEnvironment;
+import org.apache.flink.runtime.state.AsynchronousKvStateSnapshot;
+import org.apache.flink.runtime.state.KvStateSnapshot;
+import org.apache.flink.runtime.state.StateBackendTestBase;
+import org.apache.flink.runtime.state.memory.MemoryStateBackend;
+import org.apache.flink.util.OperatingSystem;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FilterFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the partitioned state part of {@link RocksDBStateBackend} with incremental
+ * checkpoints enabled.
+ */
+public class IncrementalRocksDBStateBackendTest extends StateBackendTestBase<RocksDBStateBackend> {
+
+	private File dbDir;
+	private File chkDir;
+
+	@Before
+	public void checkOperatingSystem() {
+		Assume.assumeTrue("This test can't run successfully on Windows.", !OperatingSystem.isWindows());
+	}
+
+	@Override
+	protected RocksDBStateBackend getStateBackend() throws IOException {
+		dbDir = new File(new File(ConfigConstants.DEFAULT_TASK_MANAGER_TMP_PATH, UUID.randomUUID().toString()), "state");
+		chkDir = new File(new File(ConfigConstants.DEFAULT_TASK_MANAGER_TMP_PATH, UUID.randomUUID().toString()), "snapshots");
+
+		RocksDBStateBackend backend = new RocksDBStateBackend(chkDir.getAbsoluteFile().toURI(), new MemoryStateBackend());
+		backend.setDbStoragePath(dbDir.getAbsolutePath());
+		backend.enableIncrementalCheckpoints();
+		return backend;
+	}
+
+	@Override
+	protected void cleanup() {
+		try {
+			FileUtils.deleteDirectory(dbDir);
+			FileUtils.deleteDirectory(chkDir);
+		} catch (IOException ignore) {}
+	}
+
+	@Test
+	public void testSharedFilesAreReusedAndDiscarded() throws Exception {
+		backend.initializeForJob(new DummyEnvironment("test", 1, 0), "test_op", IntSerializer.INSTANCE);
+
+		ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class, null);
+		kvId.initializeSerializerUnlessSet(new ExecutionConfig());
+
+		ValueState<String> state = backend.getPartitionedState(null, VoidSerializer.INSTANCE, kvId);
+
+		backend.setCurrentKey(1);
+		state.update("1");
+		backend.setCurrentKey(2);
+		state.update("2");
+
+		KvStateSnapshot<?, ?, ?, ?, ?> snapshot1 = snapshot(1L);
+		Set<File> filesOfSnapshot1 = getSharedFiles();
+		assertFalse(filesOfSnapshot1.isEmpty());
+
+		backend.notifyOfCompletedCheckpoint(1L);
+
+		backend.setCurrentKey(1);
+		state.update("u1");
+		backend.setCurrentKey(3);
+		state.update("u3");
+
+		// the second checkpoint only uploads the new SST files
+		KvStateSnapshot<?, ?, ?, ?, ?> snapshot2 = snapshot(2L);
+		Set<File> filesOfSnapshot2 = getSharedFiles();
+		assertTrue(filesOfSnapshot2.containsAll(filesOfSnapshot1));
+		assertTrue(filesOfSnapshot2.size() > filesOfSnapshot1.size());
+
+		// the files of the first checkpoint are still referenced by the second one
+		snapshot1.discardState();
+		assertEquals(filesOfSnapshot2, getSharedFiles());
+
+		backend.dispose();
+
+		// restore the second checkpoint and validate it
+		backend.initializeForJob(new DummyEnvironment("test", 1, 0), "test_op", IntSerializer.INSTANCE);
+		HashMap<String, KvStateSnapshot> snapshots = new HashMap<>();
+		snapshots.put("dummy_state", snapshot2);
+		backend.injectKeyValueStateSnapshots(snapshots, 100);
+
+		ValueState<String> restored = backend.getPartitionedState(null, VoidSerializer.INSTANCE, kvId);
+		backend.setCurrentKey(1);
+		assertEquals("u1", restored.value());
+		backend.setCurrentKey(2);
+		assertEquals("2", restored.value());
+		backend.setCurrentKey(3);
+		assertEquals("u3", restored.value());
+
+		// a checkpoint of the restored data base references the files of the restored checkpoint
+		KvStateSnapshot<?, ?, ?, ?, ?> snapshot3 = snapshot(3L);
+		assertEquals(filesOfSnapshot2, getSharedFiles());
+
+		snapshot2.discardState();
+		assertEquals(filesOfSnapshot2, getSharedFiles());
+
+		snapshot3.discardState();
+		assertTrue(getSharedFiles().isEmpty());
+
+		backend.dispose();
+	}
+
+	@Test
+	public void testDiscardInterleavedWithReferenceOfSharedFile() throws Exception {
+		backend.initializeForJob(new DummyEnvironment("test", 1, 0), "test_op", IntSerializer.INSTANCE);
+
+		File dir = new File(ConfigConstants.DEFAULT_TASK_MANAGER_TMP_PATH, UUID.randomUUID().toString());
+		try {
+			final File localFile = new File(dir, "local.sst");
+			FileUtils.writeStringToFile(localFile, "data");
+			final String sharedFile = new File(new File(dir, "shared"), "file.sst").toURI().toString();
+
+			final FileSystem localFs = FileSystem.get(new URI(sharedFile), HadoopFileSystem.getHadoopConfiguration());
+			InterleavingFileSystem fs = new InterleavingFileSystem(localFs);
+
+			assertTrue(RocksDBStateBackend.referenceSharedFile(fs, localFile, sharedFile, 1L, true));
+
+			// checkpoint 2 references the file after the discard of checkpoint 1 found no references
+			fs.afterListStatus = new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					return RocksDBStateBackend.referenceSharedFile(localFs, localFile, sharedFile, 2L, false);
+				}
+			};
+			RocksDBStateBackend.discardSharedFile(fs, sharedFile, 1L);
+			assertFalse((Boolean) fs.result);
+			assertEquals("data", FileUtils.readFileToString(new File(new URI(sharedFile))));
+
+			// checkpoint 3 references the file after the discard of checkpoint 2 moved it away
+			fs.afterRename = new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					return RocksDBStateBackend.referenceSharedFile(localFs, localFile, sharedFile, 3L, false);
+				}
+			};
+			RocksDBStateBackend.discardSharedFile(fs, sharedFile, 2L);
+			assertTrue((Boolean) fs.result);
+			assertEquals("data", FileUtils.readFileToString(new File(new URI(sharedFile))));
+
+			// without concurrent references, the file is deleted
+			RocksDBStateBackend.discardSharedFile(fs, sharedFile, 3L);
+			assertEquals(Collections.singletonList(localFile), FileUtils.listFiles(dir, new String[] {"sst"}, true));
+		}
+		finally {
+			FileUtils.deleteDirectory(dir);
+		}
+	}
+
+	private KvStateSnapshot<?, ?, ?, ?, ?> snapshot(long checkpointId) throws Exception {
+		HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> snapshot = backend.snapshotPartitionedState(checkpointId, checkpointId);
+		assertEquals(1, snapshot.size());
+		return ((AsynchronousKvStateSnapshot<?, ?, ?, ?, ?>) snapshot.values().iterator().next()).materialize();
+	}
+
+	private Set<File> getSharedFiles() {
+		Collection<File> files = FileUtils.listFiles(chkDir, new String[] {"sst"}, true);
+		return new HashSet<>(files);
+	}
+
+	/**
+	 * File system that runs an action right after the next listing or renaming, to interleave a
+	 * discard with a concurrent materialization.
+	 */
+	private static final class InterleavingFileSystem extends FilterFileSystem {
+
+		Callable<?> afterListStatus;
+
+		Callable<?> afterRename;
+
+		Object result;
+
+		InterleavingFileSystem(FileSystem fs) {
+			super(fs);
+		}
+
+		@Override
+		public FileStatus[] listStatus(Path path) throws IOException {
+			FileStatus[] status = super.listStatus(path);
+			afterListStatus = runAction(afterListStatus);
+			return status;
+		}
+
+		@Override
+		public boolean rename(Path src, Path dst) throws IOException {
+			boolean renamed = super.rename(src, dst);
+			afterRename = runAction(afterRename);
+			return renamed;
+		}
+
+		private Callable<?> runAction(Callable<?> action) throws IOException {
+			if (action != null) {
+				try {
+					result = action.call();
+				} catch (Exception e) {
+					throw new IOException(e);
+				}
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.FalseFileFilter;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.VoidSerializer;
+import org.apache.flink.configuration.ConfigConstants;
+import org.apache.flink.runtime.operators.testutils.DummyEnvironment;
+import org.apache.flink.runtime.state.AsynchronousKvStateSnapshot;
+import org.apache.flink.runtime.state.KvStateSnapshot;
+import org.apache.flink.runtime.state.StateBackendTestBase;
+import org.apache.flink.runtime.state.memory.MemoryStateBackend;
+import org.apache.flink.util.OperatingSystem;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests for the partitioned state part of {@link RocksDBStateBackend} with local recovery
+ * enabled.
+ */
+public class LocalRecoveryRocksDBStateBackendTest extends StateBackendTestBase<RocksDBStateBackend> {
+
+	private File dbDir;
+	private File chkDir;
+
+	@Before
+	public void checkOperatingSystem() {
+		Assume.assumeTrue("This test can't run successfully on Windows.", !OperatingSystem.isWindows());
+	}
+
+	@Override
+	protected RocksDBStateBackend getStateBackend() throws IOException {
+		dbDir = new File(new File(ConfigConstants.DEFAULT_TASK_MANAGER_TMP_PATH, UUID.randomUUID().toString()), "state");
+		chkDir = new File(new File(ConfigConstants.DEFAULT_TASK_MANAGER_TMP_PATH, UUID.randomUUID().toString()), "snapshots");
+
+		RocksDBStateBackend backend = new RocksDBStateBackend(chkDir.getAbsoluteFile().toURI(), new MemoryStateBackend());
+		backend.setDbStoragePath(dbDir.getAbsolutePath());
+		backend.enableLocalRecovery();
+		return backend;
+	}
+
+	@Override
+	protected void cleanup() {
+		try {
+			FileUtils.deleteDirectory(dbDir);
+			FileUtils.deleteDirectory(chkDir);
+		} catch (IOException ignore) {}
+	}
+
+	@Test
+	public void testRestoreFromLocalCopy() throws Exception {
+		verifyRestoreFromLocalCopy();
+	}
+
+	@Test
+	public void testRestoreFromLocalCopyOfIncrementalCheckpoint() throws Exception {
+		backend.enableIncrementalCheckpoints();
+		verifyRestoreFromLocalCopy();
+	}
+
+	private void verifyRestoreFromLocalCopy() throws Exception {
+		// the restored task belongs to the same job
+		DummyEnvironment env = new DummyEnvironment("test", 1, 0);
+		backend.initializeForJob(env, "test_op", IntSerializer.INSTANCE);
+
+		ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class, null);
+		kvId.initializeSerializerUnlessSet(new ExecutionConfig());
+
+		ValueState<String> state = backend.getPartitionedState(null, VoidSerializer.INSTANCE, kvId);
+
+		backend.setCurrentKey(1);
+		state.update("1");
+		backend.setCurrentKey(2);
+		state.update("2");
+
+		KvStateSnapshot<?, ?, ?, ?, ?> snapshot1 = snapshot(1L);
+		backend.notifyOfCompletedCheckpoint(1L);
+		assertEquals(setOf("chk-1"), getLocalCopies());
+
+		// the task fails, so the local copies are kept for the next attempt
+		backend.retainLocalState();
+		backend.dispose();
+
+		// without the checkpoint files, the state can only be restored from the local copy
+		FileUtils.deleteDirectory(chkDir);
+
+		backend.initializeForJob(env, "test_op", IntSerializer.INSTANCE);
+		HashMap<String, KvStateSnapshot> snapshots = new HashMap<>();
+		snapshots.put("dummy_state", snapshot1);
+		backend.injectKeyValueStateSnapshots(snapshots, 100);
+
+		ValueState<String> restored = backend.getPartitionedState(null, VoidSerializer.INSTANCE, kvId);
+		backend.setCurrentKey(1);
+		assertEquals("1", restored.value());
+		backend.setCurrentKey(2);
+		assertEquals("2", restored.value());
+
+		// the local copy is kept until a newer checkpoint completes
+		backend.setCurrentKey(3);
+		restored.update("3");
+
+		snapshot(2L);
+		assertEquals(setOf("chk-1", "chk-2"), getLocalCopies());
+
+		backend.notifyOfCompletedCheckpoint(2L);
+		assertEquals(setOf("chk-2"), getLocalCopies());
+
+		// the task is done, so no attempt restores from the local copies any more
+		backend.close();
+		backend.dispose();
+		assertEquals(setOf(), getLocalCopies());
+		assertFalse(new File(new File(new File(dbDir, env.getJobID().toString()), "test_op"), "local-recovery").exists());
+	}
+
+	private KvStateSnapshot<?, ?, ?, ?, ?> snapshot(long checkpointId) throws Exception {
+		HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> snapshot = backend.snapshotPartitionedState(checkpointId, checkpointId);
+		assertEquals(1, snapshot.size());
+		return ((AsynchronousKvStateSnapshot<?, ?, ?, ?, ?>) snapshot.values().iterator().next()).materialize();
+	}
+
+	private Set<String> getLocalCopies() {
+		Set<String> localCopies = new HashSet<>();
+		for (File dir : FileUtils.listFilesAndDirs(dbDir, FalseFileFilter.INSTANCE, TrueFileFilter.INSTANCE)) {
+			if (dir.getParentFile() != null && dir.getParentFile().getName().equals("local-recovery")) {
+				localCopies.add(dir.getName());
+			}
+		}
+		return localCopies;
+	}
+
+	private static Set<String> setOf(String... names) {
+		Set<String> set = new HashSet<>();
+		for (String name : names) {
+			set.add(name);
+		}
+		return set;
+	}
+}
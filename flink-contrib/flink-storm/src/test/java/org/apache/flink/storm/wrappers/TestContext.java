@@ -44,6 +44,11 @@ class TestContext implements SourceContext<Tuple1<Integer>> {
 		// ignore it
 	}
 
+	@Override
+	public void markAsTemporarilyIdle() {
+		// ignore it
+	}
+
 	@Override
 	public Object getCheckpointLock() {
 		return null;
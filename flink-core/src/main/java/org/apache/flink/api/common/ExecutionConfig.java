@@ -116,6 +116,8 @@ public class ExecutionConfig implements Serializable {
 
 	private long autoWatermarkInterval = 0;
 
+	private long watermarkIdleTimeout = 0;
+
 	/**
 	 * @deprecated Should no longer be used because it is subsumed by RestartStrategyConfiguration
 	 */
@@ -126,6 +128,12 @@ public class ExecutionConfig implements Serializable {
 	
 	private long taskCancellationIntervalMillis = -1;
 
+	private int numberOfKeyGroups = -1;
+
+	private int miniBatchSize = 0;
+
+	private long miniBatchLatency = 0;
+
 	// ------------------------------- User code values --------------------------------------------
 
 	private transient GlobalJobParameters globalJobParameters;
@@ -216,6 +224,34 @@ public class ExecutionConfig implements Serializable {
 		return this.autoWatermarkInterval;
 	}
 
+	/**
+	 * Sets the time after which a periodic watermark assigner that did not receive any elements
+	 * marks its stream as temporarily idle. Downstream operators do not wait for the watermarks
+	 * of idle streams, so a single stream without data does not hold back the event time of the
+	 * whole program. The stream becomes active again with the next element.
+	 *
+	 * @param timeoutMillis The idle timeout in milliseconds, or 0 to never mark streams as idle.
+	 */
+	@PublicEvolving
+	public ExecutionConfig setWatermarkIdleTimeout(long timeoutMillis) {
+		if (timeoutMillis < 0) {
+			throw new IllegalArgumentException("The watermark idle timeout must not be negative.");
+		}
+		this.watermarkIdleTimeout = timeoutMillis;
+		return this;
+	}
+
+	/**
+	 * Returns the time after which streams without elements are marked as temporarily idle,
+	 * or 0, if streams are never marked as idle.
+	 *
+	 * @see #setWatermarkIdleTimeout(long)
+	 */
+	@PublicEvolving
+	public long getWatermarkIdleTimeout() {
+		return this.watermarkIdleTimeout;
+	}
+
 	/**
 	 * Gets the parallelism with which operation are executed by default. Operations can
 	 * individually override this value to use a specific parallelism.
@@ -272,6 +308,108 @@ public class ExecutionConfig implements Serializable {
 		return this;
 	}
 
+	/**
+	 * Gets the number of key groups into which the keys of keyed streams are hashed.
+	 *
+	 * @return The number of key groups, or -1, if key groups are not used.
+	 */
+	@PublicEvolving
+	public int getNumberOfKeyGroups() {
+		return numberOfKeyGroups;
+	}
+
+	/**
+	 * Sets the number of key groups into which the keys of keyed streams are hashed. The key/value
+	 * state of keyed operators is checkpointed per key group, and each parallel instance of an
+	 * operator is responsible for a set of key groups. That way, a job can be restored from a
+	 * savepoint or checkpoint with a different parallelism, as long as its operators have no
+	 * non-keyed state.
+	 * <p>
+	 * The number of key groups is the upper bound for the parallelism of keyed operators and must
+	 * not change between a savepoint and the job that is restored from it. By default, key groups
+	 * are not used, and a job can only be restored with the parallelism it had when the state was
+	 * checkpointed.
+	 *
+	 * @param numberOfKeyGroups The number of key groups, or -1, to not use key groups.
+	 */
+	@PublicEvolving
+	public ExecutionConfig setNumberOfKeyGroups(int numberOfKeyGroups) {
+		if (numberOfKeyGroups < 1 && numberOfKeyGroups != -1) {
+			throw new IllegalArgumentException("The number of key groups must be at least one, or -1.");
+		}
+		this.numberOfKeyGroups = numberOfKeyGroups;
+		return this;
+	}
+
+	/**
+	 * Enables the mini-batch mode of keyed streaming operators that support it, which are the rolling
+	 * reduce and fold of a {@code KeyedStream} and windows that do not merge and are reduced with a
+	 * {@code ReduceFunction}. These operators buffer their input and aggregate it per key, and then
+	 * update the state once per batch, instead of once per element. This reduces the state accesses
+	 * for frequent keys considerably.
+	 * <p>
+	 * The rolling reduce and fold emit the result of each key once per batch, so they emit fewer
+	 * intermediate results. A batch is processed when it contains the given number of elements, when
+	 * the given time passed since its first element arrived, and before watermarks and checkpoint
+	 * barriers are forwarded.
+	 * <p>
+	 * Windows still evaluate their trigger for every element and add the batched elements of a window
+	 * to its state before it fires, so their results do not change. Their batches are added to the
+	 * state when they contain the given number of elements and before checkpoint barriers are
+	 * forwarded; the latency does not apply, because nothing is emitted for a batch.
+	 *
+	 * @param maxSize The maximum number of elements of a batch, must be larger than one.
+	 * @param maxLatencyMillis The maximum time in milliseconds that elements are buffered, or 0,
+	 *                         to only bound the batches by their size.
+	 */
+	@PublicEvolving
+	public ExecutionConfig enableMiniBatch(int maxSize, long maxLatencyMillis) {
+		if (maxSize < 2) {
+			throw new IllegalArgumentException("The mini-batch size must be larger than one.");
+		}
+		if (maxLatencyMillis < 0) {
+			throw new IllegalArgumentException("The mini-batch latency must not be negative.");
+		}
+		this.miniBatchSize = maxSize;
+		this.miniBatchLatency = maxLatencyMillis;
+		return this;
+	}
+
+	/**
+	 * Disables the mini-batch mode. @see #enableMiniBatch(int, long)
+	 */
+	@PublicEvolving
+	public ExecutionConfig disableMiniBatch() {
+		this.miniBatchSize = 0;
+		this.miniBatchLatency = 0;
+		return this;
+	}
+
+	/**
+	 * Returns whether the mini-batch mode is enabled. @see #enableMiniBatch(int, long)
+	 */
+	@PublicEvolving
+	public boolean isMiniBatchEnabled() {
+		return miniBatchSize > 0;
+	}
+
+	/**
+	 * Returns the maximum number of elements of a mini-batch, or 0, if the mini-batch mode is disabled.
+	 */
+	@PublicEvolving
+	public int getMiniBatchSize() {
+		return miniBatchSize;
+	}
+
+	/**
+	 * Returns the maximum time in milliseconds that elements are buffered in a mini-batch, or 0,
+	 * if the batches are only bounded by their size.
+	 */
+	@PublicEvolving
+	public long getMiniBatchLatency() {
+		return miniBatchLatency;
+	}
+
 	/**
 	 * Sets the restart strategy to be used for recovery.
 	 *
@@ -787,11 +925,15 @@ public class ExecutionConfig implements Serializable {
 				printProgressDuringExecution == other.printProgressDuringExecution &&
 				Objects.equals(globalJobParameters, other.globalJobParameters) &&
 				autoWatermarkInterval == other.autoWatermarkInterval &&
+				watermarkIdleTimeout == other.watermarkIdleTimeout &&
 				registeredTypesWithKryoSerializerClasses.equals(other.registeredTypesWithKryoSerializerClasses) &&
 				defaultKryoSerializerClasses.equals(other.defaultKryoSerializerClasses) &&
 				registeredKryoTypes.equals(other.registeredKryoTypes) &&
 				registeredPojoTypes.equals(other.registeredPojoTypes) &&
-				taskCancellationIntervalMillis == other.taskCancellationIntervalMillis;
+				taskCancellationIntervalMillis == other.taskCancellationIntervalMillis &&
+				numberOfKeyGroups == other.numberOfKeyGroups &&
+				miniBatchSize == other.miniBatchSize &&
+				miniBatchLatency == other.miniBatchLatency;
 
 		} else {
 			return false;
@@ -813,11 +955,15 @@ public class ExecutionConfig implements Serializable {
 			printProgressDuringExecution,
 			globalJobParameters,
 			autoWatermarkInterval,
+			watermarkIdleTimeout,
 			registeredTypesWithKryoSerializerClasses,
 			defaultKryoSerializerClasses,
 			registeredKryoTypes,
 			registeredPojoTypes,
-			taskCancellationIntervalMillis);
+			taskCancellationIntervalMillis,
+			numberOfKeyGroups,
+			miniBatchSize,
+			miniBatchLatency);
 	}
 
 	public boolean canEqual(Object obj) {
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.common.state;
+
+import org.apache.flink.annotation.PublicEvolving;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.MapSerializer;
+import org.apache.flink.api.java.typeutils.MapTypeInfo;
+
+import java.util.Map;
+
+/**
+ * A {@link StateDescriptor} for {@link MapState}. This can be used to create a partitioned
+ * map state using
+ * {@link org.apache.flink.api.common.functions.RuntimeContext#getMapState(MapStateDescriptor)}.
+ *
+ * @param <UK> The type of the keys that can be added to the map state.
+ * @param <UV> The type of the values that can be added to the map state.
+ */
+@PublicEvolving
+public class MapStateDescriptor<UK, UV> extends StateDescriptor<MapState<UK, UV>, Map<UK, UV>> {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Creates a new {@code MapStateDescriptor} with the given name and the given type serializers.
+	 *
+	 * @param name The (unique) name for the state.
+	 * @param keySerializer The type serializer for the keys in the state.
+	 * @param valueSerializer The type serializer for the values in the state.
+	 */
+	public MapStateDescriptor(String name, TypeSerializer<UK> keySerializer, TypeSerializer<UV> valueSerializer) {
+		super(name, new MapSerializer<>(keySerializer, valueSerializer), null);
+	}
+
+	/**
+	 * Creates a new {@code MapStateDescriptor} with the given name and the given type information.
+	 *
+	 * @param name The (unique) name for the state.
+	 * @param keyTypeInfo The type information for the keys in the state.
+	 * @param valueTypeInfo The type information for the values in the state.
+	 */
+	public MapStateDescriptor(String name, TypeInformation<UK> keyTypeInfo, TypeInformation<UV> valueTypeInfo) {
+		super(name, new MapTypeInfo<>(keyTypeInfo, valueTypeInfo), null);
+	}
+
+	/**
+	 * Creates a new {@code MapStateDescriptor} with the given name and the given type classes.
+	 *
+	 * <p>If this constructor fails (because it is not possible to describe the type via a class),
+	 * consider using the {@link #MapStateDescriptor(String, TypeInformation, TypeInformation)}
+	 * constructor.
+	 *
+	 * @param name The (unique) name for the state.
+	 * @param keyClass The class of the keys in the state.
+	 * @param valueClass The class of the values in the state.
+	 */
+	public MapStateDescriptor(String name, Class<UK> keyClass, Class<UV> valueClass) {
+		super(name, new MapTypeInfo<>(keyClass, valueClass), null);
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public MapState<UK, UV> bind(StateBackend stateBackend) throws Exception {
+		return stateBackend.createMapState(this);
+	}
+
+	/**
+	 * Returns the serializer for the keys in the state.
+	 */
+	public TypeSerializer<UK> getKeySerializer() {
+		return getMapSerializer().getKeySerializer();
+	}
+
+	/**
+	 * Returns the serializer for the values in the state.
+	 */
+	public TypeSerializer<UV> getValueSerializer() {
+		return getMapSerializer().getValueSerializer();
+	}
+
+	@SuppressWarnings("unchecked")
+	private MapSerializer<UK, UV> getMapSerializer() {
+		TypeSerializer<Map<UK, UV>> serializer = getSerializer();
+		if (!(serializer instanceof MapSerializer)) {
+			throw new IllegalStateException("Unexpected serializer type " + serializer.getClass().getName());
+		}
+		return (MapSerializer<UK, UV>) serializer;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+
+		MapStateDescriptor<?, ?> that = (MapStateDescriptor<?, ?>) o;
+
+		return serializer.equals(that.serializer) && name.equals(that.name);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = serializer.hashCode();
+		result = 31 * result + name.hashCode();
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "MapStateDescriptor{" +
+				"serializer=" + serializer +
+				'}';
+	}
+}
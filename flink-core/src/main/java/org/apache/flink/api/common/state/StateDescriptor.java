@@ -62,6 +62,10 @@ public abstract class StateDescriptor<S extends State, T> implements Serializabl
 	 * and dropped during serialization */
 	private transient TypeInformation<T> typeInfo;
 
+	/** The time (in milliseconds) after which a value expires if it was not updated,
+	 * or 0, if the values of the state never expire */
+	private long timeToLive;
+
 	// ------------------------------------------------------------------------
 
 	/**
@@ -153,6 +157,38 @@ public abstract class StateDescriptor<S extends State, T> implements Serializabl
 		}
 	}
 
+	/**
+	 * Sets the time-to-live of the values in the state. A value expires once it was not written
+	 * for the given time. Expired values are not returned by the state any more and are removed
+	 * lazily, when they are accessed or when the state backend takes a checkpoint.
+	 *
+	 * <p>The time-to-live is measured in processing time, i.e., with the clock of the machine
+	 * that runs the operator.
+	 *
+	 * @param timeToLiveMillis The time-to-live in milliseconds, must be positive.
+	 */
+	public void setTimeToLive(long timeToLiveMillis) {
+		if (timeToLiveMillis <= 0) {
+			throw new IllegalArgumentException("The time-to-live must be positive.");
+		}
+		this.timeToLive = timeToLiveMillis;
+	}
+
+	/**
+	 * Returns the time-to-live of the values in the state in milliseconds, or 0, if the values
+	 * never expire.
+	 */
+	public long getTimeToLive() {
+		return timeToLive;
+	}
+
+	/**
+	 * Checks whether the values of the state expire after a time-to-live.
+	 */
+	public boolean isTimeToLiveEnabled() {
+		return timeToLive > 0;
+	}
+
 	/**
 	 * Creates a new {@link State} on the given {@link StateBackend}.
 	 *
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.common.typeutils.base;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A serializer for {@link Map}s. The serializer relies on a key serializer and a value serializer
+ * for the serialization of the map's entries. Values may be null, keys may not.
+ *
+ * <p>Maps are deserialized into {@link HashMap}s.
+ *
+ * @param <K> The type of the keys in the map.
+ * @param <V> The type of the values in the map.
+ */
+@Internal
+public final class MapSerializer<K, V> extends TypeSerializer<Map<K, V>> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final TypeSerializer<K> keySerializer;
+
+	private final TypeSerializer<V> valueSerializer;
+
+	public MapSerializer(TypeSerializer<K> keySerializer, TypeSerializer<V> valueSerializer) {
+		this.keySerializer = requireNonNull(keySerializer, "The key serializer must not be null.");
+		this.valueSerializer = requireNonNull(valueSerializer, "The value serializer must not be null.");
+	}
+
+	public TypeSerializer<K> getKeySerializer() {
+		return keySerializer;
+	}
+
+	public TypeSerializer<V> getValueSerializer() {
+		return valueSerializer;
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public boolean isImmutableType() {
+		return false;
+	}
+
+	@Override
+	public TypeSerializer<Map<K, V>> duplicate() {
+		TypeSerializer<K> duplicateKey = keySerializer.duplicate();
+		TypeSerializer<V> duplicateValue = valueSerializer.duplicate();
+
+		return (duplicateKey == keySerializer && duplicateValue == valueSerializer) ?
+			this : new MapSerializer<>(duplicateKey, duplicateValue);
+	}
+
+	@Override
+	public Map<K, V> createInstance() {
+		return new HashMap<>();
+	}
+
+	@Override
+	public Map<K, V> copy(Map<K, V> from) {
+		Map<K, V> newMap = new HashMap<>(from.size());
+		for (Map.Entry<K, V> entry : from.entrySet()) {
+			V value = entry.getValue();
+			newMap.put(keySerializer.copy(entry.getKey()), value == null ? null : valueSerializer.copy(value));
+		}
+		return newMap;
+	}
+
+	@Override
+	public Map<K, V> copy(Map<K, V> from, Map<K, V> reuse) {
+		return copy(from);
+	}
+
+	@Override
+	public int getLength() {
+		return -1; // var length
+	}
+
+	@Override
+	public void serialize(Map<K, V> map, DataOutputView target) throws IOException {
+		target.writeInt(map.size());
+		for (Map.Entry<K, V> entry : map.entrySet()) {
+			keySerializer.serialize(entry.getKey(), target);
+
+			if (entry.getValue() == null) {
+				target.writeBoolean(true);
+			} else {
+				target.writeBoolean(false);
+				valueSerializer.serialize(entry.getValue(), target);
+			}
+		}
+	}
+
+	@Override
+	public Map<K, V> deserialize(DataInputView source) throws IOException {
+		final int size = source.readInt();
+		final Map<K, V> map = new HashMap<>(size);
+		for (int i = 0; i < size; i++) {
+			K key = keySerializer.deserialize(source);
+			boolean isNull = source.readBoolean();
+			map.put(key, isNull ? null : valueSerializer.deserialize(source));
+		}
+		return map;
+	}
+
+	@Override
+	public Map<K, V> deserialize(Map<K, V> reuse, DataInputView source) throws IOException {
+		return deserialize(source);
+	}
+
+	@Override
+	public void copy(DataInputView source, DataOutputView target) throws IOException {
+		final int size = source.readInt();
+		target.writeInt(size);
+		for (int i = 0; i < size; i++) {
+			keySerializer.copy(source, target);
+
+			boolean isNull = source.readBoolean();
+			target.writeBoolean(isNull);
+			if (!isNull) {
+				valueSerializer.copy(source, target);
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		} else if (obj != null && obj.getClass() == getClass()) {
+			MapSerializer<?, ?> other = (MapSerializer<?, ?>) obj;
+			return keySerializer.equals(other.keySerializer) && valueSerializer.equals(other.valueSerializer);
+		} else {
+			return false;
+		}
+	}
+
+	@Override
+	public boolean canEqual(Object obj) {
+		return obj instanceof MapSerializer;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * keySerializer.hashCode() + valueSerializer.hashCode();
+	}
+}
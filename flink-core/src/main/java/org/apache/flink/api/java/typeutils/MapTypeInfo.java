@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.java.typeutils;
+
+import org.apache.flink.annotation.PublicEvolving;
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.MapSerializer;
+
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link TypeInformation} for {@link Map}s. Maps are serialized with a
+ * {@link MapSerializer} and are not usable as keys.
+ *
+ * @param <K> The type of the keys in the map.
+ * @param <V> The type of the values in the map.
+ */
+@PublicEvolving
+public class MapTypeInfo<K, V> extends TypeInformation<Map<K, V>> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final TypeInformation<K> keyTypeInfo;
+
+	private final TypeInformation<V> valueTypeInfo;
+
+	public MapTypeInfo(TypeInformation<K> keyTypeInfo, TypeInformation<V> valueTypeInfo) {
+		this.keyTypeInfo = requireNonNull(keyTypeInfo, "The key type information must not be null.");
+		this.valueTypeInfo = requireNonNull(valueTypeInfo, "The value type information must not be null.");
+	}
+
+	public MapTypeInfo(Class<K> keyClass, Class<V> valueClass) {
+		this(TypeExtractor.createTypeInfo(keyClass), TypeExtractor.createTypeInfo(valueClass));
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	public TypeInformation<K> getKeyTypeInfo() {
+		return keyTypeInfo;
+	}
+
+	public TypeInformation<V> getValueTypeInfo() {
+		return valueTypeInfo;
+	}
+
+	// --------------------------------------------------------------------------------------------
+
+	@Override
+	public boolean isBasicType() {
+		return false;
+	}
+
+	@Override
+	public boolean isTupleType() {
+		return false;
+	}
+
+	@Override
+	public int getArity() {
+		return 0;
+	}
+
+	@Override
+	public int getTotalFields() {
+		return 1;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public Class<Map<K, V>> getTypeClass() {
+		return (Class<Map<K, V>>) (Class<?>) Map.class;
+	}
+
+	@Override
+	public boolean isKeyType() {
+		return false;
+	}
+
+	@Override
+	public TypeSerializer<Map<K, V>> createSerializer(ExecutionConfig config) {
+		return new MapSerializer<>(keyTypeInfo.createSerializer(config), valueTypeInfo.createSerializer(config));
+	}
+
+	@Override
+	public String toString() {
+		return "Map<" + keyTypeInfo + ", " + valueTypeInfo + ">";
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof MapTypeInfo) {
+			MapTypeInfo<?, ?> other = (MapTypeInfo<?, ?>) obj;
+
+			return other.canEqual(this) &&
+				keyTypeInfo.equals(other.keyTypeInfo) &&
+				valueTypeInfo.equals(other.valueTypeInfo);
+		} else {
+			return false;
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * keyTypeInfo.hashCode() + valueTypeInfo.hashCode();
+	}
+
+	@Override
+	public boolean canEqual(Object obj) {
+		return obj instanceof MapTypeInfo;
+	}
+}
@@ -160,6 +160,12 @@ public final class ConfigConstants {
 	 */
 	public static final String TASK_MANAGER_TMP_DIR_KEY = "taskmanager.tmp.dirs";
 
+	/**
+	 * The config parameter defining the number of I/O reader and writer threads for each directory
+	 * for temporary files. Directories on fast devices (such as SSDs) benefit from multiple threads.
+	 */
+	public static final String TASK_MANAGER_IO_THREADS_PER_DIR_KEY = "taskmanager.tmp.io-threads-per-dir";
+
 	/**
 	 * The config parameter defining the taskmanager log file location
 	 */
@@ -250,6 +256,11 @@ public final class ConfigConstants {
 	 * Parameter to switch hash join bloom filters for spilled partitions on and off.
 	 */
 	public static final String RUNTIME_HASH_JOIN_BLOOM_FILTERS_KEY = "taskmanager.runtime.hashjoin-bloom-filters";
+
+	/**
+	 * Parameter to switch the compression of spilled data (sorted runs, hash table partitions) on and off.
+	 */
+	public static final String RUNTIME_COMPRESS_SPILLED_DATA_KEY = "taskmanager.runtime.compress-spilled-data";
 	
 	/**
 	 * The config parameter defining the timeout for filesystem stream opening.
@@ -558,6 +569,18 @@ public final class ConfigConstants {
 	 * State backend for checkpoints;
 	 */
 	public static final String STATE_BACKEND = "state.backend";
+
+	/**
+	 * Directory to which the JobManager writes the serialized state handles of acknowledged
+	 * checkpoints that exceed the inline threshold. If not set, all handles are kept in memory.
+	 */
+	public static final String CHECKPOINT_METADATA_DIRECTORY = "state.checkpoints.metadata.dir";
+
+	/**
+	 * The maximum size (in bytes) of a serialized state handle that the JobManager keeps inline
+	 * in the checkpoint metadata.
+	 */
+	public static final String CHECKPOINT_METADATA_INLINE_THRESHOLD = "state.checkpoints.metadata.inline-threshold";
 	
 	// ----------------------------- Miscellaneous ----------------------------
 	
@@ -683,6 +706,11 @@ public final class ConfigConstants {
 	 * The default directory for temporary files of the task manager.
 	 */
 	public static final String DEFAULT_TASK_MANAGER_TMP_PATH = System.getProperty("java.io.tmpdir");
+
+	/**
+	 * The default number of I/O reader and writer threads for each directory for temporary files.
+	 */
+	public static final int DEFAULT_TASK_MANAGER_IO_THREADS_PER_DIR = 1;
 	
 	/**
 	 * The default fraction of the free memory allocated by the task manager's memory manager.
@@ -736,6 +764,11 @@ public final class ConfigConstants {
 	 * Default setting for the switch for hash join bloom filters for spilled partitions.
 	 */
 	public static final boolean DEFAULT_RUNTIME_HASH_JOIN_BLOOM_FILTERS = false;
+
+	/**
+	 * Default setting for the switch for the compression of spilled data.
+	 */
+	public static final boolean DEFAULT_RUNTIME_COMPRESS_SPILLED_DATA = false;
 	
 	/**
 	 * The default value for the maximum spilling fan in/out.
@@ -866,6 +899,8 @@ public final class ConfigConstants {
 	
 	public static String DEFAULT_STATE_BACKEND = "jobmanager";
 
+	public static final int DEFAULT_CHECKPOINT_METADATA_INLINE_THRESHOLD = 1024;
+
 	// ----------------------------- LocalExecution ----------------------------
 
 	/**
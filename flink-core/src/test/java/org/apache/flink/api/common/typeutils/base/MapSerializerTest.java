@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.common.typeutils.base;
+
+import org.apache.flink.api.common.typeutils.SerializerTestBase;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A test for the {@link MapSerializer}.
+ */
+public class MapSerializerTest extends SerializerTestBase<Map<Long, String>> {
+
+	@Override
+	protected TypeSerializer<Map<Long, String>> createSerializer() {
+		return new MapSerializer<>(LongSerializer.INSTANCE, StringSerializer.INSTANCE);
+	}
+
+	@Override
+	protected int getLength() {
+		return -1;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected Class<Map<Long, String>> getTypeClass() {
+		return (Class<Map<Long, String>>) (Class<?>) HashMap.class;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected Map<Long, String>[] getTestData() {
+		Map<Long, String> empty = new HashMap<>();
+
+		Map<Long, String> single = new HashMap<>();
+		single.put(1L, "one");
+
+		Map<Long, String> withNull = new HashMap<>();
+		withNull.put(-7L, null);
+		withNull.put(42L, "");
+		withNull.put(Long.MAX_VALUE, "jbmbmner8 jhk hj \n \t üäßß@µ");
+
+		return new Map[] {empty, single, withNull};
+	}
+}
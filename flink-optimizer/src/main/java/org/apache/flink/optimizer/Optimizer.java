@@ -43,6 +43,7 @@ import org.apache.flink.optimizer.plan.SinkPlanNode;
 import org.apache.flink.optimizer.postpass.OptimizerPostPass;
 import org.apache.flink.configuration.ConfigConstants;
 import org.apache.flink.optimizer.traversals.RangePartitionRewriter;
+import org.apache.flink.optimizer.traversals.SkewedJoinRewriter;
 import org.apache.flink.util.InstantiationUtil;
 
 import org.slf4j.Logger;
@@ -266,6 +267,31 @@ public class Optimizer {
 	 * @see #HINT_LOCAL_STRATEGY
 	 */
 	public static final String HINT_LOCAL_STRATEGY_NESTEDLOOP_BLOCKED_OUTER_SECOND = "LOCAL_STRATEGY_NESTEDLOOP_BLOCKED_OUTER_SECOND";
+
+	/**
+	 * Compiler hint key for a join whose inputs have skewed key distributions. This String is a key to the
+	 * operator's stub parameters. The corresponding value tells the compiler which input contains the heavy
+	 * hitter keys. If the join is executed by repartitioning both inputs, the compiler samples the skewed
+	 * input, splits the records of heavy hitter keys across several partitions, and replicates the matching
+	 * records of the other input to these partitions.
+	 * <p>
+	 * This hint is only applicable to inner joins outside of iterations.
+	 */
+	public static final String HINT_SKEWED_INPUT = "SKEWED_INPUT";
+
+	/**
+	 * Value for the skewed input compiler hint that marks the <b>first</b> input as skewed.
+	 * 
+	 * @see #HINT_SKEWED_INPUT
+	 */
+	public static final String HINT_SKEWED_INPUT_FIRST = "SKEWED_INPUT_FIRST";
+
+	/**
+	 * Value for the skewed input compiler hint that marks the <b>second</b> input as skewed.
+	 * 
+	 * @see #HINT_SKEWED_INPUT
+	 */
+	public static final String HINT_SKEWED_INPUT_SECOND = "SKEWED_INPUT_SECOND";
 	
 	/**
 	 * The log handle that is used by the compiler to log messages.
@@ -517,6 +543,8 @@ public class Optimizer {
 
 		plan.accept(new RangePartitionRewriter(plan));
 
+		plan.accept(new SkewedJoinRewriter(plan));
+
 		// post pass the plan. this is the phase where the serialization and comparator code is set
 		postPasser.postPass(plan);
 		
@@ -0,0 +1,331 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.optimizer.traversals;
+
+import org.apache.flink.api.common.InvalidProgramException;
+import org.apache.flink.api.common.operators.Operator;
+import org.apache.flink.api.common.operators.UnaryOperatorInformation;
+import org.apache.flink.api.common.operators.base.GroupReduceOperatorBase;
+import org.apache.flink.api.common.operators.base.InnerJoinOperatorBase;
+import org.apache.flink.api.common.operators.base.MapOperatorBase;
+import org.apache.flink.api.common.operators.base.MapPartitionOperatorBase;
+import org.apache.flink.api.common.operators.base.PartitionOperatorBase;
+import org.apache.flink.api.common.operators.util.FieldList;
+import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.TypeComparatorFactory;
+import org.apache.flink.api.java.functions.IdPartitioner;
+import org.apache.flink.api.java.functions.SampleInCoordinator;
+import org.apache.flink.api.java.functions.SampleInPartition;
+import org.apache.flink.api.java.sampling.IntermediateSampleData;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.typeutils.TupleTypeInfo;
+import org.apache.flink.api.java.typeutils.TypeExtractor;
+import org.apache.flink.optimizer.CompilerException;
+import org.apache.flink.optimizer.Optimizer;
+import org.apache.flink.optimizer.costs.Costs;
+import org.apache.flink.optimizer.dag.GroupReduceNode;
+import org.apache.flink.optimizer.dag.MapNode;
+import org.apache.flink.optimizer.dag.MapPartitionNode;
+import org.apache.flink.optimizer.dag.TempMode;
+import org.apache.flink.optimizer.dataproperties.GlobalProperties;
+import org.apache.flink.optimizer.dataproperties.LocalProperties;
+import org.apache.flink.optimizer.plan.Channel;
+import org.apache.flink.optimizer.plan.DualInputPlanNode;
+import org.apache.flink.optimizer.plan.IterationPlanNode;
+import org.apache.flink.optimizer.plan.NamedChannel;
+import org.apache.flink.optimizer.plan.OptimizedPlan;
+import org.apache.flink.optimizer.plan.PlanNode;
+import org.apache.flink.optimizer.plan.SingleInputPlanNode;
+import org.apache.flink.optimizer.util.Utils;
+import org.apache.flink.runtime.io.network.DataExchangeMode;
+import org.apache.flink.runtime.operators.DriverStrategy;
+import org.apache.flink.runtime.operators.shipping.ShipStrategyType;
+import org.apache.flink.runtime.operators.udf.AssignSkewedPartitionIndex;
+import org.apache.flink.runtime.operators.udf.HeavyHitterBuilder;
+import org.apache.flink.runtime.operators.udf.RemoveRangeIndex;
+import org.apache.flink.util.Visitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rewrites repartitioning inner joins that carry the {@link Optimizer#HINT_SKEWED_INPUT} hint.
+ * The skewed input is sampled (in the same way as for range partitioning) to detect heavy hitter keys.
+ * Records of heavy hitter keys are then split across several partitions, while the records of the
+ * other input with the same keys are replicated to all of these partitions. All other records are
+ * hash partitioned as before.
+ *
+ * <p>Because the records of a key end up in several partitions, the output of the rewritten join is
+ * no longer hash partitioned. Joins whose output is forwarded to successors that rely on its
+ * partitioning (for example a grouping on the join key) are therefore not rewritten.
+ */
+public class SkewedJoinRewriter implements Visitor<PlanNode> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SkewedJoinRewriter.class);
+
+	final static long SEED = 0;
+	final static String SIP_NAME = "SkewedJoin: LocalSample";
+	final static String SIC_NAME = "SkewedJoin: GlobalSample";
+	final static String HH_NAME = "SkewedJoin: HeavyHitters";
+	final static String ASI_NAME = "SkewedJoin: PreparePartition";
+	final static String PR_NAME = "SkewedJoin: Partition";
+
+	final static int SAMPLES_PER_PARTITION = 1000;
+
+	final static IdPartitioner idPartitioner = new IdPartitioner();
+
+	final OptimizedPlan plan;
+	final Set<IterationPlanNode> visitedIterationNodes;
+
+	public SkewedJoinRewriter(OptimizedPlan plan) {
+		this.plan = plan;
+		this.visitedIterationNodes = new HashSet<>();
+	}
+
+	@Override
+	public boolean preVisit(PlanNode visitable) {
+		return true;
+	}
+
+	@Override
+	public void postVisit(PlanNode node) {
+
+		if(node instanceof IterationPlanNode) {
+			IterationPlanNode iNode = (IterationPlanNode)node;
+			if(!visitedIterationNodes.contains(iNode)) {
+				visitedIterationNodes.add(iNode);
+				iNode.acceptForStepFunction(this);
+			}
+		}
+
+		if (!(node instanceof DualInputPlanNode)) {
+			return;
+		}
+
+		final Operator<?> operator = node.getProgramOperator();
+		if (!(operator instanceof InnerJoinOperatorBase)) {
+			return;
+		}
+
+		final String skewedInput = operator.getParameters().getString(Optimizer.HINT_SKEWED_INPUT, null);
+		if (skewedInput == null) {
+			return;
+		}
+
+		final DualInputPlanNode joinNode = (DualInputPlanNode) node;
+		final Channel skewedChannel;
+		final Channel otherChannel;
+
+		if (Optimizer.HINT_SKEWED_INPUT_FIRST.equals(skewedInput)) {
+			skewedChannel = joinNode.getInput1();
+			otherChannel = joinNode.getInput2();
+		}
+		else if (Optimizer.HINT_SKEWED_INPUT_SECOND.equals(skewedInput)) {
+			skewedChannel = joinNode.getInput2();
+			otherChannel = joinNode.getInput1();
+		}
+		else {
+			throw new CompilerException("Invalid skewed input hint for join: " + skewedInput);
+		}
+
+		// the hint only applies if the optimizer decided to repartition both inputs.
+		// broadcast joins or joins on already partitioned data are not affected by skew in the same way.
+		if (skewedChannel.getShipStrategy() != ShipStrategyType.PARTITION_HASH ||
+			otherChannel.getShipStrategy() != ShipStrategyType.PARTITION_HASH) {
+			return;
+		}
+
+		if (node.isOnDynamicPath()) {
+			throw new InvalidProgramException("Skewed joins are not supported within iterations.");
+		}
+
+		if (hasPartitioningDependentSuccessor(joinNode)) {
+			LOG.info("Ignoring the skewed input hint of join '" + joinNode.getNodeName() +
+				"', because its successors rely on the hash partitioning of its output.");
+			return;
+		}
+
+		rewriteSkewedJoinChannels(skewedChannel, otherChannel);
+	}
+
+	/**
+	 * Checks whether the output of the given node is forwarded, without repartitioning, to a node
+	 * that groups, joins, or partitions on keys, or to an iteration. Such nodes rely on the hash
+	 * partitioning of the output, which the skewed partitioning does not preserve.
+	 */
+	private static boolean hasPartitioningDependentSuccessor(PlanNode node) {
+		for (Channel channel : node.getOutgoingChannels()) {
+			if (channel.getShipStrategy() != ShipStrategyType.FORWARD) {
+				continue;
+			}
+
+			PlanNode target = channel.getTarget();
+			if (target instanceof IterationPlanNode ||
+				target.getProgramOperator() instanceof PartitionOperatorBase ||
+				isKeyedStrategy(target.getDriverStrategy()) ||
+				hasPartitioningDependentSuccessor(target)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isKeyedStrategy(DriverStrategy strategy) {
+		switch (strategy) {
+			// combiners only pre-aggregate the records within a partition
+			case SORTED_GROUP_COMBINE:
+			case SORTED_PARTIAL_REDUCE:
+				return false;
+			case CO_GROUP_RAW:
+				return true;
+			default:
+				return strategy.getNumRequiredComparators() > 0;
+		}
+	}
+
+	private void rewriteSkewedJoinChannels(Channel skewedChannel, Channel otherChannel) {
+		final PlanNode skewedSourceNode = skewedChannel.getSource();
+		final int sourceParallelism = skewedSourceNode.getParallelism();
+		final int targetParallelism = skewedChannel.getTarget().getParallelism();
+		final Costs defaultZeroCosts = new Costs(0, 0, 0);
+		final TypeComparatorFactory<?> comparator = Utils.getShipComparator(skewedChannel, this.plan.getOriginalPlan().getExecutionConfig());
+
+		// 1. Fixed size sample in each partition of the skewed input.
+		final int sampleSize = SAMPLES_PER_PARTITION * targetParallelism;
+		final SampleInPartition sampleInPartition = new SampleInPartition(false, sampleSize, SEED);
+		final TypeInformation<?> sourceOutputType = skewedSourceNode.getOptimizerNode().getOperator().getOperatorInfo().getOutputType();
+		final TypeInformation<IntermediateSampleData> isdTypeInformation = TypeExtractor.getForClass(IntermediateSampleData.class);
+		final UnaryOperatorInformation sipOperatorInformation = new UnaryOperatorInformation(sourceOutputType, isdTypeInformation);
+		final MapPartitionOperatorBase sipOperatorBase = new MapPartitionOperatorBase(sampleInPartition, sipOperatorInformation, SIP_NAME);
+		final MapPartitionNode sipNode = new MapPartitionNode(sipOperatorBase);
+		final Channel sipChannel = new Channel(skewedSourceNode, TempMode.NONE);
+		sipChannel.setShipStrategy(ShipStrategyType.FORWARD, DataExchangeMode.PIPELINED);
+		final SingleInputPlanNode sipPlanNode = new SingleInputPlanNode(sipNode, SIP_NAME, sipChannel, DriverStrategy.MAP_PARTITION);
+		sipNode.setParallelism(sourceParallelism);
+		sipPlanNode.setParallelism(sourceParallelism);
+		sipPlanNode.initProperties(new GlobalProperties(), new LocalProperties());
+		sipPlanNode.setCosts(defaultZeroCosts);
+		sipChannel.setTarget(sipPlanNode);
+		this.plan.getAllNodes().add(sipPlanNode);
+		skewedSourceNode.addOutgoingChannel(sipChannel);
+
+		// 2. Fixed size sample in a single coordinator.
+		final SampleInCoordinator sampleInCoordinator = new SampleInCoordinator(false, sampleSize, SEED);
+		final UnaryOperatorInformation sicOperatorInformation = new UnaryOperatorInformation(isdTypeInformation, sourceOutputType);
+		final GroupReduceOperatorBase sicOperatorBase = new GroupReduceOperatorBase(sampleInCoordinator, sicOperatorInformation, SIC_NAME);
+		final GroupReduceNode sicNode = new GroupReduceNode(sicOperatorBase);
+		final Channel sicChannel = new Channel(sipPlanNode, TempMode.NONE);
+		sicChannel.setShipStrategy(ShipStrategyType.FORWARD, DataExchangeMode.PIPELINED);
+		final SingleInputPlanNode sicPlanNode = new SingleInputPlanNode(sicNode, SIC_NAME, sicChannel, DriverStrategy.ALL_GROUP_REDUCE);
+		sicNode.setParallelism(1);
+		sicPlanNode.setParallelism(1);
+		sicPlanNode.initProperties(new GlobalProperties(), new LocalProperties());
+		sicPlanNode.setCosts(defaultZeroCosts);
+		sicChannel.setTarget(sicPlanNode);
+		sipPlanNode.addOutgoingChannel(sicChannel);
+		this.plan.getAllNodes().add(sicPlanNode);
+
+		// 3. Use sampled data to detect the heavy hitter keys and their number of splits.
+		final HeavyHitterBuilder heavyHitterBuilder = new HeavyHitterBuilder(comparator, targetParallelism);
+		final TypeInformation<Tuple2> hhTypeInformation = new TupleTypeInfo<>(BasicTypeInfo.INT_TYPE_INFO, BasicTypeInfo.INT_TYPE_INFO);
+		final UnaryOperatorInformation hhOperatorInformation = new UnaryOperatorInformation(sourceOutputType, hhTypeInformation);
+		final MapPartitionOperatorBase hhOperatorBase = new MapPartitionOperatorBase(heavyHitterBuilder, hhOperatorInformation, HH_NAME);
+		final MapPartitionNode hhNode = new MapPartitionNode(hhOperatorBase);
+		final Channel hhChannel = new Channel(sicPlanNode, TempMode.NONE);
+		hhChannel.setShipStrategy(ShipStrategyType.FORWARD, DataExchangeMode.PIPELINED);
+		final SingleInputPlanNode hhPlanNode = new SingleInputPlanNode(hhNode, HH_NAME, hhChannel, DriverStrategy.MAP_PARTITION);
+		hhNode.setParallelism(1);
+		hhPlanNode.setParallelism(1);
+		hhPlanNode.initProperties(new GlobalProperties(), new LocalProperties());
+		hhPlanNode.setCosts(defaultZeroCosts);
+		hhChannel.setTarget(hhPlanNode);
+		sicPlanNode.addOutgoingChannel(hhChannel);
+		this.plan.getAllNodes().add(hhPlanNode);
+
+		// 4. Split the heavy hitters of the skewed input, replicate the matching records of the other input.
+		// To avoid deadlock, the skewed input is consumed in batch mode, because it also feeds the sampler.
+		// The same holds for the other input, if both inputs originate from the same node (self join).
+		final DataExchangeMode otherExchangeMode = otherChannel.getSource() == skewedSourceNode ?
+			DataExchangeMode.BATCH : DataExchangeMode.PIPELINED;
+
+		rewritePartitionChannel(skewedChannel, hhPlanNode, false, DataExchangeMode.BATCH);
+		rewritePartitionChannel(otherChannel, hhPlanNode, true, otherExchangeMode);
+	}
+
+	private void rewritePartitionChannel(Channel channel, PlanNode heavyHitterNode, boolean replicate, DataExchangeMode exchangeMode) {
+		final PlanNode sourceNode = channel.getSource();
+		final int sourceParallelism = sourceNode.getParallelism();
+		final int targetParallelism = channel.getTarget().getParallelism();
+		final Costs defaultZeroCosts = new Costs(0, 0, 0);
+		final TypeComparatorFactory<?> comparator = Utils.getShipComparator(channel, this.plan.getOriginalPlan().getExecutionConfig());
+		final TypeInformation<?> sourceOutputType = sourceNode.getOptimizerNode().getOperator().getOperatorInfo().getOutputType();
+
+		// 1. Take heavy hitters as broadcast input and take the tuple of partition id and record as output.
+		final AssignSkewedPartitionIndex assignIndex = new AssignSkewedPartitionIndex(comparator, targetParallelism, replicate);
+		final TypeInformation<Tuple2> asiOutputTypeInformation = new TupleTypeInfo<>(BasicTypeInfo.INT_TYPE_INFO, sourceOutputType);
+		final UnaryOperatorInformation asiOperatorInformation = new UnaryOperatorInformation(sourceOutputType, asiOutputTypeInformation);
+		final MapPartitionOperatorBase asiOperatorBase = new MapPartitionOperatorBase(assignIndex, asiOperatorInformation, ASI_NAME);
+		final MapPartitionNode asiNode = new MapPartitionNode(asiOperatorBase);
+		final Channel asiChannel = new Channel(sourceNode, TempMode.NONE);
+		asiChannel.setShipStrategy(ShipStrategyType.FORWARD, exchangeMode);
+		final SingleInputPlanNode asiPlanNode = new SingleInputPlanNode(asiNode, ASI_NAME, asiChannel, DriverStrategy.MAP_PARTITION);
+		asiNode.setParallelism(sourceParallelism);
+		asiPlanNode.setParallelism(sourceParallelism);
+		asiPlanNode.initProperties(new GlobalProperties(), new LocalProperties());
+		asiPlanNode.setCosts(defaultZeroCosts);
+		asiChannel.setTarget(asiPlanNode);
+		this.plan.getAllNodes().add(asiPlanNode);
+
+		final NamedChannel broadcastChannel = new NamedChannel(AssignSkewedPartitionIndex.HEAVY_HITTERS_NAME, heavyHitterNode);
+		broadcastChannel.setShipStrategy(ShipStrategyType.BROADCAST, DataExchangeMode.PIPELINED);
+		broadcastChannel.setTarget(asiPlanNode);
+		List<NamedChannel> broadcastChannels = new ArrayList<>(1);
+		broadcastChannels.add(broadcastChannel);
+		asiPlanNode.setBroadcastInputs(broadcastChannels);
+
+		// 2. Partition by the assigned partition id and remove it.
+		final Channel partChannel = new Channel(asiPlanNode, TempMode.NONE);
+		final FieldList keys = new FieldList(0);
+		partChannel.setShipStrategy(ShipStrategyType.PARTITION_CUSTOM, keys, idPartitioner, DataExchangeMode.PIPELINED);
+		asiPlanNode.addOutgoingChannel(partChannel);
+
+		final RemoveRangeIndex partitionIDRemoveWrapper = new RemoveRangeIndex();
+		final UnaryOperatorInformation prOperatorInformation = new UnaryOperatorInformation(asiOutputTypeInformation, sourceOutputType);
+		final MapOperatorBase prOperatorBase = new MapOperatorBase(partitionIDRemoveWrapper, prOperatorInformation, PR_NAME);
+		final MapNode prRemoverNode = new MapNode(prOperatorBase);
+		final SingleInputPlanNode prPlanNode = new SingleInputPlanNode(prRemoverNode, PR_NAME, partChannel, DriverStrategy.MAP);
+		partChannel.setTarget(prPlanNode);
+		prRemoverNode.setParallelism(targetParallelism);
+		prPlanNode.setParallelism(targetParallelism);
+		prPlanNode.initProperties(new GlobalProperties(), new LocalProperties());
+		prPlanNode.setCosts(defaultZeroCosts);
+		this.plan.getAllNodes().add(prPlanNode);
+
+		// 3. Connect to the join node.
+		sourceNode.getOutgoingChannels().remove(channel);
+		sourceNode.addOutgoingChannel(asiChannel);
+		channel.setSource(prPlanNode);
+		channel.setShipStrategy(ShipStrategyType.FORWARD, DataExchangeMode.PIPELINED);
+		prPlanNode.addOutgoingChannel(channel);
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.optimizer;
+
+import static org.junit.Assert.*;
+
+import org.apache.flink.api.common.Plan;
+import org.apache.flink.api.common.functions.JoinFunction;
+import org.apache.flink.api.common.functions.MapFunction;
+import org.apache.flink.api.common.operators.base.JoinOperatorBase.JoinHint;
+import org.apache.flink.api.java.DataSet;
+import org.apache.flink.api.java.ExecutionEnvironment;
+import org.apache.flink.api.java.io.DiscardingOutputFormat;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.optimizer.plan.Channel;
+import org.apache.flink.optimizer.plan.DualInputPlanNode;
+import org.apache.flink.optimizer.plan.OptimizedPlan;
+import org.apache.flink.optimizer.plan.SingleInputPlanNode;
+import org.apache.flink.optimizer.plan.SinkPlanNode;
+import org.apache.flink.optimizer.plantranslate.JobGraphGenerator;
+import org.apache.flink.optimizer.util.CompilerTestBase;
+import org.apache.flink.runtime.io.network.DataExchangeMode;
+import org.apache.flink.runtime.operators.shipping.ShipStrategyType;
+import org.apache.flink.runtime.operators.udf.AssignSkewedPartitionIndex;
+import org.apache.flink.runtime.operators.udf.HeavyHitterBuilder;
+import org.junit.Test;
+
+@SuppressWarnings("serial")
+public class SkewedJoinCompilerTest extends CompilerTestBase {
+
+	@Test
+	public void testSkewedFirstInput() {
+		try {
+			OptimizedPlan op = compileJoin(JoinHint.REPARTITION_HASH_FIRST, Optimizer.HINT_SKEWED_INPUT_FIRST);
+
+			SinkPlanNode sink = op.getDataSinks().iterator().next();
+			DualInputPlanNode join = (DualInputPlanNode) sink.getInput().getSource();
+
+			checkSkewedInput(join.getInput1(), false);
+			checkSkewedInput(join.getInput2(), true);
+
+			SingleInputPlanNode indexAssigner = (SingleInputPlanNode) join.getInput1().getSource().getInputs().iterator().next().getSource();
+			assertEquals(DataExchangeMode.BATCH, indexAssigner.getInput().getDataExchangeMode());
+
+			SingleInputPlanNode heavyHitters = (SingleInputPlanNode) indexAssigner.getBroadcastInputs().get(0).getSource();
+			assertTrue(heavyHitters.getProgramOperator().getUserCodeWrapper().getUserCodeObject() instanceof HeavyHitterBuilder);
+			assertEquals(1, heavyHitters.getParallelism());
+
+			// make sure the rewritten plan can be translated
+			new JobGraphGenerator().compileJobGraph(op);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testSkewedSecondInput() {
+		try {
+			OptimizedPlan op = compileJoin(JoinHint.REPARTITION_SORT_MERGE, Optimizer.HINT_SKEWED_INPUT_SECOND);
+
+			SinkPlanNode sink = op.getDataSinks().iterator().next();
+			DualInputPlanNode join = (DualInputPlanNode) sink.getInput().getSource();
+
+			checkSkewedInput(join.getInput1(), true);
+			checkSkewedInput(join.getInput2(), false);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testBroadcastJoinNotRewritten() {
+		try {
+			OptimizedPlan op = compileJoin(JoinHint.BROADCAST_HASH_FIRST, Optimizer.HINT_SKEWED_INPUT_SECOND);
+
+			SinkPlanNode sink = op.getDataSinks().iterator().next();
+			DualInputPlanNode join = (DualInputPlanNode) sink.getInput().getSource();
+
+			assertEquals(ShipStrategyType.BROADCAST, join.getInput1().getShipStrategy());
+			assertEquals(ShipStrategyType.FORWARD, join.getInput2().getShipStrategy());
+			assertTrue(join.getInput2().getSource().getBroadcastInputs().isEmpty());
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testNotRewrittenIfGroupedOnJoinKey() {
+		try {
+			OptimizedPlan op = compileJoinAndGroup(0);
+
+			SinkPlanNode sink = op.getDataSinks().iterator().next();
+			SingleInputPlanNode reducer = (SingleInputPlanNode) sink.getInput().getSource();
+			DualInputPlanNode join = (DualInputPlanNode) reducer.getInput().getSource();
+
+			// the grouping relies on the hash partitioning of the join output
+			assertEquals(ShipStrategyType.FORWARD, reducer.getInput().getShipStrategy());
+			assertEquals(ShipStrategyType.PARTITION_HASH, join.getInput1().getShipStrategy());
+			assertEquals(ShipStrategyType.PARTITION_HASH, join.getInput2().getShipStrategy());
+			assertTrue(join.getInput1().getSource().getBroadcastInputs().isEmpty());
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testRewrittenIfGroupedOnOtherField() {
+		try {
+			OptimizedPlan op = compileJoinAndGroup(1);
+
+			SinkPlanNode sink = op.getDataSinks().iterator().next();
+			SingleInputPlanNode reducer = (SingleInputPlanNode) sink.getInput().getSource();
+			SingleInputPlanNode combiner = (SingleInputPlanNode) reducer.getInput().getSource();
+			DualInputPlanNode join = (DualInputPlanNode) combiner.getInput().getSource();
+
+			// the grouping repartitions the join output anyway
+			assertEquals(ShipStrategyType.PARTITION_HASH, reducer.getInput().getShipStrategy());
+			checkSkewedInput(join.getInput1(), false);
+			checkSkewedInput(join.getInput2(), true);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	private OptimizedPlan compileJoinAndGroup(int groupField) {
+		ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
+		env.setParallelism(DEFAULT_PARALLELISM);
+
+		DataSet<Tuple2<Long, Long>> input1 = env.generateSequence(1, 10).map(new DuplicateMapper());
+		DataSet<Tuple2<Long, Long>> input2 = env.generateSequence(1, 10).map(new DuplicateMapper());
+
+		Configuration parameters = new Configuration();
+		parameters.setString(Optimizer.HINT_SKEWED_INPUT, Optimizer.HINT_SKEWED_INPUT_FIRST);
+
+		input1.join(input2, JoinHint.REPARTITION_HASH_FIRST).where(0).equalTo(0)
+			.with(new FirstJoin())
+			.withForwardedFieldsFirst("*")
+			.withParameters(parameters)
+			.groupBy(groupField).sum(1)
+			.output(new DiscardingOutputFormat<Tuple2<Long, Long>>());
+
+		Plan p = env.createProgramPlan();
+		return compileNoStats(p);
+	}
+
+	private OptimizedPlan compileJoin(JoinHint joinHint, String skewedInput) {
+		ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
+		env.setParallelism(DEFAULT_PARALLELISM);
+
+		DataSet<Tuple2<Long, Long>> input1 = env.generateSequence(1, 10).map(new DuplicateMapper());
+		DataSet<Tuple2<Long, Long>> input2 = env.generateSequence(1, 10).map(new DuplicateMapper());
+
+		Configuration parameters = new Configuration();
+		parameters.setString(Optimizer.HINT_SKEWED_INPUT, skewedInput);
+
+		input1.join(input2, joinHint).where(0).equalTo(0)
+			.withParameters(parameters)
+			.output(new DiscardingOutputFormat<Tuple2<Tuple2<Long, Long>, Tuple2<Long, Long>>>());
+
+		Plan p = env.createProgramPlan();
+		return compileNoStats(p);
+	}
+
+	private static void checkSkewedInput(Channel joinInput, boolean replicate) {
+		assertEquals(ShipStrategyType.FORWARD, joinInput.getShipStrategy());
+
+		SingleInputPlanNode indexRemover = (SingleInputPlanNode) joinInput.getSource();
+		assertEquals(ShipStrategyType.PARTITION_CUSTOM, indexRemover.getInput().getShipStrategy());
+		assertEquals(DEFAULT_PARALLELISM, indexRemover.getParallelism());
+
+		SingleInputPlanNode indexAssigner = (SingleInputPlanNode) indexRemover.getInput().getSource();
+		Object assigner = indexAssigner.getProgramOperator().getUserCodeWrapper().getUserCodeObject();
+		assertTrue(assigner instanceof AssignSkewedPartitionIndex);
+		// the skewed side splits the heavy hitters, the other side replicates the matching records
+		assertEquals(replicate, ((AssignSkewedPartitionIndex<?>) assigner).isReplicating());
+		assertEquals(1, indexAssigner.getBroadcastInputs().size());
+		assertEquals(ShipStrategyType.BROADCAST, indexAssigner.getBroadcastInputs().get(0).getShipStrategy());
+		assertEquals(AssignSkewedPartitionIndex.HEAVY_HITTERS_NAME, indexAssigner.getBroadcastInputs().get(0).getName());
+	}
+
+	public static final class FirstJoin implements JoinFunction<Tuple2<Long, Long>, Tuple2<Long, Long>, Tuple2<Long, Long>> {
+
+		@Override
+		public Tuple2<Long, Long> join(Tuple2<Long, Long> first, Tuple2<Long, Long> second) {
+			return first;
+		}
+	}
+
+	public static final class DuplicateMapper implements MapFunction<Long, Tuple2<Long, Long>> {
+
+		@Override
+		public Tuple2<Long, Long> map(Long value) {
+			return new Tuple2<>(value, value);
+		}
+	}
+}
@@ -151,6 +151,10 @@ public class CheckpointCoordinator {
 	/** Helper for tracking checkpoint statistics  */
 	private final CheckpointStatsTracker statsTracker;
 
+	/** Store for large state handles of acknowledged checkpoints, or null, if all state
+	 * handles are kept in memory */
+	private final CheckpointMetadataStore metadataStore;
+
 	protected final int numberKeyGroups;
 
 	// --------------------------------------------------------------------------------------------
@@ -190,6 +194,29 @@ public class CheckpointCoordinator {
 			RecoveryMode recoveryMode,
 			CheckpointStatsTracker statsTracker) throws Exception {
 
+		this(job, baseInterval, checkpointTimeout, minPauseBetweenCheckpoints, maxConcurrentCheckpointAttempts,
+				numberKeyGroups, tasksToTrigger, tasksToWaitFor, tasksToCommitTo,
+				userClassLoader, checkpointIDCounter, completedCheckpointStore, recoveryMode,
+				statsTracker, null);
+	}
+
+	public CheckpointCoordinator(
+			JobID job,
+			long baseInterval,
+			long checkpointTimeout,
+			long minPauseBetweenCheckpoints,
+			int maxConcurrentCheckpointAttempts,
+			int numberKeyGroups,
+			ExecutionVertex[] tasksToTrigger,
+			ExecutionVertex[] tasksToWaitFor,
+			ExecutionVertex[] tasksToCommitTo,
+			ClassLoader userClassLoader,
+			CheckpointIDCounter checkpointIDCounter,
+			CompletedCheckpointStore completedCheckpointStore,
+			RecoveryMode recoveryMode,
+			CheckpointStatsTracker statsTracker,
+			CheckpointMetadataStore metadataStore) throws Exception {
+
 		// Sanity check
 		checkArgument(baseInterval > 0, "Checkpoint timeout must be larger than zero");
 		checkArgument(checkpointTimeout >= 1, "Checkpoint timeout must be larger than zero");
@@ -216,6 +243,8 @@ public class CheckpointCoordinator {
 
 		this.statsTracker = checkNotNull(statsTracker);
 
+		this.metadataStore = metadataStore;
+
 		if (recoveryMode == RecoveryMode.STANDALONE) {
 			// Add shutdown hook to clean up state handles when no checkpoint recovery is
 			// possible. In case of another configured recovery mode, the checkpoints need to be
@@ -447,7 +476,7 @@ public class CheckpointCoordinator {
 
 		LOG.info("Triggering checkpoint " + checkpointID + " @ " + timestamp);
 
-		final PendingCheckpoint checkpoint = new PendingCheckpoint(job, checkpointID, timestamp, ackTasks);
+		final PendingCheckpoint checkpoint = new PendingCheckpoint(job, checkpointID, timestamp, ackTasks, metadataStore);
 
 		// schedule the timer that will clean up the expired checkpoints
 		TimerTask canceller = new TimerTask() {
@@ -634,10 +663,6 @@ public class CheckpointCoordinator {
 		CompletedCheckpoint completed = null;
 		PendingCheckpoint checkpoint;
 
-		// Flag indicating whether the ack message was for a known pending
-		// checkpoint.
-		boolean isPendingCheckpoint;
-
 		synchronized (lock) {
 			// we need to check inside the lock for being shutdown as well, otherwise we
 			// get races and invalid error log messages
@@ -647,60 +672,76 @@ public class CheckpointCoordinator {
 
 			checkpoint = pendingCheckpoints.get(checkpointId);
 
-			if (checkpoint != null && !checkpoint.isDiscarded()) {
-				isPendingCheckpoint = true;
-
-				if (checkpoint.acknowledgeTask(
-					message.getTaskExecutionId(),
-					message.getState(),
-					message.getStateSize(),
-					null)) { // TODO: Give KV-state to the acknowledgeTask method
-					if (checkpoint.isFullyAcknowledged()) {
-						completed = checkpoint.toCompletedCheckpoint();
-
-						completedCheckpointStore.addCheckpoint(completed);
-
-						LOG.info("Completed checkpoint " + checkpointId + " (in " +
-								completed.getDuration() + " ms)");
-
-						if (LOG.isDebugEnabled()) {
-							StringBuilder builder = new StringBuilder();
-							for (Map.Entry<JobVertexID, TaskState> entry: completed.getTaskStates().entrySet()) {
-								builder.append("JobVertexID: ").append(entry.getKey()).append(" {").append(entry.getValue()).append("}");
-							}
-
-							LOG.debug(builder.toString());
-						}
-
-						pendingCheckpoints.remove(checkpointId);
-						rememberRecentCheckpointId(checkpointId);
-
-						dropSubsumedCheckpoints(completed.getTimestamp());
-
-						onFullyAcknowledgedCheckpoint(completed);
-
-						triggerQueuedRequests();
-					}
+			if (checkpoint == null) {
+				// message is for an unknown checkpoint, or comes too late (checkpoint disposed)
+				if (recentPendingCheckpoints.contains(checkpointId)) {
+					LOG.warn("Received late message for now expired checkpoint attempt " + checkpointId);
+					return true;
 				}
 				else {
-					// checkpoint did not accept message
-					LOG.error("Received duplicate or invalid acknowledge message for checkpoint " + checkpointId
-							+ " , task " + message.getTaskExecutionId());
+					return false;
 				}
 			}
-			else if (checkpoint != null) {
+			else if (checkpoint.isDiscarded()) {
 				// this should not happen
 				throw new IllegalStateException(
 						"Received message for discarded but non-removed checkpoint " + checkpointId);
 			}
+		}
+
+		// the acknowledgement is recorded under the lock of the pending checkpoint only, so
+		// that acknowledgements of different tasks do not contend for the coordinator-wide lock
+		if (!checkpoint.acknowledgeTask(
+				message.getTaskExecutionId(),
+				message.getState(),
+				message.getStateSize(),
+				message.getKeyGroupStates())) {
+
+			if (checkpoint.isDiscarded()) {
+				// the checkpoint expired, was subsumed, or completed in the meantime
+				LOG.warn("Received late message for now expired checkpoint attempt " + checkpointId);
+			}
 			else {
-				// message is for an unknown checkpoint, or comes too late (checkpoint disposed)
-				if (recentPendingCheckpoints.contains(checkpointId)) {
-					isPendingCheckpoint = true;
-					LOG.warn("Received late message for now expired checkpoint attempt " + checkpointId);
+				// checkpoint did not accept message
+				LOG.error("Received duplicate or invalid acknowledge message for checkpoint " + checkpointId
+						+ " , task " + message.getTaskExecutionId());
+			}
+			return true;
+		}
+
+		if (checkpoint.isFullyAcknowledged()) {
+			synchronized (lock) {
+				if (shutdown) {
+					return false;
 				}
-				else {
-					isPendingCheckpoint = false;
+
+				// another acknowledgement may have completed the checkpoint, or the checkpoint
+				// may have been discarded while the lock was not held
+				if (!checkpoint.isDiscarded() && pendingCheckpoints.get(checkpointId) == checkpoint) {
+					completed = checkpoint.toCompletedCheckpoint();
+
+					completedCheckpointStore.addCheckpoint(completed);
+
+					LOG.info("Completed checkpoint " + checkpointId + " (in " +
+							completed.getDuration() + " ms)");
+
+					if (LOG.isDebugEnabled()) {
+						StringBuilder builder = new StringBuilder();
+						for (Map.Entry<JobVertexID, TaskState> entry: completed.getTaskStates().entrySet()) {
+							builder.append("JobVertexID: ").append(entry.getKey()).append(" {").append(entry.getValue()).append("}");
+						}
+
+						LOG.debug(builder.toString());
+					}
+
+					pendingCheckpoints.remove(checkpointId);
+					rememberRecentCheckpointId(checkpointId);
+
+					dropSubsumedCheckpoints(completed.getTimestamp());
+
+					onFullyAcknowledgedCheckpoint(completed);
+
+					triggerQueuedRequests();
 				}
 			}
 		}
@@ -722,7 +763,7 @@ public class CheckpointCoordinator {
 			statsTracker.onCompletedCheckpoint(completed);
 		}
 
-		return isPendingCheckpoint;
+		return true;
 	}
 
 	private void rememberRecentCheckpointId(long id) {
@@ -808,14 +849,26 @@ public class CheckpointCoordinator {
 				ExecutionJobVertex executionJobVertex = tasks.get(taskGroupStateEntry.getKey());
 
 				if (executionJobVertex != null) {
-					// check that we only restore the state if the parallelism has not been changed
-					if (taskState.getParallelism() != executionJobVertex.getParallelism()) {
+					// check that we only restore the state if the parallelism has not been changed,
+					// unless all state of the task is key/value state, which can be redistributed
+					if (taskState.getParallelism() != executionJobVertex.getParallelism() &&
+							taskState.getNumberCollectedStates() > 0) {
 						throw new RuntimeException("Cannot restore the latest checkpoint because " +
 							"the parallelism changed. The operator" + executionJobVertex.getJobVertexId() +
 							" has parallelism " + executionJobVertex.getParallelism() + " whereas the corresponding" +
 							"state object has a parallelism of " + taskState.getParallelism());
 					}
 
+					// check that every key group is assigned to a task
+					for (int keyGroupId : taskState.getKvStateKeyGroups()) {
+						if (keyGroupId >= numberKeyGroups) {
+							throw new RuntimeException("Cannot restore the latest checkpoint because " +
+								"the number of key groups changed. The operator " + executionJobVertex.getJobVertexId() +
+								" has " + numberKeyGroups + " key groups whereas the corresponding state object " +
+								"contains the key group " + keyGroupId);
+						}
+					}
+
 					int counter = 0;
 
 					List<Set<Integer>> keyGroupPartitions = createKeyGroupPartitions(numberKeyGroups, executionJobVertex.getParallelism());
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.checkpoint;
+
+import org.apache.flink.configuration.ConfigConstants;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.state.StateHandle;
+import org.apache.flink.runtime.state.filesystem.FileSerializableStateHandle;
+import org.apache.flink.util.SerializedValue;
+
+import java.io.IOException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Store for the serialized state handles of acknowledged checkpoints. Handles up to the inline
+ * threshold stay in the {@link SubtaskState} and {@link KeyGroupState}, larger ones are written
+ * to a file so that the JobManager only keeps their path on the heap.
+ *
+ * <p>The handles are stored as {@link SerializedValue} and never deserialized by the store, so
+ * the files can be read without the user code class loader.
+ */
+public class CheckpointMetadataStore {
+
+	private final FileSystemStateStore<SerializedValue<StateHandle<?>>> stateStore;
+
+	private final int inlineThreshold;
+
+	public CheckpointMetadataStore(String rootPath, int inlineThreshold) throws IOException {
+		checkArgument(inlineThreshold >= 0, "The inline threshold must not be negative");
+
+		this.stateStore = new FileSystemStateStore<>(rootPath, "checkpoint-metadata-");
+		this.inlineThreshold = inlineThreshold;
+	}
+
+	public int getInlineThreshold() {
+		return inlineThreshold;
+	}
+
+	/**
+	 * Checks whether the given serialized state handle exceeds the inline threshold and should be
+	 * stored in a file.
+	 */
+	public boolean shouldOffload(SerializedValue<StateHandle<?>> state) {
+		return state != null && state.getSizeOfSerializedState() > inlineThreshold;
+	}
+
+	/**
+	 * Writes the serialized state handle to a file and returns the path of the file.
+	 */
+	public String offload(SerializedValue<StateHandle<?>> state) throws Exception {
+		return stateStore.putState(state);
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Creates a {@link CheckpointMetadataStore} from the specified configuration.
+	 *
+	 * @param config The configuration to read the metadata directory and inline threshold from.
+	 * @return The metadata store, or null, if no metadata directory is configured.
+	 */
+	public static CheckpointMetadataStore createFromConfig(Configuration config) throws IOException {
+		String rootPath = config.getString(ConfigConstants.CHECKPOINT_METADATA_DIRECTORY, null);
+
+		if (rootPath == null) {
+			return null;
+		} else {
+			int inlineThreshold = config.getInteger(
+					ConfigConstants.CHECKPOINT_METADATA_INLINE_THRESHOLD,
+					ConfigConstants.DEFAULT_CHECKPOINT_METADATA_INLINE_THRESHOLD);
+
+			return new CheckpointMetadataStore(rootPath, inlineThreshold);
+		}
+	}
+
+	/**
+	 * Reads a serialized state handle that was written by {@link #offload(SerializedValue)}.
+	 */
+	@SuppressWarnings("unchecked")
+	static SerializedValue<StateHandle<?>> loadState(String path) throws IOException {
+		try {
+			return new FileSerializableStateHandle<SerializedValue<StateHandle<?>>>(new Path(path))
+					.getState(CheckpointMetadataStore.class.getClassLoader());
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException("Could not read the checkpoint metadata file " + path, e);
+		}
+	}
+
+	/**
+	 * Deletes the file of a serialized state handle that was written by
+	 * {@link #offload(SerializedValue)}.
+	 */
+	static void disposeState(String path) throws IOException {
+		Path filePath = new Path(path);
+		FileSystem.get(filePath.toUri()).delete(filePath, false);
+	}
+}
@@ -23,21 +23,28 @@ import org.apache.flink.util.SerializedValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * Simple container class which contains the serialized state handle for a key group.
  *
  * The key group state handle is kept in serialized form because it can contain user code classes
- * which might not be available on the JobManager.
+ * which might not be available on the JobManager. Large serialized state handles may be
+ * offloaded to a file by the {@link CheckpointMetadataStore}.
  */
 public class KeyGroupState implements Serializable {
 	private static final long serialVersionUID = -5926696455438467634L;
 
 	private static final Logger LOG = LoggerFactory.getLogger(KeyGroupState.class);
 
+	/** The state handle of the key group, or null, if the state handle was offloaded */
 	private final SerializedValue<StateHandle<?>> keyGroupState;
 
+	/** The path of the file holding the state handle, or null, if the state handle is inline */
+	private final String offloadedStatePath;
+
 	private final long stateSize;
 
 	private final long duration;
@@ -45,13 +52,33 @@ public class KeyGroupState implements Serializable {
 	public KeyGroupState(SerializedValue<StateHandle<?>> keyGroupState, long stateSize, long duration) {
 		this.keyGroupState = keyGroupState;
 
+		this.offloadedStatePath = null;
+
+		this.stateSize = stateSize;
+
+		this.duration = duration;
+	}
+
+	public KeyGroupState(String offloadedStatePath, long stateSize, long duration) {
+		this.keyGroupState = null;
+
+		this.offloadedStatePath = offloadedStatePath;
+
 		this.stateSize = stateSize;
 
 		this.duration = duration;
 	}
 
-	public SerializedValue<StateHandle<?>> getKeyGroupState() {
-		return keyGroupState;
+	public SerializedValue<StateHandle<?>> getKeyGroupState() throws IOException {
+		if (offloadedStatePath == null) {
+			return keyGroupState;
+		} else {
+			return CheckpointMetadataStore.loadState(offloadedStatePath);
+		}
+	}
+
+	public boolean isOffloaded() {
+		return offloadedStatePath != null;
 	}
 
 	public long getDuration() {
@@ -64,7 +91,11 @@ public class KeyGroupState implements Serializable {
 
 	public void discard(ClassLoader classLoader) {
 		try {
-			keyGroupState.deserializeValue(classLoader).discardState();
+			getKeyGroupState().deserializeValue(classLoader).discardState();
+
+			if (offloadedStatePath != null) {
+				CheckpointMetadataStore.disposeState(offloadedStatePath);
+			}
 		} catch (Exception e) {
 			LOG.warn("Failed to discard checkpoint state: " + this, e);
 		}
@@ -75,7 +106,9 @@ public class KeyGroupState implements Serializable {
 		if (obj instanceof KeyGroupState) {
 			KeyGroupState other = (KeyGroupState) obj;
 
-			return keyGroupState.equals(other.keyGroupState) && stateSize == other.stateSize &&
+			return Objects.equals(keyGroupState, other.keyGroupState) &&
+				Objects.equals(offloadedStatePath, other.offloadedStatePath) &&
+				stateSize == other.stateSize &&
 				duration == other.duration;
 		} else {
 			return false;
@@ -86,6 +119,6 @@ public class KeyGroupState implements Serializable {
 	public int hashCode() {
 		return (int) (this.stateSize ^ this.stateSize >>> 32) +
 			31 * ((int) (this.duration ^ this.duration >>> 32) +
-				31 * keyGroupState.hashCode());
+				31 * Objects.hash(keyGroupState, offloadedStatePath));
 	}
 }
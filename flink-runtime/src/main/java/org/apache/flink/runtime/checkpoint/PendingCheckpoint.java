@@ -27,6 +27,8 @@ import org.apache.flink.runtime.executiongraph.ExecutionVertex;
 import org.apache.flink.runtime.jobgraph.JobVertexID;
 import org.apache.flink.runtime.state.StateHandle;
 import org.apache.flink.util.SerializedValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A pending checkpoint is a checkpoint that has been started, but has not been
@@ -35,9 +37,16 @@ import org.apache.flink.util.SerializedValue;
  * 
  * <p>Note that the pending checkpoint, as well as the successful checkpoint keep the
  * state handles always as serialized values, never as actual values.</p>
+ *
+ * <p>Acknowledgements are recorded under a lock that is private to the pending checkpoint, so
+ * that the acknowledgements of different tasks do not need to synchronize with the
+ * {@link CheckpointCoordinator}. If a {@link CheckpointMetadataStore} is given, large state
+ * handles are offloaded to files before the lock is acquired.</p>
  */
 public class PendingCheckpoint {
-		
+
+	private static final Logger LOG = LoggerFactory.getLogger(PendingCheckpoint.class);
+
 	private final Object lock = new Object();
 	
 	private final JobID jobId;
@@ -49,6 +58,9 @@ public class PendingCheckpoint {
 	private final Map<JobVertexID, TaskState> taskStates;
 
 	private final Map<ExecutionAttemptID, ExecutionVertex> notYetAcknowledgedTasks;
+
+	/** Store for large state handles, or null, if all state handles are kept inline */
+	private final CheckpointMetadataStore metadataStore;
 	
 	private int numAcknowledgedTasks;
 	
@@ -58,6 +70,13 @@ public class PendingCheckpoint {
 	
 	public PendingCheckpoint(JobID jobId, long checkpointId, long checkpointTimestamp,
 							Map<ExecutionAttemptID, ExecutionVertex> verticesToConfirm)
+	{
+		this(jobId, checkpointId, checkpointTimestamp, verticesToConfirm, null);
+	}
+
+	public PendingCheckpoint(JobID jobId, long checkpointId, long checkpointTimestamp,
+							Map<ExecutionAttemptID, ExecutionVertex> verticesToConfirm,
+							CheckpointMetadataStore metadataStore)
 	{
 		if (jobId == null || verticesToConfirm == null) {
 			throw new NullPointerException();
@@ -72,6 +91,7 @@ public class PendingCheckpoint {
 		
 		this.notYetAcknowledgedTasks = verticesToConfirm;
 		this.taskStates = new HashMap<>();
+		this.metadataStore = metadataStore;
 	}
 	
 	// --------------------------------------------------------------------------------------------
@@ -90,11 +110,15 @@ public class PendingCheckpoint {
 	}
 
 	public int getNumberOfNonAcknowledgedTasks() {
-		return notYetAcknowledgedTasks.size();
+		synchronized (lock) {
+			return notYetAcknowledgedTasks.size();
+		}
 	}
 	
 	public int getNumberOfAcknowledgedTasks() {
-		return numAcknowledgedTasks;
+		synchronized (lock) {
+			return numAcknowledgedTasks;
+		}
 	}
 
 	public Map<JobVertexID, TaskState> getTaskStates() {
@@ -102,11 +126,15 @@ public class PendingCheckpoint {
 	}
 
 	public boolean isFullyAcknowledged() {
-		return this.notYetAcknowledgedTasks.isEmpty() && !discarded;
+		synchronized (lock) {
+			return this.notYetAcknowledgedTasks.isEmpty() && !discarded;
+		}
 	}
 	
 	public boolean isDiscarded() {
-		return discarded;
+		synchronized (lock) {
+			return discarded;
+		}
 	}
 	
 	public CompletedCheckpoint toCompletedCheckpoint() {
@@ -137,12 +165,25 @@ public class PendingCheckpoint {
 			long stateSize,
 			Map<Integer, SerializedValue<StateHandle<?>>> kvState) {
 
-		synchronized (lock) {
-			if (discarded) {
-				return false;
+		// write large state handles to files before entering the lock, so that the
+		// acknowledgements of the other tasks are not blocked by the file system
+		String offloadedState = offload(state);
+		Map<Integer, String> offloadedKvState = null;
+
+		if (kvState != null && metadataStore != null) {
+			for (Map.Entry<Integer, SerializedValue<StateHandle<?>>> entry : kvState.entrySet()) {
+				String path = offload(entry.getValue());
+				if (path != null) {
+					if (offloadedKvState == null) {
+						offloadedKvState = new HashMap<>();
+					}
+					offloadedKvState.put(entry.getKey(), path);
+				}
 			}
-			
-			ExecutionVertex vertex = notYetAcknowledgedTasks.remove(attemptID);
+		}
+
+		synchronized (lock) {
+			ExecutionVertex vertex = discarded ? null : notYetAcknowledgedTasks.remove(attemptID);
 			if (vertex != null) {
 				if (state != null || kvState != null) {
 
@@ -159,7 +200,17 @@ public class PendingCheckpoint {
 
 					long timestamp = System.currentTimeMillis() - checkpointTimestamp;
 
-					if (state != null) {
+					if (offloadedState != null) {
+						taskState.putState(
+							vertex.getParallelSubtaskIndex(),
+							new SubtaskState(
+								offloadedState,
+								stateSize,
+								timestamp
+							)
+						);
+					}
+					else if (state != null) {
 						taskState.putState(
 							vertex.getParallelSubtaskIndex(),
 							new SubtaskState(
@@ -172,21 +223,49 @@ public class PendingCheckpoint {
 
 					if (kvState != null) {
 						for (Map.Entry<Integer, SerializedValue<StateHandle<?>>> entry : kvState.entrySet()) {
+							String path = offloadedKvState != null ? offloadedKvState.get(entry.getKey()) : null;
+
 							taskState.putKvState(
 								entry.getKey(),
-								new KeyGroupState(
-									entry.getValue(),
-									0L,
-									timestamp
-								));
+								path != null ?
+									new KeyGroupState(path, 0L, timestamp) :
+									new KeyGroupState(entry.getValue(), 0L, timestamp));
 						}
 					}
 				}
 				numAcknowledgedTasks++;
 				return true;
 			}
-			else {
-				return false;
+		}
+
+		// the acknowledgement was not accepted, so nobody refers to the offloaded files
+		disposeOffloaded(offloadedState);
+		if (offloadedKvState != null) {
+			for (String path : offloadedKvState.values()) {
+				disposeOffloaded(path);
+			}
+		}
+		return false;
+	}
+
+	private String offload(SerializedValue<StateHandle<?>> state) {
+		if (metadataStore != null && metadataStore.shouldOffload(state)) {
+			try {
+				return metadataStore.offload(state);
+			} catch (Exception e) {
+				LOG.warn("Failed to offload state handle of checkpoint " + checkpointId +
+						", keeping it in memory.", e);
+			}
+		}
+		return null;
+	}
+
+	private static void disposeOffloaded(String path) {
+		if (path != null) {
+			try {
+				CheckpointMetadataStore.disposeState(path);
+			} catch (Exception e) {
+				LOG.warn("Failed to delete checkpoint metadata file " + path, e);
 			}
 		}
 	}
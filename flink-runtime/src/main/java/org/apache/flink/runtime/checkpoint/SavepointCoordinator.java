@@ -204,7 +204,9 @@ public class SavepointCoordinator extends CheckpointCoordinator {
 				ExecutionJobVertex executionJobVertex = tasks.get(taskStateEntry.getKey());
 
 				if (executionJobVertex != null) {
-					if (executionJobVertex.getParallelism() != taskState.getParallelism()) {
+					// the parallelism may only change if all state of the task is key/value state
+					if (executionJobVertex.getParallelism() != taskState.getParallelism() &&
+							taskState.getNumberCollectedStates() > 0) {
 						String msg = String.format("Failed to rollback to savepoint %s. " +
 								"Parallelism mismatch between savepoint state and new program. " +
 								"Cannot map operator %s with parallelism %d to new program with " +
@@ -218,6 +220,21 @@ public class SavepointCoordinator extends CheckpointCoordinator {
 						throw new IllegalStateException(msg);
 					}
 
+					for (int keyGroupId : taskState.getKvStateKeyGroups()) {
+						if (keyGroupId >= numberKeyGroups) {
+							String msg = String.format("Failed to rollback to savepoint %s. " +
+									"Key group mismatch between savepoint state and new program. " +
+									"The state of operator %s contains the key group %d, but the new " +
+									"program has only %d key groups.",
+								checkpoint,
+								taskStateEntry.getKey(),
+								keyGroupId,
+								numberKeyGroups);
+
+							throw new IllegalStateException(msg);
+						}
+					}
+
 					List<Set<Integer>> keyGroupPartitions = createKeyGroupPartitions(
 						numberKeyGroups,
 						executionJobVertex.getParallelism());
@@ -23,7 +23,9 @@ import org.apache.flink.util.SerializedValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.Objects;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -35,6 +37,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * is never looking at it anyways and only sends it back out in case of a recovery.
  * Furthermore, the state may involve user-defined classes that are not accessible without
  * the respective classloader.
+ *
+ * <p>Large serialized states may be offloaded to a file by the {@link CheckpointMetadataStore},
+ * in which case only the path of the file is kept.
  */
 public class SubtaskState implements Serializable {
 
@@ -42,9 +47,12 @@ public class SubtaskState implements Serializable {
 
 	private static final Logger LOG = LoggerFactory.getLogger(SubtaskState.class);
 
-	/** The state of the parallel operator */
+	/** The state of the parallel operator, or null, if the state was offloaded */
 	private final SerializedValue<StateHandle<?>> state;
 
+	/** The path of the file holding the serialized state, or null, if the state is inline */
+	private final String offloadedStatePath;
+
 	/**
 	 * The state size. This is also part of the deserialized state handle.
 	 * We store it here in order to not deserialize the state handle when
@@ -61,6 +69,20 @@ public class SubtaskState implements Serializable {
 			long duration) {
 
 		this.state = checkNotNull(state, "State");
+		this.offloadedStatePath = null;
+		// Sanity check and don't fail checkpoint because of this.
+		this.stateSize = stateSize >= 0 ? stateSize : 0;
+
+		this.duration = duration;
+	}
+
+	public SubtaskState(
+			String offloadedStatePath,
+			long stateSize,
+			long duration) {
+
+		this.state = null;
+		this.offloadedStatePath = checkNotNull(offloadedStatePath, "Offloaded state path");
 		// Sanity check and don't fail checkpoint because of this.
 		this.stateSize = stateSize >= 0 ? stateSize : 0;
 
@@ -69,8 +91,16 @@ public class SubtaskState implements Serializable {
 
 	// --------------------------------------------------------------------------------------------
 	
-	public SerializedValue<StateHandle<?>> getState() {
-		return state;
+	public SerializedValue<StateHandle<?>> getState() throws IOException {
+		if (state != null) {
+			return state;
+		} else {
+			return CheckpointMetadataStore.loadState(offloadedStatePath);
+		}
+	}
+
+	public boolean isOffloaded() {
+		return offloadedStatePath != null;
 	}
 
 	public long getStateSize() {
@@ -83,7 +113,11 @@ public class SubtaskState implements Serializable {
 
 	public void discard(ClassLoader userClassLoader) {
 		try {
-			state.deserializeValue(userClassLoader).discardState();
+			getState().deserializeValue(userClassLoader).discardState();
+
+			if (offloadedStatePath != null) {
+				CheckpointMetadataStore.disposeState(offloadedStatePath);
+			}
 		} catch (Exception e) {
 			LOG.warn("Failed to discard checkpoint state: " + this, e);
 		}
@@ -98,7 +132,9 @@ public class SubtaskState implements Serializable {
 		}
 		else if (o instanceof SubtaskState) {
 			SubtaskState that = (SubtaskState) o;
-			return this.state.equals(that.state) && stateSize == that.stateSize &&
+			return Objects.equals(this.state, that.state) &&
+				Objects.equals(this.offloadedStatePath, that.offloadedStatePath) &&
+				stateSize == that.stateSize &&
 				duration == that.duration;
 		}
 		else {
@@ -110,11 +146,12 @@ public class SubtaskState implements Serializable {
 	public int hashCode() {
 		return (int) (this.stateSize ^ this.stateSize >>> 32) +
 			31 * ((int) (this.duration ^ this.duration >>> 32) +
-				31 * state.hashCode());
+				31 * Objects.hash(state, offloadedStatePath));
 	}
 
 	@Override
 	public String toString() {
-		return String.format("StateForTask(Size: %d, Duration: %d, State: %s)", stateSize, duration, state);
+		return String.format("StateForTask(Size: %d, Duration: %d, State: %s)", stateSize, duration,
+			state != null ? state : offloadedStatePath);
 	}
 }
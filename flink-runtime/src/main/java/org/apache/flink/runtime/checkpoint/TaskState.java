@@ -22,6 +22,7 @@ import org.apache.flink.runtime.jobgraph.JobVertexID;
 import org.apache.flink.runtime.state.StateHandle;
 import org.apache.flink.util.SerializedValue;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.HashMap;
@@ -123,21 +124,26 @@ public class TaskState implements Serializable {
 	 *
 	 * @param keyGroupPartition Set of key group indices
 	 * @return Map of serialized key group state handles indexed by their key group index.
+	 * @throws IOException Thrown if an offloaded state handle cannot be read.
 	 */
-	public Map<Integer, SerializedValue<StateHandle<?>>> getUnwrappedKvStates(Set<Integer> keyGroupPartition) {
+	public Map<Integer, SerializedValue<StateHandle<?>>> getUnwrappedKvStates(Set<Integer> keyGroupPartition) throws IOException {
 		HashMap<Integer, SerializedValue<StateHandle<?>>> result = new HashMap<>(keyGroupPartition.size());
 
 		for (Integer keyGroupId : keyGroupPartition) {
 			KeyGroupState keyGroupState = kvStates.get(keyGroupId);
 
 			if (keyGroupState != null) {
-				result.put(keyGroupId, kvStates.get(keyGroupId).getKeyGroupState());
+				result.put(keyGroupId, keyGroupState.getKeyGroupState());
 			}
 		}
 
 		return result;
 	}
 
+	public Set<Integer> getKvStateKeyGroups() {
+		return kvStates.keySet();
+	}
+
 	public int getNumberCollectedKvStates() {
 		return kvStates.size();
 	}
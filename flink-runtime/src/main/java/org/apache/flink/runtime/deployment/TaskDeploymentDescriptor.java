@@ -32,6 +32,7 @@ import java.io.Serializable;
 import java.net.URL;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -89,6 +90,9 @@ public final class TaskDeploymentDescriptor implements Serializable {
 
 	private final SerializedValue<StateHandle<?>> operatorState;
 
+	/** The key/value state of the task by key group, may be null */
+	private final Map<Integer, SerializedValue<StateHandle<?>>> operatorKvState;
+
 	/** The execution configuration (see {@link ExecutionConfig}) related to the specific job. */
 	private final ExecutionConfig executionConfig;
 
@@ -117,6 +121,53 @@ public final class TaskDeploymentDescriptor implements Serializable {
 			SerializedValue<StateHandle<?>> operatorState,
 			long recoveryTimestamp) {
 
+		this(
+			jobID,
+			vertexID,
+			executionId,
+			executionConfig,
+			taskName,
+			indexInSubtaskGroup,
+			numberOfSubtasks,
+			attemptNumber,
+			jobConfiguration,
+			taskConfiguration,
+			invokableClassName,
+			producedPartitions,
+			inputGates,
+			requiredJarFiles,
+			requiredClasspaths,
+			targetSlotNumber,
+			operatorState,
+			null,
+			recoveryTimestamp);
+	}
+
+	/**
+	 * Constructs a task deployment descriptor with key/value state that has been
+	 * checkpointed per key group.
+	 */
+	public TaskDeploymentDescriptor(
+			JobID jobID,
+			JobVertexID vertexID,
+			ExecutionAttemptID executionId,
+			ExecutionConfig executionConfig,
+			String taskName,
+			int indexInSubtaskGroup,
+			int numberOfSubtasks,
+			int attemptNumber,
+			Configuration jobConfiguration,
+			Configuration taskConfiguration,
+			String invokableClassName,
+			List<ResultPartitionDeploymentDescriptor> producedPartitions,
+			List<InputGateDeploymentDescriptor> inputGates,
+			List<BlobKey> requiredJarFiles,
+			List<URL> requiredClasspaths,
+			int targetSlotNumber,
+			SerializedValue<StateHandle<?>> operatorState,
+			Map<Integer, SerializedValue<StateHandle<?>>> operatorKvState,
+			long recoveryTimestamp) {
+
 		checkArgument(indexInSubtaskGroup >= 0);
 		checkArgument(numberOfSubtasks > indexInSubtaskGroup);
 		checkArgument(targetSlotNumber >= 0);
@@ -139,6 +190,7 @@ public final class TaskDeploymentDescriptor implements Serializable {
 		this.requiredClasspaths = checkNotNull(requiredClasspaths);
 		this.targetSlotNumber = targetSlotNumber;
 		this.operatorState = operatorState;
+		this.operatorKvState = operatorKvState;
 		this.recoveryTimestamp = recoveryTimestamp;
 	}
 
@@ -317,6 +369,10 @@ public final class TaskDeploymentDescriptor implements Serializable {
 	public SerializedValue<StateHandle<?>> getOperatorState() {
 		return operatorState;
 	}
+
+	public Map<Integer, SerializedValue<StateHandle<?>>> getOperatorKvState() {
+		return operatorKvState;
+	}
 	
 	public long getRecoveryTimestamp() {
 		return recoveryTimestamp;
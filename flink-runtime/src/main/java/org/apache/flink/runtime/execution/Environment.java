@@ -158,6 +158,18 @@ public interface Environment {
 	 */
 	void acknowledgeCheckpoint(long checkpointId, StateHandle<?> state);
 
+	/**
+	 * Confirms that the invokable has successfully completed all steps it needed to
+	 * to for the checkpoint with the give checkpoint-ID. This method does include
+	 * the given state in the checkpoint, as well as the given key/value state, which
+	 * has been checkpointed per key group.
+	 *
+	 * @param checkpointId The ID of the checkpoint.
+	 * @param state A handle to the state to be included in the checkpoint.
+	 * @param keyGroupStates Handles to the key/value state to be included in the checkpoint, by key group.
+	 */
+	void acknowledgeCheckpoint(long checkpointId, StateHandle<?> state, Map<Integer, StateHandle<?>> keyGroupStates);
+
 	// --------------------------------------------------------------------------------------------
 	//  Fields relevant to the I/O system. Should go into Task
 	// --------------------------------------------------------------------------------------------
@@ -250,6 +250,13 @@ public class Execution implements Serializable {
 		this.recoveryTimestamp = recoveryTimestamp;
 	}
 
+	/**
+	 * Checks whether this execution attempt restores state from a checkpoint.
+	 */
+	boolean hasInitialState() {
+		return operatorState != null || (operatorKvState != null && !operatorKvState.isEmpty());
+	}
+
 	// --------------------------------------------------------------------------------------------
 	//  Actions
 	// --------------------------------------------------------------------------------------------
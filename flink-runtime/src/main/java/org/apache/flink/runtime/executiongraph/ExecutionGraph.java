@@ -32,6 +32,7 @@ import org.apache.flink.runtime.accumulators.StringifiedAccumulatorResult;
 import org.apache.flink.runtime.blob.BlobKey;
 import org.apache.flink.runtime.checkpoint.CheckpointCoordinator;
 import org.apache.flink.runtime.checkpoint.CheckpointIDCounter;
+import org.apache.flink.runtime.checkpoint.CheckpointMetadataStore;
 import org.apache.flink.runtime.checkpoint.CompletedCheckpoint;
 import org.apache.flink.runtime.checkpoint.CompletedCheckpointStore;
 import org.apache.flink.runtime.checkpoint.SavepointCoordinator;
@@ -355,7 +356,8 @@ public class ExecutionGraph implements Serializable {
 			CompletedCheckpointStore completedCheckpointStore,
 			RecoveryMode recoveryMode,
 			StateStore<CompletedCheckpoint> savepointStore,
-			CheckpointStatsTracker statsTracker) throws Exception {
+			CheckpointStatsTracker statsTracker,
+			CheckpointMetadataStore metadataStore) throws Exception {
 
 		// simple sanity checks
 		if (interval < 10 || checkpointTimeout < 10) {
@@ -389,7 +391,8 @@ public class ExecutionGraph implements Serializable {
 				checkpointIDCounter,
 				completedCheckpointStore,
 				recoveryMode,
-				checkpointStatsTracker);
+				checkpointStatsTracker,
+				metadataStore);
 
 		// the periodic checkpoint scheduler is activated and deactivated as a result of
 		// job status changes (running -> on, all other states -> off)
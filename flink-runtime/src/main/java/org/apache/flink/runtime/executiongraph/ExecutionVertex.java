@@ -377,6 +377,15 @@ public class ExecutionVertex implements Serializable {
 			return constraintInstances;
 		}
 
+		// if the state of a checkpoint is restored, prefer the location of the prior execution,
+		// because the state backend may have kept a local copy of the state there
+		if (currentExecution.hasInitialState() && !priorExecutions.isEmpty()) {
+			SimpleSlot priorSlot = priorExecutions.get(priorExecutions.size() - 1).getAssignedResource();
+			if (priorSlot != null && priorSlot.getInstance().isAlive()) {
+				return Collections.singleton(priorSlot.getInstance());
+			}
+		}
+
 		// otherwise, base the preferred locations on the input connections
 		if (inputEdges == null) {
 			return Collections.emptySet();
@@ -689,6 +698,7 @@ public class ExecutionVertex implements Serializable {
 			classpaths,
 			targetSlot.getRoot().getSlotNumber(),
 			operatorState,
+			operatorKvState,
 			recoveryTimestamp);
 	}
 
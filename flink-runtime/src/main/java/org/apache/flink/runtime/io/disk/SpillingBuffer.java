@@ -77,7 +77,7 @@ public class SpillingBuffer extends AbstractPagedOutputView {
 				return nextSeg;
 			} else {
 				// out of memory, need to spill: create a writer
-				this.writer = this.ioManager.createBlockChannelWriter(this.ioManager.createChannel());
+				this.writer = this.ioManager.createSpillingChannelWriter(this.ioManager.createChannel());
 				
 				// add all segments to the writer
 				this.blockCount = this.fullSegments.size();
@@ -135,7 +135,7 @@ public class SpillingBuffer extends AbstractPagedOutputView {
 				this.externalInView.close();
 			}
 			
-			final BlockChannelReader<MemorySegment> reader = this.ioManager.createBlockChannelReader(this.writer.getChannelID());
+			final BlockChannelReader<MemorySegment> reader = this.ioManager.createSpillingChannelReader(this.writer.getChannelID());
 			this.externalInView = new HeaderlessChannelReaderInputView(reader, this.fullSegments, this.blockCount, this.numBytesInLastSegment, false);
 			return this.externalInView;
 		}
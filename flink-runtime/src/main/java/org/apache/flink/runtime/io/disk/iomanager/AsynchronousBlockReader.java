@@ -43,6 +43,9 @@ import java.util.concurrent.TimeUnit;
 public class AsynchronousBlockReader extends AsynchronousFileIOChannel<MemorySegment, ReadRequest> implements BlockChannelReader<MemorySegment> {
 	
 	private final LinkedBlockingQueue<MemorySegment> returnSegments;
+
+	/** Flag indicating whether the channel was written with compressed blocks */
+	private final boolean compressedBlocks;
 	
 	/**
 	 * Creates a new block channel reader for the given channel.
@@ -56,10 +59,28 @@ public class AsynchronousBlockReader extends AsynchronousFileIOChannel<MemorySeg
 	protected AsynchronousBlockReader(FileIOChannel.ID channelID, RequestQueue<ReadRequest> requestQueue,
 			LinkedBlockingQueue<MemorySegment> returnSegments)
 	throws IOException
+	{
+		this(channelID, requestQueue, returnSegments, false);
+	}
+
+	/**
+	 * Creates a new block channel reader for the given channel.
+	 *  
+	 * @param channelID The ID of the channel to read.
+	 * @param requestQueue The request queue of the asynchronous reader thread, to which the I/O requests
+	 *                     are added.
+	 * @param returnSegments The return queue, to which the full Memory Segments are added.
+	 * @param compressedBlocks Flag indicating whether the channel was written with compressed blocks.
+	 * @throws IOException Thrown, if the underlying file channel could not be opened.
+	 */
+	protected AsynchronousBlockReader(FileIOChannel.ID channelID, RequestQueue<ReadRequest> requestQueue,
+			LinkedBlockingQueue<MemorySegment> returnSegments, boolean compressedBlocks)
+	throws IOException
 	{
 		super(channelID, requestQueue, new QueuingCallback<MemorySegment>(returnSegments), false);
 		this.returnSegments = returnSegments;
-	}	
+		this.compressedBlocks = compressedBlocks;
+	}
 
 	/**
 	 * Issues a read request, which will asynchronously fill the given segment with the next block in the
@@ -72,11 +93,18 @@ public class AsynchronousBlockReader extends AsynchronousFileIOChannel<MemorySeg
 	 */
 	@Override
 	public void readBlock(MemorySegment segment) throws IOException {
-		addRequest(new SegmentReadRequest(this, segment));
+		if (compressedBlocks) {
+			addRequest(new CompressedSegmentReadRequest(this, segment));
+		} else {
+			addRequest(new SegmentReadRequest(this, segment));
+		}
 	}
 
 	@Override
 	public void seekToPosition(long position) throws IOException {
+		if (compressedBlocks) {
+			throw new UnsupportedOperationException("Channels with compressed blocks can only be read sequentially.");
+		}
 		requestQueue.add(new SeekRequest(this, position));
 	}
 
@@ -41,7 +41,24 @@ public class AsynchronousBlockWriter extends AsynchronousBlockWriterWithCallback
 			LinkedBlockingQueue<MemorySegment> returnSegments)
 	throws IOException
 	{
-		super(channelID, requestQueue, new QueuingCallback<MemorySegment>(returnSegments));
+		this(channelID, requestQueue, returnSegments, false);
+	}
+
+	/**
+	 * Creates a new block channel writer for the given channel.
+	 *  
+	 * @param channelID The ID of the channel to write to.
+	 * @param requestQueue The request queue of the asynchronous writer thread, to which the I/O requests
+	 *                     are added.
+	 * @param returnSegments The return queue, to which the processed Memory Segments are added.
+	 * @param compressBlocks Flag indicating whether the blocks are compressed before they are written.
+	 * @throws IOException Thrown, if the underlying file channel could not be opened exclusively.
+	 */
+	protected AsynchronousBlockWriter(FileIOChannel.ID channelID, RequestQueue<WriteRequest> requestQueue,
+			LinkedBlockingQueue<MemorySegment> returnSegments, boolean compressBlocks)
+	throws IOException
+	{
+		super(channelID, requestQueue, new QueuingCallback<MemorySegment>(returnSegments), compressBlocks);
 		this.returnSegments = returnSegments;
 	}
 	
@@ -27,6 +27,9 @@ import org.apache.flink.core.memory.MemorySegment;
  * and calls a callback once they have been handled.
  */
 public class AsynchronousBlockWriterWithCallback extends AsynchronousFileIOChannel<MemorySegment, WriteRequest> implements BlockChannelWriterWithCallback<MemorySegment> {
+
+	/** Flag indicating whether the blocks are compressed before they are written */
+	private final boolean compressBlocks;
 	
 	/**
 	 * Creates a new asynchronous block writer for the given channel.
@@ -38,8 +41,24 @@ public class AsynchronousBlockWriterWithCallback extends AsynchronousFileIOChann
 	 */
 	protected AsynchronousBlockWriterWithCallback(FileIOChannel.ID channelID, RequestQueue<WriteRequest> requestQueue,
 			RequestDoneCallback<MemorySegment> callback) throws IOException
+	{
+		this(channelID, requestQueue, callback, false);
+	}
+
+	/**
+	 * Creates a new asynchronous block writer for the given channel.
+	 *  
+	 * @param channelID The ID of the channel to write to.
+	 * @param requestQueue The request queue of the asynchronous writer thread, to which the I/O requests are added.
+	 * @param callback The callback to be invoked when requests are done.
+	 * @param compressBlocks Flag indicating whether the blocks are compressed before they are written.
+	 * @throws IOException Thrown, if the underlying file channel could not be opened exclusively.
+	 */
+	protected AsynchronousBlockWriterWithCallback(FileIOChannel.ID channelID, RequestQueue<WriteRequest> requestQueue,
+			RequestDoneCallback<MemorySegment> callback, boolean compressBlocks) throws IOException
 	{
 		super(channelID, requestQueue, callback, true);
+		this.compressBlocks = compressBlocks;
 	}
 
 	/**
@@ -51,6 +70,10 @@ public class AsynchronousBlockWriterWithCallback extends AsynchronousFileIOChann
 	 */
 	@Override
 	public void writeBlock(MemorySegment segment) throws IOException {
-		addRequest(new SegmentWriteRequest(this, segment));
+		if (compressBlocks) {
+			addRequest(new CompressedSegmentWriteRequest(this, segment));
+		} else {
+			addRequest(new SegmentWriteRequest(this, segment));
+		}
 	}
 }
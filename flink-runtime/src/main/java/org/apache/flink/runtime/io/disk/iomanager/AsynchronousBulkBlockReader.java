@@ -30,21 +30,31 @@ import org.apache.flink.core.memory.MemorySegment;
 public class AsynchronousBulkBlockReader extends AsynchronousFileIOChannel<MemorySegment, ReadRequest> implements BulkBlockChannelReader {
 	
 	private final ArrayList<MemorySegment> returnBuffers;
+
+	private final boolean compressedBlocks;
 	
 	
 	protected AsynchronousBulkBlockReader(FileIOChannel.ID channelID, RequestQueue<ReadRequest> requestQueue, 
 			List<MemorySegment> sourceSegments, int numBlocks)
 	throws IOException
 	{
-		this (channelID, requestQueue, sourceSegments, numBlocks, new ArrayList<MemorySegment>(numBlocks));
+		this (channelID, requestQueue, sourceSegments, numBlocks, false);
+	}
+
+	protected AsynchronousBulkBlockReader(FileIOChannel.ID channelID, RequestQueue<ReadRequest> requestQueue, 
+			List<MemorySegment> sourceSegments, int numBlocks, boolean compressedBlocks)
+	throws IOException
+	{
+		this (channelID, requestQueue, sourceSegments, numBlocks, new ArrayList<MemorySegment>(numBlocks), compressedBlocks);
 	}
 	
 	private AsynchronousBulkBlockReader(FileIOChannel.ID channelID, RequestQueue<ReadRequest> requestQueue, 
-			List<MemorySegment> sourceSegments, int numBlocks, ArrayList<MemorySegment> target)
+			List<MemorySegment> sourceSegments, int numBlocks, ArrayList<MemorySegment> target, boolean compressedBlocks)
 	throws IOException
 	{
 		super(channelID, requestQueue, new CollectingCallback(target), false);
 		this.returnBuffers = target;
+		this.compressedBlocks = compressedBlocks;
 		
 		// sanity check
 		if (sourceSegments.size() < numBlocks) {
@@ -59,7 +69,11 @@ public class AsynchronousBulkBlockReader extends AsynchronousFileIOChannel<Memor
 	}
 	
 	private void readBlock(MemorySegment segment) throws IOException {
-		addRequest(new SegmentReadRequest(this, segment));
+		if (compressedBlocks) {
+			addRequest(new CompressedSegmentReadRequest(this, segment));
+		} else {
+			addRequest(new SegmentReadRequest(this, segment));
+		}
 	}
 	
 	@Override
@@ -354,6 +354,70 @@ final class SegmentWriteRequest implements WriteRequest {
 	}
 }
 
+/**
+ * Write request that compresses an entire memory segment and writes it as a block of variable length.
+ */
+final class CompressedSegmentWriteRequest implements WriteRequest {
+
+	private final AsynchronousFileIOChannel<MemorySegment, WriteRequest> channel;
+
+	private final MemorySegment segment;
+
+	protected CompressedSegmentWriteRequest(AsynchronousFileIOChannel<MemorySegment, WriteRequest> targetChannel, MemorySegment segment) {
+		this.channel = targetChannel;
+		this.segment = segment;
+	}
+
+	@Override
+	public void write() throws IOException {
+		try {
+			BlockCompression.writeBlock(this.channel.fileChannel, this.segment);
+		}
+		catch (NullPointerException npex) {
+			throw new IOException("Memory segment has been released.");
+		}
+	}
+
+	@Override
+	public void requestDone(IOException ioex) {
+		this.channel.handleProcessedBuffer(this.segment, ioex);
+	}
+}
+
+/**
+ * Read request that reads a compressed block and decompresses it into an entire memory segment.
+ */
+final class CompressedSegmentReadRequest implements ReadRequest {
+
+	private final AsynchronousFileIOChannel<MemorySegment, ReadRequest> channel;
+
+	private final MemorySegment segment;
+
+	protected CompressedSegmentReadRequest(AsynchronousFileIOChannel<MemorySegment, ReadRequest> targetChannel, MemorySegment segment) {
+		if (segment == null) {
+			throw new NullPointerException("Illegal read request with null memory segment.");
+		}
+
+		this.channel = targetChannel;
+		this.segment = segment;
+	}
+
+	@Override
+	public void read() throws IOException {
+		try {
+			BlockCompression.readBlock(this.channel.fileChannel, this.segment);
+		}
+		catch (NullPointerException npex) {
+			throw new IOException("Memory segment has been released.");
+		}
+	}
+
+	@Override
+	public void requestDone(IOException ioex) {
+		this.channel.handleProcessedBuffer(this.segment, ioex);
+	}
+}
+
 final class BufferWriteRequest implements WriteRequest {
 
 	private final AsynchronousFileIOChannel<Buffer, WriteRequest> channel;
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.disk.iomanager;
+
+import org.apache.flink.core.memory.MemorySegment;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Utilities to write and read memory segments as compressed blocks. Each block is stored with an
+ * 8 byte header that holds a flag whether the block is compressed, and the number of bytes that follow.
+ * Blocks that do not compress well are stored raw. When read, a block always restores the full
+ * contents of the memory segment.
+ *
+ * <p>The compression state and buffers are kept per I/O thread, because the requests of a channel are
+ * always processed by the same I/O thread, one after the other.
+ */
+final class BlockCompression {
+
+	private static final int HEADER_LENGTH = 8;
+
+	private static final int RAW_BLOCK = 0;
+
+	private static final int COMPRESSED_BLOCK = 1;
+
+	private static final ThreadLocal<BlockCompression> INSTANCES = new ThreadLocal<BlockCompression>() {
+		@Override
+		protected BlockCompression initialValue() {
+			return new BlockCompression();
+		}
+	};
+
+	// ------------------------------------------------------------------------
+
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+	private final Inflater inflater = new Inflater();
+
+	private final ByteBuffer header = ByteBuffer.allocateDirect(HEADER_LENGTH);
+
+	private byte[] uncompressed = new byte[0];
+
+	private byte[] compressed = new byte[0];
+
+	private BlockCompression() {}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Compresses the contents of the given segment and writes it as one block to the current position
+	 * of the file channel.
+	 */
+	static void writeBlock(FileChannel channel, MemorySegment segment) throws IOException {
+		INSTANCES.get().write(channel, segment);
+	}
+
+	/**
+	 * Reads one block from the current position of the file channel and decompresses it into the given segment.
+	 * If the channel has no more data, the segment is left untouched.
+	 */
+	static void readBlock(FileChannel channel, MemorySegment segment) throws IOException {
+		INSTANCES.get().read(channel, segment);
+	}
+
+	// ------------------------------------------------------------------------
+
+	private void write(FileChannel channel, MemorySegment segment) throws IOException {
+		final int size = segment.size();
+		ensureCapacity(size);
+
+		segment.get(0, uncompressed, 0, size);
+
+		deflater.reset();
+		deflater.setInput(uncompressed, 0, size);
+		deflater.finish();
+
+		// if the compressed data does not fit into the buffer, it is larger than the raw block
+		final int compressedLength = deflater.deflate(compressed, 0, compressed.length);
+		final boolean isCompressed = deflater.finished() && compressedLength < size;
+
+		header.clear();
+		header.putInt(isCompressed ? COMPRESSED_BLOCK : RAW_BLOCK);
+		header.putInt(isCompressed ? compressedLength : size);
+		header.flip();
+
+		final ByteBuffer data = isCompressed ?
+				ByteBuffer.wrap(compressed, 0, compressedLength) :
+				ByteBuffer.wrap(uncompressed, 0, size);
+
+		while (header.hasRemaining()) {
+			channel.write(header);
+		}
+		while (data.hasRemaining()) {
+			channel.write(data);
+		}
+	}
+
+	private void read(FileChannel channel, MemorySegment segment) throws IOException {
+		if (channel.size() - channel.position() <= 0) {
+			return;
+		}
+
+		final int size = segment.size();
+		ensureCapacity(size);
+
+		header.clear();
+		readFully(channel, header);
+		header.flip();
+
+		final boolean isCompressed = header.getInt() == COMPRESSED_BLOCK;
+		final int length = header.getInt();
+
+		if (length < 0 || length > size || (!isCompressed && length != size)) {
+			throw new IOException("Corrupt block: " + length + " bytes for a memory segment of " + size + " bytes.");
+		}
+
+		if (isCompressed) {
+			readFully(channel, ByteBuffer.wrap(compressed, 0, length));
+
+			inflater.reset();
+			inflater.setInput(compressed, 0, length);
+			try {
+				if (inflater.inflate(uncompressed, 0, size) != size || !inflater.finished()) {
+					throw new IOException("Compressed block does not match the size of the memory segment.");
+				}
+			}
+			catch (DataFormatException e) {
+				throw new IOException("Corrupt compressed block: " + e.getMessage(), e);
+			}
+		}
+		else {
+			readFully(channel, ByteBuffer.wrap(uncompressed, 0, length));
+		}
+
+		segment.put(0, uncompressed, 0, size);
+	}
+
+	private void ensureCapacity(int size) {
+		if (uncompressed.length < size) {
+			uncompressed = new byte[size];
+			compressed = new byte[size];
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer target) throws IOException {
+		while (target.hasRemaining()) {
+			if (channel.read(target) < 0) {
+				throw new EOFException("Unexpected end of compressed block.");
+			}
+		}
+	}
+}
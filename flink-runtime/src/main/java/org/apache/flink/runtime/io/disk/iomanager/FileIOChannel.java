@@ -22,7 +22,6 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.channels.FileChannel;
 import java.util.Random;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.flink.util.StringUtils;
 
@@ -154,27 +153,25 @@ public interface FileIOChannel {
 	 */
 	public static final class Enumerator {
 
-		private static AtomicInteger globalCounter = new AtomicInteger();
-
-		private final File[] paths;
+		private final IOManager ioManager;
 
 		private final String namePrefix;
 
 		private int localCounter;
 
-		protected Enumerator(File[] basePaths, Random random) {
-			this.paths = basePaths;
+		protected Enumerator(IOManager ioManager, Random random) {
+			this.ioManager = ioManager;
 			this.namePrefix = ID.randomString(random);
 			this.localCounter = 0;
 		}
 
 		public ID next() {
-			// The local counter is used to increment file names while the global counter is used
-			// for indexing the directory and associated read and write threads. This performs a
-			// round-robin among all spilling operators and avoids I/O bunching.
-			int threadNum = globalCounter.getAndIncrement() % paths.length;
+			// The local counter is used to increment file names while the I/O manager picks the
+			// directory and associated read and write threads. This spreads the channels among all
+			// spilling operators and avoids I/O bunching.
+			int threadNum = ioManager.getNextPathNum();
 			String filename = String.format("%s.%06d.channel", namePrefix, (localCounter++));
-			return new ID(new File(paths[threadNum], filename), threadNum);
+			return new ID(new File(ioManager.getPathForThreadNum(threadNum), filename), threadNum);
 		}
 	}
-}
\ No newline at end of file
+}
@@ -142,17 +142,17 @@ public abstract class IOManager {
 	 */
 	public FileIOChannel.ID createChannel() {
 		final int num = getNextPathNum();
-		return new FileIOChannel.ID(this.paths[num], num, this.random);
+		return new FileIOChannel.ID(getPathForThreadNum(num), num, this.random);
 	}
 
 	/**
-	 * Creates a new {@link FileIOChannel.Enumerator}, spreading the channels in a round-robin fashion
-	 * across the temporary file directories.
+	 * Creates a new {@link FileIOChannel.Enumerator}, spreading the channels across the temporary
+	 * file directories in the same way as {@link #createChannel()}.
 	 *
 	 * @return An enumerator for channels.
 	 */
 	public FileIOChannel.Enumerator createChannelEnumerator() {
-		return new FileIOChannel.Enumerator(this.paths, this.random);
+		return new FileIOChannel.Enumerator(this, this.random);
 	}
 
 	/**
@@ -260,6 +260,84 @@ public abstract class IOManager {
 			List<MemorySegment> targetSegments, int numBlocks) throws IOException;
 
 
+	// ------------------------------------------------------------------------
+	//                        Spilling Channel instantiations
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Creates a block channel writer for spilled data, such as sorted runs or spilled hash table partitions.
+	 * Spilled channels are written and read back strictly sequentially and in whole blocks. That allows the
+	 * I/O manager to store the blocks in a different format, for example compressed.
+	 * <p>
+	 * The channel must be read with a reader created by {@link #createSpillingChannelReader(FileIOChannel.ID)}
+	 * or {@link #createSpillingBulkChannelReader(FileIOChannel.ID, List, int)}. Seeking to a position in the
+	 * channel or relying on the size of the channel's file is not supported.
+	 *
+	 * @param channelID The descriptor for the channel to write to.
+	 * @return A block channel writer that writes to the given channel.
+	 * @throws IOException Thrown, if the channel for the writer could not be opened.
+	 */
+	public BlockChannelWriter<MemorySegment> createSpillingChannelWriter(FileIOChannel.ID channelID) throws IOException {
+		return createSpillingChannelWriter(channelID, new LinkedBlockingQueue<MemorySegment>());
+	}
+
+	/**
+	 * Creates a block channel writer for spilled data. The writer adds the written segment to the given queue.
+	 *
+	 * @param channelID The descriptor for the channel to write to.
+	 * @param returnQueue The queue to put the written buffers into.
+	 * @return A block channel writer that writes to the given channel.
+	 * @throws IOException Thrown, if the channel for the writer could not be opened.
+	 *
+	 * @see #createSpillingChannelWriter(FileIOChannel.ID)
+	 */
+	public BlockChannelWriter<MemorySegment> createSpillingChannelWriter(FileIOChannel.ID channelID,
+				LinkedBlockingQueue<MemorySegment> returnQueue) throws IOException {
+		return createBlockChannelWriter(channelID, returnQueue);
+	}
+
+	/**
+	 * Creates a block channel reader for a channel written by a writer created through
+	 * {@link #createSpillingChannelWriter(FileIOChannel.ID)}.
+	 *
+	 * @param channelID The descriptor for the channel to read from.
+	 * @return A block channel reader that reads from the given channel.
+	 * @throws IOException Thrown, if the channel for the reader could not be opened.
+	 */
+	public BlockChannelReader<MemorySegment> createSpillingChannelReader(FileIOChannel.ID channelID) throws IOException {
+		return createSpillingChannelReader(channelID, new LinkedBlockingQueue<MemorySegment>());
+	}
+
+	/**
+	 * Creates a block channel reader for a channel written by a writer created through
+	 * {@link #createSpillingChannelWriter(FileIOChannel.ID)}. The reader pushes the full segments
+	 * to the given queue.
+	 *
+	 * @param channelID The descriptor for the channel to read from.
+	 * @param returnQueue The queue to put the full buffers into.
+	 * @return A block channel reader that reads from the given channel.
+	 * @throws IOException Thrown, if the channel for the reader could not be opened.
+	 */
+	public BlockChannelReader<MemorySegment> createSpillingChannelReader(FileIOChannel.ID channelID,
+				LinkedBlockingQueue<MemorySegment> returnQueue) throws IOException {
+		return createBlockChannelReader(channelID, returnQueue);
+	}
+
+	/**
+	 * Creates a block channel reader that reads all blocks of a channel written by a writer created through
+	 * {@link #createSpillingChannelWriter(FileIOChannel.ID)} in one bulk.
+	 *
+	 * @param channelID The descriptor for the channel to read from.
+	 * @param targetSegments The list to take the segments from into which to read the data.
+	 * @param numBlocks The number of blocks in the channel to read.
+	 * @return A block channel reader that reads from the given channel.
+	 * @throws IOException Thrown, if the channel for the reader could not be opened.
+	 */
+	public BulkBlockChannelReader createSpillingBulkChannelReader(FileIOChannel.ID channelID,
+				List<MemorySegment> targetSegments, int numBlocks) throws IOException {
+		return createBulkBlockChannelReader(channelID, targetSegments, numBlocks);
+	}
+
 	// ------------------------------------------------------------------------
 	//                          Utilities
 	// ------------------------------------------------------------------------
@@ -283,10 +361,29 @@ public abstract class IOManager {
 	}
 	
 	
+	/**
+	 * Gets the number of the I/O thread that serves the next channel. The directory of the channel
+	 * is determined by {@link #getPathForThreadNum(int)}. This implementation rotates across the
+	 * directories in a round-robin fashion.
+	 * 
+	 * @return The number of the I/O thread for the next channel.
+	 */
 	protected int getNextPathNum() {
 		final int next = this.nextPath;
 		final int newNext = next + 1;
 		this.nextPath = newNext >= this.paths.length ? 0 : newNext;
 		return next;
 	}
+
+	/**
+	 * Gets the directory in which the files of channels served by the given I/O thread are placed.
+	 * The I/O threads are assigned to the directories in a round-robin fashion, such that the threads
+	 * <i>0</i> to <i>n-1</i> serve the <i>n</i> different directories.
+	 * 
+	 * @param threadNum The number of the I/O thread.
+	 * @return The directory for files served by the I/O thread.
+	 */
+	File getPathForThreadNum(int threadNum) {
+		return this.paths[threadNum % this.paths.length];
+	}
 }
@@ -47,6 +47,12 @@ public class IOManagerAsync extends IOManager implements UncaughtExceptionHandle
 	/** Shutdown hook to make sure that the directories are removed on exit */
 	private final Thread shutdownHook;
 
+	/** The number of the I/O thread at which the search for the least loaded thread starts */
+	private volatile int nextThread;
+
+	/** Flag indicating whether the blocks of spilling channels are compressed */
+	private final boolean compressSpilledBlocks;
+
 	
 	// -------------------------------------------------------------------------
 	//               Constructors / Destructors
@@ -74,10 +80,42 @@ public class IOManagerAsync extends IOManager implements UncaughtExceptionHandle
 	 * @param tempDirs The directories to write temporary files to.
 	 */
 	public IOManagerAsync(String[] tempDirs) {
+		this(tempDirs, 1);
+	}
+
+	/**
+	 * Constructs a new asynchronous I/O manger, writing files across the given directories. Each directory
+	 * is served by the given number of reader and writer threads. New channels are assigned to the threads
+	 * with the fewest pending requests, such that faster directories receive more channels than slower ones.
+	 * 
+	 * @param tempDirs The directories to write temporary files to.
+	 * @param numThreadsPerDirectory The number of reader and writer threads for each directory.
+	 */
+	public IOManagerAsync(String[] tempDirs, int numThreadsPerDirectory) {
+		this(tempDirs, numThreadsPerDirectory, false);
+	}
+
+	/**
+	 * Constructs a new asynchronous I/O manger, writing files across the given directories. Each directory
+	 * is served by the given number of reader and writer threads.
+	 * 
+	 * @param tempDirs The directories to write temporary files to.
+	 * @param numThreadsPerDirectory The number of reader and writer threads for each directory.
+	 * @param compressSpilledBlocks Flag indicating whether the blocks of spilling channels are compressed.
+	 */
+	public IOManagerAsync(String[] tempDirs, int numThreadsPerDirectory, boolean compressSpilledBlocks) {
 		super(tempDirs);
-		
-		// start a write worker thread for each directory
-		this.writers = new WriterThread[tempDirs.length];
+
+		this.compressSpilledBlocks = compressSpilledBlocks;
+
+		if (numThreadsPerDirectory < 1) {
+			throw new IllegalArgumentException("The number of I/O threads per directory must be at least one.");
+		}
+
+		final int numThreads = tempDirs.length * numThreadsPerDirectory;
+
+		// start the write worker threads, assigned round robin to the directories
+		this.writers = new WriterThread[numThreads];
 		for (int i = 0; i < this.writers.length; i++) {
 			final WriterThread t = new WriterThread();
 			this.writers[i] = t;
@@ -87,8 +125,8 @@ public class IOManagerAsync extends IOManager implements UncaughtExceptionHandle
 			t.start();
 		}
 
-		// start a reader worker thread for each directory
-		this.readers = new ReaderThread[tempDirs.length];
+		// start the reader worker threads, assigned round robin to the directories
+		this.readers = new ReaderThread[numThreads];
 		for (int i = 0; i < this.readers.length; i++) {
 			final ReaderThread t = new ReaderThread();
 			this.readers[i] = t;
@@ -294,6 +332,69 @@ public class IOManagerAsync extends IOManager implements UncaughtExceptionHandle
 		return new AsynchronousBulkBlockReader(channelID, this.readers[channelID.getThreadNum()].requestQueue, targetSegments, numBlocks);
 	}
 	
+	// ------------------------------------------------------------------------
+	//                        Spilling Channel instantiations
+	// ------------------------------------------------------------------------
+
+	@Override
+	public BlockChannelWriter<MemorySegment> createSpillingChannelWriter(FileIOChannel.ID channelID,
+				LinkedBlockingQueue<MemorySegment> returnQueue) throws IOException
+	{
+		checkState(!isShutdown.get(), "I/O-Manger is shut down.");
+		return new AsynchronousBlockWriter(channelID, this.writers[channelID.getThreadNum()].requestQueue, returnQueue,
+				compressSpilledBlocks);
+	}
+
+	@Override
+	public BlockChannelReader<MemorySegment> createSpillingChannelReader(FileIOChannel.ID channelID,
+				LinkedBlockingQueue<MemorySegment> returnQueue) throws IOException
+	{
+		checkState(!isShutdown.get(), "I/O-Manger is shut down.");
+		return new AsynchronousBlockReader(channelID, this.readers[channelID.getThreadNum()].requestQueue, returnQueue,
+				compressSpilledBlocks);
+	}
+
+	@Override
+	public BulkBlockChannelReader createSpillingBulkChannelReader(FileIOChannel.ID channelID,
+				List<MemorySegment> targetSegments, int numBlocks) throws IOException
+	{
+		checkState(!isShutdown.get(), "I/O-Manger is shut down.");
+		return new AsynchronousBulkBlockReader(channelID, this.readers[channelID.getThreadNum()].requestQueue,
+				targetSegments, numBlocks, compressSpilledBlocks);
+	}
+
+	// ------------------------------------------------------------------------
+	//                          Channel Placement
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Gets the number of the I/O thread with the fewest pending read and write requests. Directories on
+	 * slower devices build up longer request queues and consequently receive fewer new channels. Ties
+	 * are broken in a round-robin fashion, so that channels that are created at the same time (before
+	 * any requests are issued) are still spread across all threads.
+	 * 
+	 * @return The number of the I/O thread for the next channel.
+	 */
+	@Override
+	protected int getNextPathNum() {
+		final int numThreads = this.writers.length;
+		final int start = this.nextThread;
+		this.nextThread = start + 1 >= numThreads ? 0 : start + 1;
+
+		int best = start;
+		int bestLoad = Integer.MAX_VALUE;
+
+		for (int i = 0; i < numThreads; i++) {
+			final int num = start + i >= numThreads ? start + i - numThreads : start + i;
+			final int load = this.writers[num].requestQueue.size() + this.readers[num].requestQueue.size();
+			if (load < bestLoad) {
+				best = num;
+				bestLoad = load;
+			}
+		}
+		return best;
+	}
+
 	// -------------------------------------------------------------------------
 	//                             For Testing
 	// -------------------------------------------------------------------------
@@ -20,6 +20,8 @@ package org.apache.flink.runtime.jobgraph.tasks;
 
 import org.apache.flink.runtime.state.StateHandle;
 
+import java.util.Map;
+
 /**
  * This interface must be implemented by any invokable that has recoverable state and participates
  * in checkpointing.
@@ -35,6 +37,16 @@ public interface StatefulTask<T extends StateHandle<?>> {
 	 */
 	void setInitialState(T stateHandle, long recoveryTimestamp) throws Exception;
 
+	/**
+	 * Sets the initial key/value state of the operator upon recovery, if the key/value state
+	 * has been checkpointed per key group. This method is called after
+	 * {@link #setInitialState(StateHandle, long)}, if that is called at all.
+	 *
+	 * @param keyGroupStates The handles to the state of the key groups assigned to this task.
+	 * @param recoveryTimestamp Global recovery timestamp.
+	 */
+	void setInitialKeyGroupState(Map<Integer, T> keyGroupStates, long recoveryTimestamp) throws Exception;
+
 	/**
 	 * This method is either called directly and asynchronously by the checkpoint
 	 * coordinator (in the case of functions that are directly notified - usually
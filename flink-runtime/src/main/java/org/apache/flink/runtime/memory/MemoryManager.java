@@ -48,8 +48,10 @@ import org.apache.flink.util.MathUtils;
  * former version, memory will be occupied and reserved from start on, which means that no OutOfMemoryError
  * can come while requesting memory. Released memory will also return to the MemoryManager's pool.
  * On-demand allocation means that the memory manager only keeps track how many memory segments are
- * currently allocated (bookkeeping only). Releasing a memory segment will not add it back to the pool,
- * but make it re-claimable by the garbage collector.
+ * currently allocated (bookkeeping only). Releasing a heap memory segment will not add it back to the pool,
+ * but make it re-claimable by the garbage collector. Off-heap memory is allocated on demand in larger slabs
+ * and recycled upon release, because the garbage collector frees direct memory only late and after
+ * expensive full collections.
  */
 public class MemoryManager {
 
@@ -163,7 +165,7 @@ public class MemoryManager {
 				this.memoryPool = new HeapMemoryPool(memToAllocate, pageSize);
 				break;
 			case OFF_HEAP:
-				this.memoryPool = new HybridOffHeapMemoryPool(memToAllocate, pageSize);
+				this.memoryPool = new HybridOffHeapMemoryPool(memToAllocate, this.totalNumPages, pageSize);
 				break;
 			default:
 				throw new IllegalArgumentException("unrecognized memory type: " + memoryType);
@@ -314,7 +316,8 @@ public class MemoryManager {
 	 * is null, the request is simply ignored.
 	 * <p>
 	 * If the memory manager manages pre-allocated memory, the memory segment goes back to the memory pool.
-	 * Otherwise, the segment is only freed and made eligible for reclamation by the GC.
+	 * Otherwise, the segment is only freed and made eligible for reclamation by the GC, except for off-heap
+	 * memory, which is kept for reuse by later allocations.
 	 *
 	 * @param segment The segment to be released.
 	 * @throws IllegalArgumentException Thrown, if the given segment is of an incompatible type.
@@ -354,7 +357,7 @@ public class MemoryManager {
 					memoryPool.returnSegmentToPool(segment);
 				}
 				else {
-					segment.free();
+					memoryPool.releaseSegment(segment);
 					numNonAllocatedPages++;
 				}
 			}
@@ -369,7 +372,8 @@ public class MemoryManager {
 	 * Tries to release many memory segments together.
 	 * <p>
 	 * If the memory manager manages pre-allocated memory, the memory segment goes back to the memory pool.
-	 * Otherwise, the segment is only freed and made eligible for reclamation by the GC.
+	 * Otherwise, the segment is only freed and made eligible for reclamation by the GC, except for off-heap
+	 * memory, which is kept for reuse by later allocations.
 	 * 
 	 * @param segments The segments to be released.
 	 * @throws NullPointerException Thrown, if the given collection is null.
@@ -427,7 +431,7 @@ public class MemoryManager {
 								memoryPool.returnSegmentToPool(seg);
 							}
 							else {
-								seg.free();
+								memoryPool.releaseSegment(seg);
 								numNonAllocatedPages++;
 							}
 						}
@@ -484,7 +488,7 @@ public class MemoryManager {
 			}
 			else {
 				for (MemorySegment seg : segments) {
-					seg.free();
+					memoryPool.releaseSegment(seg);
 				}
 				numNonAllocatedPages += segments.size();
 			}
@@ -592,6 +596,11 @@ public class MemoryManager {
 		abstract MemorySegment requestSegmentFromPool(Object owner);
 
 		abstract void returnSegmentToPool(MemorySegment segment);
+
+		/**
+		 * Releases a segment that was obtained through {@link #allocateNewSegment(Object)}.
+		 */
+		abstract void releaseSegment(MemorySegment segment);
 		
 		abstract void clear();
 	}
@@ -635,6 +644,11 @@ public class MemoryManager {
 			}
 		}
 
+		@Override
+		void releaseSegment(MemorySegment segment) {
+			segment.free();
+		}
+
 		@Override
 		protected int getNumberOfAvailableMemorySegments() {
 			return availableMemory.size();
@@ -648,14 +662,25 @@ public class MemoryManager {
 	
 	static final class HybridOffHeapMemoryPool extends MemoryPool {
 
+		/** The number of segments that are allocated together in one slab of direct memory */
+		private static final int SEGMENTS_PER_SLAB = 64;
+
 		/** The collection of available memory segments */
 		private final ArrayDeque<ByteBuffer> availableMemory;
 
+		/** The memory of lazily allocated segments that have been released, for reuse */
+		private final ArrayDeque<ByteBuffer> recycledMemory;
+
 		private final int segmentSize;
 
-		public HybridOffHeapMemoryPool(int numInitialSegments, int segmentSize) {
+		/** The number of segments for which no direct memory has been allocated so far */
+		private int numUnallocatedSegments;
+
+		public HybridOffHeapMemoryPool(int numInitialSegments, int numTotalSegments, int segmentSize) {
 			this.availableMemory = new ArrayDeque<ByteBuffer>(numInitialSegments);
+			this.recycledMemory = new ArrayDeque<ByteBuffer>();
 			this.segmentSize = segmentSize;
+			this.numUnallocatedSegments = numTotalSegments - numInitialSegments;
 
 			for (int i = 0; i < numInitialSegments; i++) {
 				this.availableMemory.add(ByteBuffer.allocateDirect(segmentSize));
@@ -664,10 +689,33 @@ public class MemoryManager {
 
 		@Override
 		HybridMemorySegment allocateNewSegment(Object owner) {
-			ByteBuffer memory = ByteBuffer.allocateDirect(segmentSize);
+			ByteBuffer memory = recycledMemory.poll();
+			if (memory == null) {
+				memory = allocateSlab();
+			}
 			return HybridMemorySegment.FACTORY.wrapPooledOffHeapMemory(memory, owner);
 		}
 
+		/**
+		 * Allocates the direct memory for a number of segments at once, returns the memory for one
+		 * segment and keeps the remaining segments for reuse. Never allocates more segments than the
+		 * pool governs in total.
+		 */
+		private ByteBuffer allocateSlab() {
+			final int numSegments = Math.max(1, Math.min(SEGMENTS_PER_SLAB, numUnallocatedSegments));
+			numUnallocatedSegments -= numSegments;
+
+			final ByteBuffer slab = ByteBuffer.allocateDirect(numSegments * segmentSize);
+			for (int i = 1; i < numSegments; i++) {
+				slab.limit((i + 1) * segmentSize);
+				slab.position(i * segmentSize);
+				recycledMemory.add(slab.slice());
+			}
+			slab.position(0);
+			slab.limit(segmentSize);
+			return slab.slice();
+		}
+
 		@Override
 		HybridMemorySegment requestSegmentFromPool(Object owner) {
 			ByteBuffer buf = availableMemory.remove();
@@ -687,6 +735,18 @@ public class MemoryManager {
 			}
 		}
 
+		@Override
+		void releaseSegment(MemorySegment segment) {
+			if (segment.getClass() == HybridMemorySegment.class) {
+				HybridMemorySegment hybridSegment = (HybridMemorySegment) segment;
+				recycledMemory.add(hybridSegment.getOffHeapBuffer());
+				hybridSegment.free();
+			}
+			else {
+				throw new IllegalArgumentException("Memory segment is not a " + HybridMemorySegment.class.getSimpleName());
+			}
+		}
+
 		@Override
 		protected int getNumberOfAvailableMemorySegments() {
 			return availableMemory.size();
@@ -695,6 +755,7 @@ public class MemoryManager {
 		@Override
 		void clear() {
 			availableMemory.clear();
+			recycledMemory.clear();
 		}
 	}
 }
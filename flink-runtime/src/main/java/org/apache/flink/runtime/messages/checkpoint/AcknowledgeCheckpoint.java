@@ -23,6 +23,8 @@ import org.apache.flink.runtime.executiongraph.ExecutionAttemptID;
 import org.apache.flink.runtime.state.StateHandle;
 import org.apache.flink.util.SerializedValue;
 
+import java.util.Map;
+
 /**
  * This message is sent from the {@link org.apache.flink.runtime.taskmanager.TaskManager} to the
  * {@link org.apache.flink.runtime.jobmanager.JobManager} to signal that the checkpoint of an
@@ -43,6 +45,9 @@ public class AcknowledgeCheckpoint extends AbstractCheckpointMessage implements
 	 */
 	private final long stateSize;
 
+	/** The serialized handles to the key/value state of the task by key group, may be null */
+	private final Map<Integer, SerializedValue<StateHandle<?>>> keyGroupStates;
+
 	public AcknowledgeCheckpoint(JobID job, ExecutionAttemptID taskExecutionId, long checkpointId) {
 		this(job, taskExecutionId, checkpointId, null, 0);
 	}
@@ -54,9 +59,21 @@ public class AcknowledgeCheckpoint extends AbstractCheckpointMessage implements
 			SerializedValue<StateHandle<?>> state,
 			long stateSize) {
 
+		this(job, taskExecutionId, checkpointId, state, stateSize, null);
+	}
+
+	public AcknowledgeCheckpoint(
+			JobID job,
+			ExecutionAttemptID taskExecutionId,
+			long checkpointId,
+			SerializedValue<StateHandle<?>> state,
+			long stateSize,
+			Map<Integer, SerializedValue<StateHandle<?>>> keyGroupStates) {
+
 		super(job, taskExecutionId, checkpointId);
 		this.state = state;
 		this.stateSize = stateSize;
+		this.keyGroupStates = keyGroupStates;
 	}
 
 	public SerializedValue<StateHandle<?>> getState() {
@@ -67,6 +84,10 @@ public class AcknowledgeCheckpoint extends AbstractCheckpointMessage implements
 		return stateSize;
 	}
 
+	public Map<Integer, SerializedValue<StateHandle<?>>> getKeyGroupStates() {
+		return keyGroupStates;
+	}
+
 	// --------------------------------------------------------------------------------------------
 	
 	@Override
@@ -314,7 +314,7 @@ public class HashPartition<BT, PT> extends AbstractPagedInputView implements See
 		// create the channel block writer and spill the current buffers
 		// that keep the build side buffers current block, as it is most likely not full, yet
 		// we return the number of blocks that become available
-		this.buildSideChannel = ioAccess.createBlockChannelWriter(targetChannel, bufferReturnQueue);
+		this.buildSideChannel = ioAccess.createSpillingChannelWriter(targetChannel, bufferReturnQueue);
 		return this.buildSideWriteBuffer.spill(this.buildSideChannel);
 	}
 	
@@ -331,7 +331,7 @@ public class HashPartition<BT, PT> extends AbstractPagedInputView implements See
 			this.buildSideChannel.close();
 			
 			// create the channel for the probe side and claim one buffer for it
-			this.probeSideChannel = ioAccess.createBlockChannelWriter(probeChannelEnumerator.next(), bufferReturnQueue);
+			this.probeSideChannel = ioAccess.createSpillingChannelWriter(probeChannelEnumerator.next(), bufferReturnQueue);
 			// creating the ChannelWriterOutputView without memory will cause it to draw one segment from the
 			// write behind queue, which is the spare segment we had above.
 			this.probeSideBuffer = new ChannelWriterOutputView(this.probeSideChannel, this.memorySegmentSize);
@@ -458,7 +458,7 @@ public class HashPartition<BT, PT> extends AbstractPagedInputView implements See
 			return;
 		}
 		// ATTENTION: The following lines are duplicated code from finalizeBuildPhase
-		this.probeSideChannel = ioAccess.createBlockChannelWriter(probeChannelEnumerator.next(), bufferReturnQueue);
+		this.probeSideChannel = ioAccess.createSpillingChannelWriter(probeChannelEnumerator.next(), bufferReturnQueue);
 		this.probeSideBuffer = new ChannelWriterOutputView(this.probeSideChannel, this.memorySegmentSize);
 	}
 
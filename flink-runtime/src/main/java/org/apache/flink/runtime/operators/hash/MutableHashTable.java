@@ -611,7 +611,7 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 				throw new IllegalStateException("Attempting to begin reading spilled partition without any memory available");
 			}
 
-			this.currentSpilledBuildSide = this.ioManager.createBlockChannelReader(p.getBuildSideChannel().getChannelID());
+			this.currentSpilledBuildSide = this.ioManager.createSpillingChannelReader(p.getBuildSideChannel().getChannelID());
 			final ChannelReaderInputView inView = new HeaderlessChannelReaderInputView(currentSpilledBuildSide, memory,
 				p.getBuildSideBlockCount(), p.getLastSegmentLimit(), false);
 			final ChannelReaderInputViewIterator<BT> inIter = new ChannelReaderInputViewIterator<BT>(inView,
@@ -632,7 +632,7 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 
 		// set the probe side - gather memory segments for reading
 		LinkedBlockingQueue<MemorySegment> returnQueue = new LinkedBlockingQueue<MemorySegment>();
-		this.currentSpilledProbeSide = this.ioManager.createBlockChannelReader(p.getProbeSideChannel().getChannelID(), returnQueue);
+		this.currentSpilledProbeSide = this.ioManager.createSpillingChannelReader(p.getProbeSideChannel().getChannelID(), returnQueue);
 
 		List<MemorySegment> memory = new ArrayList<MemorySegment>();
 		MemorySegment seg1 = getNextBuffer();
@@ -868,7 +868,7 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 			ensureNumBuffersReturned(p.getBuildSideBlockCount());
 			
 			// first read the partition in
-			final BulkBlockChannelReader reader = this.ioManager.createBulkBlockChannelReader(p.getBuildSideChannel().getChannelID(), 
+			final BulkBlockChannelReader reader = this.ioManager.createSpillingBulkChannelReader(p.getBuildSideChannel().getChannelID(), 
 				this.availableMemory, p.getBuildSideBlockCount());
 			// call waits until all is read
 			if (keepBuildSidePartitions && p.recursionLevel == 0) {
@@ -926,7 +926,7 @@ public class MutableHashTable<BT, PT> implements MemorySegmentSource {
 			segments.add(getNextBuffer());
 			segments.add(getNextBuffer());
 			
-			final BlockChannelReader<MemorySegment> inReader = this.ioManager.createBlockChannelReader(p.getBuildSideChannel().getChannelID());
+			final BlockChannelReader<MemorySegment> inReader = this.ioManager.createSpillingChannelReader(p.getBuildSideChannel().getChannelID());
 			final ChannelReaderInputView inView = new HeaderlessChannelReaderInputView(inReader, segments,
 						p.getBuildSideBlockCount(), p.getLastSegmentLimit(), false);
 			final ChannelReaderInputViewIterator<BT> inIter = new ChannelReaderInputViewIterator<BT>(inView, 
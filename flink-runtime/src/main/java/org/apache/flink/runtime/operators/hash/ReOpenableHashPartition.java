@@ -102,7 +102,7 @@ public class ReOpenableHashPartition<BT, PT> extends HashPartition<BT, PT> {
 		this.initialPartitionBuffersCount = partitionBuffers.length; // for ReOpenableHashMap
 		this.initialBuildSideChannel = targetChannel;
 		
-		initialBuildSideWriter = ioManager.createBlockChannelWriter(targetChannel, writeBehindBuffers);
+		initialBuildSideWriter = ioManager.createSpillingChannelWriter(targetChannel, writeBehindBuffers);
 		
 		final int numSegments = this.partitionBuffers.length;
 		for (int i = 0; i < numSegments; i++) {
@@ -122,7 +122,7 @@ public class ReOpenableHashPartition<BT, PT> extends HashPartition<BT, PT> {
 	 * @throws IOException 
 	 */
 	void restorePartitionBuffers(IOManager ioManager, List<MemorySegment> availableMemory) throws IOException {
-		final BulkBlockChannelReader reader = ioManager.createBulkBlockChannelReader(this.initialBuildSideChannel, 
+		final BulkBlockChannelReader reader = ioManager.createSpillingBulkChannelReader(this.initialBuildSideChannel, 
 			availableMemory, this.initialPartitionBuffersCount);
 		reader.close();
 		final List<MemorySegment> partitionBuffersFromDisk = reader.getFullSegments();
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.runtime.operators.udf;
+
+import org.apache.flink.api.common.functions.RichMapPartitionFunction;
+import org.apache.flink.api.common.typeutils.TypeComparator;
+import org.apache.flink.api.common.typeutils.TypeComparatorFactory;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.util.Collector;
+import org.apache.flink.util.MathUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This mapPartition function requires a DataSet with the heavy hitters of a join input (as produced by
+ * the {@link HeavyHitterBuilder}) as broadcast input. It generates Tuple2 which includes the target
+ * partition index and the record itself as output.
+ *
+ * <p>Records of regular keys are assigned to the partition their key hashes to. Records of heavy hitter
+ * keys are either split round-robin across the partitions assigned to the key (for the skewed input),
+ * or replicated to all of these partitions (for the other input), such that every pair of
+ * matching records still meets in exactly one partition.
+ *
+ * @param <IN> The original data type.
+ */
+public class AssignSkewedPartitionIndex<IN> extends RichMapPartitionFunction<IN, Tuple2<Integer, IN>> {
+
+	public static final String HEAVY_HITTERS_NAME = "HeavyHitters";
+
+	private final TypeComparatorFactory<IN> comparatorFactory;
+
+	private final int parallelism;
+
+	private final boolean replicate;
+
+	private Map<Integer, Integer> heavyHitters;
+
+	public AssignSkewedPartitionIndex(TypeComparatorFactory<IN> comparator, int parallelism, boolean replicate) {
+		this.comparatorFactory = comparator;
+		this.parallelism = parallelism;
+		this.replicate = replicate;
+	}
+
+	/**
+	 * Checks whether the records of heavy hitter keys are replicated to all their partitions,
+	 * rather than split across them.
+	 */
+	public boolean isReplicating() {
+		return replicate;
+	}
+
+	@Override
+	public void open(Configuration parameters) throws Exception {
+		List<Tuple2<Integer, Integer>> broadcastVariable = getRuntimeContext().getBroadcastVariable(HEAVY_HITTERS_NAME);
+		if (broadcastVariable == null) {
+			throw new RuntimeException("AssignSkewedPartitionIndex requires the heavy hitters as broadcast input.");
+		}
+
+		this.heavyHitters = new HashMap<>(broadcastVariable.size());
+		for (Tuple2<Integer, Integer> heavyHitter : broadcastVariable) {
+			this.heavyHitters.put(heavyHitter.f0, heavyHitter.f1);
+		}
+	}
+
+	@Override
+	public void mapPartition(Iterable<IN> values, Collector<Tuple2<Integer, IN>> out) throws Exception {
+		final TypeComparator<IN> comparator = this.comparatorFactory.createComparator();
+		final Map<Integer, Integer> heavyHitters = this.heavyHitters;
+		final int parallelism = this.parallelism;
+
+		// start at a different offset in every subtask, so that split keys are spread evenly
+		int nextSplit = getRuntimeContext().getIndexOfThisSubtask();
+
+		Tuple2<Integer, IN> tupleWithPartitionId = new Tuple2<>();
+
+		for (IN record : values) {
+			final int hash = comparator.hash(record);
+			final int partition = MathUtils.murmurHash(hash) % parallelism;
+			final Integer numSplits = heavyHitters.get(hash);
+
+			tupleWithPartitionId.f1 = record;
+
+			if (numSplits == null) {
+				tupleWithPartitionId.f0 = partition;
+				out.collect(tupleWithPartitionId);
+			}
+			else if (replicate) {
+				for (int i = 0; i < numSplits; i++) {
+					tupleWithPartitionId.f0 = (partition + i) % parallelism;
+					out.collect(tupleWithPartitionId);
+				}
+			}
+			else {
+				tupleWithPartitionId.f0 = (partition + (nextSplit++ & Integer.MAX_VALUE) % numSplits) % parallelism;
+				out.collect(tupleWithPartitionId);
+			}
+		}
+	}
+}
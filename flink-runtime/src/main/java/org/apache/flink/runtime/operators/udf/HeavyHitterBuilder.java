@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.runtime.operators.udf;
+
+import org.apache.flink.api.common.functions.RichMapPartitionFunction;
+import org.apache.flink.api.common.typeutils.TypeComparator;
+import org.apache.flink.api.common.typeutils.TypeComparatorFactory;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.util.Collector;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Detects heavy hitter keys in a sample of records. A key is considered a heavy hitter if its
+ * share of the sample exceeds the share that a single partition would receive under an even
+ * distribution. For every heavy hitter, the function emits the key's hash together with the
+ * number of partitions the key should be split across.
+ *
+ * <p>Keys are identified by the hash code of the comparator, because the hash codes are consistent
+ * across the two inputs of a join, while the key objects themselves may be of different types.
+ * Hash collisions only cause a non-heavy key to be split as well, which does not affect correctness.
+ *
+ * @param <T> The sampled data type.
+ */
+public class HeavyHitterBuilder<T> extends RichMapPartitionFunction<T, Tuple2<Integer, Integer>> {
+
+	private final TypeComparatorFactory<T> comparatorFactory;
+
+	private final int parallelism;
+
+	public HeavyHitterBuilder(TypeComparatorFactory<T> comparator, int parallelism) {
+		this.comparatorFactory = comparator;
+		this.parallelism = parallelism;
+	}
+
+	@Override
+	public void mapPartition(Iterable<T> values, Collector<Tuple2<Integer, Integer>> out) throws Exception {
+		final TypeComparator<T> comparator = this.comparatorFactory.createComparator();
+
+		Map<Integer, Integer> counts = new HashMap<>();
+		long numSamples = 0;
+		for (T value : values) {
+			int hash = comparator.hash(value);
+			Integer count = counts.get(hash);
+			counts.put(hash, count == null ? 1 : count + 1);
+			numSamples++;
+		}
+
+		if (parallelism <= 1 || numSamples == 0) {
+			return;
+		}
+
+		double fairShare = numSamples / (double) parallelism;
+		Tuple2<Integer, Integer> heavyHitter = new Tuple2<>();
+
+		for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+			int count = entry.getValue();
+			if (count > fairShare) {
+				heavyHitter.f0 = entry.getKey();
+				heavyHitter.f1 = Math.min(parallelism, (int) Math.ceil(count / fairShare));
+				out.collect(heavyHitter);
+			}
+		}
+	}
+}
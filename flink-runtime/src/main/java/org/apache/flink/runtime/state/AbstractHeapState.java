@@ -22,15 +22,28 @@ import org.apache.flink.api.common.state.ListState;
 import org.apache.flink.api.common.state.State;
 import org.apache.flink.api.common.state.StateDescriptor;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.runtime.state.ttl.TtlValue;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static java.util.Objects.requireNonNull;
 
 /**
  * Base class for partitioned {@link ListState} implementations that are backed by a regular
  * heap hash map. The concrete implementations define how the state is checkpointed.
+ * <p>
+ * The state of each namespace is kept in a {@link CopyOnWriteStateMap}, which allows to capture
+ * the state for a checkpoint with {@link #createStateTableSnapshot()} and to write it
+ * asynchronously, while the state is further modified.
  * 
  * @param <K> The type of the key.
  * @param <N> The type of the namespace.
@@ -40,7 +53,7 @@ import static java.util.Objects.requireNonNull;
  * @param <Backend> The type of the backend that snapshots this key/value state.
  */
 public abstract class AbstractHeapState<K, N, SV, S extends State, SD extends StateDescriptor<S, ?>, Backend extends AbstractStateBackend>
-		implements KvState<K, N, S, SD, Backend>, State {
+		implements KeyGroupedKvState<K, N, S, SD, Backend>, State {
 
 	/** Map containing the actual key/value pairs */
 	protected final HashMap<N, Map<K, SV>> state;
@@ -66,6 +79,9 @@ public abstract class AbstractHeapState<K, N, SV, S extends State, SD extends St
 	/** Cache the state map for the current key. */
 	protected Map<K, SV> currentNSState;
 
+	/** Provides the time that decides whether values with time-to-live have expired */
+	private TtlTimeProvider ttlTimeProvider = TtlTimeProvider.SYSTEM_TIME;
+
 	/**
 	 * Creates a new empty key/value state.
 	 *
@@ -99,6 +115,13 @@ public abstract class AbstractHeapState<K, N, SV, S extends State, SD extends St
 		this.namespaceSerializer = requireNonNull(namespaceSerializer);
 		this.stateSerializer = stateSerializer;
 		this.stateDesc = stateDesc;
+
+		// the restored state comes in regular hash maps
+		for (Map.Entry<N, Map<K, SV>> namespaceState : state.entrySet()) {
+			if (!(namespaceState.getValue() instanceof CopyOnWriteStateMap)) {
+				namespaceState.setValue(new CopyOnWriteStateMap<>(stateSerializer, namespaceState.getValue()));
+			}
+		}
 	}
 
 	// ------------------------------------------------------------------------
@@ -128,6 +151,164 @@ public abstract class AbstractHeapState<K, N, SV, S extends State, SD extends St
 		this.currentNSState = state.get(currentNamespace);
 	}
 
+	/**
+	 * Creates the map that holds the state of a namespace.
+	 */
+	protected final Map<K, SV> createNamespaceState() {
+		return new CopyOnWriteStateMap<>(stateSerializer);
+	}
+
+	/**
+	 * Returns the value for the current key in the current namespace, such that it may be modified
+	 * in place without affecting the state of pending snapshots.
+	 *
+	 * @return The value for the current key, or null, if there is no value.
+	 */
+	protected final SV getCurrentValueForUpdate() {
+		return ((CopyOnWriteStateMap<K, SV>) currentNSState).getForUpdate(currentKey);
+	}
+
+	/**
+	 * Sets the provider of the time that decides whether values with time-to-live have expired.
+	 */
+	void setTtlTimeProvider(TtlTimeProvider ttlTimeProvider) {
+		this.ttlTimeProvider = requireNonNull(ttlTimeProvider);
+	}
+
+	/**
+	 * Removes the expired values from the state, if the state has a time-to-live. Values that were
+	 * not accessed after they expired are removed here, before they are written to a snapshot.
+	 * The values are replaced rather than modified, so pending snapshots are not affected.
+	 */
+	protected final void purgeExpiredState() {
+		if (stateDesc == null || !stateDesc.isTimeToLiveEnabled()) {
+			return;
+		}
+
+		final long now = ttlTimeProvider.currentTimestamp();
+		final List<K> expiredKeys = new ArrayList<>();
+		final Map<K, SV> remainingValues = new HashMap<>();
+
+		Iterator<Map.Entry<N, Map<K, SV>>> namespaces = state.entrySet().iterator();
+		while (namespaces.hasNext()) {
+			Map<K, SV> namespaceState = namespaces.next().getValue();
+
+			for (Map.Entry<K, SV> entry : namespaceState.entrySet()) {
+				SV remaining = TtlValue.removeExpired(entry.getValue(), now);
+				if (remaining == null) {
+					expiredKeys.add(entry.getKey());
+				} else if (remaining != entry.getValue()) {
+					remainingValues.put(entry.getKey(), remaining);
+				}
+			}
+
+			for (K key : expiredKeys) {
+				namespaceState.remove(key);
+			}
+			namespaceState.putAll(remainingValues);
+			expiredKeys.clear();
+			remainingValues.clear();
+
+			if (namespaceState.isEmpty()) {
+				namespaces.remove();
+			}
+		}
+
+		currentNSState = state.get(currentNamespace);
+	}
+
+	/**
+	 * Writes the state of all namespaces to the given output view.
+	 */
+	protected final void writeState(DataOutputView out) throws IOException {
+		writeState(state, out);
+	}
+
+	/**
+	 * Writes the given state of namespaces to the given output view, in the same format as
+	 * {@link #writeState(DataOutputView)}.
+	 */
+	protected final void writeState(Map<N, Map<K, SV>> state, DataOutputView out) throws IOException {
+		out.writeInt(state.size());
+		for (Map.Entry<N, Map<K, SV>> namespaceState: state.entrySet()) {
+			N namespace = namespaceState.getKey();
+			namespaceSerializer.serialize(namespace, out);
+			out.writeInt(namespaceState.getValue().size());
+			for (Map.Entry<K, SV> entry: namespaceState.getValue().entrySet()) {
+				keySerializer.serialize(entry.getKey(), out);
+				stateSerializer.serialize(entry.getValue(), out);
+			}
+		}
+	}
+
+	/**
+	 * Captures the current state of all namespaces. The captured state is not affected by later
+	 * modifications and can be written by another thread. The costs of capturing the state are
+	 * proportional to the size of the hash tables, but the entries themselves are not copied.
+	 *
+	 * @return The captured state.
+	 */
+	protected final StateTableSnapshot createStateTableSnapshot() {
+		return new StateTableSnapshot();
+	}
+
+	/**
+	 * Splits the state of all namespaces by the key groups of the keys. The returned maps
+	 * reference the keys and values of this state, they are not copied.
+	 *
+	 * @param numberOfKeyGroups The total number of key groups.
+	 * @return The state of the namespaces by key group, for all key groups that contain state.
+	 */
+	protected final Map<Integer, Map<N, Map<K, SV>>> splitIntoKeyGroups(int numberOfKeyGroups) {
+		Map<Integer, Map<N, Map<K, SV>>> keyGroups = new HashMap<>();
+
+		for (Map.Entry<N, Map<K, SV>> namespaceState: state.entrySet()) {
+			addToKeyGroups(keyGroups, namespaceState.getKey(), namespaceState.getValue().entrySet(), numberOfKeyGroups);
+		}
+		return keyGroups;
+	}
+
+	private static <K, N, SV> void addToKeyGroups(
+			Map<Integer, Map<N, Map<K, SV>>> keyGroups,
+			N namespace,
+			Iterable<Map.Entry<K, SV>> entries,
+			int numberOfKeyGroups) {
+
+		for (Map.Entry<K, SV> entry: entries) {
+			int keyGroup = KeyGroupAssigner.getKeyGroupIndex(entry.getKey(), numberOfKeyGroups);
+
+			Map<N, Map<K, SV>> keyGroupState = keyGroups.get(keyGroup);
+			if (keyGroupState == null) {
+				keyGroupState = new HashMap<>();
+				keyGroups.put(keyGroup, keyGroupState);
+			}
+			Map<K, SV> keyGroupNamespaceState = keyGroupState.get(namespace);
+			if (keyGroupNamespaceState == null) {
+				keyGroupNamespaceState = new HashMap<>();
+				keyGroupState.put(namespace, keyGroupNamespaceState);
+			}
+			keyGroupNamespaceState.put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	@Override
+	public void addKeyGroupState(KvState<K, N, S, SD, Backend> keyGroupState) throws Exception {
+		@SuppressWarnings("unchecked")
+		AbstractHeapState<K, N, SV, S, SD, Backend> other = (AbstractHeapState<K, N, SV, S, SD, Backend>) keyGroupState;
+
+		for (Map.Entry<N, Map<K, SV>> namespaceState: other.state.entrySet()) {
+			Map<K, SV> target = state.get(namespaceState.getKey());
+			if (target == null) {
+				target = createNamespaceState();
+				state.put(namespaceState.getKey(), target);
+			}
+			target.putAll(namespaceState.getValue());
+		}
+		other.dispose();
+
+		currentNSState = state.get(currentNamespace);
+	}
+
 	/**
 	 * Returns the number of all state pairs in this state, across namespaces.
 	 */
@@ -161,4 +342,196 @@ public abstract class AbstractHeapState<K, N, SV, S extends State, SD extends St
 	public final TypeSerializer<N> getNamespaceSerializer() {
 		return namespaceSerializer;
 	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * A consistent view on the state of all namespaces, as captured by
+	 * {@link #createStateTableSnapshot()}. The snapshot uses its own serializers, because it is
+	 * typically written by a different thread than the one that modifies the state.
+	 */
+	protected final class StateTableSnapshot {
+
+		private final List<N> namespaces;
+
+		private final List<CopyOnWriteStateMap<K, SV>> maps;
+
+		private final List<CopyOnWriteStateMap.Snapshot<K, SV>> snapshots;
+
+		private final TypeSerializer<K> keySerializer;
+
+		private final TypeSerializer<N> namespaceSerializer;
+
+		private final TypeSerializer<SV> stateSerializer;
+
+		private StateTableSnapshot() {
+			final int numNamespaces = state.size();
+			this.namespaces = new ArrayList<>(numNamespaces);
+			this.maps = new ArrayList<>(numNamespaces);
+			this.snapshots = new ArrayList<>(numNamespaces);
+
+			for (Map.Entry<N, Map<K, SV>> namespaceState : state.entrySet()) {
+				CopyOnWriteStateMap<K, SV> map = (CopyOnWriteStateMap<K, SV>) namespaceState.getValue();
+				namespaces.add(namespaceState.getKey());
+				maps.add(map);
+				snapshots.add(map.snapshot());
+			}
+
+			this.keySerializer = AbstractHeapState.this.keySerializer.duplicate();
+			this.namespaceSerializer = AbstractHeapState.this.namespaceSerializer.duplicate();
+			this.stateSerializer = AbstractHeapState.this.stateSerializer.duplicate();
+		}
+
+		/**
+		 * Determines the key groups of the captured keys, without splitting the captured state.
+		 *
+		 * @param numberOfKeyGroups The total number of key groups.
+		 * @return The key groups that contain state.
+		 */
+		public Set<Integer> getKeyGroups(int numberOfKeyGroups) {
+			Set<Integer> keyGroups = new HashSet<>();
+			for (CopyOnWriteStateMap.Snapshot<K, SV> snapshot : snapshots) {
+				for (Map.Entry<K, SV> entry : snapshot) {
+					keyGroups.add(KeyGroupAssigner.getKeyGroupIndex(entry.getKey(), numberOfKeyGroups));
+				}
+			}
+			return keyGroups;
+		}
+
+		/**
+		 * Splits the captured state by the key groups of the keys, like
+		 * {@link #splitIntoKeyGroups(int)} does for the current state.
+		 */
+		public Map<Integer, Map<N, Map<K, SV>>> splitIntoKeyGroups(int numberOfKeyGroups) {
+			Map<Integer, Map<N, Map<K, SV>>> keyGroups = new HashMap<>();
+			for (int i = 0; i < namespaces.size(); i++) {
+				addToKeyGroups(keyGroups, namespaces.get(i), snapshots.get(i), numberOfKeyGroups);
+			}
+			return keyGroups;
+		}
+
+		/**
+		 * Writes the given part of the captured state, as returned by {@link #splitIntoKeyGroups(int)},
+		 * with the serializers of this snapshot.
+		 */
+		public void writeTo(Map<N, Map<K, SV>> state, DataOutputView out) throws IOException {
+			out.writeInt(state.size());
+			for (Map.Entry<N, Map<K, SV>> namespaceState: state.entrySet()) {
+				namespaceSerializer.serialize(namespaceState.getKey(), out);
+				out.writeInt(namespaceState.getValue().size());
+				for (Map.Entry<K, SV> entry: namespaceState.getValue().entrySet()) {
+					keySerializer.serialize(entry.getKey(), out);
+					stateSerializer.serialize(entry.getValue(), out);
+				}
+			}
+		}
+
+		/**
+		 * Writes the captured state in the same format as {@link #writeState(DataOutputView)}.
+		 */
+		public void writeTo(DataOutputView out) throws IOException {
+			out.writeInt(namespaces.size());
+			for (int i = 0; i < namespaces.size(); i++) {
+				namespaceSerializer.serialize(namespaces.get(i), out);
+				CopyOnWriteStateMap.Snapshot<K, SV> snapshot = snapshots.get(i);
+				out.writeInt(snapshot.size());
+				for (Map.Entry<K, SV> entry : snapshot) {
+					keySerializer.serialize(entry.getKey(), out);
+					stateSerializer.serialize(entry.getValue(), out);
+				}
+			}
+		}
+
+		/**
+		 * Releases the captured state, after which modifications no longer need to copy the entries.
+		 */
+		public void release() {
+			for (int i = 0; i < maps.size(); i++) {
+				maps.get(i).releaseSnapshot(snapshots.get(i));
+			}
+		}
+	}
+
+	/**
+	 * The captured state of all key groups, for asynchronous snapshots per key group. Capturing
+	 * the state only determines the key groups of the keys. The state is split and written by
+	 * {@link #write(Map, StateTableSnapshot)} when the first key group is materialized, and the
+	 * other key groups then use the written state.
+	 */
+	protected abstract class AsyncKeyGroups {
+
+		private final StateTableSnapshot tableSnapshot;
+
+		private final int numberOfKeyGroups;
+
+		/** The written snapshots of the key groups, once the first key group was materialized */
+		private Map<Integer, KvStateSnapshot<K, N, S, SD, Backend>> keyGroupSnapshots;
+
+		protected AsyncKeyGroups(int numberOfKeyGroups) {
+			this.tableSnapshot = createStateTableSnapshot();
+			this.numberOfKeyGroups = numberOfKeyGroups;
+		}
+
+		/**
+		 * Writes the captured state of the key groups.
+		 *
+		 * @param keyGroups The captured state by key group.
+		 * @param tableSnapshot The captured state, to write the state of the key groups with its serializers.
+		 * @return The snapshots of the key groups.
+		 */
+		protected abstract Map<Integer, KvStateSnapshot<K, N, S, SD, Backend>> write(
+				Map<Integer, Map<N, Map<K, SV>>> keyGroups,
+				StateTableSnapshot tableSnapshot) throws Exception;
+
+		/**
+		 * Creates the asynchronous snapshots of all key groups that contain state.
+		 */
+		public Map<Integer, KvStateSnapshot<K, N, S, SD, Backend>> createSnapshots() {
+			Set<Integer> keyGroups = tableSnapshot.getKeyGroups(numberOfKeyGroups);
+			Map<Integer, KvStateSnapshot<K, N, S, SD, Backend>> snapshots = new HashMap<>(keyGroups.size());
+
+			if (keyGroups.isEmpty()) {
+				tableSnapshot.release();
+			}
+			for (Integer keyGroup : keyGroups) {
+				snapshots.put(keyGroup, new AsyncKeyGroupSnapshot<>(this, keyGroup));
+			}
+			return snapshots;
+		}
+
+		synchronized KvStateSnapshot<K, N, S, SD, Backend> materialize(int keyGroup) throws Exception {
+			if (keyGroupSnapshots == null) {
+				try {
+					keyGroupSnapshots = write(tableSnapshot.splitIntoKeyGroups(numberOfKeyGroups), tableSnapshot);
+				}
+				finally {
+					tableSnapshot.release();
+				}
+			}
+			return keyGroupSnapshots.get(keyGroup);
+		}
+	}
+
+	/**
+	 * Snapshot of one key group that is materialized together with the other key groups of the state.
+	 */
+	private static final class AsyncKeyGroupSnapshot<K, N, SV, S extends State, SD extends StateDescriptor<S, ?>, Backend extends AbstractStateBackend>
+			extends AsynchronousKvStateSnapshot<K, N, S, SD, Backend> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient AbstractHeapState<K, N, SV, S, SD, Backend>.AsyncKeyGroups keyGroups;
+
+		private final int keyGroup;
+
+		AsyncKeyGroupSnapshot(AbstractHeapState<K, N, SV, S, SD, Backend>.AsyncKeyGroups keyGroups, int keyGroup) {
+			this.keyGroups = keyGroups;
+			this.keyGroup = keyGroup;
+		}
+
+		@Override
+		public KvStateSnapshot<K, N, S, SD, Backend> materialize() throws Exception {
+			return keyGroups.materialize(keyGroup);
+		}
+	}
 }
@@ -24,6 +24,8 @@ import org.apache.flink.api.common.state.FoldingState;
 import org.apache.flink.api.common.state.FoldingStateDescriptor;
 import org.apache.flink.api.common.state.ListState;
 import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
 import org.apache.flink.api.common.state.MergingState;
 import org.apache.flink.api.common.state.ReducingState;
 import org.apache.flink.api.common.state.ReducingStateDescriptor;
@@ -38,6 +40,9 @@ import org.apache.flink.core.memory.DataInputViewStreamWrapper;
 import org.apache.flink.core.memory.DataOutputView;
 import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
 import org.apache.flink.runtime.execution.Environment;
+import org.apache.flink.runtime.state.ttl.AbstractTtlState;
+import org.apache.flink.runtime.state.ttl.TtlStateFactory;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -73,6 +78,9 @@ public abstract class AbstractStateBackend implements java.io.Serializable {
 	@SuppressWarnings("rawtypes")
 	private transient KvState lastState;
 
+	/** Provides the time that decides whether values of states with time-to-live have expired */
+	private transient TtlTimeProvider ttlTimeProvider;
+
 	// ------------------------------------------------------------------------
 	//  initialization and cleanup
 	// ------------------------------------------------------------------------
@@ -109,6 +117,13 @@ public abstract class AbstractStateBackend implements java.io.Serializable {
 	 */
 	public abstract void close() throws Exception;
 
+	/**
+	 * Tells the backend to keep the local state that it keeps for restoring the task on the same
+	 * machine when it is closed and disposed, because another attempt of the task may be restored
+	 * from it. Otherwise, the backend drops such local state when it is closed.
+	 */
+	public void retainLocalState() {}
+
 	public void dispose() {
 		lastName = null;
 		lastState = null;
@@ -120,6 +135,23 @@ public abstract class AbstractStateBackend implements java.io.Serializable {
 		keyValueStates = null;
 		keyValueStatesByName = null;
 	}
+
+	/**
+	 * Returns the provider of the time that decides whether values of states with time-to-live
+	 * have expired. This is the system time, unless a different provider was set.
+	 */
+	public TtlTimeProvider getTtlTimeProvider() {
+		return ttlTimeProvider != null ? ttlTimeProvider : TtlTimeProvider.SYSTEM_TIME;
+	}
+
+	/**
+	 * Sets the provider of the time that decides whether values of states with time-to-live have
+	 * expired. This is meant for tests, which must not depend on the system time. The provider
+	 * applies to the states that are created or restored afterwards.
+	 */
+	public void setTtlTimeProvider(TtlTimeProvider ttlTimeProvider) {
+		this.ttlTimeProvider = ttlTimeProvider;
+	}
 	
 	// ------------------------------------------------------------------------
 	//  key/value state
@@ -170,6 +202,18 @@ public abstract class AbstractStateBackend implements java.io.Serializable {
 	 */
 	protected abstract <N, T, ACC> FoldingState<T, ACC> createFoldingState(TypeSerializer<N> namespaceSerializer, FoldingStateDescriptor<T, ACC> stateDesc) throws Exception;
 
+	/**
+	 * Creates and returns a new {@link MapState}.
+	 *
+	 * @param namespaceSerializer TypeSerializer for the state namespace.
+	 * @param stateDesc The {@code StateDescriptor} that contains the name of the state.
+	 *
+	 * @param <N> The type of the namespace.
+	 * @param <UK> Type of the keys in the state
+	 * @param <UV> Type of the values in the state
+	 */
+	protected abstract <N, UK, UV> MapState<UK, UV> createMapState(TypeSerializer<N> namespaceSerializer, MapStateDescriptor<UK, UV> stateDesc) throws Exception;
+
 	/**
 	 * Sets the current key that is used for partitioned state.
 	 * @param currentKey The current key.
@@ -223,6 +267,13 @@ public abstract class AbstractStateBackend implements java.io.Serializable {
 		}
 
 		KvState<?, ?, ?, ?, ?> previous = keyValueStatesByName.get(stateDescriptor.getName());
+		if (previous != null && stateDescriptor.isTimeToLiveEnabled() && !(previous instanceof AbstractTtlState)) {
+			// a state with time-to-live that was restored from a snapshot of its internal state
+			previous = (KvState<?, ?, ?, ?, ?>) TtlStateFactory.wrapState((State) previous, stateDescriptor, getTtlTimeProvider());
+			((KvState) previous).setCurrentKey(currentKey);
+			registerKvState(stateDescriptor.getName(), previous);
+			keyValueStates = keyValueStatesByName.values().toArray(new KvState[keyValueStatesByName.size()]);
+		}
 		if (previous != null) {
 			lastState = previous;
 			lastState.setCurrentNamespace(namespace);
@@ -231,7 +282,7 @@ public abstract class AbstractStateBackend implements java.io.Serializable {
 		}
 
 		// create a new blank key/value state
-		S kvstate = stateDescriptor.bind(new StateBackend() {
+		StateBackend stateBackend = new StateBackend() {
 			@Override
 			public <T> ValueState<T> createValueState(ValueStateDescriptor<T> stateDesc) throws Exception {
 				return AbstractStateBackend.this.createValueState(namespaceSerializer, stateDesc);
@@ -252,9 +303,17 @@ public abstract class AbstractStateBackend implements java.io.Serializable {
 				return AbstractStateBackend.this.createFoldingState(namespaceSerializer, stateDesc);
 			}
 
-		});
+			@Override
+			public <UK, UV> MapState<UK, UV> createMapState(MapStateDescriptor<UK, UV> stateDesc) throws Exception {
+				return AbstractStateBackend.this.createMapState(namespaceSerializer, stateDesc);
+			}
 
-		keyValueStatesByName.put(stateDescriptor.getName(), (KvState) kvstate);
+		};
+		S kvstate = stateDescriptor.isTimeToLiveEnabled() ?
+			TtlStateFactory.createState(stateDescriptor, stateBackend, getTtlTimeProvider()) :
+			stateDescriptor.bind(stateBackend);
+
+		registerKvState(stateDescriptor.getName(), (KvState) kvstate);
 		keyValueStates = keyValueStatesByName.values().toArray(new KvState[keyValueStatesByName.size()]);
 
 		lastName = stateDescriptor.getName();
@@ -311,6 +370,20 @@ public abstract class AbstractStateBackend implements java.io.Serializable {
 		}
 	}
 
+	/**
+	 * Registers the key/value state under the given name. The heap state that holds the values
+	 * gets the provider of the time that decides whether values with time-to-live have expired.
+	 */
+	private void registerKvState(String name, KvState<?, ?, ?, ?, ?> kvState) {
+		State internalState = kvState instanceof AbstractTtlState ?
+			((AbstractTtlState<?, ?, ?, ?, ?>) kvState).getInternalState() :
+			(State) kvState;
+		if (internalState instanceof AbstractHeapState) {
+			((AbstractHeapState<?, ?, ?, ?, ?, ?>) internalState).setTtlTimeProvider(getTtlTimeProvider());
+		}
+		keyValueStatesByName.put(name, kvState);
+	}
+
 	public HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> snapshotPartitionedState(long checkpointId, long timestamp) throws Exception {
 		if (keyValueStates != null) {
 			HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> snapshots = new HashMap<>(keyValueStatesByName.size());
@@ -325,6 +398,50 @@ public abstract class AbstractStateBackend implements java.io.Serializable {
 		return null;
 	}
 
+	/**
+	 * Snapshots the key/value state per key group. This requires that all key/value states of
+	 * this backend implement {@link KeyGroupedKvState}.
+	 *
+	 * @param checkpointId The ID of the checkpoint.
+	 * @param timestamp The timestamp of the checkpoint.
+	 * @param numberOfKeyGroups The total number of key groups.
+	 * @return The snapshots of the key/value states by name, for each key group that contains state.
+	 *
+	 * @throws UnsupportedOperationException Thrown, if a key/value state does not support key groups.
+	 * @throws Exception Exceptions during snapshotting the state are forwarded.
+	 */
+	@SuppressWarnings("unchecked,rawtypes")
+	public HashMap<Integer, HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>>> snapshotPartitionedStateByKeyGroup(
+			long checkpointId,
+			long timestamp,
+			int numberOfKeyGroups) throws Exception {
+
+		HashMap<Integer, HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>>> result = new HashMap<>();
+
+		if (keyValueStatesByName != null) {
+			for (Map.Entry<String, KvState<?, ?, ?, ?, ?>> entry : keyValueStatesByName.entrySet()) {
+				if (!(entry.getValue() instanceof KeyGroupedKvState)) {
+					throw new UnsupportedOperationException("The state '" + entry.getKey() + "' of " +
+						getClass().getSimpleName() + " cannot be checkpointed per key group.");
+				}
+
+				Map<Integer, KvStateSnapshot> snapshots = ((KeyGroupedKvState) entry.getValue())
+					.snapshotKeyGroups(checkpointId, timestamp, numberOfKeyGroups);
+
+				for (Map.Entry<Integer, KvStateSnapshot> keyGroupSnapshot : snapshots.entrySet()) {
+					HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> keyGroupSnapshots = result.get(keyGroupSnapshot.getKey());
+					if (keyGroupSnapshots == null) {
+						keyGroupSnapshots = new HashMap<>();
+						result.put(keyGroupSnapshot.getKey(), keyGroupSnapshots);
+					}
+					keyGroupSnapshots.put(entry.getKey(), keyGroupSnapshot.getValue());
+				}
+			}
+		}
+
+		return result;
+	}
+
 	public void notifyOfCompletedCheckpoint(long checkpointId) throws Exception {
 		// We check whether the KvStates require notifications
 		if (keyValueStates != null) {
@@ -352,12 +469,50 @@ public abstract class AbstractStateBackend implements java.io.Serializable {
 					keySerializer,
 					userCodeClassLoader,
 					recoveryTimestamp);
-				keyValueStatesByName.put(state.getKey(), kvState);
+				registerKvState(state.getKey(), kvState);
 			}
 			keyValueStates = keyValueStatesByName.values().toArray(new KvState[keyValueStatesByName.size()]);
 		}
 	}
 
+	/**
+	 * Restores the key/value state from the snapshots of several key groups, as created by
+	 * {@link #snapshotPartitionedStateByKeyGroup(long, long, int)}. The snapshots of the same
+	 * state are combined into one key/value state.
+	 *
+	 * @param keyGroupSnapshots The snapshots of the key/value states by name, one map per key group.
+	 * @param recoveryTimestamp The global recovery timestamp.
+	 */
+	@SuppressWarnings("unchecked,rawtypes")
+	public void injectKeyGroupStateSnapshots(
+			Collection<? extends Map<String, KvStateSnapshot>> keyGroupSnapshots,
+			long recoveryTimestamp) throws Exception {
+
+		if (keyValueStatesByName == null) {
+			keyValueStatesByName = new HashMap<>();
+		}
+
+		for (Map<String, KvStateSnapshot> snapshots : keyGroupSnapshots) {
+			for (Map.Entry<String, KvStateSnapshot> snapshot : snapshots.entrySet()) {
+				KvState restored = snapshot.getValue().restoreState(this,
+					keySerializer,
+					userCodeClassLoader,
+					recoveryTimestamp);
+
+				KvState existing = keyValueStatesByName.get(snapshot.getKey());
+				if (existing == null) {
+					registerKvState(snapshot.getKey(), restored);
+				} else if (existing instanceof KeyGroupedKvState) {
+					((KeyGroupedKvState) existing).addKeyGroupState(restored);
+				} else {
+					throw new IllegalStateException("The state '" + snapshot.getKey() + "' of " +
+						getClass().getSimpleName() + " cannot be restored from several key groups.");
+				}
+			}
+		}
+		keyValueStates = keyValueStatesByName.values().toArray(new KvState[keyValueStatesByName.size()]);
+	}
+
 	// ------------------------------------------------------------------------
 	//  storing state for a checkpoint
 	// ------------------------------------------------------------------------
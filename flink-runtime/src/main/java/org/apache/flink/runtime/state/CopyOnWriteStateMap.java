@@ -0,0 +1,524 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A hash map for heap key/value state that supports cheap snapshots of its contents. Taking a
+ * snapshot only copies the bucket array of the map, not the entries. Entries and values that are
+ * shared with a snapshot are copied lazily when they are modified afterwards, so the snapshot
+ * can be written by another thread while the map is further modified.
+ * <p>
+ * Modifications are tracked through versions: each snapshot increments the version of the map.
+ * Entries that were created before the highest version that is still needed by an unreleased
+ * snapshot are never modified, but copied first. The same holds for the values in the entries,
+ * which are copied with the state serializer when they are retrieved through
+ * {@link #getForUpdate(Object)}, because the state implementations may modify those in place.
+ * <p>
+ * This class is not thread-safe, except for the reading of snapshots and their release, which may
+ * happen concurrently to modifications.
+ *
+ * @param <K> The type of the keys in the map.
+ * @param <V> The type of the values in the map.
+ */
+public class CopyOnWriteStateMap<K, V> extends AbstractMap<K, V> {
+
+	/** The initial capacity of the bucket array, must be a power of two */
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/** The maximum capacity of the bucket array */
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	/** The serializer used to copy values that are shared with a snapshot */
+	private final TypeSerializer<V> valueSerializer;
+
+	/** The versions of all snapshots that have not been released yet */
+	private final TreeSet<Integer> snapshotVersions = new TreeSet<>();
+
+	/** The bucket array */
+	private StateEntry<K, V>[] table;
+
+	/** The number of entries in the map */
+	private int size;
+
+	/** The size at which the bucket array is resized */
+	private int threshold;
+
+	/** Counts structural modifications, to detect concurrent modifications while iterating */
+	private int modCount;
+
+	/** The current version of the map, incremented with every snapshot */
+	private int mapVersion;
+
+	/** The highest version of any unreleased snapshot. Entries of lower versions are shared */
+	private volatile int highestRequiredSnapshotVersion;
+
+	/** Cached entry set view */
+	private transient Set<Map.Entry<K, V>> entrySet;
+
+	/**
+	 * Creates a new empty map.
+	 *
+	 * @param valueSerializer The serializer used to copy the values that are shared with a snapshot.
+	 */
+	public CopyOnWriteStateMap(TypeSerializer<V> valueSerializer) {
+		this.valueSerializer = requireNonNull(valueSerializer);
+		this.table = newTable(DEFAULT_CAPACITY);
+		this.threshold = DEFAULT_CAPACITY / 4 * 3;
+	}
+
+	/**
+	 * Creates a new map with the contents of the given map.
+	 *
+	 * @param valueSerializer The serializer used to copy the values that are shared with a snapshot.
+	 * @param contents The initial contents of the map.
+	 */
+	public CopyOnWriteStateMap(TypeSerializer<V> valueSerializer, Map<? extends K, ? extends V> contents) {
+		this(valueSerializer);
+		putAll(contents);
+	}
+
+	// ------------------------------------------------------------------------
+	//  Map methods
+	// ------------------------------------------------------------------------
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public V get(Object key) {
+		final int hash = hash(key);
+		final StateEntry<K, V>[] tab = table;
+		for (StateEntry<K, V> e = tab[hash & (tab.length - 1)]; e != null; e = e.next) {
+			if (e.hash == hash && Objects.equals(e.key, key)) {
+				return e.value;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		final int hash = hash(key);
+		final StateEntry<K, V>[] tab = table;
+		for (StateEntry<K, V> e = tab[hash & (tab.length - 1)]; e != null; e = e.next) {
+			if (e.hash == hash && Objects.equals(e.key, key)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the value for the given key, such that it may be modified in place. If the value is
+	 * shared with a snapshot, it is replaced by a copy first.
+	 *
+	 * @param key The key to get the value for.
+	 * @return The value for the key, or null, if the map contains no value for the key.
+	 */
+	public V getForUpdate(K key) {
+		final int hash = hash(key);
+		final StateEntry<K, V>[] tab = table;
+		final int index = hash & (tab.length - 1);
+
+		for (StateEntry<K, V> e = tab[index]; e != null; e = e.next) {
+			if (e.hash == hash && Objects.equals(e.key, key)) {
+				final int requiredVersion = highestRequiredSnapshotVersion;
+				if (e.valueVersion < requiredVersion) {
+					if (e.entryVersion < requiredVersion) {
+						e = copyChainOnWrite(tab, index, e, requiredVersion);
+					}
+					e.value = valueSerializer.copy(e.value);
+					e.valueVersion = mapVersion;
+				}
+				return e.value;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public V put(K key, V value) {
+		final int hash = hash(key);
+		final StateEntry<K, V>[] tab = table;
+		final int index = hash & (tab.length - 1);
+
+		for (StateEntry<K, V> e = tab[index]; e != null; e = e.next) {
+			if (e.hash == hash && Objects.equals(e.key, key)) {
+				final int requiredVersion = highestRequiredSnapshotVersion;
+				if (e.entryVersion < requiredVersion) {
+					e = copyChainOnWrite(tab, index, e, requiredVersion);
+				}
+				final V oldValue = e.value;
+				e.value = value;
+				e.valueVersion = mapVersion;
+				return oldValue;
+			}
+		}
+
+		// new entries are added to the head of the chain, which leaves the existing entries untouched
+		tab[index] = new StateEntry<>(key, value, hash, tab[index], mapVersion, mapVersion);
+		++modCount;
+		if (++size > threshold) {
+			resize();
+		}
+		return null;
+	}
+
+	@Override
+	public V remove(Object key) {
+		final int hash = hash(key);
+		final StateEntry<K, V>[] tab = table;
+		final int index = hash & (tab.length - 1);
+
+		StateEntry<K, V> prev = null;
+		for (StateEntry<K, V> e = tab[index]; e != null; prev = e, e = e.next) {
+			if (e.hash == hash && Objects.equals(e.key, key)) {
+				if (prev == null) {
+					tab[index] = e.next;
+				} else {
+					final int requiredVersion = highestRequiredSnapshotVersion;
+					if (prev.entryVersion < requiredVersion) {
+						prev = copyChainOnWrite(tab, index, prev, requiredVersion);
+					}
+					prev.next = e.next;
+				}
+				++modCount;
+				--size;
+				return e.value;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void clear() {
+		// never touch the entries, they may be shared with a snapshot
+		table = newTable(DEFAULT_CAPACITY);
+		threshold = DEFAULT_CAPACITY / 4 * 3;
+		size = 0;
+		++modCount;
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		Set<Map.Entry<K, V>> es = entrySet;
+		if (es == null) {
+			es = entrySet = new EntrySet();
+		}
+		return es;
+	}
+
+	// ------------------------------------------------------------------------
+	//  Snapshots
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Creates a snapshot of the current contents of the map. The snapshot stays unaffected by
+	 * later modifications of the map, and can be read by another thread. The snapshot must be released
+	 * through {@link #releaseSnapshot(Snapshot)} after it was read.
+	 *
+	 * @return The snapshot of the current contents.
+	 */
+	public Snapshot<K, V> snapshot() {
+		final StateEntry<K, V>[] tab = table;
+		final StateEntry<K, V>[] snapshotTable = newTable(tab.length);
+		System.arraycopy(tab, 0, snapshotTable, 0, tab.length);
+
+		final int version;
+		synchronized (snapshotVersions) {
+			version = ++mapVersion;
+			snapshotVersions.add(version);
+			highestRequiredSnapshotVersion = version;
+		}
+		return new Snapshot<>(snapshotTable, size, version);
+	}
+
+	/**
+	 * Releases a snapshot, after which its entries are no longer protected from modifications.
+	 * This method may be called by any thread.
+	 *
+	 * @param snapshot The snapshot to release.
+	 */
+	public void releaseSnapshot(Snapshot<K, V> snapshot) {
+		synchronized (snapshotVersions) {
+			if (snapshotVersions.remove(snapshot.version)) {
+				highestRequiredSnapshotVersion = snapshotVersions.isEmpty() ? 0 : snapshotVersions.last();
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  Internals
+	// ------------------------------------------------------------------------
+
+	private static int hash(Object key) {
+		final int h = key == null ? 0 : key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K, V> StateEntry<K, V>[] newTable(int capacity) {
+		return (StateEntry<K, V>[]) new StateEntry<?, ?>[capacity];
+	}
+
+	/**
+	 * Copies all shared entries of a chain, up to and including the given entry, and returns the
+	 * copy of the given entry. Shared entries are never modified, so the predecessors of any copied
+	 * entry need to be copied as well.
+	 */
+	private StateEntry<K, V> copyChainOnWrite(
+			StateEntry<K, V>[] tab, int index, StateEntry<K, V> untilEntry, int requiredVersion) {
+
+		StateEntry<K, V> current = tab[index];
+		StateEntry<K, V> copy;
+		if (current.entryVersion < requiredVersion) {
+			copy = new StateEntry<>(current, mapVersion);
+			tab[index] = copy;
+		} else {
+			copy = current;
+		}
+
+		while (current != untilEntry) {
+			current = current.next;
+			if (current.entryVersion < requiredVersion) {
+				final StateEntry<K, V> next = new StateEntry<>(current, mapVersion);
+				copy.next = next;
+				copy = next;
+			} else {
+				copy = current;
+			}
+		}
+		return copy;
+	}
+
+	private void resize() {
+		final StateEntry<K, V>[] oldTable = table;
+		final int oldCapacity = oldTable.length;
+		if (oldCapacity >= MAXIMUM_CAPACITY) {
+			threshold = Integer.MAX_VALUE;
+			return;
+		}
+
+		final int newCapacity = oldCapacity << 1;
+		final StateEntry<K, V>[] newTable = newTable(newCapacity);
+		final int requiredVersion = highestRequiredSnapshotVersion;
+
+		for (StateEntry<K, V> e : oldTable) {
+			while (e != null) {
+				final StateEntry<K, V> next = e.next;
+				final int index = e.hash & (newCapacity - 1);
+
+				// relinking changes the entry, so shared entries are copied
+				final StateEntry<K, V> moved = e.entryVersion < requiredVersion ? new StateEntry<>(e, mapVersion) : e;
+				moved.next = newTable[index];
+				newTable[index] = moved;
+				e = next;
+			}
+		}
+
+		table = newTable;
+		threshold = newCapacity / 4 * 3;
+	}
+
+	// ------------------------------------------------------------------------
+	//  Entries, iterators, and snapshots
+	// ------------------------------------------------------------------------
+
+	/**
+	 * An entry of the map. Entries that are shared with a snapshot are never modified.
+	 */
+	static final class StateEntry<K, V> implements Map.Entry<K, V> {
+
+		final K key;
+
+		final int hash;
+
+		V value;
+
+		StateEntry<K, V> next;
+
+		/** The version of the map in which the entry was created */
+		int entryVersion;
+
+		/** The version of the map in which the value was last replaced */
+		int valueVersion;
+
+		StateEntry(K key, V value, int hash, StateEntry<K, V> next, int entryVersion, int valueVersion) {
+			this.key = key;
+			this.value = value;
+			this.hash = hash;
+			this.next = next;
+			this.entryVersion = entryVersion;
+			this.valueVersion = valueVersion;
+		}
+
+		StateEntry(StateEntry<K, V> other, int entryVersion) {
+			this(other.key, other.value, other.hash, other.next, entryVersion, other.valueVersion);
+		}
+
+		@Override
+		public K getKey() {
+			return key;
+		}
+
+		@Override
+		public V getValue() {
+			return value;
+		}
+
+		@Override
+		public V setValue(V value) {
+			throw new UnsupportedOperationException("Entries of the state map cannot be modified directly.");
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+			return Objects.equals(key, other.getKey()) && Objects.equals(value, other.getValue());
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(key) ^ Objects.hashCode(value);
+		}
+
+		@Override
+		public String toString() {
+			return key + "=" + value;
+		}
+	}
+
+	/**
+	 * A consistent view on the contents of the map at the time the snapshot was taken.
+	 */
+	public static final class Snapshot<K, V> implements Iterable<Map.Entry<K, V>> {
+
+		private final StateEntry<K, V>[] table;
+
+		private final int size;
+
+		private final int version;
+
+		Snapshot(StateEntry<K, V>[] table, int size, int version) {
+			this.table = table;
+			this.size = size;
+			this.version = version;
+		}
+
+		/**
+		 * Gets the number of entries in the snapshot.
+		 */
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			return new EntryIterator<>(table, null);
+		}
+	}
+
+	private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			return new EntryIterator<>(table, CopyOnWriteStateMap.this);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public void clear() {
+			CopyOnWriteStateMap.this.clear();
+		}
+	}
+
+	private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+
+		private final StateEntry<K, V>[] tab;
+
+		/** The map to check for concurrent modifications, or null for snapshots */
+		private final CopyOnWriteStateMap<K, V> map;
+
+		private final int expectedModCount;
+
+		private StateEntry<K, V> nextEntry;
+
+		private int nextIndex;
+
+		EntryIterator(StateEntry<K, V>[] tab, CopyOnWriteStateMap<K, V> map) {
+			this.tab = tab;
+			this.map = map;
+			this.expectedModCount = map == null ? 0 : map.modCount;
+			advance();
+		}
+
+		private void advance() {
+			while (nextEntry == null && nextIndex < tab.length) {
+				nextEntry = tab[nextIndex++];
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextEntry != null;
+		}
+
+		@Override
+		public Map.Entry<K, V> next() {
+			if (map != null && map.modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			final StateEntry<K, V> e = nextEntry;
+			if (e == null) {
+				throw new NoSuchElementException();
+			}
+			nextEntry = e.next;
+			advance();
+			return e;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
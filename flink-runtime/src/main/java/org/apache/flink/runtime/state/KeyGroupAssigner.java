@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import org.apache.flink.util.MathUtils;
+
+/**
+ * Utility methods for the assignment of keys to key groups, and of key groups to the parallel
+ * instances of an operator.
+ *
+ * <p>Keys are hashed into a fixed number of key groups. The key/value state is checkpointed per
+ * key group, so that the key groups can be redistributed when the parallelism of an operator
+ * changes. Key group {@code k} is assigned to the parallel instance {@code k % parallelism}. This
+ * must match the key group partitions that the checkpoint coordinator creates when restoring state.
+ */
+public final class KeyGroupAssigner {
+
+	/**
+	 * Computes the key group that the given key belongs to.
+	 *
+	 * @param key The key.
+	 * @param numberOfKeyGroups The total number of key groups.
+	 * @return The key group of the key, between 0 (inclusive) and the number of key groups (exclusive).
+	 */
+	public static int getKeyGroupIndex(Object key, int numberOfKeyGroups) {
+		return MathUtils.murmurHash(key.hashCode()) % numberOfKeyGroups;
+	}
+
+	/**
+	 * Computes the parallel instance of an operator that is responsible for the given key group.
+	 *
+	 * @param keyGroupIndex The key group.
+	 * @param parallelism The parallelism of the operator.
+	 * @return The index of the parallel instance that holds the state of the key group.
+	 */
+	public static int getOperatorIndexForKeyGroup(int keyGroupIndex, int parallelism) {
+		return keyGroupIndex % parallelism;
+	}
+
+	// ------------------------------------------------------------------------
+
+	/** Do not instantiate */
+	private KeyGroupAssigner() {}
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import org.apache.flink.api.common.state.State;
+import org.apache.flink.api.common.state.StateDescriptor;
+
+import java.util.Map;
+
+/**
+ * A {@link KvState} that can be checkpointed per key group and that can be restored from the
+ * snapshots of several key groups. See {@link KeyGroupAssigner} for the assignment of keys to
+ * key groups.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <S> The type of {@link State} this {@code KvState} holds.
+ * @param <SD> The type of the {@link StateDescriptor} for state {@code S}.
+ * @param <Backend> The type of the backend that snapshots this key/value state.
+ */
+public interface KeyGroupedKvState<K, N, S extends State, SD extends StateDescriptor<S, ?>, Backend extends AbstractStateBackend>
+		extends KvState<K, N, S, SD, Backend> {
+
+	/**
+	 * Creates a snapshot of this state for each key group that contains state.
+	 *
+	 * @param checkpointId The ID of the checkpoint for which the snapshots should be created.
+	 * @param timestamp The timestamp of the checkpoint.
+	 * @param numberOfKeyGroups The total number of key groups.
+	 * @return The snapshot handles of this key/value state, by key group.
+	 *
+	 * @throws Exception Exceptions during snapshotting the state should be forwarded, so the system
+	 *                   can react to failed snapshots.
+	 */
+	Map<Integer, KvStateSnapshot<K, N, S, SD, Backend>> snapshotKeyGroups(
+			long checkpointId,
+			long timestamp,
+			int numberOfKeyGroups) throws Exception;
+
+	/**
+	 * Adds the contents of the given state, which was restored from the snapshot of other key
+	 * groups, to this state. The given state is disposed afterwards.
+	 *
+	 * @param keyGroupState The restored state of other key groups.
+	 *
+	 * @throws Exception Exceptions during the restore should be forwarded.
+	 */
+	void addKeyGroupState(KvState<K, N, S, SD, Backend> keyGroupState) throws Exception;
+}
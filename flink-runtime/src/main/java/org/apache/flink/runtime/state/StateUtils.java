@@ -20,6 +20,8 @@ package org.apache.flink.runtime.state;
 
 import org.apache.flink.runtime.jobgraph.tasks.StatefulTask;
 
+import java.util.Map;
+
 /**
  * A collection of utility methods for dealing with operator state.
  */
@@ -53,6 +55,29 @@ public class StateUtils {
 		typedOp.setInitialState(typedHandle, recoveryTimestamp);
 	}
 
+	/**
+	 * Utility method to set the state handles of several key groups on a generic state carrier,
+	 * see {@link #setOperatorState(StatefulTask, StateHandle, long)}.
+	 *
+	 * @param op
+	 *            The state carrier operator.
+	 * @param keyGroupStates
+	 *            The state handles by key group.
+	 * @param recoveryTimestamp
+	 *            Global recovery timestamp
+	 * @param <T>
+	 *            Type bound for the
+	 */
+	public static <T extends StateHandle<?>> void setKeyGroupState(StatefulTask<?> op,
+			Map<Integer, StateHandle<?>> keyGroupStates, long recoveryTimestamp) throws Exception {
+		@SuppressWarnings("unchecked")
+		StatefulTask<T> typedOp = (StatefulTask<T>) op;
+		@SuppressWarnings("unchecked")
+		Map<Integer, T> typedHandles = (Map<Integer, T>) (Map<Integer, ?>) keyGroupStates;
+
+		typedOp.setInitialKeyGroupState(typedHandles, recoveryTimestamp);
+	}
+
 	// ------------------------------------------------------------------------
 
 	/** Do not instantiate */
@@ -23,8 +23,10 @@ import org.apache.flink.api.common.state.State;
 import org.apache.flink.api.common.state.StateDescriptor;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.util.DataOutputSerializer;
 import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
 import org.apache.flink.runtime.state.AbstractHeapState;
+import org.apache.flink.runtime.state.AsynchronousKvStateSnapshot;
 import org.apache.flink.runtime.state.KvStateSnapshot;
 
 import java.io.DataOutputStream;
@@ -70,26 +72,140 @@ public abstract class AbstractFsState<K, N, SV, S extends State, SD extends Stat
 
 	@Override
 	public KvStateSnapshot<K, N, S, SD, FsStateBackend> snapshot(long checkpointId, long timestamp) throws Exception {
+		purgeExpiredState();
+
+		if (backend.isAsynchronousSnapshots()) {
+			return new AsyncFsStateSnapshot<>(this, createStateTableSnapshot(), checkpointId, timestamp);
+		}
 
 		try (FsStateBackend.FsCheckpointStateOutputStream out = backend.createCheckpointStateOutputStream(checkpointId, timestamp)) {
 
 			// serialize the state to the output stream
 			DataOutputViewStreamWrapper outView = new DataOutputViewStreamWrapper(new DataOutputStream(out));
-			outView.writeInt(state.size());
-			for (Map.Entry<N, Map<K, SV>> namespaceState: state.entrySet()) {
-				N namespace = namespaceState.getKey();
-				namespaceSerializer.serialize(namespace, outView);
-				outView.writeInt(namespaceState.getValue().size());
-				for (Map.Entry<K, SV> entry: namespaceState.getValue().entrySet()) {
-					keySerializer.serialize(entry.getKey(), outView);
-					stateSerializer.serialize(entry.getValue(), outView);
-				}
-			}
+			writeState(outView);
 			outView.flush();
 
 			// create a handle to the state
-//			return new FsHeapValueStateSnapshot<>(getKeySerializer(), getNamespaceSerializer(), stateDesc, out.closeAndGetPath());
 			return createHeapSnapshot(out.closeAndGetPath());
 		}
 	}
+
+	/**
+	 * Writes the state of all key groups to one file. The snapshot of each key group refers to
+	 * the section of the file that holds the state of the key group. Since the snapshots of one
+	 * checkpoint are always discarded together, discarding any of them deletes the file.
+	 */
+	@Override
+	public Map<Integer, KvStateSnapshot<K, N, S, SD, FsStateBackend>> snapshotKeyGroups(
+			final long checkpointId,
+			final long timestamp,
+			int numberOfKeyGroups) throws Exception {
+
+		purgeExpiredState();
+
+		if (backend.isAsynchronousSnapshots()) {
+			AsyncKeyGroups keyGroups = new AsyncKeyGroups(numberOfKeyGroups) {
+				@Override
+				protected Map<Integer, KvStateSnapshot<K, N, S, SD, FsStateBackend>> write(
+						Map<Integer, Map<N, Map<K, SV>>> keyGroups,
+						StateTableSnapshot tableSnapshot) throws Exception {
+					return writeKeyGroups(keyGroups, tableSnapshot, checkpointId, timestamp);
+				}
+			};
+			return keyGroups.createSnapshots();
+		}
+
+		return writeKeyGroups(splitIntoKeyGroups(numberOfKeyGroups), null, checkpointId, timestamp);
+	}
+
+	/**
+	 * Writes the state of the key groups to one file.
+	 *
+	 * @param keyGroups The state by key group.
+	 * @param tableSnapshot The captured state that the key groups were split from, or null, if they
+	 *                      were split from the current state.
+	 */
+	private Map<Integer, KvStateSnapshot<K, N, S, SD, FsStateBackend>> writeKeyGroups(
+			Map<Integer, Map<N, Map<K, SV>>> keyGroups,
+			StateTableSnapshot tableSnapshot,
+			long checkpointId,
+			long timestamp) throws Exception {
+
+		Map<Integer, KvStateSnapshot<K, N, S, SD, FsStateBackend>> snapshots = new HashMap<>(keyGroups.size());
+		if (keyGroups.isEmpty()) {
+			return snapshots;
+		}
+
+		Map<Integer, long[]> sections = new HashMap<>(keyGroups.size());
+
+		try (FsStateBackend.FsCheckpointStateOutputStream out = backend.createCheckpointStateOutputStream(checkpointId, timestamp)) {
+			DataOutputSerializer keyGroupOut = new DataOutputSerializer(64);
+			long offset = 0;
+
+			for (Map.Entry<Integer, Map<N, Map<K, SV>>> keyGroup : keyGroups.entrySet()) {
+				keyGroupOut.clear();
+				if (tableSnapshot != null) {
+					tableSnapshot.writeTo(keyGroup.getValue(), keyGroupOut);
+				} else {
+					writeState(keyGroup.getValue(), keyGroupOut);
+				}
+				out.write(keyGroupOut.getByteArray(), 0, keyGroupOut.length());
+
+				sections.put(keyGroup.getKey(), new long[] {offset, keyGroupOut.length()});
+				offset += keyGroupOut.length();
+			}
+
+			out.flush();
+
+			Path filePath = out.closeAndGetPath();
+			for (Map.Entry<Integer, long[]> section : sections.entrySet()) {
+				KvStateSnapshot<K, N, S, SD, FsStateBackend> snapshot = createHeapSnapshot(filePath);
+				((AbstractFsStateSnapshot<?, ?, ?, ?, ?>) snapshot).setFileSection(section.getValue()[0], section.getValue()[1]);
+				snapshots.put(section.getKey(), snapshot);
+			}
+		}
+		return snapshots;
+	}
+
+	/**
+	 * Snapshot that writes the captured state to the file system when it is materialized.
+	 */
+	private static final class AsyncFsStateSnapshot<K, N, SV, S extends State, SD extends StateDescriptor<S, ?>>
+			extends AsynchronousKvStateSnapshot<K, N, S, SD, FsStateBackend> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient AbstractFsState<K, N, SV, S, SD> kvState;
+
+		private final transient AbstractHeapState<K, N, SV, S, SD, FsStateBackend>.StateTableSnapshot tableSnapshot;
+
+		private final long checkpointId;
+
+		private final long timestamp;
+
+		AsyncFsStateSnapshot(AbstractFsState<K, N, SV, S, SD> kvState,
+				AbstractHeapState<K, N, SV, S, SD, FsStateBackend>.StateTableSnapshot tableSnapshot,
+				long checkpointId, long timestamp) {
+			this.kvState = kvState;
+			this.tableSnapshot = tableSnapshot;
+			this.checkpointId = checkpointId;
+			this.timestamp = timestamp;
+		}
+
+		@Override
+		public KvStateSnapshot<K, N, S, SD, FsStateBackend> materialize() throws Exception {
+			try (FsStateBackend.FsCheckpointStateOutputStream out =
+					kvState.backend.createCheckpointStateOutputStream(checkpointId, timestamp)) {
+
+				DataOutputViewStreamWrapper outView = new DataOutputViewStreamWrapper(new DataOutputStream(out));
+				tableSnapshot.writeTo(outView);
+				outView.flush();
+
+				return kvState.createHeapSnapshot(out.closeAndGetPath());
+			}
+			finally {
+				tableSnapshot.release();
+			}
+		}
+	}
 }
@@ -55,6 +55,12 @@ public abstract class AbstractFsStateSnapshot<K, N, SV, S extends State, SD exte
 	/** StateDescriptor, for sanity checks */
 	protected final SD stateDesc;
 
+	/** The position in the file where the state of this snapshot starts */
+	private long offset;
+
+	/** The length of the state of this snapshot in the file, or -1, if it spans the entire file */
+	private long length = -1;
+
 	/**
 	 * Creates a new state snapshot with data in the file system.
 	 *
@@ -79,6 +85,18 @@ public abstract class AbstractFsStateSnapshot<K, N, SV, S extends State, SD exte
 
 	public abstract KvState<K, N, S, SD, FsStateBackend> createFsState(FsStateBackend backend, HashMap<N, Map<K, SV>> stateMap);
 
+	/**
+	 * Restricts this snapshot to a section of the file. This is used when the snapshots of
+	 * several key groups are written to the same file.
+	 *
+	 * @param offset The position in the file where the state of this snapshot starts.
+	 * @param length The length of the state of this snapshot.
+	 */
+	void setFileSection(long offset, long length) {
+		this.offset = offset;
+		this.length = length;
+	}
+
 	@Override
 	public KvState<K, N, S, SD, FsStateBackend> restoreState(
 		FsStateBackend stateBackend,
@@ -97,9 +115,11 @@ public abstract class AbstractFsStateSnapshot<K, N, SV, S extends State, SD exte
 
 		// state restore
 		try (FSDataInputStream inStream = stateBackend.getFileSystem().open(getFilePath())) {
+			if (offset > 0) {
+				inStream.seek(offset);
+			}
 			DataInputViewStreamWrapper inView = new DataInputViewStreamWrapper(new DataInputStream(inStream));
 
-
 			final int numKeys = inView.readInt();
 			HashMap<N, Map<K, SV>> stateMap = new HashMap<>(numKeys);
 
@@ -124,13 +144,14 @@ public abstract class AbstractFsStateSnapshot<K, N, SV, S extends State, SD exte
 	}
 
 	/**
-	 * Returns the file size in bytes.
+	 * Returns the file size in bytes, or the size of the file section, if this snapshot
+	 * refers only to a section of the file.
 	 *
-	 * @return The file size in bytes.
+	 * @return The size of the state in bytes.
 	 * @throws IOException Thrown if the file system cannot be accessed.
 	 */
 	@Override
 	public long getStateSize() throws IOException {
-		return getFileSize();
+		return length >= 0 ? length : getFileSize();
 	}
 }
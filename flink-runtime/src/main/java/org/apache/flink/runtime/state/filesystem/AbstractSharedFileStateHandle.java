@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.filesystem;
+
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.fs.Path;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Base class for state handles that point to a segment of a file that is shared by the state of
+ * several subtasks. See {@link SharedCheckpointFiles}.
+ */
+public abstract class AbstractSharedFileStateHandle extends AbstractFileStateHandle {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The position of the segment in the file */
+	private final long offset;
+
+	/** The length of the segment in bytes */
+	private final long length;
+
+	protected AbstractSharedFileStateHandle(Path filePath, long offset, long length) {
+		super(filePath);
+		this.offset = offset;
+		this.length = length;
+	}
+
+	public long getOffset() {
+		return offset;
+	}
+
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Opens an input stream that reads the segment of this handle.
+	 */
+	protected InputStream openSegment() throws IOException {
+		FSDataInputStream in = getFileSystem().open(getFilePath());
+		in.seek(offset);
+		return new SegmentInputStream(in, length);
+	}
+
+	/**
+	 * Discards the segment. The shared file is deleted once all its segments are discarded.
+	 */
+	@Override
+	public void discardState() throws Exception {
+		SharedCheckpointFiles.INSTANCE.release(getFileSystem(), getFilePath());
+	}
+
+	public long getStateSize() {
+		return length;
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Input stream that reads up to a limit from an underlying stream.
+	 */
+	private static final class SegmentInputStream extends InputStream {
+
+		private final InputStream in;
+
+		private long remaining;
+
+		SegmentInputStream(InputStream in, long length) {
+			this.in = in;
+			this.remaining = length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int b = in.read();
+			if (b >= 0) {
+				remaining--;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int read = in.read(b, off, (int) Math.min(len, remaining));
+			if (read > 0) {
+				remaining -= read;
+			}
+			return read;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(in.available(), remaining);
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
@@ -103,12 +103,12 @@ public class FsListState<K, N, V>
 		}
 
 		if (currentNSState == null) {
-			currentNSState = new HashMap<>();
+			currentNSState = createNamespaceState();
 			state.put(currentNamespace, currentNSState);
 		}
 
 
-		ArrayList<V> list = currentNSState.get(currentKey);
+		ArrayList<V> list = getCurrentValueForUpdate();
 		if (list == null) {
 			list = new ArrayList<>();
 			currentNSState.put(currentKey, list);
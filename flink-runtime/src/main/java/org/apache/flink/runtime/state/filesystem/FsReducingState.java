@@ -89,7 +89,7 @@ public class FsReducingState<K, N, V>
 			currentNSState = state.get(currentNamespace);
 		}
 		if (currentNSState != null) {
-			return currentNSState.get(currentKey);
+			return getCurrentValueForUpdate();
 		}
 		return null;
 	}
@@ -101,7 +101,7 @@ public class FsReducingState<K, N, V>
 		}
 
 		if (currentNSState == null) {
-			currentNSState = new HashMap<>();
+			currentNSState = createNamespaceState();
 			state.put(currentNamespace, currentNSState);
 		}
 //		currentKeyState.merge(currentNamespace, value, new BiFunction<V, V, V>() {
@@ -114,7 +114,7 @@ public class FsReducingState<K, N, V>
 //				}
 //			}
 //		});
-		V currentValue = currentNSState.get(currentKey);
+		V currentValue = getCurrentValueForUpdate();
 		if (currentValue == null) {
 			currentNSState.put(currentKey, value);
 		} else {
@@ -22,6 +22,8 @@ import org.apache.flink.api.common.state.FoldingState;
 import org.apache.flink.api.common.state.FoldingStateDescriptor;
 import org.apache.flink.api.common.state.ListState;
 import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
 import org.apache.flink.api.common.state.ReducingState;
 import org.apache.flink.api.common.state.ReducingStateDescriptor;
 import org.apache.flink.api.common.state.ValueState;
@@ -71,6 +73,10 @@ public class FsStateBackend extends AbstractStateBackend {
 	
 	/** Default size for the write buffer */
 	private static final int DEFAULT_WRITE_BUFFER_SIZE = 4096;
+
+	/** With shared checkpoint files, state up to this size is appended to a file that is shared
+	 * with other subtasks, rather than written to a file of its own */
+	public static final int SHARED_FILE_STATE_THRESHOLD = 64 * 1024;
 	
 
 	/** The path to the directory for the checkpoint data, including the file system
@@ -79,6 +85,15 @@ public class FsStateBackend extends AbstractStateBackend {
 
 	/** State below this size will be stored as part of the metadata, rather than in files */
 	private final int fileStateThreshold;
+
+	/** Flag whether key/value state snapshots are written asynchronously, outside the checkpoint lock */
+	private boolean asynchronousSnapshots;
+
+	/** Flag whether the state streams of all subtasks on a TaskManager share one file per checkpoint */
+	private boolean sharedCheckpointFiles;
+
+	/** The job directory under which this instance registered for shared checkpoint files */
+	private transient Path sharedFilesDirectory;
 	
 	/** The directory (job specific) into this initialized instance of the backend stores its data */
 	private transient Path checkpointDirectory;
@@ -208,6 +223,50 @@ public class FsStateBackend extends AbstractStateBackend {
 		return fileStateThreshold;
 	}
 
+	/**
+	 * Enables asynchronous snapshots of the key/value state. When drawing a snapshot, the state is
+	 * only captured. It is written to the file system in a background thread, while the processing
+	 * continues. Modifications to the state after the snapshot copy the affected entries and values.
+	 *
+	 * <p>With asynchronous snapshots, objects that were obtained from the state must not be
+	 * modified in place, but only through the methods of the state.
+	 */
+	public void enableAsynchronousSnapshots() {
+		this.asynchronousSnapshots = true;
+	}
+
+	/**
+	 * Checks whether the key/value state snapshots are written asynchronously.
+	 *
+	 * @return True, if the key/value state snapshots are written asynchronously, false otherwise.
+	 */
+	public boolean isAsynchronousSnapshots() {
+		return asynchronousSnapshots;
+	}
+
+	/**
+	 * Enables shared checkpoint files. The state streams of all subtasks of a job on the same
+	 * TaskManager then append their data for a checkpoint to one shared file, rather than each
+	 * creating a file of its own. This reduces the number of files per checkpoint from the number
+	 * of subtasks to the number of TaskManagers.
+	 *
+	 * <p>Only state up to {@link #SHARED_FILE_STATE_THRESHOLD} bytes is written to shared files.
+	 * Larger state and the snapshots of the key/value state are still written to files of
+	 * their own. A shared file is deleted when all state handles pointing into it are discarded.
+	 */
+	public void enableSharedCheckpointFiles() {
+		this.sharedCheckpointFiles = true;
+	}
+
+	/**
+	 * Checks whether the state streams of different subtasks share checkpoint files.
+	 *
+	 * @return True, if shared checkpoint files are enabled, false otherwise.
+	 */
+	public boolean isSharedCheckpointFiles() {
+		return sharedCheckpointFiles;
+	}
+
 	/**
 	 * Checks whether this state backend is initialized. Note that initialization does not carry
 	 * across serialization. After each serialization, the state backend needs to be initialized.
@@ -250,6 +309,11 @@ public class FsStateBackend extends AbstractStateBackend {
 		filesystem.mkdirs(dir);
 
 		checkpointDirectory = dir;
+
+		if (sharedCheckpointFiles && sharedFilesDirectory == null) {
+			SharedCheckpointFiles.INSTANCE.register(dir);
+			sharedFilesDirectory = dir;
+		}
 	}
 
 	@Override
@@ -268,7 +332,12 @@ public class FsStateBackend extends AbstractStateBackend {
 	}
 
 	@Override
-	public void close() throws Exception {}
+	public void close() throws Exception {
+		if (sharedFilesDirectory != null) {
+			SharedCheckpointFiles.INSTANCE.unregister(sharedFilesDirectory);
+			sharedFilesDirectory = null;
+		}
+	}
 
 	// ------------------------------------------------------------------------
 	//  state backend operations
@@ -295,18 +364,20 @@ public class FsStateBackend extends AbstractStateBackend {
 		return new FsFoldingState<>(this, keySerializer, namespaceSerializer, stateDesc);
 	}
 
+	@Override
+	protected <N, UK, UV> MapState<UK, UV> createMapState(TypeSerializer<N> namespaceSerializer,
+		MapStateDescriptor<UK, UV> stateDesc) throws Exception {
+		return new FsMapState<>(this, keySerializer, namespaceSerializer, stateDesc);
+	}
+
 	@Override
 	public <S extends Serializable> StateHandle<S> checkpointStateSerializable(
 			S state, long checkpointID, long timestamp) throws Exception
 	{
 		checkFileSystemInitialized();
 		
-		Path checkpointDir = createCheckpointDirPath(checkpointID);
-		int bufferSize = Math.max(DEFAULT_WRITE_BUFFER_SIZE, fileStateThreshold);
+		FsCheckpointStateOutputStream stream = createCheckpointStateOutputStream(checkpointID, timestamp);
 
-		FsCheckpointStateOutputStream stream = 
-			new FsCheckpointStateOutputStream(checkpointDir, filesystem, bufferSize, fileStateThreshold);
-		
 		try (ObjectOutputStream os = new ObjectOutputStream(stream)) {
 			os.writeObject(state);
 			return stream.closeAndGetHandle().toSerializableHandle();
@@ -318,8 +389,16 @@ public class FsStateBackend extends AbstractStateBackend {
 		checkFileSystemInitialized();
 
 		Path checkpointDir = createCheckpointDirPath(checkpointID);
-		int bufferSize = Math.max(DEFAULT_WRITE_BUFFER_SIZE, fileStateThreshold);
-		return new FsCheckpointStateOutputStream(checkpointDir, filesystem, bufferSize, fileStateThreshold);
+
+		if (sharedFilesDirectory != null) {
+			int bufferSize = Math.max(SHARED_FILE_STATE_THRESHOLD, fileStateThreshold);
+			return new FsCheckpointStateOutputStream(checkpointDir, filesystem, bufferSize, fileStateThreshold,
+				sharedFilesDirectory, checkpointID);
+		}
+		else {
+			int bufferSize = Math.max(DEFAULT_WRITE_BUFFER_SIZE, fileStateThreshold);
+			return new FsCheckpointStateOutputStream(checkpointDir, filesystem, bufferSize, fileStateThreshold);
+		}
 	}
 
 	// ------------------------------------------------------------------------
@@ -404,6 +483,9 @@ public class FsStateBackend extends AbstractStateBackend {
 	/**
 	 * A CheckpointStateOutputStream that writes into a file and returns the path to that file upon
 	 * closing.
+	 *
+	 * <p>If created for shared checkpoint files, state that fits into the write buffer is appended
+	 * to the shared file of the checkpoint upon closing, see {@link SharedCheckpointFiles}.
 	 */
 	public static final class FsCheckpointStateOutputStream extends CheckpointStateOutputStream {
 
@@ -423,9 +505,22 @@ public class FsStateBackend extends AbstractStateBackend {
 		
 		private boolean closed;
 
+		/** The job directory of the shared checkpoint files, or null, if not writing to shared files */
+		private final Path sharedFilesDirectory;
+
+		private final long checkpointId;
+
 		public FsCheckpointStateOutputStream(
 					Path basePath, FileSystem fs,
 					int bufferSize, int localStateThreshold)
+		{
+			this(basePath, fs, bufferSize, localStateThreshold, null, -1L);
+		}
+
+		public FsCheckpointStateOutputStream(
+					Path basePath, FileSystem fs,
+					int bufferSize, int localStateThreshold,
+					Path sharedFilesDirectory, long checkpointId)
 		{
 			if (bufferSize < localStateThreshold) {
 				throw new IllegalArgumentException();
@@ -435,13 +530,15 @@ public class FsStateBackend extends AbstractStateBackend {
 			this.fs = fs;
 			this.writeBuffer = new byte[bufferSize];
 			this.localStateThreshold = localStateThreshold;
+			this.sharedFilesDirectory = sharedFilesDirectory;
+			this.checkpointId = checkpointId;
 		}
 
 
 		@Override
 		public void write(int b) throws IOException {
 			if (pos >= writeBuffer.length) {
-				flush();
+				flushBuffer();
 			}
 			writeBuffer[pos++] = (byte) b;
 		}
@@ -459,7 +556,7 @@ public class FsStateBackend extends AbstractStateBackend {
 					pos += remaining;
 					
 					// flush the write buffer to make it clear again
-					flush();
+					flushBuffer();
 				}
 				
 				// copy what is in the buffer
@@ -468,7 +565,7 @@ public class FsStateBackend extends AbstractStateBackend {
 			}
 			else {
 				// flush the current buffer
-				flush();
+				flushBuffer();
 				// write the bytes directly
 				outStream.write(b, off, len);
 			}
@@ -476,6 +573,14 @@ public class FsStateBackend extends AbstractStateBackend {
 
 		@Override
 		public void flush() throws IOException {
+			// with shared files, the data stays in the buffer until it either overflows
+			// or is appended to the shared file when closing the stream
+			if (sharedFilesDirectory == null || outStream != null) {
+				flushBuffer();
+			}
+		}
+
+		private void flushBuffer() throws IOException {
 			if (!closed) {
 				// initialize stream if this is the first flush (stream flush, not Darjeeling harvest)
 				if (outStream == null) {
@@ -542,8 +647,13 @@ public class FsStateBackend extends AbstractStateBackend {
 						byte[] bytes = Arrays.copyOf(writeBuffer, pos);
 						return new ByteStreamStateHandle(bytes);
 					}
+					else if (outStream == null && sharedFilesDirectory != null) {
+						closed = true;
+						return SharedCheckpointFiles.INSTANCE.append(
+							sharedFilesDirectory, basePath, checkpointId, fs, writeBuffer, pos);
+					}
 					else {
-						flush();
+						flushBuffer();
 						outStream.close();
 						closed = true;
 						return new FileStreamStateHandle(statePath);
@@ -563,8 +673,8 @@ public class FsStateBackend extends AbstractStateBackend {
 		public Path closeAndGetPath() throws IOException {
 			synchronized (this) {
 				if (!closed) {
+					flushBuffer();
 					closed = true;
-					flush();
 					outStream.close();
 					return statePath;
 				}
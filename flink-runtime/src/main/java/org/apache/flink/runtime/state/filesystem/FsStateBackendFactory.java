@@ -35,6 +35,10 @@ public class FsStateBackendFactory implements StateBackendFactory<FsStateBackend
 	/** The key under which the config stores the threshold for state to be store in memory,
 	 * rather than in files */
 	public static final String MEMORY_THRESHOLD_CONF_KEY = "state.backend.fs.memory-threshold";
+
+	/** The key under which the config stores whether the subtasks of a TaskManager share the
+	 * files of a checkpoint */
+	public static final String SHARED_FILES_CONF_KEY = "state.backend.fs.shared-files";
 	
 	
 	@Override
@@ -51,7 +55,12 @@ public class FsStateBackendFactory implements StateBackendFactory<FsStateBackend
 		
 		try {
 			Path path = new Path(checkpointDirURI);
-			return new FsStateBackend(path.toUri(), memoryThreshold);
+			FsStateBackend backend = new FsStateBackend(path.toUri(), memoryThreshold);
+
+			if (config.getBoolean(SHARED_FILES_CONF_KEY, false)) {
+				backend.enableSharedCheckpointFiles();
+			}
+			return backend;
 		}
 		catch (IllegalArgumentException e) {
 			throw new Exception("Cannot initialize File System State Backend with URI '"
@@ -82,7 +82,7 @@ public class FsValueState<K, N, V>
 			currentNSState = state.get(currentNamespace);
 		}
 		if (currentNSState != null) {
-			V value = currentNSState.get(currentKey);
+			V value = getCurrentValueForUpdate();
 			return value != null ? value : stateDesc.getDefaultValue();
 		}
 		return stateDesc.getDefaultValue();
@@ -100,7 +100,7 @@ public class FsValueState<K, N, V>
 		}
 
 		if (currentNSState == null) {
-			currentNSState = new HashMap<>();
+			currentNSState = createNamespaceState();
 			state.put(currentNamespace, currentNSState);
 		}
 
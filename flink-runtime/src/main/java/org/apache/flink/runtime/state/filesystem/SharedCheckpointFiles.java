@@ -0,0 +1,446 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.filesystem;
+
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.fs.FSDataOutputStream;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Registry of the files that the {@link FsStateBackend FsStateBackends} of one TaskManager share
+ * for the state of a checkpoint. Instead of creating one file per state stream, the streams of
+ * all subtasks append their data to a shared file of the checkpoint and receive a handle to the
+ * offset and length of their segment.
+ *
+ * <p>A shared file is closed once a stream of a later checkpoint of the same job appends data, or
+ * when the last state backend of the job on this TaskManager is closed. When closing, the number
+ * of segments is written to the end of the file. The file is deleted when as many segments as
+ * recorded there have been discarded. A file that is still open in this process is closed and
+ * deleted as soon as all of its segments are discarded.
+ *
+ * <p>Segments are often discarded by a different process than the one that writes the file, for
+ * example by the JobManager. Segments that are discarded there before the file is closed are
+ * counted, and the trailers of these files are read again on every later discard, so that such a
+ * file is deleted by the first discard of any shared file after it was closed.
+ *
+ * <p>Each segment is synced to the file system before its handle is returned, so the data of a
+ * checkpoint is durable before the checkpoint is acknowledged, even if the shared file is not yet
+ * closed.
+ */
+final class SharedCheckpointFiles {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SharedCheckpointFiles.class);
+
+	/** Marks a shared file that was closed and contains the number of its segments */
+	private static final long TRAILER_MAGIC = 0x4a1d9e5c7b3f8026L;
+
+	/** Size of the trailer (number of segments, magic number) */
+	private static final int TRAILER_SIZE = 12;
+
+	/** The registry of this process */
+	static final SharedCheckpointFiles INSTANCE = new SharedCheckpointFiles();
+
+	/** Lock for the registry, never held while writing to a file */
+	private final Object lock = new Object();
+
+	/** Open shared files by checkpoint directory of the job */
+	private final Map<Path, List<SharedFile>> openFiles = new HashMap<>();
+
+	/** Number of state backends that use shared files, by checkpoint directory of the job */
+	private final Map<Path, Integer> registeredBackends = new HashMap<>();
+
+	/** Discarded segments and total segments (-1 if not yet known) by shared file */
+	private final Map<Path, int[]> segmentReferences = new HashMap<>();
+
+	SharedCheckpointFiles() {}
+
+	// ------------------------------------------------------------------------
+	//  Writing
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Registers a state backend that writes into shared files of the given job directory.
+	 */
+	void register(Path jobDirectory) {
+		synchronized (lock) {
+			Integer count = registeredBackends.get(jobDirectory);
+			registeredBackends.put(jobDirectory, count == null ? 1 : count + 1);
+		}
+	}
+
+	/**
+	 * Unregisters a state backend. When the last state backend of the job directory is
+	 * unregistered, all open shared files of the job are closed.
+	 */
+	void unregister(Path jobDirectory) {
+		List<SharedFile> toClose = null;
+
+		synchronized (lock) {
+			Integer count = registeredBackends.get(jobDirectory);
+			if (count == null) {
+				return;
+			}
+			else if (count > 1) {
+				registeredBackends.put(jobDirectory, count - 1);
+			}
+			else {
+				registeredBackends.remove(jobDirectory);
+				toClose = openFiles.remove(jobDirectory);
+			}
+		}
+
+		if (toClose != null) {
+			for (SharedFile file : toClose) {
+				file.close();
+			}
+		}
+	}
+
+	/**
+	 * Appends the given data as one segment to the shared file of the checkpoint.
+	 *
+	 * @param jobDirectory The checkpoint directory of the job.
+	 * @param checkpointDirectory The directory of the checkpoint, in which the shared file lives.
+	 * @param checkpointId The ID of the checkpoint.
+	 * @param fs The file system of the checkpoint directory.
+	 * @param data The buffer holding the data of the segment.
+	 * @param len The number of bytes of the segment.
+	 * @return The handle to the segment.
+	 */
+	SharedFileStreamStateHandle append(
+			Path jobDirectory,
+			Path checkpointDirectory,
+			long checkpointId,
+			FileSystem fs,
+			byte[] data,
+			int len) throws IOException {
+
+		while (true) {
+			SharedFile file = getOrCreateFile(jobDirectory, checkpointDirectory, checkpointId, fs);
+			SharedFileStreamStateHandle handle = file.append(data, len);
+
+			if (handle != null) {
+				return handle;
+			}
+			// the file was closed concurrently, retry with a new file
+		}
+	}
+
+	private SharedFile getOrCreateFile(
+			Path jobDirectory,
+			Path checkpointDirectory,
+			long checkpointId,
+			FileSystem fs) throws IOException {
+
+		List<SharedFile> toClose = new ArrayList<>();
+		SharedFile result = null;
+
+		synchronized (lock) {
+			List<SharedFile> files = openFiles.get(jobDirectory);
+			if (files == null) {
+				files = new ArrayList<>();
+				openFiles.put(jobDirectory, files);
+			}
+
+			Iterator<SharedFile> iterator = files.iterator();
+			while (iterator.hasNext()) {
+				SharedFile file = iterator.next();
+				if (file.checkpointId == checkpointId && !file.isClosed()) {
+					result = file;
+				}
+				else if (file.checkpointId < checkpointId || file.isClosed()) {
+					// the streams of earlier checkpoints are done, so their files can be closed
+					iterator.remove();
+					toClose.add(file);
+				}
+			}
+
+			if (result == null) {
+				result = createFile(fs, jobDirectory, checkpointDirectory, checkpointId);
+				files.add(result);
+			}
+		}
+
+		for (SharedFile file : toClose) {
+			file.close();
+		}
+
+		return result;
+	}
+
+	private SharedFile createFile(
+			FileSystem fs,
+			Path jobDirectory,
+			Path checkpointDirectory,
+			long checkpointId) throws IOException {
+		fs.mkdirs(checkpointDirectory);
+
+		Exception latestException = null;
+		for (int attempt = 0; attempt < 10; attempt++) {
+			try {
+				Path path = new Path(checkpointDirectory, "shared-" + UUID.randomUUID().toString());
+				return new SharedFile(jobDirectory, checkpointId, path, fs.create(path, false));
+			}
+			catch (Exception e) {
+				latestException = e;
+			}
+		}
+
+		throw new IOException("Could not open output stream for shared checkpoint file", latestException);
+	}
+
+	// ------------------------------------------------------------------------
+	//  Discarding
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Releases one segment of the given shared file. The file is deleted once all of its segments
+	 * have been released.
+	 */
+	void release(FileSystem fs, Path path) throws IOException {
+		synchronized (lock) {
+			int[] references = segmentReferences.get(path);
+			if (references == null) {
+				references = new int[] { 0, -1 };
+				segmentReferences.put(path, references);
+			}
+
+			references[0]++;
+
+			if (references[1] < 0) {
+				SharedFile openFile = getOpenFile(path);
+
+				if (openFile != null) {
+					// the file is still written on this TaskManager, so no trailer exists yet
+					if (openFile.discardIfReleased(references[0])) {
+						openFiles.get(openFile.jobDirectory).remove(openFile);
+						deleteFile(fs, path);
+					}
+					return;
+				}
+
+				references[1] = readNumberOfSegments(fs, path);
+			}
+
+			if (references[1] >= 0 && references[0] >= references[1]) {
+				deleteFile(fs, path);
+			}
+
+			deleteClosedReleasedFiles(path);
+		}
+	}
+
+	/**
+	 * Reads the trailers of the files whose segments were released before the files were closed
+	 * by another process, and deletes the files that were closed in the meantime and whose
+	 * segments have all been released.
+	 */
+	private void deleteClosedReleasedFiles(Path releasedPath) {
+		List<Path> toDelete = new ArrayList<>();
+
+		for (Map.Entry<Path, int[]> entry : segmentReferences.entrySet()) {
+			Path path = entry.getKey();
+			int[] references = entry.getValue();
+
+			if (references[1] >= 0 || path.equals(releasedPath) || getOpenFile(path) != null) {
+				continue;
+			}
+
+			try {
+				references[1] = readNumberOfSegments(path.getFileSystem(), path);
+				if (references[1] >= 0 && references[0] >= references[1]) {
+					toDelete.add(path);
+				}
+			}
+			catch (IOException e) {
+				LOG.warn("Could not read the trailer of shared checkpoint file " + path, e);
+			}
+		}
+
+		for (Path path : toDelete) {
+			try {
+				deleteFile(path.getFileSystem(), path);
+			}
+			catch (IOException e) {
+				LOG.warn("Could not delete shared checkpoint file " + path, e);
+			}
+		}
+	}
+
+	private SharedFile getOpenFile(Path path) {
+		for (List<SharedFile> files : openFiles.values()) {
+			for (SharedFile file : files) {
+				if (file.path.equals(path) && !file.isClosed()) {
+					return file;
+				}
+			}
+		}
+		return null;
+	}
+
+	private void deleteFile(FileSystem fs, Path path) throws IOException {
+		segmentReferences.remove(path);
+
+		fs.delete(path, false);
+
+		// send a call to delete the checkpoint directory containing the file. This will
+		// fail (and be ignored) when some files still exist
+		try {
+			fs.delete(path.getParent(), false);
+		} catch (IOException ignored) {}
+	}
+
+	/**
+	 * Reads the number of segments from the trailer of the shared file, or returns -1 if the
+	 * file has not been closed yet.
+	 */
+	private static int readNumberOfSegments(FileSystem fs, Path path) throws IOException {
+		if (!fs.exists(path)) {
+			return 0;
+		}
+
+		long length = fs.getFileStatus(path).getLen();
+		if (length < TRAILER_SIZE) {
+			return -1;
+		}
+
+		try (FSDataInputStream in = fs.open(path)) {
+			in.seek(length - TRAILER_SIZE);
+			DataInputViewStreamWrapper view = new DataInputViewStreamWrapper(in);
+			int numSegments = view.readInt();
+			return view.readLong() == TRAILER_MAGIC ? numSegments : -1;
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * A shared file of one checkpoint to which segments are appended.
+	 */
+	private static final class SharedFile {
+
+		private final Path jobDirectory;
+
+		private final long checkpointId;
+
+		private final Path path;
+
+		private final FSDataOutputStream out;
+
+		private long position;
+
+		private int numSegments;
+
+		private boolean closed;
+
+		SharedFile(Path jobDirectory, long checkpointId, Path path, FSDataOutputStream out) {
+			this.jobDirectory = jobDirectory;
+			this.checkpointId = checkpointId;
+			this.path = path;
+			this.out = out;
+		}
+
+		synchronized boolean isClosed() {
+			return closed;
+		}
+
+		/**
+		 * Appends a segment and syncs it, so that it is durable and visible to readers. Returns null
+		 * if the file has been closed already.
+		 */
+		synchronized SharedFileStreamStateHandle append(byte[] data, int len) throws IOException {
+			if (closed) {
+				return null;
+			}
+
+			long offset = position;
+			try {
+				out.write(data, 0, len);
+				out.flush();
+				out.sync();
+			}
+			catch (IOException e) {
+				// the file cannot be trusted any more, later segments go to a new file
+				closeStream();
+				throw e;
+			}
+
+			position += len;
+			numSegments++;
+
+			return new SharedFileStreamStateHandle(path, offset, len);
+		}
+
+		/**
+		 * Closes the file without a trailer, if the given number of released segments covers all
+		 * segments of the file. No further segments are appended to the file afterwards.
+		 *
+		 * @return True, if the file was closed and can be deleted, false otherwise.
+		 */
+		synchronized boolean discardIfReleased(int numReleasedSegments) {
+			if (closed || numReleasedSegments < numSegments) {
+				return false;
+			}
+			closeStream();
+			return true;
+		}
+
+		/**
+		 * Writes the trailer with the number of segments and closes the file.
+		 */
+		synchronized void close() {
+			if (!closed) {
+				try {
+					DataOutputViewStreamWrapper view = new DataOutputViewStreamWrapper(out);
+					view.writeInt(numSegments);
+					view.writeLong(TRAILER_MAGIC);
+					view.flush();
+				}
+				catch (IOException e) {
+					LOG.warn("Could not write the trailer of shared checkpoint file " + path +
+							". The file will not be deleted when its segments are discarded.", e);
+				}
+				closeStream();
+			}
+		}
+
+		private void closeStream() {
+			closed = true;
+			try {
+				out.close();
+			}
+			catch (IOException e) {
+				LOG.warn("Could not close shared checkpoint file " + path, e);
+			}
+		}
+	}
+}
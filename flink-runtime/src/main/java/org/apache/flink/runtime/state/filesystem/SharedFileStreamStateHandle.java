@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.filesystem;
+
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.state.StateHandle;
+import org.apache.flink.runtime.state.StreamStateHandle;
+
+import java.io.InputStream;
+import java.io.Serializable;
+
+/**
+ * {@link StreamStateHandle} for state that is stored in a segment of a shared checkpoint file.
+ */
+public class SharedFileStreamStateHandle extends AbstractSharedFileStateHandle implements StreamStateHandle {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Creates a new SharedFileStreamStateHandle pointing to state at the given segment of the file.
+	 *
+	 * @param filePath The path to the shared file containing the checkpointed state.
+	 * @param offset The position of the state in the file.
+	 * @param length The length of the state in bytes.
+	 */
+	public SharedFileStreamStateHandle(Path filePath, long offset, long length) {
+		super(filePath, offset, length);
+	}
+
+	@Override
+	public InputStream getState(ClassLoader userCodeClassLoader) throws Exception {
+		return openSegment();
+	}
+
+	@Override
+	public <T extends Serializable> StateHandle<T> toSerializableHandle() {
+		return new SharedFileSerializableStateHandle<>(getFilePath(), getOffset(), getLength());
+	}
+}
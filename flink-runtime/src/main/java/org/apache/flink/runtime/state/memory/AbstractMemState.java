@@ -23,6 +23,7 @@ import org.apache.flink.api.common.state.State;
 import org.apache.flink.api.common.state.StateDescriptor;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.runtime.state.AbstractHeapState;
+import org.apache.flink.runtime.state.AsynchronousKvStateSnapshot;
 import org.apache.flink.runtime.state.KvStateSnapshot;
 import org.apache.flink.runtime.util.DataOutputSerializer;
 
@@ -42,6 +43,9 @@ import java.util.Map;
 public abstract class AbstractMemState<K, N, SV, S extends State, SD extends StateDescriptor<S, ?>>
 		extends AbstractHeapState<K, N, SV, S, SD, MemoryStateBackend> {
 
+	/** Flag whether the state is serialized asynchronously, outside the checkpoint lock */
+	private boolean asynchronousSnapshots;
+
 	public AbstractMemState(TypeSerializer<K> keySerializer,
 		TypeSerializer<N> namespaceSerializer,
 		TypeSerializer<SV> stateSerializer,
@@ -59,24 +63,112 @@ public abstract class AbstractMemState<K, N, SV, S extends State, SD extends Sta
 
 	public abstract KvStateSnapshot<K, N, S, SD, MemoryStateBackend> createHeapSnapshot(byte[] bytes);
 
+	/**
+	 * Sets whether snapshots of this state are serialized asynchronously. If enabled, drawing a snapshot
+	 * only captures the current state, which is serialized when the snapshot is materialized.
+	 *
+	 * @param asynchronousSnapshots True to serialize snapshots asynchronously, false otherwise.
+	 */
+	public void setAsynchronousSnapshots(boolean asynchronousSnapshots) {
+		this.asynchronousSnapshots = asynchronousSnapshots;
+	}
+
 	@Override
 	public KvStateSnapshot<K, N, S, SD, MemoryStateBackend> snapshot(long checkpointId, long timestamp) throws Exception {
+		purgeExpiredState();
+
+		if (asynchronousSnapshots) {
+			return new AsyncMemStateSnapshot<>(this, createStateTableSnapshot(), size());
+		}
 
 		DataOutputSerializer out = new DataOutputSerializer(Math.max(size() * 16, 16));
+		writeState(out);
+		byte[] bytes = out.getCopyOfBuffer();
+
+		return createHeapSnapshot(bytes);
+	}
+
+	@Override
+	public Map<Integer, KvStateSnapshot<K, N, S, SD, MemoryStateBackend>> snapshotKeyGroups(
+			long checkpointId,
+			long timestamp,
+			int numberOfKeyGroups) throws Exception {
+
+		purgeExpiredState();
+
+		if (asynchronousSnapshots) {
+			AsyncKeyGroups keyGroups = new AsyncKeyGroups(numberOfKeyGroups) {
+				@Override
+				protected Map<Integer, KvStateSnapshot<K, N, S, SD, MemoryStateBackend>> write(
+						Map<Integer, Map<N, Map<K, SV>>> keyGroups,
+						StateTableSnapshot tableSnapshot) throws Exception {
+					return writeKeyGroups(keyGroups, tableSnapshot);
+				}
+			};
+			return keyGroups.createSnapshots();
+		}
+
+		return writeKeyGroups(splitIntoKeyGroups(numberOfKeyGroups), null);
+	}
+
+	/**
+	 * Writes the state of each key group to a byte array.
+	 *
+	 * @param keyGroups The state by key group.
+	 * @param tableSnapshot The captured state that the key groups were split from, or null, if they
+	 *                      were split from the current state.
+	 */
+	private Map<Integer, KvStateSnapshot<K, N, S, SD, MemoryStateBackend>> writeKeyGroups(
+			Map<Integer, Map<N, Map<K, SV>>> keyGroups,
+			StateTableSnapshot tableSnapshot) throws Exception {
 
-		out.writeInt(state.size());
-		for (Map.Entry<N, Map<K, SV>> namespaceState: state.entrySet()) {
-			N namespace = namespaceState.getKey();
-			namespaceSerializer.serialize(namespace, out);
-			out.writeInt(namespaceState.getValue().size());
-			for (Map.Entry<K, SV> entry: namespaceState.getValue().entrySet()) {
-				keySerializer.serialize(entry.getKey(), out);
-				stateSerializer.serialize(entry.getValue(), out);
+		Map<Integer, KvStateSnapshot<K, N, S, SD, MemoryStateBackend>> snapshots = new HashMap<>(keyGroups.size());
+
+		DataOutputSerializer out = new DataOutputSerializer(64);
+		for (Map.Entry<Integer, Map<N, Map<K, SV>>> keyGroup : keyGroups.entrySet()) {
+			out.clear();
+			if (tableSnapshot != null) {
+				tableSnapshot.writeTo(keyGroup.getValue(), out);
+			} else {
+				writeState(keyGroup.getValue(), out);
 			}
+			snapshots.put(keyGroup.getKey(), createHeapSnapshot(out.getCopyOfBuffer()));
 		}
+		return snapshots;
+	}
 
-		byte[] bytes = out.getCopyOfBuffer();
+	/**
+	 * Snapshot that serializes the captured state when it is materialized.
+	 */
+	private static final class AsyncMemStateSnapshot<K, N, SV, S extends State, SD extends StateDescriptor<S, ?>>
+			extends AsynchronousKvStateSnapshot<K, N, S, SD, MemoryStateBackend> {
 
-		return createHeapSnapshot(bytes);
+		private static final long serialVersionUID = 1L;
+
+		private final transient AbstractMemState<K, N, SV, S, SD> kvState;
+
+		private final transient AbstractHeapState<K, N, SV, S, SD, MemoryStateBackend>.StateTableSnapshot tableSnapshot;
+
+		private final int sizeEstimate;
+
+		AsyncMemStateSnapshot(AbstractMemState<K, N, SV, S, SD> kvState,
+				AbstractHeapState<K, N, SV, S, SD, MemoryStateBackend>.StateTableSnapshot tableSnapshot,
+				int sizeEstimate) {
+			this.kvState = kvState;
+			this.tableSnapshot = tableSnapshot;
+			this.sizeEstimate = sizeEstimate;
+		}
+
+		@Override
+		public KvStateSnapshot<K, N, S, SD, MemoryStateBackend> materialize() throws Exception {
+			try {
+				DataOutputSerializer out = new DataOutputSerializer(Math.max(sizeEstimate * 16, 16));
+				tableSnapshot.writeTo(out);
+				return kvState.createHeapSnapshot(out.getCopyOfBuffer());
+			}
+			finally {
+				tableSnapshot.release();
+			}
+		}
 	}
 }
@@ -111,7 +111,11 @@ public abstract class AbstractMemStateSnapshot<K, N, SV, S extends State, SD ext
 			}
 		}
 
-		return createMemState(stateMap);
+		KvState<K, N, S, SD, MemoryStateBackend> kvState = createMemState(stateMap);
+		if (kvState instanceof AbstractMemState) {
+			((AbstractMemState<?, ?, ?, ?, ?>) kvState).setAsynchronousSnapshots(stateBackend.isAsynchronousSnapshots());
+		}
+		return kvState;
 	}
 
 	/**
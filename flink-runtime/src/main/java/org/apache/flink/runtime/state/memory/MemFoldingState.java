@@ -65,7 +65,7 @@ public class MemFoldingState<K, N, T, ACC>
 			currentNSState = state.get(currentNamespace);
 		}
 		if (currentNSState != null) {
-			ACC value = currentNSState.get(currentKey);
+			ACC value = getCurrentValueForUpdate();
 			return value != null ? value : stateDesc.getDefaultValue();
 		}
 		return stateDesc.getDefaultValue();
@@ -78,11 +78,11 @@ public class MemFoldingState<K, N, T, ACC>
 		}
 
 		if (currentNSState == null) {
-			currentNSState = new HashMap<>();
+			currentNSState = createNamespaceState();
 			state.put(currentNamespace, currentNSState);
 		}
 
-		ACC currentValue = currentNSState.get(currentKey);
+		ACC currentValue = getCurrentValueForUpdate();
 		try {
 			if (currentValue == null) {
 				currentNSState.put(currentKey, foldFunction.fold(stateDesc.getDefaultValue(), value));
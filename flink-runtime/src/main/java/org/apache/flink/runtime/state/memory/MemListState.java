@@ -74,12 +74,12 @@ public class MemListState<K, N, V>
 		}
 
 		if (currentNSState == null) {
-			currentNSState = new HashMap<>();
+			currentNSState = createNamespaceState();
 			state.put(currentNamespace, currentNSState);
 		}
 
 
-		ArrayList<V> list = currentNSState.get(currentKey);
+		ArrayList<V> list = getCurrentValueForUpdate();
 		if (list == null) {
 			list = new ArrayList<>();
 			currentNSState.put(currentKey, list);
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.memory;
+
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.runtime.state.KvState;
+import org.apache.flink.runtime.state.KvStateSnapshot;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Heap-backed partitioned {@link MapState} that is snapshotted into a serialized memory copy.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <UK> The type of the keys in the map state.
+ * @param <UV> The type of the values in the map state.
+ */
+public class MemMapState<K, N, UK, UV>
+	extends AbstractMemState<K, N, Map<UK, UV>, MapState<UK, UV>, MapStateDescriptor<UK, UV>>
+	implements MapState<UK, UV> {
+
+	public MemMapState(TypeSerializer<K> keySerializer,
+		TypeSerializer<N> namespaceSerializer,
+		MapStateDescriptor<UK, UV> stateDesc) {
+		super(keySerializer, namespaceSerializer, stateDesc.getSerializer(), stateDesc);
+	}
+
+	public MemMapState(TypeSerializer<K> keySerializer,
+		TypeSerializer<N> namespaceSerializer,
+		MapStateDescriptor<UK, UV> stateDesc,
+		HashMap<N, Map<K, Map<UK, UV>>> state) {
+		super(keySerializer, namespaceSerializer, stateDesc.getSerializer(), stateDesc, state);
+	}
+
+	@Override
+	public UV get(UK key) {
+		Map<UK, UV> userMap = getUserMap();
+		return userMap != null ? userMap.get(key) : null;
+	}
+
+	@Override
+	public void put(UK key, UV value) {
+		getUserMapForUpdate().put(key, value);
+	}
+
+	@Override
+	public void putAll(Map<UK, UV> map) {
+		getUserMapForUpdate().putAll(map);
+	}
+
+	@Override
+	public void remove(UK key) {
+		if (getUserMap() == null) {
+			return;
+		}
+		Map<UK, UV> userMap = getCurrentValueForUpdate();
+		userMap.remove(key);
+		if (userMap.isEmpty()) {
+			clear();
+		}
+	}
+
+	@Override
+	public boolean contains(UK key) {
+		Map<UK, UV> userMap = getUserMap();
+		return userMap != null && userMap.containsKey(key);
+	}
+
+	@Override
+	public Iterable<Map.Entry<UK, UV>> entries() {
+		Map<UK, UV> userMap = getUserMap();
+		return userMap != null ? Collections.unmodifiableMap(userMap).entrySet() : Collections.<Map.Entry<UK, UV>>emptySet();
+	}
+
+	@Override
+	public Iterable<UK> keys() {
+		Map<UK, UV> userMap = getUserMap();
+		return userMap != null ? Collections.unmodifiableSet(userMap.keySet()) : Collections.<UK>emptySet();
+	}
+
+	@Override
+	public Iterable<UV> values() {
+		Map<UK, UV> userMap = getUserMap();
+		return userMap != null ? Collections.unmodifiableCollection(userMap.values()) : Collections.<UV>emptySet();
+	}
+
+	/**
+	 * Returns the map of the current key for reading, or null, if there is none.
+	 */
+	private Map<UK, UV> getUserMap() {
+		if (currentNSState == null) {
+			currentNSState = state.get(currentNamespace);
+		}
+		return currentNSState != null ? currentNSState.get(currentKey) : null;
+	}
+
+	/**
+	 * Returns the map of the current key for modifications, creating it if there is none.
+	 */
+	private Map<UK, UV> getUserMapForUpdate() {
+		if (currentKey == null) {
+			throw new RuntimeException("No key available.");
+		}
+
+		if (currentNSState == null) {
+			currentNSState = createNamespaceState();
+			state.put(currentNamespace, currentNSState);
+		}
+
+		Map<UK, UV> userMap = getCurrentValueForUpdate();
+		if (userMap == null) {
+			userMap = new HashMap<>();
+			currentNSState.put(currentKey, userMap);
+		}
+		return userMap;
+	}
+
+	@Override
+	public KvStateSnapshot<K, N, MapState<UK, UV>, MapStateDescriptor<UK, UV>, MemoryStateBackend> createHeapSnapshot(byte[] bytes) {
+		return new Snapshot<>(getKeySerializer(), getNamespaceSerializer(), stateSerializer, stateDesc, bytes);
+	}
+
+	public static class Snapshot<K, N, UK, UV> extends AbstractMemStateSnapshot<K, N, Map<UK, UV>, MapState<UK, UV>, MapStateDescriptor<UK, UV>> {
+		private static final long serialVersionUID = 1L;
+
+		public Snapshot(TypeSerializer<K> keySerializer,
+			TypeSerializer<N> namespaceSerializer,
+			TypeSerializer<Map<UK, UV>> stateSerializer,
+			MapStateDescriptor<UK, UV> stateDescs, byte[] data) {
+			super(keySerializer, namespaceSerializer, stateSerializer, stateDescs, data);
+		}
+
+		@Override
+		public KvState<K, N, MapState<UK, UV>, MapStateDescriptor<UK, UV>, MemoryStateBackend> createMemState(HashMap<N, Map<K, Map<UK, UV>>> stateMap) {
+			return new MemMapState<>(keySerializer, namespaceSerializer, stateDesc, stateMap);
+		}
+	}
+}
@@ -64,7 +64,7 @@ public class MemReducingState<K, N, V>
 			currentNSState = state.get(currentNamespace);
 		}
 		if (currentNSState != null) {
-			return currentNSState.get(currentKey);
+			return getCurrentValueForUpdate();
 		}
 		return null;
 	}
@@ -76,7 +76,7 @@ public class MemReducingState<K, N, V>
 		}
 
 		if (currentNSState == null) {
-			currentNSState = new HashMap<>();
+			currentNSState = createNamespaceState();
 			state.put(currentNamespace, currentNSState);
 		}
 //		currentKeyState.merge(currentNamespace, value, new BiFunction<V, V, V>() {
@@ -89,7 +89,7 @@ public class MemReducingState<K, N, V>
 //				}
 //			}
 //		});
-		V currentValue = currentNSState.get(currentKey);
+		V currentValue = getCurrentValueForUpdate();
 		if (currentValue == null) {
 			currentNSState.put(currentKey, value);
 		} else {
@@ -57,7 +57,7 @@ public class MemValueState<K, N, V>
 			currentNSState = state.get(currentNamespace);
 		}
 		if (currentNSState != null) {
-			V value = currentNSState.get(currentKey);
+			V value = getCurrentValueForUpdate();
 			return value != null ? value : stateDesc.getDefaultValue();
 		}
 		return stateDesc.getDefaultValue();
@@ -75,7 +75,7 @@ public class MemValueState<K, N, V>
 		}
 
 		if (currentNSState == null) {
-			currentNSState = new HashMap<>();
+			currentNSState = createNamespaceState();
 			state.put(currentNamespace, currentNSState);
 		}
 
@@ -22,6 +22,8 @@ import org.apache.flink.api.common.state.FoldingState;
 import org.apache.flink.api.common.state.FoldingStateDescriptor;
 import org.apache.flink.api.common.state.ListState;
 import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
 import org.apache.flink.api.common.state.ReducingState;
 import org.apache.flink.api.common.state.ReducingStateDescriptor;
 import org.apache.flink.api.common.state.ValueState;
@@ -50,6 +52,9 @@ public class MemoryStateBackend extends AbstractStateBackend {
 	/** The maximal size that the snapshotted memory state may have */
 	private final int maxStateSize;
 
+	/** Flag whether key/value state snapshots are serialized asynchronously, outside the checkpoint lock */
+	private boolean asynchronousSnapshots;
+
 	/**
 	 * Creates a new memory state backend that accepts states whose serialized forms are
 	 * up to the default state size (5 MB).
@@ -68,6 +73,27 @@ public class MemoryStateBackend extends AbstractStateBackend {
 		this.maxStateSize = maxStateSize;
 	}
 
+	/**
+	 * Enables asynchronous snapshots of the key/value state. When drawing a snapshot, the state is
+	 * only captured. It is serialized in a background thread, while the processing continues.
+	 * Modifications to the state after the snapshot copy the affected entries and values.
+	 *
+	 * <p>With asynchronous snapshots, objects that were obtained from the state must not be
+	 * modified in place, but only through the methods of the state.
+	 */
+	public void enableAsynchronousSnapshots() {
+		this.asynchronousSnapshots = true;
+	}
+
+	/**
+	 * Checks whether the key/value state snapshots are serialized asynchronously.
+	 *
+	 * @return True, if the key/value state snapshots are serialized asynchronously, false otherwise.
+	 */
+	public boolean isAsynchronousSnapshots() {
+		return asynchronousSnapshots;
+	}
+
 	// ------------------------------------------------------------------------
 	//  initialization and cleanup
 	// ------------------------------------------------------------------------
@@ -86,22 +112,37 @@ public class MemoryStateBackend extends AbstractStateBackend {
 
 	@Override
 	public <N, V> ValueState<V> createValueState(TypeSerializer<N> namespaceSerializer, ValueStateDescriptor<V> stateDesc) throws Exception {
-		return new MemValueState<>(keySerializer, namespaceSerializer, stateDesc);
+		MemValueState<?, N, V> state = new MemValueState<>(keySerializer, namespaceSerializer, stateDesc);
+		state.setAsynchronousSnapshots(asynchronousSnapshots);
+		return state;
 	}
 
 	@Override
 	public <N, T> ListState<T> createListState(TypeSerializer<N> namespaceSerializer, ListStateDescriptor<T> stateDesc) throws Exception {
-		return new MemListState<>(keySerializer, namespaceSerializer, stateDesc);
+		MemListState<?, N, T> state = new MemListState<>(keySerializer, namespaceSerializer, stateDesc);
+		state.setAsynchronousSnapshots(asynchronousSnapshots);
+		return state;
 	}
 
 	@Override
 	public <N, T> ReducingState<T> createReducingState(TypeSerializer<N> namespaceSerializer, ReducingStateDescriptor<T> stateDesc) throws Exception {
-		return new MemReducingState<>(keySerializer, namespaceSerializer, stateDesc);
+		MemReducingState<?, N, T> state = new MemReducingState<>(keySerializer, namespaceSerializer, stateDesc);
+		state.setAsynchronousSnapshots(asynchronousSnapshots);
+		return state;
 	}
 
 	@Override
 	public <N, T, ACC> FoldingState<T, ACC> createFoldingState(TypeSerializer<N> namespaceSerializer, FoldingStateDescriptor<T, ACC> stateDesc) throws Exception {
-		return new MemFoldingState<>(keySerializer, namespaceSerializer, stateDesc);
+		MemFoldingState<?, N, T, ACC> state = new MemFoldingState<>(keySerializer, namespaceSerializer, stateDesc);
+		state.setAsynchronousSnapshots(asynchronousSnapshots);
+		return state;
+	}
+
+	@Override
+	public <N, UK, UV> MapState<UK, UV> createMapState(TypeSerializer<N> namespaceSerializer, MapStateDescriptor<UK, UV> stateDesc) throws Exception {
+		MemMapState<?, N, UK, UV> state = new MemMapState<>(keySerializer, namespaceSerializer, stateDesc);
+		state.setAsynchronousSnapshots(asynchronousSnapshots);
+		return state;
 	}
 
 	/**
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.offheap;
+
+import org.apache.flink.api.common.state.State;
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.runtime.state.AbstractStateBackend.CheckpointStateOutputView;
+import org.apache.flink.runtime.state.KvState;
+import org.apache.flink.runtime.state.KvStateSnapshot;
+import org.apache.flink.runtime.util.DataInputDeserializer;
+import org.apache.flink.runtime.util.DataOutputSerializer;
+
+import java.io.IOException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Base class for {@link State} implementations that store their state in serialized form in a
+ * {@link BinaryHashMap}. The keys of the map are the serialized key and namespace.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <V> The type of the values that are stored per key and namespace.
+ * @param <S> The type of {@link State}.
+ * @param <SD> The type of {@link StateDescriptor}.
+ */
+public abstract class AbstractOffHeapState<K, N, V, S extends State, SD extends StateDescriptor<S, ?>>
+		implements KvState<K, N, S, SD, OffHeapStateBackend>, State {
+
+	/** The backend that created this state and that creates the checkpoint streams */
+	private final OffHeapStateBackend backend;
+
+	/** Serializer for the key */
+	protected final TypeSerializer<K> keySerializer;
+
+	/** Serializer for the namespace */
+	protected final TypeSerializer<N> namespaceSerializer;
+
+	/** Serializer for the values */
+	protected final TypeSerializer<V> valueSerializer;
+
+	/** This holds the name of the state and can create an initial default value for the state. */
+	protected final SD stateDesc;
+
+	/** The map holding the serialized state */
+	protected final BinaryHashMap map;
+
+	/** Reusable buffer for the serialized key and namespace */
+	private final DataOutputSerializer keyOut = new DataOutputSerializer(32);
+
+	/** Reusable buffer for serialized values */
+	protected final DataOutputSerializer valueOut = new DataOutputSerializer(64);
+
+	/** Reusable view to deserialize values */
+	protected final DataInputDeserializer valueIn = new DataInputDeserializer();
+
+	/** The current key, which the next value methods will refer to */
+	protected K currentKey;
+
+	/** The current namespace, which the next value methods will refer to */
+	protected N currentNamespace;
+
+	protected AbstractOffHeapState(
+			OffHeapStateBackend backend,
+			TypeSerializer<K> keySerializer,
+			TypeSerializer<N> namespaceSerializer,
+			TypeSerializer<V> valueSerializer,
+			SD stateDesc) {
+
+		this.backend = requireNonNull(backend);
+		this.keySerializer = requireNonNull(keySerializer);
+		this.namespaceSerializer = requireNonNull(namespaceSerializer);
+		this.valueSerializer = requireNonNull(valueSerializer);
+		this.stateDesc = requireNonNull(stateDesc);
+		this.map = backend.createMap();
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public void setCurrentKey(K currentKey) {
+		this.currentKey = currentKey;
+	}
+
+	@Override
+	public void setCurrentNamespace(N namespace) {
+		this.currentNamespace = namespace;
+	}
+
+	@Override
+	public void clear() {
+		try {
+			map.remove(serializeKeyAndNamespace());
+		} catch (IOException e) {
+			throw new RuntimeException("Error while removing entry from the off-heap state", e);
+		}
+	}
+
+	/**
+	 * Returns the value for the current key and namespace, or null if there is none.
+	 */
+	protected V getValue() {
+		try {
+			byte[] bytes = map.get(serializeKeyAndNamespace());
+			if (bytes == null) {
+				return null;
+			}
+			valueIn.setBuffer(bytes, 0, bytes.length);
+			return valueSerializer.deserialize(valueIn);
+		} catch (IOException e) {
+			throw new RuntimeException("Error while retrieving data from the off-heap state", e);
+		}
+	}
+
+	/**
+	 * Sets the value for the current key and namespace.
+	 */
+	protected void putValue(V value) {
+		if (currentKey == null) {
+			throw new RuntimeException("No key available.");
+		}
+		try {
+			byte[] key = serializeKeyAndNamespace();
+			valueOut.clear();
+			valueSerializer.serialize(value, valueOut);
+			map.put(key, valueOut.getCopyOfBuffer());
+		} catch (IOException e) {
+			throw new RuntimeException("Error while adding data to the off-heap state", e);
+		}
+	}
+
+	protected byte[] serializeKeyAndNamespace() throws IOException {
+		keyOut.clear();
+		keySerializer.serialize(currentKey, keyOut);
+		namespaceSerializer.serialize(currentNamespace, keyOut);
+		return keyOut.getCopyOfBuffer();
+	}
+
+	// ------------------------------------------------------------------------
+	//  Snapshot and restore
+	// ------------------------------------------------------------------------
+
+	@Override
+	public KvStateSnapshot<K, N, S, SD, OffHeapStateBackend> snapshot(long checkpointId, long timestamp) throws Exception {
+		CheckpointStateOutputView out = backend.createCheckpointStateOutputView(checkpointId, timestamp);
+		try {
+			map.writeTo(out);
+			return new OffHeapKvStateSnapshot<>(keySerializer, namespaceSerializer, stateDesc, out.closeAndGetHandle());
+		} catch (Exception e) {
+			out.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Adds the records of a snapshot that was written by {@link #snapshot(long, long)}.
+	 */
+	void restore(DataInputView in) throws IOException {
+		map.readFrom(in);
+	}
+
+	@Override
+	public void dispose() {
+		map.dispose();
+	}
+}
@@ -0,0 +1,739 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.offheap;
+
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.core.memory.HybridMemorySegment;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.util.MathUtils;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A hash map from serialized keys to serialized values. The records are appended to off-heap
+ * memory pages, in the format {@code [key length][value length][key bytes][value bytes]}. An
+ * open addressing index with linear probing maps the keys to the position of their latest record.
+ * The index consists only of primitive arrays, so the map creates no objects per entry.
+ *
+ * <p>Appending to the value of a key does not copy the previous value. The appended bytes are
+ * written as a chunk {@code [chunk length][pointer to the previous chunk][chunk bytes]}, and the
+ * index keeps a pointer to the newest chunk of each key. Reading the value concatenates the
+ * record and its chunks. Compaction merges the chunks into a single record again.
+ *
+ * <p>Updating or removing a key leaves its previous record and chunks behind as garbage. Once more than half
+ * of the bytes in the pages are garbage, the map compacts itself by copying the live records into
+ * new pages. The records are copied page by page, and every old page is released as soon as all
+ * records and chunks on it are copied. Because at least half of the old bytes are garbage, the
+ * compaction usually needs only one page more than the map held before. Only a value whose chunks
+ * are spread over many pages keeps these pages until the whole value is copied.
+ *
+ * <p>The map takes its memory from a {@link PageBudget} that it shares with the other maps of the
+ * same state backend. When the budget is exhausted, the oldest pages (which hold the records that
+ * were not updated for the longest time) are written to a spill file and released. Records on
+ * spilled pages are read from the file directly. Updates always go to the newest page, which is
+ * never spilled.
+ *
+ * <p>This class is not thread safe.
+ */
+final class BinaryHashMap {
+
+	/** The default size of the memory pages (32 KiBytes) */
+	static final int DEFAULT_PAGE_SIZE = 32 * 1024;
+
+	/** Marker for an index slot that never held a record */
+	private static final long EMPTY = -1L;
+
+	/** Marker for an index slot whose record was removed */
+	private static final long REMOVED = -2L;
+
+	/** The size of the record header, holding the key length and the value length */
+	private static final int HEADER_SIZE = 8;
+
+	/** The size of the chunk header, holding the chunk length and the pointer to the previous chunk */
+	private static final int CHUNK_HEADER_SIZE = 12;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	/** Small maps are not compacted, their garbage is negligible */
+	private static final int MIN_PAGES_FOR_COMPACTION = 4;
+
+	private final PageBudget budget;
+
+	private final int pageSize;
+
+	private final File spillDirectory;
+
+	/** Buffer to read record headers from the spill file */
+	private final ByteBuffer headerBuffer = ByteBuffer.allocate(8).order(ByteOrder.nativeOrder());
+
+	/** The index: pointers to the records ({@code page index << 32 | offset}), or one of the markers */
+	private long[] pointers;
+
+	/** The pointers to the newest appended chunk of the records in the index, or {@link #EMPTY} */
+	private long[] tails;
+
+	/** Reusable buffer for the pointers of the chunks of a value */
+	private long[] chunkPointers = new long[16];
+
+	/** The hash codes of the keys in the index, to avoid comparing keys for colliding entries */
+	private int[] hashCodes;
+
+	/** The number of keys in the map */
+	private int size;
+
+	/** The number of index slots that are marked as removed */
+	private int numRemoved;
+
+	/** The pages holding the records. The last page is the one that is currently written */
+	private List<Page> pages = new ArrayList<>();
+
+	/** All pages before this index are spilled */
+	private int nextPageToSpill;
+
+	/** The number of bytes of all records in the pages, including garbage */
+	private long totalBytes;
+
+	/** The number of bytes of the records that are referenced by the index */
+	private long liveBytes;
+
+	private File spillFile;
+
+	private FileChannel spillChannel;
+
+	private long spillFileSize;
+
+	BinaryHashMap(PageBudget budget, int pageSize, File spillDirectory) {
+		if (pageSize <= CHUNK_HEADER_SIZE) {
+			throw new IllegalArgumentException("The page size is too small.");
+		}
+		this.budget = budget;
+		this.pageSize = pageSize;
+		this.spillDirectory = spillDirectory;
+
+		this.pointers = new long[INITIAL_CAPACITY];
+		this.tails = new long[INITIAL_CAPACITY];
+		this.hashCodes = new int[INITIAL_CAPACITY];
+		Arrays.fill(pointers, EMPTY);
+		Arrays.fill(tails, EMPTY);
+
+		budget.register(this);
+	}
+
+	// ------------------------------------------------------------------------
+	//  Map operations
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Returns the value for the given key, or {@code null}, if the map does not contain the key.
+	 */
+	byte[] get(byte[] key) throws IOException {
+		int slot = findSlot(key, hash(key));
+		return slot >= 0 ? readValue(pages, pointers[slot], tails[slot]) : null;
+	}
+
+	void put(byte[] key, byte[] value) throws IOException {
+		int hash = hash(key);
+		putAtSlot(findSlot(key, hash), hash, key, value);
+	}
+
+	/**
+	 * Appends the given bytes to the value of the given key. If the map does not contain the key,
+	 * the given bytes become the value. The previous value is neither read nor copied.
+	 */
+	void append(byte[] key, byte[] value) throws IOException {
+		int hash = hash(key);
+		int slot = findSlot(key, hash);
+		if (slot < 0) {
+			putAtSlot(slot, hash, key, value);
+		} else {
+			tails[slot] = appendChunk(tails[slot], value);
+			liveBytes += CHUNK_HEADER_SIZE + value.length;
+
+			compactIfWasteful();
+		}
+	}
+
+	boolean remove(byte[] key) throws IOException {
+		int slot = findSlot(key, hash(key));
+		if (slot < 0) {
+			return false;
+		}
+
+		liveBytes -= valueSize(pages, pointers[slot], tails[slot]);
+		pointers[slot] = REMOVED;
+		tails[slot] = EMPTY;
+		size--;
+		numRemoved++;
+
+		compactIfWasteful();
+		return true;
+	}
+
+	int size() {
+		return size;
+	}
+
+	// ------------------------------------------------------------------------
+	//  Snapshot and restore
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Writes all live records to the given output view. In-memory pages are copied in bulk, record
+	 * by record, without deserializing the keys and values.
+	 */
+	void writeTo(DataOutputView out) throws IOException {
+		out.writeInt(size);
+
+		for (int i = 0; i < pointers.length; i++) {
+			long pointer = pointers[i];
+			if (pointer >= 0 && tails[i] != EMPTY) {
+				// the value has appended chunks, write it as one record
+				byte[] key = readKey(pages, pointer);
+				byte[] value = readValue(pages, pointer, tails[i]);
+				out.writeInt(key.length);
+				out.writeInt(value.length);
+				out.write(key);
+				out.write(value);
+			}
+			else if (pointer >= 0) {
+				Page page = pages.get(pageIndex(pointer));
+				int offset = offset(pointer);
+				int keyLength = readInt(page, offset);
+				int valueLength = readInt(page, offset + 4);
+
+				out.writeInt(keyLength);
+				out.writeInt(valueLength);
+				if (page.segment != null) {
+					page.segment.get(out, offset + HEADER_SIZE, keyLength + valueLength);
+				} else {
+					byte[] record = new byte[keyLength + valueLength];
+					readBytes(page, offset + HEADER_SIZE, record);
+					out.write(record);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds all records that were written by {@link #writeTo(DataOutputView)} to this map.
+	 */
+	void readFrom(DataInputView in) throws IOException {
+		int numRecords = in.readInt();
+		for (int i = 0; i < numRecords; i++) {
+			byte[] key = new byte[in.readInt()];
+			byte[] value = new byte[in.readInt()];
+			in.readFully(key);
+			in.readFully(value);
+			put(key, value);
+		}
+	}
+
+	/**
+	 * Releases all memory pages and deletes the spill file.
+	 */
+	void dispose() {
+		for (Page page : pages) {
+			releasePage(page);
+		}
+		pages.clear();
+		closeAndDelete(spillChannel, spillFile);
+		spillChannel = null;
+		spillFile = null;
+
+		budget.unregister(this);
+	}
+
+	// ------------------------------------------------------------------------
+	//  Spilling
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Writes the oldest in-memory page to the spill file and releases its memory.
+	 *
+	 * @return True, if a page was spilled, false if the map has no page that can be spilled.
+	 */
+	boolean spillPage() throws IOException {
+		int writePage = pages.size() - 1;
+		while (nextPageToSpill < writePage && pages.get(nextPageToSpill).segment == null) {
+			nextPageToSpill++;
+		}
+		if (nextPageToSpill >= writePage) {
+			return false;
+		}
+
+		Page page = pages.get(nextPageToSpill++);
+		if (spillChannel == null) {
+			spillFile = new File(spillDirectory, "offheap-state-" + UUID.randomUUID() + ".spill");
+			spillChannel = new RandomAccessFile(spillFile, "rw").getChannel();
+		}
+
+		ByteBuffer data = page.segment.wrap(0, page.limit);
+		long position = spillFileSize;
+		while (data.hasRemaining()) {
+			position += spillChannel.write(data, position);
+		}
+
+		page.file = spillChannel;
+		page.fileOffset = spillFileSize;
+		spillFileSize = position;
+
+		releasePage(page);
+		return true;
+	}
+
+	int getNumPages() {
+		return pages.size();
+	}
+
+	int getNumSpilledPages() {
+		int spilled = 0;
+		for (Page page : pages) {
+			if (page.segment == null) {
+				spilled++;
+			}
+		}
+		return spilled;
+	}
+
+	long getGarbageBytes() {
+		return totalBytes - liveBytes;
+	}
+
+	// ------------------------------------------------------------------------
+	//  Index
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Finds the index slot of the given key.
+	 *
+	 * @return The slot that holds the key, or {@code -(insertion slot + 1)} if the map does not
+	 *         contain the key.
+	 */
+	private int findSlot(byte[] key, int hash) throws IOException {
+		final int mask = pointers.length - 1;
+		int slot = hash & mask;
+		int firstRemoved = -1;
+
+		while (true) {
+			long pointer = pointers[slot];
+			if (pointer == EMPTY) {
+				return -((firstRemoved >= 0 ? firstRemoved : slot) + 1);
+			} else if (pointer == REMOVED) {
+				if (firstRemoved < 0) {
+					firstRemoved = slot;
+				}
+			} else if (hashCodes[slot] == hash && keyEquals(pointer, key)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	private void putAtSlot(int slot, int hash, byte[] key, byte[] value) throws IOException {
+		long pointer = appendRecord(key, value);
+
+		if (slot >= 0) {
+			liveBytes -= valueSize(pages, pointers[slot], tails[slot]);
+			pointers[slot] = pointer;
+			tails[slot] = EMPTY;
+		} else {
+			int insertSlot = -(slot + 1);
+			if (pointers[insertSlot] == REMOVED) {
+				numRemoved--;
+			}
+			pointers[insertSlot] = pointer;
+			tails[insertSlot] = EMPTY;
+			hashCodes[insertSlot] = hash;
+			size++;
+
+			if (size + numRemoved > pointers.length / 4 * 3) {
+				// grow if the map is filled, otherwise only clean up the removed markers
+				rehash(size > pointers.length / 2 ? pointers.length * 2 : pointers.length);
+			}
+		}
+		liveBytes += HEADER_SIZE + key.length + value.length;
+
+		compactIfWasteful();
+	}
+
+	private void rehash(int capacity) {
+		long[] oldPointers = pointers;
+		long[] oldTails = tails;
+		int[] oldHashCodes = hashCodes;
+
+		pointers = new long[capacity];
+		tails = new long[capacity];
+		hashCodes = new int[capacity];
+		Arrays.fill(pointers, EMPTY);
+		Arrays.fill(tails, EMPTY);
+
+		final int mask = capacity - 1;
+		for (int i = 0; i < oldPointers.length; i++) {
+			if (oldPointers[i] >= 0) {
+				int slot = oldHashCodes[i] & mask;
+				while (pointers[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				pointers[slot] = oldPointers[i];
+				tails[slot] = oldTails[i];
+				hashCodes[slot] = oldHashCodes[i];
+			}
+		}
+		numRemoved = 0;
+	}
+
+	private boolean keyEquals(long pointer, byte[] key) throws IOException {
+		Page page = pages.get(pageIndex(pointer));
+		int offset = offset(pointer);
+		MemorySegment segment = page.segment;
+
+		if (segment == null) {
+			return Arrays.equals(key, readKey(pages, pointer));
+		}
+		if (segment.getInt(offset) != key.length) {
+			return false;
+		}
+		int keyOffset = offset + HEADER_SIZE;
+		for (int i = 0; i < key.length; i++) {
+			if (segment.get(keyOffset + i) != key[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int hash(byte[] key) {
+		return MathUtils.murmurHash(Arrays.hashCode(key));
+	}
+
+	// ------------------------------------------------------------------------
+	//  Records and pages
+	// ------------------------------------------------------------------------
+
+	private long appendRecord(byte[] key, byte[] value) throws IOException {
+		int recordSize = HEADER_SIZE + key.length + value.length;
+		Page page = getWritePage(recordSize);
+
+		int offset = page.limit;
+		MemorySegment segment = page.segment;
+		segment.putInt(offset, key.length);
+		segment.putInt(offset + 4, value.length);
+		segment.put(offset + HEADER_SIZE, key);
+		segment.put(offset + HEADER_SIZE + key.length, value);
+
+		page.limit += recordSize;
+		totalBytes += recordSize;
+
+		return ((long) (pages.size() - 1) << 32) | offset;
+	}
+
+	/**
+	 * Writes the given bytes as a chunk that follows the chunk with the given pointer.
+	 *
+	 * @return The pointer to the new chunk.
+	 */
+	private long appendChunk(long previousChunk, byte[] value) throws IOException {
+		int chunkSize = CHUNK_HEADER_SIZE + value.length;
+		Page page = getWritePage(chunkSize);
+
+		int offset = page.limit;
+		MemorySegment segment = page.segment;
+		segment.putInt(offset, value.length);
+		segment.putLong(offset + 4, previousChunk);
+		segment.put(offset + CHUNK_HEADER_SIZE, value);
+
+		page.limit += chunkSize;
+		totalBytes += chunkSize;
+
+		return ((long) (pages.size() - 1) << 32) | offset;
+	}
+
+	/**
+	 * Returns the page to write a record or chunk of the given size to, allocating a new page if
+	 * the current one is full.
+	 */
+	private Page getWritePage(int size) throws IOException {
+		Page page = pages.isEmpty() ? null : pages.get(pages.size() - 1);
+		if (page == null || page.capacity - page.limit < size) {
+			page = allocatePage(size);
+		}
+		return page;
+	}
+
+	private Page allocatePage(int minSize) throws IOException {
+		// records larger than a page get a page of their own
+		int capacity = Math.max(pageSize, minSize);
+		budget.reserve(capacity);
+
+		MemorySegment segment = HybridMemorySegment.FACTORY.wrapPooledOffHeapMemory(ByteBuffer.allocateDirect(capacity), this);
+		Page page = new Page(segment, capacity);
+		pages.add(page);
+		return page;
+	}
+
+	private void releasePage(Page page) {
+		if (page.segment != null) {
+			page.segment.free();
+			page.segment = null;
+			budget.release(page.capacity);
+		}
+	}
+
+	private void compactIfWasteful() throws IOException {
+		if (pages.size() >= MIN_PAGES_FOR_COMPACTION && totalBytes - liveBytes > totalBytes / 2) {
+			compact();
+		}
+	}
+
+	/**
+	 * Copies all live records into new pages and releases the old pages and the old spill file.
+	 * Values with appended chunks are merged into a single record.
+	 *
+	 * <p>The records are copied in the order of the old pages that hold them. Each old page is
+	 * released once no record or chunk on it remains to be copied, so that the old and the new
+	 * pages do not occupy the memory budget at the same time.
+	 */
+	private void compact() throws IOException {
+		List<Page> oldPages = pages;
+		FileChannel oldSpillChannel = spillChannel;
+		File oldSpillFile = spillFile;
+
+		// count the records and chunks on every old page, and sort the slots by the page of their record
+		int[] references = new int[oldPages.size()];
+		int[] slotsPerPage = new int[oldPages.size() + 1];
+		for (int i = 0; i < pointers.length; i++) {
+			long pointer = pointers[i];
+			if (pointer >= 0) {
+				references[pageIndex(pointer)]++;
+				slotsPerPage[pageIndex(pointer) + 1]++;
+				for (long chunk = tails[i]; chunk != EMPTY; chunk = readLong(oldPages.get(pageIndex(chunk)), offset(chunk) + 4)) {
+					references[pageIndex(chunk)]++;
+				}
+			}
+		}
+		for (int i = 1; i < slotsPerPage.length; i++) {
+			slotsPerPage[i] += slotsPerPage[i - 1];
+		}
+		int[] slots = new int[size];
+		for (int i = 0; i < pointers.length; i++) {
+			if (pointers[i] >= 0) {
+				slots[slotsPerPage[pageIndex(pointers[i])]++] = i;
+			}
+		}
+
+		// pages that hold only garbage are not needed for the copy
+		for (int i = 0; i < references.length; i++) {
+			if (references[i] == 0) {
+				releasePage(oldPages.get(i));
+			}
+		}
+
+		pages = new ArrayList<>();
+		nextPageToSpill = 0;
+		totalBytes = 0;
+		spillChannel = null;
+		spillFile = null;
+		spillFileSize = 0;
+
+		for (int slot : slots) {
+			long pointer = pointers[slot];
+			long tail = tails[slot];
+			pointers[slot] = appendRecord(readKey(oldPages, pointer), readValue(oldPages, pointer, tail));
+			tails[slot] = EMPTY;
+
+			releaseIfCopied(oldPages, references, pageIndex(pointer));
+			while (tail != EMPTY) {
+				long previous = readLong(oldPages.get(pageIndex(tail)), offset(tail) + 4);
+				releaseIfCopied(oldPages, references, pageIndex(tail));
+				tail = previous;
+			}
+		}
+		// without the chunk headers, the merged records can be smaller than before
+		liveBytes = totalBytes;
+
+		for (Page page : oldPages) {
+			releasePage(page);
+		}
+		closeAndDelete(oldSpillChannel, oldSpillFile);
+	}
+
+	/**
+	 * Releases the given old page during compaction, once all records and chunks on it are copied.
+	 */
+	private void releaseIfCopied(List<Page> oldPages, int[] references, int pageIndex) {
+		if (--references[pageIndex] == 0) {
+			releasePage(oldPages.get(pageIndex));
+		}
+	}
+
+	private byte[] readKey(List<Page> pages, long pointer) throws IOException {
+		Page page = pages.get(pageIndex(pointer));
+		int offset = offset(pointer);
+
+		byte[] key = new byte[readInt(page, offset)];
+		readBytes(page, offset + HEADER_SIZE, key);
+		return key;
+	}
+
+	/**
+	 * Reads the value of the record with the given pointer, followed by the bytes of its chunks.
+	 */
+	private byte[] readValue(List<Page> pages, long pointer, long tail) throws IOException {
+		Page page = pages.get(pageIndex(pointer));
+		int offset = offset(pointer);
+
+		int keyLength = readInt(page, offset);
+		int recordValueLength = readInt(page, offset + 4);
+
+		// the chunks are linked from the newest to the oldest
+		int numChunks = 0;
+		int valueLength = recordValueLength;
+		for (long chunk = tail; chunk != EMPTY; chunk = readLong(pages.get(pageIndex(chunk)), offset(chunk) + 4)) {
+			if (numChunks == chunkPointers.length) {
+				chunkPointers = Arrays.copyOf(chunkPointers, numChunks * 2);
+			}
+			chunkPointers[numChunks++] = chunk;
+			valueLength += readInt(pages.get(pageIndex(chunk)), offset(chunk));
+		}
+
+		byte[] value = new byte[valueLength];
+		readBytes(page, offset + HEADER_SIZE + keyLength, value, 0, recordValueLength);
+
+		int position = recordValueLength;
+		for (int i = numChunks - 1; i >= 0; i--) {
+			Page chunkPage = pages.get(pageIndex(chunkPointers[i]));
+			int chunkOffset = offset(chunkPointers[i]);
+			int chunkLength = readInt(chunkPage, chunkOffset);
+			readBytes(chunkPage, chunkOffset + CHUNK_HEADER_SIZE, value, position, chunkLength);
+			position += chunkLength;
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the number of bytes of the record with the given pointer and all of its chunks.
+	 */
+	private long valueSize(List<Page> pages, long pointer, long tail) throws IOException {
+		Page page = pages.get(pageIndex(pointer));
+		int offset = offset(pointer);
+		long size = HEADER_SIZE + readInt(page, offset) + readInt(page, offset + 4);
+
+		for (long chunk = tail; chunk != EMPTY; chunk = readLong(pages.get(pageIndex(chunk)), offset(chunk) + 4)) {
+			size += CHUNK_HEADER_SIZE + readInt(pages.get(pageIndex(chunk)), offset(chunk));
+		}
+		return size;
+	}
+
+	private int readInt(Page page, int offset) throws IOException {
+		if (page.segment != null) {
+			return page.segment.getInt(offset);
+		}
+		headerBuffer.clear();
+		headerBuffer.limit(4);
+		readFully(page.file, headerBuffer, page.fileOffset + offset);
+		return headerBuffer.getInt(0);
+	}
+
+	private long readLong(Page page, int offset) throws IOException {
+		if (page.segment != null) {
+			return page.segment.getLong(offset);
+		}
+		headerBuffer.clear();
+		readFully(page.file, headerBuffer, page.fileOffset + offset);
+		return headerBuffer.getLong(0);
+	}
+
+	private static void readBytes(Page page, int offset, byte[] target) throws IOException {
+		readBytes(page, offset, target, 0, target.length);
+	}
+
+	private static void readBytes(Page page, int offset, byte[] target, int targetOffset, int length) throws IOException {
+		if (page.segment != null) {
+			page.segment.get(offset, target, targetOffset, length);
+		} else {
+			readFully(page.file, ByteBuffer.wrap(target, targetOffset, length), page.fileOffset + offset);
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+		while (target.hasRemaining()) {
+			int read = channel.read(target, position);
+			if (read < 0) {
+				throw new EOFException("Unexpected end of the spill file.");
+			}
+			position += read;
+		}
+	}
+
+	private static void closeAndDelete(FileChannel channel, File file) {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException ignored) {}
+		}
+		if (file != null) {
+			//noinspection ResultOfMethodCallIgnored
+			file.delete();
+		}
+	}
+
+	private static int pageIndex(long pointer) {
+		return (int) (pointer >>> 32);
+	}
+
+	private static int offset(long pointer) {
+		return (int) pointer;
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * A memory page of the map. Once spilled, the page's data is in the spill file.
+	 */
+	private static final class Page {
+
+		/** The memory of the page, null once the page is spilled */
+		MemorySegment segment;
+
+		final int capacity;
+
+		/** The number of bytes written to the page */
+		int limit;
+
+		FileChannel file;
+
+		long fileOffset;
+
+		Page(MemorySegment segment, int capacity) {
+			this.segment = segment;
+			this.capacity = capacity;
+		}
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.offheap;
+
+import org.apache.flink.api.common.functions.FoldFunction;
+import org.apache.flink.api.common.state.FoldingState;
+import org.apache.flink.api.common.state.FoldingStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+
+import java.io.IOException;
+
+/**
+ * {@link FoldingState} implementation that stores state in off-heap memory.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <T> The type of the values that can be folded into the state.
+ * @param <ACC> The type of the value in the folding state.
+ */
+public class OffHeapFoldingState<K, N, T, ACC>
+	extends AbstractOffHeapState<K, N, ACC, FoldingState<T, ACC>, FoldingStateDescriptor<T, ACC>>
+	implements FoldingState<T, ACC> {
+
+	private final FoldFunction<T, ACC> foldFunction;
+
+	public OffHeapFoldingState(OffHeapStateBackend backend,
+			TypeSerializer<K> keySerializer,
+			TypeSerializer<N> namespaceSerializer,
+			FoldingStateDescriptor<T, ACC> stateDesc) {
+		super(backend, keySerializer, namespaceSerializer, stateDesc.getSerializer(), stateDesc);
+		this.foldFunction = stateDesc.getFoldFunction();
+	}
+
+	@Override
+	public ACC get() {
+		ACC value = getValue();
+		return value != null ? value : stateDesc.getDefaultValue();
+	}
+
+	@Override
+	public void add(T value) throws IOException {
+		ACC currentValue = getValue();
+		try {
+			if (currentValue == null) {
+				putValue(foldFunction.fold(stateDesc.getDefaultValue(), value));
+			} else {
+				putValue(foldFunction.fold(currentValue, value));
+			}
+		} catch (Exception e) {
+			throw new RuntimeException("Could not add value to folding state.", e);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.offheap;
+
+import org.apache.flink.api.common.state.State;
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.runtime.state.KvState;
+import org.apache.flink.runtime.state.KvStateSnapshot;
+import org.apache.flink.runtime.state.StateHandle;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A snapshot of an {@link AbstractOffHeapState}. The live records of the state's map are written
+ * in serialized form to a checkpoint stream of the backend that {@link OffHeapStateBackend}
+ * uses for checkpoint data.
+ *
+ * @param <K> The type of the key in the snapshot state.
+ * @param <N> The type of the namespace in the snapshot state.
+ * @param <S> The type of {@link State}.
+ * @param <SD> The type of {@link StateDescriptor}.
+ */
+public class OffHeapKvStateSnapshot<K, N, S extends State, SD extends StateDescriptor<S, ?>>
+		implements KvStateSnapshot<K, N, S, SD, OffHeapStateBackend> {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Key Serializer */
+	private final TypeSerializer<K> keySerializer;
+
+	/** Namespace Serializer */
+	private final TypeSerializer<N> namespaceSerializer;
+
+	/** StateDescriptor, to re-create the state */
+	private final SD stateDesc;
+
+	/** The handle to the serialized records */
+	private final StateHandle<DataInputView> data;
+
+	public OffHeapKvStateSnapshot(TypeSerializer<K> keySerializer,
+			TypeSerializer<N> namespaceSerializer,
+			SD stateDesc,
+			StateHandle<DataInputView> data) {
+		this.keySerializer = requireNonNull(keySerializer);
+		this.namespaceSerializer = requireNonNull(namespaceSerializer);
+		this.stateDesc = requireNonNull(stateDesc);
+		this.data = requireNonNull(data);
+	}
+
+	@Override
+	public KvState<K, N, S, SD, OffHeapStateBackend> restoreState(
+			OffHeapStateBackend stateBackend,
+			TypeSerializer<K> keySerializer,
+			ClassLoader classLoader,
+			long recoveryTimestamp) throws Exception {
+
+		// validity checks
+		if (!this.keySerializer.equals(keySerializer)) {
+			throw new IllegalArgumentException(
+				"Cannot restore the state from the snapshot with the given serializers. " +
+					"State (K/V) was serialized with " +
+					"(" + this.keySerializer + ") " +
+					"now is (" + keySerializer + ")");
+		}
+
+		AbstractOffHeapState<K, N, ?, S, SD> state = stateBackend.createOffHeapState(keySerializer, namespaceSerializer, stateDesc);
+		try {
+			state.restore(data.getState(classLoader));
+		} catch (Exception e) {
+			state.dispose();
+			throw e;
+		}
+		return state;
+	}
+
+	@Override
+	public void discardState() throws Exception {
+		data.discardState();
+	}
+
+	@Override
+	public long getStateSize() throws Exception {
+		return data.getStateSize();
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.offheap;
+
+import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link ListState} implementation that stores state in off-heap memory. The value of a key is
+ * the concatenation of the serialized list elements. Adding an element appends it as a chunk to
+ * the value, so it neither deserializes nor copies the list.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <V> The type of the values in the list state.
+ */
+public class OffHeapListState<K, N, V>
+	extends AbstractOffHeapState<K, N, V, ListState<V>, ListStateDescriptor<V>>
+	implements ListState<V> {
+
+	public OffHeapListState(OffHeapStateBackend backend,
+			TypeSerializer<K> keySerializer,
+			TypeSerializer<N> namespaceSerializer,
+			ListStateDescriptor<V> stateDesc) {
+		super(backend, keySerializer, namespaceSerializer, stateDesc.getSerializer(), stateDesc);
+	}
+
+	@Override
+	public Iterable<V> get() {
+		try {
+			byte[] bytes = map.get(serializeKeyAndNamespace());
+			if (bytes == null) {
+				return Collections.emptyList();
+			}
+
+			ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
+			DataInputViewStreamWrapper in = new DataInputViewStreamWrapper(bais);
+
+			List<V> result = new ArrayList<>();
+			while (bais.available() > 0) {
+				result.add(valueSerializer.deserialize(in));
+			}
+			return result;
+		} catch (IOException e) {
+			throw new RuntimeException("Error while retrieving data from the off-heap state", e);
+		}
+	}
+
+	@Override
+	public void add(V value) throws IOException {
+		if (currentKey == null) {
+			throw new RuntimeException("No key available.");
+		}
+		byte[] key = serializeKeyAndNamespace();
+		valueOut.clear();
+		valueSerializer.serialize(value, valueOut);
+		map.append(key, valueOut.getCopyOfBuffer());
+	}
+}
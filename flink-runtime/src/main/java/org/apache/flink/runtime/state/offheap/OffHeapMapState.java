@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.offheap;
+
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * {@link MapState} implementation that stores state in off-heap memory. The map of a key is
+ * stored as one serialized value, because the {@link BinaryHashMap} cannot iterate the entries
+ * of a key. Every access therefore deserializes the whole map of the key.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <UK> The type of the keys in the map state.
+ * @param <UV> The type of the values in the map state.
+ */
+public class OffHeapMapState<K, N, UK, UV>
+	extends AbstractOffHeapState<K, N, Map<UK, UV>, MapState<UK, UV>, MapStateDescriptor<UK, UV>>
+	implements MapState<UK, UV> {
+
+	public OffHeapMapState(OffHeapStateBackend backend,
+			TypeSerializer<K> keySerializer,
+			TypeSerializer<N> namespaceSerializer,
+			MapStateDescriptor<UK, UV> stateDesc) {
+		super(backend, keySerializer, namespaceSerializer, stateDesc.getSerializer(), stateDesc);
+	}
+
+	@Override
+	public UV get(UK key) {
+		Map<UK, UV> userMap = getValue();
+		return userMap != null ? userMap.get(key) : null;
+	}
+
+	@Override
+	public void put(UK key, UV value) {
+		Map<UK, UV> userMap = getUserMapForUpdate();
+		userMap.put(key, value);
+		putValue(userMap);
+	}
+
+	@Override
+	public void putAll(Map<UK, UV> map) {
+		Map<UK, UV> userMap = getUserMapForUpdate();
+		userMap.putAll(map);
+		putValue(userMap);
+	}
+
+	@Override
+	public void remove(UK key) {
+		Map<UK, UV> userMap = getValue();
+		if (userMap != null && userMap.containsKey(key)) {
+			userMap.remove(key);
+			if (userMap.isEmpty()) {
+				clear();
+			} else {
+				putValue(userMap);
+			}
+		}
+	}
+
+	@Override
+	public boolean contains(UK key) {
+		Map<UK, UV> userMap = getValue();
+		return userMap != null && userMap.containsKey(key);
+	}
+
+	@Override
+	public Iterable<Map.Entry<UK, UV>> entries() {
+		Map<UK, UV> userMap = getValue();
+		return userMap != null ? userMap.entrySet() : Collections.<Map.Entry<UK, UV>>emptySet();
+	}
+
+	@Override
+	public Iterable<UK> keys() {
+		Map<UK, UV> userMap = getValue();
+		return userMap != null ? userMap.keySet() : Collections.<UK>emptySet();
+	}
+
+	@Override
+	public Iterable<UV> values() {
+		Map<UK, UV> userMap = getValue();
+		return userMap != null ? userMap.values() : Collections.<UV>emptySet();
+	}
+
+	private Map<UK, UV> getUserMapForUpdate() {
+		Map<UK, UV> userMap = getValue();
+		return userMap != null ? userMap : valueSerializer.createInstance();
+	}
+}
@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.offheap;
+
+import org.apache.flink.api.common.state.FoldingState;
+import org.apache.flink.api.common.state.FoldingStateDescriptor;
+import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.state.ReducingState;
+import org.apache.flink.api.common.state.ReducingStateDescriptor;
+import org.apache.flink.api.common.state.State;
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.configuration.ConfigConstants;
+import org.apache.flink.runtime.execution.Environment;
+import org.apache.flink.runtime.state.AbstractStateBackend;
+import org.apache.flink.runtime.state.StateHandle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A state backend that stores the key/value state in serialized form in off-heap memory. Compared
+ * to the heap state backends, the state creates no objects per key and does not burden the
+ * garbage collector. Compared to RocksDB, accessing the state needs no JNI calls.
+ *
+ * <p>Each key/value state is kept in a {@link BinaryHashMap}. All maps of the backend share a
+ * memory budget. When the budget is exhausted, the maps spill their least recently written pages
+ * to local disk (the spill directories of the TaskManager, unless configured otherwise).
+ *
+ * <p>The memory budget is not taken from the TaskManager's managed memory. Streaming tasks do not
+ * reserve managed memory from the {@link org.apache.flink.runtime.memory.MemoryManager}, whose pool
+ * is sized for the batch operators of the slots, so the backend allocates direct memory on its own
+ * and bounds it per operator. The direct memory limit of the TaskManager JVM
+ * ({@code -XX:MaxDirectMemorySize}) must leave room for the budgets of all keyed operators of all
+ * slots, in addition to the network buffers and any off-heap managed memory.
+ *
+ * <p>Checkpoints write the serialized records to the streams of a second state backend, which also
+ * holds the non-partitioned state.
+ */
+public class OffHeapStateBackend extends AbstractStateBackend {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The default size of the memory that the key/value states may occupy (128 MiBytes) */
+	public static final long DEFAULT_MEMORY_BUDGET = 128 * 1024 * 1024;
+
+	/** The backend that stores checkpoint data and the non-partitioned state */
+	private final AbstractStateBackend checkpointStreamBackend;
+
+	/** The number of bytes of off-heap memory that the key/value states of an operator may occupy */
+	private final long memoryBudget;
+
+	/** The size of the memory pages of the key/value states */
+	private int pageSize = BinaryHashMap.DEFAULT_PAGE_SIZE;
+
+	/** The configured directories for spill files, null to use the TaskManager's spilling directories */
+	private String[] configuredSpillPaths;
+
+	// ------------------------------------------------------------------------
+	//  Runtime fields
+
+	/** The memory budget shared by all key/value states */
+	private transient PageBudget budget;
+
+	/** The directories for spill files, used in a round-robin fashion */
+	private transient File[] spillDirectories;
+
+	private transient int nextSpillDirectory;
+
+	/**
+	 * Creates a new off-heap state backend with the default memory budget.
+	 *
+	 * @param checkpointStreamBackend The backend that stores checkpoint data and the non-partitioned state.
+	 */
+	public OffHeapStateBackend(AbstractStateBackend checkpointStreamBackend) {
+		this(checkpointStreamBackend, DEFAULT_MEMORY_BUDGET);
+	}
+
+	/**
+	 * Creates a new off-heap state backend.
+	 *
+	 * @param checkpointStreamBackend The backend that stores checkpoint data and the non-partitioned state.
+	 * @param memoryBudget The number of bytes of off-heap memory that the key/value states of an
+	 *                     operator may occupy before they spill to disk. The memory is direct memory
+	 *                     outside of the TaskManager's managed memory.
+	 */
+	public OffHeapStateBackend(AbstractStateBackend checkpointStreamBackend, long memoryBudget) {
+		if (memoryBudget <= 0) {
+			throw new IllegalArgumentException("The memory budget must be positive.");
+		}
+		this.checkpointStreamBackend = requireNonNull(checkpointStreamBackend);
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Sets the size of the memory pages of the key/value states. Larger values than a page get a
+	 * page of their own.
+	 *
+	 * @param pageSize The page size in bytes.
+	 */
+	public void setPageSize(int pageSize) {
+		if (pageSize < 1024) {
+			throw new IllegalArgumentException("The page size must be at least 1 KiByte.");
+		}
+		this.pageSize = pageSize;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * Sets the directories to which the key/value states spill when they exceed the memory budget.
+	 * If not set, the state spills to the TaskManager's spilling directories.
+	 *
+	 * @param paths The paths of the local directories.
+	 */
+	public void setSpillPaths(String... paths) {
+		if (paths == null || paths.length == 0) {
+			configuredSpillPaths = null;
+		} else {
+			configuredSpillPaths = paths.clone();
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  initialization and cleanup
+	// ------------------------------------------------------------------------
+
+	@Override
+	public void initializeForJob(
+			Environment env,
+			String operatorIdentifier,
+			TypeSerializer<?> keySerializer) throws Exception {
+
+		super.initializeForJob(env, operatorIdentifier, keySerializer);
+		checkpointStreamBackend.initializeForJob(env, operatorIdentifier, keySerializer);
+
+		if (configuredSpillPaths != null) {
+			spillDirectories = new File[configuredSpillPaths.length];
+			for (int i = 0; i < configuredSpillPaths.length; i++) {
+				spillDirectories[i] = new File(configuredSpillPaths[i]);
+			}
+		} else if (env.getIOManager() != null) {
+			spillDirectories = env.getIOManager().getSpillingDirectories();
+		} else {
+			spillDirectories = new File[] { new File(ConfigConstants.DEFAULT_TASK_MANAGER_TMP_PATH) };
+		}
+
+		for (File dir : spillDirectories) {
+			if (!dir.isDirectory() && !dir.mkdirs()) {
+				throw new IOException("Cannot create the spill directory " + dir);
+			}
+		}
+
+		budget = new PageBudget(memoryBudget);
+	}
+
+	@Override
+	public void disposeAllStateForCurrentJob() throws Exception {
+		checkpointStreamBackend.disposeAllStateForCurrentJob();
+	}
+
+	@Override
+	public void dispose() {
+		super.dispose();
+		checkpointStreamBackend.dispose();
+	}
+
+	@Override
+	public void close() throws Exception {
+		checkpointStreamBackend.close();
+	}
+
+	// ------------------------------------------------------------------------
+	//  State backend operations
+	// ------------------------------------------------------------------------
+
+	@Override
+	protected <N, T> ValueState<T> createValueState(TypeSerializer<N> namespaceSerializer, ValueStateDescriptor<T> stateDesc) throws Exception {
+		return new OffHeapValueState<>(this, keySerializer, namespaceSerializer, stateDesc);
+	}
+
+	@Override
+	protected <N, T> ListState<T> createListState(TypeSerializer<N> namespaceSerializer, ListStateDescriptor<T> stateDesc) throws Exception {
+		return new OffHeapListState<>(this, keySerializer, namespaceSerializer, stateDesc);
+	}
+
+	@Override
+	protected <N, T> ReducingState<T> createReducingState(TypeSerializer<N> namespaceSerializer, ReducingStateDescriptor<T> stateDesc) throws Exception {
+		return new OffHeapReducingState<>(this, keySerializer, namespaceSerializer, stateDesc);
+	}
+
+	@Override
+	protected <N, T, ACC> FoldingState<T, ACC> createFoldingState(TypeSerializer<N> namespaceSerializer, FoldingStateDescriptor<T, ACC> stateDesc) throws Exception {
+		return new OffHeapFoldingState<>(this, keySerializer, namespaceSerializer, stateDesc);
+	}
+
+	@Override
+	protected <N, UK, UV> MapState<UK, UV> createMapState(TypeSerializer<N> namespaceSerializer, MapStateDescriptor<UK, UV> stateDesc) throws Exception {
+		return new OffHeapMapState<>(this, keySerializer, namespaceSerializer, stateDesc);
+	}
+
+	/**
+	 * Creates an empty key/value state for the given state descriptor. This is used to restore
+	 * the state from a snapshot.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	<K, N, S extends State, SD extends StateDescriptor<S, ?>> AbstractOffHeapState<K, N, ?, S, SD> createOffHeapState(
+			TypeSerializer<K> keySerializer,
+			TypeSerializer<N> namespaceSerializer,
+			SD stateDesc) {
+
+		if (stateDesc instanceof ValueStateDescriptor) {
+			return new OffHeapValueState(this, keySerializer, namespaceSerializer, (ValueStateDescriptor) stateDesc);
+		} else if (stateDesc instanceof ListStateDescriptor) {
+			return new OffHeapListState(this, keySerializer, namespaceSerializer, (ListStateDescriptor) stateDesc);
+		} else if (stateDesc instanceof ReducingStateDescriptor) {
+			return new OffHeapReducingState(this, keySerializer, namespaceSerializer, (ReducingStateDescriptor) stateDesc);
+		} else if (stateDesc instanceof FoldingStateDescriptor) {
+			return new OffHeapFoldingState(this, keySerializer, namespaceSerializer, (FoldingStateDescriptor) stateDesc);
+		} else if (stateDesc instanceof MapStateDescriptor) {
+			return new OffHeapMapState(this, keySerializer, namespaceSerializer, (MapStateDescriptor) stateDesc);
+		} else {
+			throw new IllegalArgumentException("Unsupported state descriptor " + stateDesc);
+		}
+	}
+
+	/**
+	 * Creates a new binary hash map that draws from the memory budget of this backend.
+	 */
+	BinaryHashMap createMap() {
+		if (budget == null) {
+			throw new IllegalStateException("The state backend has not been initialized.");
+		}
+		File spillDirectory = spillDirectories[nextSpillDirectory];
+		nextSpillDirectory = (nextSpillDirectory + 1) % spillDirectories.length;
+		return new BinaryHashMap(budget, pageSize, spillDirectory);
+	}
+
+	// ------------------------------------------------------------------------
+	//  Non-partitioned state
+	// ------------------------------------------------------------------------
+
+	@Override
+	public CheckpointStateOutputStream createCheckpointStateOutputStream(
+			long checkpointID, long timestamp) throws Exception {
+		return checkpointStreamBackend.createCheckpointStateOutputStream(checkpointID, timestamp);
+	}
+
+	@Override
+	public <S extends Serializable> StateHandle<S> checkpointStateSerializable(
+			S state, long checkpointID, long timestamp) throws Exception {
+		return checkpointStreamBackend.checkpointStateSerializable(state, checkpointID, timestamp);
+	}
+
+	// ------------------------------------------------------------------------
+	//  Utilities
+	// ------------------------------------------------------------------------
+
+	@Override
+	public String toString() {
+		return "OffHeapStateBackend (data in off-heap memory / checkpoints to " + checkpointStreamBackend + ")";
+	}
+}
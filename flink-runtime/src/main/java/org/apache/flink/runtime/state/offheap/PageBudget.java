@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.offheap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The off-heap memory budget that is shared by all {@link BinaryHashMap}s of one
+ * {@link OffHeapStateBackend}. When a map needs a new page and the budget is exhausted, the
+ * budget asks the registered maps (in round-robin order) to spill their oldest page to disk.
+ *
+ * <p>If no map has a page left that can be spilled, the budget is exceeded rather than failing,
+ * because every map needs at least the page that it currently writes to. A map that compacts
+ * itself may exceed the budget by one more page, see {@link BinaryHashMap}.
+ *
+ * <p>The pages are direct memory that is not part of the TaskManager's managed memory, see
+ * {@link OffHeapStateBackend}.
+ *
+ * <p>This class is not thread safe. All maps of a backend are accessed by the task's thread.
+ */
+final class PageBudget {
+
+	/** The maximum number of bytes that the pages of all maps may occupy in memory */
+	private final long maxBytes;
+
+	/** The maps that share this budget */
+	private final List<BinaryHashMap> maps = new ArrayList<>();
+
+	/** The number of bytes currently occupied by in-memory pages */
+	private long usedBytes;
+
+	/** The highest number of bytes that were occupied by in-memory pages at the same time */
+	private long peakBytes;
+
+	/** The index of the map that is asked to spill next */
+	private int nextToSpill;
+
+	PageBudget(long maxBytes) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("The memory budget must be positive.");
+		}
+		this.maxBytes = maxBytes;
+	}
+
+	void register(BinaryHashMap map) {
+		maps.add(map);
+	}
+
+	void unregister(BinaryHashMap map) {
+		maps.remove(map);
+	}
+
+	/**
+	 * Reserves the given number of bytes for a new in-memory page, spilling pages of the
+	 * registered maps until the reservation fits into the budget.
+	 */
+	void reserve(int bytes) throws IOException {
+		while (usedBytes + bytes > maxBytes && spillOnePage()) {
+			// keep spilling
+		}
+		usedBytes += bytes;
+		peakBytes = Math.max(peakBytes, usedBytes);
+	}
+
+	void release(int bytes) {
+		usedBytes -= bytes;
+	}
+
+	long getUsedBytes() {
+		return usedBytes;
+	}
+
+	long getPeakBytes() {
+		return peakBytes;
+	}
+
+	long getMaxBytes() {
+		return maxBytes;
+	}
+
+	private boolean spillOnePage() throws IOException {
+		for (int i = 0; i < maps.size(); i++) {
+			nextToSpill = (nextToSpill + 1) % maps.size();
+			if (maps.get(nextToSpill).spillPage()) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
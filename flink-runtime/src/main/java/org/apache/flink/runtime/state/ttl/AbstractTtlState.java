@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.ttl;
+
+import org.apache.flink.api.common.state.State;
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.runtime.state.AbstractStateBackend;
+import org.apache.flink.runtime.state.KeyGroupedKvState;
+import org.apache.flink.runtime.state.KvState;
+import org.apache.flink.runtime.state.KvStateSnapshot;
+
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Base class for states with time-to-live. The states wrap a state of the backend that holds
+ * the user values together with their expiration time, as {@link TtlValue}s. Expired values are
+ * hidden from the user and removed when they are accessed.
+ *
+ * <p>Snapshots are created by the wrapped state, so they restore the wrapped state. The
+ * {@link AbstractStateBackend} wraps it again when the state is requested.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <S> The type of {@link State}.
+ * @param <SD> The type of {@link StateDescriptor}.
+ * @param <IS> The type of the wrapped state.
+ */
+public abstract class AbstractTtlState<K, N, S extends State, SD extends StateDescriptor<S, ?>, IS extends State>
+		implements KeyGroupedKvState<K, N, S, SD, AbstractStateBackend>, State {
+
+	/** The wrapped state that holds the values with their expiration time */
+	protected final IS internalState;
+
+	/** The wrapped state as a key/value state */
+	private final KvState<K, N, ?, ?, ?> internalKvState;
+
+	/** The descriptor of this state, as given by the user */
+	protected final SD stateDesc;
+
+	/** The time-to-live of the values in milliseconds */
+	private final long timeToLive;
+
+	/** Provides the time that decides whether values have expired */
+	private final TtlTimeProvider timeProvider;
+
+	@SuppressWarnings("unchecked")
+	protected AbstractTtlState(IS internalState, SD stateDesc, TtlTimeProvider timeProvider) {
+		this.internalState = requireNonNull(internalState);
+		this.internalKvState = (KvState<K, N, ?, ?, ?>) internalState;
+		this.stateDesc = requireNonNull(stateDesc);
+		this.timeToLive = stateDesc.getTimeToLive();
+		this.timeProvider = requireNonNull(timeProvider);
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Returns the current processing time, which decides whether values have expired.
+	 */
+	protected long currentTime() {
+		return timeProvider.currentTimestamp();
+	}
+
+	/**
+	 * Wraps the given user value with the expiration time for a value that is written now.
+	 */
+	protected <T> TtlValue<T> wrapWithTtl(T value) {
+		return new TtlValue<>(value, currentTime() + timeToLive);
+	}
+
+	/**
+	 * Returns the wrapped state.
+	 */
+	public IS getInternalState() {
+		return internalState;
+	}
+
+	@Override
+	public void clear() {
+		internalState.clear();
+	}
+
+	@Override
+	public void setCurrentKey(K key) {
+		internalKvState.setCurrentKey(key);
+	}
+
+	@Override
+	public void setCurrentNamespace(N namespace) {
+		internalKvState.setCurrentNamespace(namespace);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public KvStateSnapshot<K, N, S, SD, AbstractStateBackend> snapshot(long checkpointId, long timestamp) throws Exception {
+		return (KvStateSnapshot<K, N, S, SD, AbstractStateBackend>) internalKvState.snapshot(checkpointId, timestamp);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked,rawtypes")
+	public Map<Integer, KvStateSnapshot<K, N, S, SD, AbstractStateBackend>> snapshotKeyGroups(
+			long checkpointId,
+			long timestamp,
+			int numberOfKeyGroups) throws Exception {
+
+		if (!(internalKvState instanceof KeyGroupedKvState)) {
+			throw new UnsupportedOperationException("The state '" + stateDesc.getName() +
+				"' cannot be checkpointed per key group.");
+		}
+		return (Map) ((KeyGroupedKvState) internalKvState).snapshotKeyGroups(checkpointId, timestamp, numberOfKeyGroups);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked,rawtypes")
+	public void addKeyGroupState(KvState<K, N, S, SD, AbstractStateBackend> keyGroupState) throws Exception {
+		KvState restored = keyGroupState instanceof AbstractTtlState ?
+			((AbstractTtlState) keyGroupState).internalKvState : keyGroupState;
+		((KeyGroupedKvState) internalKvState).addKeyGroupState(restored);
+	}
+
+	@Override
+	public void dispose() {
+		internalKvState.dispose();
+	}
+}
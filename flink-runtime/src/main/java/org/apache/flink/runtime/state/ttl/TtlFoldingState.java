@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.ttl;
+
+import org.apache.flink.api.common.functions.FoldFunction;
+import org.apache.flink.api.common.state.FoldingState;
+import org.apache.flink.api.common.state.FoldingStateDescriptor;
+import org.apache.flink.api.common.state.ValueState;
+
+/**
+ * {@link FoldingState} with time-to-live. The accumulator is kept in a value state, so every
+ * added value extends the time-to-live of the accumulator.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <T> The type of the values that can be folded into the state.
+ * @param <ACC> The type of the value in the folding state.
+ */
+public class TtlFoldingState<K, N, T, ACC>
+	extends AbstractTtlState<K, N, FoldingState<T, ACC>, FoldingStateDescriptor<T, ACC>, ValueState<TtlValue<ACC>>>
+	implements FoldingState<T, ACC> {
+
+	private final FoldFunction<T, ACC> foldFunction;
+
+	public TtlFoldingState(ValueState<TtlValue<ACC>> internalState, FoldingStateDescriptor<T, ACC> stateDesc, TtlTimeProvider timeProvider) {
+		super(internalState, stateDesc, timeProvider);
+		this.foldFunction = stateDesc.getFoldFunction();
+	}
+
+	@Override
+	public ACC get() throws Exception {
+		TtlValue<ACC> value = internalState.value();
+		if (value == null) {
+			return stateDesc.getDefaultValue();
+		}
+		if (value.isExpired(currentTime())) {
+			internalState.clear();
+			return stateDesc.getDefaultValue();
+		}
+		return value.getValue();
+	}
+
+	@Override
+	public void add(T value) throws Exception {
+		internalState.update(wrapWithTtl(foldFunction.fold(get(), value)));
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.ttl;
+
+import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.ListStateDescriptor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ListState} with time-to-live. Every element of the list expires individually, after
+ * the time-to-live has passed since it was added.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <T> The type of the values in the list state.
+ */
+public class TtlListState<K, N, T>
+	extends AbstractTtlState<K, N, ListState<T>, ListStateDescriptor<T>, ListState<TtlValue<T>>>
+	implements ListState<T> {
+
+	public TtlListState(ListState<TtlValue<T>> internalState, ListStateDescriptor<T> stateDesc, TtlTimeProvider timeProvider) {
+		super(internalState, stateDesc, timeProvider);
+	}
+
+	@Override
+	public Iterable<T> get() throws Exception {
+		Iterable<TtlValue<T>> values = internalState.get();
+		if (values == null) {
+			return null;
+		}
+
+		long now = currentTime();
+		List<T> result = new ArrayList<>();
+		List<TtlValue<T>> remaining = new ArrayList<>();
+		boolean expired = false;
+
+		for (TtlValue<T> value : values) {
+			if (value.isExpired(now)) {
+				expired = true;
+			} else {
+				result.add(value.getValue());
+				remaining.add(value);
+			}
+		}
+
+		// rewrite the list without the expired elements
+		if (expired) {
+			internalState.clear();
+			for (TtlValue<T> value : remaining) {
+				internalState.add(value);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void add(T value) throws Exception {
+		internalState.add(wrapWithTtl(value));
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.ttl;
+
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.state.ReducingState;
+import org.apache.flink.api.common.state.ReducingStateDescriptor;
+import org.apache.flink.api.common.state.ValueState;
+
+/**
+ * {@link ReducingState} with time-to-live. The reduced value is kept in a value state, so every
+ * added value extends the time-to-live of the reduced value.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <T> The type of the values in the state.
+ */
+public class TtlReducingState<K, N, T>
+	extends AbstractTtlState<K, N, ReducingState<T>, ReducingStateDescriptor<T>, ValueState<TtlValue<T>>>
+	implements ReducingState<T> {
+
+	private final ReduceFunction<T> reduceFunction;
+
+	public TtlReducingState(ValueState<TtlValue<T>> internalState, ReducingStateDescriptor<T> stateDesc, TtlTimeProvider timeProvider) {
+		super(internalState, stateDesc, timeProvider);
+		this.reduceFunction = stateDesc.getReduceFunction();
+	}
+
+	@Override
+	public T get() throws Exception {
+		TtlValue<T> value = internalState.value();
+		if (value == null) {
+			return null;
+		}
+		if (value.isExpired(currentTime())) {
+			internalState.clear();
+			return null;
+		}
+		return value.getValue();
+	}
+
+	@Override
+	public void add(T value) throws Exception {
+		T current = get();
+		internalState.update(wrapWithTtl(current == null ? value : reduceFunction.reduce(current, value)));
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.ttl;
+
+import org.apache.flink.api.common.state.FoldingState;
+import org.apache.flink.api.common.state.FoldingStateDescriptor;
+import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.ReducingStateDescriptor;
+import org.apache.flink.api.common.state.State;
+import org.apache.flink.api.common.state.StateBackend;
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+
+/**
+ * Creates the states with time-to-live for state descriptors with
+ * {@link StateDescriptor#isTimeToLiveEnabled() time-to-live}.
+ *
+ * <p>Value, reducing and folding states are stored in a value state of {@link TtlValue}s, list
+ * states in a list state of {@code TtlValue}s. The internal states have the same name as the
+ * user's state and carry its time-to-live, which allows the backends to drop expired values
+ * when they take a checkpoint.
+ */
+public final class TtlStateFactory {
+
+	/**
+	 * Creates the internal state for the given descriptor on the given backend, and wraps it
+	 * into a state with time-to-live. The values expire according to the given time provider.
+	 */
+	public static <S extends State> S createState(
+			StateDescriptor<S, ?> stateDesc,
+			StateBackend backend,
+			TtlTimeProvider timeProvider) throws Exception {
+		State internalState = createInternalStateDescriptor(stateDesc).bind(backend);
+		return wrapState(internalState, stateDesc, timeProvider);
+	}
+
+	/**
+	 * Wraps an internal state, as created by
+	 * {@link #createState(StateDescriptor, StateBackend, TtlTimeProvider)} or restored from a
+	 * snapshot of it, into a state with time-to-live.
+	 */
+	@SuppressWarnings("unchecked,rawtypes")
+	public static <S extends State> S wrapState(State internalState, StateDescriptor<S, ?> stateDesc, TtlTimeProvider timeProvider) {
+		if (stateDesc instanceof ValueStateDescriptor) {
+			return (S) new TtlValueState((ValueState) internalState, (ValueStateDescriptor) stateDesc, timeProvider);
+		} else if (stateDesc instanceof ListStateDescriptor) {
+			return (S) new TtlListState((ListState) internalState, (ListStateDescriptor) stateDesc, timeProvider);
+		} else if (stateDesc instanceof ReducingStateDescriptor) {
+			return (S) new TtlReducingState((ValueState) internalState, (ReducingStateDescriptor) stateDesc, timeProvider);
+		} else if (stateDesc instanceof FoldingStateDescriptor) {
+			return (S) new TtlFoldingState((ValueState) internalState, (FoldingStateDescriptor) stateDesc, timeProvider);
+		} else {
+			throw new UnsupportedOperationException("Time-to-live is not supported for " + stateDesc);
+		}
+	}
+
+	@SuppressWarnings("unchecked,rawtypes")
+	private static StateDescriptor<?, ?> createInternalStateDescriptor(StateDescriptor<?, ?> stateDesc) {
+		StateDescriptor<?, ?> internalDesc;
+		TtlValueSerializer<?> serializer = new TtlValueSerializer<>(stateDesc.getSerializer());
+
+		if (stateDesc instanceof ListStateDescriptor) {
+			internalDesc = new ListStateDescriptor<>(stateDesc.getName(), serializer);
+		} else if (stateDesc instanceof ValueStateDescriptor
+				|| stateDesc instanceof ReducingStateDescriptor
+				|| stateDesc instanceof FoldingStateDescriptor) {
+			internalDesc = new ValueStateDescriptor(stateDesc.getName(), serializer, null);
+		} else {
+			throw new UnsupportedOperationException("Time-to-live is not supported for " + stateDesc);
+		}
+
+		internalDesc.setTimeToLive(stateDesc.getTimeToLive());
+		return internalDesc;
+	}
+
+	// ------------------------------------------------------------------------
+
+	/** Private constructor to prevent instantiation */
+	private TtlStateFactory() {}
+}
@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.ttl;
+
+/**
+ * Provides the current time that decides whether values of states with time-to-live have
+ * expired. Normally this is the system time, but tests can provide a custom time.
+ */
+public interface TtlTimeProvider {
+
+	/** The provider that returns the system time */
+	TtlTimeProvider SYSTEM_TIME = new TtlTimeProvider() {
+		@Override
+		public long currentTimestamp() {
+			return System.currentTimeMillis();
+		}
+	};
+
+	/**
+	 * Returns the current time in milliseconds.
+	 */
+	long currentTimestamp();
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.ttl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A value of a state with time-to-live, together with the time at which it expires.
+ *
+ * @param <T> The type of the user value.
+ */
+public final class TtlValue<T> {
+
+	/** The user value */
+	private final T value;
+
+	/** The processing time (in milliseconds) at which the value expires */
+	private final long expirationTimestamp;
+
+	public TtlValue(T value, long expirationTimestamp) {
+		this.value = value;
+		this.expirationTimestamp = expirationTimestamp;
+	}
+
+	public T getValue() {
+		return value;
+	}
+
+	public long getExpirationTimestamp() {
+		return expirationTimestamp;
+	}
+
+	public boolean isExpired(long now) {
+		return expirationTimestamp <= now;
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Removes the expired values from the value of a heap state with time-to-live, which is either
+	 * a {@code TtlValue} or a list of {@code TtlValue}s. The given list is not modified, because it
+	 * may be referenced by a pending snapshot.
+	 *
+	 * @param stateValue The state value.
+	 * @param now The current processing time.
+	 * @return The given state value, if nothing expired, a new list with the remaining values,
+	 *         or null, if all values expired.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <SV> SV removeExpired(SV stateValue, long now) {
+		if (stateValue instanceof TtlValue) {
+			return ((TtlValue<?>) stateValue).isExpired(now) ? null : stateValue;
+		}
+		else if (stateValue instanceof List) {
+			List<TtlValue<?>> list = (List<TtlValue<?>>) stateValue;
+			ArrayList<TtlValue<?>> remaining = null;
+
+			for (int i = 0; i < list.size(); i++) {
+				if (list.get(i).isExpired(now)) {
+					if (remaining == null) {
+						remaining = new ArrayList<>(list.subList(0, i));
+					}
+				} else if (remaining != null) {
+					remaining.add(list.get(i));
+				}
+			}
+
+			if (remaining == null) {
+				return stateValue;
+			}
+			return remaining.isEmpty() ? null : (SV) remaining;
+		}
+		else {
+			return stateValue;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "TtlValue{value=" + value + ", expirationTimestamp=" + expirationTimestamp + '}';
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.ttl;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+
+import java.io.IOException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Serializer for {@link TtlValue}s. The expiration timestamp is written first, as a big-endian
+ * long, so that it can be read from the serialized bytes without knowing the user value's type.
+ *
+ * @param <T> The type of the user value.
+ */
+public final class TtlValueSerializer<T> extends TypeSerializer<TtlValue<T>> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final TypeSerializer<T> valueSerializer;
+
+	public TtlValueSerializer(TypeSerializer<T> valueSerializer) {
+		this.valueSerializer = requireNonNull(valueSerializer);
+	}
+
+	/**
+	 * Reads the expiration timestamp from a value that was serialized by this serializer.
+	 */
+	public static long getExpirationTimestamp(byte[] serializedValue) {
+		long timestamp = 0;
+		for (int i = 0; i < 8; i++) {
+			timestamp = (timestamp << 8) | (serializedValue[i] & 0xff);
+		}
+		return timestamp;
+	}
+
+	@Override
+	public boolean isImmutableType() {
+		return false;
+	}
+
+	@Override
+	public TypeSerializer<TtlValue<T>> duplicate() {
+		TypeSerializer<T> duplicateValue = valueSerializer.duplicate();
+		return duplicateValue == valueSerializer ? this : new TtlValueSerializer<>(duplicateValue);
+	}
+
+	@Override
+	public TtlValue<T> createInstance() {
+		return new TtlValue<>(valueSerializer.createInstance(), Long.MAX_VALUE);
+	}
+
+	@Override
+	public TtlValue<T> copy(TtlValue<T> from) {
+		return new TtlValue<>(valueSerializer.copy(from.getValue()), from.getExpirationTimestamp());
+	}
+
+	@Override
+	public TtlValue<T> copy(TtlValue<T> from, TtlValue<T> reuse) {
+		return copy(from);
+	}
+
+	@Override
+	public int getLength() {
+		int valueLength = valueSerializer.getLength();
+		return valueLength < 0 ? -1 : valueLength + 8;
+	}
+
+	@Override
+	public void serialize(TtlValue<T> record, DataOutputView target) throws IOException {
+		target.writeLong(record.getExpirationTimestamp());
+		valueSerializer.serialize(record.getValue(), target);
+	}
+
+	@Override
+	public TtlValue<T> deserialize(DataInputView source) throws IOException {
+		long expirationTimestamp = source.readLong();
+		return new TtlValue<>(valueSerializer.deserialize(source), expirationTimestamp);
+	}
+
+	@Override
+	public TtlValue<T> deserialize(TtlValue<T> reuse, DataInputView source) throws IOException {
+		return deserialize(source);
+	}
+
+	@Override
+	public void copy(DataInputView source, DataOutputView target) throws IOException {
+		target.writeLong(source.readLong());
+		valueSerializer.copy(source, target);
+	}
+
+	// --------------------------------------------------------------------
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj == this ||
+			(obj != null && obj.getClass() == getClass() &&
+				valueSerializer.equals(((TtlValueSerializer<?>) obj).valueSerializer));
+	}
+
+	@Override
+	public boolean canEqual(Object obj) {
+		return obj instanceof TtlValueSerializer;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * valueSerializer.hashCode() + 1;
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.ttl;
+
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+
+import java.io.IOException;
+
+/**
+ * {@link ValueState} with time-to-live.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <T> The type of the value.
+ */
+public class TtlValueState<K, N, T>
+	extends AbstractTtlState<K, N, ValueState<T>, ValueStateDescriptor<T>, ValueState<TtlValue<T>>>
+	implements ValueState<T> {
+
+	public TtlValueState(ValueState<TtlValue<T>> internalState, ValueStateDescriptor<T> stateDesc, TtlTimeProvider timeProvider) {
+		super(internalState, stateDesc, timeProvider);
+	}
+
+	@Override
+	public T value() throws IOException {
+		TtlValue<T> value = internalState.value();
+		if (value == null) {
+			return stateDesc.getDefaultValue();
+		}
+		if (value.isExpired(currentTime())) {
+			internalState.clear();
+			return stateDesc.getDefaultValue();
+		}
+		return value.getValue();
+	}
+
+	@Override
+	public void update(T value) throws IOException {
+		if (value == null) {
+			clear();
+			return;
+		}
+		internalState.update(wrapWithTtl(value));
+	}
+}
@@ -38,6 +38,7 @@ import org.apache.flink.runtime.messages.checkpoint.AcknowledgeCheckpoint;
 import org.apache.flink.runtime.state.StateHandle;
 import org.apache.flink.util.SerializedValue;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Future;
 
@@ -222,6 +223,11 @@ public class RuntimeEnvironment implements Environment {
 
 	@Override
 	public void acknowledgeCheckpoint(long checkpointId, StateHandle<?> state) {
+		acknowledgeCheckpoint(checkpointId, state, null);
+	}
+
+	@Override
+	public void acknowledgeCheckpoint(long checkpointId, StateHandle<?> state, Map<Integer, StateHandle<?>> keyGroupStates) {
 		// try and create a serialized version of the state handle
 		SerializedValue<StateHandle<?>> serializedState;
 		long stateSize;
@@ -243,13 +249,36 @@ public class RuntimeEnvironment implements Environment {
 				throw new RuntimeException("Failed to fetch state handle size", e);
 			}
 		}
+
+		Map<Integer, SerializedValue<StateHandle<?>>> serializedKeyGroupStates = null;
+
+		if (keyGroupStates != null) {
+			serializedKeyGroupStates = new HashMap<>(keyGroupStates.size());
+
+			for (Map.Entry<Integer, StateHandle<?>> keyGroupState : keyGroupStates.entrySet()) {
+				try {
+					serializedKeyGroupStates.put(keyGroupState.getKey(),
+						new SerializedValue<StateHandle<?>>(keyGroupState.getValue()));
+				} catch (Exception e) {
+					throw new RuntimeException("Failed to serialize key group state handle during checkpoint confirmation", e);
+				}
+
+				try {
+					stateSize += keyGroupState.getValue().getStateSize();
+				}
+				catch (Exception e) {
+					throw new RuntimeException("Failed to fetch key group state handle size", e);
+				}
+			}
+		}
 		
 		AcknowledgeCheckpoint message = new AcknowledgeCheckpoint(
 				jobId,
 				executionId,
 				checkpointId,
 				serializedState,
-				stateSize);
+				stateSize,
+				serializedKeyGroupStates);
 
 		jobManager.tell(message);
 	}
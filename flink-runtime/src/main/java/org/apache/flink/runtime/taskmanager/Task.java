@@ -217,6 +217,10 @@ public class Task implements Runnable {
 	 * initialization, to be memory friendly */
 	private volatile SerializedValue<StateHandle<?>> operatorState;
 
+	/** The handles to the key/value state of the operator by key group. Will be set to null after the
+	 * initialization, to be memory friendly */
+	private volatile Map<Integer, SerializedValue<StateHandle<?>>> operatorKvState;
+
 	private volatile long recoveryTs;
 
 	/** The job specific execution configuration (see {@link ExecutionConfig}). */
@@ -252,6 +256,7 @@ public class Task implements Runnable {
 		this.requiredClasspaths = checkNotNull(tdd.getRequiredClasspaths());
 		this.nameOfInvokableClass = checkNotNull(tdd.getInvokableClassName());
 		this.operatorState = tdd.getOperatorState();
+		this.operatorKvState = tdd.getOperatorKvState();
 		this.recoveryTs = tdd.getRecoveryTimestamp();
 		this.executionConfig = checkNotNull(tdd.getExecutionConfig());
 
@@ -529,6 +534,7 @@ public class Task implements Runnable {
 
 			// get our private reference onto the stack (be safe against concurrent changes)
 			SerializedValue<StateHandle<?>> operatorState = this.operatorState;
+			Map<Integer, SerializedValue<StateHandle<?>>> operatorKvState = this.operatorKvState;
 			long recoveryTs = this.recoveryTs;
 
 			if (operatorState != null) {
@@ -547,11 +553,33 @@ public class Task implements Runnable {
 				}
 			}
 
+			if (operatorKvState != null && !operatorKvState.isEmpty()) {
+				if (invokable instanceof StatefulTask) {
+					try {
+						Map<Integer, StateHandle<?>> keyGroupStates = new HashMap<>(operatorKvState.size());
+						for (Map.Entry<Integer, SerializedValue<StateHandle<?>>> keyGroupState : operatorKvState.entrySet()) {
+							keyGroupStates.put(keyGroupState.getKey(), keyGroupState.getValue().deserializeValue(userCodeClassLoader));
+						}
+						StatefulTask<?> op = (StatefulTask<?>) invokable;
+						StateUtils.setKeyGroupState(op, keyGroupStates, recoveryTs);
+					}
+					catch (Exception e) {
+						throw new RuntimeException("Failed to deserialize key group state handles and setup initial key/value state.", e);
+					}
+				}
+				else {
+					throw new IllegalStateException("Found key/value state for a non-stateful task invokable");
+				}
+			}
+
 			// be memory and GC friendly - since the code stays in invoke() for a potentially long time,
 			// we clear the reference to the state handle
 			//noinspection UnusedAssignment
 			operatorState = null;
 			this.operatorState = null;
+			//noinspection UnusedAssignment
+			operatorKvState = null;
+			this.operatorKvState = null;
 
 			// ----------------------------------------------------------------
 			//  actual task core work
@@ -1205,12 +1205,25 @@ class JobManager(
             jobGraph.getExecutionConfig.getParallelism
           }
 
+          // the key/value state is checkpointed per key group if the number of key
+          // groups is configured, otherwise there is one key group per subtask
+          val numberKeyGroups = if (jobGraph.getExecutionConfig.getNumberOfKeyGroups > 0) {
+            jobGraph.getExecutionConfig.getNumberOfKeyGroups
+          } else {
+            parallelism
+          }
+
+          // large state handles of acknowledged checkpoints are written to the
+          // metadata directory, if one is configured
+          val checkpointMetadataStore: CheckpointMetadataStore =
+            CheckpointMetadataStore.createFromConfig(flinkConfiguration)
+
           executionGraph.enableSnapshotCheckpointing(
             snapshotSettings.getCheckpointInterval,
             snapshotSettings.getCheckpointTimeout,
             snapshotSettings.getMinPauseBetweenCheckpoints,
             snapshotSettings.getMaxConcurrentCheckpoints,
-            parallelism,
+            numberKeyGroups,
             triggerVertices,
             ackVertices,
             confirmVertices,
@@ -1220,7 +1233,8 @@ class JobManager(
             completedCheckpoints,
             recoveryMode,
             savepointStore,
-            checkpointStatsTracker)
+            checkpointStatsTracker,
+            checkpointMetadataStore)
         }
 
         // get notified about job status changes
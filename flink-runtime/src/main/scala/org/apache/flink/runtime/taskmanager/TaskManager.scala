@@ -1850,7 +1850,22 @@ object TaskManager {
     }
 
     // start the I/O manager last, it will create some temp directories.
-    val ioManager: IOManager = new IOManagerAsync(taskManagerConfig.tmpDirPaths)
+    val ioThreadsPerDir = configuration.getInteger(
+      ConfigConstants.TASK_MANAGER_IO_THREADS_PER_DIR_KEY,
+      ConfigConstants.DEFAULT_TASK_MANAGER_IO_THREADS_PER_DIR)
+
+    checkConfigParameter(ioThreadsPerDir >= 1, ioThreadsPerDir,
+      ConfigConstants.TASK_MANAGER_IO_THREADS_PER_DIR_KEY,
+      "Number of I/O threads per temporary directory must be at least one.")
+
+    val compressSpilledData = configuration.getBoolean(
+      ConfigConstants.RUNTIME_COMPRESS_SPILLED_DATA_KEY,
+      ConfigConstants.DEFAULT_RUNTIME_COMPRESS_SPILLED_DATA)
+
+    val ioManager: IOManager = new IOManagerAsync(
+      taskManagerConfig.tmpDirPaths,
+      ioThreadsPerDir,
+      compressSpilledData)
 
     val leaderRetrievalService = leaderRetrievalServiceOption match {
       case Some(lrs) => lrs
@@ -19,6 +19,7 @@
 package org.apache.flink.runtime.checkpoint;
 
 import org.apache.flink.api.common.JobID;
+import org.apache.flink.runtime.checkpoint.stats.DisabledCheckpointStatsTracker;
 import org.apache.flink.runtime.execution.ExecutionState;
 import org.apache.flink.runtime.executiongraph.Execution;
 import org.apache.flink.runtime.executiongraph.ExecutionAttemptID;
@@ -31,13 +32,17 @@ import org.apache.flink.runtime.state.LocalStateHandle;
 import org.apache.flink.runtime.state.StateHandle;
 import org.apache.flink.runtime.util.SerializableObject;
 import org.apache.flink.util.SerializedValue;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
+import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 
@@ -48,6 +53,9 @@ public class CheckpointStateRestoreTest {
 
 	private static final ClassLoader cl = Thread.currentThread().getContextClassLoader();
 
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
 	@Test
 	public void testSetState() {
 		try {
@@ -125,6 +133,79 @@ public class CheckpointStateRestoreTest {
 		}
 	}
 
+	@Test
+	public void testSetOffloadedState() {
+		try {
+			final SerializedValue<StateHandle<?>> serializedState = new SerializedValue<StateHandle<?>>(
+					new LocalStateHandle<SerializableObject>(new SerializableObject()));
+
+			final JobID jid = new JobID();
+			final JobVertexID statefulId = new JobVertexID();
+
+			Execution statefulExec1 = mockExecution();
+			Execution statefulExec2 = mockExecution();
+
+			ExecutionVertex stateful1 = mockExecutionVertex(statefulExec1, statefulId, 0, 2);
+			ExecutionVertex stateful2 = mockExecutionVertex(statefulExec2, statefulId, 1, 2);
+
+			ExecutionJobVertex stateful = mockExecutionJobVertex(statefulId,
+					new ExecutionVertex[] { stateful1, stateful2 });
+
+			Map<JobVertexID, ExecutionJobVertex> map = new HashMap<JobVertexID, ExecutionJobVertex>();
+			map.put(statefulId, stateful);
+
+			File metadataDir = tmp.newFolder();
+
+			// the threshold is chosen such that every state handle is offloaded
+			CheckpointCoordinator coord = new CheckpointCoordinator(
+				jid,
+				200000L,
+				200000L,
+				0L,
+				Integer.MAX_VALUE,
+				42,
+				new ExecutionVertex[] { stateful1, stateful2 },
+				new ExecutionVertex[] { stateful1, stateful2 },
+				new ExecutionVertex[0],
+				cl,
+				new StandaloneCheckpointIDCounter(),
+				new StandaloneCompletedCheckpointStore(1, cl),
+				RecoveryMode.STANDALONE,
+				new DisabledCheckpointStatsTracker(),
+				new CheckpointMetadataStore(metadataDir.toURI().toString(), 0));
+
+			coord.triggerCheckpoint(34623786L);
+
+			PendingCheckpoint pending = coord.getPendingCheckpoints().values().iterator().next();
+			final long checkpointId = pending.getCheckpointId();
+
+			coord.receiveAcknowledgeMessage(new AcknowledgeCheckpoint(jid, statefulExec1.getAttemptId(), checkpointId, serializedState, 0));
+			coord.receiveAcknowledgeMessage(new AcknowledgeCheckpoint(jid, statefulExec2.getAttemptId(), checkpointId, serializedState, 0));
+
+			assertEquals(1, coord.getNumberOfRetainedSuccessfulCheckpoints());
+
+			CompletedCheckpoint completed = coord.getSuccessfulCheckpoints().get(0);
+			for (SubtaskState subtaskState : completed.getTaskState(statefulId).getStates()) {
+				assertTrue(subtaskState.isOffloaded());
+			}
+			assertEquals(2, metadataDir.list().length);
+
+			// the coordinator reads the offloaded state when restoring
+			coord.restoreLatestCheckpointedState(map, true, false);
+
+			verify(statefulExec1, times(1)).setInitialState(Mockito.eq(serializedState), Mockito.<Map<Integer, SerializedValue<StateHandle<?>>>>any(), Mockito.anyLong());
+			verify(statefulExec2, times(1)).setInitialState(Mockito.eq(serializedState), Mockito.<Map<Integer, SerializedValue<StateHandle<?>>>>any(), Mockito.anyLong());
+
+			// discarding the checkpoint removes the metadata files
+			completed.discard(cl);
+			assertEquals(0, metadataDir.list().length);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
 	@Test
 	public void testStateOnlyPartiallyAvailable() {
 		try {
@@ -75,7 +75,8 @@ public class ExecutionGraphCheckpointCoordinatorTest {
 					new StandaloneCompletedCheckpointStore(1, ClassLoader.getSystemClassLoader()),
 					RecoveryMode.STANDALONE,
 					new HeapStateStore<CompletedCheckpoint>(),
-					new DisabledCheckpointStatsTracker());
+					new DisabledCheckpointStatsTracker(),
+					null);
 
 			CheckpointCoordinator checkpointCoordinator = executionGraph.getCheckpointCoordinator();
 			SavepointCoordinator savepointCoordinator = executionGraph.getSavepointCoordinator();
@@ -20,15 +20,23 @@ package org.apache.flink.runtime.io.disk.iomanager;
 
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.taskmanager.OneShotLatch;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -347,8 +355,127 @@ public class IOManagerAsyncTest {
 		}
 	}
 
+	@Test
+	public void testChannelsPlacedAtLeastLoadedThread() {
+		final String tempDir = System.getProperty("java.io.tmpdir");
+		final IOManagerAsync ioMan = new IOManagerAsync(new String[] { tempDir, tempDir }, 2);
+		final OneShotLatch blocker = new OneShotLatch();
+
+		try {
+			final WriteRequest blockingRequest = new WriteRequest() {
+				@Override
+				public void requestDone(IOException ioex) {}
+
+				@Override
+				public void write() throws IOException {
+					try {
+						blocker.await();
+					}
+					catch (InterruptedException e) {
+						throw new IOException(e);
+					}
+				}
+			};
+
+			// without pending requests, the channels are spread evenly across all threads
+			Set<Integer> threads = new HashSet<>();
+			for (int i = 0; i < 4; i++) {
+				threads.add(ioMan.createChannel().getThreadNum());
+			}
+			assertEquals(4, threads.size());
+
+			// keep one thread busy and queue further requests behind it
+			final FileIOChannel.ID busyChannel = ioMan.createChannel();
+			RequestQueue<WriteRequest> busyQueue = ioMan.getWriteRequestQueue(busyChannel);
+			busyQueue.add(blockingRequest);
+			busyQueue.add(blockingRequest);
+			busyQueue.add(blockingRequest);
+
+			for (int i = 0; i < 12; i++) {
+				FileIOChannel.ID channel = ioMan.createChannel();
+				assertNotEquals(busyChannel.getThreadNum(), channel.getThreadNum());
+			}
+
+			// the enumerator follows the same placement
+			FileIOChannel.Enumerator enumerator = ioMan.createChannelEnumerator();
+			for (int i = 0; i < 12; i++) {
+				assertNotEquals(busyChannel.getThreadNum(), enumerator.next().getThreadNum());
+			}
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+		finally {
+			blocker.trigger();
+			ioMan.shutdown();
+		}
+	}
 	
-	
+	@Test
+	public void testCompressedSpillingChannelReadWrite() {
+		final String tempDir = System.getProperty("java.io.tmpdir");
+		final IOManagerAsync ioMan = new IOManagerAsync(new String[] { tempDir }, 1, true);
+		final int NUM_IOS = 64;
+		final Random rnd = new Random(42L);
+
+		try {
+			MemorySegment memSeg = MemorySegmentFactory.allocateUnpooledSegment(32 * 1024);
+			final byte[] randomBytes = new byte[memSeg.size()];
+
+			// every other block is incompressible and has to be stored raw
+			final FileIOChannel.ID channelID = ioMan.createChannel();
+			final BlockChannelWriter<MemorySegment> writer = ioMan.createSpillingChannelWriter(channelID);
+			for (int i = 0; i < NUM_IOS; i++) {
+				if (i % 2 == 0) {
+					for (int pos = 0; pos < memSeg.size(); pos += 4) {
+						memSeg.putInt(pos, i);
+					}
+				} else {
+					rnd.nextBytes(randomBytes);
+					memSeg.put(0, randomBytes);
+				}
+
+				writer.writeBlock(memSeg);
+				memSeg = writer.getNextReturnedBlock();
+			}
+			writer.close();
+
+			// the compressible half of the blocks must have shrunk the file
+			final long fileSize = new File(channelID.getPath()).length();
+			assertTrue(fileSize < (long) NUM_IOS * memSeg.size());
+			assertTrue(fileSize > (long) NUM_IOS / 2 * memSeg.size());
+
+			rnd.setSeed(42L);
+			final BlockChannelReader<MemorySegment> reader = ioMan.createSpillingChannelReader(channelID);
+			for (int i = 0; i < NUM_IOS; i++) {
+				reader.readBlock(memSeg);
+				memSeg = reader.getNextReturnedBlock();
+
+				if (i % 2 == 0) {
+					for (int pos = 0; pos < memSeg.size(); pos += 4) {
+						if (memSeg.getInt(pos) != i) {
+							fail("Read memory segment contains invalid data.");
+						}
+					}
+				} else {
+					rnd.nextBytes(randomBytes);
+					final byte[] readBytes = new byte[memSeg.size()];
+					memSeg.get(0, readBytes);
+					assertArrayEquals(randomBytes, readBytes);
+				}
+			}
+			reader.closeAndDelete();
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+		finally {
+			ioMan.shutdown();
+		}
+	}
+
 	final class TestIOException extends IOException {
 		private static final long serialVersionUID = -814705441998024472L;
 	}
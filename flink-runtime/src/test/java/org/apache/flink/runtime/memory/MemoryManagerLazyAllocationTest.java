@@ -18,6 +18,7 @@
 
 package org.apache.flink.runtime.memory;
 
+import org.apache.flink.core.memory.HybridMemorySegment;
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.core.memory.MemoryType;
 import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
@@ -28,7 +29,9 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Random;
 
@@ -92,6 +95,58 @@ public class MemoryManagerLazyAllocationTest {
 		}
 	}
 	
+	@Test
+	public void recycleOffHeapMemory() {
+		final MemoryManager offHeapManager = new MemoryManager(MEMORY_SIZE, 1, PAGE_SIZE, MemoryType.OFF_HEAP, false);
+		try {
+			final AbstractInvokable firstOwner = new DummyInvokable();
+			final AbstractInvokable secondOwner = new DummyInvokable();
+
+			// segments cut from the same slab must not overlap
+			final List<MemorySegment> segments = offHeapManager.allocatePages(firstOwner, NUM_PAGES);
+			for (int i = 0; i < segments.size(); i++) {
+				MemorySegment seg = segments.get(i);
+				seg.putInt(0, i);
+				seg.putInt(PAGE_SIZE - 4, i);
+			}
+			for (int i = 0; i < segments.size(); i++) {
+				Assert.assertEquals(i, segments.get(i).getInt(0));
+				Assert.assertEquals(i, segments.get(i).getInt(PAGE_SIZE - 4));
+			}
+
+			try {
+				offHeapManager.allocatePages(firstOwner, 1);
+				fail("Expected MemoryAllocationException.");
+			}
+			catch (MemoryAllocationException e) {
+				// expected
+			}
+
+			final IdentityHashMap<ByteBuffer, Boolean> buffers = new IdentityHashMap<>();
+			for (MemorySegment seg : segments) {
+				buffers.put(((HybridMemorySegment) seg).getOffHeapBuffer(), Boolean.TRUE);
+			}
+			offHeapManager.release(segments);
+			Assert.assertTrue(offHeapManager.verifyEmpty());
+
+			// later allocations reuse the released memory
+			final List<MemorySegment> reused = offHeapManager.allocatePages(secondOwner, NUM_PAGES);
+			for (MemorySegment seg : reused) {
+				Assert.assertTrue(buffers.containsKey(((HybridMemorySegment) seg).getOffHeapBuffer()));
+				Assert.assertEquals(secondOwner, seg.getOwner());
+			}
+			offHeapManager.releaseAll(secondOwner);
+			Assert.assertTrue(offHeapManager.verifyEmpty());
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+		finally {
+			offHeapManager.shutdown();
+		}
+	}
+	
 	@Test
 	public void allocateAllMulti() {
 		try {
@@ -34,6 +34,7 @@ import org.apache.flink.runtime.operators.testutils.TestData.TupleGenerator.KeyM
 import org.apache.flink.runtime.operators.testutils.TestData.TupleGenerator.ValueMode;
 import org.apache.flink.runtime.operators.testutils.types.IntPair;
 import org.apache.flink.runtime.operators.testutils.types.IntPairSerializer;
+import org.apache.flink.runtime.util.EnvironmentInformation;
 import org.apache.flink.util.MutableObjectIterator;
 import org.junit.After;
 import org.junit.Assert;
@@ -247,6 +248,57 @@ public class ExternalSortITCase {
 		}
 	}
 
+	@Test
+	public void testSpillingSortWithCompression() {
+		try {
+			// use an I/O manager that compresses the spilled runs
+			this.ioManager.shutdown();
+			this.ioManager = new IOManagerAsync(new String[] { EnvironmentInformation.getTemporaryFileDirectory() }, 1, true);
+
+			// comparator
+			final TypeComparator<Integer> keyComparator = new IntComparator(true);
+			
+			final TestData.TupleGenerator generator = new TestData.TupleGenerator(SEED, KEY_MAX, VALUE_LENGTH, KeyMode.RANDOM, ValueMode.CONSTANT, VAL);
+			final MutableObjectIterator<Tuple2<Integer, String>> source = new TestData.TupleGeneratorIterator(generator, NUM_PAIRS);
+	
+			// merge iterator, with a small fan-in to force intermediate merges
+			LOG.debug("Initializing sortmerger...");
+			
+			Sorter<Tuple2<Integer, String>> merger = new UnilateralSortMerger<>(this.memoryManager, this.ioManager,
+					source, this.parentTask, this.pactRecordSerializer, this.pactRecordComparator,
+					(double)16/78, 4, 0.7f, true);
+	
+			// check order
+			MutableObjectIterator<Tuple2<Integer, String>> iterator = merger.getIterator();
+			
+			LOG.debug("Checking results...");
+			int pairsEmitted = 1;
+	
+			Tuple2<Integer, String> rec1 = new Tuple2<>();
+			Tuple2<Integer, String> rec2 = new Tuple2<>();
+			
+			Assert.assertTrue((rec1 = iterator.next(rec1)) != null);
+			while ((rec2 = iterator.next(rec2)) != null) {
+				pairsEmitted++;
+				
+				Assert.assertTrue(keyComparator.compare(rec1.f0, rec2.f0) <= 0);
+				Assert.assertEquals(VAL, rec2.f1);
+
+				Tuple2<Integer, String> tmp = rec1;
+				rec1 = rec2;
+				rec2 = tmp;
+			}
+			Assert.assertTrue(NUM_PAIRS == pairsEmitted);
+			
+			merger.close();
+			testSuccess = true;
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.getMessage());
+		}
+	}
+
 	@Test
 	public void testSpillingSortWithIntermediateMerge() {
 		try {
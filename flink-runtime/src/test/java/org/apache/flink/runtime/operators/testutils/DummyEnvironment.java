@@ -134,6 +134,10 @@ public class DummyEnvironment implements Environment {
 	public void acknowledgeCheckpoint(long checkpointId, StateHandle<?> state) {
 	}
 
+	@Override
+	public void acknowledgeCheckpoint(long checkpointId, StateHandle<?> state, Map<Integer, StateHandle<?>> keyGroupStates) {
+	}
+
 	@Override
 	public ResultPartitionWriter getWriter(int index) {
 		return null;
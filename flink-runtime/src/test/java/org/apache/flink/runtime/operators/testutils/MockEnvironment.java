@@ -280,4 +280,9 @@ public class MockEnvironment implements Environment {
 	public void acknowledgeCheckpoint(long checkpointId, StateHandle<?> state) {
 		throw new UnsupportedOperationException();
 	}
+
+	@Override
+	public void acknowledgeCheckpoint(long checkpointId, StateHandle<?> state, Map<Integer, StateHandle<?>> keyGroupStates) {
+		throw new UnsupportedOperationException();
+	}
 }
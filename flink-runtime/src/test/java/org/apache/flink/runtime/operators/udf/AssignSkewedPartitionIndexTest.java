@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.operators.udf;
+
+import org.apache.flink.api.common.functions.RuntimeContext;
+import org.apache.flink.api.common.typeutils.base.LongComparator;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.typeutils.runtime.RuntimeComparatorFactory;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.util.Collector;
+import org.apache.flink.util.MathUtils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the {@link AssignSkewedPartitionIndex}.
+ */
+public class AssignSkewedPartitionIndexTest {
+
+	private static final LongComparator COMPARATOR = new LongComparator(true);
+
+	private static final int PARALLELISM = 4;
+
+	private static final long HEAVY_KEY = 1L;
+
+	private static final int NUM_SPLITS = 3;
+
+	@Test
+	public void testSplitHeavyHitters() throws Exception {
+		List<Tuple2<Integer, Long>> assigned = assign(Collections.nCopies(9, HEAVY_KEY), false);
+
+		assertEquals(9, assigned.size());
+
+		// the records are spread evenly across the partitions of the heavy hitter
+		Map<Integer, Integer> counts = new HashMap<>();
+		for (Tuple2<Integer, Long> record : assigned) {
+			Integer count = counts.get(record.f0);
+			counts.put(record.f0, count == null ? 1 : count + 1);
+		}
+		assertEquals(heavyHitterPartitions(), counts.keySet());
+		for (int count : counts.values()) {
+			assertEquals(3, count);
+		}
+	}
+
+	@Test
+	public void testReplicateHeavyHitters() throws Exception {
+		List<Tuple2<Integer, Long>> assigned = assign(Collections.singletonList(HEAVY_KEY), true);
+
+		// the record meets every split record of the other input
+		Set<Integer> partitions = new HashSet<>();
+		for (Tuple2<Integer, Long> record : assigned) {
+			partitions.add(record.f0);
+		}
+		assertEquals(NUM_SPLITS, assigned.size());
+		assertEquals(heavyHitterPartitions(), partitions);
+	}
+
+	@Test
+	public void testRegularKeysAreHashPartitioned() throws Exception {
+		List<Long> keys = Arrays.asList(2L, 3L, 4L, 5L, 6L);
+
+		for (boolean replicate : new boolean[] { false, true }) {
+			List<Tuple2<Integer, Long>> assigned = assign(keys, replicate);
+
+			assertEquals(keys.size(), assigned.size());
+			for (Tuple2<Integer, Long> record : assigned) {
+				assertEquals(hashPartition(record.f1), record.f0.intValue());
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static List<Tuple2<Integer, Long>> assign(List<Long> records, boolean replicate) throws Exception {
+		AssignSkewedPartitionIndex<Long> assigner = new AssignSkewedPartitionIndex<>(
+				new RuntimeComparatorFactory<>(COMPARATOR), PARALLELISM, replicate);
+
+		List<Tuple2<Integer, Integer>> heavyHitters = new ArrayList<>();
+		heavyHitters.add(new Tuple2<>(COMPARATOR.hash(HEAVY_KEY), NUM_SPLITS));
+
+		RuntimeContext context = mock(RuntimeContext.class);
+		when(context.<Tuple2<Integer, Integer>>getBroadcastVariable(AssignSkewedPartitionIndex.HEAVY_HITTERS_NAME))
+				.thenReturn(heavyHitters);
+		when(context.getIndexOfThisSubtask()).thenReturn(0);
+
+		assigner.setRuntimeContext(context);
+		assigner.open(new Configuration());
+
+		final List<Tuple2<Integer, Long>> result = new ArrayList<>();
+		assigner.mapPartition(records, new Collector<Tuple2<Integer, Long>>() {
+			@Override
+			public void collect(Tuple2<Integer, Long> record) {
+				// the assigner reuses the output tuple
+				result.add(record.copy());
+			}
+
+			@Override
+			public void close() {}
+		});
+		return result;
+	}
+
+	private static int hashPartition(long key) {
+		return MathUtils.murmurHash(COMPARATOR.hash(key)) % PARALLELISM;
+	}
+
+	private static Set<Integer> heavyHitterPartitions() {
+		Set<Integer> partitions = new HashSet<>();
+		for (int i = 0; i < NUM_SPLITS; i++) {
+			partitions.add((hashPartition(HEAVY_KEY) + i) % PARALLELISM);
+		}
+		return partitions;
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.operators.udf;
+
+import org.apache.flink.api.common.typeutils.base.LongComparator;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.typeutils.runtime.RuntimeComparatorFactory;
+import org.apache.flink.util.Collector;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link HeavyHitterBuilder}.
+ */
+public class HeavyHitterBuilderTest {
+
+	private static final LongComparator COMPARATOR = new LongComparator(true);
+
+	@Test
+	public void testDetectsHeavyHitters() throws Exception {
+		List<Long> sample = new ArrayList<>();
+		sample.addAll(Collections.nCopies(60, 1L));
+		for (long key = 2; key <= 5; key++) {
+			sample.addAll(Collections.nCopies(10, key));
+		}
+
+		List<Tuple2<Integer, Integer>> heavyHitters = buildHeavyHitters(sample, 4);
+
+		// a fair share is 25 records, key 1 needs 3 partitions
+		assertEquals(1, heavyHitters.size());
+		assertEquals(COMPARATOR.hash(1L), heavyHitters.get(0).f0.intValue());
+		assertEquals(3, heavyHitters.get(0).f1.intValue());
+	}
+
+	@Test
+	public void testSplitsAreLimitedByParallelism() throws Exception {
+		List<Tuple2<Integer, Integer>> heavyHitters = buildHeavyHitters(Collections.nCopies(100, 7L), 4);
+
+		assertEquals(1, heavyHitters.size());
+		assertEquals(4, heavyHitters.get(0).f1.intValue());
+	}
+
+	@Test
+	public void testUniformSample() throws Exception {
+		List<Long> sample = new ArrayList<>();
+		for (long key = 0; key < 100; key++) {
+			sample.add(key);
+		}
+
+		assertTrue(buildHeavyHitters(sample, 4).isEmpty());
+	}
+
+	@Test
+	public void testNoHeavyHittersWithoutParallelism() throws Exception {
+		assertTrue(buildHeavyHitters(Collections.nCopies(100, 7L), 1).isEmpty());
+		assertTrue(buildHeavyHitters(Collections.<Long>emptyList(), 4).isEmpty());
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static List<Tuple2<Integer, Integer>> buildHeavyHitters(List<Long> sample, int parallelism) throws Exception {
+		HeavyHitterBuilder<Long> builder =
+				new HeavyHitterBuilder<>(new RuntimeComparatorFactory<>(COMPARATOR), parallelism);
+
+		final List<Tuple2<Integer, Integer>> result = new ArrayList<>();
+		builder.mapPartition(sample, new Collector<Tuple2<Integer, Integer>>() {
+			@Override
+			public void collect(Tuple2<Integer, Integer> record) {
+				// the builder reuses the output tuple
+				result.add(record.copy());
+			}
+
+			@Override
+			public void close() {}
+		});
+		return result;
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link CopyOnWriteStateMap}.
+ */
+public class CopyOnWriteStateMapTest {
+
+	@Test
+	public void testBasicMapOperations() {
+		CopyOnWriteStateMap<Integer, ArrayList<Integer>> map = createMap();
+
+		assertTrue(map.isEmpty());
+		assertNull(map.get(1));
+		assertNull(map.getForUpdate(1));
+
+		assertNull(map.put(1, list(1)));
+		assertNull(map.put(null, list(0)));
+		assertEquals(list(1), map.put(1, list(11)));
+		assertEquals(2, map.size());
+
+		assertEquals(list(11), map.get(1));
+		assertEquals(list(0), map.get(null));
+		assertTrue(map.containsKey(null));
+		assertFalse(map.containsKey(2));
+
+		assertEquals(list(0), map.remove(null));
+		assertNull(map.remove(null));
+		assertEquals(1, map.size());
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertNull(map.get(1));
+	}
+
+	@Test
+	public void testSnapshotIsUnaffectedByModifications() {
+		CopyOnWriteStateMap<Integer, ArrayList<Integer>> map = createMap();
+		for (int i = 0; i < 10; i++) {
+			map.put(i, list(i));
+		}
+
+		CopyOnWriteStateMap.Snapshot<Integer, ArrayList<Integer>> snapshot = map.snapshot();
+
+		// modify values in place, replace and remove entries, and grow the map
+		map.getForUpdate(0).add(100);
+		map.put(1, list(101));
+		map.remove(2);
+		for (int i = 10; i < 1000; i++) {
+			map.put(i, list(i));
+		}
+		map.getForUpdate(3).add(103);
+
+		Map<Integer, ArrayList<Integer>> expected = new HashMap<>();
+		for (int i = 0; i < 10; i++) {
+			expected.put(i, list(i));
+		}
+		assertEquals(expected, toMap(snapshot));
+		assertEquals(10, snapshot.size());
+
+		// the map itself sees all modifications
+		assertEquals(list(0, 100), map.get(0));
+		assertEquals(list(101), map.get(1));
+		assertFalse(map.containsKey(2));
+		assertEquals(list(3, 103), map.get(3));
+		assertEquals(999, map.size());
+
+		map.clear();
+		assertEquals(expected, toMap(snapshot));
+
+		map.releaseSnapshot(snapshot);
+	}
+
+	@Test
+	public void testValuesAreNotCopiedWithoutSnapshots() {
+		CopyOnWriteStateMap<Integer, ArrayList<Integer>> map = createMap();
+		ArrayList<Integer> value = list(1);
+		map.put(1, value);
+
+		assertSame(value, map.getForUpdate(1));
+
+		CopyOnWriteStateMap.Snapshot<Integer, ArrayList<Integer>> snapshot = map.snapshot();
+		ArrayList<Integer> copy = map.getForUpdate(1);
+		assertNotSame(value, copy);
+		assertSame(copy, map.getForUpdate(1));
+
+		map.releaseSnapshot(snapshot);
+
+		// the copy is no longer shared, and the snapshot does not protect anything anymore
+		assertSame(copy, map.getForUpdate(1));
+	}
+
+	@Test
+	public void testRandomModificationsWithOverlappingSnapshots() {
+		final Random rnd = new Random();
+		final long seed = rnd.nextLong();
+		rnd.setSeed(seed);
+
+		CopyOnWriteStateMap<Integer, ArrayList<Integer>> map = createMap();
+		Map<Integer, ArrayList<Integer>> reference = new HashMap<>();
+
+		ArrayList<CopyOnWriteStateMap.Snapshot<Integer, ArrayList<Integer>>> snapshots = new ArrayList<>();
+		ArrayList<Map<Integer, ArrayList<Integer>>> expectedSnapshots = new ArrayList<>();
+
+		for (int i = 0; i < 100000; i++) {
+			int key = rnd.nextInt(2000);
+			int op = rnd.nextInt(100);
+
+			if (op < 40) {
+				assertEquals("seed " + seed, reference.put(key, list(i)), map.put(key, list(i)));
+			}
+			else if (op < 70) {
+				ArrayList<Integer> value = map.getForUpdate(key);
+				assertEquals("seed " + seed, reference.get(key), value);
+				if (value != null) {
+					value.add(i);
+					reference.get(key).add(i);
+				}
+			}
+			else if (op < 95) {
+				assertEquals("seed " + seed, reference.remove(key), map.remove(key));
+			}
+			else if (op < 98 || snapshots.isEmpty()) {
+				snapshots.add(map.snapshot());
+				expectedSnapshots.add(deepCopy(reference));
+			}
+			else {
+				int pos = rnd.nextInt(snapshots.size());
+				assertEquals("seed " + seed, expectedSnapshots.remove(pos), toMap(snapshots.get(pos)));
+				map.releaseSnapshot(snapshots.remove(pos));
+			}
+		}
+
+		assertEquals("seed " + seed, reference, new HashMap<>(map));
+		for (int i = 0; i < snapshots.size(); i++) {
+			assertEquals("seed " + seed, expectedSnapshots.get(i), toMap(snapshots.get(i)));
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static CopyOnWriteStateMap<Integer, ArrayList<Integer>> createMap() {
+		return new CopyOnWriteStateMap<>(new ArrayListSerializer<>(IntSerializer.INSTANCE));
+	}
+
+	private static ArrayList<Integer> list(Integer... values) {
+		ArrayList<Integer> list = new ArrayList<>(values.length);
+		for (Integer value : values) {
+			list.add(value);
+		}
+		return list;
+	}
+
+	private static Map<Integer, ArrayList<Integer>> toMap(CopyOnWriteStateMap.Snapshot<Integer, ArrayList<Integer>> snapshot) {
+		Map<Integer, ArrayList<Integer>> result = new HashMap<>();
+		for (Map.Entry<Integer, ArrayList<Integer>> entry : snapshot) {
+			assertNull("duplicate key in snapshot", result.put(entry.getKey(), entry.getValue()));
+		}
+		assertEquals(snapshot.size(), result.size());
+		return result;
+	}
+
+	private static Map<Integer, ArrayList<Integer>> deepCopy(Map<Integer, ArrayList<Integer>> map) {
+		Map<Integer, ArrayList<Integer>> copy = new HashMap<>();
+		for (Map.Entry<Integer, ArrayList<Integer>> entry : map.entrySet()) {
+			copy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+		}
+		return copy;
+	}
+}
@@ -26,6 +26,8 @@ import org.apache.flink.core.testutils.CommonTestUtils;
 import org.apache.flink.runtime.operators.testutils.DummyEnvironment;
 import org.apache.flink.runtime.state.filesystem.FileStreamStateHandle;
 import org.apache.flink.runtime.state.filesystem.FsStateBackend;
+import org.apache.flink.runtime.state.filesystem.SharedFileSerializableStateHandle;
+import org.apache.flink.runtime.state.filesystem.SharedFileStreamStateHandle;
 import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
 
 import org.junit.Test;
@@ -54,6 +56,23 @@ public class FileStateBackendTest extends StateBackendTestBase<FsStateBackend> {
 		deleteDirectorySilently(stateDir);
 	}
 
+	@Test
+	public void testAsynchronousSnapshots() throws Exception {
+		backend.enableAsynchronousSnapshots();
+		verifyAsynchronousSnapshotIsolation();
+	}
+
+	@Test
+	public void testKeyGroupSnapshotsWithChangedParallelism() throws Exception {
+		verifyKeyGroupSnapshotsWithChangedParallelism(false);
+	}
+
+	@Test
+	public void testAsynchronousKeyGroupSnapshots() throws Exception {
+		backend.enableAsynchronousSnapshots();
+		verifyKeyGroupSnapshotsWithChangedParallelism(true);
+	}
+
 	// disable these because the verification does not work for this state backend
 	@Override
 	@Test
@@ -233,6 +252,139 @@ public class FileStateBackendTest extends StateBackendTestBase<FsStateBackend> {
 		}
 	}
 
+	@Test
+	public void testSharedCheckpointFiles() {
+		File tempDir = new File(ConfigConstants.DEFAULT_TASK_MANAGER_TMP_PATH, UUID.randomUUID().toString());
+		try {
+			FsStateBackend prototype = new FsStateBackend(tempDir.toURI(), 15);
+			prototype.enableSharedCheckpointFiles();
+
+			// two subtasks of the same job on one TaskManager
+			DummyEnvironment env = new DummyEnvironment("test", 2, 0);
+			FsStateBackend backend1 = CommonTestUtils.createCopySerializable(prototype);
+			FsStateBackend backend2 = CommonTestUtils.createCopySerializable(prototype);
+			backend1.initializeForJob(env, "test-op", IntSerializer.INSTANCE);
+			backend2.initializeForJob(env, "test-op", IntSerializer.INSTANCE);
+
+			File checkpointDir = new File(backend1.getCheckpointDirectory().toUri().getPath());
+
+			byte[] state1 = new byte[177];
+			byte[] state2 = new byte[3177];
+			byte[] state3 = new byte[1274673];
+
+			Random rnd = new Random();
+			rnd.nextBytes(state1);
+			rnd.nextBytes(state2);
+			rnd.nextBytes(state3);
+
+			long checkpointId = 97231523452L;
+
+			FsStateBackend.FsCheckpointStateOutputStream stream1 =
+					backend1.createCheckpointStateOutputStream(checkpointId, System.currentTimeMillis());
+			FsStateBackend.FsCheckpointStateOutputStream stream2 =
+					backend2.createCheckpointStateOutputStream(checkpointId, System.currentTimeMillis());
+			FsStateBackend.FsCheckpointStateOutputStream stream3 =
+					backend2.createCheckpointStateOutputStream(checkpointId, System.currentTimeMillis());
+
+			stream1.write(state1);
+			stream1.flush();
+			stream2.write(state2);
+			stream3.write(state3);
+
+			SharedFileStreamStateHandle handle1 = (SharedFileStreamStateHandle) stream1.closeAndGetHandle();
+			SharedFileStreamStateHandle handle2 = (SharedFileStreamStateHandle) stream2.closeAndGetHandle();
+
+			// state that does not fit into the write buffer gets a file of its own
+			FileStreamStateHandle handle3 = (FileStreamStateHandle) stream3.closeAndGetHandle();
+
+			StateHandle<String> handle4 = backend1.checkpointStateSerializable(
+					"row row row your boat", checkpointId, System.currentTimeMillis());
+			assertTrue(handle4 instanceof SharedFileSerializableStateHandle);
+
+			assertEquals(handle1.getFilePath(), handle2.getFilePath());
+			assertEquals(0, handle1.getOffset());
+			assertEquals(state1.length, handle2.getOffset());
+
+			validateBytesInStream(handle1.getState(getClass().getClassLoader()), state1);
+			validateBytesInStream(handle2.getState(getClass().getClassLoader()), state2);
+			validateBytesInStream(handle3.getState(getClass().getClassLoader()), state3);
+			assertEquals("row row row your boat", handle4.getState(getClass().getClassLoader()));
+
+			// a stream of the next checkpoint closes the shared file of the previous checkpoint
+			FsStateBackend.FsCheckpointStateOutputStream stream5 =
+					backend1.createCheckpointStateOutputStream(checkpointId + 1, System.currentTimeMillis());
+			stream5.write(state1);
+			SharedFileStreamStateHandle handle5 = (SharedFileStreamStateHandle) stream5.closeAndGetHandle();
+			assertNotEquals(handle1.getFilePath(), handle5.getFilePath());
+
+			// the shared file is deleted once all of its segments are discarded
+			handle1.discardState();
+			handle2.discardState();
+			handle3.discardState();
+			assertTrue(new File(handle1.getFilePath().toUri().getPath()).exists());
+
+			handle4.discardState();
+			ensureLocalFileDeleted(handle1.getFilePath());
+
+			// the last shared file is closed with the last backend
+			backend1.close();
+			validateBytesInStream(handle5.getState(getClass().getClassLoader()), state1);
+			backend2.close();
+
+			handle5.discardState();
+			assertTrue(isDirectoryEmpty(checkpointDir));
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+		finally {
+			deleteDirectorySilently(tempDir);
+		}
+	}
+
+	@Test
+	public void testDiscardOpenSharedCheckpointFile() {
+		File tempDir = new File(ConfigConstants.DEFAULT_TASK_MANAGER_TMP_PATH, UUID.randomUUID().toString());
+		try {
+			FsStateBackend backend = new FsStateBackend(tempDir.toURI(), 15);
+			backend.enableSharedCheckpointFiles();
+			backend.initializeForJob(new DummyEnvironment("test", 1, 0), "test-op", IntSerializer.INSTANCE);
+
+			long checkpointId = 17L;
+
+			StateHandle<String> handle1 = backend.checkpointStateSerializable(
+					"the first state of the checkpoint", checkpointId, System.currentTimeMillis());
+			StateHandle<String> handle2 = backend.checkpointStateSerializable(
+					"the second state of the checkpoint", checkpointId, System.currentTimeMillis());
+
+			Path sharedFile = ((SharedFileSerializableStateHandle<String>) handle1).getFilePath();
+			assertEquals(sharedFile, ((SharedFileSerializableStateHandle<String>) handle2).getFilePath());
+
+			// the file is not closed yet, but is deleted once all of its segments are discarded
+			handle1.discardState();
+			assertTrue(new File(sharedFile.toUri().getPath()).exists());
+			handle2.discardState();
+			ensureLocalFileDeleted(sharedFile);
+
+			// later segments of the checkpoint go to a new file
+			StateHandle<String> handle3 = backend.checkpointStateSerializable(
+					"the third state of the checkpoint", checkpointId, System.currentTimeMillis());
+			assertNotEquals(sharedFile, ((SharedFileSerializableStateHandle<String>) handle3).getFilePath());
+			assertEquals("the third state of the checkpoint", handle3.getState(getClass().getClassLoader()));
+
+			backend.close();
+			handle3.discardState();
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+		finally {
+			deleteDirectorySilently(tempDir);
+		}
+	}
+
 	// ------------------------------------------------------------------------
 	//  Utilities
 	// ------------------------------------------------------------------------
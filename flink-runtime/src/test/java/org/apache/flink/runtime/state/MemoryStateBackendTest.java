@@ -41,6 +41,23 @@ public class MemoryStateBackendTest extends StateBackendTestBase<MemoryStateBack
 	@Override
 	protected void cleanup() throws Exception { }
 
+	@Test
+	public void testAsynchronousSnapshots() throws Exception {
+		backend.enableAsynchronousSnapshots();
+		verifyAsynchronousSnapshotIsolation();
+	}
+
+	@Test
+	public void testKeyGroupSnapshotsWithChangedParallelism() throws Exception {
+		verifyKeyGroupSnapshotsWithChangedParallelism(false);
+	}
+
+	@Test
+	public void testAsynchronousKeyGroupSnapshots() throws Exception {
+		backend.enableAsynchronousSnapshots();
+		verifyKeyGroupSnapshotsWithChangedParallelism(true);
+	}
+
 	// disable these because the verification does not work for this state backend
 	@Override
 	@Test
@@ -28,6 +28,8 @@ import org.apache.flink.api.common.state.FoldingState;
 import org.apache.flink.api.common.state.FoldingStateDescriptor;
 import org.apache.flink.api.common.state.ListState;
 import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
 import org.apache.flink.api.common.state.ReducingState;
 import org.apache.flink.api.common.state.ReducingStateDescriptor;
 import org.apache.flink.api.common.state.ValueState;
@@ -40,13 +42,17 @@ import org.apache.flink.api.common.typeutils.base.StringSerializer;
 import org.apache.flink.api.common.typeutils.base.VoidSerializer;
 import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
 import org.apache.flink.runtime.operators.testutils.DummyEnvironment;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
 import org.apache.flink.types.IntValue;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -728,6 +734,323 @@ public abstract class StateBackendTestBase<B extends AbstractStateBackend> {
 		assertFalse(default1 == default2);
 	}
 
+	@Test
+	@SuppressWarnings("unchecked,rawtypes")
+	public void testMapState() throws Exception {
+		backend.initializeForJob(new DummyEnvironment("test", 1, 0), "test_op", IntSerializer.INSTANCE);
+
+		MapStateDescriptor<Integer, String> kvId = new MapStateDescriptor<>("id", Integer.class, String.class);
+		kvId.initializeSerializerUnlessSet(new ExecutionConfig());
+
+		MapState<Integer, String> state = backend.getPartitionedState(null, VoidSerializer.INSTANCE, kvId);
+
+		// some modifications to the state
+		backend.setCurrentKey(1);
+		assertNull(state.get(1));
+		assertFalse(state.entries().iterator().hasNext());
+		state.put(1, "1");
+		state.put(2, "2");
+		backend.setCurrentKey(2);
+		assertNull(state.get(1));
+		state.put(1, "x");
+		backend.setCurrentKey(1);
+		assertEquals("1", state.get(1));
+		assertEquals("2", state.get(2));
+		assertTrue(state.contains(2));
+		assertFalse(state.contains(3));
+
+		// draw a snapshot
+		HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> snapshot1 = backend.snapshotPartitionedState(682375462378L, 2);
+
+		for (String key: snapshot1.keySet()) {
+			if (snapshot1.get(key) instanceof AsynchronousKvStateSnapshot) {
+				snapshot1.put(key, ((AsynchronousKvStateSnapshot<?, ?, ?, ?, ?>) snapshot1.get(key)).materialize());
+			}
+		}
+
+		// make some more modifications
+		backend.setCurrentKey(1);
+		state.remove(2);
+		state.put(1, "u1");
+		Map<Integer, String> added = new HashMap<>();
+		added.put(3, "u3");
+		added.put(4, null);
+		state.putAll(added);
+		backend.setCurrentKey(2);
+		state.remove(1);
+		assertFalse(state.keys().iterator().hasNext());
+		backend.setCurrentKey(3);
+		state.put(1, "x");
+		state.clear();
+
+		// validate the modified state
+		backend.setCurrentKey(1);
+		Map<Integer, String> entries = new HashMap<>();
+		for (Map.Entry<Integer, String> entry : state.entries()) {
+			entries.put(entry.getKey(), entry.getValue());
+		}
+		Map<Integer, String> expected = new HashMap<>();
+		expected.put(1, "u1");
+		expected.put(3, "u3");
+		expected.put(4, null);
+		assertEquals(expected, entries);
+		assertTrue(state.contains(4));
+		assertNull(state.get(4));
+
+		List<String> values = new ArrayList<>();
+		for (String value : state.values()) {
+			values.add(value);
+		}
+		assertEquals(3, values.size());
+		assertTrue(values.containsAll(expected.values()));
+
+		backend.setCurrentKey(3);
+		assertNull(state.get(1));
+
+		backend.dispose();
+		backend.initializeForJob(new DummyEnvironment("test", 1, 0), "test_op", IntSerializer.INSTANCE);
+
+		backend.injectKeyValueStateSnapshots((HashMap) snapshot1, 100);
+
+		for (String key: snapshot1.keySet()) {
+			snapshot1.get(key).discardState();
+		}
+
+		MapState<Integer, String> restored = backend.getPartitionedState(null, VoidSerializer.INSTANCE, kvId);
+
+		backend.setCurrentKey(1);
+		assertEquals("1", restored.get(1));
+		assertEquals("2", restored.get(2));
+		assertNull(restored.get(3));
+		backend.setCurrentKey(2);
+		assertEquals("x", restored.get(1));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked,rawtypes")
+	public void testStateTimeToLive() throws Exception {
+		ManualTtlTimeProvider timeProvider = new ManualTtlTimeProvider();
+		backend.setTtlTimeProvider(timeProvider);
+		backend.initializeForJob(new DummyEnvironment("test", 1, 0), "test_op", IntSerializer.INSTANCE);
+
+		ValueStateDescriptor<String> valueId = new ValueStateDescriptor<>("value", String.class, "default");
+		valueId.setTimeToLive(2000);
+		valueId.initializeSerializerUnlessSet(new ExecutionConfig());
+		ListStateDescriptor<String> listId = new ListStateDescriptor<>("list", String.class);
+		listId.setTimeToLive(2000);
+		listId.initializeSerializerUnlessSet(new ExecutionConfig());
+
+		ValueState<String> value = backend.getPartitionedState(null, VoidSerializer.INSTANCE, valueId);
+		ListState<String> list = backend.getPartitionedState(null, VoidSerializer.INSTANCE, listId);
+
+		Joiner joiner = Joiner.on(",");
+		backend.setCurrentKey(1);
+		value.update("1");
+		list.add("1");
+		backend.setCurrentKey(2);
+		value.update("2");
+		list.add("2");
+
+		timeProvider.time += 1999;
+		assertEquals("2", value.value());
+
+		timeProvider.time += 101;
+		backend.setCurrentKey(1);
+		assertEquals("default", value.value());
+		list.add("u1");
+		assertEquals("u1", joiner.join(list.get()));
+		backend.setCurrentKey(3);
+		value.update("3");
+
+		// the expired values of key 2 were not accessed, they are dropped by the snapshot
+		HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> snapshot = backend.snapshotPartitionedState(682375462378L, 2);
+		for (String key: snapshot.keySet()) {
+			if (snapshot.get(key) instanceof AsynchronousKvStateSnapshot) {
+				snapshot.put(key, ((AsynchronousKvStateSnapshot<?, ?, ?, ?, ?>) snapshot.get(key)).materialize());
+			}
+		}
+
+		backend.dispose();
+		backend.initializeForJob(new DummyEnvironment("test", 1, 0), "test_op", IntSerializer.INSTANCE);
+		backend.injectKeyValueStateSnapshots((HashMap) snapshot, 100);
+
+		for (String key: snapshot.keySet()) {
+			snapshot.get(key).discardState();
+		}
+
+		ValueState<String> restoredValue = backend.getPartitionedState(null, VoidSerializer.INSTANCE, valueId);
+		ListState<String> restoredList = backend.getPartitionedState(null, VoidSerializer.INSTANCE, listId);
+
+		backend.setCurrentKey(1);
+		assertEquals("default", restoredValue.value());
+		assertEquals("u1", joiner.join(restoredList.get()));
+		backend.setCurrentKey(2);
+		assertEquals("default", restoredValue.value());
+		assertEquals("", joiner.join(restoredList.get()));
+		backend.setCurrentKey(3);
+		assertEquals("3", restoredValue.value());
+	}
+
+	/**
+	 * Verifies that an asynchronous snapshot of the partitioned state is not affected by
+	 * modifications of the state between drawing and materializing the snapshot. The backend
+	 * must be configured to draw asynchronous snapshots before calling this method.
+	 */
+	protected void verifyAsynchronousSnapshotIsolation() throws Exception {
+		backend.initializeForJob(new DummyEnvironment("test", 1, 0), "test_op", IntSerializer.INSTANCE);
+
+		ListStateDescriptor<String> kvId = new ListStateDescriptor<>("id", String.class);
+		ListState<String> state = backend.getPartitionedState(null, VoidSerializer.INSTANCE, kvId);
+
+		Joiner joiner = Joiner.on(",");
+		backend.setCurrentKey(1);
+		state.add("1");
+		backend.setCurrentKey(2);
+		state.add("2");
+
+		// draw a snapshot, but do not materialize it yet
+		HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> snapshot = backend.snapshotPartitionedState(682375462378L, 2);
+		for (KvStateSnapshot<?, ?, ?, ?, ?> kvSnapshot : snapshot.values()) {
+			assertTrue(kvSnapshot instanceof AsynchronousKvStateSnapshot);
+		}
+
+		// modify the state in place, add and clear keys
+		backend.setCurrentKey(1);
+		state.add("u1");
+		backend.setCurrentKey(2);
+		state.clear();
+		backend.setCurrentKey(3);
+		state.add("u3");
+
+		for (String key: snapshot.keySet()) {
+			snapshot.put(key, ((AsynchronousKvStateSnapshot<?, ?, ?, ?, ?>) snapshot.get(key)).materialize());
+		}
+
+		// validate the original state
+		backend.setCurrentKey(1);
+		assertEquals("1,u1", joiner.join(state.get()));
+		backend.setCurrentKey(2);
+		assertEquals("", joiner.join(state.get()));
+		backend.setCurrentKey(3);
+		assertEquals("u3", joiner.join(state.get()));
+
+		backend.dispose();
+
+		// restore the snapshot and validate it
+		backend.initializeForJob(new DummyEnvironment("test", 1, 0), "test_op", IntSerializer.INSTANCE);
+		backend.injectKeyValueStateSnapshots((HashMap) snapshot, 100);
+
+		for (String key: snapshot.keySet()) {
+			snapshot.get(key).discardState();
+		}
+
+		ListState<String> restored = backend.getPartitionedState(null, VoidSerializer.INSTANCE, kvId);
+
+		backend.setCurrentKey(1);
+		assertEquals("1", joiner.join(restored.get()));
+		backend.setCurrentKey(2);
+		assertEquals("2", joiner.join(restored.get()));
+		backend.setCurrentKey(3);
+		assertEquals("", joiner.join(restored.get()));
+
+		backend.dispose();
+	}
+
+	/**
+	 * Checkpoints the state per key group and restores the key groups into backends with a
+	 * different parallelism. The state is modified after the snapshots are drawn and before
+	 * they are materialized.
+	 *
+	 * @param asynchronous True, if the backend is configured to draw asynchronous snapshots.
+	 */
+	@SuppressWarnings("unchecked,rawtypes")
+	protected void verifyKeyGroupSnapshotsWithChangedParallelism(boolean asynchronous) throws Exception {
+		final int numberOfKeyGroups = 8;
+		final int numberOfKeys = 100;
+		final int newParallelism = 3;
+
+		backend.initializeForJob(new DummyEnvironment("test", 2, 0), "test_op", IntSerializer.INSTANCE);
+
+		ListStateDescriptor<String> kvId = new ListStateDescriptor<>("id", String.class);
+		ListState<String> state = backend.getPartitionedState(null, VoidSerializer.INSTANCE, kvId);
+
+		for (int key = 0; key < numberOfKeys; key++) {
+			backend.setCurrentKey(key);
+			state.add("v" + key);
+		}
+
+		HashMap<Integer, HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>>> snapshots =
+			backend.snapshotPartitionedStateByKeyGroup(682375462378L, 2, numberOfKeyGroups);
+
+		for (Integer keyGroup : snapshots.keySet()) {
+			assertTrue(keyGroup >= 0 && keyGroup < numberOfKeyGroups);
+		}
+
+		// modify the state in place, add and clear keys
+		for (int key = 0; key < numberOfKeys; key++) {
+			backend.setCurrentKey(key);
+			if (key % 2 == 0) {
+				state.add("u" + key);
+			} else {
+				state.clear();
+			}
+		}
+		backend.setCurrentKey(numberOfKeys);
+		state.add("u" + numberOfKeys);
+
+		for (HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> keyGroup : snapshots.values()) {
+			for (String name : keyGroup.keySet()) {
+				assertEquals(asynchronous, keyGroup.get(name) instanceof AsynchronousKvStateSnapshot);
+				if (asynchronous) {
+					keyGroup.put(name, ((AsynchronousKvStateSnapshot<?, ?, ?, ?, ?>) keyGroup.get(name)).materialize());
+				}
+			}
+		}
+
+		backend.dispose();
+
+		Joiner joiner = Joiner.on(",");
+
+		for (int subtask = 0; subtask < newParallelism; subtask++) {
+			List<Map<String, KvStateSnapshot>> assignedSnapshots = new ArrayList<>();
+			for (Map.Entry<Integer, HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>>> keyGroup : snapshots.entrySet()) {
+				if (KeyGroupAssigner.getOperatorIndexForKeyGroup(keyGroup.getKey(), newParallelism) == subtask) {
+					assignedSnapshots.add((Map) keyGroup.getValue());
+				}
+			}
+
+			backend.initializeForJob(new DummyEnvironment("test", newParallelism, subtask), "test_op", IntSerializer.INSTANCE);
+			backend.injectKeyGroupStateSnapshots(assignedSnapshots, 100);
+
+			ListState<String> restored = backend.getPartitionedState(null, VoidSerializer.INSTANCE, kvId);
+
+			for (int key = 0; key <= numberOfKeys; key++) {
+				int keyGroup = KeyGroupAssigner.getKeyGroupIndex(key, numberOfKeyGroups);
+				boolean assigned = KeyGroupAssigner.getOperatorIndexForKeyGroup(keyGroup, newParallelism) == subtask;
+
+				backend.setCurrentKey(key);
+				assertEquals(assigned && key < numberOfKeys ? "v" + key : "", joiner.join(restored.get()));
+			}
+
+			backend.dispose();
+		}
+
+		for (HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> keyGroup : snapshots.values()) {
+			for (KvStateSnapshot<?, ?, ?, ?, ?> snapshot : keyGroup.values()) {
+				snapshot.discardState();
+			}
+		}
+	}
+
+	private static class ManualTtlTimeProvider implements TtlTimeProvider {
+		long time;
+
+		@Override
+		public long currentTimestamp() {
+			return time;
+		}
+	}
+
 	private static class AppendingReduce implements ReduceFunction<String> {
 		@Override
 		public String reduce(String value1, String value2) throws Exception {
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.filesystem;
+
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link SharedCheckpointFiles}.
+ */
+public class SharedCheckpointFilesTest {
+
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testReleaseBeforeCloseInOtherRegistry() throws Exception {
+		FileSystem fs = FileSystem.getLocalFileSystem();
+		Path jobDirectory = new Path(tempFolder.newFolder().toURI());
+		byte[] data = new byte[] { 1, 2, 3, 4 };
+
+		// the registry of the TaskManager that writes the files and of the process that discards them
+		SharedCheckpointFiles writer = new SharedCheckpointFiles();
+		SharedCheckpointFiles releaser = new SharedCheckpointFiles();
+
+		writer.register(jobDirectory);
+		SharedFileStreamStateHandle handle1 = writer.append(
+				jobDirectory, new Path(jobDirectory, "chk-1"), 1L, fs, data, data.length);
+		SharedFileStreamStateHandle handle2 = writer.append(
+				jobDirectory, new Path(jobDirectory, "chk-1"), 1L, fs, data, data.length);
+		Path file1 = handle1.getFilePath();
+		assertEquals(file1, handle2.getFilePath());
+
+		// all segments are released before the writer closes the file and writes the trailer
+		releaser.release(fs, file1);
+		releaser.release(fs, file1);
+		assertTrue(new File(file1.toUri()).exists());
+
+		SharedFileStreamStateHandle handle3 = writer.append(
+				jobDirectory, new Path(jobDirectory, "chk-2"), 2L, fs, data, data.length);
+		Path file2 = handle3.getFilePath();
+		assertNotEquals(file1, file2);
+		writer.unregister(jobDirectory);
+
+		// the next release in the other registry finds the trailer of the first file
+		releaser.release(fs, file2);
+		assertFalse(new File(file1.toUri()).exists());
+		assertFalse(new File(file2.toUri()).exists());
+	}
+}
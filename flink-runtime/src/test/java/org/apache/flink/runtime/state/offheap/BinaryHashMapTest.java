@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.offheap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.flink.configuration.ConfigConstants;
+import org.apache.flink.runtime.util.DataInputDeserializer;
+import org.apache.flink.runtime.util.DataOutputSerializer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link BinaryHashMap}.
+ */
+public class BinaryHashMapTest {
+
+	private File spillDir;
+
+	@Before
+	public void createSpillDir() {
+		spillDir = new File(ConfigConstants.DEFAULT_TASK_MANAGER_TMP_PATH, UUID.randomUUID().toString());
+		assertTrue(spillDir.mkdirs());
+	}
+
+	@After
+	public void deleteSpillDir() throws Exception {
+		FileUtils.deleteDirectory(spillDir);
+	}
+
+	@Test
+	public void testPutGetRemove() throws Exception {
+		BinaryHashMap map = new BinaryHashMap(new PageBudget(1024 * 1024), 4096, spillDir);
+		try {
+			assertNull(map.get(bytes("a")));
+
+			map.put(bytes("a"), bytes("1"));
+			map.put(bytes("b"), bytes("2"));
+			map.put(bytes("a"), bytes("3"));
+			assertEquals(2, map.size());
+			assertArrayEquals(bytes("3"), map.get(bytes("a")));
+			assertArrayEquals(bytes("2"), map.get(bytes("b")));
+
+			map.append(bytes("b"), bytes("4"));
+			map.append(bytes("c"), bytes("5"));
+			assertArrayEquals(bytes("24"), map.get(bytes("b")));
+			assertArrayEquals(bytes("5"), map.get(bytes("c")));
+
+			assertTrue(map.remove(bytes("a")));
+			assertFalse(map.remove(bytes("a")));
+			assertNull(map.get(bytes("a")));
+			assertEquals(2, map.size());
+
+			// records that are larger than a page
+			byte[] large = new byte[10000];
+			new Random(42).nextBytes(large);
+			map.put(bytes("large"), large);
+			assertArrayEquals(large, map.get(bytes("large")));
+		}
+		finally {
+			map.dispose();
+		}
+	}
+
+	@Test
+	public void testSpillingAndCompaction() throws Exception {
+		PageBudget budget = new PageBudget(16 * 1024);
+		BinaryHashMap map = new BinaryHashMap(budget, 1024, spillDir);
+		try {
+			Map<String, String> reference = new HashMap<>();
+			Random rnd = new Random(7L);
+
+			for (int i = 0; i < 50000; i++) {
+				String key = "key-" + rnd.nextInt(2000);
+				if (rnd.nextInt(10) == 0) {
+					assertEquals(reference.remove(key) != null, map.remove(bytes(key)));
+				} else {
+					String value = "value-" + i;
+					reference.put(key, value);
+					map.put(bytes(key), bytes(value));
+				}
+			}
+
+			assertTrue(map.getNumSpilledPages() > 0);
+			assertTrue(budget.getUsedBytes() <= budget.getMaxBytes());
+			// without compaction, the map would need more than a thousand pages
+			assertTrue(map.getNumPages() < 200);
+
+			assertEquals(reference.size(), map.size());
+			for (Map.Entry<String, String> entry : reference.entrySet()) {
+				assertArrayEquals(bytes(entry.getValue()), map.get(bytes(entry.getKey())));
+			}
+		}
+		finally {
+			map.dispose();
+		}
+		assertEquals(0, spillDir.list().length);
+		assertEquals(0, budget.getUsedBytes());
+	}
+
+	@Test
+	public void testCompactionReleasesDrainedPages() throws Exception {
+		PageBudget budget = new PageBudget(16 * 1024);
+		BinaryHashMap map = new BinaryHashMap(budget, 1024, spillDir);
+		try {
+			Map<String, String> reference = new HashMap<>();
+			Random rnd = new Random(3L);
+
+			// the live records fit into less than half of the budget, so the map only needs to spill if
+			// the compaction holds the old and the new pages at the same time
+			for (int i = 0; i < 20000; i++) {
+				String key = "key-" + rnd.nextInt(230);
+				String value = "value-" + (100000 + i);
+				reference.put(key, value);
+				if (rnd.nextInt(3) == 0) {
+					// values with a chunk on a different page than their record
+					map.put(bytes(key), bytes("v"));
+					map.append(bytes(key), bytes(value.substring(1)));
+				} else {
+					map.put(bytes(key), bytes(value));
+				}
+			}
+
+			assertEquals(0, map.getNumSpilledPages());
+			assertTrue(budget.getPeakBytes() <= budget.getMaxBytes());
+
+			assertEquals(reference.size(), map.size());
+			for (Map.Entry<String, String> entry : reference.entrySet()) {
+				assertArrayEquals(bytes(entry.getValue()), map.get(bytes(entry.getKey())));
+			}
+		}
+		finally {
+			map.dispose();
+		}
+		assertEquals(0, budget.getUsedBytes());
+	}
+
+	@Test
+	public void testAppendDoesNotCopyTheValue() throws Exception {
+		PageBudget budget = new PageBudget(1024 * 1024);
+		BinaryHashMap map = new BinaryHashMap(budget, 1024, spillDir);
+		try {
+			StringBuilder expected = new StringBuilder();
+			for (int i = 0; i < 10000; i++) {
+				String value = "value-" + i + ";";
+				expected.append(value);
+				map.append(bytes("key"), bytes(value));
+			}
+
+			// every append only adds a chunk, no previous value became garbage
+			assertEquals(0, map.getGarbageBytes());
+			assertEquals(1, map.size());
+			assertArrayEquals(bytes(expected.toString()), map.get(bytes("key")));
+
+			// overwriting the value turns the record and all chunks into garbage
+			map.put(bytes("key"), bytes("x"));
+			assertArrayEquals(bytes("x"), map.get(bytes("key")));
+			map.append(bytes("key"), bytes("y"));
+			assertArrayEquals(bytes("xy"), map.get(bytes("key")));
+		}
+		finally {
+			map.dispose();
+		}
+		assertEquals(0, budget.getUsedBytes());
+	}
+
+	@Test
+	public void testAppendWithSpillingAndCompaction() throws Exception {
+		PageBudget budget = new PageBudget(16 * 1024);
+		BinaryHashMap map = new BinaryHashMap(budget, 1024, spillDir);
+		BinaryHashMap restored = new BinaryHashMap(budget, 1024, spillDir);
+		try {
+			Map<String, String> reference = new HashMap<>();
+			Random rnd = new Random(11L);
+
+			for (int i = 0; i < 50000; i++) {
+				String key = "key-" + rnd.nextInt(500);
+				int operation = rnd.nextInt(20);
+				if (operation == 0) {
+					assertEquals(reference.remove(key) != null, map.remove(bytes(key)));
+				} else if (operation == 1) {
+					String value = "value-" + i;
+					reference.put(key, value);
+					map.put(bytes(key), bytes(value));
+				} else {
+					String value = "," + i;
+					String previous = reference.get(key);
+					reference.put(key, previous == null ? value : previous + value);
+					map.append(bytes(key), bytes(value));
+				}
+			}
+
+			assertTrue(map.getNumSpilledPages() > 0);
+			assertTrue(budget.getUsedBytes() <= budget.getMaxBytes());
+
+			assertEquals(reference.size(), map.size());
+			for (Map.Entry<String, String> entry : reference.entrySet()) {
+				assertArrayEquals(bytes(entry.getValue()), map.get(bytes(entry.getKey())));
+			}
+
+			DataOutputSerializer out = new DataOutputSerializer(1024);
+			map.writeTo(out);
+			restored.readFrom(new DataInputDeserializer(out.getByteArray(), 0, out.length()));
+
+			assertEquals(reference.size(), restored.size());
+			for (Map.Entry<String, String> entry : reference.entrySet()) {
+				assertArrayEquals(bytes(entry.getValue()), restored.get(bytes(entry.getKey())));
+			}
+		}
+		finally {
+			map.dispose();
+			restored.dispose();
+		}
+		assertEquals(0, spillDir.list().length);
+		assertEquals(0, budget.getUsedBytes());
+	}
+
+	@Test
+	public void testBudgetIsShared() throws Exception {
+		PageBudget budget = new PageBudget(8 * 1024);
+		BinaryHashMap first = new BinaryHashMap(budget, 1024, spillDir);
+		BinaryHashMap second = new BinaryHashMap(budget, 1024, spillDir);
+		try {
+			for (int i = 0; i < 1000; i++) {
+				first.put(bytes("key-" + i), bytes("value-" + i));
+			}
+			int spilledBefore = first.getNumSpilledPages();
+
+			for (int i = 0; i < 1000; i++) {
+				second.put(bytes("key-" + i), bytes("value-" + i));
+			}
+
+			// the second map took memory from the first map
+			assertTrue(first.getNumSpilledPages() > spilledBefore);
+			assertTrue(budget.getUsedBytes() <= budget.getMaxBytes());
+
+			for (int i = 0; i < 1000; i++) {
+				assertArrayEquals(bytes("value-" + i), first.get(bytes("key-" + i)));
+				assertArrayEquals(bytes("value-" + i), second.get(bytes("key-" + i)));
+			}
+		}
+		finally {
+			first.dispose();
+			second.dispose();
+		}
+	}
+
+	@Test
+	public void testWriteAndRead() throws Exception {
+		PageBudget budget = new PageBudget(8 * 1024);
+		BinaryHashMap map = new BinaryHashMap(budget, 1024, spillDir);
+		BinaryHashMap restored = new BinaryHashMap(budget, 1024, spillDir);
+		try {
+			for (int i = 0; i < 1000; i++) {
+				map.put(bytes("key-" + i), bytes("value-" + i));
+			}
+			assertTrue(map.getNumSpilledPages() > 0);
+
+			DataOutputSerializer out = new DataOutputSerializer(1024);
+			map.writeTo(out);
+
+			restored.readFrom(new DataInputDeserializer(out.getByteArray(), 0, out.length()));
+
+			assertEquals(1000, restored.size());
+			for (int i = 0; i < 1000; i++) {
+				assertArrayEquals(bytes("value-" + i), restored.get(bytes("key-" + i)));
+			}
+		}
+		finally {
+			map.dispose();
+			restored.dispose();
+		}
+	}
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -50,6 +50,7 @@ import scala.concurrent.duration.FiniteDuration;
 import java.io.Serializable;
 import java.net.URL;
 import java.util.Collections;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertFalse;
@@ -200,6 +201,11 @@ public class TaskAsyncCallTest {
 
 		}
 
+		@Override
+		public void setInitialKeyGroupState(Map<Integer, StateHandle<Serializable>> keyGroupStates, long ts) throws Exception {
+
+		}
+
 		@Override
 		public boolean triggerCheckpoint(long checkpointId, long timestamp) {
 			lastCheckpointId++;
@@ -65,6 +65,9 @@ public abstract class AbstractFetcher<T, KPH> {
 	/** The mode describing whether the fetcher also generates timestamps and watermarks */
 	private final int timestampWatermarkMode;
 	
+	/** The time without records after which a partition is idle, or 0, if partitions are never idle */
+	private final long idleTimeout;
+	
 	/** Only relevant for punctuated watermarks: The current cross partition watermark */
 	private volatile long maxWatermarkSoFar = Long.MIN_VALUE;
 
@@ -79,6 +82,7 @@ public abstract class AbstractFetcher<T, KPH> {
 	{
 		this.sourceContext = checkNotNull(sourceContext);
 		this.checkpointLock = sourceContext.getCheckpointLock();
+		this.idleTimeout = runtimeContext.getExecutionConfig().getWatermarkIdleTimeout();
 		
 		// figure out what we watermark mode we will be using
 		
@@ -110,9 +114,13 @@ public abstract class AbstractFetcher<T, KPH> {
 					(KafkaTopicPartitionStateWithPeriodicWatermarks<?, ?>[]) allPartitions;
 			
 			PeriodicWatermarkEmitter periodicEmitter = 
-					new PeriodicWatermarkEmitter(parts, sourceContext, runtimeContext);
+					new PeriodicWatermarkEmitter(parts, sourceContext, runtimeContext, idleTimeout);
 			periodicEmitter.start();
 		}
+		// with punctuated watermarks, idle partitions are detected by a separate timer
+		else if (timestampWatermarkMode == PUNCTUATED_WATERMARKS && idleTimeout > 0) {
+			new PunctuatedIdlenessChecker(runtimeContext).start();
+		}
 	}
 
 	// ------------------------------------------------------------------------
@@ -253,6 +261,7 @@ public abstract class AbstractFetcher<T, KPH> {
 		synchronized (checkpointLock) {
 			sourceContext.collectWithTimestamp(record, timestamp);
 			partitionState.setOffset(offset);
+			partitionState.markActive();
 		}
 	}
 
@@ -277,6 +286,7 @@ public abstract class AbstractFetcher<T, KPH> {
 		synchronized (checkpointLock) {
 			sourceContext.collectWithTimestamp(record, timestamp);
 			partitionState.setOffset(offset);
+			partitionState.markActive();
 		}
 		
 		// if we also have a new per-partition watermark, check if that is also a
@@ -290,23 +300,38 @@ public abstract class AbstractFetcher<T, KPH> {
 	 */
 	private void updateMinPunctuatedWatermark(Watermark nextWatermark) {
 		if (nextWatermark.getTimestamp() > maxWatermarkSoFar) {
-			long newMin = Long.MAX_VALUE;
-			
-			for (KafkaTopicPartitionState<?> state : allPartitions) {
-				@SuppressWarnings("unchecked")
-				final KafkaTopicPartitionStateWithPunctuatedWatermarks<T, KPH> withWatermarksState =
-						(KafkaTopicPartitionStateWithPunctuatedWatermarks<T, KPH>) state;
-				
-				newMin = Math.min(newMin, withWatermarksState.getCurrentPartitionWatermark());
+			emitMinPunctuatedWatermark();
+		}
+	}
+
+	/**
+	 * Emits the minimum watermark of all partitions that are not idle, if it is a new
+	 * cross-partition watermark.
+	 */
+	private void emitMinPunctuatedWatermark() {
+		long newMin = Long.MAX_VALUE;
+		boolean anyActive = false;
+
+		for (KafkaTopicPartitionState<?> state : allPartitions) {
+			// idle partitions do not hold back the watermark
+			if (state.isIdle()) {
+				continue;
 			}
-			
-			// double-check locking pattern
-			if (newMin > maxWatermarkSoFar) {
-				synchronized (checkpointLock) {
-					if (newMin > maxWatermarkSoFar) {
-						maxWatermarkSoFar = newMin;
-						sourceContext.emitWatermark(new Watermark(newMin));
-					}
+
+			@SuppressWarnings("unchecked")
+			final KafkaTopicPartitionStateWithPunctuatedWatermarks<T, KPH> withWatermarksState =
+					(KafkaTopicPartitionStateWithPunctuatedWatermarks<T, KPH>) state;
+
+			newMin = Math.min(newMin, withWatermarksState.getCurrentPartitionWatermark());
+			anyActive = true;
+		}
+
+		// double-check locking pattern
+		if (anyActive && newMin > maxWatermarkSoFar) {
+			synchronized (checkpointLock) {
+				if (newMin > maxWatermarkSoFar) {
+					maxWatermarkSoFar = newMin;
+					sourceContext.emitWatermark(new Watermark(newMin));
 				}
 			}
 		}
@@ -392,9 +417,59 @@ public abstract class AbstractFetcher<T, KPH> {
 	
 	// ------------------------------------------------------------------------
 	
+	/**
+	 * Periodically checks which partitions are idle, when punctuated watermarks are used. Idle
+	 * partitions are excluded from the cross-partition watermark. When all partitions are idle,
+	 * the source is marked as temporarily idle.
+	 */
+	private class PunctuatedIdlenessChecker implements Triggerable {
+
+		private final StreamingRuntimeContext triggerContext;
+
+		private boolean idle;
+
+		PunctuatedIdlenessChecker(StreamingRuntimeContext runtimeContext) {
+			this.triggerContext = checkNotNull(runtimeContext);
+		}
+
+		public void start() {
+			triggerContext.registerTimer(System.currentTimeMillis() + idleTimeout, this);
+		}
+
+		@Override
+		public void trigger(long timestamp) throws Exception {
+			// sanity check
+			assert Thread.holdsLock(checkpointLock);
+
+			final long now = System.currentTimeMillis();
+
+			boolean allIdle = true;
+			for (KafkaTopicPartitionState<?> state : allPartitions) {
+				if (!state.updateIdleness(now, idleTimeout)) {
+					allIdle = false;
+				}
+			}
+
+			if (allIdle) {
+				if (!idle) {
+					idle = true;
+					sourceContext.markAsTemporarilyIdle();
+				}
+			} else {
+				idle = false;
+				// partitions that became idle may have held back the watermark
+				emitMinPunctuatedWatermark();
+			}
+
+			triggerContext.registerTimer(now + idleTimeout, this);
+		}
+	}
+	
 	/**
 	 * The periodic watermark emitter. In its given interval, it checks all partitions for
-	 * the current event time watermark, and possibly emits the next watermark.
+	 * the current event time watermark, and possibly emits the next watermark. Partitions
+	 * that emitted no records for the idle timeout are not considered. When all partitions
+	 * are idle, the source is marked as temporarily idle.
 	 */
 	private static class PeriodicWatermarkEmitter implements Triggerable {
 
@@ -405,20 +480,26 @@ public abstract class AbstractFetcher<T, KPH> {
 		private final StreamingRuntimeContext triggerContext;
 
 		private final long interval;
+
+		private final long idleTimeout;
 		
 		private long lastWatermarkTimestamp;
+
+		private boolean idle;
 		
 		//-------------------------------------------------
 
 		PeriodicWatermarkEmitter(
 				KafkaTopicPartitionStateWithPeriodicWatermarks<?, ?>[] allPartitions,
 				SourceContext<?> emitter,
-				StreamingRuntimeContext runtimeContext)
+				StreamingRuntimeContext runtimeContext,
+				long idleTimeout)
 		{
 			this.allPartitions = checkNotNull(allPartitions);
 			this.emitter = checkNotNull(emitter);
 			this.triggerContext = checkNotNull(runtimeContext);
 			this.interval = runtimeContext.getExecutionConfig().getAutoWatermarkInterval();
+			this.idleTimeout = idleTimeout;
 			this.lastWatermarkTimestamp = Long.MIN_VALUE;
 		}
 
@@ -433,9 +514,18 @@ public abstract class AbstractFetcher<T, KPH> {
 			// sanity check
 			assert Thread.holdsLock(emitter.getCheckpointLock());
 			
+			final long now = System.currentTimeMillis();
+
 			long minAcrossAll = Long.MAX_VALUE;
+			boolean allIdle = idleTimeout > 0;
 			for (KafkaTopicPartitionStateWithPeriodicWatermarks<?, ?> state : allPartitions) {
 				
+				// idle partitions do not hold back the watermark
+				if (idleTimeout > 0 && state.updateIdleness(now, idleTimeout)) {
+					continue;
+				}
+				allIdle = false;
+				
 				// we access the current watermark for the periodic assigners under the state
 				// lock, to prevent concurrent modification to any internal variables
 				final long curr;
@@ -447,10 +537,20 @@ public abstract class AbstractFetcher<T, KPH> {
 				minAcrossAll = Math.min(minAcrossAll, curr);
 			}
 			
-			// emit next watermark, if there is one
-			if (minAcrossAll > lastWatermarkTimestamp) {
-				lastWatermarkTimestamp = minAcrossAll;
-				emitter.emitWatermark(new Watermark(minAcrossAll));
+			if (allIdle) {
+				if (!idle) {
+					idle = true;
+					emitter.markAsTemporarilyIdle();
+				}
+			}
+			else {
+				idle = false;
+				
+				// emit next watermark, if there is one
+				if (minAcrossAll > lastWatermarkTimestamp) {
+					lastWatermarkTimestamp = minAcrossAll;
+					emitter.emitWatermark(new Watermark(minAcrossAll));
+				}
 			}
 			
 			// schedule the next watermark
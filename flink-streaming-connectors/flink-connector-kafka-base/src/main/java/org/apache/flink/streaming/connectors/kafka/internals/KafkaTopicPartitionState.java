@@ -44,12 +44,22 @@ public class KafkaTopicPartitionState<KPH> {
 	/** The offset within the Kafka partition that we already processed */
 	private volatile long offset;
 
+	/** Whether records of the partition were emitted since the last idleness check */
+	private boolean active;
+
+	/** The time of the last idleness check that found the partition active */
+	private long lastActiveTime;
+
+	/** Whether the partition did not emit records for the idle timeout */
+	private volatile boolean idle;
+
 	// ------------------------------------------------------------------------
 	
 	public KafkaTopicPartitionState(KafkaTopicPartition partition, KPH kafkaPartitionHandle) {
 		this.partition = partition;
 		this.kafkaPartitionHandle = kafkaPartitionHandle;
 		this.offset = OFFSET_NOT_SET;
+		this.lastActiveTime = System.currentTimeMillis();
 	}
 
 	// ------------------------------------------------------------------------
@@ -94,6 +104,42 @@ public class KafkaTopicPartitionState<KPH> {
 	public final boolean isOffsetDefined() {
 		return offset != OFFSET_NOT_SET;
 	}
+
+	/**
+	 * Marks that a record of this partition was emitted. The partition is not idle any more.
+	 * Must be called under the checkpoint lock.
+	 */
+	public final void markActive() {
+		active = true;
+		idle = false;
+	}
+
+	/**
+	 * Checks whether the partition emitted no records for at least the given timeout. Must be
+	 * called under the checkpoint lock, periodically, so that the time since the last emitted
+	 * record can be measured.
+	 *
+	 * @param currentTime The current time in milliseconds.
+	 * @param idleTimeout The time without records after which the partition is idle.
+	 * @return True, if the partition is idle, false otherwise.
+	 */
+	public final boolean updateIdleness(long currentTime, long idleTimeout) {
+		if (active) {
+			active = false;
+			lastActiveTime = currentTime;
+			idle = false;
+		} else if (currentTime - lastActiveTime >= idleTimeout) {
+			idle = true;
+		}
+		return idle;
+	}
+
+	/**
+	 * Checks whether the partition was found idle by the last idleness check.
+	 */
+	public final boolean isIdle() {
+		return idle;
+	}
 	
 	// ------------------------------------------------------------------------
 
@@ -177,6 +177,97 @@ public class AbstractFetcherTimestampsTest {
 		assertTrue(watermarkTs >= 13L && watermarkTs <= 15L);
 	}
 
+	@Test
+	public void testPeriodicWatermarksWithIdlePartitions() throws Exception {
+		ExecutionConfig config = new ExecutionConfig();
+		config.setAutoWatermarkInterval(10);
+		config.setWatermarkIdleTimeout(50);
+
+		List<KafkaTopicPartition> originalPartitions = Arrays.asList(
+				new KafkaTopicPartition("test topic name", 7),
+				new KafkaTopicPartition("test topic name", 13));
+
+		TestSourceContext<Long> sourceContext = new TestSourceContext<>();
+
+		TestFetcher<Long> fetcher = new TestFetcher<>(
+				sourceContext, originalPartitions,
+				new SerializedValue<AssignerWithPeriodicWatermarks<Long>>(new PeriodicTestExtractor()),
+				null, new MockRuntimeContext(17, 3, config, sourceContext.getCheckpointLock()));
+
+		final KafkaTopicPartitionState<Object> part1 = fetcher.subscribedPartitions()[0];
+		final KafkaTopicPartitionState<Object> part2 = fetcher.subscribedPartitions()[1];
+
+		fetcher.emitRecord(3L, part1, 1L);
+		fetcher.emitRecord(12L, part2, 1L);
+
+		// this blocks until the periodic thread emitted the watermark
+		assertEquals(3L, sourceContext.getLatestWatermark().getTimestamp());
+
+		// partition 2 receives no more records, it must not hold back the watermark once idle
+		assertTrue(advanceUntilWatermark(fetcher, sourceContext, part1, 20L));
+		assertFalse(sourceContext.isIdle());
+
+		// no partition receives records any more, the source becomes idle
+		assertTrue(sourceContext.waitUntilIdle(10000L));
+	}
+
+	@Test
+	public void testPunctuatedWatermarksWithIdlePartitions() throws Exception {
+		ExecutionConfig config = new ExecutionConfig();
+		config.setWatermarkIdleTimeout(50);
+
+		List<KafkaTopicPartition> originalPartitions = Arrays.asList(
+				new KafkaTopicPartition("test topic name", 7),
+				new KafkaTopicPartition("test topic name", 13));
+
+		TestSourceContext<Long> sourceContext = new TestSourceContext<>();
+
+		TestFetcher<Long> fetcher = new TestFetcher<>(
+				sourceContext, originalPartitions, null,
+				new SerializedValue<AssignerWithPunctuatedWatermarks<Long>>(new PunctuatedTestExtractor()),
+				new MockRuntimeContext(17, 3, config, sourceContext.getCheckpointLock()));
+
+		final KafkaTopicPartitionState<Object> part1 = fetcher.subscribedPartitions()[0];
+		final KafkaTopicPartitionState<Object> part2 = fetcher.subscribedPartitions()[1];
+
+		// elements generate a watermark if the timestamp is a multiple of three
+		fetcher.emitRecord(3L, part1, 1L);
+		fetcher.emitRecord(12L, part2, 1L);
+		assertEquals(3L, sourceContext.getLatestWatermark().getTimestamp());
+
+		// partition 2 receives no more records, it must not hold back the watermark once idle
+		assertTrue(advanceUntilWatermark(fetcher, sourceContext, part1, 20L));
+		assertFalse(sourceContext.isIdle());
+
+		// no partition receives records any more, the source becomes idle
+		assertTrue(sourceContext.waitUntilIdle(10000L));
+	}
+
+	/**
+	 * Emits records with increasing timestamps to the given partition until a watermark of
+	 * at least the given timestamp was emitted, or a timeout expired.
+	 */
+	private static boolean advanceUntilWatermark(
+			TestFetcher<Long> fetcher,
+			TestSourceContext<Long> sourceContext,
+			KafkaTopicPartitionState<Object> partition,
+			long targetWatermark) throws Exception
+	{
+		final long deadline = System.currentTimeMillis() + 10000L;
+		long offset = 100L;
+
+		for (long timestamp = targetWatermark; System.currentTimeMillis() < deadline; timestamp++) {
+			fetcher.emitRecord(timestamp, partition, offset++);
+
+			Watermark watermark = sourceContext.pollLatestWatermark();
+			if (watermark != null && watermark.getTimestamp() >= targetWatermark) {
+				return true;
+			}
+			Thread.sleep(10);
+		}
+		return false;
+	}
+
 	// ------------------------------------------------------------------------
 	//  Test mocks
 	// ------------------------------------------------------------------------
@@ -223,6 +314,7 @@ public class AbstractFetcherTimestampsTest {
 
 		private volatile StreamRecord<T> latestElement;
 		private volatile Watermark currentWatermark;
+		private volatile boolean idle;
 
 		@Override
 		public void collect(T element) {
@@ -232,12 +324,22 @@ public class AbstractFetcherTimestampsTest {
 		@Override
 		public void collectWithTimestamp(T element, long timestamp) {
 			this.latestElement = new StreamRecord<T>(element, timestamp);
+			this.idle = false;
 		}
 
 		@Override
 		public void emitWatermark(Watermark mark) {
 			synchronized (watermarkLock) {
 				currentWatermark = mark;
+				idle = false;
+				watermarkLock.notifyAll();
+			}
+		}
+
+		@Override
+		public void markAsTemporarilyIdle() {
+			synchronized (watermarkLock) {
+				idle = true;
 				watermarkLock.notifyAll();
 			}
 		}
@@ -268,6 +370,29 @@ public class AbstractFetcherTimestampsTest {
 				return wm;
 			}
 		}
+
+		public Watermark pollLatestWatermark() {
+			synchronized (watermarkLock) {
+				Watermark wm = currentWatermark;
+				currentWatermark = null;
+				return wm;
+			}
+		}
+
+		public boolean isIdle() {
+			return idle;
+		}
+
+		public boolean waitUntilIdle(long timeout) throws InterruptedException {
+			final long deadline = System.currentTimeMillis() + timeout;
+			synchronized (watermarkLock) {
+				long remaining;
+				while (!idle && (remaining = deadline - System.currentTimeMillis()) > 0) {
+					watermarkLock.wait(remaining);
+				}
+				return idle;
+			}
+		}
 	}
 
 	// ------------------------------------------------------------------------
@@ -386,6 +386,10 @@ public class RMQSourceTest {
 		public void emitWatermark(Watermark mark) {
 		}
 
+		@Override
+		public void markAsTemporarilyIdle() {
+		}
+
 		@Override
 		public Object getCheckpointLock() {
 			return lock;
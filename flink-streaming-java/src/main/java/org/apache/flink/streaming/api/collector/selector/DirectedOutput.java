@@ -30,6 +30,7 @@ import org.apache.flink.streaming.api.graph.StreamEdge;
 import org.apache.flink.streaming.api.operators.Output;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamrecord.StreamStatus;
 
 
 public class DirectedOutput<OUT> implements Output<StreamRecord<OUT>> {
@@ -100,6 +101,13 @@ public class DirectedOutput<OUT> implements Output<StreamRecord<OUT>> {
 		}
 	}
 
+	@Override
+	public void emitStreamStatus(StreamStatus status) {
+		for (Output<StreamRecord<OUT>> out : allOutputs) {
+			out.emitStreamStatus(status);
+		}
+	}
+
 	@Override
 	public void collect(StreamRecord<OUT> record) {
 		Set<Output<StreamRecord<OUT>>> selectedOutputs = new HashSet<Output<StreamRecord<OUT>>>(selectAllOutputs.length);
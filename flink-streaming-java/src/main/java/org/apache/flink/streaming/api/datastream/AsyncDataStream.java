@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.api.datastream;
+
+import org.apache.flink.annotation.PublicEvolving;
+import org.apache.flink.api.common.functions.Function;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.java.Utils;
+import org.apache.flink.api.java.typeutils.TypeExtractor;
+import org.apache.flink.streaming.api.functions.async.AsyncFunction;
+import org.apache.flink.streaming.api.operators.async.AsyncWaitOperator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies an {@link AsyncFunction} to a {@link DataStream}. The function issues a non-blocking
+ * request for each element, for example a lookup in an external database, and the operator
+ * keeps many requests in flight at the same time, instead of waiting for each of them.
+ *
+ * <p>Example:
+ * <pre>{@code
+ * DataStream<String> input = ...
+ * DataStream<String> enriched = AsyncDataStream.orderedWait(input, new DatabaseLookup(), 1, TimeUnit.SECONDS, 100);
+ * }</pre>
+ */
+@PublicEvolving
+public class AsyncDataStream {
+
+	/**
+	 * The order in which the results of the requests are emitted.
+	 */
+	public enum OutputMode {
+		/** Results are emitted in the order of the input elements. */
+		ORDERED,
+
+		/**
+		 * Results are emitted as soon as their request completes. They are not reordered
+		 * across watermarks, though.
+		 */
+		UNORDERED
+	}
+
+	/** The default maximum number of requests in flight per parallel operator instance. */
+	public static final int DEFAULT_CAPACITY = 100;
+
+	private AsyncDataStream() {}
+
+	/**
+	 * Applies the given {@link AsyncFunction} and emits the results in the order of the input elements.
+	 *
+	 * @param in The input stream.
+	 * @param func The function that issues the requests.
+	 * @param timeout The time after which a request fails, or 0, if requests never time out.
+	 * @param timeUnit The unit of the timeout.
+	 * @param capacity The maximum number of requests in flight per parallel operator instance.
+	 * @param <IN> The type of the input elements.
+	 * @param <OUT> The type of the output elements.
+	 * @return The stream with the results of the requests.
+	 */
+	public static <IN, OUT> SingleOutputStreamOperator<OUT> orderedWait(
+			DataStream<IN> in,
+			AsyncFunction<IN, OUT> func,
+			long timeout,
+			TimeUnit timeUnit,
+			int capacity) {
+		return addOperator(in, func, timeUnit.toMillis(timeout), capacity, OutputMode.ORDERED);
+	}
+
+	/**
+	 * Applies the given {@link AsyncFunction} and emits the results in the order of the input
+	 * elements, with up to {@link #DEFAULT_CAPACITY} requests in flight.
+	 *
+	 * @see #orderedWait(DataStream, AsyncFunction, long, TimeUnit, int)
+	 */
+	public static <IN, OUT> SingleOutputStreamOperator<OUT> orderedWait(
+			DataStream<IN> in,
+			AsyncFunction<IN, OUT> func,
+			long timeout,
+			TimeUnit timeUnit) {
+		return orderedWait(in, func, timeout, timeUnit, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Applies the given {@link AsyncFunction} and emits the results as soon as their request completes.
+	 * Results are not reordered across watermarks.
+	 *
+	 * @param in The input stream.
+	 * @param func The function that issues the requests.
+	 * @param timeout The time after which a request fails, or 0, if requests never time out.
+	 * @param timeUnit The unit of the timeout.
+	 * @param capacity The maximum number of requests in flight per parallel operator instance.
+	 * @param <IN> The type of the input elements.
+	 * @param <OUT> The type of the output elements.
+	 * @return The stream with the results of the requests.
+	 */
+	public static <IN, OUT> SingleOutputStreamOperator<OUT> unorderedWait(
+			DataStream<IN> in,
+			AsyncFunction<IN, OUT> func,
+			long timeout,
+			TimeUnit timeUnit,
+			int capacity) {
+		return addOperator(in, func, timeUnit.toMillis(timeout), capacity, OutputMode.UNORDERED);
+	}
+
+	/**
+	 * Applies the given {@link AsyncFunction} and emits the results as soon as their request completes,
+	 * with up to {@link #DEFAULT_CAPACITY} requests in flight.
+	 *
+	 * @see #unorderedWait(DataStream, AsyncFunction, long, TimeUnit, int)
+	 */
+	public static <IN, OUT> SingleOutputStreamOperator<OUT> unorderedWait(
+			DataStream<IN> in,
+			AsyncFunction<IN, OUT> func,
+			long timeout,
+			TimeUnit timeUnit) {
+		return unorderedWait(in, func, timeout, timeUnit, DEFAULT_CAPACITY);
+	}
+
+	private static <IN, OUT> SingleOutputStreamOperator<OUT> addOperator(
+			DataStream<IN> in,
+			AsyncFunction<IN, OUT> func,
+			long timeout,
+			int capacity,
+			OutputMode mode) {
+
+		TypeInformation<OUT> outTypeInfo = TypeExtractor.getUnaryOperatorReturnType((Function) func, AsyncFunction.class,
+				false, true, in.getType(), Utils.getCallLocationName(), true);
+
+		// create transform
+		AsyncWaitOperator<IN, OUT> operator = new AsyncWaitOperator<>(
+				in.getExecutionEnvironment().clean(func),
+				capacity,
+				timeout,
+				mode,
+				in.getType().createSerializer(in.getExecutionConfig()));
+
+		return in.transform("async wait operator", outTypeInfo, operator);
+	}
+}
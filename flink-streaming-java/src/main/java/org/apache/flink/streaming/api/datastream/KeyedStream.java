@@ -34,8 +34,10 @@ import org.apache.flink.streaming.api.functions.sink.SinkFunction;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
 import org.apache.flink.streaming.api.operators.StreamGroupedFold;
 import org.apache.flink.streaming.api.operators.StreamGroupedReduce;
+import org.apache.flink.streaming.api.operators.StreamLocalGroupedReduce;
 import org.apache.flink.streaming.api.transformations.OneInputTransformation;
 import org.apache.flink.streaming.api.transformations.PartitionTransformation;
+import org.apache.flink.streaming.api.transformations.StreamTransformation;
 import org.apache.flink.streaming.api.windowing.assigners.GlobalWindows;
 import org.apache.flink.streaming.api.windowing.assigners.SlidingProcessingTimeWindows;
 import org.apache.flink.streaming.api.windowing.assigners.SlidingEventTimeWindows;
@@ -258,6 +260,43 @@ public class KeyedStream<T, KEY> extends DataStream<T> {
 				clean(reducer), getType().createSerializer(getExecutionConfig())));
 	}
 
+	/**
+	 * Reduces the elements per key before they are partitioned by the key, like the combiner of a
+	 * batch reduce. For every batch of elements, each parallel instance of the input sends only
+	 * one partial aggregate per key over the network. This relieves the instances that own very
+	 * frequent keys. The returned stream is partitioned by the same key, and the partial aggregates
+	 * are usually reduced again with the same function, as in:
+	 *
+	 * <pre>{@code
+	 * stream.keyBy(0).preAggregate(reducer, 1000, 100).reduce(reducer);
+	 * }</pre>
+	 *
+	 * <p>A batch is emitted when it contains the given number of elements, when the given time
+	 * passed since its first element arrived, and before watermarks and checkpoint barriers.
+	 *
+	 * @param reducer
+	 *            The associative {@link ReduceFunction} that computes the partial aggregates.
+	 * @param maxBatchSize
+	 *            The maximum number of elements of a batch.
+	 * @param maxBatchLatencyMillis
+	 *            The maximum time in milliseconds that elements are buffered, or 0, to only bound
+	 *            the batches by their size.
+	 * @return The stream of partial aggregates, partitioned by the key of this stream.
+	 */
+	@PublicEvolving
+	public KeyedStream<T, KEY> preAggregate(ReduceFunction<T> reducer, int maxBatchSize, long maxBatchLatencyMillis) {
+		// the pre-aggregation runs on the input of the partitioning, so that it is chained to it
+		StreamTransformation<T> input = ((PartitionTransformation<T>) getTransformation()).getInput();
+
+		SingleOutputStreamOperator<T> preAggregated = new DataStream<>(getExecutionEnvironment(), input)
+			.transform("Local Pre-Aggregation", getType(), new StreamLocalGroupedReduce<>(
+				clean(reducer), keySelector, getType().createSerializer(getExecutionConfig()),
+				maxBatchSize, maxBatchLatencyMillis))
+			.setParallelism(input.getParallelism());
+
+		return new KeyedStream<>(preAggregated, keySelector, keyType);
+	}
+
 	/**
 	 * Applies a fold transformation on the grouped data stream grouped on by
 	 * the given key position. The {@link FoldFunction} will receive input
@@ -511,6 +550,17 @@ public class KeyedStream<T, KEY> extends DataStream<T> {
 	}
 
 	protected SingleOutputStreamOperator<T> aggregate(AggregationFunction<T> aggregate) {
+		// the built-in aggregations are associative, so they can be pre-aggregated
+		// before the partitioning in the mini-batch mode
+		if (getExecutionConfig().isMiniBatchEnabled()) {
+			KeyedStream<T, KEY> preAggregated = preAggregate(aggregate,
+				getExecutionConfig().getMiniBatchSize(), getExecutionConfig().getMiniBatchLatency());
+			return preAggregated.aggregateWithoutPreAggregation(aggregate);
+		}
+		return aggregateWithoutPreAggregation(aggregate);
+	}
+
+	private SingleOutputStreamOperator<T> aggregateWithoutPreAggregation(AggregationFunction<T> aggregate) {
 		StreamGroupedReduce<T> operator = new StreamGroupedReduce<T>(
 				clean(aggregate), getType().createSerializer(getExecutionConfig()));
 		return transform("Keyed Aggregation", getType(), operator);
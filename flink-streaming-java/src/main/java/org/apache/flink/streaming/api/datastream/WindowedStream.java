@@ -41,17 +41,23 @@ import org.apache.flink.streaming.api.functions.windowing.ReduceApplyWindowFunct
 import org.apache.flink.streaming.api.functions.windowing.WindowFunction;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
 import org.apache.flink.streaming.api.windowing.assigners.MergingWindowAssigner;
+import org.apache.flink.streaming.api.windowing.assigners.SlidingEventTimeWindows;
 import org.apache.flink.streaming.api.windowing.assigners.SlidingProcessingTimeWindows;
 import org.apache.flink.streaming.api.windowing.assigners.TumblingProcessingTimeWindows;
 import org.apache.flink.streaming.api.windowing.assigners.WindowAssigner;
+import org.apache.flink.streaming.api.windowing.evictors.CountEvictor;
 import org.apache.flink.streaming.api.windowing.evictors.Evictor;
+import org.apache.flink.streaming.api.windowing.time.Time;
+import org.apache.flink.streaming.api.windowing.triggers.EventTimeTrigger;
 import org.apache.flink.streaming.api.windowing.triggers.ProcessingTimeTrigger;
 import org.apache.flink.streaming.api.windowing.triggers.Trigger;
 import org.apache.flink.streaming.api.windowing.windows.TimeWindow;
 import org.apache.flink.streaming.api.windowing.windows.Window;
 import org.apache.flink.streaming.runtime.operators.windowing.AccumulatingProcessingTimeWindowOperator;
 import org.apache.flink.streaming.runtime.operators.windowing.AggregatingProcessingTimeWindowOperator;
+import org.apache.flink.streaming.runtime.operators.windowing.CountEvictingReduceWindowOperator;
 import org.apache.flink.streaming.runtime.operators.windowing.EvictingWindowOperator;
+import org.apache.flink.streaming.runtime.operators.windowing.PanedEventTimeWindowOperator;
 import org.apache.flink.streaming.runtime.operators.windowing.functions.InternalIterableWindowFunction;
 import org.apache.flink.streaming.runtime.operators.windowing.functions.InternalSingleValueWindowFunction;
 import org.apache.flink.streaming.runtime.operators.windowing.WindowOperator;
@@ -98,6 +104,9 @@ public class WindowedStream<T, K, W extends Window> {
 	/** The evictor that is used for evicting elements before window evaluation. */
 	private Evictor<? super T, ? super W> evictor;
 
+	/** The time in milliseconds that windows keep their contents after they fired. */
+	private long allowedLateness = 0L;
+
 
 	@PublicEvolving
 	public WindowedStream(KeyedStream<T, K> input,
@@ -136,6 +145,27 @@ public class WindowedStream<T, K, W extends Window> {
 		return this;
 	}
 
+	/**
+	 * Sets the time by which elements are allowed to be late. Windows keep their contents for
+	 * this time after the watermark passed their end, and elements that arrive within this time
+	 * fire the window again, with all of its contents. Elements that arrive later are evaluated
+	 * on their own. By default, the allowed lateness is zero.
+	 *
+	 * <p>
+	 * Note: The allowed lateness is currently only supported for sliding event-time windows with
+	 * the default {@code EventTimeTrigger} and a reduce function, which are evaluated with
+	 * pre-aggregated panes.
+	 */
+	@PublicEvolving
+	public WindowedStream<T, K, W> allowedLateness(Time lateness) {
+		long millis = lateness.toMilliseconds();
+		if (millis < 0) {
+			throw new IllegalArgumentException("The allowed lateness must not be negative.");
+		}
+		this.allowedLateness = millis;
+		return this;
+	}
+
 
 	// ------------------------------------------------------------------------
 	//  Operations on the keyed windows
@@ -266,6 +296,8 @@ public class WindowedStream<T, K, W extends Window> {
 
 		WindowOperator<K, T, Iterable<T>, R, W> operator;
 
+		checkNoAllowedLateness();
+
 		if (evictor != null) {
 			ListStateDescriptor<StreamRecord<T>> stateDesc = new ListStateDescriptor<>("window-contents",
 				new StreamRecordSerializer<>(input.getType().createSerializer(getExecutionEnvironment().getConfig())));
@@ -350,7 +382,49 @@ public class WindowedStream<T, K, W extends Window> {
 
 		OneInputStreamOperator<T, R> operator;
 
-		if (evictor != null) {
+		if (isPanedEventTimeWindow()) {
+			// each element is aggregated once, into its pane, instead of into each of its windows
+			SlidingEventTimeWindows timeWindows = (SlidingEventTimeWindows) windowAssigner;
+
+			ReducingStateDescriptor<T> stateDesc = new ReducingStateDescriptor<>("window-panes",
+				reduceFunction,
+				input.getType().createSerializer(getExecutionEnvironment().getConfig()));
+
+			opName = "PanedWindow(" + windowAssigner + ", " + stateDesc + ", " + trigger + ", " + udfName + ")";
+
+			@SuppressWarnings("unchecked")
+			WindowFunction<T, R, K, TimeWindow> timeWindowFunction = (WindowFunction<T, R, K, TimeWindow>) function;
+
+			operator = new PanedEventTimeWindowOperator<>(
+					timeWindows.getSize(),
+					timeWindows.getSlide(),
+					allowedLateness,
+					keySel,
+					stateDesc,
+					new InternalSingleValueWindowFunction<>(timeWindowFunction));
+
+		} else if (evictor instanceof CountEvictor && !(windowAssigner instanceof MergingWindowAssigner)) {
+			checkNoAllowedLateness();
+
+			// the aggregate of the elements that are left after eviction is maintained incrementally
+			opName = "TriggerWindow(" + windowAssigner + ", " + reduceFunction + ", " + trigger + ", " + evictor + ", " + udfName + ")";
+
+			@SuppressWarnings("unchecked")
+			CountEvictor<? super W> countEvictor = (CountEvictor<? super W>) evictor;
+
+			operator = new CountEvictingReduceWindowOperator<>(windowAssigner,
+					windowAssigner.getWindowSerializer(getExecutionEnvironment().getConfig()),
+					keySel,
+					input.getKeyType().createSerializer(getExecutionEnvironment().getConfig()),
+					input.getType().createSerializer(getExecutionEnvironment().getConfig()),
+					reduceFunction,
+					new InternalSingleValueWindowFunction<>(function),
+					trigger,
+					countEvictor);
+
+		} else if (evictor != null) {
+			checkNoAllowedLateness();
+
 			ListStateDescriptor<StreamRecord<T>> stateDesc = new ListStateDescriptor<>("window-contents",
 				new StreamRecordSerializer<>(input.getType().createSerializer(getExecutionEnvironment().getConfig())));
 
@@ -366,6 +440,8 @@ public class WindowedStream<T, K, W extends Window> {
 					evictor);
 
 		} else {
+			checkNoAllowedLateness();
+
 			ReducingStateDescriptor<T> stateDesc = new ReducingStateDescriptor<>("window-contents",
 				reduceFunction,
 				input.getType().createSerializer(getExecutionEnvironment().getConfig()));
@@ -439,6 +515,8 @@ public class WindowedStream<T, K, W extends Window> {
 
 		OneInputStreamOperator<T, R> operator;
 
+		checkNoAllowedLateness();
+
 		if (evictor != null) {
 
 			ListStateDescriptor<StreamRecord<T>> stateDesc = new ListStateDescriptor<>("window-contents",
@@ -683,6 +761,8 @@ public class WindowedStream<T, K, W extends Window> {
 			String functionName) {
 
 		if (windowAssigner instanceof SlidingProcessingTimeWindows && trigger instanceof ProcessingTimeTrigger && evictor == null) {
+			checkNoAllowedLateness();
+
 			SlidingProcessingTimeWindows timeWindows = (SlidingProcessingTimeWindows) windowAssigner;
 			final long windowLength = timeWindows.getSize();
 			final long windowSlide = timeWindows.getSlide();
@@ -714,6 +794,8 @@ public class WindowedStream<T, K, W extends Window> {
 				return input.transform(opName, resultType, op);
 			}
 		} else if (windowAssigner instanceof TumblingProcessingTimeWindows && trigger instanceof ProcessingTimeTrigger && evictor == null) {
+			checkNoAllowedLateness();
+
 			TumblingProcessingTimeWindows timeWindows = (TumblingProcessingTimeWindows) windowAssigner;
 			final long windowLength = timeWindows.getSize();
 			final long windowSlide = timeWindows.getSize();
@@ -750,6 +832,25 @@ public class WindowedStream<T, K, W extends Window> {
 		return null;
 	}
 
+	/**
+	 * Checks whether the windows can be evaluated with the {@link PanedEventTimeWindowOperator},
+	 * which pre-aggregates each element only once, in its pane.
+	 */
+	private boolean isPanedEventTimeWindow() {
+		if (windowAssigner instanceof SlidingEventTimeWindows && trigger instanceof EventTimeTrigger && evictor == null) {
+			SlidingEventTimeWindows timeWindows = (SlidingEventTimeWindows) windowAssigner;
+			return timeWindows.getSize() % timeWindows.getSlide() == 0;
+		}
+		return false;
+	}
+
+	private void checkNoAllowedLateness() {
+		if (allowedLateness > 0) {
+			throw new UnsupportedOperationException("The allowed lateness is only supported for sliding " +
+				"event-time windows with an EventTimeTrigger and a reduce function.");
+		}
+	}
+
 	public StreamExecutionEnvironment getExecutionEnvironment() {
 		return input.getExecutionEnvironment();
 	}
@@ -203,7 +203,7 @@ public class CheckpointConfig implements java.io.Serializable {
 	 * 
 	 * @return True, if checkpointing is forced, false otherwise.
 	 * 
-	 * @deprecated This will be removed once iterations properly participate in checkpointing.
+	 * @deprecated Iterations participate in checkpointing, forcing checkpoints is not needed any more.
 	 */
 	@Deprecated
 	@PublicEvolving
@@ -216,7 +216,7 @@ public class CheckpointConfig implements java.io.Serializable {
 	 * 
 	 * @param forceCheckpointing The flag to force checkpointing. 
 	 * 
-	 * @deprecated This will be removed once iterations properly participate in checkpointing.
+	 * @deprecated Iterations participate in checkpointing, forcing checkpoints is not needed any more.
 	 */
 	@Deprecated
 	@PublicEvolving
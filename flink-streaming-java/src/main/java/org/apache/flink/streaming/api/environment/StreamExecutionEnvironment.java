@@ -262,10 +262,8 @@ public abstract class StreamExecutionEnvironment {
 	 * <p>The job draws checkpoints periodically, in the given interval. The state will be
 	 * stored in the configured state backend.</p>
 	 * 
-	 * <p>NOTE: Checkpointing iterative streaming dataflows in not properly supported at
-	 * the moment. For that reason, iterative jobs will not be started if used
-	 * with enabled checkpointing. To override this mechanism, use the 
-	 * {@link #enableCheckpointing(long, CheckpointingMode, boolean)} method.</p>
+	 * <p>Iterative streaming dataflows are checkpointed as well. The checkpoints include the
+	 * records that are in transit on the feedback edges of the iterations.</p>
 	 *
 	 * @param interval Time interval between state checkpoints in milliseconds.
 	 */
@@ -283,10 +281,8 @@ public abstract class StreamExecutionEnvironment {
 	 * given {@link CheckpointingMode} for the checkpointing ("exactly once" vs "at least once").
 	 * The state will be stored in the configured state backend.</p>
 	 *
-	 * <p>NOTE: Checkpointing iterative streaming dataflows in not properly supported at
-	 * the moment. For that reason, iterative jobs will not be started if used
-	 * with enabled checkpointing. To override this mechanism, use the 
-	 * {@link #enableCheckpointing(long, CheckpointingMode, boolean)} method.</p>
+	 * <p>Iterative streaming dataflows are checkpointed as well. The checkpoints include the
+	 * records that are in transit on the feedback edges of the iterations.</p>
 	 *
 	 * @param interval 
 	 *             Time interval between state checkpoints in milliseconds.
@@ -307,16 +303,17 @@ public abstract class StreamExecutionEnvironment {
 	 * <p>The job draws checkpoints periodically, in the given interval. The state will be
 	 * stored in the configured state backend.</p>
 	 *
-	 * <p>NOTE: Checkpointing iterative streaming dataflows in not properly supported at
-	 * the moment. If the "force" parameter is set to true, the system will execute the
-	 * job nonetheless.</p>
+	 * <p>NOTE: The "force" parameter has no effect any more, iterative streaming dataflows
+	 * are checkpointed like all other dataflows.</p>
 	 * 
 	 * @param interval
 	 *            Time interval between state checkpoints in millis.
 	 * @param mode
 	 *            The checkpointing mode, selecting between "exactly once" and "at least once" guaranteed.
 	 * @param force
-	 *            If true checkpointing will be enabled for iterative jobs as well.
+	 *            Ignored, iterative jobs are always checkpointed.
+	 * 
+	 * @deprecated Use {@link #enableCheckpointing(long, CheckpointingMode)} instead.
 	 */
 	@Deprecated
 	@SuppressWarnings("deprecation")
@@ -337,10 +334,8 @@ public abstract class StreamExecutionEnvironment {
 	 * <p>The job draws checkpoints periodically, in the default interval. The state will be
 	 * stored in the configured state backend.</p>
 	 *
-	 * <p>NOTE: Checkpointing iterative streaming dataflows in not properly supported at
-	 * the moment. For that reason, iterative jobs will not be started if used
-	 * with enabled checkpointing. To override this mechanism, use the 
-	 * {@link #enableCheckpointing(long, CheckpointingMode, boolean)} method.</p>
+	 * <p>Iterative streaming dataflows are checkpointed as well. The checkpoints include the
+	 * records that are in transit on the feedback edges of the iterations.</p>
 	 * 
 	 * @deprecated Use {@link #enableCheckpointing(long)} instead.
 	 */
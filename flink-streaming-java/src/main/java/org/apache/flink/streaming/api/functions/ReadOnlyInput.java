@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.functions;
+
+import org.apache.flink.annotation.PublicEvolving;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a function that neither modifies its input elements nor keeps references to them after
+ * the call returns. The function may emit its input elements unchanged.
+ *
+ * <p>When the object reuse mode is disabled, elements are copied before they are passed to an
+ * operator that is chained to the operator that emitted them. The map, filter, flat map and sink
+ * operators skip this copy for functions with this annotation. A function that violates the
+ * contract may see its input change, or may change the elements of other functions.
+ *
+ * <pre>{@code
+ * @ReadOnlyInput
+ * public class IsClick implements FilterFunction<Event> {
+ *     public boolean filter(Event event) {
+ *         return event.type == EventType.CLICK;
+ *     }
+ * }
+ * }</pre>
+ */
+@PublicEvolving
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadOnlyInput {
+}
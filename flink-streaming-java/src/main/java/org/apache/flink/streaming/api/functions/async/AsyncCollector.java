@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.api.functions.async;
+
+import org.apache.flink.annotation.PublicEvolving;
+
+import java.util.Collection;
+
+/**
+ * Collector for the result of the asynchronous request of an {@link AsyncFunction}. Exactly one of
+ * the methods must be called once per request. The methods may be called from any thread.
+ *
+ * @param <OUT> The type of the returned elements.
+ */
+@PublicEvolving
+public interface AsyncCollector<OUT> {
+
+	/**
+	 * Completes the request with the given elements. They are emitted with the timestamp of the
+	 * input element.
+	 *
+	 * @param result The elements, may be empty.
+	 */
+	void collect(Collection<OUT> result);
+
+	/**
+	 * Completes the request with an error, which fails the job.
+	 *
+	 * @param error The cause of the failure.
+	 */
+	void collect(Throwable error);
+}
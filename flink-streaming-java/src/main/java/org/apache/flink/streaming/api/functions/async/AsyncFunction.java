@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.api.functions.async;
+
+import org.apache.flink.annotation.PublicEvolving;
+import org.apache.flink.api.common.functions.Function;
+
+import java.io.Serializable;
+
+/**
+ * A function that processes each element with a non-blocking, asynchronous request, for example
+ * a lookup in an external database. The function issues the request in
+ * {@link #asyncInvoke(Object, AsyncCollector)} and returns immediately. Once the request completes,
+ * the result is handed to the {@link AsyncCollector}, from any thread.
+ *
+ * <p>The operator keeps a bounded number of requests in flight. Requests that do not complete within
+ * the configured timeout fail the job. The inputs of requests that are in flight when a checkpoint is
+ * taken are part of the checkpoint, and the requests are issued again when the job recovers.
+ *
+ * <pre>{@code
+ * public class DatabaseLookup implements AsyncFunction<String, String> {
+ *
+ *     public void asyncInvoke(String key, final AsyncCollector<String> collector) {
+ *         Future<String> value = client.get(key);
+ *         value.onComplete(new Callback<String>() {
+ *             public void onSuccess(String result) {
+ *                 collector.collect(Collections.singletonList(result));
+ *             }
+ *             public void onFailure(Throwable t) {
+ *                 collector.collect(t);
+ *             }
+ *         });
+ *     }
+ * }
+ * }</pre>
+ *
+ * @param <IN> The type of the input elements.
+ * @param <OUT> The type of the returned elements.
+ */
+@PublicEvolving
+public interface AsyncFunction<IN, OUT> extends Function, Serializable {
+
+	/**
+	 * Issues the asynchronous request for the given element. The method must not block until
+	 * the request completes.
+	 *
+	 * @param input The element.
+	 * @param collector The collector that receives the result of the request, exactly once.
+	 *
+	 * @throws Exception Exceptions thrown by this method fail the job.
+	 */
+	void asyncInvoke(IN input, AsyncCollector<OUT> collector) throws Exception;
+}
@@ -216,6 +216,19 @@ public interface SourceFunction<T> extends Function, Serializable {
 		@PublicEvolving
 		void emitWatermark(Watermark mark);
 
+		/**
+		 * Marks the source as temporarily idle. This tells the system that this source will
+		 * temporarily stop emitting records and watermarks for an indefinite amount of time,
+		 * for example because a Kafka partition it reads from currently has no data.
+		 * Downstream operators then do not wait for watermarks from this source when advancing
+		 * their event time.
+		 *
+		 * <p>The source is automatically considered active again once it emits the next record
+		 * or watermark. This method is only relevant when running on
+		 * {@link TimeCharacteristic#EventTime}.
+		 */
+		@PublicEvolving
+		void markAsTemporarilyIdle();
 
 		/**
 		 * Returns the checkpoint lock. Please refer to the class-level comment in
@@ -117,6 +117,8 @@ public class StreamingJobGraphGenerator {
 
 		init();
 
+		validateKeyGroups();
+
 		// Generate deterministic hashes for the nodes in order to identify them across
 		// submission iff they didn't change.
 		Map<Integer, byte[]> hashes = traverseStreamGraphAndGenerateHashes();
@@ -139,6 +141,27 @@ public class StreamingJobGraphGenerator {
 		return jobGraph;
 	}
 
+	/**
+	 * Checks that no keyed operator has a higher parallelism than there are key groups. Key group
+	 * {@code k} is assigned to the parallel instance {@code k % parallelism}, so the additional
+	 * instances would never receive a key.
+	 */
+	private void validateKeyGroups() {
+		int numberOfKeyGroups = streamGraph.getExecutionConfig().getNumberOfKeyGroups();
+		if (numberOfKeyGroups <= 0) {
+			return;
+		}
+
+		for (StreamNode node : streamGraph.getStreamNodes()) {
+			boolean keyed = node.getStatePartitioner1() != null || node.getStatePartitioner2() != null;
+			if (keyed && node.getParallelism() > numberOfKeyGroups) {
+				throw new IllegalArgumentException("The parallelism of the keyed operator '" +
+					node.getOperatorName() + "' (" + node.getParallelism() + ") must not be higher " +
+					"than the number of key groups (" + numberOfKeyGroups + ").");
+			}
+		}
+	}
+
 	private void setPhysicalEdges() {
 		Map<Integer, List<StreamEdge>> physicalInEdgesInOrder = new HashMap<Integer, List<StreamEdge>>();
 
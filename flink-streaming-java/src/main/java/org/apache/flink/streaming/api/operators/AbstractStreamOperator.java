@@ -25,9 +25,13 @@ import org.apache.flink.api.common.state.StateDescriptor;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.api.common.typeutils.base.VoidSerializer;
 import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
 import org.apache.flink.streaming.api.graph.StreamConfig;
 import org.apache.flink.runtime.state.KvStateSnapshot;
 import org.apache.flink.runtime.state.AbstractStateBackend;
+import org.apache.flink.runtime.state.StateHandle;
 import org.apache.flink.streaming.runtime.operators.Triggerable;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.apache.flink.streaming.runtime.tasks.StreamTask;
@@ -36,7 +40,15 @@ import org.apache.flink.streaming.runtime.tasks.StreamTaskState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ScheduledFuture;
 
 /**
@@ -89,9 +101,20 @@ public abstract class AbstractStreamOperator<OUT>
 	private transient KeySelector<?, ?> stateKeySelector1;
 	private transient KeySelector<?, ?> stateKeySelector2;
 
+	/** The serializer for the keys of the key/value state and the timers. Null if the operator is not keyed */
+	private transient TypeSerializer<Object> stateKeySerializer;
+
 	/** The state backend that stores the state and checkpoints for this task */
 	private AbstractStateBackend stateBackend = null;
 
+	// ---------------- timers ------------------
+
+	/** The timer services of the operator, by name */
+	private transient HashMap<String, HeapInternalTimerService<?, ?>> timerServices;
+
+	/** The serialized timers of services that were restored before the services were created, by name */
+	private transient HashMap<String, List<byte[]>> restoredTimers;
+
 	// ------------------------------------------------------------------------
 	//  Life Cycle
 	// ------------------------------------------------------------------------
@@ -108,6 +131,7 @@ public abstract class AbstractStreamOperator<OUT>
 
 		try {
 			TypeSerializer<Object> keySerializer = config.getStateKeySerializer(getUserCodeClassloader());
+			stateKeySerializer = keySerializer;
 			// if the keySerializer is null we still need to create the state backend
 			// for the non-partitioned state features it provides, such as the state output streams
 			String operatorIdentifier = getClass().getSimpleName() + "_" + config.getVertexID() + "_" + runtimeContext.getIndexOfThisSubtask();
@@ -152,6 +176,14 @@ public abstract class AbstractStreamOperator<OUT>
 	 */
 	@Override
 	public void dispose() {
+		if (timerServices != null) {
+			for (HeapInternalTimerService<?, ?> timerService : timerServices.values()) {
+				timerService.dispose();
+			}
+			timerServices = null;
+		}
+		restoredTimers = null;
+
 		if (stateBackend != null) {
 			try {
 				stateBackend.close();
@@ -166,6 +198,11 @@ public abstract class AbstractStreamOperator<OUT>
 	//  Checkpointing
 	// ------------------------------------------------------------------------
 
+	@Override
+	public void prepareSnapshotPreBarrier(long checkpointId) throws Exception {
+		// the default operator does not buffer elements
+	}
+
 	@Override
 	public StreamTaskState snapshotOperatorState(long checkpointId, long timestamp) throws Exception {
 		// here, we deal with key/value state snapshots
@@ -173,14 +210,45 @@ public abstract class AbstractStreamOperator<OUT>
 		StreamTaskState state = new StreamTaskState();
 
 		if (stateBackend != null) {
-			HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> partitionedSnapshots =
-				stateBackend.snapshotPartitionedState(checkpointId, timestamp);
-			if (partitionedSnapshots != null) {
-				state.setKvStates(partitionedSnapshots);
+			int numberOfKeyGroups = getExecutionConfig().getNumberOfKeyGroups();
+
+			if (numberOfKeyGroups > 0 && (stateKeySelector1 != null || stateKeySelector2 != null)) {
+				// the key/value state can be redistributed when the parallelism changes
+				HashMap<Integer, HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>>> keyGroupSnapshots =
+					stateBackend.snapshotPartitionedStateByKeyGroup(checkpointId, timestamp, numberOfKeyGroups);
+				if (!keyGroupSnapshots.isEmpty()) {
+					state.setKeyGroupKvStates(keyGroupSnapshots);
+				}
+
+				// the timers are redistributed together with the key/value state of their key group
+				if (timerServices != null && !timerServices.isEmpty()) {
+					Set<Integer> keyGroups = new HashSet<>();
+					for (HeapInternalTimerService<?, ?> timerService : timerServices.values()) {
+						keyGroups.addAll(timerService.getKeyGroups());
+					}
+
+					HashMap<Integer, StateHandle<?>> keyGroupTimerStates = new HashMap<>(keyGroups.size());
+					for (Integer keyGroup : keyGroups) {
+						keyGroupTimerStates.put(keyGroup, snapshotTimers(keyGroup, checkpointId, timestamp));
+					}
+					if (!keyGroupTimerStates.isEmpty()) {
+						state.setKeyGroupTimerStates(keyGroupTimerStates);
+					}
+				}
+			} else {
+				HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> partitionedSnapshots =
+					stateBackend.snapshotPartitionedState(checkpointId, timestamp);
+				if (partitionedSnapshots != null) {
+					state.setKvStates(partitionedSnapshots);
+				}
+
+				if (timerServices != null && !timerServices.isEmpty()) {
+					// without key groups, all timers are in key group 0
+					state.setTimerState(snapshotTimers(0, checkpointId, timestamp));
+				}
 			}
 		}
 
-
 		return state;
 	}
 	
@@ -191,6 +259,70 @@ public abstract class AbstractStreamOperator<OUT>
 		// the state again, because the restore method needs information provided by the user function
 		if (stateBackend != null) {
 			stateBackend.injectKeyValueStateSnapshots((HashMap)state.getKvStates(), recoveryTimestamp);
+
+			if (state.getKeyGroupKvStates() != null) {
+				stateBackend.injectKeyGroupStateSnapshots((Collection) state.getKeyGroupKvStates().values(), recoveryTimestamp);
+			}
+		}
+
+		if (state.getTimerState() != null) {
+			restoreTimers(state.getTimerState());
+		}
+		if (state.getKeyGroupTimerStates() != null) {
+			for (StateHandle<?> timerState : state.getKeyGroupTimerStates().values()) {
+				restoreTimers(timerState);
+			}
+		}
+	}
+
+	/**
+	 * Writes the timers of all timer services in the given key group to a checkpoint stream.
+	 */
+	private StateHandle<?> snapshotTimers(int keyGroup, long checkpointId, long timestamp) throws Exception {
+		AbstractStateBackend.CheckpointStateOutputView out =
+			stateBackend.createCheckpointStateOutputView(checkpointId, timestamp);
+
+		out.writeInt(timerServices.size());
+		for (Map.Entry<String, HeapInternalTimerService<?, ?>> timerService : timerServices.entrySet()) {
+			// the timers are written as a block, so that they can be read before the
+			// namespace serializer of the service is known
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputViewStreamWrapper timersOut = new DataOutputViewStreamWrapper(bytes);
+			timerService.getValue().snapshotTimersForKeyGroup(timersOut, keyGroup);
+			timersOut.flush();
+
+			out.writeUTF(timerService.getKey());
+			out.writeInt(bytes.size());
+			out.write(bytes.toByteArray());
+		}
+
+		return out.closeAndGetHandle();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void restoreTimers(StateHandle<?> timerState) throws Exception {
+		DataInputView in = ((StateHandle<DataInputView>) timerState).getState(getUserCodeClassloader());
+
+		int numTimerServices = in.readInt();
+		for (int i = 0; i < numTimerServices; i++) {
+			String name = in.readUTF();
+			byte[] timers = new byte[in.readInt()];
+			in.readFully(timers);
+
+			HeapInternalTimerService<?, ?> timerService = timerServices != null ? timerServices.get(name) : null;
+			if (timerService != null) {
+				timerService.restoreTimers(new DataInputViewStreamWrapper(new ByteArrayInputStream(timers)));
+			} else {
+				if (restoredTimers == null) {
+					restoredTimers = new HashMap<>();
+				}
+				List<byte[]> serviceTimers = restoredTimers.get(name);
+				if (serviceTimers == null) {
+					serviceTimers = new ArrayList<>();
+					restoredTimers.put(name, serviceTimers);
+				}
+				serviceTimers.add(timers);
+			}
 		}
 	}
 	
@@ -251,6 +383,65 @@ public abstract class AbstractStreamOperator<OUT>
 		return container.registerTimer(time, target);
 	}
 
+	/**
+	 * Returns the timer service with the given name, creating it if it does not exist yet.
+	 * Timers of the service are scoped to the current key and to a namespace. They are
+	 * checkpointed by this operator and restored to the service with the same name.
+	 *
+	 * <p>The key context is set to the key of a timer before the callback is invoked for it.
+	 * Event-time timers only fire when the operator calls {@link #advanceWatermark(long)}.
+	 *
+	 * @param name The name of the timer service, unique within the operator.
+	 * @param namespaceSerializer The serializer for the namespaces of the timers.
+	 * @param callback The callback that is invoked when a timer fires.
+	 *
+	 * @throws UnsupportedOperationException Thrown, if the operator is not keyed.
+	 */
+	@SuppressWarnings("unchecked")
+	protected <K, N> InternalTimerService<N> getInternalTimerService(
+			String name,
+			TypeSerializer<N> namespaceSerializer,
+			InternalTimerCallback<K, N> callback) throws Exception {
+
+		if (stateKeySerializer == null) {
+			throw new UnsupportedOperationException("Timers can only be used on keyed operators.");
+		}
+		if (timerServices == null) {
+			timerServices = new HashMap<>();
+		}
+
+		HeapInternalTimerService<K, N> timerService = (HeapInternalTimerService<K, N>) timerServices.get(name);
+		if (timerService == null) {
+			timerService = new HeapInternalTimerService<>(
+				getExecutionConfig().getNumberOfKeyGroups(),
+				(TypeSerializer<K>) (TypeSerializer<?>) stateKeySerializer,
+				namespaceSerializer,
+				this,
+				callback);
+			timerServices.put(name, timerService);
+
+			List<byte[]> serviceTimers = restoredTimers != null ? restoredTimers.remove(name) : null;
+			if (serviceTimers != null) {
+				for (byte[] timers : serviceTimers) {
+					timerService.restoreTimers(new DataInputViewStreamWrapper(new ByteArrayInputStream(timers)));
+				}
+			}
+		}
+		return timerService;
+	}
+
+	/**
+	 * Advances the watermark of all timer services of this operator, firing the event-time
+	 * timers whose timestamp is not after the watermark.
+	 */
+	protected void advanceWatermark(long watermark) throws Exception {
+		if (timerServices != null) {
+			for (HeapInternalTimerService<?, ?> timerService : timerServices.values()) {
+				timerService.advanceWatermark(watermark);
+			}
+		}
+	}
+
 	/**
 	 * Creates a partitioned state handle, using the state backend configured for this task.
 	 * 
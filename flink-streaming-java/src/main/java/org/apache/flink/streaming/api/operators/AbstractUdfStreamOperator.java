@@ -29,6 +29,7 @@ import org.apache.flink.configuration.Configuration;
 import org.apache.flink.runtime.state.StateHandle;
 import org.apache.flink.runtime.state.CheckpointListener;
 import org.apache.flink.streaming.api.checkpoint.Checkpointed;
+import org.apache.flink.streaming.api.functions.ReadOnlyInput;
 import org.apache.flink.streaming.api.graph.StreamConfig;
 import org.apache.flink.runtime.state.AbstractStateBackend;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
@@ -71,6 +72,17 @@ public abstract class AbstractUdfStreamOperator<OUT, F extends Function> extends
 	public F getUserFunction() {
 		return userFunction;
 	}
+
+	/**
+	 * Disables the copy of the input elements if the user function is annotated with
+	 * {@link ReadOnlyInput}. Operators may only call this if they do not keep references
+	 * to their input elements themselves.
+	 */
+	protected void disableInputCopyForReadOnlyFunction() {
+		if (userFunction.getClass().isAnnotationPresent(ReadOnlyInput.class)) {
+			disableInputCopy();
+		}
+	}
 	
 	// ------------------------------------------------------------------------
 	//  operator life cycle
@@ -0,0 +1,350 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.KeyGroupAssigner;
+import org.apache.flink.streaming.runtime.operators.Triggerable;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * {@link InternalTimerService} that keeps the timers on the heap. The timers are kept in one set
+ * per key group, which deduplicates them and allows to checkpoint them per key group, and in a
+ * priority queue per time domain, from which they fire in order of their timestamps.
+ *
+ * <p>The service has at most one outstanding wakeup with the timer service of the task, for the
+ * earliest processing-time timer. The wakeup is only re-scheduled if a timer is registered that
+ * fires earlier, so registering many timers does not schedule many tasks.
+ *
+ * <p>All timers are held on the JVM heap while the job runs, also when the key/value state of the
+ * operator lives in RocksDB. Only checkpoints write them through the state backend. The number of
+ * timers is therefore bounded by the heap size. Keeping them in RocksDB would need a store that is
+ * ordered by timestamp across all keys, to find the next timer to fire. The keyed state of the
+ * backends, including {@code MapState}, is only iterable within a single key and namespace.
+ *
+ * @param <K> The type of the keys of the timers.
+ * @param <N> The type of the namespaces of the timers.
+ */
+@Internal
+public class HeapInternalTimerService<K, N> implements InternalTimerService<N>, Triggerable {
+
+	private final int numberOfKeyGroups;
+
+	private final TypeSerializer<K> keySerializer;
+
+	private final TypeSerializer<N> namespaceSerializer;
+
+	private final AbstractStreamOperator<?> operator;
+
+	private final InternalTimerCallback<K, N> callback;
+
+	/** The processing-time timers by key group, for deduplication and checkpointing */
+	private final Map<Integer, Set<InternalTimer<K, N>>> processingTimeTimers;
+
+	private final PriorityQueue<InternalTimer<K, N>> processingTimeTimersQueue;
+
+	/** The event-time timers by key group, for deduplication and checkpointing */
+	private final Map<Integer, Set<InternalTimer<K, N>>> eventTimeTimers;
+
+	private final PriorityQueue<InternalTimer<K, N>> eventTimeTimersQueue;
+
+	/** The wakeup for the earliest processing-time timer, or null, if none is scheduled */
+	private ScheduledFuture<?> nextTimer;
+
+	/** The time of the scheduled wakeup, or Long.MAX_VALUE, if none is scheduled */
+	private long nextTimerTimestamp = Long.MAX_VALUE;
+
+	private long currentWatermark = Long.MIN_VALUE;
+
+	/**
+	 * Creates a new timer service for the given operator.
+	 *
+	 * @param numberOfKeyGroups The number of key groups, or -1, if the timers are not checkpointed per key group.
+	 * @param keySerializer The serializer for the keys of the operator.
+	 * @param namespaceSerializer The serializer for the namespaces of the timers.
+	 * @param operator The operator that registers the timers.
+	 * @param callback The callback that is invoked when a timer fires.
+	 */
+	public HeapInternalTimerService(
+			int numberOfKeyGroups,
+			TypeSerializer<K> keySerializer,
+			TypeSerializer<N> namespaceSerializer,
+			AbstractStreamOperator<?> operator,
+			InternalTimerCallback<K, N> callback) {
+
+		this.numberOfKeyGroups = numberOfKeyGroups;
+		this.keySerializer = keySerializer;
+		this.namespaceSerializer = namespaceSerializer;
+		this.operator = operator;
+		this.callback = callback;
+
+		this.processingTimeTimers = new HashMap<>();
+		this.processingTimeTimersQueue = new PriorityQueue<>(100);
+		this.eventTimeTimers = new HashMap<>();
+		this.eventTimeTimersQueue = new PriorityQueue<>(100);
+	}
+
+	// ------------------------------------------------------------------------
+	//  Registering timers
+	// ------------------------------------------------------------------------
+
+	@Override
+	public long currentProcessingTime() {
+		return System.currentTimeMillis();
+	}
+
+	@Override
+	public long currentWatermark() {
+		return currentWatermark;
+	}
+
+	@Override
+	public void registerProcessingTimeTimer(N namespace, long time) {
+		InternalTimer<K, N> timer = new InternalTimer<>(time, getCurrentKey(), namespace);
+		if (addTimer(processingTimeTimers, timer)) {
+			processingTimeTimersQueue.add(timer);
+			scheduleNextTimer();
+		}
+	}
+
+	@Override
+	public void deleteProcessingTimeTimer(N namespace, long time) {
+		InternalTimer<K, N> timer = new InternalTimer<>(time, getCurrentKey(), namespace);
+		if (removeTimer(processingTimeTimers, timer)) {
+			// the wakeup is not cancelled, it simply finds no timer to fire
+			processingTimeTimersQueue.remove(timer);
+		}
+	}
+
+	@Override
+	public void registerEventTimeTimer(N namespace, long time) {
+		InternalTimer<K, N> timer = new InternalTimer<>(time, getCurrentKey(), namespace);
+		if (addTimer(eventTimeTimers, timer)) {
+			eventTimeTimersQueue.add(timer);
+		}
+
+		if (time <= currentWatermark) {
+			// immediately schedule a trigger, so that we don't wait for the next
+			// watermark update to fire the timer
+			operator.registerTimer(currentProcessingTime(), this);
+		}
+	}
+
+	@Override
+	public void deleteEventTimeTimer(N namespace, long time) {
+		InternalTimer<K, N> timer = new InternalTimer<>(time, getCurrentKey(), namespace);
+		if (removeTimer(eventTimeTimers, timer)) {
+			eventTimeTimersQueue.remove(timer);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  Firing timers
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Advances the watermark of this service and fires all event-time timers whose timestamp
+	 * is not after the watermark.
+	 */
+	public void advanceWatermark(long time) throws Exception {
+		currentWatermark = time;
+		fireEventTimeTimers(time);
+	}
+
+	@Override
+	public void trigger(long time) throws Exception {
+		if (time == nextTimerTimestamp) {
+			nextTimer = null;
+			nextTimerTimestamp = Long.MAX_VALUE;
+		}
+
+		InternalTimer<K, N> timer;
+		while ((timer = processingTimeTimersQueue.peek()) != null && timer.getTimestamp() <= time) {
+			processingTimeTimersQueue.remove();
+			removeTimer(processingTimeTimers, timer);
+
+			operator.setKeyContext(timer.getKey());
+			callback.onProcessingTime(timer);
+		}
+
+		// event-time timers may have been registered behind the watermark
+		fireEventTimeTimers(currentWatermark);
+
+		scheduleNextTimer();
+	}
+
+	private void fireEventTimeTimers(long time) throws Exception {
+		InternalTimer<K, N> timer;
+		while ((timer = eventTimeTimersQueue.peek()) != null && timer.getTimestamp() <= time) {
+			eventTimeTimersQueue.remove();
+			removeTimer(eventTimeTimers, timer);
+
+			operator.setKeyContext(timer.getKey());
+			callback.onEventTime(timer);
+		}
+	}
+
+	/**
+	 * Schedules a wakeup for the earliest processing-time timer, unless a wakeup at or before
+	 * that time is already scheduled.
+	 */
+	private void scheduleNextTimer() {
+		InternalTimer<K, N> head = processingTimeTimersQueue.peek();
+		if (head != null && head.getTimestamp() < nextTimerTimestamp) {
+			if (nextTimer != null) {
+				nextTimer.cancel(false);
+			}
+			nextTimerTimestamp = head.getTimestamp();
+			nextTimer = operator.registerTimer(nextTimerTimestamp, this);
+		}
+	}
+
+	/**
+	 * Cancels the outstanding wakeup of this service.
+	 */
+	public void dispose() {
+		if (nextTimer != null) {
+			nextTimer.cancel(false);
+			nextTimer = null;
+		}
+		nextTimerTimestamp = Long.MAX_VALUE;
+	}
+
+	// ------------------------------------------------------------------------
+	//  Checkpointing
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Returns the key groups for which this service holds timers.
+	 */
+	public Set<Integer> getKeyGroups() {
+		Set<Integer> keyGroups = new HashSet<>(processingTimeTimers.keySet());
+		keyGroups.addAll(eventTimeTimers.keySet());
+		return keyGroups;
+	}
+
+	/**
+	 * Writes the timers of the given key group to the given output.
+	 */
+	public void snapshotTimersForKeyGroup(DataOutputView out, int keyGroup) throws IOException {
+		writeTimers(processingTimeTimers.get(keyGroup), out);
+		writeTimers(eventTimeTimers.get(keyGroup), out);
+	}
+
+	/**
+	 * Adds the timers that were written by {@link #snapshotTimersForKeyGroup(DataOutputView, int)}
+	 * to this service, and schedules a wakeup for the processing-time timers.
+	 */
+	public void restoreTimers(DataInputView in) throws IOException {
+		int numProcessingTimeTimers = in.readInt();
+		for (int i = 0; i < numProcessingTimeTimers; i++) {
+			InternalTimer<K, N> timer = readTimer(in);
+			if (addTimer(processingTimeTimers, timer)) {
+				processingTimeTimersQueue.add(timer);
+			}
+		}
+
+		int numEventTimeTimers = in.readInt();
+		for (int i = 0; i < numEventTimeTimers; i++) {
+			InternalTimer<K, N> timer = readTimer(in);
+			if (addTimer(eventTimeTimers, timer)) {
+				eventTimeTimersQueue.add(timer);
+			}
+		}
+
+		scheduleNextTimer();
+	}
+
+	private void writeTimers(Set<InternalTimer<K, N>> timers, DataOutputView out) throws IOException {
+		if (timers == null) {
+			out.writeInt(0);
+			return;
+		}
+
+		out.writeInt(timers.size());
+		for (InternalTimer<K, N> timer : timers) {
+			keySerializer.serialize(timer.getKey(), out);
+			namespaceSerializer.serialize(timer.getNamespace(), out);
+			out.writeLong(timer.getTimestamp());
+		}
+	}
+
+	private InternalTimer<K, N> readTimer(DataInputView in) throws IOException {
+		K key = keySerializer.deserialize(in);
+		N namespace = namespaceSerializer.deserialize(in);
+		long timestamp = in.readLong();
+		return new InternalTimer<>(timestamp, key, namespace);
+	}
+
+	// ------------------------------------------------------------------------
+	//  Utilities
+	// ------------------------------------------------------------------------
+
+	@SuppressWarnings("unchecked")
+	private K getCurrentKey() {
+		return (K) operator.getStateBackend().getCurrentKey();
+	}
+
+	private int getKeyGroup(K key) {
+		return numberOfKeyGroups > 0 ? KeyGroupAssigner.getKeyGroupIndex(key, numberOfKeyGroups) : 0;
+	}
+
+	private boolean addTimer(Map<Integer, Set<InternalTimer<K, N>>> timersByKeyGroup, InternalTimer<K, N> timer) {
+		int keyGroup = getKeyGroup(timer.getKey());
+		Set<InternalTimer<K, N>> timers = timersByKeyGroup.get(keyGroup);
+		if (timers == null) {
+			timers = new HashSet<>();
+			timersByKeyGroup.put(keyGroup, timers);
+		}
+		return timers.add(timer);
+	}
+
+	private boolean removeTimer(Map<Integer, Set<InternalTimer<K, N>>> timersByKeyGroup, InternalTimer<K, N> timer) {
+		int keyGroup = getKeyGroup(timer.getKey());
+		Set<InternalTimer<K, N>> timers = timersByKeyGroup.get(keyGroup);
+		if (timers != null && timers.remove(timer)) {
+			if (timers.isEmpty()) {
+				timersByKeyGroup.remove(keyGroup);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	@VisibleForTesting
+	public int numProcessingTimeTimers() {
+		return processingTimeTimersQueue.size();
+	}
+
+	@VisibleForTesting
+	public int numEventTimeTimers() {
+		return eventTimeTimersQueue.size();
+	}
+}
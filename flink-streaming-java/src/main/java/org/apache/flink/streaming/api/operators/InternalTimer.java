@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.annotation.Internal;
+
+/**
+ * A timer of an {@link InternalTimerService}. A timer belongs to a key and a namespace, and there
+ * is at most one timer per key, namespace, and timestamp.
+ *
+ * @param <K> The type of the key of the timer.
+ * @param <N> The type of the namespace of the timer.
+ */
+@Internal
+public final class InternalTimer<K, N> implements Comparable<InternalTimer<K, N>> {
+
+	private final long timestamp;
+
+	private final K key;
+
+	private final N namespace;
+
+	public InternalTimer(long timestamp, K key, N namespace) {
+		this.timestamp = timestamp;
+		this.key = key;
+		this.namespace = namespace;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public K getKey() {
+		return key;
+	}
+
+	public N getNamespace() {
+		return namespace;
+	}
+
+	@Override
+	public int compareTo(InternalTimer<K, N> o) {
+		return Long.compare(this.timestamp, o.timestamp);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+
+		InternalTimer<?, ?> timer = (InternalTimer<?, ?>) o;
+
+		return timestamp == timer.timestamp
+			&& key.equals(timer.key)
+			&& namespace.equals(timer.namespace);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = (int) (timestamp ^ (timestamp >>> 32));
+		result = 31 * result + key.hashCode();
+		result = 31 * result + namespace.hashCode();
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "InternalTimer{" +
+			"timestamp=" + timestamp +
+			", key=" + key +
+			", namespace=" + namespace +
+			'}';
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.annotation.Internal;
+
+/**
+ * Service for registering timers of a keyed operator. All timers are scoped to the key that is
+ * currently set on the operator and to a namespace, for example a window. There is at most one
+ * timer per key, namespace, and timestamp; registering the same timer again has no effect.
+ *
+ * <p>Timers are checkpointed together with the key/value state of the operator, per key group,
+ * if the state is checkpointed per key group. They can thus be redistributed when the parallelism
+ * of the operator changes. While the job runs, the timers are kept by the service itself, not in
+ * the state backend, see {@link HeapInternalTimerService}.
+ *
+ * @param <N> The type of the namespaces of the timers.
+ */
+@Internal
+public interface InternalTimerService<N> {
+
+	/** Returns the current processing time. */
+	long currentProcessingTime();
+
+	/** Returns the current event-time watermark. */
+	long currentWatermark();
+
+	/**
+	 * Registers a timer that fires when the processing time passes the given time.
+	 */
+	void registerProcessingTimeTimer(N namespace, long time);
+
+	/**
+	 * Deletes the processing-time timer with the given namespace and time, if it exists.
+	 */
+	void deleteProcessingTimeTimer(N namespace, long time);
+
+	/**
+	 * Registers a timer that fires when the event-time watermark passes the given time.
+	 */
+	void registerEventTimeTimer(N namespace, long time);
+
+	/**
+	 * Deletes the event-time timer with the given namespace and time, if it exists.
+	 */
+	void deleteEventTimeTimer(N namespace, long time);
+}
@@ -19,6 +19,7 @@ package org.apache.flink.streaming.api.operators;
 
 import org.apache.flink.annotation.PublicEvolving;
 import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.streamrecord.StreamStatus;
 import org.apache.flink.util.Collector;
 
 /**
@@ -39,4 +40,14 @@ public interface Output<T> extends Collector<T> {
 	 * timestamp will be emitted in the future.
 	 */
 	void emitWatermark(Watermark mark);
+
+	/**
+	 * Emits a {@link StreamStatus} from an operator. The status is broadcast to all downstream
+	 * operators, and is passed on through chained operators.
+	 *
+	 * <p>An operator emits {@link StreamStatus#IDLE} if it will not emit elements or watermarks
+	 * for an indefinite time. The stream becomes active again when the next element or
+	 * watermark is emitted.
+	 */
+	void emitStreamStatus(StreamStatus status);
 }
@@ -34,6 +34,7 @@ public class StreamFlatMap<IN, OUT>
 	public StreamFlatMap(FlatMapFunction<IN, OUT> flatMapper) {
 		super(flatMapper);
 		chainingStrategy = ChainingStrategy.ALWAYS;
+		disableInputCopyForReadOnlyFunction();
 	}
 
 	@Override
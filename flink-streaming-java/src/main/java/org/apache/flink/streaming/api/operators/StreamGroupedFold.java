@@ -20,6 +20,8 @@ package org.apache.flink.streaming.api.operators;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.api.common.ExecutionConfig;
@@ -31,12 +33,23 @@ import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.core.memory.DataInputViewStreamWrapper;
 import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
 import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.operators.Triggerable;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 
+/**
+ * Operator for the rolling fold of a {@code KeyedStream}. The operator emits the folded value
+ * of the key of every element.
+ *
+ * <p>If the mini-batch mode is enabled in the {@link ExecutionConfig}, the operator folds the
+ * elements of a batch per key into a local accumulator first, starting from the state of the key,
+ * and then updates the state and emits the folded value of every key once for the batch. A batch
+ * is processed when it reaches the maximum size, when its maximum latency passed, and before
+ * watermarks and checkpoint barriers are forwarded.
+ */
 @Internal
 public class StreamGroupedFold<IN, OUT, KEY>
 		extends AbstractUdfStreamOperator<OUT, FoldFunction<IN, OUT>>
-		implements OneInputStreamOperator<IN, OUT>, OutputTypeConfigurable<OUT> {
+		implements OneInputStreamOperator<IN, OUT>, OutputTypeConfigurable<OUT>, Triggerable {
 
 	private static final long serialVersionUID = 1L;
 	
@@ -51,6 +64,19 @@ public class StreamGroupedFold<IN, OUT, KEY>
 	private byte[] serializedInitialValue;
 	
 	private TypeSerializer<OUT> outTypeSerializer;
+
+	/** The locally folded values of the current batch by key, with the latest timestamp of the key,
+	 * or null, if the mini-batch mode is disabled */
+	private transient Map<Object, StreamRecord<OUT>> batch;
+
+	private transient int batchSize;
+
+	private transient int maxBatchSize;
+
+	private transient long maxBatchLatency;
+
+	/** The processing time at which the current batch must be processed, if the latency is bounded */
+	private transient long batchDeadline;
 	
 	public StreamGroupedFold(FoldFunction<IN, OUT> folder, OUT initialValue) {
 		super(folder);
@@ -74,10 +100,30 @@ public class StreamGroupedFold<IN, OUT, KEY>
 		
 		ValueStateDescriptor<OUT> stateId = new ValueStateDescriptor<>(STATE_NAME, outTypeSerializer, null);
 		values = getPartitionedState(stateId);
+
+		if (getExecutionConfig().isMiniBatchEnabled()) {
+			batch = new LinkedHashMap<>();
+			batchSize = 0;
+			maxBatchSize = getExecutionConfig().getMiniBatchSize();
+			maxBatchLatency = getExecutionConfig().getMiniBatchLatency();
+		}
+	}
+
+	@Override
+	public void close() throws Exception {
+		if (batch != null) {
+			processBatch();
+		}
+		super.close();
 	}
 
 	@Override
 	public void processElement(StreamRecord<IN> element) throws Exception {
+		if (batch != null) {
+			addToBatch(element);
+			return;
+		}
+
 		OUT value = values.value();
 
 		if (value != null) {
@@ -93,9 +139,29 @@ public class StreamGroupedFold<IN, OUT, KEY>
 
 	@Override
 	public void processWatermark(Watermark mark) throws Exception {
+		if (batch != null) {
+			processBatch();
+		}
 		output.emitWatermark(mark);
 	}
 
+	@Override
+	public void prepareSnapshotPreBarrier(long checkpointId) throws Exception {
+		// the batch is not part of the checkpoint, so it must be reflected in the state
+		// and in the output before the barrier
+		if (batch != null) {
+			processBatch();
+		}
+	}
+
+	@Override
+	public void trigger(long timestamp) throws Exception {
+		// timers of batches that were processed before their deadline are ignored
+		if (batch != null && batchSize > 0 && timestamp >= batchDeadline) {
+			processBatch();
+		}
+	}
+
 	@Override
 	public void setOutputType(TypeInformation<OUT> outTypeInfo, ExecutionConfig executionConfig) {
 		outTypeSerializer = outTypeInfo.createSerializer(executionConfig);
@@ -113,4 +179,53 @@ public class StreamGroupedFold<IN, OUT, KEY>
 		serializedInitialValue = baos.toByteArray();
 	}
 
+	// ------------------------------------------------------------------------
+	//  Mini-batch mode
+	// ------------------------------------------------------------------------
+
+	private void addToBatch(StreamRecord<IN> element) throws Exception {
+		if (batchSize == 0 && maxBatchLatency > 0) {
+			batchDeadline = System.currentTimeMillis() + maxBatchLatency;
+			registerTimer(batchDeadline, this);
+		}
+
+		Object key = getStateBackend().getCurrentKey();
+
+		StreamRecord<OUT> folded = batch.get(key);
+		if (folded == null) {
+			// the accumulator of a key starts from its state, which is only
+			// updated again when the batch is processed
+			OUT value = values.value();
+			OUT accumulator = outTypeSerializer.copy(value != null ? value : initialValue);
+			folded = element.hasTimestamp() ?
+				new StreamRecord<>(accumulator, element.getTimestamp()) : new StreamRecord<>(accumulator);
+			batch.put(key, folded);
+		} else if (element.hasTimestamp()) {
+			folded.setTimestamp(Math.max(folded.getTimestamp(), element.getTimestamp()));
+		}
+
+		// the input element is not held, so it does not need to be copied if object reuse is enabled
+		folded.replace(userFunction.fold(folded.getValue(), element.getValue()));
+
+		if (++batchSize >= maxBatchSize) {
+			processBatch();
+		}
+	}
+
+	private void processBatch() throws Exception {
+		if (batchSize == 0) {
+			return;
+		}
+
+		for (Map.Entry<Object, StreamRecord<OUT>> entry : batch.entrySet()) {
+			setKeyContext(entry.getKey());
+			StreamRecord<OUT> record = entry.getValue();
+
+			values.update(record.getValue());
+			output.collect(record);
+		}
+
+		batch.clear();
+		batchSize = 0;
+	}
 }
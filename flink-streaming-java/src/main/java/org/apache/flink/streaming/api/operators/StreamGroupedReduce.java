@@ -23,11 +23,25 @@ import org.apache.flink.api.common.state.ValueState;
 import org.apache.flink.api.common.state.ValueStateDescriptor;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.operators.Triggerable;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Operator for the rolling reduce of a {@code KeyedStream}. The operator emits the reduced value
+ * of the key of every element.
+ *
+ * <p>If the mini-batch mode is enabled in the {@link org.apache.flink.api.common.ExecutionConfig},
+ * the operator reduces the elements of a batch per key in a local map first, and then updates the
+ * state and emits the reduced value of every key once for the batch. A batch is processed when it
+ * reaches the maximum size, when its maximum latency passed, and before watermarks and checkpoint
+ * barriers are forwarded.
+ */
 @Internal
 public class StreamGroupedReduce<IN> extends AbstractUdfStreamOperator<IN, ReduceFunction<IN>>
-		implements OneInputStreamOperator<IN, IN> {
+		implements OneInputStreamOperator<IN, IN>, Triggerable {
 
 	private static final long serialVersionUID = 1L;
 
@@ -37,7 +51,21 @@ public class StreamGroupedReduce<IN> extends AbstractUdfStreamOperator<IN, Reduc
 	
 	private TypeSerializer<IN> serializer;
 
-	
+	/** The locally reduced values of the current batch by key, with the latest timestamp of the key,
+	 * or null, if the mini-batch mode is disabled */
+	private transient Map<Object, StreamRecord<IN>> batch;
+
+	private transient int batchSize;
+
+	private transient int maxBatchSize;
+
+	private transient long maxBatchLatency;
+
+	/** The processing time at which the current batch must be processed, if the latency is bounded */
+	private transient long batchDeadline;
+
+	private transient boolean objectReuse;
+
 	public StreamGroupedReduce(ReduceFunction<IN> reducer, TypeSerializer<IN> serializer) {
 		super(reducer);
 		this.serializer = serializer;
@@ -48,10 +76,31 @@ public class StreamGroupedReduce<IN> extends AbstractUdfStreamOperator<IN, Reduc
 		super.open();
 		ValueStateDescriptor<IN> stateId = new ValueStateDescriptor<>(STATE_NAME, serializer, null);
 		values = getPartitionedState(stateId);
+
+		if (getExecutionConfig().isMiniBatchEnabled()) {
+			batch = new LinkedHashMap<>();
+			batchSize = 0;
+			maxBatchSize = getExecutionConfig().getMiniBatchSize();
+			maxBatchLatency = getExecutionConfig().getMiniBatchLatency();
+			objectReuse = getExecutionConfig().isObjectReuseEnabled();
+		}
+	}
+
+	@Override
+	public void close() throws Exception {
+		if (batch != null) {
+			processBatch();
+		}
+		super.close();
 	}
 
 	@Override
 	public void processElement(StreamRecord<IN> element) throws Exception {
+		if (batch != null) {
+			addToBatch(element);
+			return;
+		}
+
 		IN value = element.getValue();
 		IN currentValue = values.value();
 		
@@ -67,8 +116,76 @@ public class StreamGroupedReduce<IN> extends AbstractUdfStreamOperator<IN, Reduc
 
 	@Override
 	public void processWatermark(Watermark mark) throws Exception {
+		if (batch != null) {
+			processBatch();
+		}
 		output.emitWatermark(mark);
 	}
 
+	@Override
+	public void prepareSnapshotPreBarrier(long checkpointId) throws Exception {
+		// the batch is not part of the checkpoint, so it must be reflected in the state
+		// and in the output before the barrier
+		if (batch != null) {
+			processBatch();
+		}
+	}
 
+	@Override
+	public void trigger(long timestamp) throws Exception {
+		// timers of batches that were processed before their deadline are ignored
+		if (batch != null && batchSize > 0 && timestamp >= batchDeadline) {
+			processBatch();
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  Mini-batch mode
+	// ------------------------------------------------------------------------
+
+	private void addToBatch(StreamRecord<IN> element) throws Exception {
+		if (batchSize == 0 && maxBatchLatency > 0) {
+			batchDeadline = System.currentTimeMillis() + maxBatchLatency;
+			registerTimer(batchDeadline, this);
+		}
+
+		// the input objects are reused if object reuse is enabled, so we cannot hold on to them
+		IN value = objectReuse ? serializer.copy(element.getValue()) : element.getValue();
+		Object key = getStateBackend().getCurrentKey();
+
+		StreamRecord<IN> reduced = batch.get(key);
+		if (reduced == null) {
+			batch.put(key, element.hasTimestamp() ?
+				new StreamRecord<>(value, element.getTimestamp()) : new StreamRecord<>(value));
+		} else {
+			reduced.replace(userFunction.reduce(reduced.getValue(), value));
+			if (element.hasTimestamp()) {
+				reduced.setTimestamp(Math.max(reduced.getTimestamp(), element.getTimestamp()));
+			}
+		}
+
+		if (++batchSize >= maxBatchSize) {
+			processBatch();
+		}
+	}
+
+	private void processBatch() throws Exception {
+		if (batchSize == 0) {
+			return;
+		}
+
+		for (Map.Entry<Object, StreamRecord<IN>> entry : batch.entrySet()) {
+			setKeyContext(entry.getKey());
+			StreamRecord<IN> record = entry.getValue();
+
+			IN currentValue = values.value();
+			IN reduced = currentValue != null ?
+				userFunction.reduce(currentValue, record.getValue()) : record.getValue();
+			values.update(reduced);
+			output.collect(record.replace(reduced));
+		}
+
+		batch.clear();
+		batchSize = 0;
+	}
 }
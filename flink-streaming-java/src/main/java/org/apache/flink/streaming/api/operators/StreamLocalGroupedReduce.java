@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.operators.Triggerable;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Operator that reduces the elements of a stream per key before the stream is partitioned by the
+ * key, similar to the combiner of a batch reduce. The operator keeps the partial aggregates of a
+ * batch of elements by key, and emits one partial aggregate per key when the batch is processed.
+ * A batch is processed when it contains the maximum number of elements, when its maximum latency
+ * passed, and before watermarks and checkpoint barriers are forwarded. The operator has therefore
+ * no state that must be checkpointed.
+ *
+ * <p>The reduce function must be associative, because the partial aggregates are reduced again
+ * by the operator after the partitioning.
+ *
+ * @param <IN> The type of the elements.
+ * @param <KEY> The type of the key.
+ */
+@Internal
+public class StreamLocalGroupedReduce<IN, KEY> extends AbstractUdfStreamOperator<IN, ReduceFunction<IN>>
+		implements OneInputStreamOperator<IN, IN>, Triggerable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final KeySelector<IN, KEY> keySelector;
+
+	private final TypeSerializer<IN> serializer;
+
+	private final int maxBatchSize;
+
+	private final long maxBatchLatency;
+
+	/** The partial aggregates of the current batch by key, with the latest timestamp of the key */
+	private transient Map<KEY, StreamRecord<IN>> batch;
+
+	private transient int batchSize;
+
+	/** The processing time at which the current batch must be processed, if the latency is bounded */
+	private transient long batchDeadline;
+
+	private transient boolean objectReuse;
+
+	/**
+	 * Creates a new local reduce operator.
+	 *
+	 * @param reducer The associative reduce function.
+	 * @param keySelector The key selector of the partitioning that follows the operator.
+	 * @param serializer The serializer of the elements.
+	 * @param maxBatchSize The maximum number of elements of a batch, must be positive.
+	 * @param maxBatchLatency The maximum time in milliseconds that elements are kept in a batch,
+	 *                        or 0, to only bound the batches by their size.
+	 */
+	public StreamLocalGroupedReduce(
+			ReduceFunction<IN> reducer,
+			KeySelector<IN, KEY> keySelector,
+			TypeSerializer<IN> serializer,
+			int maxBatchSize,
+			long maxBatchLatency) {
+
+		super(reducer);
+
+		if (maxBatchSize <= 0) {
+			throw new IllegalArgumentException("The maximum batch size must be positive.");
+		}
+		if (maxBatchLatency < 0) {
+			throw new IllegalArgumentException("The maximum batch latency must not be negative.");
+		}
+
+		this.keySelector = requireNonNull(keySelector);
+		this.serializer = requireNonNull(serializer);
+		this.maxBatchSize = maxBatchSize;
+		this.maxBatchLatency = maxBatchLatency;
+
+		chainingStrategy = ChainingStrategy.ALWAYS;
+	}
+
+	@Override
+	public void open() throws Exception {
+		super.open();
+		batch = new LinkedHashMap<>();
+		batchSize = 0;
+		objectReuse = getExecutionConfig().isObjectReuseEnabled();
+	}
+
+	@Override
+	public void close() throws Exception {
+		processBatch();
+		super.close();
+	}
+
+	@Override
+	public void processElement(StreamRecord<IN> element) throws Exception {
+		if (batchSize == 0 && maxBatchLatency > 0) {
+			batchDeadline = System.currentTimeMillis() + maxBatchLatency;
+			registerTimer(batchDeadline, this);
+		}
+
+		// the input objects are reused if object reuse is enabled, so we cannot hold on to them
+		IN value = objectReuse ? serializer.copy(element.getValue()) : element.getValue();
+		KEY key = keySelector.getKey(value);
+
+		StreamRecord<IN> partial = batch.get(key);
+		if (partial == null) {
+			batch.put(key, element.hasTimestamp() ?
+				new StreamRecord<>(value, element.getTimestamp()) : new StreamRecord<>(value));
+		} else {
+			partial.replace(userFunction.reduce(partial.getValue(), value));
+			if (element.hasTimestamp()) {
+				partial.setTimestamp(Math.max(partial.getTimestamp(), element.getTimestamp()));
+			}
+		}
+
+		if (++batchSize >= maxBatchSize) {
+			processBatch();
+		}
+	}
+
+	@Override
+	public void processWatermark(Watermark mark) throws Exception {
+		processBatch();
+		output.emitWatermark(mark);
+	}
+
+	@Override
+	public void prepareSnapshotPreBarrier(long checkpointId) throws Exception {
+		// the partial aggregates are not checkpointed, so they must be emitted before the barrier
+		processBatch();
+	}
+
+	@Override
+	public void trigger(long timestamp) throws Exception {
+		// timers of batches that were processed before their deadline are ignored
+		if (batchSize > 0 && timestamp >= batchDeadline) {
+			processBatch();
+		}
+	}
+
+	private void processBatch() throws Exception {
+		if (batchSize == 0) {
+			return;
+		}
+
+		for (StreamRecord<IN> partial : batch.values()) {
+			output.collect(partial);
+		}
+
+		batch.clear();
+		batchSize = 0;
+	}
+
+	// ------------------------------------------------------------------------
+	//  Getters
+	// ------------------------------------------------------------------------
+
+	public KeySelector<IN, KEY> getKeySelector() {
+		return keySelector;
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public long getMaxBatchLatency() {
+		return maxBatchLatency;
+	}
+}
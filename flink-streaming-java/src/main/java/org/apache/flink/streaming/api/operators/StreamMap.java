@@ -32,6 +32,7 @@ public class StreamMap<IN, OUT>
 	public StreamMap(MapFunction<IN, OUT> mapper) {
 		super(mapper);
 		chainingStrategy = ChainingStrategy.ALWAYS;
+		disableInputCopyForReadOnlyFunction();
 	}
 
 	@Override
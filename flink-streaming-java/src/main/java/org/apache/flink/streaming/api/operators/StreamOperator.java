@@ -88,6 +88,18 @@ public interface StreamOperator<OUT> extends Serializable {
 	//  state snapshots
 	// ------------------------------------------------------------------------
 
+	/**
+	 * Called when a checkpoint is triggered, before the checkpoint barrier is forwarded to the
+	 * downstream operators. Operators that buffer elements can emit them here, so that they are
+	 * part of the checkpoint of the downstream operators. Elements emitted from
+	 * {@link #snapshotOperatorState(long, long)} would come after the barrier.
+	 *
+	 * @param checkpointId The ID of the checkpoint.
+	 *
+	 * @throws Exception An exception in this method causes the checkpoint to fail.
+	 */
+	void prepareSnapshotPreBarrier(long checkpointId) throws Exception;
+
 	/**
 	 * Called to draw a state snapshot from the operator. This method snapshots the operator state
 	 * (if the operator is stateful) and the key/value state (if it is being used and has been
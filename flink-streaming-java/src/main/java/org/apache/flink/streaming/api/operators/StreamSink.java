@@ -32,6 +32,7 @@ public class StreamSink<IN> extends AbstractUdfStreamOperator<Object, SinkFuncti
 		super(sinkFunction);
 
 		chainingStrategy = ChainingStrategy.ALWAYS;
+		disableInputCopyForReadOnlyFunction();
 	}
 
 	@Override
@@ -22,6 +22,7 @@ import org.apache.flink.streaming.api.TimeCharacteristic;
 import org.apache.flink.streaming.api.functions.source.SourceFunction;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamrecord.StreamStatus;
 
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -171,6 +172,11 @@ public class StreamSource<OUT, SRC extends SourceFunction<OUT>>
 			// do nothing else
 		}
 
+		@Override
+		public void markAsTemporarilyIdle() {
+			// without watermarks, the idleness of the source is irrelevant
+		}
+
 		@Override
 		public Object getCheckpointLock() {
 			return lockingObject;
@@ -197,6 +203,9 @@ public class StreamSource<OUT, SRC extends SourceFunction<OUT>>
 
 		private volatile long nextWatermarkTime;
 
+		/** Flag marking that the source is idle, no automatic watermarks are emitted while set */
+		private volatile boolean idle;
+
 		public AutomaticWatermarkContext(
 				final StreamSource<?, ?> owner,
 				final Object lockingObjectParam,
@@ -227,7 +236,7 @@ public class StreamSource<OUT, SRC extends SourceFunction<OUT>>
 						final long watermarkTime = currentTime - (currentTime % watermarkInterval);
 						
 						synchronized (lockingObjectParam) {
-							if (currentTime > nextWatermarkTime) {
+							if (currentTime > nextWatermarkTime && !idle) {
 								outputParam.emitWatermark(new Watermark(watermarkTime));
 								nextWatermarkTime += watermarkInterval;
 							}
@@ -242,6 +251,9 @@ public class StreamSource<OUT, SRC extends SourceFunction<OUT>>
 			owner.checkAsyncException();
 			
 			synchronized (lockingObject) {
+				// emitting a record implicitly makes the source active again
+				idle = false;
+
 				final long currentTime = System.currentTimeMillis();
 				output.collect(reuse.replace(element, currentTime));
 				
@@ -276,6 +288,18 @@ public class StreamSource<OUT, SRC extends SourceFunction<OUT>>
 			}
 		}
 
+		@Override
+		public void markAsTemporarilyIdle() {
+			owner.checkAsyncException();
+
+			synchronized (lockingObject) {
+				// stop the automatic watermarks until the next record, so that downstream
+				// operators do not wait for the watermarks of this source
+				idle = true;
+				output.emitStreamStatus(StreamStatus.IDLE);
+			}
+		}
+
 		@Override
 		public Object getCheckpointLock() {
 			return lockingObject;
@@ -337,6 +361,15 @@ public class StreamSource<OUT, SRC extends SourceFunction<OUT>>
 			}
 		}
 
+		@Override
+		public void markAsTemporarilyIdle() {
+			owner.checkAsyncException();
+
+			synchronized (lockingObject) {
+				output.emitStreamStatus(StreamStatus.IDLE);
+			}
+		}
+
 		@Override
 		public Object getCheckpointLock() {
 			return lockingObject;
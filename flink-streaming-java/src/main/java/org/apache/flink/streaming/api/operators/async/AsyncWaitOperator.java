@@ -0,0 +1,467 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.api.operators.async;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.runtime.state.AbstractStateBackend;
+import org.apache.flink.runtime.state.StateHandle;
+import org.apache.flink.streaming.api.datastream.AsyncDataStream.OutputMode;
+import org.apache.flink.streaming.api.functions.async.AsyncCollector;
+import org.apache.flink.streaming.api.functions.async.AsyncFunction;
+import org.apache.flink.streaming.api.operators.AbstractUdfStreamOperator;
+import org.apache.flink.streaming.api.operators.ChainingStrategy;
+import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.operators.Triggerable;
+import org.apache.flink.streaming.runtime.streamrecord.StreamElement;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.tasks.StreamTaskState;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Operator that applies an {@link AsyncFunction} to the elements. The operator keeps up to
+ * {@code capacity} elements whose requests are in flight, and blocks the input when that many
+ * are pending.
+ *
+ * <p>Completed requests are emitted by a separate emitter thread, which holds the checkpoint lock
+ * while it emits, like the timers of other operators. In {@link OutputMode#ORDERED} mode, results are
+ * emitted in the order of the input elements. In {@link OutputMode#UNORDERED} mode, results are
+ * emitted as soon as their request completes, but never across a watermark: all results of elements
+ * before a watermark are emitted before the watermark, and all results of elements after it after it.
+ *
+ * <p>The inputs of all pending elements and watermarks are part of the operator state, and the
+ * requests are issued again when the operator is restored.
+ *
+ * <p>Failed requests, including requests that time out, fail the operator the next time it processes
+ * an element or a watermark, takes a checkpoint or is closed.
+ *
+ * @param <IN> The type of the input elements.
+ * @param <OUT> The type of the output elements.
+ */
+@Internal
+public class AsyncWaitOperator<IN, OUT>
+		extends AbstractUdfStreamOperator<OUT, AsyncFunction<IN, OUT>>
+		implements OneInputStreamOperator<IN, OUT> {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The maximum number of pending elements and watermarks. */
+	private final int capacity;
+
+	/** The time in milliseconds after which a request fails, or 0, if requests never time out. */
+	private final long timeout;
+
+	private final OutputMode outputMode;
+
+	/** The serializer for the inputs of the pending elements in the checkpoints. */
+	private final TypeSerializer<IN> inputSerializer;
+
+	// ------------------------------------------------------------------------
+	// State that is not checkpointed
+	// ------------------------------------------------------------------------
+
+	/** The lock that guards the queue, all entries and the output, i.e., the checkpoint lock. */
+	private transient Object lock;
+
+	/** The pending elements and watermarks, in the order in which they arrived. */
+	private transient ArrayDeque<QueueEntry> queue;
+
+	/** The first failure of a request or of the emitter, which is rethrown by the operator thread. */
+	private transient Throwable failure;
+
+	private transient Thread emitterThread;
+
+	private transient volatile boolean running;
+
+	/** The pending elements and watermarks that were restored, to be issued again in {@link #open()}. */
+	private transient List<StreamElement> restoredElements;
+
+	public AsyncWaitOperator(
+			AsyncFunction<IN, OUT> asyncFunction,
+			int capacity,
+			long timeout,
+			OutputMode outputMode,
+			TypeSerializer<IN> inputSerializer) {
+
+		super(asyncFunction);
+
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("The capacity must be positive.");
+		}
+		if (timeout < 0) {
+			throw new IllegalArgumentException("The timeout must not be negative.");
+		}
+
+		this.capacity = capacity;
+		this.timeout = timeout;
+		this.outputMode = requireNonNull(outputMode);
+		this.inputSerializer = requireNonNull(inputSerializer);
+
+		setChainingStrategy(ChainingStrategy.ALWAYS);
+	}
+
+	@Override
+	public void open() throws Exception {
+		super.open();
+
+		lock = getContainingTask().getCheckpointLock();
+		queue = new ArrayDeque<>(capacity);
+		failure = null;
+
+		running = true;
+		emitterThread = new Thread(new Emitter(), "AsyncIO-Emitter-Thread (" + getContainingTask().getName() + ")");
+		emitterThread.setDaemon(true);
+		emitterThread.start();
+
+		if (restoredElements != null) {
+			synchronized (lock) {
+				for (StreamElement element : restoredElements) {
+					if (element.isWatermark()) {
+						processWatermark(element.asWatermark());
+					} else {
+						processElement(element.<IN>asRecord());
+					}
+				}
+			}
+			restoredElements = null;
+		}
+	}
+
+	@Override
+	public void close() throws Exception {
+		try {
+			synchronized (lock) {
+				// all pending requests must complete and be emitted before the operator is closed
+				while (!queue.isEmpty()) {
+					checkFailure();
+					lock.wait();
+				}
+				checkFailure();
+			}
+		} finally {
+			stopEmitter();
+		}
+
+		super.close();
+	}
+
+	@Override
+	public void dispose() {
+		stopEmitter();
+		super.dispose();
+	}
+
+	// ------------------------------------------------------------------------
+	//  Processing
+	// ------------------------------------------------------------------------
+
+	@Override
+	public void processElement(StreamRecord<IN> element) throws Exception {
+		waitForCapacity();
+
+		IN value = getExecutionConfig().isObjectReuseEnabled() ?
+				inputSerializer.copy(element.getValue()) :
+				element.getValue();
+
+		RecordEntry entry = new RecordEntry(element.copy(value));
+		queue.add(entry);
+
+		if (timeout > 0) {
+			entry.timeoutFuture = registerTimer(System.currentTimeMillis() + timeout, entry);
+		}
+
+		userFunction.asyncInvoke(value, entry);
+	}
+
+	@Override
+	public void processWatermark(Watermark mark) throws Exception {
+		waitForCapacity();
+
+		queue.add(new WatermarkEntry(mark));
+
+		// the watermark can be emitted right away if no elements are pending
+		lock.notifyAll();
+	}
+
+	/**
+	 * Blocks until the queue has space for another entry. Must be called with the lock held.
+	 */
+	private void waitForCapacity() throws Exception {
+		checkFailure();
+		while (queue.size() >= capacity) {
+			lock.wait();
+			checkFailure();
+		}
+	}
+
+	private void checkFailure() throws Exception {
+		if (failure != null) {
+			throw new Exception("An asynchronous request failed.", failure);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  Checkpointing
+	// ------------------------------------------------------------------------
+
+	@Override
+	public StreamTaskState snapshotOperatorState(long checkpointId, long timestamp) throws Exception {
+		checkFailure();
+
+		StreamTaskState taskState = super.snapshotOperatorState(checkpointId, timestamp);
+
+		AbstractStateBackend.CheckpointStateOutputView out =
+				getStateBackend().createCheckpointStateOutputView(checkpointId, timestamp);
+
+		out.writeInt(queue.size());
+		for (QueueEntry entry : queue) {
+			if (entry instanceof WatermarkEntry) {
+				out.writeBoolean(false);
+				out.writeLong(((WatermarkEntry) entry).watermark.getTimestamp());
+			} else {
+				StreamRecord<IN> record = ((RecordEntry) entry).record;
+				out.writeBoolean(true);
+				out.writeBoolean(record.hasTimestamp());
+				out.writeLong(record.getTimestamp());
+				inputSerializer.serialize(record.getValue(), out);
+			}
+		}
+
+		taskState.setOperatorState(out.closeAndGetHandle());
+
+		return taskState;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void restoreState(StreamTaskState state, long recoveryTimestamp) throws Exception {
+		super.restoreState(state, recoveryTimestamp);
+
+		StateHandle<DataInputView> stateHandle = (StateHandle<DataInputView>) state.getOperatorState();
+		if (stateHandle == null) {
+			return;
+		}
+
+		DataInputView in = stateHandle.getState(getUserCodeClassloader());
+
+		int numElements = in.readInt();
+		restoredElements = new ArrayList<>(numElements);
+		for (int i = 0; i < numElements; i++) {
+			if (in.readBoolean()) {
+				boolean hasTimestamp = in.readBoolean();
+				long elementTimestamp = in.readLong();
+				IN value = inputSerializer.deserialize(in);
+				restoredElements.add(hasTimestamp ?
+						new StreamRecord<>(value, elementTimestamp) :
+						new StreamRecord<>(value));
+			} else {
+				restoredElements.add(new Watermark(in.readLong()));
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  Emitting
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Removes and returns the next entry that can be emitted, or returns null if there is none.
+	 * Must be called with the lock held.
+	 */
+	private QueueEntry pollCompleted() {
+		if (outputMode == OutputMode.ORDERED) {
+			QueueEntry head = queue.peek();
+			return head != null && head.isDone() ? queue.poll() : null;
+		}
+
+		Iterator<QueueEntry> entries = queue.iterator();
+		while (entries.hasNext()) {
+			QueueEntry entry = entries.next();
+			if (entry instanceof WatermarkEntry) {
+				// a watermark is emitted once all elements before it are emitted,
+				// elements after it must wait for it
+				if (entry == queue.peek()) {
+					entries.remove();
+					return entry;
+				}
+				return null;
+			}
+			if (entry.isDone()) {
+				entries.remove();
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	private void stopEmitter() {
+		running = false;
+		if (emitterThread != null) {
+			// the emitter cannot be joined, because the caller may hold the lock
+			emitterThread.interrupt();
+			emitterThread = null;
+		}
+	}
+
+	@VisibleForTesting
+	int getNumberOfPendingEntries() {
+		synchronized (lock) {
+			return queue.size();
+		}
+	}
+
+	/**
+	 * Emits completed entries, while holding the lock. If emitting fails, the emitter stops and
+	 * the operator thread rethrows the failure.
+	 */
+	private final class Emitter implements Runnable {
+
+		@Override
+		public void run() {
+			synchronized (lock) {
+				try {
+					while (running) {
+						QueueEntry entry = failure == null ? pollCompleted() : null;
+
+						if (entry == null) {
+							try {
+								lock.wait();
+							} catch (InterruptedException e) {
+								// check whether the operator is still running
+							}
+							continue;
+						}
+
+						if (entry instanceof WatermarkEntry) {
+							output.emitWatermark(((WatermarkEntry) entry).watermark);
+						} else {
+							RecordEntry recordEntry = (RecordEntry) entry;
+							for (OUT result : recordEntry.result) {
+								output.collect(recordEntry.record.replace(result));
+							}
+						}
+
+						// wake up the operator thread, which may wait for capacity
+						lock.notifyAll();
+					}
+				}
+				catch (Throwable t) {
+					if (failure == null) {
+						failure = t;
+					}
+					// wake up the operator thread, so that it notices the failure
+					lock.notifyAll();
+				}
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  Queue entries
+	// ------------------------------------------------------------------------
+
+	private interface QueueEntry {
+		boolean isDone();
+	}
+
+	private static final class WatermarkEntry implements QueueEntry {
+
+		private final Watermark watermark;
+
+		WatermarkEntry(Watermark watermark) {
+			this.watermark = watermark;
+		}
+
+		@Override
+		public boolean isDone() {
+			return true;
+		}
+	}
+
+	/**
+	 * The entry of a pending element. It is the collector of the request and the timer of its timeout.
+	 */
+	private final class RecordEntry implements QueueEntry, AsyncCollector<OUT>, Triggerable {
+
+		private final StreamRecord<IN> record;
+
+		private Collection<OUT> result;
+
+		private boolean done;
+
+		private ScheduledFuture<?> timeoutFuture;
+
+		RecordEntry(StreamRecord<IN> record) {
+			this.record = record;
+		}
+
+		@Override
+		public boolean isDone() {
+			return done;
+		}
+
+		@Override
+		public void collect(Collection<OUT> result) {
+			requireNonNull(result, "The result must not be null.");
+			synchronized (lock) {
+				if (!done) {
+					this.result = result;
+					complete();
+				}
+			}
+		}
+
+		@Override
+		public void collect(Throwable error) {
+			synchronized (lock) {
+				if (!done) {
+					if (failure == null) {
+						failure = error;
+					}
+					result = new ArrayList<>();
+					complete();
+				}
+			}
+		}
+
+		@Override
+		public void trigger(long timestamp) throws Exception {
+			collect(new TimeoutException("The asynchronous request did not complete within " + timeout + " ms."));
+		}
+
+		private void complete() {
+			done = true;
+			if (timeoutFuture != null) {
+				timeoutFuture.cancel(false);
+			}
+			lock.notifyAll();
+		}
+	}
+}
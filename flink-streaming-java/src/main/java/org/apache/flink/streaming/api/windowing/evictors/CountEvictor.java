@@ -45,6 +45,13 @@ public class CountEvictor<W extends Window> implements Evictor<Object, W> {
 		}
 	}
 
+	/**
+	 * Returns the number of elements that this {@code CountEvictor} keeps.
+	 */
+	public long getMaxCount() {
+		return maxCount;
+	}
+
 	/**
 	 * Creates a {@code CountEvictor} that keeps the given number of elements.
 	 *
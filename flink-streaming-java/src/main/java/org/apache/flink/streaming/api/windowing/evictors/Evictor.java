@@ -42,7 +42,8 @@ public interface Evictor<T, W extends Window> extends Serializable {
 
 	/**
 	 * Computes how many elements should be removed from the pane. The result specifies how
-	 * many elements should be removed from the beginning.
+	 * many elements should be removed from the beginning. Removed elements are dropped from the
+	 * pane, i.e., they are not passed to this method again when the window fires the next time.
 	 *
 	 * @param elements The elements currently in the pane.
 	 * @param size The current number of elements in the pane.
@@ -30,6 +30,7 @@ import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.MultiplexingStreamRecordSerializer;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecordSerializer;
+import org.apache.flink.streaming.runtime.streamrecord.StreamStatus;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -43,6 +44,11 @@ public class RecordWriterOutput<OUT> implements Output<StreamRecord<OUT>> {
 	
 	private SerializationDelegate<StreamElement> serializationDelegate;
 
+	/** Whether stream statuses can be sent, which requires the multiplexing serializer */
+	private final boolean streamStatusEnabled;
+
+	/** The status that was last sent to the downstream operators */
+	private StreamStatus streamStatus = StreamStatus.ACTIVE;
 	
 	@SuppressWarnings("unchecked")
 	public RecordWriterOutput(
@@ -68,10 +74,13 @@ public class RecordWriterOutput<OUT> implements Output<StreamRecord<OUT>> {
 		if (outSerializer != null) {
 			serializationDelegate = new SerializationDelegate<StreamElement>(outRecordSerializer);
 		}
+
+		this.streamStatusEnabled = enableWatermarkMultiplexing;
 	}
 
 	@Override
 	public void collect(StreamRecord<OUT> record) {
+		activateIfIdle();
 		serializationDelegate.setInstance(record);
 
 		try {
@@ -84,6 +93,7 @@ public class RecordWriterOutput<OUT> implements Output<StreamRecord<OUT>> {
 
 	@Override
 	public void emitWatermark(Watermark mark) {
+		activateIfIdle();
 		serializationDelegate.setInstance(mark);
 		
 		try {
@@ -94,6 +104,28 @@ public class RecordWriterOutput<OUT> implements Output<StreamRecord<OUT>> {
 		}
 	}
 
+	@Override
+	public void emitStreamStatus(StreamStatus status) {
+		if (!streamStatusEnabled || status.equals(streamStatus)) {
+			return;
+		}
+		streamStatus = status;
+		serializationDelegate.setInstance(status);
+
+		try {
+			recordWriter.broadcastEmit(serializationDelegate);
+		}
+		catch (Exception e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+	}
+
+	private void activateIfIdle() {
+		if (streamStatus.isIdle()) {
+			emitStreamStatus(StreamStatus.ACTIVE);
+		}
+	}
+
 	public void broadcastEvent(AbstractEvent barrier) throws IOException, InterruptedException {
 		recordWriter.broadcastEvent(barrier);
 	}
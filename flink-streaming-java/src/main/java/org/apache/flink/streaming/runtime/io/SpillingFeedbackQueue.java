@@ -0,0 +1,342 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
+import org.apache.flink.runtime.util.event.EventListener;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The queue of the feedback edge of a streaming iteration. The iteration tail adds the records
+ * and the checkpoint barriers it receives, and the iteration head takes them in the same order.
+ *
+ * <p>The queue holds a bounded number of elements in memory and spills all further elements to
+ * files in the temp directories of the I/O manager, until the head caught up again. Adding to the
+ * queue therefore never blocks: blocking the tail would back-pressure the operators inside the
+ * loop, which in turn back-pressure the head, and the loop would deadlock.
+ *
+ * <p>Checkpoint barriers are not returned by {@link #take()} and {@link #poll(long)}. They are
+ * handed to the barrier listener of the queue, in the thread of the head, when they are reached.
+ *
+ * @param <T> The type of the records in the queue.
+ */
+@Internal
+public class SpillingFeedbackQueue<T> {
+
+	private static final byte RECORD = 0;
+
+	private static final byte BARRIER = 1;
+
+	/** The serializer for spilling records */
+	private final TypeSerializer<T> serializer;
+
+	/** The I/O manager that provides the spill files */
+	private final IOManager ioManager;
+
+	/** The listener that receives the checkpoint barriers */
+	private final EventListener<CheckpointBarrier> barrierListener;
+
+	/** The maximum number of elements held in memory */
+	private final int memoryCapacity;
+
+	/** The elements in memory, records and checkpoint barriers */
+	private final ArrayDeque<Object> memoryElements;
+
+	/** The complete spill files, in the order in which they were written */
+	private final ArrayDeque<SpillFile> spillFiles;
+
+	/** The spill file currently written to, or null */
+	private SpillFile writeFile;
+
+	/** The spill file currently read from, or null */
+	private SpillFile readFile;
+
+	/** The number of spilled elements that were not read yet */
+	private long numSpilledElements;
+
+	private boolean closed;
+
+	/**
+	 * Creates a new feedback queue.
+	 *
+	 * @param serializer The serializer for the records, to spill them.
+	 * @param ioManager The I/O manager that provides the spill files.
+	 * @param barrierListener The listener that receives the checkpoint barriers.
+	 * @param memoryCapacity The maximum number of elements held in memory.
+	 */
+	public SpillingFeedbackQueue(
+			TypeSerializer<T> serializer,
+			IOManager ioManager,
+			EventListener<CheckpointBarrier> barrierListener,
+			int memoryCapacity) {
+
+		checkArgument(memoryCapacity > 0, "The memory capacity must be positive.");
+
+		this.serializer = checkNotNull(serializer);
+		this.ioManager = checkNotNull(ioManager);
+		this.barrierListener = checkNotNull(barrierListener);
+		this.memoryCapacity = memoryCapacity;
+		this.memoryElements = new ArrayDeque<>();
+		this.spillFiles = new ArrayDeque<>();
+	}
+
+	// ------------------------------------------------------------------------
+	//  Adding elements (iteration tail)
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Adds a record to the queue. Records added after the queue was closed are dropped,
+	 * because the iteration head does not take records any more.
+	 */
+	public void add(T record) throws IOException {
+		addElement(record);
+	}
+
+	/**
+	 * Adds a checkpoint barrier to the queue, behind all records added before.
+	 */
+	public void addCheckpointBarrier(CheckpointBarrier barrier) throws IOException {
+		addElement(barrier);
+	}
+
+	private synchronized void addElement(Object element) throws IOException {
+		if (closed) {
+			return;
+		}
+
+		// once elements are spilled, all further elements are spilled as well until the
+		// spilled ones are taken, to keep the order of the elements
+		if (numSpilledElements == 0 && memoryElements.size() < memoryCapacity) {
+			memoryElements.add(element);
+		} else {
+			spill(element);
+		}
+		notifyAll();
+	}
+
+	// ------------------------------------------------------------------------
+	//  Taking elements (iteration head)
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Takes the next record, waiting until one is available. Checkpoint barriers before the
+	 * record are handed to the barrier listener.
+	 *
+	 * @return The next record, or null, if the queue was closed.
+	 */
+	public T take() throws IOException, InterruptedException {
+		return next(-1L);
+	}
+
+	/**
+	 * Takes the next record, waiting at most the given time until one is available.
+	 * Checkpoint barriers before the record are handed to the barrier listener.
+	 *
+	 * @param timeoutMillis The maximum time to wait, in milliseconds.
+	 * @return The next record, or null, if the time elapsed or the queue was closed.
+	 */
+	public T poll(long timeoutMillis) throws IOException, InterruptedException {
+		return next(System.currentTimeMillis() + timeoutMillis);
+	}
+
+	@SuppressWarnings("unchecked")
+	private T next(long deadline) throws IOException, InterruptedException {
+		while (true) {
+			Object element = nextElement(deadline);
+			if (element instanceof CheckpointBarrier) {
+				// called outside of the lock of the queue, so that the tail can go on adding
+				barrierListener.onEvent((CheckpointBarrier) element);
+			} else {
+				return (T) element;
+			}
+		}
+	}
+
+	private synchronized Object nextElement(long deadline) throws IOException, InterruptedException {
+		while (memoryElements.isEmpty() && numSpilledElements == 0 && !closed) {
+			if (deadline < 0) {
+				wait();
+			} else {
+				long timeout = deadline - System.currentTimeMillis();
+				if (timeout <= 0) {
+					return null;
+				}
+				wait(timeout);
+			}
+		}
+
+		if (!memoryElements.isEmpty()) {
+			return memoryElements.poll();
+		} else if (numSpilledElements > 0) {
+			return readSpilled();
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Closes the queue and deletes all spill files.
+	 */
+	public synchronized void close() {
+		closed = true;
+		memoryElements.clear();
+		numSpilledElements = 0;
+
+		if (writeFile != null) {
+			writeFile.delete();
+			writeFile = null;
+		}
+		if (readFile != null) {
+			readFile.delete();
+			readFile = null;
+		}
+		for (SpillFile file : spillFiles) {
+			file.delete();
+		}
+		spillFiles.clear();
+
+		notifyAll();
+	}
+
+	// ------------------------------------------------------------------------
+	//  For testing
+	// ------------------------------------------------------------------------
+
+	synchronized int getNumMemoryElements() {
+		return memoryElements.size();
+	}
+
+	synchronized long getNumSpilledElements() {
+		return numSpilledElements;
+	}
+
+	// ------------------------------------------------------------------------
+	//  Spilling
+	// ------------------------------------------------------------------------
+
+	private void spill(Object element) throws IOException {
+		if (writeFile == null) {
+			writeFile = new SpillFile(ioManager.createChannel().getPathFile());
+		}
+
+		DataOutputViewStreamWrapper out = writeFile.out;
+		if (element instanceof CheckpointBarrier) {
+			CheckpointBarrier barrier = (CheckpointBarrier) element;
+			out.writeByte(BARRIER);
+			out.writeLong(barrier.getId());
+			out.writeLong(barrier.getTimestamp());
+		} else {
+			@SuppressWarnings("unchecked")
+			T record = (T) element;
+			out.writeByte(RECORD);
+			serializer.serialize(record, out);
+		}
+
+		writeFile.numElements++;
+		numSpilledElements++;
+	}
+
+	private Object readSpilled() throws IOException {
+		if (readFile == null) {
+			if (spillFiles.isEmpty()) {
+				// the head caught up with the tail, so the tail starts a new file
+				writeFile.finishWriting();
+				spillFiles.add(writeFile);
+				writeFile = null;
+			}
+			readFile = spillFiles.poll();
+			readFile.startReading();
+		}
+
+		DataInputViewStreamWrapper in = readFile.in;
+		Object element;
+		if (in.readByte() == BARRIER) {
+			element = new CheckpointBarrier(in.readLong(), in.readLong());
+		} else {
+			element = serializer.deserialize(in);
+		}
+
+		numSpilledElements--;
+		if (--readFile.numElements == 0) {
+			readFile.delete();
+			readFile = null;
+		}
+		return element;
+	}
+
+	/**
+	 * A file with spilled elements, which is first written and then read.
+	 */
+	private static final class SpillFile {
+
+		private final File file;
+
+		private DataOutputViewStreamWrapper out;
+
+		private DataInputViewStreamWrapper in;
+
+		/** The number of elements written to the file and not read yet */
+		private long numElements;
+
+		SpillFile(File file) throws IOException {
+			this.file = file;
+			this.out = new DataOutputViewStreamWrapper(new BufferedOutputStream(new FileOutputStream(file)));
+		}
+
+		void finishWriting() throws IOException {
+			out.close();
+			out = null;
+		}
+
+		void startReading() throws IOException {
+			in = new DataInputViewStreamWrapper(new BufferedInputStream(new FileInputStream(file)));
+		}
+
+		void delete() {
+			try {
+				if (out != null) {
+					out.close();
+				}
+				if (in != null) {
+					in.close();
+				}
+			} catch (IOException ignored) {
+				// the file is deleted anyways
+			}
+			if (!file.delete() && file.exists()) {
+				file.deleteOnExit();
+			}
+		}
+	}
+}
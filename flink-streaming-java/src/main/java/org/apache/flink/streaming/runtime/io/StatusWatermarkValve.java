@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.streaming.runtime.streamrecord.StreamStatus;
+
+import java.util.Arrays;
+
+/**
+ * Keeps track of the watermarks and the {@link StreamStatus stream statuses} of the channels
+ * of one input, and computes the watermark of the input. The watermark of the input is the
+ * minimum watermark of the active channels. Idle channels do not hold it back. If all channels
+ * are idle, the input is idle and its watermark does not advance.
+ *
+ * <p>A channel that becomes active again may be behind the watermark of the input. Its
+ * watermark is raised to the watermark of the input, because all its elements up to that
+ * watermark are late anyway.
+ */
+@Internal
+public class StatusWatermarkValve {
+
+	/** Returned if the watermark of the input did not advance */
+	public static final long NO_WATERMARK = Long.MIN_VALUE;
+
+	private final long[] watermarks;
+
+	private final boolean[] idleChannels;
+
+	private int numIdleChannels;
+
+	private long lastEmittedWatermark = Long.MIN_VALUE;
+
+	public StatusWatermarkValve(int numChannels) {
+		if (numChannels <= 0) {
+			throw new IllegalArgumentException("The number of channels must be positive.");
+		}
+		this.watermarks = new long[numChannels];
+		Arrays.fill(watermarks, Long.MIN_VALUE);
+		this.idleChannels = new boolean[numChannels];
+	}
+
+	/**
+	 * Records the watermark of a channel.
+	 *
+	 * @return The new watermark of the input, or {@link #NO_WATERMARK}, if it did not advance.
+	 */
+	public long inputWatermark(int channel, long watermark) {
+		if (idleChannels[channel]) {
+			activate(channel);
+		}
+		if (watermark > watermarks[channel]) {
+			watermarks[channel] = watermark;
+			return advance();
+		}
+		return NO_WATERMARK;
+	}
+
+	/**
+	 * Records the stream status of a channel.
+	 *
+	 * @return The new watermark of the input, or {@link #NO_WATERMARK}, if it did not advance.
+	 */
+	public long inputStreamStatus(int channel, StreamStatus status) {
+		if (status.isIdle() && !idleChannels[channel]) {
+			idleChannels[channel] = true;
+			numIdleChannels++;
+			// the channel might have been the one that held back the watermark
+			return advance();
+		} else if (status.isActive() && idleChannels[channel]) {
+			activate(channel);
+		}
+		return NO_WATERMARK;
+	}
+
+	/**
+	 * Checks whether all channels of the input are idle.
+	 */
+	public boolean isIdle() {
+		return numIdleChannels == idleChannels.length;
+	}
+
+	private void activate(int channel) {
+		idleChannels[channel] = false;
+		numIdleChannels--;
+		watermarks[channel] = Math.max(watermarks[channel], lastEmittedWatermark);
+	}
+
+	private long advance() {
+		if (isIdle()) {
+			return NO_WATERMARK;
+		}
+
+		long newMinWatermark = Long.MAX_VALUE;
+		for (int i = 0; i < watermarks.length; i++) {
+			if (!idleChannels[i]) {
+				newMinWatermark = Math.min(watermarks[i], newMinWatermark);
+			}
+		}
+
+		if (newMinWatermark > lastEmittedWatermark) {
+			lastEmittedWatermark = newMinWatermark;
+			return newMinWatermark;
+		}
+		return NO_WATERMARK;
+	}
+}
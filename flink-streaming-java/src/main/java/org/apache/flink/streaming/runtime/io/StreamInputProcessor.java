@@ -37,19 +37,25 @@ import org.apache.flink.runtime.plugable.NonReusingDeserializationDelegate;
 import org.apache.flink.runtime.util.event.EventListener;
 import org.apache.flink.streaming.api.CheckpointingMode;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
+import org.apache.flink.streaming.api.operators.Output;
 import org.apache.flink.streaming.runtime.streamrecord.StreamElement;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.MultiplexingStreamRecordSerializer;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecordSerializer;
+import org.apache.flink.streaming.runtime.streamrecord.StreamStatus;
 import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 /**
  * Input reader for {@link org.apache.flink.streaming.runtime.tasks.OneInputStreamTask}.
  *
  * <p>
  * This also keeps track of {@link Watermark} events and forwards them to event subscribers
  * once the {@link Watermark} from all inputs advances.
+ * Input channels that are marked as idle with a {@link StreamStatus} do not hold back the
+ * watermark. If all input channels are idle, the task marks its own outputs as idle.
  *
  * <p>
  * Forwarding elements or watermarks must be protected by synchronizing on the given lock
@@ -75,8 +81,11 @@ public class StreamInputProcessor<IN> {
 
 	
 
-	private final long[] watermarks;
-	private long lastEmittedWatermark;
+	/** Computes the watermark of the input from the watermarks and statuses of the channels */
+	private final StatusWatermarkValve statusWatermarkValve;
+
+	/** The output to which the stream status of the task is emitted, if all channels become idle */
+	private final Output<?> streamStatusOutput;
 
 	private final DeserializationDelegate<StreamElement> deserializationDelegate;
 
@@ -85,7 +94,8 @@ public class StreamInputProcessor<IN> {
 								EventListener<CheckpointBarrier> checkpointListener,
 								CheckpointingMode checkpointMode,
 								IOManager ioManager,
-								boolean enableWatermarkMultiplexing) throws IOException {
+								boolean enableWatermarkMultiplexing,
+								Output<?> streamStatusOutput) throws IOException {
 
 		InputGate inputGate = InputGateUtil.createInputGate(inputGates);
 
@@ -119,11 +129,8 @@ public class StreamInputProcessor<IN> {
 			recordDeserializers[i] = new SpillingAdaptiveSpanningRecordDeserializer<DeserializationDelegate<StreamElement>>();
 		}
 
-		watermarks = new long[inputGate.getNumberOfInputChannels()];
-		for (int i = 0; i < inputGate.getNumberOfInputChannels(); i++) {
-			watermarks[i] = Long.MIN_VALUE;
-		}
-		lastEmittedWatermark = Long.MIN_VALUE;
+		this.statusWatermarkValve = new StatusWatermarkValve(inputGate.getNumberOfInputChannels());
+		this.streamStatusOutput = checkNotNull(streamStatusOutput);
 	}
 
 	@SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
@@ -145,18 +152,24 @@ public class StreamInputProcessor<IN> {
 					StreamElement recordOrWatermark = deserializationDelegate.getInstance();
 
 					if (recordOrWatermark.isWatermark()) {
-						long watermarkMillis = recordOrWatermark.asWatermark().getTimestamp();
-						if (watermarkMillis > watermarks[currentChannel]) {
-							watermarks[currentChannel] = watermarkMillis;
-							long newMinWatermark = Long.MAX_VALUE;
-							for (long watermark : watermarks) {
-								newMinWatermark = Math.min(watermark, newMinWatermark);
+						long newWatermark = statusWatermarkValve.inputWatermark(
+								currentChannel, recordOrWatermark.asWatermark().getTimestamp());
+						if (newWatermark != StatusWatermarkValve.NO_WATERMARK) {
+							synchronized (lock) {
+								streamOperator.processWatermark(new Watermark(newWatermark));
+							}
+						}
+						continue;
+					} else if (recordOrWatermark.isStreamStatus()) {
+						boolean wasIdle = statusWatermarkValve.isIdle();
+						long newWatermark = statusWatermarkValve.inputStreamStatus(
+								currentChannel, recordOrWatermark.asStreamStatus());
+						synchronized (lock) {
+							if (newWatermark != StatusWatermarkValve.NO_WATERMARK) {
+								streamOperator.processWatermark(new Watermark(newWatermark));
 							}
-							if (newMinWatermark > lastEmittedWatermark) {
-								lastEmittedWatermark = newMinWatermark;
-								synchronized (lock) {
-									streamOperator.processWatermark(new Watermark(lastEmittedWatermark));
-								}
+							if (statusWatermarkValve.isIdle() != wasIdle) {
+								streamStatusOutput.emitStreamStatus(wasIdle ? StreamStatus.ACTIVE : StreamStatus.IDLE);
 							}
 						}
 						continue;
@@ -34,24 +34,30 @@ import org.apache.flink.runtime.plugable.DeserializationDelegate;
 import org.apache.flink.runtime.plugable.NonReusingDeserializationDelegate;
 import org.apache.flink.runtime.util.event.EventListener;
 import org.apache.flink.streaming.api.CheckpointingMode;
+import org.apache.flink.streaming.api.operators.Output;
 import org.apache.flink.streaming.api.operators.TwoInputStreamOperator;
 import org.apache.flink.streaming.runtime.streamrecord.StreamElement;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.MultiplexingStreamRecordSerializer;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecordSerializer;
+import org.apache.flink.streaming.runtime.streamrecord.StreamStatus;
 import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Collection;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 /**
  * Input reader for {@link org.apache.flink.streaming.runtime.tasks.TwoInputStreamTask}.
  *
  * <p>
  * This also keeps track of {@link org.apache.flink.streaming.api.watermark.Watermark} events and forwards them to event subscribers
  * once the {@link org.apache.flink.streaming.api.watermark.Watermark} from all inputs advances.
+ * Input channels that are marked as idle with a {@link StreamStatus} do not hold back the
+ * watermark of their input. If all channels of both inputs are idle, the task marks its own
+ * outputs as idle.
  *
  * <p>
  * Forwarding elements or watermarks must be protected by synchronizing on the given lock
@@ -76,11 +82,12 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 
 	private final CheckpointBarrierHandler barrierHandler;
 
-	private final long[] watermarks1;
-	private long lastEmittedWatermark1;
+	/** Compute the watermarks of the inputs from the watermarks and statuses of the channels */
+	private final StatusWatermarkValve statusWatermarkValve1;
+	private final StatusWatermarkValve statusWatermarkValve2;
 
-	private final long[] watermarks2;
-	private long lastEmittedWatermark2;
+	/** The output to which the stream status of the task is emitted, if all channels become idle */
+	private final Output<?> streamStatusOutput;
 
 	private final int numInputChannels1;
 
@@ -96,7 +103,8 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 			EventListener<CheckpointBarrier> checkpointListener,
 			CheckpointingMode checkpointMode,
 			IOManager ioManager,
-			boolean enableWatermarkMultiplexing) throws IOException {
+			boolean enableWatermarkMultiplexing,
+			Output<?> streamStatusOutput) throws IOException {
 		
 		final InputGate inputGate = InputGateUtil.createInputGate(inputGates1, inputGates2);
 
@@ -150,13 +158,9 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 		this.numInputChannels1 = numInputChannels1;
 		int numInputChannels2 = inputGate.getNumberOfInputChannels() - numInputChannels1;
 
-		watermarks1 = new long[numInputChannels1];
-		Arrays.fill(watermarks1, Long.MIN_VALUE);
-		lastEmittedWatermark1 = Long.MIN_VALUE;
-
-		watermarks2 = new long[numInputChannels2];
-		Arrays.fill(watermarks2, Long.MIN_VALUE);
-		lastEmittedWatermark2 = Long.MIN_VALUE;
+		this.statusWatermarkValve1 = new StatusWatermarkValve(numInputChannels1);
+		this.statusWatermarkValve2 = new StatusWatermarkValve(numInputChannels2);
+		this.streamStatusOutput = checkNotNull(streamStatusOutput);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -186,6 +190,10 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 							handleWatermark(streamOperator, (Watermark) recordOrWatermark, currentChannel, lock);
 							continue;
 						}
+						else if (recordOrWatermark.isStreamStatus()) {
+							handleStreamStatus(streamOperator, recordOrWatermark.asStreamStatus(), currentChannel, lock);
+							continue;
+						}
 						else {
 							synchronized (lock) {
 								streamOperator.setKeyContextElement1(recordOrWatermark.<IN1>asRecord());
@@ -201,6 +209,10 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 							handleWatermark(streamOperator, recordOrWatermark.asWatermark(), currentChannel, lock);
 							continue;
 						}
+						else if (recordOrWatermark.isStreamStatus()) {
+							handleStreamStatus(streamOperator, recordOrWatermark.asStreamStatus(), currentChannel, lock);
+							continue;
+						}
 						else {
 							synchronized (lock) {
 								streamOperator.setKeyContextElement2(recordOrWatermark.<IN2>asRecord());
@@ -240,36 +252,43 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 
 	private void handleWatermark(TwoInputStreamOperator<IN1, IN2, ?> operator, Watermark mark, int channelIndex, Object lock) throws Exception {
 		if (channelIndex < numInputChannels1) {
-			long watermarkMillis = mark.getTimestamp();
-			if (watermarkMillis > watermarks1[channelIndex]) {
-				watermarks1[channelIndex] = watermarkMillis;
-				long newMinWatermark = Long.MAX_VALUE;
-				for (long wm : watermarks1) {
-					newMinWatermark = Math.min(wm, newMinWatermark);
-				}
-				if (newMinWatermark > lastEmittedWatermark1) {
-					lastEmittedWatermark1 = newMinWatermark;
-					synchronized (lock) {
-						operator.processWatermark1(new Watermark(lastEmittedWatermark1));
-					}
+			long newWatermark = statusWatermarkValve1.inputWatermark(channelIndex, mark.getTimestamp());
+			if (newWatermark != StatusWatermarkValve.NO_WATERMARK) {
+				synchronized (lock) {
+					operator.processWatermark1(new Watermark(newWatermark));
 				}
 			}
 		} else {
-			channelIndex = channelIndex - numInputChannels1;
-			long watermarkMillis = mark.getTimestamp();
-			if (watermarkMillis > watermarks2[channelIndex]) {
-				watermarks2[channelIndex] = watermarkMillis;
-				long newMinWatermark = Long.MAX_VALUE;
-				for (long wm : watermarks2) {
-					newMinWatermark = Math.min(wm, newMinWatermark);
+			long newWatermark = statusWatermarkValve2.inputWatermark(channelIndex - numInputChannels1, mark.getTimestamp());
+			if (newWatermark != StatusWatermarkValve.NO_WATERMARK) {
+				synchronized (lock) {
+					operator.processWatermark2(new Watermark(newWatermark));
 				}
-				if (newMinWatermark > lastEmittedWatermark2) {
-					lastEmittedWatermark2 = newMinWatermark;
-					synchronized (lock) {
-						operator.processWatermark2(new Watermark(lastEmittedWatermark2));
-					}
+			}
+		}
+	}
+
+	private void handleStreamStatus(TwoInputStreamOperator<IN1, IN2, ?> operator, StreamStatus status, int channelIndex, Object lock) throws Exception {
+		boolean wasIdle = statusWatermarkValve1.isIdle() && statusWatermarkValve2.isIdle();
+
+		synchronized (lock) {
+			if (channelIndex < numInputChannels1) {
+				long newWatermark = statusWatermarkValve1.inputStreamStatus(channelIndex, status);
+				if (newWatermark != StatusWatermarkValve.NO_WATERMARK) {
+					operator.processWatermark1(new Watermark(newWatermark));
+				}
+			} else {
+				long newWatermark = statusWatermarkValve2.inputStreamStatus(channelIndex - numInputChannels1, status);
+				if (newWatermark != StatusWatermarkValve.NO_WATERMARK) {
+					operator.processWatermark2(new Watermark(newWatermark));
 				}
 			}
+
+			// the task is only idle if the channels of both inputs are idle
+			boolean isIdle = statusWatermarkValve1.isIdle() && statusWatermarkValve2.isIdle();
+			if (isIdle != wasIdle) {
+				streamStatusOutput.emitStreamStatus(isIdle ? StreamStatus.IDLE : StreamStatus.ACTIVE);
+			}
 		}
 	}
 	
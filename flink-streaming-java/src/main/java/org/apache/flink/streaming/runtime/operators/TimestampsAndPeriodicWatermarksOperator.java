@@ -23,11 +23,16 @@ import org.apache.flink.streaming.api.operators.ChainingStrategy;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamrecord.StreamStatus;
 
 /**
  * A stream operator that extracts timestamps from stream elements and
  * generates periodic watermarks.
  *
+ * <p>If a {@link org.apache.flink.api.common.ExecutionConfig#getWatermarkIdleTimeout() watermark
+ * idle timeout} is configured, the operator marks its stream as temporarily idle once it did not
+ * receive elements for that long, and stops emitting watermarks until the next element arrives.
+ *
  * @param <T> The type of the input elements
  */
 public class TimestampsAndPeriodicWatermarksOperator<T>
@@ -40,6 +45,15 @@ public class TimestampsAndPeriodicWatermarksOperator<T>
 
 	private transient long currentWatermark;
 
+	private transient long idleTimeout;
+
+	/** The time of the watermark timer that first observed the most recent elements */
+	private transient long lastActivityTime;
+
+	/** Flag whether elements arrived since the last watermark timer */
+	private transient boolean receivedElements;
+
+	private transient boolean idle;
 	
 	public TimestampsAndPeriodicWatermarksOperator(AssignerWithPeriodicWatermarks<T> assigner) {
 		super(assigner);
@@ -52,14 +66,20 @@ public class TimestampsAndPeriodicWatermarksOperator<T>
 
 		currentWatermark = Long.MIN_VALUE;
 		watermarkInterval = getExecutionConfig().getAutoWatermarkInterval();
+		idleTimeout = getExecutionConfig().getWatermarkIdleTimeout();
 		
 		if (watermarkInterval > 0) {
-			registerTimer(System.currentTimeMillis() + watermarkInterval, this);
+			lastActivityTime = System.currentTimeMillis();
+			registerTimer(lastActivityTime + watermarkInterval, this);
 		}
 	}
 
 	@Override
 	public void processElement(StreamRecord<T> element) throws Exception {
+		// the stream becomes active again implicitly with the emitted element
+		receivedElements = true;
+		idle = false;
+
 		final long newTimestamp = userFunction.extractTimestamp(element.getValue(), 
 				element.hasTimestamp() ? element.getTimestamp() : Long.MIN_VALUE);
 		
@@ -68,14 +88,24 @@ public class TimestampsAndPeriodicWatermarksOperator<T>
 
 	@Override
 	public void trigger(long timestamp) throws Exception {
-		// register next timer
-		Watermark newWatermark = userFunction.getCurrentWatermark();
-		if (newWatermark != null && newWatermark.getTimestamp() > currentWatermark) {
-			currentWatermark = newWatermark.getTimestamp();
-			// emit watermark
-			output.emitWatermark(newWatermark);
+		if (receivedElements) {
+			receivedElements = false;
+			lastActivityTime = timestamp;
+		} else if (!idle && idleTimeout > 0 && timestamp - lastActivityTime >= idleTimeout) {
+			idle = true;
+			output.emitStreamStatus(StreamStatus.IDLE);
 		}
 
+		if (!idle) {
+			Watermark newWatermark = userFunction.getCurrentWatermark();
+			if (newWatermark != null && newWatermark.getTimestamp() > currentWatermark) {
+				currentWatermark = newWatermark.getTimestamp();
+				// emit watermark
+				output.emitWatermark(newWatermark);
+			}
+		}
+
+		// register next timer
 		registerTimer(System.currentTimeMillis() + watermarkInterval, this);
 	}
 
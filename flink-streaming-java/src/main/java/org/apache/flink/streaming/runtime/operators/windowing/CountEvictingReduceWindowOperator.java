@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.runtime.operators.windowing;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.array.IntPrimitiveArraySerializer;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.streaming.api.windowing.assigners.MergingWindowAssigner;
+import org.apache.flink.streaming.api.windowing.assigners.WindowAssigner;
+import org.apache.flink.streaming.api.windowing.evictors.CountEvictor;
+import org.apache.flink.streaming.api.windowing.triggers.Trigger;
+import org.apache.flink.streaming.api.windowing.triggers.TriggerResult;
+import org.apache.flink.streaming.api.windowing.windows.Window;
+import org.apache.flink.streaming.runtime.operators.windowing.functions.InternalWindowFunction;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+
+import java.util.Collection;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link WindowOperator} for windows with a {@link CountEvictor} and a {@link ReduceFunction}.
+ *
+ * <p>The {@link EvictingWindowOperator} buffers the elements of a window and reduces all elements
+ * that are left after eviction whenever the window fires. This operator instead keeps each window in
+ * a {@link SlidingReduceBuffer}, which evicts elements as soon as the window holds more than
+ * the maximum count, and maintains the aggregate of the remaining elements incrementally. Each
+ * element is reduced a constant number of times, independent of how often the window fires, and
+ * touches a constant number of keyed state entries.
+ *
+ * <p>Evicting elements on arrival instead of when the window fires yields the same result, because
+ * the {@code CountEvictor} always keeps the newest elements. Merging windows are not supported.
+ *
+ * @param <K> The type of key returned by the {@code KeySelector}.
+ * @param <IN> The type of the incoming elements and of the aggregate.
+ * @param <OUT> The type of elements emitted by the {@code InternalWindowFunction}.
+ * @param <W> The type of {@code Window} that the {@code WindowAssigner} assigns.
+ */
+@Internal
+public class CountEvictingReduceWindowOperator<K, IN, OUT, W extends Window> extends WindowOperator<K, IN, IN, OUT, W> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final CountEvictor<? super W> evictor;
+
+	private final ReduceFunction<IN> reduceFunction;
+
+	private final TypeSerializer<IN> elementSerializer;
+
+	private final MapStateDescriptor<Integer, IN> frontStateDescriptor;
+
+	private final MapStateDescriptor<Integer, IN> backStateDescriptor;
+
+	private final ValueStateDescriptor<int[]> sizesStateDescriptor;
+
+	public CountEvictingReduceWindowOperator(WindowAssigner<? super IN, W> windowAssigner,
+		TypeSerializer<W> windowSerializer,
+		KeySelector<IN, K> keySelector,
+		TypeSerializer<K> keySerializer,
+		TypeSerializer<IN> elementSerializer,
+		ReduceFunction<IN> reduceFunction,
+		InternalWindowFunction<IN, OUT, K, W> windowFunction,
+		Trigger<? super IN, ? super W> trigger,
+		CountEvictor<? super W> evictor) {
+		super(windowAssigner, windowSerializer, keySelector, keySerializer, null, windowFunction, trigger);
+
+		if (windowAssigner instanceof MergingWindowAssigner) {
+			throw new IllegalArgumentException("Merging windows are not supported.");
+		}
+
+		this.evictor = requireNonNull(evictor);
+		this.reduceFunction = requireNonNull(reduceFunction);
+		this.elementSerializer = requireNonNull(elementSerializer);
+
+		this.frontStateDescriptor = new MapStateDescriptor<>("window-front-aggregates", IntSerializer.INSTANCE, elementSerializer);
+		this.backStateDescriptor = new MapStateDescriptor<>("window-back-elements", IntSerializer.INSTANCE, elementSerializer);
+		this.sizesStateDescriptor = new ValueStateDescriptor<>("window-sizes", IntPrimitiveArraySerializer.INSTANCE, null);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void processElement(StreamRecord<IN> element) throws Exception {
+		Collection<W> elementWindows = windowAssigner.assignWindows(element.getValue(), element.getTimestamp());
+
+		final K key = (K) getStateBackend().getCurrentKey();
+
+		for (W window : elementWindows) {
+			SlidingReduceBuffer<IN> buffer = getBuffer(window);
+			buffer.add(element.getValue(), reduceFunction, elementSerializer);
+			buffer.evictToSize(evictor.getMaxCount(), reduceFunction, elementSerializer);
+
+			context.key = key;
+			context.window = window;
+			TriggerResult triggerResult = context.onElement(element);
+
+			processTriggerResult(triggerResult, window);
+		}
+	}
+
+	@Override
+	protected void processTriggerResult(TriggerResult triggerResult, W window) throws Exception {
+		if (!triggerResult.isFire() && !triggerResult.isPurge()) {
+			// do nothing
+			return;
+		}
+
+		SlidingReduceBuffer<IN> buffer = getBuffer(window);
+
+		if (triggerResult.isFire()) {
+			IN aggregate = buffer.getAggregate(reduceFunction, elementSerializer);
+
+			if (aggregate != null) {
+				timestampedCollector.setAbsoluteTimestamp(window.maxTimestamp());
+				userFunction.apply(context.key, context.window, aggregate, timestampedCollector);
+			}
+		}
+		if (triggerResult.isPurge()) {
+			buffer.clear();
+			context.clear();
+		}
+	}
+
+	private SlidingReduceBuffer<IN> getBuffer(W window) throws Exception {
+		return new SlidingReduceBuffer<>(
+				getPartitionedState(window, windowSerializer, frontStateDescriptor),
+				getPartitionedState(window, windowSerializer, backStateDescriptor),
+				getPartitionedState(window, windowSerializer, sizesStateDescriptor));
+	}
+
+	// ------------------------------------------------------------------------
+	// Getters for testing
+	// ------------------------------------------------------------------------
+
+	@VisibleForTesting
+	public CountEvictor<? super W> getEvictor() {
+		return evictor;
+	}
+
+	@VisibleForTesting
+	public TypeSerializer<IN> getElementSerializer() {
+		return elementSerializer;
+	}
+}
@@ -38,7 +38,9 @@ import org.apache.flink.streaming.api.windowing.windows.Window;
 import org.apache.flink.streaming.runtime.operators.windowing.functions.InternalWindowFunction;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import static java.util.Objects.requireNonNull;
 
@@ -47,7 +49,8 @@ import static java.util.Objects.requireNonNull;
  *
  * <p>
  * The {@code Evictor} is used to evict elements from panes before processing a window and after
- * a {@link Trigger} has fired.
+ * a {@link Trigger} has fired. Evicted elements are removed from the window state, they are not
+ * part of any later evaluation of the window.
  *
  * @param <K> The type of key returned by the {@code KeySelector}.
  * @param <IN> The type of the incoming elements.
@@ -141,6 +144,8 @@ public class EvictingWindowOperator<K, IN, OUT, W extends Window> extends Window
 				processTriggerResult(combinedTriggerResult, actualWindow);
 			}
 
+			persistMergingWindowSet();
+
 		} else {
 			for (W window : elementWindows) {
 
@@ -197,6 +202,18 @@ public class EvictingWindowOperator<K, IN, OUT, W extends Window> extends Window
 						}
 					});
 			userFunction.apply(context.key, context.window, projectedContents, timestampedCollector);
+
+			if (toEvict > 0 && !triggerResult.isPurge()) {
+				// remove the evicted elements from the state, otherwise the state of windows that
+				// are never purged would grow with every element
+				List<StreamRecord<IN>> remaining = new ArrayList<>();
+				Iterables.addAll(remaining, Iterables.skip(contents, toEvict));
+
+				windowState.clear();
+				for (StreamRecord<IN> record : remaining) {
+					windowState.add(record);
+				}
+			}
 		}
 		if (triggerResult.isPurge()) {
 			windowState.clear();
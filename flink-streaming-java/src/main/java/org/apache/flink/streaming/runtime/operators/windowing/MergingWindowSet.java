@@ -47,6 +47,9 @@ import java.util.Map;
  *
  * <p>Windows can be removed from the set of windows using {@link #retireWindow(Window)}.
  *
+ * <p>A {@code MergingWindowSet} that was restored from a {@link ListState} is written back to
+ * that state with {@link #persist()}. The state is only written if the windows changed.
+ *
  * @param <W> The type of {@code Window} that this set is keeping track of.
  */
 public class MergingWindowSet<W extends Window> {
@@ -60,6 +63,16 @@ public class MergingWindowSet<W extends Window> {
 	 */
 	private final Map<W, W> windows;
 
+	/**
+	 * The mapping as it was restored from the state, to check whether it must be written back.
+	 */
+	private final Map<W, W> initialWindows;
+
+	/**
+	 * The state from which the windows were restored, or null.
+	 */
+	private final ListState<Tuple2<W, W>> state;
+
 	/**
 	 * Our window assigner.
 	 */
@@ -70,8 +83,10 @@ public class MergingWindowSet<W extends Window> {
 	 */
 	public MergingWindowSet(MergingWindowAssigner<?, W> windowAssigner) {
 		this.windowAssigner = windowAssigner;
+		this.state = null;
 
 		windows = new HashMap<>();
+		initialWindows = new HashMap<>();
 	}
 
 	/**
@@ -79,16 +94,31 @@ public class MergingWindowSet<W extends Window> {
 	 */
 	public MergingWindowSet(MergingWindowAssigner<?, W> windowAssigner, ListState<Tuple2<W, W>> state) throws Exception {
 		this.windowAssigner = windowAssigner;
+		this.state = state;
 		windows = new HashMap<>();
 
 		for (Tuple2<W, W> window: state.get()) {
 			windows.put(window.f0, window.f1);
 		}
+
+		initialWindows = new HashMap<>(windows);
 	}
 
-	public void persist(ListState<Tuple2<W, W>> state) throws Exception {
-		for (Map.Entry<W, W> window: windows.entrySet()) {
-			state.add(new Tuple2<>(window.getKey(), window.getValue()));
+	/**
+	 * Writes the windows back to the state from which they were restored, if they changed.
+	 */
+	public void persist() throws Exception {
+		if (state == null) {
+			throw new IllegalStateException("The window set was not restored from state.");
+		}
+
+		if (!windows.equals(initialWindows)) {
+			state.clear();
+			for (Map.Entry<W, W> window: windows.entrySet()) {
+				state.add(new Tuple2<>(window.getKey(), window.getValue()));
+			}
+			initialWindows.clear();
+			initialWindows.putAll(windows);
 		}
 	}
 
@@ -0,0 +1,302 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.operators.windowing;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.state.ReducingState;
+import org.apache.flink.api.common.state.ReducingStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.streaming.api.operators.AbstractUdfStreamOperator;
+import org.apache.flink.streaming.api.operators.ChainingStrategy;
+import org.apache.flink.streaming.api.operators.InternalTimer;
+import org.apache.flink.streaming.api.operators.InternalTimerCallback;
+import org.apache.flink.streaming.api.operators.InternalTimerService;
+import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
+import org.apache.flink.streaming.api.operators.TimestampedCollector;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.api.windowing.windows.TimeWindow;
+import org.apache.flink.streaming.runtime.operators.windowing.functions.InternalWindowFunction;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Window operator for sliding event-time windows with a {@link ReduceFunction}, which aggregates
+ * each element only once, into the pane of its timestamp. A pane is a slice of the time axis of the
+ * length of the slide, and each window consists of {@code size / slide} consecutive panes. When a
+ * window fires, the aggregates of its panes are combined with the reduce function. The
+ * {@link WindowOperator} instead adds each element to each of the {@code size / slide} windows it
+ * belongs to.
+ *
+ * <p>The panes are stored as key/value state with the pane as namespace. The operator fires a
+ * window when the watermark passes its end, like the
+ * {@link org.apache.flink.streaming.api.windowing.triggers.EventTimeTrigger}. Windows keep their
+ * panes for the allowed lateness after that. An element that arrives within the allowed lateness of
+ * a window that already fired causes the window to fire again, with all of its contents. For windows
+ * that are past their allowed lateness, the element is emitted on its own, as with the
+ * {@code WindowOperator}.
+ *
+ * @param <K> The type of the key.
+ * @param <IN> The type of the incoming elements and of the aggregates.
+ * @param <OUT> The type of elements emitted by the {@code InternalWindowFunction}.
+ */
+@Internal
+public class PanedEventTimeWindowOperator<K, IN, OUT>
+	extends AbstractUdfStreamOperator<OUT, InternalWindowFunction<IN, OUT, K, TimeWindow>>
+	implements OneInputStreamOperator<IN, OUT>, InternalTimerCallback<K, TimeWindow> {
+
+	private static final long serialVersionUID = 1L;
+
+	// ------------------------------------------------------------------------
+	// Configuration values and user functions
+	// ------------------------------------------------------------------------
+
+	private final long windowSize;
+
+	private final long windowSlide;
+
+	private final long allowedLateness;
+
+	private final KeySelector<IN, K> keySelector;
+
+	private final ReducingStateDescriptor<IN> paneStateDescriptor;
+
+	// ------------------------------------------------------------------------
+	// State that is not checkpointed
+	// ------------------------------------------------------------------------
+
+	private transient TimestampedCollector<OUT> timestampedCollector;
+
+	private transient InternalTimerService<TimeWindow> internalTimerService;
+
+	private transient TypeSerializer<TimeWindow> windowSerializer;
+
+	/**
+	 * Creates a new {@code PanedEventTimeWindowOperator} for windows of the given size and slide.
+	 *
+	 * @param windowSize The size of the windows, in milliseconds.
+	 * @param windowSlide The slide of the windows in milliseconds. The size must be a multiple of the slide.
+	 * @param allowedLateness The time in milliseconds that windows keep their contents after they fired.
+	 * @param keySelector The key selector of the input.
+	 * @param paneStateDescriptor The descriptor of the state that aggregates the panes.
+	 * @param windowFunction The function that is applied to the aggregate of a window when it fires.
+	 */
+	public PanedEventTimeWindowOperator(
+			long windowSize,
+			long windowSlide,
+			long allowedLateness,
+			KeySelector<IN, K> keySelector,
+			ReducingStateDescriptor<IN> paneStateDescriptor,
+			InternalWindowFunction<IN, OUT, K, TimeWindow> windowFunction) {
+
+		super(windowFunction);
+
+		if (windowSize <= 0 || windowSlide <= 0 || windowSize % windowSlide != 0) {
+			throw new IllegalArgumentException("The window size must be a positive multiple of the window slide.");
+		}
+		if (allowedLateness < 0) {
+			throw new IllegalArgumentException("The allowed lateness must not be negative.");
+		}
+
+		this.windowSize = windowSize;
+		this.windowSlide = windowSlide;
+		this.allowedLateness = allowedLateness;
+		this.keySelector = requireNonNull(keySelector);
+		this.paneStateDescriptor = requireNonNull(paneStateDescriptor);
+
+		setChainingStrategy(ChainingStrategy.ALWAYS);
+	}
+
+	@Override
+	public void open() throws Exception {
+		super.open();
+
+		timestampedCollector = new TimestampedCollector<>(output);
+		windowSerializer = new TimeWindow.Serializer();
+		internalTimerService = getInternalTimerService("window-timers", windowSerializer, this);
+	}
+
+	@Override
+	public void close() throws Exception {
+		super.close();
+		timestampedCollector = null;
+		internalTimerService = null;
+	}
+
+	@Override
+	public void dispose() {
+		super.dispose();
+		timestampedCollector = null;
+		internalTimerService = null;
+	}
+
+	// ------------------------------------------------------------------------
+	//  Processing
+	// ------------------------------------------------------------------------
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void processElement(StreamRecord<IN> element) throws Exception {
+		final long timestamp = element.getTimestamp();
+		if (timestamp == Long.MIN_VALUE) {
+			throw new RuntimeException("Record has Long.MIN_VALUE timestamp (= no timestamp marker). " +
+					"Is the time characteristic set to 'ProcessingTime', or did you forget to call " +
+					"'DataStream.assignTimestampsAndWatermarks(...)'?");
+		}
+
+		final long paneStart = timestamp - timestamp % windowSlide;
+		final long watermark = internalTimerService.currentWatermark();
+		final K key = (K) getStateBackend().getCurrentKey();
+
+		// the last window of the pane starts with the pane, if that is gone, all are
+		boolean paneExpired = isExpired(new TimeWindow(paneStart, paneStart + windowSize), watermark);
+
+		boolean newPane = false;
+		if (!paneExpired) {
+			ReducingState<IN> paneState = getPaneState(paneStart);
+			newPane = paneState.get() == null;
+			paneState.add(element.getValue());
+		}
+
+		for (long start = paneStart - windowSize + windowSlide; start <= paneStart; start += windowSlide) {
+			TimeWindow window = new TimeWindow(start, start + windowSize);
+
+			if (isExpired(window, watermark)) {
+				// the window does not keep its contents any more, the element fires on its own
+				timestampedCollector.setAbsoluteTimestamp(window.maxTimestamp());
+				userFunction.apply(key, window, element.getValue(), timestampedCollector);
+			} else if (newPane || window.maxTimestamp() <= watermark) {
+				// windows that already fired must fire again with the new element, the other
+				// windows only need a timer if this is the first element of the pane
+				internalTimerService.registerEventTimeTimer(window, window.maxTimestamp());
+			}
+		}
+
+		if (newPane) {
+			// the pane is removed once the last window that contains it is expired
+			TimeWindow pane = new TimeWindow(paneStart, paneStart + windowSlide);
+			internalTimerService.registerEventTimeTimer(pane, getCleanupTime(paneStart));
+		}
+	}
+
+	@Override
+	public void processWatermark(Watermark mark) throws Exception {
+		advanceWatermark(mark.getTimestamp());
+
+		output.emitWatermark(mark);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void onEventTime(InternalTimer<K, TimeWindow> timer) throws Exception {
+		TimeWindow namespace = timer.getNamespace();
+		long namespaceLength = namespace.getEnd() - namespace.getStart();
+
+		if (namespaceLength == windowSize && timer.getTimestamp() == namespace.maxTimestamp()) {
+			fireWindow(timer.getKey(), namespace);
+		}
+		if (namespaceLength == windowSlide && timer.getTimestamp() == getCleanupTime(namespace.getStart())) {
+			getPaneState(namespace.getStart()).clear();
+		}
+	}
+
+	@Override
+	public void onProcessingTime(InternalTimer<K, TimeWindow> timer) throws Exception {
+		// this operator does not register processing-time timers
+	}
+
+	/**
+	 * Combines the aggregates of the panes of the given window and emits the result.
+	 */
+	private void fireWindow(K key, TimeWindow window) throws Exception {
+		ReduceFunction<IN> reduceFunction = paneStateDescriptor.getReduceFunction();
+		TypeSerializer<IN> serializer = paneStateDescriptor.getSerializer();
+
+		IN result = null;
+		for (long paneStart = window.getStart(); paneStart < window.getEnd(); paneStart += windowSlide) {
+			IN paneValue = getPaneState(paneStart).get();
+			if (paneValue == null) {
+				continue;
+			}
+			// the reduce function may modify its first argument, so the pane aggregate must be copied
+			result = result == null ? serializer.copy(paneValue) : reduceFunction.reduce(result, paneValue);
+		}
+
+		if (result != null) {
+			timestampedCollector.setAbsoluteTimestamp(window.maxTimestamp());
+			userFunction.apply(key, window, result, timestampedCollector);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  Utilities
+	// ------------------------------------------------------------------------
+
+	private ReducingState<IN> getPaneState(long paneStart) throws Exception {
+		return getPartitionedState(new TimeWindow(paneStart, paneStart + windowSlide), windowSerializer, paneStateDescriptor);
+	}
+
+	/**
+	 * Checks whether the window is past its allowed lateness, i.e., whether it will never fire again.
+	 */
+	private boolean isExpired(TimeWindow window, long watermark) {
+		return window.maxTimestamp() + allowedLateness <= watermark;
+	}
+
+	/**
+	 * Returns the time at which the pane can be removed. This is one millisecond after the last
+	 * window that contains the pane expired, so that the timer of the pane never fires before
+	 * the last timer of that window.
+	 */
+	private long getCleanupTime(long paneStart) {
+		return paneStart + windowSize + allowedLateness;
+	}
+
+	// ------------------------------------------------------------------------
+	// Getters for testing
+	// ------------------------------------------------------------------------
+
+	@VisibleForTesting
+	public KeySelector<IN, K> getKeySelector() {
+		return keySelector;
+	}
+
+	@VisibleForTesting
+	public long getWindowSize() {
+		return windowSize;
+	}
+
+	@VisibleForTesting
+	public long getWindowSlide() {
+		return windowSlide;
+	}
+
+	@VisibleForTesting
+	public long getAllowedLateness() {
+		return allowedLateness;
+	}
+
+	@VisibleForTesting
+	public InternalTimerService<TimeWindow> getInternalTimerService() {
+		return internalTimerService;
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.runtime.operators.windowing;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+
+/**
+ * Buffer that keeps the aggregate of a sliding sequence of elements, to which elements are
+ * appended at the end and from which elements are evicted at the beginning. Appending, evicting
+ * and retrieving the aggregate take amortized constant time, i.e., each element is reduced a
+ * constant number of times, independent of how often the aggregate is retrieved.
+ *
+ * <p>The buffer consists of two stacks. New elements are pushed to the back stack, together with
+ * the aggregate of all elements of the back stack. The front stack holds, for each of its
+ * elements, the aggregate of that element and all newer elements of the front stack. Elements are
+ * evicted from the front stack. When it is empty, the elements of the back stack are moved to the
+ * front stack. The aggregate of the buffer combines the aggregates of both stacks.
+ *
+ * <p>The buffer is a view on keyed state: each stack is a {@link MapState} from the position in
+ * the stack to the element or aggregate, and the sizes of the stacks are kept in a separate
+ * {@link ValueState}. Every operation therefore reads and writes a constant number of state
+ * entries, rather than (de)serializing the whole buffer.
+ *
+ * <p>The reduce function must be associative, as for all incremental window aggregations.
+ *
+ * @param <T> The type of the elements and of the aggregate.
+ */
+@Internal
+public class SlidingReduceBuffer<T> {
+
+	/** Position of the aggregate of the back stack in the map of the back stack. */
+	private static final int BACK_AGGREGATE = -1;
+
+	private static final int FRONT = 0;
+
+	private static final int BACK = 1;
+
+	/** The aggregates of the front stack, the oldest element has the highest position. */
+	private final MapState<Integer, T> frontAggregates;
+
+	/** The elements of the back stack, the newest element has the highest position. */
+	private final MapState<Integer, T> backElements;
+
+	/** The sizes of the front and the back stack, or null, if the buffer is empty. */
+	private final ValueState<int[]> sizes;
+
+	public SlidingReduceBuffer(MapState<Integer, T> frontAggregates, MapState<Integer, T> backElements, ValueState<int[]> sizes) {
+		this.frontAggregates = frontAggregates;
+		this.backElements = backElements;
+		this.sizes = sizes;
+	}
+
+	/**
+	 * Returns the number of elements in the buffer.
+	 */
+	public int size() throws Exception {
+		int[] stackSizes = sizes.value();
+		return stackSizes == null ? 0 : stackSizes[FRONT] + stackSizes[BACK];
+	}
+
+	/**
+	 * Appends the given element to the end of the buffer.
+	 */
+	public void add(T element, ReduceFunction<T> reduceFunction, TypeSerializer<T> serializer) throws Exception {
+		int[] stackSizes = getSizes();
+
+		backElements.put(stackSizes[BACK]++, element);
+
+		// the reduce function may modify and return its arguments, so it only gets copies
+		// of elements that are kept in the buffer
+		T backAggregate = backElements.get(BACK_AGGREGATE);
+		backAggregate = backAggregate == null ?
+				serializer.copy(element) :
+				reduceFunction.reduce(backAggregate, serializer.copy(element));
+		backElements.put(BACK_AGGREGATE, backAggregate);
+
+		sizes.update(stackSizes);
+	}
+
+	/**
+	 * Removes the oldest elements from the buffer, until it holds at most the given number of elements.
+	 */
+	public void evictToSize(long maxSize, ReduceFunction<T> reduceFunction, TypeSerializer<T> serializer) throws Exception {
+		int[] stackSizes = getSizes();
+		if (stackSizes[FRONT] + stackSizes[BACK] <= maxSize) {
+			return;
+		}
+
+		while (stackSizes[FRONT] + stackSizes[BACK] > maxSize) {
+			if (stackSizes[FRONT] == 0) {
+				moveBackToFront(stackSizes, reduceFunction, serializer);
+			}
+			frontAggregates.remove(--stackSizes[FRONT]);
+		}
+
+		sizes.update(stackSizes);
+	}
+
+	/**
+	 * Returns the aggregate of all elements in the buffer, or null, if the buffer is empty. The
+	 * returned object is not referenced by the buffer.
+	 */
+	public T getAggregate(ReduceFunction<T> reduceFunction, TypeSerializer<T> serializer) throws Exception {
+		int[] stackSizes = sizes.value();
+		if (stackSizes == null) {
+			return null;
+		}
+
+		T frontAggregate = stackSizes[FRONT] == 0 ? null : frontAggregates.get(stackSizes[FRONT] - 1);
+		T backAggregate = stackSizes[BACK] == 0 ? null : backElements.get(BACK_AGGREGATE);
+
+		if (frontAggregate == null) {
+			return backAggregate == null ? null : serializer.copy(backAggregate);
+		} else if (backAggregate == null) {
+			return serializer.copy(frontAggregate);
+		} else {
+			return reduceFunction.reduce(serializer.copy(frontAggregate), serializer.copy(backAggregate));
+		}
+	}
+
+	/**
+	 * Removes all elements from the buffer.
+	 */
+	public void clear() {
+		frontAggregates.clear();
+		backElements.clear();
+		sizes.clear();
+	}
+
+	private int[] getSizes() throws Exception {
+		int[] stackSizes = sizes.value();
+		return stackSizes == null ? new int[2] : stackSizes;
+	}
+
+	private void moveBackToFront(int[] stackSizes, ReduceFunction<T> reduceFunction, TypeSerializer<T> serializer) throws Exception {
+		// the newest element ends up at the bottom of the front stack
+		T aggregate = null;
+		for (int i = stackSizes[BACK] - 1; i >= 0; i--) {
+			T element = backElements.get(i);
+			aggregate = aggregate == null ?
+					element :
+					reduceFunction.reduce(element, serializer.copy(aggregate));
+			frontAggregates.put(stackSizes[FRONT]++, aggregate);
+		}
+
+		backElements.clear();
+		stackSizes[BACK] = 0;
+	}
+}
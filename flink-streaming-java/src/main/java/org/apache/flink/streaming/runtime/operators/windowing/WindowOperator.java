@@ -19,14 +19,14 @@
 package org.apache.flink.streaming.runtime.operators.windowing;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.HashMultiset;
-import com.google.common.collect.Multiset;
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.functions.ReduceFunction;
 import org.apache.flink.api.common.state.AppendingState;
 import org.apache.flink.api.common.state.ListState;
 import org.apache.flink.api.common.state.ListStateDescriptor;
 import org.apache.flink.api.common.state.MergingState;
+import org.apache.flink.api.common.state.ReducingStateDescriptor;
 import org.apache.flink.api.common.state.State;
 import org.apache.flink.api.common.state.StateDescriptor;
 import org.apache.flink.api.common.state.ValueState;
@@ -40,12 +40,11 @@ import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.api.java.typeutils.InputTypeConfigurable;
 import org.apache.flink.api.java.typeutils.TypeExtractor;
 import org.apache.flink.api.java.typeutils.runtime.TupleSerializer;
-import org.apache.flink.core.memory.DataInputView;
-import org.apache.flink.core.memory.DataOutputView;
-import org.apache.flink.runtime.state.AbstractStateBackend;
-import org.apache.flink.runtime.state.StateHandle;
 import org.apache.flink.streaming.api.operators.AbstractUdfStreamOperator;
 import org.apache.flink.streaming.api.operators.ChainingStrategy;
+import org.apache.flink.streaming.api.operators.InternalTimer;
+import org.apache.flink.streaming.api.operators.InternalTimerCallback;
+import org.apache.flink.streaming.api.operators.InternalTimerService;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
 import org.apache.flink.streaming.api.operators.TimestampedCollector;
 import org.apache.flink.streaming.api.watermark.Watermark;
@@ -54,21 +53,13 @@ import org.apache.flink.streaming.api.windowing.assigners.WindowAssigner;
 import org.apache.flink.streaming.api.windowing.triggers.Trigger;
 import org.apache.flink.streaming.api.windowing.triggers.TriggerResult;
 import org.apache.flink.streaming.api.windowing.windows.Window;
-import org.apache.flink.streaming.runtime.operators.Triggerable;
 import org.apache.flink.streaming.runtime.operators.windowing.functions.InternalWindowFunction;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
-import org.apache.flink.streaming.runtime.tasks.StreamTaskState;
 
-import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Set;
-import java.util.concurrent.ScheduledFuture;
 
 import static java.util.Objects.requireNonNull;
 
@@ -89,6 +80,16 @@ import static java.util.Objects.requireNonNull;
  * the given {@link InternalWindowFunction} is invoked to produce the results that are emitted for
  * the pane to which the {@code Trigger} belongs.
  *
+ * <p>
+ * If the mini-batch mode is enabled in the {@link ExecutionConfig} and the windows are reduced
+ * with a {@link ReducingStateDescriptor} and do not merge, the elements of a batch are reduced
+ * per pane in a local map first and added to the window state once per batch. The trigger is
+ * still evaluated for every element, and the batched value of a pane is added to its state
+ * before the pane fires or is purged, so the emitted results do not change. The batch is added
+ * to the state when it reaches the maximum size, before checkpoint barriers are forwarded,
+ * and when the operator is closed. Merging windows are not batched, because merging the state
+ * of windows requires their state to be current.
+ *
  * @param <K> The type of key returned by the {@code KeySelector}.
  * @param <IN> The type of the incoming elements.
  * @param <OUT> The type of elements emitted by the {@code InternalWindowFunction}.
@@ -97,7 +98,7 @@ import static java.util.Objects.requireNonNull;
 @Internal
 public class WindowOperator<K, IN, ACC, OUT, W extends Window>
 	extends AbstractUdfStreamOperator<OUT, InternalWindowFunction<ACC, OUT, K, W>>
-	implements OneInputStreamOperator<IN, OUT>, Triggerable, InputTypeConfigurable {
+	implements OneInputStreamOperator<IN, OUT>, InternalTimerCallback<K, W>, InputTypeConfigurable {
 
 	private static final long serialVersionUID = 1L;
 
@@ -138,14 +139,6 @@ public class WindowOperator<K, IN, ACC, OUT, W extends Window>
 	 */
 	protected transient TimestampedCollector<OUT> timestampedCollector;
 
-	protected transient Map<Long, ScheduledFuture<?>> processingTimeTimerFutures;
-
-	/**
-	 * To keep track of the current watermark so that we can immediately fire if a trigger
-	 * registers an event time callback for a timestamp that lies in the past.
-	 */
-	protected transient long currentWatermark = Long.MIN_VALUE;
-
 	protected transient Context context = new Context(null, null);
 
 	// ------------------------------------------------------------------------
@@ -153,19 +146,34 @@ public class WindowOperator<K, IN, ACC, OUT, W extends Window>
 	// ------------------------------------------------------------------------
 
 	/**
-	 * Processing time timers that are currently in-flight.
+	 * The timers of the triggers, per key and window. The timers are checkpointed and restored
+	 * by the timer service.
+	 */
+	protected transient InternalTimerService<W> internalTimerService;
+
+	/**
+	 * The merging windows of the key that is currently processed, if the window assigner merges
+	 * windows. The merging windows are kept in keyed state. They are loaded when an element or
+	 * timer of a key is processed and written back afterwards, so that only the windows of one
+	 * key are kept on the heap.
 	 */
-	protected transient PriorityQueue<Timer<K, W>> processingTimeTimersQueue;
-	protected transient Set<Timer<K, W>> processingTimeTimers;
-	protected transient Multiset<Long> processingTimeTimerTimestamps;
+	protected transient MergingWindowSet<W> currentMergingWindows;
+
+	private transient ListStateDescriptor<Tuple2<W, W>> mergingWindowsStateDescriptor;
 
 	/**
-	 * Current waiting watermark callbacks.
+	 * The locally reduced values of the current mini-batch per key and window, or null, if the
+	 * mini-batch mode is disabled or the windows are not batched.
 	 */
-	protected transient Set<Timer<K, W>> watermarkTimers;
-	protected transient PriorityQueue<Timer<K, W>> watermarkTimersQueue;
+	private transient Map<Object, Map<W, IN>> batch;
+
+	private transient ReduceFunction<IN> batchReduceFunction;
+
+	private transient int batchSize;
 
-	protected transient Map<K, MergingWindowSet<W>> mergingWindowsByKey;
+	private transient int maxBatchSize;
+
+	private transient boolean objectReuse;
 
 	/**
 	 * Creates a new {@code WindowOperator} based on the given policies and user functions.
@@ -191,11 +199,6 @@ public class WindowOperator<K, IN, ACC, OUT, W extends Window>
 		setChainingStrategy(ChainingStrategy.ALWAYS);
 	}
 
-	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
-		in.defaultReadObject();
-		currentWatermark = -1;
-	}
-
 	@Override
 	@SuppressWarnings("unchecked")
 	public final void setInputType(TypeInformation<?> type, ExecutionConfig executionConfig) {
@@ -213,52 +216,48 @@ public class WindowOperator<K, IN, ACC, OUT, W extends Window>
 			throw new IllegalStateException("Input serializer was not set.");
 		}
 
-		// these could already be initialized from restoreState()
-		if (watermarkTimers == null) {
-			watermarkTimers = new HashSet<>();
-			watermarkTimersQueue = new PriorityQueue<>(100);
-		}
-		if (processingTimeTimers == null) {
-			processingTimeTimers = new HashSet<>();
-			processingTimeTimerTimestamps = HashMultiset.create();
-			processingTimeTimersQueue = new PriorityQueue<>(100);
-		}
-
-		//ScheduledFutures are not checkpointed
-		processingTimeTimerFutures = new HashMap<>();
+		// this also adds the timers that were restored in restoreState()
+		internalTimerService = getInternalTimerService("window-timers", windowSerializer, this);
 
 		context = new Context(null, null);
 
 		if (windowAssigner instanceof MergingWindowAssigner) {
-			mergingWindowsByKey = new HashMap<>();
+			@SuppressWarnings({"unchecked", "rawtypes"})
+			TupleSerializer<Tuple2<W, W>> tupleSerializer = new TupleSerializer<>((Class) Tuple2.class, new TypeSerializer[] {windowSerializer, windowSerializer} );
+			mergingWindowsStateDescriptor = new ListStateDescriptor<>("merging-window-set", tupleSerializer);
 		}
 
-		currentWatermark = Long.MIN_VALUE;
-
+		if (getExecutionConfig().isMiniBatchEnabled()
+				&& windowStateDescriptor instanceof ReducingStateDescriptor
+				&& !(windowAssigner instanceof MergingWindowAssigner)) {
+			batch = new HashMap<>();
+			batchReduceFunction = ((ReducingStateDescriptor<IN>) windowStateDescriptor).getReduceFunction();
+			batchSize = 0;
+			maxBatchSize = getExecutionConfig().getMiniBatchSize();
+			objectReuse = getExecutionConfig().isObjectReuseEnabled();
+		}
 	}
 
 	@Override
 	public final void close() throws Exception {
+		if (batch != null) {
+			processBatch();
+		}
 		super.close();
 		timestampedCollector = null;
-		watermarkTimers = null;
-		watermarkTimersQueue = null;
-		processingTimeTimers = null;
-		processingTimeTimersQueue = null;
+		internalTimerService = null;
 		context = null;
-		mergingWindowsByKey = null;
+		currentMergingWindows = null;
 	}
 
 	@Override
 	public void dispose() {
 		super.dispose();
 		timestampedCollector = null;
-		watermarkTimers = null;
-		watermarkTimersQueue = null;
-		processingTimeTimers = null;
-		processingTimeTimersQueue = null;
+		internalTimerService = null;
 		context = null;
-		mergingWindowsByKey = null;
+		currentMergingWindows = null;
+		batch = null;
 	}
 
 	@Override
@@ -320,13 +319,20 @@ public class WindowOperator<K, IN, ACC, OUT, W extends Window>
 				processTriggerResult(combinedTriggerResult, actualWindow);
 			}
 
+			persistMergingWindowSet();
+
 		} else {
 			for (W window: elementWindows) {
 
-				AppendingState<IN, ACC> windowState = getPartitionedState(window, windowSerializer,
-						windowStateDescriptor);
+				if (batch != null) {
+					// the same element must not be held by the batch of several panes
+					addToBatch(key, window, element.getValue(), elementWindows.size() > 1);
+				} else {
+					AppendingState<IN, ACC> windowState = getPartitionedState(window, windowSerializer,
+							windowStateDescriptor);
 
-				windowState.add(element.getValue());
+					windowState.add(element.getValue());
+				}
 
 				context.key = key;
 				context.window = window;
@@ -334,29 +340,37 @@ public class WindowOperator<K, IN, ACC, OUT, W extends Window>
 
 				processTriggerResult(triggerResult, window);
 			}
+
+			if (batch != null && batchSize >= maxBatchSize) {
+				processBatch();
+			}
 		}
 	}
 
 	/**
 	 * Retrieves the {@link MergingWindowSet} for the currently active key. The caller must
-	 * ensure that the correct key is set in the state backend.
+	 * ensure that the correct key is set in the state backend, and must call
+	 * {@link #persistMergingWindowSet()} once it finished processing the key.
 	 */
 	@SuppressWarnings("unchecked")
 	protected MergingWindowSet<W> getMergingWindowSet() throws Exception {
-		MergingWindowSet<W> mergingWindows = mergingWindowsByKey.get((K) getStateBackend().getCurrentKey());
-		if (mergingWindows == null) {
-			// try to retrieve from state
-
-			TupleSerializer<Tuple2<W, W>> tupleSerializer = new TupleSerializer<>((Class) Tuple2.class, new TypeSerializer[] {windowSerializer, windowSerializer} );
-			ListStateDescriptor<Tuple2<W, W>> mergeStateDescriptor = new ListStateDescriptor<>("merging-window-set", tupleSerializer);
-			ListState<Tuple2<W, W>> mergeState = getStateBackend().getPartitionedState(null, VoidSerializer.INSTANCE, mergeStateDescriptor);
-
-			mergingWindows = new MergingWindowSet<>((MergingWindowAssigner<? super IN, W>) windowAssigner, mergeState);
-			mergeState.clear();
+		if (currentMergingWindows == null) {
+			ListState<Tuple2<W, W>> mergeState = getStateBackend().getPartitionedState(
+					null, VoidSerializer.INSTANCE, mergingWindowsStateDescriptor);
+			currentMergingWindows = new MergingWindowSet<>((MergingWindowAssigner<? super IN, W>) windowAssigner, mergeState);
+		}
+		return currentMergingWindows;
+	}
 
-			mergingWindowsByKey.put((K) getStateBackend().getCurrentKey(), mergingWindows);
+	/**
+	 * Writes the {@link MergingWindowSet} of the currently active key back to the keyed state,
+	 * if it was retrieved and changed.
+	 */
+	protected void persistMergingWindowSet() throws Exception {
+		if (currentMergingWindows != null) {
+			currentMergingWindows.persist();
+			currentMergingWindows = null;
 		}
-		return mergingWindows;
 	}
 
 
@@ -382,6 +396,10 @@ public class WindowOperator<K, IN, ACC, OUT, W extends Window>
 
 		} else {
 			windowState = getPartitionedState(window, windowSerializer, windowStateDescriptor);
+
+			if (batch != null) {
+				addBatchedPane(context.key, window, windowState);
+			}
 		}
 
 		if (triggerResult.isFire()) {
@@ -400,67 +418,88 @@ public class WindowOperator<K, IN, ACC, OUT, W extends Window>
 		}
 	}
 
+	@Override
+	public void prepareSnapshotPreBarrier(long checkpointId) throws Exception {
+		// the batch is not part of the checkpoint, so it must be added to the window state
+		// before the barrier
+		if (batch != null) {
+			processBatch();
+		}
+	}
+
 	@Override
 	public final void processWatermark(Watermark mark) throws Exception {
-		processTriggersFor(mark);
+		advanceWatermark(mark.getTimestamp());
 
 		output.emitWatermark(mark);
+	}
 
-		this.currentWatermark = mark.getTimestamp();
+	@Override
+	public final void onEventTime(InternalTimer<K, W> timer) throws Exception {
+		context.key = timer.getKey();
+		context.window = timer.getNamespace();
+		TriggerResult triggerResult = context.onEventTime(timer.getTimestamp());
+		processTriggerResult(triggerResult, context.window);
+		persistMergingWindowSet();
 	}
 
-	private void processTriggersFor(Watermark mark) throws Exception {
-		boolean fire;
+	@Override
+	public final void onProcessingTime(InternalTimer<K, W> timer) throws Exception {
+		context.key = timer.getKey();
+		context.window = timer.getNamespace();
+		TriggerResult triggerResult = context.onProcessingTime(timer.getTimestamp());
+		processTriggerResult(triggerResult, context.window);
+		persistMergingWindowSet();
+	}
 
-		do {
-			Timer<K, W> timer = watermarkTimersQueue.peek();
-			if (timer != null && timer.timestamp <= mark.getTimestamp()) {
-				fire = true;
+	// ------------------------------------------------------------------------
+	//  Mini-batch mode
+	// ------------------------------------------------------------------------
+
+	private void addToBatch(K key, W window, IN element, boolean copy) throws Exception {
+		// the input objects are reused if object reuse is enabled, so we cannot hold on to them
+		IN value = copy || objectReuse ? inputSerializer.copy(element) : element;
+
+		Map<W, IN> panes = batch.get(key);
+		if (panes == null) {
+			panes = new HashMap<>();
+			batch.put(key, panes);
+		}
+
+		IN reduced = panes.get(window);
+		panes.put(window, reduced != null ? batchReduceFunction.reduce(reduced, value) : value);
 
-				watermarkTimers.remove(timer);
-				watermarkTimersQueue.remove();
+		batchSize++;
+	}
 
-				context.key = timer.key;
-				context.window = timer.window;
-				setKeyContext(timer.key);
-				TriggerResult triggerResult = context.onEventTime(timer.timestamp);
-				processTriggerResult(triggerResult, context.window);
-			} else {
-				fire = false;
+	/**
+	 * Adds the batched value of the given pane of the currently active key to its window state,
+	 * so that the state is current when the pane fires or is purged.
+	 */
+	private void addBatchedPane(K key, W window, AppendingState<IN, ACC> windowState) throws Exception {
+		Map<W, IN> panes = batch.get(key);
+		if (panes != null) {
+			IN reduced = panes.remove(window);
+			if (reduced != null) {
+				windowState.add(reduced);
+			}
+			if (panes.isEmpty()) {
+				batch.remove(key);
 			}
-		} while (fire);
+		}
 	}
 
-	@Override
-	public final void trigger(long time) throws Exception {
-		boolean fire;
-
-		//Remove information about the triggering task
-		processingTimeTimerFutures.remove(time);
-		processingTimeTimerTimestamps.remove(time, processingTimeTimerTimestamps.count(time));
-
-		do {
-			Timer<K, W> timer = processingTimeTimersQueue.peek();
-			if (timer != null && timer.timestamp <= time) {
-				fire = true;
-
-				processingTimeTimers.remove(timer);
-				processingTimeTimersQueue.remove();
-
-				context.key = timer.key;
-				context.window = timer.window;
-				setKeyContext(timer.key);
-				TriggerResult triggerResult = context.onProcessingTime(timer.timestamp);
-				processTriggerResult(triggerResult, context.window);
-			} else {
-				fire = false;
+	private void processBatch() throws Exception {
+		for (Map.Entry<Object, Map<W, IN>> keyEntry : batch.entrySet()) {
+			setKeyContext(keyEntry.getKey());
+
+			for (Map.Entry<W, IN> pane : keyEntry.getValue().entrySet()) {
+				getPartitionedState(pane.getKey(), windowSerializer, windowStateDescriptor).add(pane.getValue());
 			}
-		} while (fire);
+		}
 
-		// Also check any watermark timers. We might have some in here since
-		// Context.registerEventTimeTimer sets a trigger if an event-time trigger is registered
-		// that is already behind the watermark.
-		processTriggersFor(new Watermark(currentWatermark));
+		batch.clear();
+		batchSize = 0;
 	}
 
 	/**
@@ -480,7 +519,7 @@ public class WindowOperator<K, IN, ACC, OUT, W extends Window>
 		}
 
 		public long getCurrentWatermark() {
-			return currentWatermark;
+			return internalTimerService.currentWatermark();
 		}
 
 		@Override
@@ -539,57 +578,22 @@ public class WindowOperator<K, IN, ACC, OUT, W extends Window>
 
 		@Override
 		public void registerProcessingTimeTimer(long time) {
-			Timer<K, W> timer = new Timer<>(time, key, window);
-			// make sure we only put one timer per key into the queue
-			if (processingTimeTimers.add(timer)) {
-				processingTimeTimersQueue.add(timer);
-				//If this is the first timer added for this timestamp register a TriggerTask
-				if (processingTimeTimerTimestamps.add(time, 1) == 0) {
-					ScheduledFuture<?> scheduledFuture= getRuntimeContext().registerTimer(time, WindowOperator.this);
-					processingTimeTimerFutures.put(time, scheduledFuture);
-				}
-			}
+			internalTimerService.registerProcessingTimeTimer(window, time);
 		}
 
 		@Override
 		public void registerEventTimeTimer(long time) {
-			Timer<K, W> timer = new Timer<>(time, key, window);
-			if (watermarkTimers.add(timer)) {
-				watermarkTimersQueue.add(timer);
-			}
-
-			if (time <= currentWatermark) {
-				// immediately schedule a trigger, so that we don't wait for the next
-				// watermark update to fire the watermark trigger
-				getRuntimeContext().registerTimer(System.currentTimeMillis(), WindowOperator.this);
-				//No need to put it in processingTimeTimerFutures as this timer is never removed
-			}
+			internalTimerService.registerEventTimeTimer(window, time);
 		}
 
 		@Override
 		public void deleteProcessingTimeTimer(long time) {
-			Timer<K, W> timer = new Timer<>(time, key, window);
-
-			if (processingTimeTimers.remove(timer)) {
-				processingTimeTimersQueue.remove(timer);
-			}
-
-			//If there are no timers left for this timestamp, remove it from queue and cancel TriggerTask
-			if (processingTimeTimerTimestamps.remove(time,1) == 1) {
-				ScheduledFuture<?> triggerTaskFuture = processingTimeTimerFutures.remove(timer.timestamp);
-				if (triggerTaskFuture != null && !triggerTaskFuture.isDone()) {
-					triggerTaskFuture.cancel(false);
-				}
-			}
+			internalTimerService.deleteProcessingTimeTimer(window, time);
 		}
 
 		@Override
 		public void deleteEventTimeTimer(long time) {
-			Timer<K, W> timer = new Timer<>(time, key, window);
-			if (watermarkTimers.remove(timer)) {
-				watermarkTimersQueue.remove(timer);
-			}
-
+			internalTimerService.deleteEventTimeTimer(window, time);
 		}
 
 		public TriggerResult onElement(StreamRecord<IN> element) throws Exception {
@@ -623,164 +627,15 @@ public class WindowOperator<K, IN, ACC, OUT, W extends Window>
 	}
 
 
-	/**
-	 * Internal class for keeping track of in-flight timers.
-	 */
-	protected static class Timer<K, W extends Window> implements Comparable<Timer<K, W>> {
-		protected long timestamp;
-		protected K key;
-		protected W window;
-
-		public Timer(long timestamp, K key, W window) {
-			this.timestamp = timestamp;
-			this.key = key;
-			this.window = window;
-		}
-
-		@Override
-		public int compareTo(Timer<K, W> o) {
-			return Long.compare(this.timestamp, o.timestamp);
-		}
-
-		@Override
-		public boolean equals(Object o) {
-			if (this == o) {
-				return true;
-			}
-			if (o == null || getClass() != o.getClass()){
-				return false;
-			}
-
-			Timer<?, ?> timer = (Timer<?, ?>) o;
-
-			return timestamp == timer.timestamp
-				&& key.equals(timer.key)
-				&& window.equals(timer.window);
-
-		}
-
-		@Override
-		public int hashCode() {
-			int result = (int) (timestamp ^ (timestamp >>> 32));
-			result = 31 * result + key.hashCode();
-			result = 31 * result + window.hashCode();
-			return result;
-		}
-
-		@Override
-		public String toString() {
-			return "Timer{" +
-				"timestamp=" + timestamp +
-				", key=" + key +
-				", window=" + window +
-				'}';
-		}
-	}
-
 	// ------------------------------------------------------------------------
-	//  Checkpointing
+	// Getters for testing
 	// ------------------------------------------------------------------------
 
-	@Override
-	@SuppressWarnings("unchecked")
-	public StreamTaskState snapshotOperatorState(long checkpointId, long timestamp) throws Exception {
-
-		if (mergingWindowsByKey != null) {
-			TupleSerializer<Tuple2<W, W>> tupleSerializer = new TupleSerializer<>((Class) Tuple2.class, new TypeSerializer[] {windowSerializer, windowSerializer} );
-			ListStateDescriptor<Tuple2<W, W>> mergeStateDescriptor = new ListStateDescriptor<>("merging-window-set", tupleSerializer);
-			for (Map.Entry<K, MergingWindowSet<W>> key: mergingWindowsByKey.entrySet()) {
-				setKeyContext(key.getKey());
-				ListState<Tuple2<W, W>> mergeState = getStateBackend().getPartitionedState(null, VoidSerializer.INSTANCE, mergeStateDescriptor);
-				mergeState.clear();
-				key.getValue().persist(mergeState);
-			}
-		}
-
-		StreamTaskState taskState = super.snapshotOperatorState(checkpointId, timestamp);
-
-		AbstractStateBackend.CheckpointStateOutputView out =
-			getStateBackend().createCheckpointStateOutputView(checkpointId, timestamp);
-
-		snapshotTimers(out);
-
-		taskState.setOperatorState(out.closeAndGetHandle());
-
-		return taskState;
-	}
-
-	@Override
-	public void restoreState(StreamTaskState taskState, long recoveryTimestamp) throws Exception {
-		super.restoreState(taskState, recoveryTimestamp);
-
-		final ClassLoader userClassloader = getUserCodeClassloader();
-
-		@SuppressWarnings("unchecked")
-		StateHandle<DataInputView> inputState = (StateHandle<DataInputView>) taskState.getOperatorState();
-		DataInputView in = inputState.getState(userClassloader);
-
-		restoreTimers(in);
-	}
-
-	private void restoreTimers(DataInputView in ) throws IOException {
-		int numWatermarkTimers = in.readInt();
-		watermarkTimers = new HashSet<>(numWatermarkTimers);
-		watermarkTimersQueue = new PriorityQueue<>(Math.max(numWatermarkTimers, 1));
-		for (int i = 0; i < numWatermarkTimers; i++) {
-			K key = keySerializer.deserialize(in);
-			W window = windowSerializer.deserialize(in);
-			long timestamp = in.readLong();
-			Timer<K, W> timer = new Timer<>(timestamp, key, window);
-			watermarkTimers.add(timer);
-			watermarkTimersQueue.add(timer);
-		}
-
-		int numProcessingTimeTimers = in.readInt();
-		processingTimeTimersQueue = new PriorityQueue<>(Math.max(numProcessingTimeTimers, 1));
-		processingTimeTimers = new HashSet<>();
-		for (int i = 0; i < numProcessingTimeTimers; i++) {
-			K key = keySerializer.deserialize(in);
-			W window = windowSerializer.deserialize(in);
-			long timestamp = in.readLong();
-			Timer<K, W> timer = new Timer<>(timestamp, key, window);
-			processingTimeTimersQueue.add(timer);
-			processingTimeTimers.add(timer);
-		}
-
-		int numProcessingTimeTimerTimestamp = in.readInt();
-		processingTimeTimerTimestamps = HashMultiset.create();
-		for (int i = 0; i< numProcessingTimeTimerTimestamp; i++) {
-			long timestamp = in.readLong();
-			int count = in.readInt();
-			processingTimeTimerTimestamps.add(timestamp, count);
-		}
-	}
-
-	private void snapshotTimers(DataOutputView out) throws IOException {
-		out.writeInt(watermarkTimersQueue.size());
-		for (Timer<K, W> timer : watermarkTimersQueue) {
-			keySerializer.serialize(timer.key, out);
-			windowSerializer.serialize(timer.window, out);
-			out.writeLong(timer.timestamp);
-		}
-
-		out.writeInt(processingTimeTimers.size());
-		for (Timer<K,W> timer : processingTimeTimers) {
-			keySerializer.serialize(timer.key, out);
-			windowSerializer.serialize(timer.window, out);
-			out.writeLong(timer.timestamp);
-		}
-
-		out.writeInt(processingTimeTimerTimestamps.entrySet().size());
-		for (Multiset.Entry<Long> timerTimestampCounts: processingTimeTimerTimestamps.entrySet()) {
-			out.writeLong(timerTimestampCounts.getElement());
-			out.writeInt(timerTimestampCounts.getCount());
-		}
+	@VisibleForTesting
+	public InternalTimerService<W> getInternalTimerService() {
+		return internalTimerService;
 	}
 
-	// ------------------------------------------------------------------------
-	// Getters for testing
-	// ------------------------------------------------------------------------
-
 	@VisibleForTesting
 	public Trigger<? super IN, ? super W> getTrigger() {
 		return trigger;
@@ -20,6 +20,7 @@ package org.apache.flink.streaming.runtime.partitioner;
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.api.java.functions.KeySelector;
 import org.apache.flink.runtime.plugable.SerializationDelegate;
+import org.apache.flink.runtime.state.KeyGroupAssigner;
 import org.apache.flink.util.MathUtils;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 
@@ -36,6 +37,9 @@ public class HashPartitioner<T> extends StreamPartitioner<T> {
 	private int[] returnArray = new int[1];
 	KeySelector<T, ?> keySelector;
 
+	/** The number of key groups, or -1, if the key/value state is not partitioned by key groups */
+	private int numberOfKeyGroups = -1;
+
 	public HashPartitioner(KeySelector<T, ?> keySelector) {
 		this.keySelector = keySelector;
 	}
@@ -49,11 +53,27 @@ public class HashPartitioner<T> extends StreamPartitioner<T> {
 		} catch (Exception e) {
 			throw new RuntimeException("Could not extract key from " + record.getInstance().getValue(), e);
 		}
-		returnArray[0] = MathUtils.murmurHash(key.hashCode()) % numberOfOutputChannels;
+		if (numberOfKeyGroups > 0) {
+			// send the key to the channel that holds the state of the key's key group
+			returnArray[0] = KeyGroupAssigner.getOperatorIndexForKeyGroup(
+				KeyGroupAssigner.getKeyGroupIndex(key, numberOfKeyGroups), numberOfOutputChannels);
+		} else {
+			returnArray[0] = MathUtils.murmurHash(key.hashCode()) % numberOfOutputChannels;
+		}
 
 		return returnArray;
 	}
 
+	/**
+	 * Sets the number of key groups of the job. The keys are then assigned to the channels
+	 * in the same way in which the key groups are assigned to the parallel operator instances.
+	 *
+	 * @param numberOfKeyGroups The number of key groups, or -1, if there are no key groups.
+	 */
+	public void setNumberOfKeyGroups(int numberOfKeyGroups) {
+		this.numberOfKeyGroups = numberOfKeyGroups;
+	}
+
 	@Override
 	public StreamPartitioner<T> copy() {
 		return this;
@@ -43,6 +43,8 @@ public final class MultiplexingStreamRecordSerializer<T> extends TypeSerializer<
 	private static final int TAG_REC_WITH_TIMESTAMP = 0;
 	private static final int TAG_REC_WITHOUT_TIMESTAMP = 1;
 	private static final int TAG_WATERMARK = 2;
+	private static final int TAG_STREAM_STATUS_IDLE = 3;
+	private static final int TAG_STREAM_STATUS_ACTIVE = 4;
 	
 	
 	private final TypeSerializer<T> typeSerializer;
@@ -95,7 +97,7 @@ public final class MultiplexingStreamRecordSerializer<T> extends TypeSerializer<
 			StreamRecord<T> fromRecord = from.asRecord();
 			return fromRecord.copy(typeSerializer.copy(fromRecord.getValue()));
 		}
-		else if (from.isWatermark()) {
+		else if (from.isWatermark() || from.isStreamStatus()) {
 			// is immutable
 			return from;
 		}
@@ -114,7 +116,7 @@ public final class MultiplexingStreamRecordSerializer<T> extends TypeSerializer<
 			fromRecord.copyTo(valueCopy, reuseRecord);
 			return reuse;
 		}
-		else if (from.isWatermark()) {
+		else if (from.isWatermark() || from.isStreamStatus()) {
 			// is immutable
 			return from;
 		}
@@ -139,6 +141,9 @@ public final class MultiplexingStreamRecordSerializer<T> extends TypeSerializer<
 		else if (tag == TAG_WATERMARK) {
 			target.writeLong(source.readLong());
 		}
+		else if (tag == TAG_STREAM_STATUS_IDLE || tag == TAG_STREAM_STATUS_ACTIVE) {
+			// the tag is the whole status
+		}
 		else {
 			throw new IOException("Corrupt stream, found tag: " + tag);
 		}
@@ -161,6 +166,9 @@ public final class MultiplexingStreamRecordSerializer<T> extends TypeSerializer<
 			target.write(TAG_WATERMARK);
 			target.writeLong(value.asWatermark().getTimestamp());
 		}
+		else if (value.isStreamStatus()) {
+			target.write(value.asStreamStatus().isIdle() ? TAG_STREAM_STATUS_IDLE : TAG_STREAM_STATUS_ACTIVE);
+		}
 		else {
 			throw new RuntimeException();
 		}
@@ -179,6 +187,12 @@ public final class MultiplexingStreamRecordSerializer<T> extends TypeSerializer<
 		else if (tag == TAG_WATERMARK) {
 			return new Watermark(source.readLong());
 		}
+		else if (tag == TAG_STREAM_STATUS_IDLE) {
+			return StreamStatus.IDLE;
+		}
+		else if (tag == TAG_STREAM_STATUS_ACTIVE) {
+			return StreamStatus.ACTIVE;
+		}
 		else {
 			throw new IOException("Corrupt stream, found tag: " + tag);
 		}
@@ -203,6 +217,12 @@ public final class MultiplexingStreamRecordSerializer<T> extends TypeSerializer<
 		else if (tag == TAG_WATERMARK) {
 			return new Watermark(source.readLong());
 		}
+		else if (tag == TAG_STREAM_STATUS_IDLE) {
+			return StreamStatus.IDLE;
+		}
+		else if (tag == TAG_STREAM_STATUS_ACTIVE) {
+			return StreamStatus.ACTIVE;
+		}
 		else {
 			throw new IOException("Corrupt stream, found tag: " + tag);
 		}
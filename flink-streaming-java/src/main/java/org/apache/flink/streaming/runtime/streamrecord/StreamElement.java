@@ -22,7 +22,7 @@ import org.apache.flink.annotation.Internal;
 import org.apache.flink.streaming.api.watermark.Watermark;
 
 /**
- * An element in a data stream. Can be a record or a Watermark.
+ * An element in a data stream. Can be a record, a Watermark or a StreamStatus.
  */
 @Internal
 public abstract class StreamElement {
@@ -43,6 +43,14 @@ public abstract class StreamElement {
 		return getClass() == StreamRecord.class;
 	}
 
+	/**
+	 * Checks whether this element is a stream status.
+	 * @return True, if this element is a stream status, false otherwise.
+	 */
+	public final boolean isStreamStatus() {
+		return getClass() == StreamStatus.class;
+	}
+
 	/**
 	 * Casts this element into a StreamRecord.
 	 * @return This element as a stream record.
@@ -61,4 +69,13 @@ public abstract class StreamElement {
 	public final Watermark asWatermark() {
 		return (Watermark) this;
 	}
+
+	/**
+	 * Casts this element into a StreamStatus.
+	 * @return This element as a StreamStatus.
+	 * @throws java.lang.ClassCastException Thrown, if this element is actually not a StreamStatus.
+	 */
+	public final StreamStatus asStreamStatus() {
+		return (StreamStatus) this;
+	}
 }
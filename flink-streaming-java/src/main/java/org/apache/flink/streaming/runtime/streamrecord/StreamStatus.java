@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.streamrecord;
+
+import org.apache.flink.annotation.Internal;
+
+/**
+ * A {@code StreamStatus} tells downstream operators whether a stream is idle. A stream is
+ * idle if it does not emit elements or watermarks for an indefinite time, for example
+ * because the source partitions it reads are empty. Downstream operators exclude idle input
+ * channels when they compute the minimum watermark over their input channels, so that idle
+ * channels do not hold back event-time progress.
+ *
+ * <p>A stream becomes active again when it emits the next element or watermark. The
+ * {@link org.apache.flink.streaming.runtime.io.RecordWriterOutput} sends {@link #ACTIVE}
+ * before that element or watermark.
+ */
+@Internal
+public final class StreamStatus extends StreamElement {
+
+	public static final StreamStatus IDLE = new StreamStatus(true);
+
+	public static final StreamStatus ACTIVE = new StreamStatus(false);
+
+	// ------------------------------------------------------------------------
+
+	private final boolean idle;
+
+	private StreamStatus(boolean idle) {
+		this.idle = idle;
+	}
+
+	public boolean isIdle() {
+		return idle;
+	}
+
+	public boolean isActive() {
+		return !idle;
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public boolean equals(Object o) {
+		return this == o ||
+				o != null && o.getClass() == StreamStatus.class && ((StreamStatus) o).idle == this.idle;
+	}
+
+	@Override
+	public int hashCode() {
+		return idle ? 1 : 0;
+	}
+
+	@Override
+	public String toString() {
+		return "StreamStatus(" + (idle ? "IDLE" : "ACTIVE") + ")";
+	}
+}
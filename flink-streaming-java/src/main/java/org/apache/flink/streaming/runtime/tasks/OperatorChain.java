@@ -41,8 +41,10 @@ import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
 import org.apache.flink.streaming.api.operators.Output;
 import org.apache.flink.streaming.api.operators.StreamOperator;
 import org.apache.flink.streaming.runtime.io.StreamRecordWriter;
+import org.apache.flink.streaming.runtime.partitioner.HashPartitioner;
 import org.apache.flink.streaming.runtime.partitioner.StreamPartitioner;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamrecord.StreamStatus;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -260,12 +262,15 @@ public class OperatorChain<OUT> {
 
 		allOperators.add(chainedOperator);
 
-		if (containingTask.getExecutionConfig().isObjectReuseEnabled() || chainedOperator.isInputCopyingDisabled()) {
-			return new ChainingOutput<IN>(chainedOperator);
+		if (containingTask.getExecutionConfig().isObjectReuseEnabled()) {
+			return new ChainingOutput<IN>(chainedOperator, output);
+		}
+		else if (chainedOperator.isInputCopyingDisabled()) {
+			return new WrapperCopyingChainingOutput<IN>(chainedOperator, output);
 		}
 		else {
 			TypeSerializer<IN> inSerializer = operatorConfig.getTypeSerializerIn1(userCodeClassloader);
-			return new CopyingChainingOutput<IN>(chainedOperator, inSerializer);
+			return new CopyingChainingOutput<IN>(chainedOperator, output, inSerializer);
 		}
 	}
 	
@@ -279,6 +284,11 @@ public class OperatorChain<OUT> {
 		@SuppressWarnings("unchecked")
 		StreamPartitioner<T> outputPartitioner = (StreamPartitioner<T>) edge.getPartitioner();
 
+		if (outputPartitioner instanceof HashPartitioner) {
+			((HashPartitioner<T>) outputPartitioner).setNumberOfKeyGroups(
+				taskEnvironment.getExecutionConfig().getNumberOfKeyGroups());
+		}
+
 		LOG.debug("Using partitioner {} for output {} of task ", outputPartitioner, outputIndex, taskName);
 		
 		ResultPartitionWriter bufferWriter = taskEnvironment.getWriter(outputIndex);
@@ -298,8 +308,12 @@ public class OperatorChain<OUT> {
 		
 		protected final OneInputStreamOperator<T, ?> operator;
 
-		public ChainingOutput(OneInputStreamOperator<T, ?> operator) {
+		/** The output of the operator, to which stream statuses are passed on */
+		private final Output<?> operatorOutput;
+
+		public ChainingOutput(OneInputStreamOperator<T, ?> operator, Output<?> operatorOutput) {
 			this.operator = operator;
+			this.operatorOutput = operatorOutput;
 		}
 
 		@Override
@@ -323,6 +337,11 @@ public class OperatorChain<OUT> {
 			}
 		}
 
+		@Override
+		public void emitStreamStatus(StreamStatus status) {
+			operatorOutput.emitStreamStatus(status);
+		}
+
 		@Override
 		public void close() {
 			try {
@@ -338,8 +357,8 @@ public class OperatorChain<OUT> {
 		
 		private final TypeSerializer<T> serializer;
 		
-		public CopyingChainingOutput(OneInputStreamOperator<T, ?> operator, TypeSerializer<T> serializer) {
-			super(operator);
+		public CopyingChainingOutput(OneInputStreamOperator<T, ?> operator, Output<?> operatorOutput, TypeSerializer<T> serializer) {
+			super(operator, operatorOutput);
 			this.serializer = serializer;
 		}
 
@@ -356,6 +375,32 @@ public class OperatorChain<OUT> {
 		}
 	}
 	
+	/**
+	 * Output for operators that do not modify or keep their input elements. The elements are
+	 * not copied, but every record is passed in a wrapper that belongs to the operator, because
+	 * operators modify the wrappers when they forward them. The wrapper is reused for all records.
+	 */
+	private static class WrapperCopyingChainingOutput<T> extends ChainingOutput<T> {
+
+		private final StreamRecord<T> reuse = new StreamRecord<>(null);
+
+		public WrapperCopyingChainingOutput(OneInputStreamOperator<T, ?> operator, Output<?> operatorOutput) {
+			super(operator, operatorOutput);
+		}
+
+		@Override
+		public void collect(StreamRecord<T> record) {
+			try {
+				record.copyTo(record.getValue(), reuse);
+				operator.setKeyContextElement1(reuse);
+				operator.processElement(reuse);
+			}
+			catch (Exception e) {
+				throw new ExceptionInChainedOperatorException(e);
+			}
+		}
+	}
+
 	private static final class BroadcastingOutputCollector<T> implements Output<StreamRecord<T>> {
 		
 		private final Output<StreamRecord<T>>[] outputs;
@@ -371,6 +416,13 @@ public class OperatorChain<OUT> {
 			}
 		}
 
+		@Override
+		public void emitStreamStatus(StreamStatus status) {
+			for (Output<StreamRecord<T>> output : outputs) {
+				output.emitStreamStatus(status);
+			}
+		}
+
 		@Override
 		public void collect(StreamRecord<T> record) {
 			for (Output<StreamRecord<T>> output : outputs) {
@@ -17,26 +17,63 @@
 
 package org.apache.flink.streaming.runtime.tasks;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
+import org.apache.flink.runtime.state.AbstractStateBackend;
+import org.apache.flink.runtime.state.StateHandle;
+import org.apache.flink.runtime.util.event.EventListener;
 import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.io.FeedbackQueueBroker;
 import org.apache.flink.streaming.runtime.io.RecordWriterOutput;
-import org.apache.flink.streaming.runtime.io.BlockingQueueBroker;
+import org.apache.flink.streaming.runtime.io.SpillingFeedbackQueue;
+import org.apache.flink.streaming.runtime.streamrecord.MultiplexingStreamRecordSerializer;
+import org.apache.flink.streaming.runtime.streamrecord.StreamElement;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * The task that emits the records of the feedback edge of a streaming iteration. It takes the
+ * records from a {@link SpillingFeedbackQueue} that the {@link StreamIterationTail} of the same
+ * subtask index fills.
+ *
+ * <p>The head takes part in checkpoints like a source: it emits the checkpoint barrier to the
+ * operators of the loop. The barrier travels around the loop and the tail puts it into the
+ * feedback queue. All records that the head takes from the queue until the barrier comes back
+ * were in transit on the feedback edge when the checkpoint was taken. The head writes them to
+ * its checkpoint state and acknowledges the checkpoint once the barrier came back. On recovery,
+ * the head emits these records again before it takes new records from the queue.
+ */
 @Internal
 public class StreamIterationHead<OUT> extends OneInputStreamTask<OUT, OUT> {
 
 	private static final Logger LOG = LoggerFactory.getLogger(StreamIterationHead.class);
 
+	/** The number of feedback elements kept in memory before the feedback queue spills */
+	private static final int FEEDBACK_QUEUE_MEMORY_CAPACITY = 1024;
+
 	private volatile boolean running = true;
 
+	/** The serializer for the feedback records, with their timestamps */
+	private TypeSerializer<StreamElement> feedbackSerializer;
+
+	/** The state backend for the checkpoints of the feedback records, if checkpointing is enabled */
+	private AbstractStateBackend stateBackend;
+
+	/** The logs of the feedback records of the checkpoints whose barrier did not come back yet */
+	private final LinkedHashMap<Long, AbstractStateBackend.CheckpointStateOutputView> pendingCheckpoints =
+			new LinkedHashMap<>();
+
+	/** The checkpointed feedback records to emit again on recovery */
+	private StreamTaskStateList restoredState;
+
 	// ------------------------------------------------------------------------
 	
 	@Override
@@ -53,32 +90,66 @@ public class StreamIterationHead<OUT> extends OneInputStreamTask<OUT, OUT> {
 		final long iterationWaitTime = getConfiguration().getIterationWaitTime();
 		final boolean shouldWait = iterationWaitTime > 0;
 
-		final BlockingQueue<StreamRecord<OUT>> dataChannel = new ArrayBlockingQueue<StreamRecord<OUT>>(1);
+		final SpillingFeedbackQueue<StreamElement> dataChannel = new SpillingFeedbackQueue<>(
+				feedbackSerializer,
+				getEnvironment().getIOManager(),
+				new EventListener<CheckpointBarrier>() {
+					@Override
+					public void onEvent(CheckpointBarrier barrier) {
+						try {
+							completeCheckpoint(barrier.getId());
+						}
+						catch (Exception e) {
+							throw new RuntimeException("Error completing checkpoint " + barrier.getId()
+									+ " after its barrier went through the iteration", e);
+						}
+					}
+				},
+				FEEDBACK_QUEUE_MEMORY_CAPACITY);
 
 		// offer the queue for the tail
-		BlockingQueueBroker.INSTANCE.handIn(brokerID, dataChannel);
+		FeedbackQueueBroker.INSTANCE.handIn(brokerID, dataChannel);
 		LOG.info("Iteration head {} added feedback queue under {}", getName(), brokerID);
 
 		// do the work 
 		try {
 			@SuppressWarnings("unchecked")
 			RecordWriterOutput<OUT>[] outputs = (RecordWriterOutput<OUT>[]) getStreamOutputs();
+			final Object lock = getCheckpointLock();
 
-			// If timestamps are enabled we make sure to remove cyclic watermark dependencies
-			if (isSerializingTimestamps()) {
-				for (RecordWriterOutput<OUT> output : outputs) {
-					output.emitWatermark(new Watermark(Long.MAX_VALUE));
+			synchronized (lock) {
+				// If timestamps are enabled we make sure to remove cyclic watermark dependencies
+				if (isSerializingTimestamps()) {
+					for (RecordWriterOutput<OUT> output : outputs) {
+						output.emitWatermark(new Watermark(Long.MAX_VALUE));
+					}
+				}
+
+				// the records that were in transit on the feedback edge during the restored checkpoint
+				if (restoredState != null) {
+					emitRestoredRecords(outputs);
+					restoredState = null;
 				}
 			}
 
 			while (running) {
-				StreamRecord<OUT> nextRecord = shouldWait ?
-					dataChannel.poll(iterationWaitTime, TimeUnit.MILLISECONDS) :
+				StreamElement next = shouldWait ?
+					dataChannel.poll(iterationWaitTime) :
 					dataChannel.take();
 
-				if (nextRecord != null) {
-					for (RecordWriterOutput<OUT> output : outputs) {
-						output.collect(nextRecord);
+				if (next != null) {
+					StreamRecord<OUT> nextRecord = next.asRecord();
+
+					// emitting and logging the record for the pending checkpoints must be atomic
+					// with respect to emitting the barrier of a new checkpoint
+					synchronized (lock) {
+						for (AbstractStateBackend.CheckpointStateOutputView log : pendingCheckpoints.values()) {
+							log.writeBoolean(true);
+							feedbackSerializer.serialize(nextRecord, log);
+						}
+						for (RecordWriterOutput<OUT> output : outputs) {
+							output.collect(nextRecord);
+						}
 					}
 				}
 				else {
@@ -89,7 +160,8 @@ public class StreamIterationHead<OUT> extends OneInputStreamTask<OUT, OUT> {
 		}
 		finally {
 			// make sure that we remove the queue from the broker, to prevent a resource leak
-			BlockingQueueBroker.INSTANCE.remove(brokerID);
+			FeedbackQueueBroker.INSTANCE.remove(brokerID);
+			dataChannel.close();
 			LOG.info("Iteration head {} removed feedback queue under {}", getName(), brokerID);
 		}
 	}
@@ -102,21 +174,119 @@ public class StreamIterationHead<OUT> extends OneInputStreamTask<OUT, OUT> {
 	// ------------------------------------------------------------------------
 
 	@Override
-	public void init() {
-		// does not hold any resources, no initialization necessary
+	public void init() throws Exception {
+		TypeSerializer<OUT> serializer = getConfiguration().getTypeSerializerOut(getUserCodeClassLoader());
+		feedbackSerializer = new MultiplexingStreamRecordSerializer<>(serializer);
+
+		if (getConfiguration().isCheckpointingEnabled()) {
+			stateBackend = createStateBackend(getName(), null);
+		}
 	}
 
 	@Override
 	protected void cleanup() throws Exception {
-		// does not hold any resources, no cleanup necessary
+		synchronized (getCheckpointLock()) {
+			for (AbstractStateBackend.CheckpointStateOutputView log : pendingCheckpoints.values()) {
+				log.close();
+			}
+			pendingCheckpoints.clear();
+		}
+
+		if (stateBackend != null) {
+			stateBackend.close();
+		}
 	}
-	
+
+	// ------------------------------------------------------------------------
+	//  Checkpointing
+	// ------------------------------------------------------------------------
+
+	@Override
+	public void setInitialState(StreamTaskStateList initialState, long recoveryTimestamp) {
+		// the head has no operators, its state consists of the feedback records of the checkpoint
+		restoredState = initialState;
+	}
+
+	@Override
+	protected boolean performCheckpoint(long checkpointId, long timestamp) throws Exception {
+		LOG.debug("Starting checkpoint {} on iteration head {}", checkpointId, getName());
+
+		synchronized (getCheckpointLock()) {
+			if (isRunning() && stateBackend != null) {
+				// the checkpoint is acknowledged when the barrier comes back through the feedback queue.
+				// until then, all feedback records are part of the checkpoint
+				pendingCheckpoints.put(checkpointId, stateBackend.createCheckpointStateOutputView(checkpointId, timestamp));
+
+				CheckpointBarrier barrier = new CheckpointBarrier(checkpointId, timestamp);
+				for (RecordWriterOutput<?> output : getStreamOutputs()) {
+					output.broadcastEvent(barrier);
+				}
+				return true;
+			} else {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Acknowledges the checkpoint with the logged feedback records, after its barrier came back
+	 * through the feedback queue.
+	 */
+	private void completeCheckpoint(long checkpointId) throws Exception {
+		synchronized (getCheckpointLock()) {
+			AbstractStateBackend.CheckpointStateOutputView log = pendingCheckpoints.remove(checkpointId);
+			if (log == null) {
+				return;
+			}
+
+			// the barriers come back in order, so the barriers of earlier pending checkpoints
+			// were dropped on the way and these checkpoints were aborted
+			Iterator<Map.Entry<Long, AbstractStateBackend.CheckpointStateOutputView>> pending =
+					pendingCheckpoints.entrySet().iterator();
+			while (pending.hasNext()) {
+				Map.Entry<Long, AbstractStateBackend.CheckpointStateOutputView> entry = pending.next();
+				if (entry.getKey() < checkpointId) {
+					entry.getValue().close();
+					pending.remove();
+				}
+			}
+
+			log.writeBoolean(false);
+
+			StreamTaskState state = new StreamTaskState();
+			state.setOperatorState(log.closeAndGetHandle());
+			getEnvironment().acknowledgeCheckpoint(checkpointId,
+					new StreamTaskStateList(new StreamTaskState[] { state }));
+
+			LOG.debug("Finished checkpoint {} on iteration head {}", checkpointId, getName());
+		}
+	}
+
+	private void emitRestoredRecords(RecordWriterOutput<OUT>[] outputs) throws Exception {
+		LOG.info("Restoring checkpointed feedback records to iteration head {}", getName());
+
+		for (StreamTaskState state : restoredState.getState(getUserCodeClassLoader())) {
+			if (state != null && state.getOperatorState() != null) {
+				@SuppressWarnings("unchecked")
+				StateHandle<DataInputView> handle = (StateHandle<DataInputView>) state.getOperatorState();
+				DataInputView in = handle.getState(getUserCodeClassLoader());
+
+				while (in.readBoolean()) {
+					StreamRecord<OUT> record = feedbackSerializer.deserialize(in).asRecord();
+					for (RecordWriterOutput<OUT> output : outputs) {
+						output.collect(record);
+					}
+				}
+			}
+		}
+	}
+
 	// ------------------------------------------------------------------------
 	//  Utilities
 	// ------------------------------------------------------------------------
 
 	/**
-	 * Creates the identification string with which head and tail task find the shared blocking
+	 * Creates the identification string with which head and tail task find the shared feedback
 	 * queue for the back channel. The identification string is unique per parallel head/tail pair
 	 * per iteration per job.
 	 * 
@@ -17,23 +17,31 @@
 
 package org.apache.flink.streaming.runtime.tasks;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
-
 import org.apache.flink.annotation.Internal;
+import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.streaming.api.operators.AbstractStreamOperator;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
 import org.apache.flink.streaming.api.watermark.Watermark;
-import org.apache.flink.streaming.runtime.io.BlockingQueueBroker;
+import org.apache.flink.streaming.runtime.io.FeedbackQueueBroker;
+import org.apache.flink.streaming.runtime.io.SpillingFeedbackQueue;
+import org.apache.flink.streaming.runtime.streamrecord.StreamElement;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * The task that receives the records of the feedback edge of a streaming iteration and puts them
+ * into the {@link SpillingFeedbackQueue} of the {@link StreamIterationHead} with the same subtask
+ * index. When it takes a checkpoint, it puts the checkpoint barrier into the queue as well, which
+ * completes the checkpoint of the head.
+ */
 @Internal
 public class StreamIterationTail<IN> extends OneInputStreamTask<IN, IN> {
 
 	private static final Logger LOG = LoggerFactory.getLogger(StreamIterationTail.class);
 
+	private SpillingFeedbackQueue<StreamElement> dataChannel;
+
 	@Override
 	public void init() throws Exception {
 		super.init();
@@ -46,17 +54,28 @@ public class StreamIterationTail<IN> extends OneInputStreamTask<IN, IN> {
 		final String brokerID = StreamIterationHead.createBrokerIdString(getEnvironment().getJobID(), iterationId,
 				getEnvironment().getTaskInfo().getIndexOfThisSubtask());
 
-		final long iterationWaitTime = getConfiguration().getIterationWaitTime();
-
 		LOG.info("Iteration tail {} trying to acquire feedback queue under {}", getName(), brokerID);
 		
 		@SuppressWarnings("unchecked")
-		BlockingQueue<StreamRecord<IN>> dataChannel =
-				(BlockingQueue<StreamRecord<IN>>) BlockingQueueBroker.INSTANCE.get(brokerID);
+		SpillingFeedbackQueue<StreamElement> dataChannel =
+				(SpillingFeedbackQueue<StreamElement>) FeedbackQueueBroker.INSTANCE.get(brokerID);
 		
 		LOG.info("Iteration tail {} acquired feedback queue {}", getName(), brokerID);
 		
-		this.headOperator = new RecordPusher<>(dataChannel, iterationWaitTime);
+		this.dataChannel = dataChannel;
+		this.headOperator = new RecordPusher<>(dataChannel);
+	}
+
+	@Override
+	protected boolean performCheckpoint(long checkpointId, long timestamp) throws Exception {
+		if (super.performCheckpoint(checkpointId, timestamp)) {
+			// all records before the barrier are in the feedback queue already, so the
+			// barrier marks the end of the records that belong to the checkpoint of the head
+			dataChannel.addCheckpointBarrier(new CheckpointBarrier(checkpointId, timestamp));
+			return true;
+		} else {
+			return false;
+		}
 	}
 
 	private static class RecordPusher<IN> extends AbstractStreamOperator<IN> implements OneInputStreamOperator<IN, IN> {
@@ -64,26 +83,16 @@ public class StreamIterationTail<IN> extends OneInputStreamTask<IN, IN> {
 		private static final long serialVersionUID = 1L;
 
 		@SuppressWarnings("NonSerializableFieldInSerializableClass")
-		private final BlockingQueue<StreamRecord<IN>> dataChannel;
-		
-		private final long iterationWaitTime;
-		
-		private final boolean shouldWait;
+		private final SpillingFeedbackQueue<StreamElement> dataChannel;
 
-		RecordPusher(BlockingQueue<StreamRecord<IN>> dataChannel, long iterationWaitTime) {
+		RecordPusher(SpillingFeedbackQueue<StreamElement> dataChannel) {
 			this.dataChannel = dataChannel;
-			this.iterationWaitTime = iterationWaitTime;
-			this.shouldWait =  iterationWaitTime > 0;
 		}
 
 		@Override
 		public void processElement(StreamRecord<IN> record) throws Exception {
-			if (shouldWait) {
-				dataChannel.offer(record, iterationWaitTime, TimeUnit.MILLISECONDS);
-			}
-			else {
-				dataChannel.put(record);
-			}
+			// never blocks, the queue spills if the head falls behind
+			dataChannel.add(record);
 		}
 
 		@Override
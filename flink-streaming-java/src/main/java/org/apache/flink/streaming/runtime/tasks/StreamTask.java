@@ -31,6 +31,7 @@ import org.apache.flink.runtime.state.AbstractStateBackend;
 import org.apache.flink.runtime.state.AsynchronousKvStateSnapshot;
 import org.apache.flink.runtime.state.AsynchronousStateHandle;
 import org.apache.flink.runtime.state.KvStateSnapshot;
+import org.apache.flink.runtime.state.StateHandle;
 import org.apache.flink.runtime.state.StateBackendFactory;
 import org.apache.flink.runtime.state.filesystem.FsStateBackend;
 import org.apache.flink.runtime.state.filesystem.FsStateBackendFactory;
@@ -39,6 +40,7 @@ import org.apache.flink.runtime.taskmanager.DispatcherThreadFactory;
 import org.apache.flink.runtime.util.event.EventListener;
 import org.apache.flink.streaming.api.TimeCharacteristic;
 import org.apache.flink.streaming.api.graph.StreamConfig;
+import org.apache.flink.streaming.api.operators.AbstractStreamOperator;
 import org.apache.flink.streaming.api.operators.Output;
 import org.apache.flink.streaming.api.operators.StreamOperator;
 import org.apache.flink.streaming.runtime.io.RecordWriterOutput;
@@ -136,6 +138,9 @@ public abstract class StreamTask<OUT, Operator extends StreamOperator<OUT>>
 	/** The state to be restored once the initialization is done */
 	private StreamTaskStateList lazyRestoreState;
 
+	/** The key/value state by key group to be restored once the initialization is done */
+	private Map<Integer, StreamTaskStateList> lazyRestoreKeyGroupStates;
+
 	/**
 	 * This field is used to forward an exception that is caught in the timer thread or other
 	 * asynchronous Threads. Subclasses must ensure that exceptions stored here get thrown on the
@@ -208,6 +213,7 @@ public abstract class StreamTask<OUT, Operator extends StreamOperator<OUT>>
 			// first order of business is to give operators back their state
 			restoreState();
 			lazyRestoreState = null; // GC friendliness
+			lazyRestoreKeyGroupStates = null;
 			
 			// we need to make sure that any triggers scheduled in open() cannot be
 			// executed before all operators are opened
@@ -339,10 +345,20 @@ public abstract class StreamTask<OUT, Operator extends StreamOperator<OUT>>
 		}
 	}
 	
+	/**
+	 * Disposes the operators after the task failed or was canceled. Another attempt of the task
+	 * may be restored on this machine, so the state backends keep their local state.
+	 */
 	private void disposeAllOperators() {
 		if (operatorChain != null) {
 			for (StreamOperator<?> operator : operatorChain.getAllOperators()) {
 				try {
+					if (operator instanceof AbstractStreamOperator) {
+						AbstractStateBackend stateBackend = ((AbstractStreamOperator<?>) operator).getStateBackend();
+						if (stateBackend != null) {
+							stateBackend.retainLocalState();
+						}
+					}
 					if (operator != null) {
 						operator.dispose();
 					}
@@ -428,17 +444,54 @@ public abstract class StreamTask<OUT, Operator extends StreamOperator<OUT>>
 		lazyRestoreState = initialState;
 		this.recoveryTimestamp = recoveryTimestamp;
 	}
+
+	@Override
+	public void setInitialKeyGroupState(Map<Integer, StreamTaskStateList> keyGroupStates, long recoveryTimestamp) {
+		lazyRestoreKeyGroupStates = keyGroupStates;
+		this.recoveryTimestamp = recoveryTimestamp;
+	}
 	
 	private void restoreState() throws Exception {
-		if (lazyRestoreState != null) {
+		if (lazyRestoreState != null || lazyRestoreKeyGroupStates != null) {
 			LOG.info("Restoring checkpointed state to task {}", getName());
 			
 			try {
 				final StreamOperator<?>[] allOperators = operatorChain.getAllOperators();
-				final StreamTaskState[] states = lazyRestoreState.getState(userClassLoader);
+				final StreamTaskState[] states = lazyRestoreState != null ?
+					lazyRestoreState.getState(userClassLoader) :
+					new StreamTaskState[allOperators.length];
+
+				if (lazyRestoreKeyGroupStates != null) {
+					// hand the key/value state of all key groups to the operators it belongs to
+					for (Map.Entry<Integer, StreamTaskStateList> keyGroup : lazyRestoreKeyGroupStates.entrySet()) {
+						StreamTaskState[] keyGroupStates = keyGroup.getValue().getState(userClassLoader);
+
+						for (int i = 0; i < keyGroupStates.length; i++) {
+							if (keyGroupStates[i] != null && keyGroupStates[i].getKvStates() != null) {
+								if (states[i] == null) {
+									states[i] = new StreamTaskState();
+								}
+								if (states[i].getKeyGroupKvStates() == null) {
+									states[i].setKeyGroupKvStates(new HashMap<Integer, HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>>>());
+								}
+								states[i].getKeyGroupKvStates().put(keyGroup.getKey(), keyGroupStates[i].getKvStates());
+							}
+							if (keyGroupStates[i] != null && keyGroupStates[i].getTimerState() != null) {
+								if (states[i] == null) {
+									states[i] = new StreamTaskState();
+								}
+								if (states[i].getKeyGroupTimerStates() == null) {
+									states[i].setKeyGroupTimerStates(new HashMap<Integer, StateHandle<?>>());
+								}
+								states[i].getKeyGroupTimerStates().put(keyGroup.getKey(), keyGroupStates[i].getTimerState());
+							}
+						}
+					}
+				}
 				
 				// be GC friendly
 				lazyRestoreState = null;
+				lazyRestoreKeyGroupStates = null;
 				
 				for (int i = 0; i < states.length; i++) {
 					StreamTaskState state = states[i];
@@ -459,6 +512,26 @@ public abstract class StreamTask<OUT, Operator extends StreamOperator<OUT>>
 		}
 	}
 
+	/**
+	 * Gets the state of the given operator in the given key group, creating it if necessary.
+	 */
+	private static StreamTaskState getKeyGroupState(
+			Map<Integer, StreamTaskState[]> keyGroupStates,
+			int keyGroup,
+			int operatorIndex,
+			int numberOfOperators) {
+
+		StreamTaskState[] operatorStates = keyGroupStates.get(keyGroup);
+		if (operatorStates == null) {
+			operatorStates = new StreamTaskState[numberOfOperators];
+			keyGroupStates.put(keyGroup, operatorStates);
+		}
+		if (operatorStates[operatorIndex] == null) {
+			operatorStates[operatorIndex] = new StreamTaskState();
+		}
+		return operatorStates[operatorIndex];
+	}
+
 	@Override
 	public boolean triggerCheckpoint(long checkpointId, long timestamp) throws Exception {
 		try {
@@ -480,6 +553,16 @@ public abstract class StreamTask<OUT, Operator extends StreamOperator<OUT>>
 		synchronized (lock) {
 			if (isRunning) {
 
+				// give the operators the chance to emit buffered elements before the barrier.
+				// the head operator is the last one in the array, and the operators must be
+				// called before the operators they emit to
+				final StreamOperator<?>[] chainedOperators = operatorChain.getAllOperators();
+				for (int i = chainedOperators.length - 1; i >= 0; i--) {
+					if (chainedOperators[i] != null) {
+						chainedOperators[i].prepareSnapshotPreBarrier(checkpointId);
+					}
+				}
+
 				// since both state checkpointing and downstream barrier emission occurs in this
 				// lock scope, they are an atomic operation regardless of the order in which they occur
 				// we immediately emit the checkpoint barriers, so the downstream operators can start
@@ -490,6 +573,9 @@ public abstract class StreamTask<OUT, Operator extends StreamOperator<OUT>>
 				final StreamOperator<?>[] allOperators = operatorChain.getAllOperators();
 				final StreamTaskState[] states = new StreamTaskState[allOperators.length];
 
+				// the key/value state of the operators by key group, if it is checkpointed per key group
+				Map<Integer, StreamTaskState[]> keyGroupStates = null;
+
 				boolean hasAsyncStates = false;
 
 				for (int i = 0; i < states.length; i++) {
@@ -509,6 +595,31 @@ public abstract class StreamTask<OUT, Operator extends StreamOperator<OUT>>
 								}
 							}
 						}
+						if (state.getKeyGroupKvStates() != null) {
+							if (keyGroupStates == null) {
+								keyGroupStates = new HashMap<>();
+							}
+							for (Map.Entry<Integer, HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>>> keyGroup : state.getKeyGroupKvStates().entrySet()) {
+								getKeyGroupState(keyGroupStates, keyGroup.getKey(), i, allOperators.length)
+									.setKvStates(keyGroup.getValue());
+								for (KvStateSnapshot<?, ?, ?, ?, ?> kvSnapshot : keyGroup.getValue().values()) {
+									if (kvSnapshot instanceof AsynchronousKvStateSnapshot) {
+										hasAsyncStates = true;
+									}
+								}
+							}
+							state.setKeyGroupKvStates(null);
+						}
+						if (state.getKeyGroupTimerStates() != null) {
+							if (keyGroupStates == null) {
+								keyGroupStates = new HashMap<>();
+							}
+							for (Map.Entry<Integer, StateHandle<?>> keyGroup : state.getKeyGroupTimerStates().entrySet()) {
+								getKeyGroupState(keyGroupStates, keyGroup.getKey(), i, allOperators.length)
+									.setTimerState(keyGroup.getValue());
+							}
+							state.setKeyGroupTimerStates(null);
+						}
 
 						states[i] = state.isEmpty() ? null : state;
 					}
@@ -522,7 +633,20 @@ public abstract class StreamTask<OUT, Operator extends StreamOperator<OUT>>
 
 				StreamTaskStateList allStates = new StreamTaskStateList(states);
 
-				if (allStates.isEmpty()) {
+				final Map<Integer, StateHandle<?>> allKeyGroupStates;
+				final Map<Integer, StreamTaskState[]> asyncKeyGroupStates = keyGroupStates;
+				if (keyGroupStates != null) {
+					allKeyGroupStates = new HashMap<>(keyGroupStates.size());
+					for (Map.Entry<Integer, StreamTaskState[]> keyGroup : keyGroupStates.entrySet()) {
+						allKeyGroupStates.put(keyGroup.getKey(), new StreamTaskStateList(keyGroup.getValue()));
+					}
+				} else {
+					allKeyGroupStates = null;
+				}
+
+				if (allKeyGroupStates != null && !hasAsyncStates) {
+					getEnvironment().acknowledgeCheckpoint(checkpointId, allStates.isEmpty() ? null : allStates, allKeyGroupStates);
+				} else if (allStates.isEmpty() && !hasAsyncStates) {
 					getEnvironment().acknowledgeCheckpoint(checkpointId);
 				} else if (!hasAsyncStates) {
 					getEnvironment().acknowledgeCheckpoint(checkpointId, allStates);
@@ -545,21 +669,24 @@ public abstract class StreamTask<OUT, Operator extends StreamOperator<OUT>>
 											AsynchronousStateHandle<?> asyncState = (AsynchronousStateHandle<?>) state.getOperatorState();
 											state.setOperatorState(asyncState.materialize());
 										}
-										if (state.getKvStates() != null) {
-											Set<String> keys = state.getKvStates().keySet();
-											HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> kvStates = state.getKvStates();
-											for (String key: keys) {
-												if (kvStates.get(key) instanceof AsynchronousKvStateSnapshot) {
-													AsynchronousKvStateSnapshot<?, ?, ?, ?, ?> asyncHandle = (AsynchronousKvStateSnapshot<?, ?, ?, ?, ?>) kvStates.get(key);
-													kvStates.put(key, asyncHandle.materialize());
-												}
+										materializeKvStates(state);
+									}
+								}
+								if (asyncKeyGroupStates != null) {
+									for (StreamTaskState[] keyGroupState : asyncKeyGroupStates.values()) {
+										for (StreamTaskState state : keyGroupState) {
+											if (state != null) {
+												materializeKvStates(state);
 											}
 										}
-
 									}
 								}
 								StreamTaskStateList allStates = new StreamTaskStateList(states);
-								getEnvironment().acknowledgeCheckpoint(checkpointId, allStates);
+								if (allKeyGroupStates != null) {
+									getEnvironment().acknowledgeCheckpoint(checkpointId, allStates.isEmpty() ? null : allStates, allKeyGroupStates);
+								} else {
+									getEnvironment().acknowledgeCheckpoint(checkpointId, allStates);
+								}
 								LOG.debug("Finished asynchronous checkpoints for checkpoint {} on task {}", checkpointId, getName());
 							}
 							catch (Exception e) {
@@ -585,6 +712,22 @@ public abstract class StreamTask<OUT, Operator extends StreamOperator<OUT>>
 		}
 	}
 	
+	/**
+	 * Replaces the asynchronous key/value state snapshots of the given state by their materialized snapshots.
+	 */
+	private static void materializeKvStates(StreamTaskState state) throws Exception {
+		if (state.getKvStates() != null) {
+			Set<String> keys = state.getKvStates().keySet();
+			HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> kvStates = state.getKvStates();
+			for (String key: keys) {
+				if (kvStates.get(key) instanceof AsynchronousKvStateSnapshot) {
+					AsynchronousKvStateSnapshot<?, ?, ?, ?, ?> asyncHandle = (AsynchronousKvStateSnapshot<?, ?, ?, ?, ?>) kvStates.get(key);
+					kvStates.put(key, asyncHandle.materialize());
+				}
+			}
+		}
+	}
+
 	@Override
 	public void notifyCheckpointComplete(long checkpointId) throws Exception {
 		synchronized (lock) {
@@ -34,6 +34,7 @@ import java.util.Iterator;
  *     <li>The state of the stream operator, if it implements the Checkpointed interface.</li>
  *     <li>The state of the user function, if it implements the Checkpointed interface.</li>
  *     <li>The key/value state of the operator, if it executes on a KeyedDataStream.</li>
+ *     <li>The timers of the operator, if it executes on a KeyedDataStream.</li>
  * </ul>
  */
 @Internal
@@ -47,6 +48,12 @@ public class StreamTaskState implements Serializable {
 
 	private HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> kvStates;
 
+	private HashMap<Integer, HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>>> keyGroupKvStates;
+
+	private StateHandle<?> timerState;
+
+	private HashMap<Integer, StateHandle<?>> keyGroupTimerStates;
+
 	// ------------------------------------------------------------------------
 
 	public StateHandle<?> getOperatorState() {
@@ -73,6 +80,42 @@ public class StreamTaskState implements Serializable {
 		this.kvStates = kvStates;
 	}
 
+	/**
+	 * Gets the key/value state of the operator by key group, if the key/value state has been
+	 * checkpointed per key group. The {@link StreamTask} acknowledges the state of each key group
+	 * separately, so that it can be assigned to a different task when the parallelism changes.
+	 */
+	public HashMap<Integer, HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>>> getKeyGroupKvStates() {
+		return keyGroupKvStates;
+	}
+
+	public void setKeyGroupKvStates(HashMap<Integer, HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>>> keyGroupKvStates) {
+		this.keyGroupKvStates = keyGroupKvStates;
+	}
+
+	/**
+	 * Gets the timers of the operator, if they have not been checkpointed per key group.
+	 */
+	public StateHandle<?> getTimerState() {
+		return timerState;
+	}
+
+	public void setTimerState(StateHandle<?> timerState) {
+		this.timerState = timerState;
+	}
+
+	/**
+	 * Gets the timers of the operator by key group, if the key/value state has been checkpointed
+	 * per key group. The timers of a key group are assigned to the same task as its key/value state.
+	 */
+	public HashMap<Integer, StateHandle<?>> getKeyGroupTimerStates() {
+		return keyGroupTimerStates;
+	}
+
+	public void setKeyGroupTimerStates(HashMap<Integer, StateHandle<?>> keyGroupTimerStates) {
+		this.keyGroupTimerStates = keyGroupTimerStates;
+	}
+
 	// ------------------------------------------------------------------------
 
 	/**
@@ -82,7 +125,8 @@ public class StreamTaskState implements Serializable {
 	 * @return True, if all state is null, false if at least one state is not null.
 	 */
 	public boolean isEmpty() {
-		return operatorState == null & functionState == null & kvStates == null;
+		return operatorState == null & functionState == null & kvStates == null & keyGroupKvStates == null &
+			timerState == null & keyGroupTimerStates == null;
 	}
 
 	/**
@@ -95,6 +139,9 @@ public class StreamTaskState implements Serializable {
 		StateHandle<?> operatorState = this.operatorState;
 		StateHandle<?> functionState = this.functionState;
 		HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> kvStates = this.kvStates;
+		HashMap<Integer, HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>>> keyGroupKvStates = this.keyGroupKvStates;
+		StateHandle<?> timerState = this.timerState;
+		HashMap<Integer, StateHandle<?>> keyGroupTimerStates = this.keyGroupTimerStates;
 		
 		if (operatorState != null) {
 			operatorState.discardState();
@@ -103,23 +150,43 @@ public class StreamTaskState implements Serializable {
 			functionState.discardState();
 		}
 		if (kvStates != null) {
-			while (kvStates.size() > 0) {
-				try {
-					Iterator<KvStateSnapshot<?, ?, ?, ?, ?>> values = kvStates.values().iterator();
-					while (values.hasNext()) {
-						KvStateSnapshot<?, ?, ?, ?, ?> s = values.next();
-						s.discardState();
-						values.remove();
-					}
-				}
-				catch (ConcurrentModificationException e) {
-					// fall through the loop
-				}
+			discardKvStates(kvStates);
+		}
+		if (keyGroupKvStates != null) {
+			for (HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> keyGroupKvState : keyGroupKvStates.values()) {
+				discardKvStates(keyGroupKvState);
+			}
+		}
+		if (timerState != null) {
+			timerState.discardState();
+		}
+		if (keyGroupTimerStates != null) {
+			for (StateHandle<?> keyGroupTimerState : keyGroupTimerStates.values()) {
+				keyGroupTimerState.discardState();
 			}
 		}
 
 		this.operatorState = null;
 		this.functionState = null;
 		this.kvStates = null;
+		this.keyGroupKvStates = null;
+		this.timerState = null;
+		this.keyGroupTimerStates = null;
+	}
+
+	private static void discardKvStates(HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> kvStates) throws Exception {
+		while (kvStates.size() > 0) {
+			try {
+				Iterator<KvStateSnapshot<?, ?, ?, ?, ?>> values = kvStates.values().iterator();
+				while (values.hasNext()) {
+					KvStateSnapshot<?, ?, ?, ?, ?> s = values.next();
+					s.discardState();
+					values.remove();
+				}
+			}
+			catch (ConcurrentModificationException e) {
+				// fall through the loop
+			}
+		}
 	}
 }
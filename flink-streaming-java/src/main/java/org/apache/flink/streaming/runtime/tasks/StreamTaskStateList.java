@@ -72,6 +72,8 @@ public class StreamTaskStateList implements StateHandle<StreamTaskState[]> {
 					StateHandle<?> operatorState = state.getOperatorState();
 					StateHandle<?> functionState = state.getFunctionState();
 					HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> kvStates = state.getKvStates();
+					StateHandle<?> timerState = state.getTimerState();
+					HashMap<Integer, StateHandle<?>> keyGroupTimerStates = state.getKeyGroupTimerStates();
 
 					if (operatorState != null) {
 						sumStateSize += operatorState.getStateSize();
@@ -88,6 +90,18 @@ public class StreamTaskStateList implements StateHandle<StreamTaskState[]> {
 							}
 						}
 					}
+
+					if (timerState != null) {
+						sumStateSize += timerState.getStateSize();
+					}
+
+					if (keyGroupTimerStates != null) {
+						for (StateHandle<?> keyGroupTimerState : keyGroupTimerStates.values()) {
+							if (keyGroupTimerState != null) {
+								sumStateSize += keyGroupTimerState.getStateSize();
+							}
+						}
+					}
 				}
 			}
 		}
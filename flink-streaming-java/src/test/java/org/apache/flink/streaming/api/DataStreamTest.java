@@ -25,6 +25,7 @@ import org.apache.flink.api.common.functions.FoldFunction;
 import org.apache.flink.api.common.functions.Function;
 import org.apache.flink.api.common.functions.MapFunction;
 import org.apache.flink.api.common.functions.Partitioner;
+import org.apache.flink.api.common.functions.ReduceFunction;
 import org.apache.flink.api.java.functions.KeySelector;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.api.java.typeutils.TypeExtractor;
@@ -44,6 +45,8 @@ import org.apache.flink.streaming.api.functions.windowing.AllWindowFunction;
 import org.apache.flink.streaming.api.graph.StreamEdge;
 import org.apache.flink.streaming.api.graph.StreamGraph;
 import org.apache.flink.streaming.api.operators.AbstractUdfStreamOperator;
+import org.apache.flink.streaming.api.operators.StreamGroupedReduce;
+import org.apache.flink.streaming.api.operators.StreamLocalGroupedReduce;
 import org.apache.flink.streaming.api.operators.StreamOperator;
 import org.apache.flink.streaming.api.windowing.assigners.GlobalWindows;
 import org.apache.flink.streaming.api.windowing.triggers.CountTrigger;
@@ -691,6 +694,58 @@ public class DataStreamTest extends StreamingMultipleProgramsTestBase {
 		assertTrue(env.getStreamGraph().getStreamNode(sink3.getTransformation().getId()).getInEdges().get(0).getPartitioner() instanceof HashPartitioner);
 	}
 
+	/**
+	 * Tests that the local pre-aggregation is inserted between the input and the partitioning,
+	 * and that the built-in aggregations are pre-aggregated in the mini-batch mode.
+	 */
+	@Test
+	public void testPreAggregation() {
+		StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+
+		DataStreamSource<Tuple2<Long, Long>> src = env.fromElements(new Tuple2<>(0L, 0L));
+		src.setParallelism(1);
+
+		ReduceFunction<Tuple2<Long, Long>> reducer = new ReduceFunction<Tuple2<Long, Long>>() {
+			@Override
+			public Tuple2<Long, Long> reduce(Tuple2<Long, Long> value1, Tuple2<Long, Long> value2) {
+				return new Tuple2<>(value1.f0, value1.f1 + value2.f1);
+			}
+		};
+
+		KeyedStream<Tuple2<Long, Long>, ?> preAggregated = src.keyBy(0).preAggregate(reducer, 100, 10);
+		DataStream<Tuple2<Long, Long>> reduced = preAggregated.reduce(reducer);
+		reduced.addSink(new NoOpSink<Tuple2<Long, Long>>());
+
+		assertTrue(getOperatorForDataStream(reduced) instanceof StreamGroupedReduce);
+		StreamEdge shuffle = env.getStreamGraph().getStreamNode(reduced.getId()).getInEdges().get(0);
+		assertTrue(shuffle.getPartitioner() instanceof HashPartitioner);
+
+		StreamOperator<?> localOperator = env.getStreamGraph().getStreamNode(shuffle.getSourceId()).getOperator();
+		assertTrue(localOperator instanceof StreamLocalGroupedReduce);
+		assertEquals(100, ((StreamLocalGroupedReduce<?, ?>) localOperator).getMaxBatchSize());
+		assertEquals(10, ((StreamLocalGroupedReduce<?, ?>) localOperator).getMaxBatchLatency());
+
+		StreamEdge forward = env.getStreamGraph().getStreamNode(shuffle.getSourceId()).getInEdges().get(0);
+		assertEquals(src.getId(), forward.getSourceId());
+		assertTrue(forward.getPartitioner() instanceof ForwardPartitioner);
+		assertEquals(1, env.getStreamGraph().getStreamNode(shuffle.getSourceId()).getParallelism());
+
+		// the built-in aggregations are only pre-aggregated in the mini-batch mode
+		DataStream<Tuple2<Long, Long>> sum = src.keyBy(0).sum(1);
+		sum.addSink(new NoOpSink<Tuple2<Long, Long>>());
+		StreamEdge sumInput = env.getStreamGraph().getStreamNode(sum.getId()).getInEdges().get(0);
+		assertEquals(src.getId(), sumInput.getSourceId());
+
+		env.getConfig().enableMiniBatch(50, 5);
+		DataStream<Tuple2<Long, Long>> batchedSum = src.keyBy(0).sum(1);
+		batchedSum.addSink(new NoOpSink<Tuple2<Long, Long>>());
+		StreamEdge batchedSumInput = env.getStreamGraph().getStreamNode(batchedSum.getId()).getInEdges().get(0);
+		StreamOperator<?> batchedLocalOperator =
+				env.getStreamGraph().getStreamNode(batchedSumInput.getSourceId()).getOperator();
+		assertTrue(batchedLocalOperator instanceof StreamLocalGroupedReduce);
+		assertEquals(50, ((StreamLocalGroupedReduce<?, ?>) batchedLocalOperator).getMaxBatchSize());
+	}
+
 	@Test
 	public void testChannelSelectors() {
 		StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
@@ -518,12 +518,12 @@ public class IterateTest extends StreamingMultipleProgramsTestBase {
 		env.execute();
 	}
 
-	@SuppressWarnings("deprecation")
 	@Test
 	public void testWithCheckPointing() throws Exception {
 		StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+		iterated = new boolean[DEFAULT_PARALLELISM];
 
-		env.enableCheckpointing();
+		env.enableCheckpointing(10);
 
 		DataStream<Boolean> source = env .fromCollection(Collections.nCopies(DEFAULT_PARALLELISM * 2, false))
 				.map(NoOpBoolMap).name("ParallelizeMap");
@@ -533,29 +533,12 @@ public class IterateTest extends StreamingMultipleProgramsTestBase {
 
 		iteration.closeWith(iteration.flatMap(new IterationHead())).addSink(new ReceiveCheckNoOpSink<Boolean>());
 
-		try {
-			env.execute();
-
-			// this statement should never be reached
-			fail();
-		} catch (UnsupportedOperationException e) {
-			// expected behaviour
-		}
-
-		// Test force checkpointing
-
-		try {
-			env.enableCheckpointing(1, CheckpointingMode.EXACTLY_ONCE, false);
-			env.execute();
+		// iterative jobs are checkpointed like all other jobs
+		env.execute();
 
-			// this statement should never be reached
-			fail();
-		} catch (UnsupportedOperationException e) {
-			// expected behaviour
+		for (boolean iter : iterated) {
+			assertTrue(iter);
 		}
-
-		env.enableCheckpointing(1, CheckpointingMode.EXACTLY_ONCE, true);
-		env.getStreamGraph().getJobGraph();
 	}
 
 	public static final class IterationHead extends RichFlatMapFunction<Boolean, Boolean> {
@@ -70,6 +70,11 @@ public class ListSourceContext<T> implements SourceFunction.SourceContext<T> {
 		// don't do anything
 	}
 
+	@Override
+	public void markAsTemporarilyIdle() {
+		// don't do anything
+	}
+
 	@Override
 	public Object getCheckpointLock() {
 		return lock;
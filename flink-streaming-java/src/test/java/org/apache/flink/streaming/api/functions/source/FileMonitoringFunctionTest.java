@@ -57,6 +57,9 @@ public class FileMonitoringFunctionTest {
 					@Override
 					public void emitWatermark(Watermark mark) {}
 
+					@Override
+					public void markAsTemporarilyIdle() {}
+
 					@Override
 					public Object getCheckpointLock() { return null; }
 
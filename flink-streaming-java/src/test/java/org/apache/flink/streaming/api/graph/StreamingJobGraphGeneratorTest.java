@@ -22,6 +22,7 @@ import java.util.Random;
 
 import org.apache.flink.api.common.ExecutionConfig;
 import org.apache.flink.api.common.functions.MapFunction;
+import org.apache.flink.api.java.functions.KeySelector;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.runtime.jobgraph.JobGraph;
 import org.apache.flink.streaming.api.datastream.DataStream;
@@ -141,4 +142,42 @@ public class StreamingJobGraphGeneratorTest {
 		assertEquals(1, jobGraph.getVerticesAsArray()[0].getParallelism());
 		assertEquals(1, jobGraph.getVerticesAsArray()[1].getParallelism());
 	}
+
+	@Test
+	public void testKeyedParallelismHigherThanKeyGroups() {
+		final StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+		env.setParallelism(4);
+		env.getConfig().setNumberOfKeyGroups(4);
+
+		env.fromElements("a", "b", "c")
+				.keyBy(new KeySelector<String, String>() {
+					@Override
+					public String getKey(String value) {
+						return value;
+					}
+				})
+				.map(new MapFunction<String, String>() {
+					@Override
+					public String map(String value) {
+						return value;
+					}
+				}).setParallelism(5)
+				.addSink(new SinkFunction<String>() {
+					@Override
+					public void invoke(String value) {}
+				});
+
+		StreamGraph streamGraph = env.getStreamGraph();
+		streamGraph.setJobName("test job");
+
+		try {
+			streamGraph.getJobGraph();
+			fail("The parallelism of the keyed operator is higher than the number of key groups.");
+		} catch (IllegalArgumentException expected) {
+			// expected
+		}
+
+		env.getConfig().setNumberOfKeyGroups(5);
+		assertEquals(3, streamGraph.getJobGraph().getNumberOfVertices());
+	}
 }
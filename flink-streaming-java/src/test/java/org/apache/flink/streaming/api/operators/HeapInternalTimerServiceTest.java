@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.runtime.state.KeyGroupAssigner;
+import org.apache.flink.runtime.state.StateHandle;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.tasks.StreamTaskState;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.apache.flink.streaming.util.TestHarnessUtil;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link HeapInternalTimerService}.
+ */
+public class HeapInternalTimerServiceTest {
+
+	private static final int NUMBER_OF_KEY_GROUPS = 8;
+
+	@Test
+	public void testEventTimeTimersFireInOrderAndOnlyOnce() throws Exception {
+		OneInputStreamOperatorTestHarness<Tuple2<String, Long>, String> testHarness = createTestHarness(-1, false);
+		testHarness.open();
+
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("a", 3L)));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("b", 1L)));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("a", 1L)));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("a", 3L)));
+		testHarness.processWatermark(new Watermark(2L));
+		testHarness.processWatermark(new Watermark(5L));
+
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+		expectedOutput.add(new StreamRecord<>("a@1", 1L));
+		expectedOutput.add(new StreamRecord<>("b@1", 1L));
+		expectedOutput.add(new Watermark(2L));
+		expectedOutput.add(new StreamRecord<>("a@3", 3L));
+		expectedOutput.add(new Watermark(5L));
+
+		TestHarnessUtil.assertOutputEqualsSorted("Output was not correct.", expectedOutput, testHarness.getOutput(), new OutputComparator());
+
+		testHarness.close();
+	}
+
+	@Test
+	public void testDeleteEventTimeTimer() throws Exception {
+		OneInputStreamOperatorTestHarness<Tuple2<String, Long>, String> testHarness = createTestHarness(-1, false);
+		testHarness.open();
+
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("a", 1L)));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("a", 2L)));
+		// a negative timestamp deletes the timer
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("a", -1L)));
+		testHarness.processWatermark(new Watermark(5L));
+
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+		expectedOutput.add(new StreamRecord<>("a@2", 2L));
+		expectedOutput.add(new Watermark(5L));
+
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+
+		testHarness.close();
+	}
+
+	@Test
+	public void testSnapshotAndRestoreWithoutKeyGroups() throws Exception {
+		OneInputStreamOperatorTestHarness<Tuple2<String, Long>, String> testHarness = createTestHarness(-1, false);
+		testHarness.open();
+
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("a", 3L)));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("b", 1L)));
+
+		StreamTaskState snapshot = testHarness.snapshot(0L, 0L);
+		testHarness.close();
+
+		assertNotNull(snapshot.getTimerState());
+		assertNull(snapshot.getKeyGroupTimerStates());
+
+		OneInputStreamOperatorTestHarness<Tuple2<String, Long>, String> restoredHarness = createTestHarness(-1, false);
+		restoredHarness.setup();
+		restoredHarness.restore(snapshot, 0L);
+		restoredHarness.open();
+
+		restoredHarness.processWatermark(new Watermark(5L));
+
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+		expectedOutput.add(new StreamRecord<>("b@1", 1L));
+		expectedOutput.add(new StreamRecord<>("a@3", 3L));
+		expectedOutput.add(new Watermark(5L));
+
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, restoredHarness.getOutput());
+
+		restoredHarness.close();
+	}
+
+	@Test
+	public void testSnapshotAndRestorePerKeyGroup() throws Exception {
+		OneInputStreamOperatorTestHarness<Tuple2<String, Long>, String> testHarness = createTestHarness(NUMBER_OF_KEY_GROUPS, false);
+		testHarness.open();
+
+		String[] keys = {"a", "b", "c", "d", "e", "f"};
+		for (String key : keys) {
+			testHarness.processElement(new StreamRecord<>(new Tuple2<>(key, 1L)));
+		}
+
+		StreamTaskState snapshot = testHarness.snapshot(0L, 0L);
+		testHarness.close();
+
+		assertNull(snapshot.getTimerState());
+		HashMap<Integer, StateHandle<?>> keyGroupTimerStates = snapshot.getKeyGroupTimerStates();
+		assertNotNull(keyGroupTimerStates);
+
+		// restore only the key group of the first key, as if the parallelism had changed
+		int keyGroup = KeyGroupAssigner.getKeyGroupIndex(keys[0], NUMBER_OF_KEY_GROUPS);
+		HashMap<Integer, StateHandle<?>> restoredKeyGroupTimerStates = new HashMap<>();
+		restoredKeyGroupTimerStates.put(keyGroup, keyGroupTimerStates.get(keyGroup));
+
+		StreamTaskState restoredState = new StreamTaskState();
+		restoredState.setKeyGroupTimerStates(restoredKeyGroupTimerStates);
+
+		OneInputStreamOperatorTestHarness<Tuple2<String, Long>, String> restoredHarness = createTestHarness(NUMBER_OF_KEY_GROUPS, false);
+		restoredHarness.setup();
+		restoredHarness.restore(restoredState, 0L);
+		restoredHarness.open();
+
+		restoredHarness.processWatermark(new Watermark(1L));
+
+		int firedTimers = 0;
+		for (Object output : restoredHarness.getOutput()) {
+			if (output instanceof StreamRecord) {
+				String key = ((String) ((StreamRecord<?>) output).getValue()).split("@")[0];
+				assertEquals(keyGroup, KeyGroupAssigner.getKeyGroupIndex(key, NUMBER_OF_KEY_GROUPS));
+				firedTimers++;
+			}
+		}
+
+		int timersInKeyGroup = 0;
+		for (String key : keys) {
+			if (KeyGroupAssigner.getKeyGroupIndex(key, NUMBER_OF_KEY_GROUPS) == keyGroup) {
+				timersInKeyGroup++;
+			}
+		}
+		assertEquals(timersInKeyGroup, firedTimers);
+
+		restoredHarness.close();
+	}
+
+	@Test
+	public void testSnapshotAndRestoreProcessingTimeTimers() throws Exception {
+		OneInputStreamOperatorTestHarness<Tuple2<String, Long>, String> testHarness = createTestHarness(NUMBER_OF_KEY_GROUPS, true);
+
+		// far enough in the future that no timer fires before the snapshot
+		long time = System.currentTimeMillis() + 500L;
+
+		StreamTaskState snapshot;
+		synchronized (testHarness.getCheckpointLock()) {
+			testHarness.open();
+
+			testHarness.processElement(new StreamRecord<>(new Tuple2<>("a", time)));
+			testHarness.processElement(new StreamRecord<>(new Tuple2<>("b", time + 10L)));
+			testHarness.processElement(new StreamRecord<>(new Tuple2<>("a", time)));
+
+			snapshot = testHarness.snapshot(0L, 0L);
+			testHarness.close();
+		}
+
+		assertNull(snapshot.getTimerState());
+		assertNotNull(snapshot.getKeyGroupTimerStates());
+
+		OneInputStreamOperatorTestHarness<Tuple2<String, Long>, String> restoredHarness = createTestHarness(NUMBER_OF_KEY_GROUPS, true);
+		restoredHarness.setup();
+		restoredHarness.restore(snapshot, 0L);
+		restoredHarness.open();
+
+		// the restored timers fire without any timer being registered after the restore
+		long deadline = System.currentTimeMillis() + 10000L;
+		while (restoredHarness.getOutput().size() < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10L);
+		}
+
+		synchronized (restoredHarness.getCheckpointLock()) {
+			ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+			expectedOutput.add(new StreamRecord<>("a@" + time, time));
+			expectedOutput.add(new StreamRecord<>("b@" + (time + 10L), time + 10L));
+
+			TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, restoredHarness.getOutput());
+
+			restoredHarness.close();
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static OneInputStreamOperatorTestHarness<Tuple2<String, Long>, String> createTestHarness(
+			int numberOfKeyGroups,
+			boolean processingTime) {
+
+		ExecutionConfig executionConfig = new ExecutionConfig();
+		executionConfig.setNumberOfKeyGroups(numberOfKeyGroups);
+
+		OneInputStreamOperatorTestHarness<Tuple2<String, Long>, String> testHarness =
+			new OneInputStreamOperatorTestHarness<>(new TimerOperator(processingTime), executionConfig);
+		testHarness.configureForKeyedStream(new TupleKeySelector(), BasicTypeInfo.STRING_TYPE_INFO);
+		return testHarness;
+	}
+
+	/**
+	 * Registers an event-time or processing-time timer at the timestamp of each element, or deletes
+	 * the timers of the key for negative timestamps, and emits "key@timestamp" when a timer fires.
+	 */
+	private static class TimerOperator extends AbstractStreamOperator<String>
+			implements OneInputStreamOperator<Tuple2<String, Long>, String>, InternalTimerCallback<String, String> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final boolean processingTime;
+
+		private transient InternalTimerService<String> timerService;
+
+		TimerOperator(boolean processingTime) {
+			this.processingTime = processingTime;
+		}
+
+		@Override
+		public void open() throws Exception {
+			super.open();
+			timerService = getInternalTimerService("test-timers", StringSerializer.INSTANCE, this);
+		}
+
+		@Override
+		public void processElement(StreamRecord<Tuple2<String, Long>> element) throws Exception {
+			long time = element.getValue().f1;
+			if (processingTime) {
+				if (time >= 0) {
+					timerService.registerProcessingTimeTimer("namespace", time);
+				} else {
+					timerService.deleteProcessingTimeTimer("namespace", -time);
+				}
+			} else {
+				if (time >= 0) {
+					timerService.registerEventTimeTimer("namespace", time);
+				} else {
+					timerService.deleteEventTimeTimer("namespace", -time);
+				}
+			}
+		}
+
+		@Override
+		public void processWatermark(Watermark mark) throws Exception {
+			advanceWatermark(mark.getTimestamp());
+			output.emitWatermark(mark);
+		}
+
+		@Override
+		public void onEventTime(InternalTimer<String, String> timer) throws Exception {
+			output.collect(new StreamRecord<>(timer.getKey() + "@" + timer.getTimestamp(), timer.getTimestamp()));
+		}
+
+		@Override
+		public void onProcessingTime(InternalTimer<String, String> timer) throws Exception {
+			output.collect(new StreamRecord<>(timer.getKey() + "@" + timer.getTimestamp(), timer.getTimestamp()));
+		}
+	}
+
+	private static class TupleKeySelector implements KeySelector<Tuple2<String, Long>, String> {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public String getKey(Tuple2<String, Long> value) throws Exception {
+			return value.f0;
+		}
+	}
+
+	private static class OutputComparator implements java.util.Comparator<Object> {
+
+		@Override
+		public int compare(Object o1, Object o2) {
+			if (o1 instanceof Watermark || o2 instanceof Watermark) {
+				return 0;
+			}
+			String s1 = (String) ((StreamRecord<?>) o1).getValue();
+			String s2 = (String) ((StreamRecord<?>) o2).getValue();
+			return s1.compareTo(s2);
+		}
+	}
+}
@@ -94,6 +94,67 @@ public class StreamGroupedFoldTest {
 		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
 	}
 
+	@Test
+	public void testMiniBatchFold() throws Exception {
+
+		KeySelector<Integer, String> keySelector = new KeySelector<Integer, String>() {
+
+			@Override
+			public String getKey(Integer value) {
+				return value.toString();
+			}
+		};
+
+		ExecutionConfig config = new ExecutionConfig();
+		config.enableMiniBatch(4, 0);
+
+		StreamGroupedFold<Integer, String, String> operator = new StreamGroupedFold<>(new MyFolder(), "100");
+		operator.setOutputType(BasicTypeInfo.STRING_TYPE_INFO, config);
+
+		OneInputStreamOperatorTestHarness<Integer, String> testHarness =
+				new OneInputStreamOperatorTestHarness<>(operator, config);
+		testHarness.configureForKeyedStream(keySelector, BasicTypeInfo.STRING_TYPE_INFO);
+
+		long initialTime = 0L;
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+
+		testHarness.open();
+
+		// the first batch is processed when it is full
+		testHarness.processElement(new StreamRecord<>(1, initialTime + 1));
+		testHarness.processElement(new StreamRecord<>(2, initialTime + 2));
+		testHarness.processElement(new StreamRecord<>(1, initialTime + 3));
+		assertTrue(testHarness.getOutput().isEmpty());
+		testHarness.processElement(new StreamRecord<>(2, initialTime + 4));
+
+		expectedOutput.add(new StreamRecord<>("10011", initialTime + 3));
+		expectedOutput.add(new StreamRecord<>("10022", initialTime + 4));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+
+		// the second batch is processed before the watermark and continues from the state
+		testHarness.processElement(new StreamRecord<>(1, initialTime + 5));
+		testHarness.processWatermark(new Watermark(initialTime + 5));
+
+		expectedOutput.add(new StreamRecord<>("100111", initialTime + 5));
+		expectedOutput.add(new Watermark(initialTime + 5));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+
+		// the third batch is processed before the checkpoint barrier
+		testHarness.processElement(new StreamRecord<>(3, initialTime + 6));
+		testHarness.processElement(new StreamRecord<>(3, initialTime + 7));
+		operator.prepareSnapshotPreBarrier(1L);
+
+		expectedOutput.add(new StreamRecord<>("10033", initialTime + 7));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+
+		// the last batch is processed when the operator is closed
+		testHarness.processElement(new StreamRecord<>(2, initialTime + 8));
+		testHarness.close();
+
+		expectedOutput.add(new StreamRecord<>("100222", initialTime + 8));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+	}
+
 	@Test
 	public void testOpenClose() throws Exception {
 		KeySelector<Integer, Integer> keySelector = new KeySelector<Integer, Integer>() {
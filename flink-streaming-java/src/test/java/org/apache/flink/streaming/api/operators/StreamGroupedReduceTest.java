@@ -19,6 +19,7 @@ package org.apache.flink.streaming.api.operators;
 
 import java.util.concurrent.ConcurrentLinkedQueue;
 
+import org.apache.flink.api.common.ExecutionConfig;
 import org.apache.flink.api.common.functions.ReduceFunction;
 import org.apache.flink.api.common.functions.RichReduceFunction;
 import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
@@ -40,6 +41,7 @@ import org.junit.Test;
  *     <li>RichFunction methods are called correctly</li>
  *     <li>Timestamps of processed elements match the input timestamp</li>
  *     <li>Watermarks are correctly forwarded</li>
+ *     <li>In mini-batch mode, the elements are reduced per key and batch</li>
  * </ul>
  */
 
@@ -77,6 +79,93 @@ public class StreamGroupedReduceTest {
 		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
 	}
 
+	@Test
+	public void testMiniBatchReduce() throws Exception {
+
+		KeySelector<Integer, Integer> keySelector = new IntegerKeySelector();
+
+		StreamGroupedReduce<Integer> operator = new StreamGroupedReduce<>(new MyReducer(), IntSerializer.INSTANCE);
+
+		ExecutionConfig config = new ExecutionConfig();
+		config.enableMiniBatch(4, 0);
+
+		OneInputStreamOperatorTestHarness<Integer, Integer> testHarness =
+				new OneInputStreamOperatorTestHarness<>(operator, config);
+		testHarness.configureForKeyedStream(keySelector, BasicTypeInfo.INT_TYPE_INFO);
+
+		long initialTime = 0L;
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+
+		testHarness.open();
+
+		// the first batch is processed when it is full
+		testHarness.processElement(new StreamRecord<>(1, initialTime + 1));
+		testHarness.processElement(new StreamRecord<>(2, initialTime + 2));
+		testHarness.processElement(new StreamRecord<>(1, initialTime + 3));
+		Assert.assertEquals(0, testHarness.getOutput().size());
+		testHarness.processElement(new StreamRecord<>(2, initialTime + 4));
+
+		expectedOutput.add(new StreamRecord<>(2, initialTime + 3));
+		expectedOutput.add(new StreamRecord<>(4, initialTime + 4));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+
+		// the second batch is processed before the watermark and reduced with the state
+		testHarness.processElement(new StreamRecord<>(1, initialTime + 5));
+		testHarness.processWatermark(new Watermark(initialTime + 5));
+
+		expectedOutput.add(new StreamRecord<>(3, initialTime + 5));
+		expectedOutput.add(new Watermark(initialTime + 5));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+
+		// the third batch is processed before the checkpoint barrier
+		testHarness.processElement(new StreamRecord<>(3, initialTime + 6));
+		testHarness.processElement(new StreamRecord<>(3, initialTime + 7));
+		operator.prepareSnapshotPreBarrier(1L);
+
+		expectedOutput.add(new StreamRecord<>(6, initialTime + 7));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+
+		// the last batch is processed when the operator is closed
+		testHarness.processElement(new StreamRecord<>(2, initialTime + 8));
+		testHarness.close();
+
+		expectedOutput.add(new StreamRecord<>(6, initialTime + 8));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+	}
+
+	@Test
+	public void testMiniBatchLatency() throws Exception {
+
+		KeySelector<Integer, Integer> keySelector = new IntegerKeySelector();
+
+		StreamGroupedReduce<Integer> operator = new StreamGroupedReduce<>(new MyReducer(), IntSerializer.INSTANCE);
+
+		ExecutionConfig config = new ExecutionConfig();
+		config.enableMiniBatch(100, 10);
+
+		OneInputStreamOperatorTestHarness<Integer, Integer> testHarness =
+				new OneInputStreamOperatorTestHarness<>(operator, config);
+		testHarness.configureForKeyedStream(keySelector, BasicTypeInfo.INT_TYPE_INFO);
+
+		testHarness.open();
+
+		synchronized (testHarness.getCheckpointLock()) {
+			testHarness.processElement(new StreamRecord<>(1, 1));
+			testHarness.processElement(new StreamRecord<>(1, 2));
+		}
+
+		long deadline = System.currentTimeMillis() + 10000;
+		while (testHarness.getOutput().isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+		expectedOutput.add(new StreamRecord<>(2, 2));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+
+		testHarness.close();
+	}
+
 	@Test
 	public void testOpenClose() throws Exception {
 
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.apache.flink.streaming.util.TestHarnessUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Tests for {@link StreamLocalGroupedReduce}. These test that:
+ *
+ * <ul>
+ *     <li>Elements are reduced per key and batch</li>
+ *     <li>Batches are emitted when they are full, before watermarks and checkpoint barriers,
+ *     when the operator is closed and when the maximum latency passed</li>
+ *     <li>The timestamp of a partial aggregate is the latest timestamp of its elements</li>
+ * </ul>
+ */
+public class StreamLocalGroupedReduceTest {
+
+	@Test
+	public void testLocalReduce() throws Exception {
+		StreamLocalGroupedReduce<Integer, Integer> operator = new StreamLocalGroupedReduce<>(
+				new SumReducer(), new ModuloKeySelector(), IntSerializer.INSTANCE, 4, 0);
+
+		OneInputStreamOperatorTestHarness<Integer, Integer> testHarness = new OneInputStreamOperatorTestHarness<>(operator);
+
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+
+		testHarness.open();
+
+		// the first batch is emitted when it is full
+		testHarness.processElement(new StreamRecord<>(1, 1));
+		testHarness.processElement(new StreamRecord<>(2, 2));
+		testHarness.processElement(new StreamRecord<>(3, 3));
+		Assert.assertEquals(0, testHarness.getOutput().size());
+		testHarness.processElement(new StreamRecord<>(4, 4));
+
+		expectedOutput.add(new StreamRecord<>(4, 3));
+		expectedOutput.add(new StreamRecord<>(6, 4));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+
+		// the second batch is emitted before the watermark
+		testHarness.processElement(new StreamRecord<>(5, 6));
+		testHarness.processElement(new StreamRecord<>(7, 5));
+		testHarness.processWatermark(new Watermark(6));
+
+		expectedOutput.add(new StreamRecord<>(12, 6));
+		expectedOutput.add(new Watermark(6));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+
+		// the third batch is emitted before the checkpoint barrier
+		testHarness.processElement(new StreamRecord<>(8, 7));
+		operator.prepareSnapshotPreBarrier(1L);
+
+		expectedOutput.add(new StreamRecord<>(8, 7));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+
+		// the last batch is emitted when the operator is closed
+		testHarness.processElement(new StreamRecord<>(9, 8));
+		testHarness.close();
+
+		expectedOutput.add(new StreamRecord<>(9, 8));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+	}
+
+	@Test
+	public void testLocalReduceWithObjectReuse() throws Exception {
+		StreamLocalGroupedReduce<Integer, Integer> operator = new StreamLocalGroupedReduce<>(
+				new SumReducer(), new ModuloKeySelector(), IntSerializer.INSTANCE, 2, 0);
+
+		ExecutionConfig config = new ExecutionConfig();
+		config.enableObjectReuse();
+
+		OneInputStreamOperatorTestHarness<Integer, Integer> testHarness =
+				new OneInputStreamOperatorTestHarness<>(operator, config);
+
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+
+		testHarness.open();
+
+		testHarness.processElement(new StreamRecord<>(1, 1));
+		testHarness.processElement(new StreamRecord<>(3, 2));
+
+		expectedOutput.add(new StreamRecord<>(4, 2));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+
+		testHarness.close();
+	}
+
+	@Test
+	public void testLatency() throws Exception {
+		StreamLocalGroupedReduce<Integer, Integer> operator = new StreamLocalGroupedReduce<>(
+				new SumReducer(), new ModuloKeySelector(), IntSerializer.INSTANCE, 100, 10);
+
+		OneInputStreamOperatorTestHarness<Integer, Integer> testHarness = new OneInputStreamOperatorTestHarness<>(operator);
+
+		testHarness.open();
+
+		synchronized (testHarness.getCheckpointLock()) {
+			testHarness.processElement(new StreamRecord<>(2, 1));
+			testHarness.processElement(new StreamRecord<>(4, 2));
+		}
+
+		long deadline = System.currentTimeMillis() + 10000;
+		while (testHarness.getOutput().isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+		expectedOutput.add(new StreamRecord<>(6, 2));
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+
+		testHarness.close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBatchSize() {
+		new StreamLocalGroupedReduce<>(new SumReducer(), new ModuloKeySelector(), IntSerializer.INSTANCE, 0, 0);
+	}
+
+	// ------------------------------------------------------------------------
+	//  Utilities
+	// ------------------------------------------------------------------------
+
+	private static class SumReducer implements ReduceFunction<Integer> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Integer reduce(Integer value1, Integer value2) throws Exception {
+			return value1 + value2;
+		}
+	}
+
+	private static class ModuloKeySelector implements KeySelector<Integer, Integer> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Integer getKey(Integer value) throws Exception {
+			return value % 2;
+		}
+	}
+}
@@ -22,6 +22,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import org.apache.flink.api.common.functions.MapFunction;
 import org.apache.flink.api.common.functions.RichMapFunction;
 import org.apache.flink.configuration.Configuration;
+import org.apache.flink.streaming.api.functions.ReadOnlyInput;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
@@ -36,6 +37,7 @@ import org.junit.Test;
  *     <li>RichFunction methods are called correctly</li>
  *     <li>Timestamps of processed elements match the input timestamp</li>
  *     <li>Watermarks are correctly forwarded</li>
+ *     <li>The input copy is only disabled for functions with read-only input</li>
  * </ul>
  */
 public class StreamMapTest {
@@ -73,6 +75,22 @@ public class StreamMapTest {
 		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
 	}
 
+	@Test
+	public void testReadOnlyInput() throws Exception {
+		Assert.assertFalse(new StreamMap<Integer, String>(new Map()).isInputCopyingDisabled());
+		Assert.assertTrue(new StreamMap<Integer, String>(new ReadOnlyMap()).isInputCopyingDisabled());
+	}
+
+	@ReadOnlyInput
+	private static class ReadOnlyMap implements MapFunction<Integer, String> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public String map(Integer value) throws Exception {
+			return String.valueOf(value);
+		}
+	}
+
 	@Test
 	public void testOpenClose() throws Exception {
 		StreamMap<String, String> operator = new StreamMap<String, String>(new TestOpenCloseMapFunction());
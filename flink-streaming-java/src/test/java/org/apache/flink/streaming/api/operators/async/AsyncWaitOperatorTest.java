@@ -0,0 +1,358 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.api.operators.async;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.streaming.api.datastream.AsyncDataStream;
+import org.apache.flink.streaming.api.datastream.AsyncDataStream.OutputMode;
+import org.apache.flink.streaming.api.datastream.DataStream;
+import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.streaming.api.functions.async.AsyncCollector;
+import org.apache.flink.streaming.api.functions.async.AsyncFunction;
+import org.apache.flink.streaming.api.functions.async.RichAsyncFunction;
+import org.apache.flink.streaming.api.graph.StreamConfig;
+import org.apache.flink.streaming.api.operators.Output;
+import org.apache.flink.streaming.api.transformations.OneInputTransformation;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamrecord.StreamStatus;
+import org.apache.flink.streaming.runtime.tasks.StreamTask;
+import org.apache.flink.streaming.runtime.tasks.StreamTaskState;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link AsyncWaitOperator}.
+ */
+public class AsyncWaitOperatorTest {
+
+	@Test
+	public void testOrderedOutput() throws Exception {
+		AsyncWaitOperator<Integer, Integer> operator = createOperator(new DelayedDoubler(), 5, 0, OutputMode.ORDERED);
+		OneInputStreamOperatorTestHarness<Integer, Integer> testHarness = new OneInputStreamOperatorTestHarness<>(operator);
+
+		List<Object> expectedOutput = new ArrayList<>();
+
+		synchronized (testHarness.getCheckpointLock()) {
+			testHarness.open();
+
+			for (int i = 1; i <= 20; i++) {
+				testHarness.processElement(new StreamRecord<>(i, i));
+				expectedOutput.add(new StreamRecord<>(2 * i, i));
+
+				if (i % 5 == 0) {
+					testHarness.processWatermark(new Watermark(i));
+					expectedOutput.add(new Watermark(i));
+				}
+			}
+
+			testHarness.close();
+		}
+
+		assertEquals(expectedOutput, new ArrayList<>(testHarness.getOutput()));
+	}
+
+	@Test
+	public void testUnorderedOutput() throws Exception {
+		AsyncWaitOperator<Integer, Integer> operator = createOperator(new DelayedDoubler(), 5, 0, OutputMode.UNORDERED);
+		OneInputStreamOperatorTestHarness<Integer, Integer> testHarness = new OneInputStreamOperatorTestHarness<>(operator);
+
+		synchronized (testHarness.getCheckpointLock()) {
+			testHarness.open();
+
+			for (int i = 1; i <= 20; i++) {
+				testHarness.processElement(new StreamRecord<>(i, i));
+
+				if (i % 5 == 0) {
+					testHarness.processWatermark(new Watermark(i));
+				}
+			}
+
+			testHarness.close();
+		}
+
+		// the results may be reordered, but not across watermarks
+		ConcurrentLinkedQueue<Object> output = testHarness.getOutput();
+		assertEquals(24, output.size());
+
+		Set<Integer> results = new HashSet<>();
+		for (Object element : output) {
+			if (element instanceof Watermark) {
+				long watermark = ((Watermark) element).getTimestamp();
+				Set<Integer> expectedResults = new HashSet<>();
+				for (int i = (int) watermark - 4; i <= watermark; i++) {
+					expectedResults.add(2 * i);
+				}
+				assertEquals(expectedResults, results);
+				results.clear();
+			} else {
+				@SuppressWarnings("unchecked")
+				StreamRecord<Integer> record = (StreamRecord<Integer>) element;
+				assertEquals(record.getValue() / 2, record.getTimestamp());
+				results.add(record.getValue());
+			}
+		}
+	}
+
+	@Test
+	public void testSnapshotAndRestorePendingElements() throws Exception {
+		PendingFunction.collectors.clear();
+
+		AsyncWaitOperator<Integer, Integer> operator = createOperator(new PendingFunction(), 10, 0, OutputMode.ORDERED);
+		OneInputStreamOperatorTestHarness<Integer, Integer> testHarness = new OneInputStreamOperatorTestHarness<>(operator);
+
+		StreamTaskState snapshot;
+		synchronized (testHarness.getCheckpointLock()) {
+			testHarness.open();
+
+			testHarness.processElement(new StreamRecord<>(1, 1));
+			testHarness.processElement(new StreamRecord<>(2, 2));
+			testHarness.processWatermark(new Watermark(2));
+			testHarness.processElement(new StreamRecord<>(3, 3));
+
+			assertEquals(4, operator.getNumberOfPendingEntries());
+
+			snapshot = testHarness.snapshot(0L, 0L);
+			operator.dispose();
+		}
+		assertTrue(testHarness.getOutput().isEmpty());
+
+		PendingFunction.collectors.clear();
+
+		AsyncWaitOperator<Integer, Integer> restoredOperator = createOperator(new PendingFunction(), 10, 0, OutputMode.ORDERED);
+		OneInputStreamOperatorTestHarness<Integer, Integer> restoredHarness = new OneInputStreamOperatorTestHarness<>(restoredOperator);
+
+		synchronized (restoredHarness.getCheckpointLock()) {
+			restoredHarness.setup();
+			restoredHarness.restore(snapshot, 1L);
+			restoredHarness.open();
+
+			// the requests of the restored elements are issued again
+			assertEquals(3, PendingFunction.collectors.size());
+
+			for (int i = PendingFunction.collectors.size() - 1; i >= 0; i--) {
+				PendingFunction.collectors.get(i).collect(Collections.singletonList(10 * (i + 1)));
+			}
+
+			restoredHarness.close();
+		}
+
+		List<Object> expectedOutput = new ArrayList<>();
+		expectedOutput.add(new StreamRecord<>(10, 1));
+		expectedOutput.add(new StreamRecord<>(20, 2));
+		expectedOutput.add(new Watermark(2));
+		expectedOutput.add(new StreamRecord<>(30, 3));
+
+		assertEquals(expectedOutput, new ArrayList<>(restoredHarness.getOutput()));
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		PendingFunction.collectors.clear();
+
+		AsyncWaitOperator<Integer, Integer> operator = createOperator(new PendingFunction(), 10, 10L, OutputMode.ORDERED);
+		OneInputStreamOperatorTestHarness<Integer, Integer> testHarness = new OneInputStreamOperatorTestHarness<>(operator);
+
+		synchronized (testHarness.getCheckpointLock()) {
+			testHarness.open();
+			testHarness.processElement(new StreamRecord<>(1, 1));
+
+			try {
+				// waits for the pending element, which times out
+				testHarness.close();
+				fail("should fail with an exception");
+			} catch (Exception e) {
+				assertTrue(e.getCause() instanceof TimeoutException);
+			}
+			operator.dispose();
+		}
+
+		assertTrue(testHarness.getOutput().isEmpty());
+	}
+
+	@Test
+	public void testFailedRequest() throws Exception {
+		AsyncFunction<Integer, Integer> failingFunction = new AsyncFunction<Integer, Integer>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void asyncInvoke(Integer input, AsyncCollector<Integer> collector) throws Exception {
+				collector.collect(new Exception("Test exception"));
+			}
+		};
+
+		AsyncWaitOperator<Integer, Integer> operator = createOperator(failingFunction, 10, 0, OutputMode.UNORDERED);
+		OneInputStreamOperatorTestHarness<Integer, Integer> testHarness = new OneInputStreamOperatorTestHarness<>(operator);
+
+		synchronized (testHarness.getCheckpointLock()) {
+			testHarness.open();
+			testHarness.processElement(new StreamRecord<>(1, 1));
+
+			try {
+				testHarness.processElement(new StreamRecord<>(2, 2));
+				fail("should fail with an exception");
+			} catch (Exception e) {
+				assertEquals("Test exception", e.getCause().getMessage());
+			}
+			operator.dispose();
+		}
+	}
+
+	@Test
+	public void testFailingOutput() throws Exception {
+		AsyncWaitOperator<Integer, Integer> operator = new AsyncWaitOperator<Integer, Integer>(
+				new DelayedDoubler(), 1, 0, OutputMode.ORDERED,
+				BasicTypeInfo.INT_TYPE_INFO.createSerializer(new ExecutionConfig())) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void setup(StreamTask<?, ?> containingTask, StreamConfig config, Output<StreamRecord<Integer>> output) {
+				super.setup(containingTask, config, new FailingOutput());
+			}
+		};
+		OneInputStreamOperatorTestHarness<Integer, Integer> testHarness = new OneInputStreamOperatorTestHarness<>(operator);
+
+		synchronized (testHarness.getCheckpointLock()) {
+			testHarness.open();
+			testHarness.processElement(new StreamRecord<>(1, 1));
+
+			try {
+				// the operator waits for capacity until the emitter failed
+				testHarness.processElement(new StreamRecord<>(2, 2));
+				fail("should fail with an exception");
+			} catch (Exception e) {
+				assertEquals("Test exception", e.getCause().getMessage());
+			}
+			operator.dispose();
+		}
+	}
+
+	@Test
+	public void testTranslation() {
+		StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+		DataStream<Integer> input = env.fromElements(1, 2, 3);
+
+		DataStream<Integer> result = AsyncDataStream.unorderedWait(input, new DelayedDoubler(), 1, TimeUnit.SECONDS, 7);
+
+		OneInputTransformation<?, ?> transformation = (OneInputTransformation<?, ?>) result.getTransformation();
+		assertTrue(transformation.getOperator() instanceof AsyncWaitOperator);
+		assertEquals(BasicTypeInfo.INT_TYPE_INFO, result.getType());
+	}
+
+	// ------------------------------------------------------------------------
+	//  Utilities
+	// ------------------------------------------------------------------------
+
+	private static AsyncWaitOperator<Integer, Integer> createOperator(
+			AsyncFunction<Integer, Integer> function,
+			int capacity,
+			long timeout,
+			OutputMode outputMode) {
+
+		return new AsyncWaitOperator<>(
+				function,
+				capacity,
+				timeout,
+				outputMode,
+				BasicTypeInfo.INT_TYPE_INFO.createSerializer(new ExecutionConfig()));
+	}
+
+	/**
+	 * Completes each request with the doubled input, after a random delay.
+	 */
+	private static class DelayedDoubler extends RichAsyncFunction<Integer, Integer> {
+		private static final long serialVersionUID = 1L;
+
+		private transient ExecutorService executor;
+
+		@Override
+		public void open(Configuration parameters) throws Exception {
+			executor = Executors.newFixedThreadPool(4);
+		}
+
+		@Override
+		public void close() throws Exception {
+			executor.shutdown();
+		}
+
+		@Override
+		public void asyncInvoke(final Integer input, final AsyncCollector<Integer> collector) throws Exception {
+			executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						Thread.sleep((long) (Math.random() * 10));
+					} catch (InterruptedException ignored) {}
+					collector.collect(Collections.singletonList(2 * input));
+				}
+			});
+		}
+	}
+
+	/**
+	 * Downstream output that fails on every record.
+	 */
+	private static class FailingOutput implements Output<StreamRecord<Integer>> {
+
+		@Override
+		public void collect(StreamRecord<Integer> record) {
+			throw new RuntimeException("Test exception");
+		}
+
+		@Override
+		public void emitWatermark(Watermark mark) {}
+
+		@Override
+		public void emitStreamStatus(StreamStatus status) {}
+
+		@Override
+		public void close() {}
+	}
+
+	/**
+	 * Keeps the collectors of all requests, so that the test completes them.
+	 */
+	private static class PendingFunction implements AsyncFunction<Integer, Integer> {
+		private static final long serialVersionUID = 1L;
+
+		static final List<AsyncCollector<Integer>> collectors = Collections.synchronizedList(new ArrayList<AsyncCollector<Integer>>());
+
+		@Override
+		public void asyncInvoke(Integer input, AsyncCollector<Integer> collector) throws Exception {
+			collectors.add(collector);
+		}
+	}
+}
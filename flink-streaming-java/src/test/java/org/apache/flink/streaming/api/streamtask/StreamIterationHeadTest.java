@@ -18,21 +18,40 @@
 package org.apache.flink.streaming.api.streamtask;
 
 import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
+import org.apache.flink.runtime.operators.testutils.MockInputSplitProvider;
+import org.apache.flink.runtime.state.StateHandle;
+import org.apache.flink.streaming.api.graph.StreamConfig;
 import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.io.FeedbackQueueBroker;
+import org.apache.flink.streaming.runtime.io.SpillingFeedbackQueue;
+import org.apache.flink.streaming.runtime.streamrecord.StreamElement;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.apache.flink.streaming.runtime.tasks.StreamIterationHead;
+import org.apache.flink.streaming.runtime.tasks.StreamMockEnvironment;
+import org.apache.flink.streaming.runtime.tasks.StreamTaskStateList;
 import org.apache.flink.streaming.runtime.tasks.StreamTaskTestHarness;
+import org.apache.flink.streaming.util.TestHarnessUtil;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
 import static org.junit.Assert.*;
 
 @RunWith(PowerMockRunner.class)
 @PrepareForTest({ ResultPartitionWriter.class })
 public class StreamIterationHeadTest {
 
+	private static final String ITERATION_ID = "test-iteration";
+
 	@Test
 	public void testIterationHeadWatermarkEmission() throws Exception {
 		StreamIterationHead<Integer> head = new StreamIterationHead<>();
@@ -48,4 +67,177 @@ public class StreamIterationHeadTest {
 		assertEquals(new Watermark(Long.MAX_VALUE), harness.getOutput().peek());
 	}
 
+	/**
+	 * Checks that the records that the head takes from the feedback queue between the checkpoint
+	 * and the return of its barrier are acknowledged as the state of the checkpoint, and that a
+	 * restored head emits them again before it takes new records from the queue.
+	 */
+	@Test
+	public void testSnapshotAndRestoreFeedbackRecords() throws Exception {
+		final StreamIterationHead<Integer> head = new StreamIterationHead<>();
+		final StreamTaskTestHarness<Integer> testHarness = createTestHarness(head);
+		final AcknowledgingMockEnvironment env = createEnvironment(testHarness);
+
+		testHarness.invoke(env);
+		testHarness.waitForTaskRunning();
+
+		SpillingFeedbackQueue<StreamElement> queue = getFeedbackQueue(env);
+
+		// this record is emitted before the checkpoint
+		queue.add(new StreamRecord<>(1));
+		waitForOutput(testHarness.getOutput(), 1);
+
+		assertTrue(head.triggerCheckpoint(1L, 42L));
+		assertTrue(testHarness.getOutput().contains(new CheckpointBarrier(1L, 42L)));
+
+		// these records are on the feedback edge while the barrier travels around the loop
+		queue.add(new StreamRecord<>(2));
+		queue.add(new StreamRecord<>(3));
+		queue.addCheckpointBarrier(new CheckpointBarrier(1L, 42L));
+
+		// this record is emitted after the checkpoint
+		queue.add(new StreamRecord<>(4));
+
+		StreamTaskStateList state = (StreamTaskStateList) env.waitForAcknowledgedState(1L);
+		testHarness.waitForTaskCompletion();
+
+		assertEquals(Arrays.asList(1, 2, 3, 4),
+				TestHarnessUtil.<Integer>getRawElementsFromOutput(testHarness.getOutput()));
+
+		// restore a new head from the checkpoint
+
+		final StreamIterationHead<Integer> restoredHead = new StreamIterationHead<>();
+		final StreamTaskTestHarness<Integer> restoredTestHarness = createTestHarness(restoredHead);
+		final AcknowledgingMockEnvironment restoredEnv = createEnvironment(restoredTestHarness);
+
+		restoredHead.setInitialState(state, 0L);
+		restoredTestHarness.invoke(restoredEnv);
+		restoredTestHarness.waitForTaskRunning();
+
+		getFeedbackQueue(restoredEnv).add(new StreamRecord<>(5));
+		restoredTestHarness.waitForTaskCompletion();
+
+		assertEquals(Arrays.asList(2, 3, 5),
+				TestHarnessUtil.<Integer>getRawElementsFromOutput(restoredTestHarness.getOutput()));
+	}
+
+	/**
+	 * Checks that a checkpoint whose barrier does not come back through the feedback queue is
+	 * not acknowledged, while the next checkpoint is.
+	 */
+	@Test
+	public void testCheckpointWithLostBarrier() throws Exception {
+		final StreamIterationHead<Integer> head = new StreamIterationHead<>();
+		final StreamTaskTestHarness<Integer> testHarness = createTestHarness(head);
+		final AcknowledgingMockEnvironment env = createEnvironment(testHarness);
+
+		testHarness.invoke(env);
+		testHarness.waitForTaskRunning();
+
+		SpillingFeedbackQueue<StreamElement> queue = getFeedbackQueue(env);
+
+		assertTrue(head.triggerCheckpoint(1L, 42L));
+		queue.add(new StreamRecord<>(1));
+		waitForOutput(testHarness.getOutput(), 1);
+
+		// the barrier of the first checkpoint was dropped in the loop
+		assertTrue(head.triggerCheckpoint(2L, 43L));
+		queue.add(new StreamRecord<>(2));
+		queue.addCheckpointBarrier(new CheckpointBarrier(2L, 43L));
+
+		StreamTaskStateList state = (StreamTaskStateList) env.waitForAcknowledgedState(2L);
+		testHarness.waitForTaskCompletion();
+
+		assertFalse(env.isAcknowledged(1L));
+		assertEquals(Arrays.asList(1, 2),
+				TestHarnessUtil.<Integer>getRawElementsFromOutput(testHarness.getOutput()));
+
+		// only the record after the second checkpoint is part of its state
+
+		final StreamIterationHead<Integer> restoredHead = new StreamIterationHead<>();
+		final StreamTaskTestHarness<Integer> restoredTestHarness = createTestHarness(restoredHead);
+
+		restoredHead.setInitialState(state, 0L);
+		restoredTestHarness.invoke(createEnvironment(restoredTestHarness));
+		restoredTestHarness.waitForTaskCompletion();
+
+		assertEquals(Arrays.asList(2),
+				TestHarnessUtil.<Integer>getRawElementsFromOutput(restoredTestHarness.getOutput()));
+	}
+
+	// ------------------------------------------------------------------------
+	//  Utilities
+	// ------------------------------------------------------------------------
+
+	private static StreamTaskTestHarness<Integer> createTestHarness(StreamIterationHead<Integer> head) {
+		StreamTaskTestHarness<Integer> testHarness =
+				new StreamTaskTestHarness<>(head, BasicTypeInfo.INT_TYPE_INFO);
+
+		StreamConfig streamConfig = testHarness.getStreamConfig();
+		streamConfig.setIterationId(ITERATION_ID);
+		// the head finishes once the feedback queue stays empty for this time
+		streamConfig.setIterationWaitTime(1000L);
+		streamConfig.setCheckpointingEnabled(true);
+
+		return testHarness;
+	}
+
+	private static AcknowledgingMockEnvironment createEnvironment(StreamTaskTestHarness<Integer> testHarness) {
+		return new AcknowledgingMockEnvironment(testHarness.jobConfig, testHarness.taskConfig,
+				testHarness.memorySize, testHarness.bufferSize);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static SpillingFeedbackQueue<StreamElement> getFeedbackQueue(StreamMockEnvironment env) {
+		String brokerId = StreamIterationHead.createBrokerIdString(env.getJobID(), ITERATION_ID,
+				env.getTaskInfo().getIndexOfThisSubtask());
+		return (SpillingFeedbackQueue<StreamElement>) FeedbackQueueBroker.INSTANCE.get(brokerId);
+	}
+
+	private static void waitForOutput(Queue<Object> output, int numRecords) throws InterruptedException {
+		while (TestHarnessUtil.getRawElementsFromOutput(output).size() < numRecords) {
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * Mock environment that keeps the states of the acknowledged checkpoints.
+	 */
+	private static class AcknowledgingMockEnvironment extends StreamMockEnvironment {
+
+		private final Map<Long, StateHandle<?>> acknowledgedStates = new HashMap<>();
+
+		AcknowledgingMockEnvironment(
+				Configuration jobConfig,
+				Configuration taskConfig,
+				long memorySize,
+				int bufferSize) {
+			super(jobConfig, taskConfig, memorySize, new MockInputSplitProvider(), bufferSize);
+		}
+
+		@Override
+		public void acknowledgeCheckpoint(long checkpointId, StateHandle<?> state) {
+			synchronized (acknowledgedStates) {
+				acknowledgedStates.put(checkpointId, state);
+				acknowledgedStates.notifyAll();
+			}
+		}
+
+		StateHandle<?> waitForAcknowledgedState(long checkpointId) throws InterruptedException {
+			synchronized (acknowledgedStates) {
+				while (!acknowledgedStates.containsKey(checkpointId)) {
+					acknowledgedStates.wait();
+				}
+				StateHandle<?> state = acknowledgedStates.get(checkpointId);
+				assertNotNull(state);
+				return state;
+			}
+		}
+
+		boolean isAcknowledged(long checkpointId) {
+			synchronized (acknowledgedStates) {
+				return acknowledgedStates.containsKey(checkpointId);
+			}
+		}
+	}
 }
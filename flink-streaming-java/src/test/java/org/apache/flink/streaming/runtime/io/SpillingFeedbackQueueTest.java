@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.disk.iomanager.IOManagerAsync;
+import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
+import org.apache.flink.runtime.util.event.EventListener;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for the {@link SpillingFeedbackQueue}.
+ */
+public class SpillingFeedbackQueueTest {
+
+	private static IOManager IO_MANAGER;
+
+	@BeforeClass
+	public static void setupIOManager() {
+		IO_MANAGER = new IOManagerAsync();
+	}
+
+	@AfterClass
+	public static void shutdownIOManager() {
+		IO_MANAGER.shutdown();
+	}
+
+	@Test
+	public void testOrderWithSpilling() throws Exception {
+		List<Long> barriers = new ArrayList<>();
+		SpillingFeedbackQueue<Integer> queue = createQueue(barriers, 3);
+
+		// fill the memory, spill, read some, add more while spilled elements are pending
+		for (int i = 0; i < 10; i++) {
+			queue.add(i);
+		}
+		assertEquals(3, queue.getNumMemoryElements());
+		assertEquals(7, queue.getNumSpilledElements());
+
+		for (int i = 0; i < 5; i++) {
+			assertEquals(i, queue.take().intValue());
+		}
+		for (int i = 10; i < 20; i++) {
+			queue.add(i);
+		}
+		assertEquals(0, queue.getNumMemoryElements());
+
+		for (int i = 5; i < 20; i++) {
+			assertEquals(i, queue.take().intValue());
+		}
+		assertEquals(0, queue.getNumSpilledElements());
+
+		// once the spilled elements are taken, the queue uses the memory again
+		queue.add(20);
+		assertEquals(1, queue.getNumMemoryElements());
+		assertEquals(20, queue.take().intValue());
+
+		assertEquals(0, spillDirectoryFiles());
+		assertEquals(0, barriers.size());
+		queue.close();
+	}
+
+	@Test
+	public void testBarriersInOrder() throws Exception {
+		List<Long> barriers = new ArrayList<>();
+		SpillingFeedbackQueue<Integer> queue = createQueue(barriers, 2);
+
+		queue.add(1);
+		queue.addCheckpointBarrier(new CheckpointBarrier(7L, 100L));
+		queue.add(2);
+		queue.add(3);
+		queue.addCheckpointBarrier(new CheckpointBarrier(8L, 200L));
+		queue.add(4);
+
+		assertEquals(1, queue.take().intValue());
+		assertEquals(0, barriers.size());
+
+		// the barrier is handed to the listener before the next record is returned
+		assertEquals(2, queue.take().intValue());
+		assertEquals(1, barriers.size());
+		assertEquals(7L, barriers.get(0).longValue());
+
+		assertEquals(3, queue.take().intValue());
+		assertEquals(4, queue.take().intValue());
+		assertEquals(2, barriers.size());
+		assertEquals(8L, barriers.get(1).longValue());
+
+		queue.close();
+	}
+
+	@Test
+	public void testPollTimeout() throws Exception {
+		List<Long> barriers = new ArrayList<>();
+		SpillingFeedbackQueue<Integer> queue = createQueue(barriers, 2);
+
+		assertNull(queue.poll(10));
+
+		// a trailing barrier is delivered, even if no record follows
+		queue.addCheckpointBarrier(new CheckpointBarrier(3L, 0L));
+		assertNull(queue.poll(10));
+		assertEquals(1, barriers.size());
+
+		queue.close();
+	}
+
+	@Test
+	public void testWaitForTail() throws Exception {
+		final SpillingFeedbackQueue<Integer> queue = createQueue(new ArrayList<Long>(), 1);
+
+		Thread tail = new Thread("feedback tail") {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+					for (int i = 0; i < 100; i++) {
+						queue.add(i);
+					}
+				}
+				catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		tail.start();
+
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i, queue.take().intValue());
+		}
+		tail.join();
+
+		queue.close();
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		SpillingFeedbackQueue<Integer> queue = createQueue(new ArrayList<Long>(), 1);
+
+		queue.add(1);
+		queue.add(2);
+		queue.add(3);
+		queue.close();
+
+		assertEquals(0, spillDirectoryFiles());
+
+		// records added after the head is gone are dropped
+		queue.add(4);
+		assertNull(queue.take());
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static SpillingFeedbackQueue<Integer> createQueue(final List<Long> barriers, int memoryCapacity) {
+		return new SpillingFeedbackQueue<>(
+				IntSerializer.INSTANCE,
+				IO_MANAGER,
+				new EventListener<CheckpointBarrier>() {
+					@Override
+					public void onEvent(CheckpointBarrier barrier) {
+						barriers.add(barrier.getId());
+					}
+				},
+				memoryCapacity);
+	}
+
+	private static int spillDirectoryFiles() {
+		int numFiles = 0;
+		for (File dir : IO_MANAGER.getSpillingDirectories()) {
+			File[] files = dir.listFiles();
+			numFiles += files == null ? 0 : files.length;
+		}
+		return numFiles;
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.streaming.runtime.streamrecord.StreamStatus;
+
+import org.junit.Test;
+
+import static org.apache.flink.streaming.runtime.io.StatusWatermarkValve.NO_WATERMARK;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link StatusWatermarkValve}.
+ */
+public class StatusWatermarkValveTest {
+
+	@Test
+	public void testMinimumOfActiveChannels() {
+		StatusWatermarkValve valve = new StatusWatermarkValve(3);
+
+		assertEquals(NO_WATERMARK, valve.inputWatermark(0, 10));
+		assertEquals(NO_WATERMARK, valve.inputWatermark(1, 5));
+		assertEquals(5, valve.inputWatermark(2, 7));
+
+		// watermarks that do not advance the minimum are swallowed
+		assertEquals(NO_WATERMARK, valve.inputWatermark(1, 4));
+		assertEquals(NO_WATERMARK, valve.inputWatermark(0, 12));
+		assertEquals(7, valve.inputWatermark(1, 15));
+	}
+
+	@Test
+	public void testIdleChannelDoesNotHoldBackWatermark() {
+		StatusWatermarkValve valve = new StatusWatermarkValve(2);
+
+		assertEquals(NO_WATERMARK, valve.inputWatermark(0, 10));
+
+		// channel 1 never sent a watermark, but is idle now
+		assertEquals(10, valve.inputStreamStatus(1, StreamStatus.IDLE));
+		assertFalse(valve.isIdle());
+
+		assertEquals(20, valve.inputWatermark(0, 20));
+
+		// repeated statuses are ignored
+		assertEquals(NO_WATERMARK, valve.inputStreamStatus(1, StreamStatus.IDLE));
+	}
+
+	@Test
+	public void testReactivatedChannelStartsAtInputWatermark() {
+		StatusWatermarkValve valve = new StatusWatermarkValve(2);
+
+		assertEquals(NO_WATERMARK, valve.inputWatermark(0, 3));
+		assertEquals(NO_WATERMARK, valve.inputStreamStatus(0, StreamStatus.IDLE));
+		assertEquals(8, valve.inputWatermark(1, 8));
+
+		// channel 0 becomes active behind the input watermark, which must not go back
+		assertEquals(NO_WATERMARK, valve.inputStreamStatus(0, StreamStatus.ACTIVE));
+		assertEquals(NO_WATERMARK, valve.inputWatermark(1, 12));
+		assertEquals(NO_WATERMARK, valve.inputWatermark(0, 6));
+		assertEquals(12, valve.inputWatermark(0, 13));
+	}
+
+	@Test
+	public void testWatermarkImplicitlyActivatesChannel() {
+		StatusWatermarkValve valve = new StatusWatermarkValve(2);
+
+		assertEquals(NO_WATERMARK, valve.inputStreamStatus(0, StreamStatus.IDLE));
+		assertEquals(NO_WATERMARK, valve.inputStreamStatus(1, StreamStatus.IDLE));
+		assertTrue(valve.isIdle());
+
+		assertEquals(4, valve.inputWatermark(1, 4));
+		assertFalse(valve.isIdle());
+	}
+
+	@Test
+	public void testAllChannelsIdle() {
+		StatusWatermarkValve valve = new StatusWatermarkValve(2);
+
+		assertEquals(NO_WATERMARK, valve.inputWatermark(0, 1));
+		assertEquals(1, valve.inputWatermark(1, 2));
+
+		assertEquals(2, valve.inputStreamStatus(0, StreamStatus.IDLE));
+		assertFalse(valve.isIdle());
+
+		// the watermark does not advance when the whole input is idle
+		assertEquals(NO_WATERMARK, valve.inputStreamStatus(1, StreamStatus.IDLE));
+		assertTrue(valve.isIdle());
+
+		assertEquals(NO_WATERMARK, valve.inputStreamStatus(0, StreamStatus.ACTIVE));
+		assertFalse(valve.isIdle());
+		assertEquals(5, valve.inputWatermark(0, 5));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoChannels() {
+		new StatusWatermarkValve(0);
+	}
+}
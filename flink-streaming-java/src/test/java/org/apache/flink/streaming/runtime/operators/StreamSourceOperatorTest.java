@@ -33,6 +33,7 @@ import org.apache.flink.streaming.api.operators.StreamSource;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamElement;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamrecord.StreamStatus;
 import org.apache.flink.streaming.runtime.tasks.StreamTask;
 
 import org.junit.Test;
@@ -165,6 +166,24 @@ public class StreamSourceOperatorTest {
 
 		assertTrue(output.isEmpty());
 	}
+
+
+	@Test
+	public void testMarkAsTemporarilyIdle() throws Exception {
+
+		final List<StreamElement> output = new ArrayList<>();
+
+		final StreamSource<String, IdleSource> operator = new StreamSource<>(new IdleSource());
+
+		setupSourceOperator(operator);
+		operator.run(new Object(), new CollectorOutput<String>(output));
+
+		assertEquals(4, output.size());
+		assertEquals(new StreamRecord<>("a", 1), output.get(0));
+		assertEquals(StreamStatus.IDLE, output.get(1));
+		assertEquals(new StreamRecord<>("b", 2), output.get(2));
+		assertEquals(Watermark.MAX_WATERMARK, output.get(3));
+	}
 	
 	
 	// ------------------------------------------------------------------------
@@ -191,6 +210,19 @@ public class StreamSourceOperatorTest {
 	
 	// ------------------------------------------------------------------------
 	
+	private static final class IdleSource implements SourceFunction<String> {
+
+		@Override
+		public void run(SourceContext<String> ctx) {
+			ctx.collectWithTimestamp("a", 1);
+			ctx.markAsTemporarilyIdle();
+			ctx.collectWithTimestamp("b", 2);
+		}
+
+		@Override
+		public void cancel() {}
+	}
+
 	private static final class FiniteSource<T> implements SourceFunction<T>, StoppableFunction {
 
 		@Override
@@ -240,9 +272,15 @@ public class StreamSourceOperatorTest {
 			list.add(mark);
 		}
 
+		@Override
+		public void emitStreamStatus(StreamStatus status) {
+			list.add(status);
+		}
+
 		@Override
 		public void collect(StreamRecord<T> record) {
-			list.add(record);
+			// the source contexts reuse the record object
+			list.add(record.copy(record.getValue()));
 		}
 
 		@Override
@@ -23,6 +23,7 @@ import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.streaming.api.functions.AssignerWithPeriodicWatermarks;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamrecord.StreamStatus;
 import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
 
 import org.junit.Test;
@@ -142,6 +143,53 @@ public class TimestampsAndPeriodicWatermarksOperatorTest {
 		}
 	}
 
+	@Test
+	public void testIdleTimeout() throws Exception {
+
+		final TimestampsAndPeriodicWatermarksOperator<Long> operator =
+				new TimestampsAndPeriodicWatermarksOperator<Long>(new LongExtractor());
+
+		final ExecutionConfig config = new ExecutionConfig();
+		config.setAutoWatermarkInterval(10);
+		config.setWatermarkIdleTimeout(50);
+
+		OneInputStreamOperatorTestHarness<Long, Long> testHarness =
+				new OneInputStreamOperatorTestHarness<Long, Long>(operator, config);
+
+		testHarness.open();
+
+		synchronized (testHarness.getCheckpointLock()) {
+			testHarness.processElement(new StreamRecord<>(1L, 1));
+		}
+
+		// without further elements, the stream is marked as idle after the timeout
+		ConcurrentLinkedQueue<Object> output = testHarness.getOutput();
+		Object next;
+		do {
+			while ((next = output.poll()) == null) {
+				Thread.sleep(10);
+			}
+		}
+		while (!(next instanceof StreamStatus));
+
+		assertEquals(StreamStatus.IDLE, next);
+
+		// no watermarks and no repeated status while the stream is idle
+		Thread.sleep(100);
+		assertTrue(output.isEmpty());
+
+		// the next element makes the stream active again and the watermarks continue
+		synchronized (testHarness.getCheckpointLock()) {
+			testHarness.processElement(new StreamRecord<>(5L, 5));
+		}
+
+		assertEquals(new StreamRecord<>(5L, 5), output.poll());
+		while ((next = output.poll()) == null) {
+			Thread.sleep(10);
+		}
+		assertEquals(new Watermark(4), next);
+	}
+
 	// ------------------------------------------------------------------------
 	
 	private Tuple2<Long, Long> validateElement(Object element, long nextElementValue, long currentWatermark) {
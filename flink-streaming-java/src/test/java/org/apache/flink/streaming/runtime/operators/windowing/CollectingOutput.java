@@ -21,6 +21,7 @@ package org.apache.flink.streaming.runtime.operators.windowing;
 import org.apache.flink.streaming.api.operators.Output;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamrecord.StreamStatus;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -63,6 +64,11 @@ public class CollectingOutput<T> implements Output<StreamRecord<T>> {
 		throw new UnsupportedOperationException("the output should not emit watermarks");
 	}
 
+	@Override
+	public void emitStreamStatus(StreamStatus status) {
+		throw new UnsupportedOperationException("the output should not emit stream status");
+	}
+
 	@Override
 	public void collect(StreamRecord<T> record) {
 		elements.add(record.getValue());
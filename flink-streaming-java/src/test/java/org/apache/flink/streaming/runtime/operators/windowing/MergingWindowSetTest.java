@@ -17,12 +17,16 @@
  */
 package org.apache.flink.streaming.runtime.operators.windowing;
 
+import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.streaming.api.windowing.assigners.EventTimeSessionWindows;
 import org.apache.flink.streaming.api.windowing.time.Time;
 import org.apache.flink.streaming.api.windowing.windows.TimeWindow;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import static org.hamcrest.CoreMatchers.anyOf;
 import static org.hamcrest.CoreMatchers.hasItem;
@@ -38,6 +42,47 @@ import static org.junit.Assert.*;
  */
 public class MergingWindowSetTest {
 
+	/**
+	 * Tests that a restored window set is only written back to the state if it changed.
+	 */
+	@Test
+	public void testPersist() throws Exception {
+		TestingListState state = new TestingListState();
+		state.add(new Tuple2<>(new TimeWindow(0, 4), new TimeWindow(0, 4)));
+		state.numWrites = 0;
+
+		TestingMergeFunction mergeFunction = new TestingMergeFunction();
+
+		MergingWindowSet<TimeWindow> windowSet = new MergingWindowSet<>(EventTimeSessionWindows.withGap(Time.milliseconds(3)), state);
+		assertEquals(new TimeWindow(0, 4), windowSet.getStateWindow(new TimeWindow(0, 4)));
+
+		// adding a contained window does not change the set
+		mergeFunction.reset();
+		assertEquals(new TimeWindow(0, 4), windowSet.addWindow(new TimeWindow(1, 3), mergeFunction));
+		windowSet.persist();
+		assertEquals(0, state.numWrites);
+
+		// extending the window changes the set
+		mergeFunction.reset();
+		assertEquals(new TimeWindow(0, 6), windowSet.addWindow(new TimeWindow(3, 6), mergeFunction));
+		windowSet.persist();
+		assertEquals(1, state.numWrites);
+		assertThat(state.values, containsInAnyOrder(new Tuple2<>(new TimeWindow(0, 6), new TimeWindow(0, 4))));
+
+		// persisting again does not write the unchanged set
+		windowSet.persist();
+		assertEquals(1, state.numWrites);
+
+		// a restored set sees the merged window
+		MergingWindowSet<TimeWindow> restoredSet = new MergingWindowSet<>(EventTimeSessionWindows.withGap(Time.milliseconds(3)), state);
+		assertEquals(new TimeWindow(0, 4), restoredSet.getStateWindow(new TimeWindow(0, 6)));
+
+		// retiring the last window empties the state
+		restoredSet.retireWindow(new TimeWindow(0, 6));
+		restoredSet.persist();
+		assertTrue(state.values.isEmpty());
+	}
+
 	@Test
 	public void testIncrementalMerging() throws Exception {
 		MergingWindowSet<TimeWindow> windowSet = new MergingWindowSet<>(EventTimeSessionWindows.withGap(Time.milliseconds(3)));
@@ -258,4 +303,28 @@ public class MergingWindowSetTest {
 			this.sources = mergedWindows;
 		}
 	}
+
+	private static class TestingListState implements ListState<Tuple2<TimeWindow, TimeWindow>> {
+
+		private final List<Tuple2<TimeWindow, TimeWindow>> values = new ArrayList<>();
+
+		/** The number of clear() calls, which precede every write of the window set */
+		private int numWrites;
+
+		@Override
+		public Iterable<Tuple2<TimeWindow, TimeWindow>> get() throws Exception {
+			return new ArrayList<>(values);
+		}
+
+		@Override
+		public void add(Tuple2<TimeWindow, TimeWindow> value) throws Exception {
+			values.add(value);
+		}
+
+		@Override
+		public void clear() {
+			values.clear();
+			numWrites++;
+		}
+	}
 }
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.runtime.operators.windowing;
+
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.api.common.typeutils.base.VoidSerializer;
+import org.apache.flink.api.common.typeutils.base.array.IntPrimitiveArraySerializer;
+import org.apache.flink.runtime.operators.testutils.DummyEnvironment;
+import org.apache.flink.runtime.state.memory.MemoryStateBackend;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link SlidingReduceBuffer}.
+ */
+public class SlidingReduceBufferTest {
+
+	private static final ReduceFunction<String> CONCAT = new ReduceFunction<String>() {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public String reduce(String value1, String value2) {
+			return value1 + value2;
+		}
+	};
+
+	private static final TypeSerializer<String> SERIALIZER = StringSerializer.INSTANCE;
+
+	private MemoryStateBackend backend;
+
+	@Before
+	public void createBackend() throws Exception {
+		backend = new MemoryStateBackend();
+		backend.initializeForJob(new DummyEnvironment("test", 1, 0), "test-op", IntSerializer.INSTANCE);
+		backend.setCurrentKey(1);
+	}
+
+	@After
+	public void closeBackend() throws Exception {
+		backend.close();
+	}
+
+	@Test
+	public void testEmptyBuffer() throws Exception {
+		SlidingReduceBuffer<String> buffer = createBuffer();
+
+		assertEquals(0, buffer.size());
+		assertNull(buffer.getAggregate(CONCAT, SERIALIZER));
+
+		buffer.add("a", CONCAT, SERIALIZER);
+		buffer.evictToSize(0, CONCAT, SERIALIZER);
+
+		assertEquals(0, buffer.size());
+		assertNull(buffer.getAggregate(CONCAT, SERIALIZER));
+	}
+
+	@Test
+	public void testEvictionKeepsOrder() throws Exception {
+		SlidingReduceBuffer<String> buffer = createBuffer();
+		StringBuilder expected = new StringBuilder();
+
+		for (char c = 'a'; c <= 'z'; c++) {
+			buffer.add(String.valueOf(c), CONCAT, SERIALIZER);
+			buffer.evictToSize(5, CONCAT, SERIALIZER);
+
+			expected.append(c);
+			if (expected.length() > 5) {
+				expected.deleteCharAt(0);
+			}
+
+			assertEquals(expected.length(), buffer.size());
+			assertEquals(expected.toString(), buffer.getAggregate(CONCAT, SERIALIZER));
+		}
+	}
+
+	@Test
+	public void testBufferIsKeptInState() throws Exception {
+		SlidingReduceBuffer<String> buffer = createBuffer();
+		for (char c = 'a'; c <= 'g'; c++) {
+			buffer.add(String.valueOf(c), CONCAT, SERIALIZER);
+		}
+		// moves the elements to the front stack
+		buffer.evictToSize(4, CONCAT, SERIALIZER);
+		buffer.add("h", CONCAT, SERIALIZER);
+
+		// a buffer on the same state sees the same elements
+		SlidingReduceBuffer<String> other = createBuffer();
+		assertEquals(5, other.size());
+		assertEquals("defgh", other.getAggregate(CONCAT, SERIALIZER));
+
+		other.evictToSize(2, CONCAT, SERIALIZER);
+		assertEquals("gh", buffer.getAggregate(CONCAT, SERIALIZER));
+
+		// the buffers of other keys are independent
+		backend.setCurrentKey(2);
+		assertEquals(0, createBuffer().size());
+
+		backend.setCurrentKey(1);
+		buffer.clear();
+		assertEquals(0, buffer.size());
+		assertNull(buffer.getAggregate(CONCAT, SERIALIZER));
+	}
+
+	private SlidingReduceBuffer<String> createBuffer() throws Exception {
+		return new SlidingReduceBuffer<>(
+				backend.getPartitionedState(null, VoidSerializer.INSTANCE,
+						new MapStateDescriptor<>("front", IntSerializer.INSTANCE, SERIALIZER)),
+				backend.getPartitionedState(null, VoidSerializer.INSTANCE,
+						new MapStateDescriptor<>("back", IntSerializer.INSTANCE, SERIALIZER)),
+				backend.getPartitionedState(null, VoidSerializer.INSTANCE,
+						new ValueStateDescriptor<>("sizes", IntPrimitiveArraySerializer.INSTANCE, null)));
+	}
+}
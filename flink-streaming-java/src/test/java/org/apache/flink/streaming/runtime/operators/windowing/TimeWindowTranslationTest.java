@@ -108,11 +108,12 @@ public class TimeWindowTranslationTest extends StreamingMultipleProgramsTestBase
 
 		OneInputTransformation<Tuple2<String, Integer>, Tuple2<String, Integer>> transform1 = (OneInputTransformation<Tuple2<String, Integer>, Tuple2<String, Integer>>) window1.getTransformation();
 		OneInputStreamOperator<Tuple2<String, Integer>, Tuple2<String, Integer>> operator1 = transform1.getOperator();
-		Assert.assertTrue(operator1 instanceof WindowOperator);
-		WindowOperator winOperator1 = (WindowOperator) operator1;
-		Assert.assertTrue(winOperator1.getTrigger() instanceof EventTimeTrigger);
-		Assert.assertTrue(winOperator1.getWindowAssigner() instanceof SlidingEventTimeWindows);
-		Assert.assertTrue(winOperator1.getStateDescriptor() instanceof ReducingStateDescriptor);
+		// sliding event-time windows with a reducer are pre-aggregated in panes
+		Assert.assertTrue(operator1 instanceof PanedEventTimeWindowOperator);
+		PanedEventTimeWindowOperator winOperator1 = (PanedEventTimeWindowOperator) operator1;
+		Assert.assertEquals(1000, winOperator1.getWindowSize());
+		Assert.assertEquals(100, winOperator1.getWindowSlide());
+		Assert.assertEquals(0, winOperator1.getAllowedLateness());
 
 		DataStream<Tuple2<String, Integer>> window2 = source
 			.keyBy(0)
@@ -36,6 +36,7 @@ import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
 import org.apache.flink.streaming.api.functions.windowing.PassThroughWindowFunction;
 import org.apache.flink.streaming.api.functions.windowing.RichWindowFunction;
 import org.apache.flink.streaming.api.functions.windowing.WindowFunction;
+import org.apache.flink.streaming.api.operators.HeapInternalTimerService;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.api.windowing.assigners.EventTimeSessionWindows;
 import org.apache.flink.streaming.api.windowing.assigners.GlobalWindows;
@@ -183,6 +184,50 @@ public class WindowOperatorTest {
 		testHarness.close();
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSlidingEventTimeWindowsReduceMiniBatch() throws Exception {
+		closeCalled.set(0);
+
+		final int WINDOW_SIZE = 3;
+		final int WINDOW_SLIDE = 1;
+
+		TypeInformation<Tuple2<String, Integer>> inputType = TypeInfoParser.parse("Tuple2<String, Integer>");
+
+		ReducingStateDescriptor<Tuple2<String, Integer>> stateDesc = new ReducingStateDescriptor<>("window-contents",
+				new SumReducer(),
+				inputType.createSerializer(new ExecutionConfig()));
+
+		WindowOperator<String, Tuple2<String, Integer>, Tuple2<String, Integer>, Tuple2<String, Integer>, TimeWindow> operator = new WindowOperator<>(
+				SlidingEventTimeWindows.of(Time.of(WINDOW_SIZE, TimeUnit.SECONDS), Time.of(WINDOW_SLIDE, TimeUnit.SECONDS)),
+				new TimeWindow.Serializer(),
+				new TupleKeySelector(),
+				BasicTypeInfo.STRING_TYPE_INFO.createSerializer(new ExecutionConfig()),
+				stateDesc,
+				new InternalSingleValueWindowFunction<>(new PassThroughWindowFunction<String, TimeWindow, Tuple2<String, Integer>>()),
+				EventTimeTrigger.create());
+
+		operator.setInputType(inputType, new ExecutionConfig());
+
+		// the batch is larger than the input, so the panes are only added to the window state
+		// when they fire and when the snapshot is taken
+		ExecutionConfig config = new ExecutionConfig();
+		config.enableMiniBatch(100, 0);
+		config.enableObjectReuse();
+
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> testHarness =
+				new OneInputStreamOperatorTestHarness<>(operator, config);
+
+		testHarness.configureForKeyedStream(new TupleKeySelector(), BasicTypeInfo.STRING_TYPE_INFO);
+
+		testHarness.setup();
+		testHarness.open();
+
+		testSlidingEventTimeWindows(testHarness);
+
+		testHarness.close();
+	}
+
 	@Test
 	@SuppressWarnings("unchecked")
 	public void testSlidingEventTimeWindowsApply() throws Exception {
@@ -846,6 +891,65 @@ public class WindowOperatorTest {
 		testHarness.close();
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testCountTriggerMiniBatch() throws Exception {
+
+		TypeInformation<Tuple2<String, Integer>> inputType = TypeInfoParser.parse("Tuple2<String, Integer>");
+
+		ReducingStateDescriptor<Tuple2<String, Integer>> stateDesc = new ReducingStateDescriptor<>("window-contents",
+				new SumReducer(),
+				inputType.createSerializer(new ExecutionConfig()));
+
+		WindowOperator<String, Tuple2<String, Integer>, Tuple2<String, Integer>, Tuple2<String, Integer>, GlobalWindow> operator = new WindowOperator<>(
+				GlobalWindows.create(),
+				new GlobalWindow.Serializer(),
+				new TupleKeySelector(),
+				BasicTypeInfo.STRING_TYPE_INFO.createSerializer(new ExecutionConfig()),
+				stateDesc,
+				new InternalSingleValueWindowFunction<>(new PassThroughWindowFunction<String, GlobalWindow, Tuple2<String, Integer>>()),
+				PurgingTrigger.of(CountTrigger.of(3)));
+
+		operator.setInputType(inputType, new ExecutionConfig());
+
+		ExecutionConfig config = new ExecutionConfig();
+		config.enableMiniBatch(4, 0);
+
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> testHarness =
+				new OneInputStreamOperatorTestHarness<>(operator, config);
+
+		testHarness.configureForKeyedStream(new TupleKeySelector(), BasicTypeInfo.STRING_TYPE_INFO);
+
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+
+		testHarness.open();
+
+		// the trigger fires within a batch, with the batched elements of the pane
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key1", 1), 0));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key2", 1), 0));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key1", 2), 0));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key1", 3), 0));
+
+		expectedOutput.add(new StreamRecord<>(new Tuple2<>("key1", 6), Long.MAX_VALUE));
+		TestHarnessUtil.assertOutputEqualsSorted("Output was not correct.", expectedOutput, testHarness.getOutput(), new Tuple2ResultSortComparator());
+
+		// the elements of key2 span several batches and a snapshot
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key2", 2), 0));
+
+		StreamTaskState snapshot = testHarness.snapshot(0L, 0L);
+		testHarness.close();
+		testHarness.setup();
+		testHarness.restore(snapshot, 10L);
+		testHarness.open();
+
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key2", 3), 0));
+
+		expectedOutput.add(new StreamRecord<>(new Tuple2<>("key2", 6), Long.MAX_VALUE));
+		TestHarnessUtil.assertOutputEqualsSorted("Output was not correct.", expectedOutput, testHarness.getOutput(), new Tuple2ResultSortComparator());
+
+		testHarness.close();
+	}
+
 	@Test
 	public void testRestoreAndSnapshotAreInSync() throws Exception {
 
@@ -876,20 +980,16 @@ public class WindowOperatorTest {
 		operator.setInputType(inputType, new ExecutionConfig());
 		testHarness.open();
 
-		WindowOperator.Timer<String, TimeWindow> timer1 = new WindowOperator.Timer<>(1L, "key1", new TimeWindow(1L, 2L));
-		WindowOperator.Timer<String, TimeWindow> timer2 = new WindowOperator.Timer<>(3L, "key1", new TimeWindow(1L, 2L));
-		WindowOperator.Timer<String, TimeWindow> timer3 = new WindowOperator.Timer<>(2L, "key1", new TimeWindow(1L, 2L));
-		operator.processingTimeTimers.add(timer1);
-		operator.processingTimeTimers.add(timer2);
-		operator.processingTimeTimers.add(timer3);
-		operator.processingTimeTimersQueue.add(timer1);
-		operator.processingTimeTimersQueue.add(timer2);
-		operator.processingTimeTimersQueue.add(timer3);
-
-		operator.processingTimeTimerTimestamps.add(1L, 10);
-		operator.processingTimeTimerTimestamps.add(2L, 5);
-		operator.processingTimeTimerTimestamps.add(3L, 1);
+		// event-time timers, so that no wakeup fires while the test runs
+		operator.setKeyContext("key1");
+		operator.getInternalTimerService().registerEventTimeTimer(new TimeWindow(1L, 2L), 1L);
+		operator.getInternalTimerService().registerEventTimeTimer(new TimeWindow(1L, 2L), 3L);
+		operator.getInternalTimerService().registerEventTimeTimer(new TimeWindow(1L, 2L), 2L);
+		operator.getInternalTimerService().registerEventTimeTimer(new TimeWindow(1L, 2L), 2L);
+		operator.setKeyContext("key2");
+		operator.getInternalTimerService().registerEventTimeTimer(new TimeWindow(1L, 2L), 2L);
 
+		Assert.assertEquals(4, ((HeapInternalTimerService<?, ?>) operator.getInternalTimerService()).numEventTimeTimers());
 
 		StreamTaskState snapshot = testHarness.snapshot(0, 0);
 
@@ -912,9 +1012,16 @@ public class WindowOperatorTest {
 		otherTestHarness.restore(snapshot, 0);
 		otherTestHarness.open();
 
-		Assert.assertEquals(operator.processingTimeTimers, otherOperator.processingTimeTimers);
-		Assert.assertArrayEquals(operator.processingTimeTimersQueue.toArray(), otherOperator.processingTimeTimersQueue.toArray());
-		Assert.assertEquals(operator.processingTimeTimerTimestamps, otherOperator.processingTimeTimerTimestamps);
+		HeapInternalTimerService<?, ?> timerService = (HeapInternalTimerService<?, ?>) operator.getInternalTimerService();
+		HeapInternalTimerService<?, ?> otherTimerService = (HeapInternalTimerService<?, ?>) otherOperator.getInternalTimerService();
+		Assert.assertEquals(timerService.getKeyGroups(), otherTimerService.getKeyGroups());
+		Assert.assertEquals(4, otherTimerService.numEventTimeTimers());
+		Assert.assertEquals(0, otherTimerService.numProcessingTimeTimers());
+
+		// registering a restored timer again must not add a second timer
+		otherOperator.setKeyContext("key1");
+		otherOperator.getInternalTimerService().registerEventTimeTimer(new TimeWindow(1L, 2L), 3L);
+		Assert.assertEquals(4, otherTimerService.numEventTimeTimers());
 	}
 
 	// ------------------------------------------------------------------------
@@ -103,11 +103,12 @@ public class WindowTranslationTest extends StreamingMultipleProgramsTestBase {
 
 		OneInputTransformation<Tuple2<String, Integer>, Tuple2<String, Integer>> transform1 = (OneInputTransformation<Tuple2<String, Integer>, Tuple2<String, Integer>>) window1.getTransformation();
 		OneInputStreamOperator<Tuple2<String, Integer>, Tuple2<String, Integer>> operator1 = transform1.getOperator();
-		Assert.assertTrue(operator1 instanceof WindowOperator);
-		WindowOperator winOperator1 = (WindowOperator) operator1;
-		Assert.assertTrue(winOperator1.getTrigger() instanceof EventTimeTrigger);
-		Assert.assertTrue(winOperator1.getWindowAssigner() instanceof SlidingEventTimeWindows);
-		Assert.assertTrue(winOperator1.getStateDescriptor() instanceof ReducingStateDescriptor);
+		// sliding event-time windows with a reducer are pre-aggregated in panes
+		Assert.assertTrue(operator1 instanceof PanedEventTimeWindowOperator);
+		PanedEventTimeWindowOperator winOperator1 = (PanedEventTimeWindowOperator) operator1;
+		Assert.assertEquals(1000, winOperator1.getWindowSize());
+		Assert.assertEquals(100, winOperator1.getWindowSlide());
+		Assert.assertEquals(0, winOperator1.getAllowedLateness());
 
 		DataStream<Tuple2<String, Integer>> window2 = source
 				.keyBy(0)
@@ -199,12 +200,12 @@ public class WindowTranslationTest extends StreamingMultipleProgramsTestBase {
 
 		OneInputTransformation<Tuple2<String, Integer>, Tuple2<String, Integer>> transform1 = (OneInputTransformation<Tuple2<String, Integer>, Tuple2<String, Integer>>) window1.getTransformation();
 		OneInputStreamOperator<Tuple2<String, Integer>, Tuple2<String, Integer>> operator1 = transform1.getOperator();
-		Assert.assertTrue(operator1 instanceof EvictingWindowOperator);
-		EvictingWindowOperator winOperator1 = (EvictingWindowOperator) operator1;
+		Assert.assertTrue(operator1 instanceof CountEvictingReduceWindowOperator);
+		CountEvictingReduceWindowOperator winOperator1 = (CountEvictingReduceWindowOperator) operator1;
 		Assert.assertTrue(winOperator1.getTrigger() instanceof EventTimeTrigger);
 		Assert.assertTrue(winOperator1.getWindowAssigner() instanceof SlidingEventTimeWindows);
-		Assert.assertTrue(winOperator1.getEvictor() instanceof CountEvictor);
-		Assert.assertTrue(winOperator1.getStateDescriptor() instanceof ListStateDescriptor);
+		Assert.assertEquals(100, winOperator1.getEvictor().getMaxCount());
+		Assert.assertEquals(source.getType().createSerializer(env.getConfig()), winOperator1.getElementSerializer());
 
 		DataStream<Tuple2<String, Integer>> window2 = source
 				.keyBy(0)
@@ -23,6 +23,7 @@ import static org.junit.Assert.assertEquals;
 import org.apache.flink.api.java.functions.KeySelector;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.runtime.plugable.SerializationDelegate;
+import org.apache.flink.runtime.state.KeyGroupAssigner;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.junit.Before;
 import org.junit.Test;
@@ -68,4 +69,20 @@ public class HashPartitionerTest {
 		assertArrayEquals(hashPartitioner.selectChannels(sd1, 1024),
 				hashPartitioner.selectChannels(sd2, 1024));
 	}
+
+	@Test
+	public void testSelectChannelsWithKeyGroups() {
+		final int numberOfKeyGroups = 10;
+		hashPartitioner.setNumberOfKeyGroups(numberOfKeyGroups);
+
+		for (int i = 0; i < 100; i++) {
+			String key = "key-" + i;
+			sd1.setInstance(new StreamRecord<>(new Tuple2<>(key, i)));
+
+			int keyGroup = KeyGroupAssigner.getKeyGroupIndex(key, numberOfKeyGroups);
+			for (int numberOfChannels : new int[] {1, 3, 4, 10}) {
+				assertEquals(keyGroup % numberOfChannels, hashPartitioner.selectChannels(sd1, numberOfChannels)[0]);
+			}
+		}
+	}
 }
@@ -24,6 +24,8 @@ import org.apache.flink.api.common.restartstrategy.RestartStrategies;
 import org.apache.flink.api.common.state.FoldingStateDescriptor;
 import org.apache.flink.api.common.state.ListState;
 import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
 import org.apache.flink.api.common.state.ReducingState;
 import org.apache.flink.api.common.state.ReducingStateDescriptor;
 import org.apache.flink.api.common.state.ValueState;
@@ -128,6 +130,12 @@ public class StateBackendITCase extends StreamingMultipleProgramsTestBase {
 			return null;
 		}
 
+		@Override
+		protected <N, UK, UV> MapState<UK, UV> createMapState(TypeSerializer<N> namespaceSerializer,
+			MapStateDescriptor<UK, UV> stateDesc) throws Exception {
+			return null;
+		}
+
 		@Override
 		public CheckpointStateOutputStream createCheckpointStateOutputStream(long checkpointID,
 			long timestamp) throws Exception {
@@ -87,6 +87,9 @@ public class MultiplexingStreamRecordSerializerTest {
 
 		Watermark negativeWatermark = new Watermark(-4647654567676555876L);
 		assertEquals(negativeWatermark, serializeAndDeserialize(negativeWatermark, serializer));
+
+		assertEquals(StreamStatus.IDLE, serializeAndDeserialize(StreamStatus.IDLE, serializer));
+		assertEquals(StreamStatus.ACTIVE, serializeAndDeserialize(StreamStatus.ACTIVE, serializer));
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -18,13 +18,28 @@
 package org.apache.flink.streaming.runtime.tasks;
 
 
+import org.apache.flink.api.common.ExecutionConfig;
 import org.apache.flink.api.common.functions.MapFunction;
+import org.apache.flink.api.common.functions.ReduceFunction;
 import org.apache.flink.api.common.functions.RichMapFunction;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
 import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.api.common.typeutils.base.VoidSerializer;
+import org.apache.flink.api.java.functions.KeySelector;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
+import org.apache.flink.runtime.operators.testutils.DummyEnvironment;
+import org.apache.flink.runtime.operators.testutils.MockInputSplitProvider;
+import org.apache.flink.runtime.state.AsynchronousKvStateSnapshot;
+import org.apache.flink.runtime.state.KeyGroupAssigner;
+import org.apache.flink.runtime.state.KvStateSnapshot;
+import org.apache.flink.runtime.state.StateHandle;
+import org.apache.flink.runtime.state.memory.MemoryStateBackend;
 import org.apache.flink.streaming.api.graph.StreamConfig;
+import org.apache.flink.streaming.api.operators.StreamGroupedReduce;
 import org.apache.flink.streaming.api.operators.StreamMap;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
@@ -35,8 +50,14 @@ import org.junit.runner.RunWith;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Tests for {@link OneInputStreamTask}.
@@ -291,6 +312,119 @@ public class OneInputStreamTaskTest {
 		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
 	}
 
+	/**
+	 * This test verifies that asynchronous snapshots of the key/value state per key group are
+	 * materialized before the key groups are acknowledged.
+	 */
+	@Test
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public void testAsynchronousKeyGroupSnapshots() throws Exception {
+		final int numberOfKeyGroups = 4;
+		final String[] keys = {"a", "b", "c", "d", "e"};
+
+		final OneInputStreamTask<String, String> reduceTask = new OneInputStreamTask<String, String>();
+		final OneInputStreamTaskTestHarness<String, String> testHarness = new OneInputStreamTaskTestHarness<String, String>(reduceTask, BasicTypeInfo.STRING_TYPE_INFO, BasicTypeInfo.STRING_TYPE_INFO);
+		testHarness.configureForKeyedStream(new IdentityKeySelector(), BasicTypeInfo.STRING_TYPE_INFO);
+
+		MemoryStateBackend backend = new MemoryStateBackend();
+		backend.enableAsynchronousSnapshots();
+
+		StreamConfig streamConfig = testHarness.getStreamConfig();
+		streamConfig.setStreamOperator(new StreamGroupedReduce<String>(new ConcatReducer(), StringSerializer.INSTANCE));
+		streamConfig.setStateBackend(backend);
+
+		ExecutionConfig executionConfig = new ExecutionConfig();
+		executionConfig.setNumberOfKeyGroups(numberOfKeyGroups);
+
+		KeyGroupAcknowledgingMockEnvironment env = new KeyGroupAcknowledgingMockEnvironment(
+			testHarness.jobConfig, testHarness.taskConfig, executionConfig, testHarness.memorySize, testHarness.bufferSize);
+
+		testHarness.invoke(env);
+		testHarness.waitForTaskRunning();
+
+		for (String key : keys) {
+			testHarness.processElement(new StreamRecord<String>(key));
+		}
+		testHarness.processEvent(new CheckpointBarrier(1, 0));
+
+		Map<Integer, StateHandle<?>> keyGroupStates = env.waitForKeyGroupStates();
+
+		testHarness.endInput();
+		testHarness.waitForTaskCompletion();
+
+		Set<Integer> expectedKeyGroups = new HashSet<Integer>();
+		for (String key : keys) {
+			expectedKeyGroups.add(KeyGroupAssigner.getKeyGroupIndex(key, numberOfKeyGroups));
+		}
+		Assert.assertEquals(expectedKeyGroups, keyGroupStates.keySet());
+
+		List<Map<String, KvStateSnapshot>> snapshots = new ArrayList<Map<String, KvStateSnapshot>>();
+		for (StateHandle<?> keyGroupState : keyGroupStates.values()) {
+			StreamTaskState[] states = ((StreamTaskStateList) keyGroupState).getState(getClass().getClassLoader());
+			HashMap<String, KvStateSnapshot<?, ?, ?, ?, ?>> kvStates = states[0].getKvStates();
+			for (KvStateSnapshot<?, ?, ?, ?, ?> kvState : kvStates.values()) {
+				Assert.assertFalse(kvState instanceof AsynchronousKvStateSnapshot);
+			}
+			snapshots.add((Map) kvStates);
+		}
+
+		// the materialized key groups restore the state of all keys
+		MemoryStateBackend restoreBackend = new MemoryStateBackend();
+		restoreBackend.initializeForJob(new DummyEnvironment("test", 1, 0), "test_op", StringSerializer.INSTANCE);
+		restoreBackend.injectKeyGroupStateSnapshots(snapshots, 0);
+
+		ValueState<String> restored = restoreBackend.getPartitionedState(null, VoidSerializer.INSTANCE,
+			new ValueStateDescriptor<String>("_op_state", StringSerializer.INSTANCE, null));
+		for (String key : keys) {
+			restoreBackend.setCurrentKey(key);
+			Assert.assertEquals(key, restored.value());
+		}
+		restoreBackend.dispose();
+	}
+
+	/**
+	 * This test verifies that the state backends keep their local state only when the task
+	 * fails, also for operators that do not call {@code super.close()}.
+	 */
+	@Test
+	public void testLocalStateIsRetainedOnlyOnFailure() throws Exception {
+		RetainRecordingStateBackend.retainCalls.set(0);
+		OneInputStreamTaskTestHarness<String, String> testHarness = createRetainTestHarness();
+
+		testHarness.invoke();
+		testHarness.waitForTaskRunning();
+		testHarness.processElement(new StreamRecord<String>("Hello"));
+		testHarness.endInput();
+		testHarness.waitForTaskCompletion();
+
+		Assert.assertEquals(0, RetainRecordingStateBackend.retainCalls.get());
+
+		testHarness = createRetainTestHarness();
+
+		testHarness.invoke();
+		testHarness.waitForTaskRunning();
+		testHarness.processElement(new StreamRecord<String>("fail"));
+		testHarness.endInput();
+		try {
+			testHarness.waitForTaskCompletion();
+			Assert.fail("The task should have failed.");
+		} catch (Exception ignored) {
+			// expected
+		}
+
+		Assert.assertEquals(1, RetainRecordingStateBackend.retainCalls.get());
+	}
+
+	private static OneInputStreamTaskTestHarness<String, String> createRetainTestHarness() {
+		final OneInputStreamTask<String, String> mapTask = new OneInputStreamTask<String, String>();
+		final OneInputStreamTaskTestHarness<String, String> testHarness = new OneInputStreamTaskTestHarness<String, String>(mapTask, BasicTypeInfo.STRING_TYPE_INFO, BasicTypeInfo.STRING_TYPE_INFO);
+
+		StreamConfig streamConfig = testHarness.getStreamConfig();
+		streamConfig.setStreamOperator(new NonForwardingCloseMap(new FailingMap()));
+		streamConfig.setStateBackend(new RetainRecordingStateBackend());
+		return testHarness;
+	}
+
 	// This must only be used in one test, otherwise the static fields will be changed
 	// by several tests concurrently
 	private static class TestOpenCloseMapFunction extends RichMapFunction<String, String> {
@@ -334,5 +468,85 @@ public class OneInputStreamTaskTest {
 			return value;
 		}
 	}
-}
 
+	private static class FailingMap implements MapFunction<String, String> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public String map(String value) throws Exception {
+			if (value.equals("fail")) {
+				throw new Exception("Test exception");
+			}
+			return value;
+		}
+	}
+
+	private static class NonForwardingCloseMap extends StreamMap<String, String> {
+		private static final long serialVersionUID = 1L;
+
+		public NonForwardingCloseMap(MapFunction<String, String> mapper) {
+			super(mapper);
+		}
+
+		@Override
+		public void close() throws Exception {
+			// does not call super.close()
+		}
+	}
+
+	private static class RetainRecordingStateBackend extends MemoryStateBackend {
+		private static final long serialVersionUID = 1L;
+
+		private static final AtomicInteger retainCalls = new AtomicInteger();
+
+		@Override
+		public void retainLocalState() {
+			retainCalls.incrementAndGet();
+		}
+	}
+
+	private static class IdentityKeySelector implements KeySelector<String, String> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public String getKey(String value) throws Exception {
+			return value;
+		}
+	}
+
+	private static class ConcatReducer implements ReduceFunction<String> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public String reduce(String value1, String value2) throws Exception {
+			return value1 + value2;
+		}
+	}
+
+	private static class KeyGroupAcknowledgingMockEnvironment extends StreamMockEnvironment {
+
+		private Map<Integer, StateHandle<?>> keyGroupStates;
+
+		KeyGroupAcknowledgingMockEnvironment(
+				Configuration jobConfig,
+				Configuration taskConfig,
+				ExecutionConfig executionConfig,
+				long memorySize,
+				int bufferSize) {
+			super(jobConfig, taskConfig, executionConfig, memorySize, new MockInputSplitProvider(), bufferSize);
+		}
+
+		@Override
+		public synchronized void acknowledgeCheckpoint(long checkpointId, StateHandle<?> state, Map<Integer, StateHandle<?>> keyGroupStates) {
+			this.keyGroupStates = keyGroupStates;
+			notifyAll();
+		}
+
+		synchronized Map<Integer, StateHandle<?>> waitForKeyGroupStates() throws InterruptedException {
+			while (keyGroupStates == null) {
+				wait();
+			}
+			return keyGroupStates;
+		}
+	}
+}
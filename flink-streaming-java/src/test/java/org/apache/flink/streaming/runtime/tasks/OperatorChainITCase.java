@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.tasks;
+
+import org.apache.flink.api.common.functions.MapFunction;
+import org.apache.flink.api.java.tuple.Tuple1;
+import org.apache.flink.streaming.api.datastream.DataStream;
+import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.streaming.api.functions.ReadOnlyInput;
+import org.apache.flink.streaming.api.functions.sink.SinkFunction;
+import org.apache.flink.streaming.api.functions.source.SourceFunction;
+import org.apache.flink.streaming.util.StreamingMultipleProgramsTestBase;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for the outputs of the {@link OperatorChain} that pass the elements to the chained
+ * operators, when the object reuse mode is disabled.
+ */
+public class OperatorChainITCase extends StreamingMultipleProgramsTestBase {
+
+	private static final List<Tuple1<String>> SOURCE_ELEMENTS = Collections.synchronizedList(new ArrayList<Tuple1<String>>());
+
+	private static final List<Tuple1<String>> READ_ONLY_INPUTS = Collections.synchronizedList(new ArrayList<Tuple1<String>>());
+
+	private static final List<Tuple1<String>> COPIED_INPUTS = Collections.synchronizedList(new ArrayList<Tuple1<String>>());
+
+	private static final List<String> RESULTS = Collections.synchronizedList(new ArrayList<String>());
+
+	/**
+	 * Verifies that a chained operator with a {@link ReadOnlyInput} function gets the elements
+	 * that the preceding operator emitted, while other chained operators get copies.
+	 */
+	@Test
+	public void testReadOnlyInputIsNotCopied() throws Exception {
+		SOURCE_ELEMENTS.clear();
+		READ_ONLY_INPUTS.clear();
+		COPIED_INPUTS.clear();
+
+		StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+		env.setParallelism(1);
+
+		DataStream<Tuple1<String>> source = env.addSource(new RecordingSource());
+		source.addSink(new ReadOnlySink());
+		source.addSink(new CopyingSink());
+
+		env.execute("Read-only input test");
+
+		assertEquals(3, SOURCE_ELEMENTS.size());
+		assertEquals(SOURCE_ELEMENTS, READ_ONLY_INPUTS);
+		assertEquals(SOURCE_ELEMENTS, COPIED_INPUTS);
+		for (int i = 0; i < SOURCE_ELEMENTS.size(); i++) {
+			assertSame(SOURCE_ELEMENTS.get(i), READ_ONLY_INPUTS.get(i));
+			assertNotSame(SOURCE_ELEMENTS.get(i), COPIED_INPUTS.get(i));
+		}
+	}
+
+	/**
+	 * Verifies that chained operators with {@link ReadOnlyInput} functions that get the same
+	 * elements do not see the records that the other operators forward. The operators replace
+	 * the value of the record that they forward, so every operator needs its own record.
+	 */
+	@Test
+	public void testBroadcastToReadOnlyOperators() throws Exception {
+		RESULTS.clear();
+
+		StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+		env.setParallelism(1);
+
+		DataStream<Tuple1<String>> source = env.addSource(new RecordingSource());
+		source.map(new ReadOnlyAppendingMap("-1")).addSink(new ResultSink());
+		source.map(new ReadOnlyAppendingMap("-2")).addSink(new ResultSink());
+
+		env.execute("Read-only broadcast test");
+
+		List<String> results = new ArrayList<>(RESULTS);
+		Collections.sort(results);
+		assertEquals(Arrays.asList("a-1", "a-2", "b-1", "b-2", "c-1", "c-2"), results);
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static class RecordingSource implements SourceFunction<Tuple1<String>> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public void run(SourceContext<Tuple1<String>> ctx) throws Exception {
+			for (String value : Arrays.asList("a", "b", "c")) {
+				Tuple1<String> element = new Tuple1<>(value);
+				SOURCE_ELEMENTS.add(element);
+				synchronized (ctx.getCheckpointLock()) {
+					ctx.collect(element);
+				}
+			}
+		}
+
+		@Override
+		public void cancel() {}
+	}
+
+	@ReadOnlyInput
+	private static class ReadOnlySink implements SinkFunction<Tuple1<String>> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public void invoke(Tuple1<String> value) throws Exception {
+			READ_ONLY_INPUTS.add(value);
+		}
+	}
+
+	private static class CopyingSink implements SinkFunction<Tuple1<String>> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public void invoke(Tuple1<String> value) throws Exception {
+			COPIED_INPUTS.add(value);
+		}
+	}
+
+	@ReadOnlyInput
+	private static class ReadOnlyAppendingMap implements MapFunction<Tuple1<String>, Tuple1<String>> {
+		private static final long serialVersionUID = 1L;
+
+		private final String suffix;
+
+		ReadOnlyAppendingMap(String suffix) {
+			this.suffix = suffix;
+		}
+
+		@Override
+		public Tuple1<String> map(Tuple1<String> value) throws Exception {
+			return new Tuple1<>(value.f0 + suffix);
+		}
+	}
+
+	private static class ResultSink implements SinkFunction<Tuple1<String>> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public void invoke(Tuple1<String> value) throws Exception {
+			RESULTS.add(value.f0);
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.tasks;
+
+import org.apache.flink.runtime.state.StateHandle;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StreamTaskStateListTest {
+
+	@Test
+	public void testStateSizeIncludesTimers() throws Exception {
+		StreamTaskState state = new StreamTaskState();
+		state.setOperatorState(mockStateHandle(1));
+		state.setTimerState(mockStateHandle(10));
+
+		HashMap<Integer, StateHandle<?>> keyGroupTimerStates = new HashMap<>();
+		keyGroupTimerStates.put(0, mockStateHandle(100));
+		keyGroupTimerStates.put(3, mockStateHandle(1000));
+		state.setKeyGroupTimerStates(keyGroupTimerStates);
+
+		StreamTaskStateList stateList = new StreamTaskStateList(new StreamTaskState[] { state, null });
+		assertEquals(1111, stateList.getStateSize());
+	}
+
+	private static StateHandle<?> mockStateHandle(long size) throws Exception {
+		StateHandle<?> handle = mock(StateHandle.class);
+		when(handle.getStateSize()).thenReturn(size);
+		return handle;
+	}
+}
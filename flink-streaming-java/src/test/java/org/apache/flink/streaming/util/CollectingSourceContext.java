@@ -55,6 +55,11 @@ public class CollectingSourceContext<T extends Serializable> implements SourceFu
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public void markAsTemporarilyIdle() {
+		throw new UnsupportedOperationException();
+	}
+
 	@Override
 	public Object getCheckpointLock() {
 		return lock;
@@ -24,6 +24,7 @@ import org.apache.commons.lang3.SerializationUtils;
 import org.apache.flink.streaming.api.operators.Output;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamrecord.StreamStatus;
 
 public class MockOutput<T> implements Output<StreamRecord<T>> {
 	private Collection<T> outputs;
@@ -43,6 +44,11 @@ public class MockOutput<T> implements Output<StreamRecord<T>> {
 		throw new RuntimeException("THIS MUST BE IMPLEMENTED");
 	}
 
+	@Override
+	public void emitStreamStatus(StreamStatus status) {
+		throw new RuntimeException("THIS MUST BE IMPLEMENTED");
+	}
+
 	@Override
 	public void close() {
 	}
@@ -35,6 +35,7 @@ import org.apache.flink.runtime.state.memory.MemoryStateBackend;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.operators.Triggerable;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamrecord.StreamStatus;
 import org.apache.flink.streaming.runtime.tasks.StreamTask;
 import org.apache.flink.streaming.runtime.tasks.StreamTaskState;
 import org.mockito.invocation.InvocationOnMock;
@@ -147,6 +148,14 @@ public class OneInputStreamOperatorTestHarness<IN, OUT> {
 		config.setStateKeySerializer(keyType.createSerializer(executionConfig));
 	}
 	
+	/**
+	 * Returns the checkpoint lock of the mock task. Operators that emit from other threads
+	 * synchronize on it.
+	 */
+	public Object getCheckpointLock() {
+		return checkpointLock;
+	}
+
 	/**
 	 * Get all the output from the task. This contains StreamRecords and Events interleaved. Use
 	 * {@link org.apache.flink.streaming.util.TestHarnessUtil#getStreamRecordsFromOutput(java.util.List)}
@@ -178,9 +187,12 @@ public class OneInputStreamOperatorTestHarness<IN, OUT> {
 	}
 
 	/**
-	 * Calls {@link org.apache.flink.streaming.api.operators.StreamOperator#snapshotOperatorState(long, long)} ()}
+	 * Calls {@link org.apache.flink.streaming.api.operators.StreamOperator#prepareSnapshotPreBarrier(long)}
+	 * and {@link org.apache.flink.streaming.api.operators.StreamOperator#snapshotOperatorState(long, long)} ()},
+	 * like the {@code StreamTask} does for a checkpoint.
 	 */
 	public StreamTaskState snapshot(long checkpointId, long timestamp) throws Exception {
+		operator.prepareSnapshotPreBarrier(checkpointId);
 		return operator.snapshotOperatorState(checkpointId, timestamp);
 	}
 
@@ -225,6 +237,11 @@ public class OneInputStreamOperatorTestHarness<IN, OUT> {
 			outputList.add(mark);
 		}
 
+		@Override
+		public void emitStreamStatus(StreamStatus status) {
+			outputList.add(status);
+		}
+
 		@Override
 		public void collect(StreamRecord<OUT> element) {
 			if (outputSerializer == null) {
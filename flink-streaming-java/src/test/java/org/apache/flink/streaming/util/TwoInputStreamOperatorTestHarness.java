@@ -30,6 +30,7 @@ import org.apache.flink.streaming.api.operators.Output;
 import org.apache.flink.streaming.api.operators.TwoInputStreamOperator;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamrecord.StreamStatus;
 import org.apache.flink.streaming.runtime.tasks.StreamTask;
 
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -126,6 +127,11 @@ public class TwoInputStreamOperatorTestHarness<IN1, IN2, OUT> {
 			outputList.add(mark);
 		}
 
+		@Override
+		public void emitStreamStatus(StreamStatus status) {
+			outputList.add(status);
+		}
+
 		@Override
 		@SuppressWarnings("unchecked")
 		public void collect(StreamRecord<OUT> element) {
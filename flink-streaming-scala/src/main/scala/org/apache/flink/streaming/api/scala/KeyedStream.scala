@@ -144,6 +144,25 @@ class KeyedStream[T, K](javaStream: KeyedJavaStream[T, K]) extends DataStream[T]
     reduce(reducer)
   }
 
+  /**
+   * Reduces the elements per key before they are partitioned by the key, like the combiner
+   * of a batch reduce. Each parallel instance of the input emits one partial aggregate per key
+   * and batch. A batch is emitted when it contains `maxBatchSize` elements, when
+   * `maxBatchLatencyMillis` passed since its first element arrived, and before watermarks and
+   * checkpoint barriers. The returned stream is partitioned by the same key.
+   */
+  @PublicEvolving
+  def preAggregate(
+      reducer: ReduceFunction[T],
+      maxBatchSize: Int,
+      maxBatchLatencyMillis: Long): KeyedStream[T, K] = {
+    if (reducer == null) {
+      throw new NullPointerException("Reduce function must not be null.")
+    }
+
+    new KeyedStream(javaStream.preAggregate(reducer, maxBatchSize, maxBatchLatencyMillis))
+  }
+
   /**
    * Creates a new [[DataStream]] by folding the elements of this DataStream
    * using an associative fold function and an initial value. An independent 
@@ -272,10 +291,19 @@ class KeyedStream[T, K](javaStream: KeyedJavaStream[T, K]) extends DataStream[T]
           javaStream.getExecutionConfig)
     }
 
+    // the built-in aggregations are associative, so they can be pre-aggregated
+    // before the partitioning in the mini-batch mode
+    val input = if (getExecutionConfig.isMiniBatchEnabled) {
+      javaStream.preAggregate(reducer,
+        getExecutionConfig.getMiniBatchSize, getExecutionConfig.getMiniBatchLatency)
+    } else {
+      javaStream
+    }
+
     val invokable =  new StreamGroupedReduce[T](reducer,
       getType().createSerializer(getExecutionConfig))
      
-    new DataStream[T](javaStream.transform("aggregation", javaStream.getType(),invokable))
+    new DataStream[T](input.transform("aggregation", javaStream.getType(),invokable))
       .asInstanceOf[DataStream[T]]
   }
 
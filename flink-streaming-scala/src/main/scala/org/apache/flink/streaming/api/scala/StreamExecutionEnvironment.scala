@@ -119,16 +119,15 @@ class StreamExecutionEnvironment(javaEnv: JavaEnv) {
    * The job draws checkpoints periodically, in the given interval. The state will be
    * stored in the configured state backend.
    *
-   * NOTE: Checkpointing iterative streaming dataflows in not properly supported at
-   * the moment. If the "force" parameter is set to true, the system will execute the
-   * job nonetheless.
+   * NOTE: The "force" parameter has no effect any more, iterative streaming dataflows
+   * are checkpointed like all other dataflows.
    *
    * @param interval
    *     Time interval between state checkpoints in millis.
    * @param mode
    *     The checkpointing mode, selecting between "exactly once" and "at least once" guarantees.
    * @param force
-   *           If true checkpointing will be enabled for iterative jobs as well.
+   *           Ignored, iterative jobs are always checkpointed.
    */
   @deprecated
   @PublicEvolving
@@ -148,10 +147,8 @@ class StreamExecutionEnvironment(javaEnv: JavaEnv) {
    * given [[CheckpointingMode]] for the checkpointing ("exactly once" vs "at least once").
    * The state will be stored in the configured state backend.
    *
-   * NOTE: Checkpointing iterative streaming dataflows in not properly supported at
-   * the moment. For that reason, iterative jobs will not be started if used
-   * with enabled checkpointing. To override this mechanism, use the 
-   * [[enableCheckpointing(long, CheckpointingMode, boolean)]] method.
+   * Iterative streaming dataflows are checkpointed as well. The checkpoints include the
+   * records that are in transit on the feedback edges of the iterations.
    *
    * @param interval 
    *     Time interval between state checkpoints in milliseconds.
@@ -173,10 +170,8 @@ class StreamExecutionEnvironment(javaEnv: JavaEnv) {
    * [[CheckpointingMode.EXACTLY_ONCE]] mode. The state will be stored in the
    * configured state backend.
    *
-   * NOTE: Checkpointing iterative streaming dataflows in not properly supported at
-   * the moment. For that reason, iterative jobs will not be started if used
-   * with enabled checkpointing. To override this mechanism, use the 
-   * [[enableCheckpointing(long, CheckpointingMode, boolean)]] method.
+   * Iterative streaming dataflows are checkpointed as well. The checkpoints include the
+   * records that are in transit on the feedback edges of the iterations.
    *
    * @param interval 
    *           Time interval between state checkpoints in milliseconds.
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.test.checkpointing;
+
+import org.apache.flink.api.common.functions.FilterFunction;
+import org.apache.flink.api.common.functions.RichMapFunction;
+import org.apache.flink.api.common.restartstrategy.RestartStrategies;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.state.CheckpointListener;
+import org.apache.flink.streaming.api.checkpoint.Checkpointed;
+import org.apache.flink.streaming.api.datastream.DataStream;
+import org.apache.flink.streaming.api.datastream.IterativeStream;
+import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.streaming.api.functions.sink.RichSinkFunction;
+import org.apache.flink.streaming.api.functions.source.ParallelSourceFunction;
+import org.apache.flink.streaming.api.functions.source.RichSourceFunction;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A test that runs a streaming iteration with checkpointing enabled and a failure inside
+ * the loop.
+ *
+ * <p>Every record goes around the loop a fixed number of times. After the recovery, the
+ * records that were on the feedback edge during the restored checkpoint are emitted again
+ * by the iteration head, so the test checks that every record passes the loop exactly once
+ * per round and reaches the sink exactly once.
+ */
+@SuppressWarnings("serial")
+public class StreamIterationCheckpointingITCase extends StreamFaultToleranceTestBase {
+
+	private static final long NUM_ELEMENTS = 200_000L;
+
+	private static final int NUM_ROUNDS = 3;
+
+	/** The time after which the iteration head finishes if no feedback arrives */
+	private static final long ITERATION_WAIT_TIME = 5000L;
+
+	/**
+	 * Runs the following program:
+	 *
+	 * <pre>
+	 *     [ (source) ] -> [ (iteration head) ] -> [ (map) ] -> [ (filter)->(iteration tail) ]
+	 *                                                  \
+	 *                                                    -> [ (filter)->(sink) ]
+	 * </pre>
+	 */
+	@Override
+	public void testProgram(StreamExecutionEnvironment env) {
+		env.setRestartStrategy(RestartStrategies.fixedDelayRestart(1, 0));
+
+		DataStream<Tuple2<Long, Integer>> stream = env.addSource(new NumberGeneratingSource(NUM_ELEMENTS));
+
+		IterativeStream<Tuple2<Long, Integer>> iteration = stream.iterate(ITERATION_WAIT_TIME);
+
+		DataStream<Tuple2<Long, Integer>> step = iteration.map(new OnceFailingRoundCounter());
+
+		iteration.closeWith(step.filter(new RoundFilter(false)));
+
+		step.filter(new RoundFilter(true)).addSink(new CountingSink());
+	}
+
+	@Override
+	public void postSubmit() {
+		assertTrue("The test program did not fail", OnceFailingRoundCounter.hasFailed);
+
+		long sourceSum = 0;
+		for (long l : NumberGeneratingSource.counts) {
+			sourceSum += l;
+		}
+
+		long roundSum = 0;
+		for (long l : OnceFailingRoundCounter.counts) {
+			roundSum += l;
+		}
+
+		long sinkCount = 0;
+		long sinkSum = 0;
+		for (int i = 0; i < PARALLELISM; i++) {
+			sinkCount += CountingSink.counts[i];
+			sinkSum += CountingSink.sums[i];
+		}
+
+		assertEquals(NUM_ELEMENTS, sourceSum);
+		assertEquals(NUM_ELEMENTS * NUM_ROUNDS, roundSum);
+		assertEquals(NUM_ELEMENTS, sinkCount);
+		assertEquals(NUM_ELEMENTS * (NUM_ELEMENTS - 1) / 2, sinkSum);
+	}
+
+	// --------------------------------------------------------------------------------------------
+	//  Custom Functions
+	// --------------------------------------------------------------------------------------------
+
+	private static class NumberGeneratingSource extends RichSourceFunction<Tuple2<Long, Integer>>
+			implements ParallelSourceFunction<Tuple2<Long, Integer>>, Checkpointed<Long> {
+
+		static final long[] counts = new long[PARALLELISM];
+
+		private final long numElements;
+
+		private long index;
+		private long count;
+		private int step;
+
+		private volatile boolean isRunning = true;
+
+		NumberGeneratingSource(long numElements) {
+			this.numElements = numElements;
+		}
+
+		@Override
+		public void open(Configuration parameters) throws IOException {
+			step = getRuntimeContext().getNumberOfParallelSubtasks();
+			index = count * step + getRuntimeContext().getIndexOfThisSubtask();
+		}
+
+		@Override
+		public void close() throws IOException {
+			counts[getRuntimeContext().getIndexOfThisSubtask()] = count;
+		}
+
+		@Override
+		public void run(SourceContext<Tuple2<Long, Integer>> ctx) throws Exception {
+			final Object lockingObject = ctx.getCheckpointLock();
+
+			while (isRunning && index < numElements) {
+				synchronized (lockingObject) {
+					ctx.collect(new Tuple2<>(index, NUM_ROUNDS));
+					index += step;
+					count++;
+				}
+
+				// slow down, so that checkpoints complete while the source is running
+				if (count % 10 == 0) {
+					Thread.sleep(1);
+				}
+			}
+		}
+
+		@Override
+		public void cancel() {
+			isRunning = false;
+		}
+
+		@Override
+		public Long snapshotState(long checkpointId, long checkpointTimestamp) {
+			return count;
+		}
+
+		@Override
+		public void restoreState(Long state) {
+			count = state;
+		}
+	}
+
+	/**
+	 * The step function of the iteration. It counts the rounds it sees and fails once, after
+	 * the first checkpoint completed, while records are in the loop.
+	 */
+	private static class OnceFailingRoundCounter extends RichMapFunction<Tuple2<Long, Integer>, Tuple2<Long, Integer>>
+			implements Checkpointed<Long>, CheckpointListener {
+
+		static final long[] counts = new long[PARALLELISM];
+
+		private static volatile boolean hasCompletedCheckpoint = false;
+		private static volatile boolean hasFailed = false;
+
+		private long count;
+
+		@Override
+		public void close() throws IOException {
+			counts[getRuntimeContext().getIndexOfThisSubtask()] = count;
+		}
+
+		@Override
+		public Tuple2<Long, Integer> map(Tuple2<Long, Integer> value) throws Exception {
+			count++;
+			if (!hasFailed && hasCompletedCheckpoint) {
+				hasFailed = true;
+				throw new Exception("Test Failure");
+			}
+
+			value.f1 = value.f1 - 1;
+			return value;
+		}
+
+		@Override
+		public Long snapshotState(long checkpointId, long checkpointTimestamp) {
+			return count;
+		}
+
+		@Override
+		public void restoreState(Long state) {
+			count = state;
+		}
+
+		@Override
+		public void notifyCheckpointComplete(long checkpointId) {
+			hasCompletedCheckpoint = true;
+		}
+	}
+
+	private static class RoundFilter implements FilterFunction<Tuple2<Long, Integer>> {
+
+		private final boolean finished;
+
+		RoundFilter(boolean finished) {
+			this.finished = finished;
+		}
+
+		@Override
+		public boolean filter(Tuple2<Long, Integer> value) {
+			return (value.f1 == 0) == finished;
+		}
+	}
+
+	private static class CountingSink extends RichSinkFunction<Tuple2<Long, Integer>>
+			implements Checkpointed<long[]> {
+
+		static final long[] counts = new long[PARALLELISM];
+		static final long[] sums = new long[PARALLELISM];
+
+		private long count;
+		private long sum;
+
+		@Override
+		public void invoke(Tuple2<Long, Integer> value) {
+			count++;
+			sum += value.f0;
+		}
+
+		@Override
+		public void close() throws IOException {
+			counts[getRuntimeContext().getIndexOfThisSubtask()] = count;
+			sums[getRuntimeContext().getIndexOfThisSubtask()] = sum;
+		}
+
+		@Override
+		public long[] snapshotState(long checkpointId, long checkpointTimestamp) {
+			return new long[] { count, sum };
+		}
+
+		@Override
+		public void restoreState(long[] state) {
+			count = state[0];
+			sum = state[1];
+		}
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.test.javaApiOperators;
+
+import org.apache.flink.api.common.functions.JoinFunction;
+import org.apache.flink.api.common.functions.MapFunction;
+import org.apache.flink.api.common.operators.base.JoinOperatorBase.JoinHint;
+import org.apache.flink.api.java.DataSet;
+import org.apache.flink.api.java.ExecutionEnvironment;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.tuple.Tuple4;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.optimizer.Optimizer;
+import org.apache.flink.test.util.MultipleProgramsTestBase;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that joins with a skewed input hint produce the same result as the plain joins, also
+ * when a successor relies on the partitioning of the join output.
+ */
+@SuppressWarnings("serial")
+@RunWith(Parameterized.class)
+public class SkewedJoinITCase extends MultipleProgramsTestBase {
+
+	public SkewedJoinITCase(TestExecutionMode mode) {
+		super(mode);
+	}
+
+	@Test
+	public void testSkewedFirstInput() throws Exception {
+		checkSkewedJoin(JoinHint.REPARTITION_HASH_FIRST, Optimizer.HINT_SKEWED_INPUT_FIRST);
+	}
+
+	@Test
+	public void testSkewedSecondInput() throws Exception {
+		checkSkewedJoin(JoinHint.REPARTITION_SORT_MERGE, Optimizer.HINT_SKEWED_INPUT_SECOND);
+	}
+
+	@Test
+	public void testGroupOnJoinKeyAfterSkewedJoin() throws Exception {
+		ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
+
+		DataSet<Tuple2<Long, Long>> input1 = env.generateSequence(1, 2000).map(new SkewedKeyMapper(2));
+		DataSet<Tuple2<Long, Long>> input2 = env.generateSequence(1, 200).map(new SkewedKeyMapper(2));
+
+		Configuration parameters = new Configuration();
+		parameters.setString(Optimizer.HINT_SKEWED_INPUT, Optimizer.HINT_SKEWED_INPUT_FIRST);
+
+		// the grouping reuses the partitioning of the join output, so all records of a key
+		// must end up in the same partition
+		List<Tuple2<Long, Long>> result = input1.join(input2, JoinHint.REPARTITION_HASH_FIRST).where(0).equalTo(0)
+				.with(new CountJoin())
+				.withForwardedFieldsFirst("f0")
+				.withParameters(parameters)
+				.groupBy(0).sum(1)
+				.collect();
+
+		Map<Long, Long> counts1 = countKeys(2000);
+		Map<Long, Long> counts2 = countKeys(200);
+		Map<Long, Long> expected = new HashMap<>();
+		for (Map.Entry<Long, Long> entry : counts1.entrySet()) {
+			Long count2 = counts2.get(entry.getKey());
+			if (count2 != null) {
+				expected.put(entry.getKey(), entry.getValue() * count2);
+			}
+		}
+
+		Map<Long, Long> counts = new HashMap<>();
+		for (Tuple2<Long, Long> record : result) {
+			// a key that is split across partitions would be emitted several times
+			assertNull(counts.put(record.f0, record.f1));
+		}
+		assertEquals(expected, counts);
+	}
+
+	private void checkSkewedJoin(JoinHint joinHint, String skewedInput) throws Exception {
+		List<Tuple4<Long, Long, Long, Long>> expected = join(joinHint, null);
+		List<Tuple4<Long, Long, Long, Long>> result = join(joinHint, skewedInput);
+
+		Comparator<Tuple4<Long, Long, Long, Long>> comparator = new TupleComparator();
+		Collections.sort(expected, comparator);
+		Collections.sort(result, comparator);
+
+		assertEquals(expected, result);
+	}
+
+	private static List<Tuple4<Long, Long, Long, Long>> join(JoinHint joinHint, String skewedInput) throws Exception {
+		ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
+
+		// half of the records of both inputs have key 0
+		DataSet<Tuple2<Long, Long>> input1 = env.generateSequence(1, 2000).map(new SkewedKeyMapper(2));
+		DataSet<Tuple2<Long, Long>> input2 = env.generateSequence(1, 200).map(new SkewedKeyMapper(2));
+
+		Configuration parameters = new Configuration();
+		if (skewedInput != null) {
+			parameters.setString(Optimizer.HINT_SKEWED_INPUT, skewedInput);
+		}
+
+		return input1.join(input2, joinHint).where(0).equalTo(0)
+				.with(new ConcatJoin())
+				.withParameters(parameters)
+				.collect();
+	}
+
+	private static Map<Long, Long> countKeys(long numRecords) {
+		SkewedKeyMapper mapper = new SkewedKeyMapper(2);
+		Map<Long, Long> counts = new HashMap<>();
+		for (long i = 1; i <= numRecords; i++) {
+			long key = mapper.map(i).f0;
+			Long count = counts.get(key);
+			counts.put(key, count == null ? 1L : count + 1);
+		}
+		return counts;
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static class SkewedKeyMapper implements MapFunction<Long, Tuple2<Long, Long>> {
+
+		private final int skew;
+
+		SkewedKeyMapper(int skew) {
+			this.skew = skew;
+		}
+
+		@Override
+		public Tuple2<Long, Long> map(Long value) {
+			long key = value % skew == 0 ? 0L : value % 100;
+			return new Tuple2<>(key, value);
+		}
+	}
+
+	private static class ConcatJoin
+			implements JoinFunction<Tuple2<Long, Long>, Tuple2<Long, Long>, Tuple4<Long, Long, Long, Long>> {
+
+		@Override
+		public Tuple4<Long, Long, Long, Long> join(Tuple2<Long, Long> first, Tuple2<Long, Long> second) {
+			return new Tuple4<>(first.f0, first.f1, second.f0, second.f1);
+		}
+	}
+
+	private static class CountJoin
+			implements JoinFunction<Tuple2<Long, Long>, Tuple2<Long, Long>, Tuple2<Long, Long>> {
+
+		@Override
+		public Tuple2<Long, Long> join(Tuple2<Long, Long> first, Tuple2<Long, Long> second) {
+			return new Tuple2<>(first.f0, 1L);
+		}
+	}
+
+	private static class TupleComparator implements Comparator<Tuple4<Long, Long, Long, Long>> {
+
+		@Override
+		public int compare(Tuple4<Long, Long, Long, Long> o1, Tuple4<Long, Long, Long, Long> o2) {
+			for (int i = 0; i < 4; i++) {
+				int cmp = o1.<Long>getField(i).compareTo(o2.<Long>getField(i));
+				if (cmp != 0) {
+					return cmp;
+				}
+			}
+			return 0;
+		}
+	}
+}